@@ -0,0 +1,202 @@
+package com.rivet.engine;
+
+import com.rivet.engine.render.Camera;
+
+import java.util.Arrays;
+
+/**
+ * Снимок состояния тика симуляции для потока рендеринга
+ *
+ * Содержит состояние камеры на начало и конец тика (для интерполяции по
+ * partialTicks) и события мира, которые поток OpenGL должен применить:
+ * изменения блоков, загрузку и выгрузку чанков, грязные секции. Пишется
+ * модулями в {@link com.rivet.engine.modules.GameModule#publish} и
+ * читается в {@link com.rivet.engine.modules.GameModule#consume}.
+ */
+public final class FrameSnapshot {
+    
+    // Типы событий; ключ - ChunkPos.pack для чанков и ChunkPos.packSection для секций и блоков,
+    // данные EVENT_BLOCK_CHANGED - {@link #blockChange(int, int)}
+    public static final int EVENT_SECTION_DIRTY = 0;
+    public static final int EVENT_BLOCK_CHANGED = 1;
+    public static final int EVENT_CHUNK_LOADED = 2;
+    public static final int EVENT_CHUNK_UNLOADED = 3;
+    // Начало полного списка загруженных чанков: данные - количество следующих EVENT_CHUNK_LOADED
+    public static final int EVENT_CHUNKS_RESYNC = 4;
+    
+    // Тик
+    private long tick;
+    private long publishNanos;
+    private long tickNanos;
+    
+    // Камера: предыдущее и текущее состояние
+    private float prevX, prevY, prevZ, prevYaw, prevPitch;
+    private float x, y, z, yaw, pitch;
+    
+    // События: сквозной номер первого события и новые для потребителя
+    private int[] eventTypes = new int[64];
+    private long[] eventKeys = new long[64];
+    private int[] eventData = new int[64];
+    private int eventCount = 0;
+    private long eventStart = 0;
+    private int firstNewEvent = 0;
+    private boolean eventGap = false;
+    
+    /**
+     * Добавить событие (поток симуляции, в publish)
+     * @param type тип события
+     * @param key упакованный ключ
+     */
+    public void addEvent(int type, long key) {
+        addEvent(type, key, 0);
+    }
+    
+    /**
+     * Добавить событие с данными (поток симуляции, в publish)
+     * @param type тип события
+     * @param key упакованный ключ
+     * @param data данные события
+     */
+    public void addEvent(int type, long key, int data) {
+        if (eventCount == eventKeys.length) {
+            eventTypes = Arrays.copyOf(eventTypes, eventCount * 2);
+            eventKeys = Arrays.copyOf(eventKeys, eventCount * 2);
+            eventData = Arrays.copyOf(eventData, eventCount * 2);
+        }
+        eventTypes[eventCount] = type;
+        eventKeys[eventCount] = key;
+        eventData[eventCount] = data;
+        eventCount++;
+    }
+    
+    /**
+     * Упаковать данные события изменения блока
+     * @param oldId прежний идентификатор состояния
+     * @param newId новый идентификатор состояния
+     * @return данные для {@link #EVENT_BLOCK_CHANGED}
+     */
+    public static int blockChange(int oldId, int newId) {
+        return oldId << 16 | (newId & 0xFFFF);
+    }
+    
+    public static int oldBlockId(int data) {
+        return data >>> 16;
+    }
+    
+    public static int newBlockId(int data) {
+        return data & 0xFFFF;
+    }
+    
+    /**
+     * Задать состояние камеры в начале и в конце тика
+     */
+    public void setCamera(float prevX, float prevY, float prevZ, float prevYaw, float prevPitch,
+                          float x, float y, float z, float yaw, float pitch) {
+        this.prevX = prevX;
+        this.prevY = prevY;
+        this.prevZ = prevZ;
+        this.prevYaw = prevYaw;
+        this.prevPitch = prevPitch;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.yaw = yaw;
+        this.pitch = pitch;
+    }
+    
+    /**
+     * Применить к камере состояние, интерполированное между началом и концом тика
+     * @param camera камера потока OpenGL
+     * @param partialTicks доля тика (0-1)
+     */
+    public void applyCamera(Camera camera, float partialTicks) {
+        camera.setPosition(
+            prevX + (x - prevX) * partialTicks,
+            prevY + (y - prevY) * partialTicks,
+            prevZ + (z - prevZ) * partialTicks);
+        
+        // Поворот по кратчайшей дуге
+        float deltaYaw = yaw - prevYaw;
+        deltaYaw -= 360.0f * Math.round(deltaYaw / 360.0f);
+        camera.setRotation(prevYaw + deltaYaw * partialTicks, prevPitch + (pitch - prevPitch) * partialTicks);
+    }
+    
+    /**
+     * Доля тика, прошедшая с публикации снимка
+     * @param now текущее время System.nanoTime()
+     * @return значение от 0 до 1
+     */
+    public float getPartialTicks(long now) {
+        if (tickNanos <= 0) {
+            return 1.0f;
+        }
+        float partial = (float) (now - publishNanos) / tickNanos;
+        return Math.max(0.0f, Math.min(1.0f, partial));
+    }
+    
+    public long getTick() {
+        return tick;
+    }
+    
+    public int getEventCount() {
+        return eventCount;
+    }
+    
+    /**
+     * Индекс первого события, еще не обработанного потоком OpenGL
+     * @return индекс в диапазоне [0, getEventCount()]
+     */
+    public int getFirstNewEvent() {
+        return firstNewEvent;
+    }
+    
+    /**
+     * Часть событий до этого снимка потеряна (журнал переполнился)
+     * @return true если потребитель должен заново синхронизировать состояние
+     */
+    public boolean isEventGap() {
+        return eventGap;
+    }
+    
+    public int getEventType(int index) {
+        return eventTypes[index];
+    }
+    
+    public long getEventKey(int index) {
+        return eventKeys[index];
+    }
+    
+    public int getEventData(int index) {
+        return eventData[index];
+    }
+    
+    void beginTick(long tick, long tickNanos) {
+        this.tick = tick;
+        this.tickNanos = tickNanos;
+        this.eventCount = 0;
+    }
+    
+    void setPublishNanos(long publishNanos) {
+        this.publishNanos = publishNanos;
+    }
+    
+    long getEventStart() {
+        return eventStart;
+    }
+    
+    void setEventStart(long eventStart) {
+        this.eventStart = eventStart;
+    }
+    
+    void setFirstNewEvent(int firstNewEvent) {
+        this.firstNewEvent = firstNewEvent;
+    }
+    
+    void setEventGap(boolean eventGap) {
+        this.eventGap = eventGap;
+    }
+    
+    void clearEvents() {
+        eventCount = 0;
+    }
+}
@@ -1,6 +1,12 @@
 package com.rivet.engine;
 
+import com.rivet.engine.memory.GpuMemory;
+import com.rivet.engine.memory.NativeMemory;
 import com.rivet.engine.modules.GameModule;
+import com.rivet.engine.profiling.ModuleInitEvent;
+import com.rivet.engine.profiling.ModuleRenderEvent;
+import com.rivet.engine.profiling.ModuleUpdateEvent;
+import jdk.jfr.FlightRecorder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -9,7 +15,9 @@ import java.util.List;
 
 /**
  * Менеджер модулей движка Rivet
- * Управляет жизненным циклом всех модулей
+ * Управляет жизненным циклом всех модулей. Инициализация, обновление и
+ * отрисовка каждого модуля записываются событиями JFR (rivet.Module*),
+ * если они включены профилем /jfr/rivet.jfc.
  */
 public class ModuleManager {
     
@@ -42,12 +50,20 @@ public class ModuleManager {
         logger.info("Инициализация модулей движка...");
         
         for (GameModule module : modules) {
+            ModuleInitEvent event = new ModuleInitEvent();
+            event.begin();
             try {
                 module.initialize();
                 logger.info("✓ {} инициализирован", module.getName());
             } catch (Exception e) {
                 logger.error("✗ Ошибка инициализации {}: {}", module.getName(), e.getMessage(), e);
                 throw e;
+            } finally {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.module = module.getName();
+                    event.commit();
+                }
             }
         }
         
@@ -60,9 +76,50 @@ public class ModuleManager {
      * @param deltaTime время с последнего обновления
      */
     public void updateAll(float deltaTime) {
-        for (GameModule module : modules) {
-            if (module.isInitialized()) {
+        // Без JFR события не создаются: обход модулей не выделяет памяти
+        boolean profiling = FlightRecorder.isInitialized();
+        for (int i = 0; i < modules.size(); i++) {
+            GameModule module = modules.get(i);
+            if (!module.isInitialized()) {
+                continue;
+            }
+            if (!profiling) {
                 module.update(deltaTime);
+                continue;
+            }
+            ModuleUpdateEvent event = new ModuleUpdateEvent();
+            event.begin();
+            module.update(deltaTime);
+            event.end();
+            if (event.shouldCommit()) {
+                event.module = module.getName();
+                event.commit();
+            }
+        }
+    }
+    
+    /**
+     * Запись состояния всех модулей в снимок тика (поток симуляции)
+     * @param snapshot снимок текущего тика
+     */
+    public void publishAll(FrameSnapshot snapshot) {
+        for (int i = 0; i < modules.size(); i++) {
+            GameModule module = modules.get(i);
+            if (module.isInitialized()) {
+                module.publish(snapshot);
+            }
+        }
+    }
+    
+    /**
+     * Применение снимка тика всеми модулями перед рендерингом (поток OpenGL)
+     * @param snapshot последний опубликованный снимок
+     */
+    public void consumeAll(FrameSnapshot snapshot) {
+        for (int i = 0; i < modules.size(); i++) {
+            GameModule module = modules.get(i);
+            if (module.isInitialized()) {
+                module.consume(snapshot);
             }
         }
     }
@@ -72,9 +129,23 @@ public class ModuleManager {
      * @param partialTicks частичные тики для плавной анимации
      */
     public void renderAll(float partialTicks) {
-        for (GameModule module : modules) {
-            if (module.isInitialized()) {
+        boolean profiling = FlightRecorder.isInitialized();
+        for (int i = 0; i < modules.size(); i++) {
+            GameModule module = modules.get(i);
+            if (!module.isInitialized()) {
+                continue;
+            }
+            if (!profiling) {
                 module.render(partialTicks);
+                continue;
+            }
+            ModuleRenderEvent event = new ModuleRenderEvent();
+            event.begin();
+            module.render(partialTicks);
+            event.end();
+            if (event.shouldCommit()) {
+                event.module = module.getName();
+                event.commit();
             }
         }
     }
@@ -99,6 +170,10 @@ public class ModuleManager {
         modules.clear();
         initialized = false;
         logger.info("Все модули движка очищены");
+        
+        // Все, что осталось после очистки модулей, - утечка
+        NativeMemory.reportLeaks();
+        GpuMemory.reportLeaks();
     }
     
     /**
@@ -0,0 +1,156 @@
+package com.rivet.engine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Цикл симуляции с фиксированным шагом
+ *
+ * Вызывает {@link ModuleManager#updateAll} с постоянным шагом и публикует
+ * снимок каждого тика. Может работать в собственном потоке или вызываться
+ * из игрового цикла через {@link #runDueTicks}. При сильном отставании
+ * пропущенные тики отбрасываются, чтобы не уйти в спираль догоняния.
+ */
+public class SimulationLoop implements Runnable {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SimulationLoop.class);
+    
+    // Максимум тиков подряд при догонянии
+    private static final int MAX_CATCH_UP_TICKS = 5;
+    
+    private final ModuleManager moduleManager;
+    private final SnapshotExchange exchange;
+    private final long tickNanos;
+    private final float tickSeconds;
+    
+    private volatile boolean running = false;
+    private volatile boolean paused = false;
+    private Thread thread;
+    private long nextTick = 0;
+    
+    // Метрики
+    private volatile long tickCount = 0;
+    private volatile long lastTickDuration = 0;
+    private volatile long skippedTicks = 0;
+    
+    /**
+     * @param moduleManager менеджер модулей
+     * @param exchange обмен снимками с потоком OpenGL
+     * @param ticksPerSecond частота тиков
+     */
+    public SimulationLoop(ModuleManager moduleManager, SnapshotExchange exchange, int ticksPerSecond) {
+        this.moduleManager = moduleManager;
+        this.exchange = exchange;
+        this.tickNanos = 1_000_000_000L / ticksPerSecond;
+        this.tickSeconds = 1.0f / ticksPerSecond;
+    }
+    
+    /**
+     * Выполнить один тик и опубликовать снимок
+     */
+    public void tick() {
+        long start = System.nanoTime();
+        FrameSnapshot snapshot = exchange.beginTick(tickNanos);
+        moduleManager.updateAll(tickSeconds);
+        moduleManager.publishAll(snapshot);
+        exchange.publish();
+        lastTickDuration = System.nanoTime() - start;
+        tickCount++;
+    }
+    
+    /**
+     * Выполнить все тики, время которых наступило
+     * @param now текущее время System.nanoTime()
+     * @return количество выполненных тиков
+     */
+    public int runDueTicks(long now) {
+        if (nextTick == 0) {
+            nextTick = now;
+        }
+        if (paused) {
+            nextTick = now;
+            return 0;
+        }
+        
+        int ticks = 0;
+        while (now - nextTick >= 0 && ticks < MAX_CATCH_UP_TICKS) {
+            tick();
+            nextTick += tickNanos;
+            ticks++;
+        }
+        if (now - nextTick > tickNanos * MAX_CATCH_UP_TICKS) {
+            skippedTicks += (now - nextTick) / tickNanos;
+            nextTick = now;
+        }
+        return ticks;
+    }
+    
+    /**
+     * Запустить симуляцию в отдельном потоке
+     */
+    public void start() {
+        running = true;
+        thread = new Thread(this, "Simulation");
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("Поток симуляции запущен: {} тиков/с", 1_000_000_000L / tickNanos);
+    }
+    
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                runDueTicks(System.nanoTime());
+                long wait = nextTick - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(this, wait);
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Ошибка в потоке симуляции", e);
+            running = false;
+        }
+    }
+    
+    /**
+     * Остановить поток симуляции и дождаться завершения текущего тика
+     */
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(1000L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+    }
+    
+    public boolean isRunning() {
+        return running;
+    }
+    
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+    }
+    
+    public long getTickCount() {
+        return tickCount;
+    }
+    
+    public long getLastTickDuration() {
+        return lastTickDuration;
+    }
+    
+    public long getSkippedTicks() {
+        return skippedTicks;
+    }
+    
+    public long getTickNanos() {
+        return tickNanos;
+    }
+}
@@ -0,0 +1,117 @@
+package com.rivet.engine;
+
+import com.rivet.engine.util.LongQueue;
+import com.rivet.engine.util.TripleBuffer;
+
+/**
+ * Передача снимков тиков из потока симуляции в поток OpenGL
+ *
+ * Состояние (камера) передается через тройной буфер: поток OpenGL всегда
+ * видит последний тик, промежуточные снимки могут пропускаться. События
+ * пропускать нельзя, поэтому производитель хранит журнал событий и в каждый
+ * снимок копирует все события, которые потребитель еще не подтвердил.
+ * Ни одна из сторон не ждет другую.
+ *
+ * Журнал ограничен {@link #MAX_PENDING_EVENTS}: если поток OpenGL стоит
+ * (долгая загрузка, отладчик), старые события отбрасываются, а первый
+ * снимок после разрыва помечается {@link FrameSnapshot#isEventGap()} -
+ * потребитель должен заново синхронизировать свое состояние.
+ */
+public final class SnapshotExchange {
+    
+    public static final int MAX_PENDING_EVENTS = 16384;
+    
+    private final TripleBuffer<FrameSnapshot> buffer = new TripleBuffer<>(FrameSnapshot::new);
+    
+    // Поток симуляции: журнал неподтвержденных событий (данные события - в старших 32 битах типа)
+    private final LongQueue logTypes = new LongQueue(256);
+    private final LongQueue logKeys = new LongQueue(256);
+    private long logStart = 0;
+    private long tick = 0;
+    private long droppedEvents = 0;
+    
+    // Поток OpenGL: сквозной номер следующего необработанного события
+    private long processed = 0;
+    private volatile long acknowledged = 0;
+    
+    /**
+     * Начать новый тик (поток симуляции)
+     * @param tickNanos длительность тика в наносекундах
+     * @return снимок для заполнения модулями
+     */
+    public FrameSnapshot beginTick(long tickNanos) {
+        FrameSnapshot snapshot = buffer.getWriteBuffer();
+        snapshot.beginTick(++tick, tickNanos);
+        return snapshot;
+    }
+    
+    /**
+     * Опубликовать заполненный снимок (поток симуляции)
+     */
+    public void publish() {
+        FrameSnapshot snapshot = buffer.getWriteBuffer();
+        
+        long ack = acknowledged;
+        while (logStart < ack && !logKeys.isEmpty()) {
+            logTypes.poll();
+            logKeys.poll();
+            logStart++;
+        }
+        for (int i = 0; i < snapshot.getEventCount(); i++) {
+            logTypes.add((long) snapshot.getEventData(i) << 32 | snapshot.getEventType(i));
+            logKeys.add(snapshot.getEventKey(i));
+        }
+        while (logKeys.size() > MAX_PENDING_EVENTS) {
+            logTypes.poll();
+            logKeys.poll();
+            logStart++;
+            droppedEvents++;
+        }
+        
+        snapshot.clearEvents();
+        snapshot.setEventStart(logStart);
+        for (int i = 0; i < logKeys.size(); i++) {
+            long type = logTypes.get(i);
+            snapshot.addEvent((int) type, logKeys.get(i), (int) (type >>> 32));
+        }
+        snapshot.setPublishNanos(System.nanoTime());
+        buffer.publish();
+    }
+    
+    /**
+     * Получить последний снимок (поток OpenGL)
+     * @return снимок с отмеченными новыми событиями
+     */
+    public FrameSnapshot acquire() {
+        FrameSnapshot snapshot = buffer.acquire();
+        long first = processed - snapshot.getEventStart();
+        snapshot.setFirstNewEvent((int) Math.max(0, Math.min(first, snapshot.getEventCount())));
+        snapshot.setEventGap(first < 0);
+        return snapshot;
+    }
+    
+    /**
+     * Подтвердить обработку событий снимка (поток OpenGL)
+     * @param snapshot снимок, полученный из {@link #acquire()}
+     */
+    public void release(FrameSnapshot snapshot) {
+        processed = Math.max(processed, snapshot.getEventStart() + snapshot.getEventCount());
+        acknowledged = processed;
+    }
+    
+    /**
+     * Получить количество неподтвержденных событий в журнале
+     * @return количество событий
+     */
+    public int getPendingEventCount() {
+        return logKeys.size();
+    }
+    
+    /**
+     * Получить количество событий, отброшенных при переполнении журнала
+     * @return количество событий
+     */
+    public long getDroppedEventCount() {
+        return droppedEvents;
+    }
+}
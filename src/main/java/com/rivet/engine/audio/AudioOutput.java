@@ -0,0 +1,26 @@
+package com.rivet.engine.audio;
+
+/**
+ * Выходная ступень микшера: устройство вывода или буфер в памяти
+ *
+ * Вызывается только из потока микшера.
+ */
+public interface AudioOutput {
+    
+    /**
+     * Частота дискретизации выхода в Гц
+     */
+    int getSampleRate();
+    
+    /**
+     * Записать стерео кадры (может блокироваться до освобождения устройства)
+     * @param samples стерео кадры с чередованием каналов, float в [-1, 1]
+     * @param frames количество кадров
+     */
+    void write(float[] samples, int frames);
+    
+    /**
+     * Закрыть выход
+     */
+    void close();
+}
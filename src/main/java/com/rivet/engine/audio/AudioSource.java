@@ -0,0 +1,38 @@
+package com.rivet.engine.audio;
+
+/**
+ * Источник PCM для микшера: кадры с чередованием каналов, float в [-1, 1]
+ *
+ * {@link #read} вызывается только из потока микшера и не должен блокироваться.
+ */
+public interface AudioSource {
+    
+    /**
+     * Количество каналов (1 или 2)
+     */
+    int getChannels();
+    
+    /**
+     * Частота дискретизации в Гц
+     */
+    int getSampleRate();
+    
+    /**
+     * Прочитать кадры
+     * @param out массив с чередованием каналов
+     * @param offset индекс первого элемента в out
+     * @param frames максимум кадров
+     * @return прочитано кадров; 0 - данных пока нет или источник закончился
+     */
+    int read(float[] out, int offset, int frames);
+    
+    /**
+     * Проверить, что источник закончился и больше не даст кадров
+     */
+    boolean isEnded();
+    
+    /**
+     * Освободить источник (из любого потока, может вызываться повторно)
+     */
+    void close();
+}
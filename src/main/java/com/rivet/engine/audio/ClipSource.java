@@ -0,0 +1,46 @@
+package com.rivet.engine.audio;
+
+/**
+ * Воспроизведение декодированного клипа с начала до конца
+ */
+final class ClipSource implements AudioSource {
+    
+    private final SoundClip clip;
+    private int position = 0;
+    
+    ClipSource(SoundClip clip) {
+        this.clip = clip;
+    }
+    
+    @Override
+    public int getChannels() {
+        return clip.getChannels();
+    }
+    
+    @Override
+    public int getSampleRate() {
+        return clip.getSampleRate();
+    }
+    
+    @Override
+    public int read(float[] out, int offset, int frames) {
+        int channels = clip.getChannels();
+        int count = Math.min(frames, clip.getFrameCount() - position);
+        if (count <= 0) {
+            return 0;
+        }
+        System.arraycopy(clip.getSamples(), position * channels, out, offset, count * channels);
+        position += count;
+        return count;
+    }
+    
+    @Override
+    public boolean isEnded() {
+        return position >= clip.getFrameCount();
+    }
+    
+    @Override
+    public void close() {
+        position = clip.getFrameCount();
+    }
+}
@@ -0,0 +1,80 @@
+package com.rivet.engine.audio;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кольцевой буфер float без блокировок для одного писателя и одного читателя
+ *
+ * Позиции записи и чтения растут монотонно; каждая сторона меняет только свою
+ * и публикует ее записью с release-семантикой после копирования данных.
+ */
+public final class FloatRingBuffer {
+    
+    private final float[] data;
+    private final int mask;
+    private final AtomicLong readPosition = new AtomicLong();
+    private final AtomicLong writePosition = new AtomicLong();
+    
+    /**
+     * @param capacity минимальная емкость (округляется до степени двойки)
+     */
+    public FloatRingBuffer(int capacity) {
+        int actual = Integer.highestOneBit(Math.max(16, capacity) - 1) << 1;
+        this.data = new float[actual];
+        this.mask = actual - 1;
+    }
+    
+    /**
+     * Записать сколько поместится (поток писателя)
+     * @return записано элементов
+     */
+    public int write(float[] source, int offset, int length) {
+        long write = writePosition.get();
+        int count = Math.min(length, data.length - (int) (write - readPosition.get()));
+        if (count <= 0) {
+            return 0;
+        }
+        int start = (int) write & mask;
+        int first = Math.min(count, data.length - start);
+        System.arraycopy(source, offset, data, start, first);
+        System.arraycopy(source, offset + first, data, 0, count - first);
+        writePosition.setRelease(write + count);
+        return count;
+    }
+    
+    /**
+     * Прочитать до length элементов (поток читателя)
+     * @return прочитано элементов
+     */
+    public int read(float[] target, int offset, int length) {
+        long read = readPosition.get();
+        int count = Math.min(length, (int) (writePosition.get() - read));
+        if (count <= 0) {
+            return 0;
+        }
+        int start = (int) read & mask;
+        int first = Math.min(count, data.length - start);
+        System.arraycopy(data, start, target, offset, first);
+        System.arraycopy(data, 0, target, offset + first, count - first);
+        readPosition.setRelease(read + count);
+        return count;
+    }
+    
+    /**
+     * Элементов, доступных для чтения
+     */
+    public int available() {
+        return (int) (writePosition.get() - readPosition.get());
+    }
+    
+    /**
+     * Свободного места для записи
+     */
+    public int free() {
+        return data.length - available();
+    }
+    
+    public int capacity() {
+        return data.length;
+    }
+}
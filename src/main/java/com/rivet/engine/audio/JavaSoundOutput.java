@@ -0,0 +1,57 @@
+package com.rivet.engine.audio;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * Выход микшера на звуковое устройство через javax.sound.sampled
+ * Запись блокируется, пока в буфере устройства нет места, и этим задает темп микшеру.
+ */
+public final class JavaSoundOutput implements AudioOutput {
+    
+    private final int sampleRate;
+    private final SourceDataLine line;
+    private byte[] bytes = new byte[Mixer.MAX_BLOCK_FRAMES * 4];
+    
+    /**
+     * Открыть устройство вывода по умолчанию
+     * @param sampleRate частота дискретизации
+     * @param bufferFrames размер буфера устройства в кадрах (задержка вывода)
+     * @throws LineUnavailableException если устройства нет или формат не поддерживается
+     */
+    public JavaSoundOutput(int sampleRate, int bufferFrames) throws LineUnavailableException {
+        this.sampleRate = sampleRate;
+        AudioFormat format = new AudioFormat(sampleRate, 16, 2, true, false);
+        this.line = AudioSystem.getSourceDataLine(format);
+        line.open(format, bufferFrames * 4);
+        line.start();
+    }
+    
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+    
+    @Override
+    public void write(float[] samples, int frames) {
+        int length = frames * 4;
+        if (bytes.length < length) {
+            bytes = new byte[length];
+        }
+        for (int i = 0, count = frames * 2; i < count; i++) {
+            short sample = PcmBufferOutput.toPcm16(samples[i]);
+            bytes[i * 2] = (byte) sample;
+            bytes[i * 2 + 1] = (byte) (sample >> 8);
+        }
+        line.write(bytes, 0, length);
+    }
+    
+    @Override
+    public void close() {
+        line.stop();
+        line.flush();
+        line.close();
+    }
+}
@@ -0,0 +1,358 @@
+package com.rivet.engine.audio;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Программный микшер с ограничением голосов и вытеснением по приоритету
+ *
+ * Управляющие потоки ставят команды в неблокирующую очередь; голоса
+ * принадлежат только потоку микшера, который применяет команды в начале
+ * каждого блока. Если свободных голосов нет, новый звук вытесняет голос с
+ * наименьшим приоритетом (при равенстве - самый старый), но только если его
+ * приоритет не выше нового. Источники с другой частотой дискретизации
+ * пересчитываются линейной интерполяцией. Выход - стерео float с
+ * чередованием каналов; {@link #mix} не создает объектов.
+ */
+public final class Mixer {
+    
+    public static final int MAX_BLOCK_FRAMES = 1024;
+    
+    private static final int COMMAND_PLAY = 0;
+    private static final int COMMAND_STOP = 1;
+    private static final int COMMAND_VOLUME = 2;
+    private static final int COMMAND_STOP_ALL = 3;
+    
+    /**
+     * Команда управляющего потока
+     */
+    private static final class Command {
+        final int type;
+        final int handle;
+        final AudioSource source;
+        final int priority;
+        final float volume;
+        final float pan;
+        
+        Command(int type, int handle, AudioSource source, int priority, float volume, float pan) {
+            this.type = type;
+            this.handle = handle;
+            this.source = source;
+            this.priority = priority;
+            this.volume = volume;
+            this.pan = pan;
+        }
+    }
+    
+    /**
+     * Голос микшера: источник, усиление и состояние пересчета частоты
+     */
+    private static final class Voice {
+        int handle;
+        AudioSource source;
+        int priority;
+        long sequence;
+        int channels;
+        float gainLeft;
+        float gainRight;
+        double step;
+        double position;
+        int available;
+        // Кадры источника; последний кадр предыдущего чтения остается для интерполяции
+        float[] buffer = new float[0];
+    }
+    
+    private final int sampleRate;
+    private final Voice[] voices;
+    private final ConcurrentLinkedQueue<Command> commands = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger nextHandle = new AtomicInteger(1);
+    private long sequence = 0;
+    private volatile float masterVolume = 1.0f;
+    
+    // Метрики (пишет поток микшера)
+    private volatile int activeVoices = 0;
+    private volatile long stolenVoices = 0;
+    private volatile long rejectedSounds = 0;
+    private volatile long underruns = 0;
+    private volatile long mixedFrames = 0;
+    
+    /**
+     * @param sampleRate частота выхода в Гц
+     * @param maxVoices максимум одновременно звучащих голосов
+     */
+    public Mixer(int sampleRate, int maxVoices) {
+        this.sampleRate = sampleRate;
+        this.voices = new Voice[maxVoices];
+        for (int i = 0; i < maxVoices; i++) {
+            voices[i] = new Voice();
+        }
+    }
+    
+    /**
+     * Запустить звук (из любого потока)
+     * @param source источник; микшер закроет его по окончании или вытеснении
+     * @param priority приоритет: голос с меньшим приоритетом вытесняется первым
+     * @param volume громкость (1 - без изменения)
+     * @param pan панорама от -1 (слева) до 1 (справа)
+     * @return идентификатор голоса для {@link #stop} и {@link #setVolume}
+     */
+    public int play(AudioSource source, int priority, float volume, float pan) {
+        int handle = nextHandle.getAndIncrement();
+        commands.add(new Command(COMMAND_PLAY, handle, source, priority, volume, pan));
+        return handle;
+    }
+    
+    /**
+     * Остановить голос (из любого потока)
+     */
+    public void stop(int handle) {
+        commands.add(new Command(COMMAND_STOP, handle, null, 0, 0.0f, 0.0f));
+    }
+    
+    /**
+     * Изменить громкость и панораму голоса (из любого потока)
+     */
+    public void setVolume(int handle, float volume, float pan) {
+        commands.add(new Command(COMMAND_VOLUME, handle, null, 0, volume, pan));
+    }
+    
+    /**
+     * Остановить все голоса (из любого потока)
+     */
+    public void stopAll() {
+        commands.add(new Command(COMMAND_STOP_ALL, 0, null, 0, 0.0f, 0.0f));
+    }
+    
+    /**
+     * Применить команды из очереди без смешивания
+     * Вызывается потоком микшера при остановке или владельцем после того,
+     * как поток микшера завершился: голоса, остановленные командами, закрываются.
+     */
+    public void drain() {
+        applyCommands();
+        int active = 0;
+        for (Voice voice : voices) {
+            if (voice.source != null) {
+                active++;
+            }
+        }
+        activeVoices = active;
+    }
+    
+    public void setMasterVolume(float masterVolume) {
+        this.masterVolume = masterVolume;
+    }
+    
+    /**
+     * Смешать блок (поток микшера)
+     * @param out стерео кадры с чередованием каналов, перезаписываются
+     * @param frames количество кадров (не больше {@link #MAX_BLOCK_FRAMES})
+     */
+    public void mix(float[] out, int frames) {
+        if (frames > MAX_BLOCK_FRAMES) {
+            throw new IllegalArgumentException("Block too large: " + frames);
+        }
+        applyCommands();
+        Arrays.fill(out, 0, frames * 2, 0.0f);
+        
+        int active = 0;
+        for (Voice voice : voices) {
+            if (voice.source == null) {
+                continue;
+            }
+            if (mixVoice(voice, out, frames)) {
+                active++;
+            } else {
+                release(voice);
+            }
+        }
+        
+        float master = masterVolume;
+        if (master != 1.0f) {
+            for (int i = 0, length = frames * 2; i < length; i++) {
+                out[i] *= master;
+            }
+        }
+        activeVoices = active;
+        mixedFrames += frames;
+    }
+    
+    private void applyCommands() {
+        Command command;
+        while ((command = commands.poll()) != null) {
+            switch (command.type) {
+                case COMMAND_PLAY -> start(command);
+                case COMMAND_STOP -> {
+                    Voice voice = find(command.handle);
+                    if (voice != null) {
+                        release(voice);
+                    }
+                }
+                case COMMAND_VOLUME -> {
+                    Voice voice = find(command.handle);
+                    if (voice != null) {
+                        setGains(voice, command.volume, command.pan);
+                    }
+                }
+                case COMMAND_STOP_ALL -> {
+                    for (Voice voice : voices) {
+                        if (voice.source != null) {
+                            release(voice);
+                        }
+                    }
+                }
+                default -> throw new IllegalStateException("Unknown mixer command " + command.type);
+            }
+        }
+    }
+    
+    private void start(Command command) {
+        Voice target = null;
+        for (Voice voice : voices) {
+            if (voice.source == null) {
+                target = voice;
+                break;
+            }
+            if (target == null || voice.priority < target.priority
+                    || (voice.priority == target.priority && voice.sequence < target.sequence)) {
+                target = voice;
+            }
+        }
+        if (target == null || (target.source != null && target.priority > command.priority)) {
+            command.source.close();
+            rejectedSounds++;
+            return;
+        }
+        if (target.source != null) {
+            release(target);
+            stolenVoices++;
+        }
+        
+        AudioSource source = command.source;
+        target.handle = command.handle;
+        target.source = source;
+        target.priority = command.priority;
+        target.sequence = sequence++;
+        target.channels = source.getChannels();
+        target.step = (double) source.getSampleRate() / sampleRate;
+        target.position = 0.0;
+        target.available = 0;
+        // Блок выхода плюс запас на интерполяцию при любой частоте источника
+        int needed = ((int) Math.ceil(MAX_BLOCK_FRAMES * target.step) + 2) * target.channels;
+        if (target.buffer.length < needed) {
+            target.buffer = new float[needed];
+        }
+        setGains(target, command.volume, command.pan);
+    }
+    
+    private static void setGains(Voice voice, float volume, float pan) {
+        float clamped = Math.max(-1.0f, Math.min(1.0f, pan));
+        voice.gainLeft = volume * Math.min(1.0f, 1.0f - clamped);
+        voice.gainRight = volume * Math.min(1.0f, 1.0f + clamped);
+    }
+    
+    /**
+     * Добавить голос в выход
+     * @return false если источник закончился
+     */
+    private boolean mixVoice(Voice voice, float[] out, int frames) {
+        int channels = voice.channels;
+        float[] in = voice.buffer;
+        float left = voice.gainLeft;
+        float right = voice.gainRight;
+        double step = voice.step;
+        double position = voice.position;
+        
+        for (int f = 0; f < frames; f++) {
+            int i = (int) position;
+            if (i + 1 >= voice.available) {
+                voice.position = position;
+                refill(voice);
+                position = voice.position;
+                i = (int) position;
+                if (i + 1 >= voice.available) {
+                    if (voice.source.isEnded()) {
+                        return false;
+                    }
+                    underruns++;
+                    break; // декодер не успел: остаток блока - тишина
+                }
+            }
+            float fraction = (float) (position - i);
+            int a = i * channels;
+            int b = a + channels;
+            if (channels == 1) {
+                float sample = in[a] + (in[b] - in[a]) * fraction;
+                out[f * 2] += sample * left;
+                out[f * 2 + 1] += sample * right;
+            } else {
+                out[f * 2] += (in[a] + (in[b] - in[a]) * fraction) * left;
+                out[f * 2 + 1] += (in[a + 1] + (in[b + 1] - in[a + 1]) * fraction) * right;
+            }
+            position += step;
+        }
+        voice.position = position;
+        return true;
+    }
+    
+    /**
+     * Сдвинуть непрочитанные кадры в начало буфера и дочитать источник
+     */
+    private static void refill(Voice voice) {
+        int channels = voice.channels;
+        int first = Math.min((int) voice.position, voice.available);
+        int keep = voice.available - first;
+        System.arraycopy(voice.buffer, first * channels, voice.buffer, 0, keep * channels);
+        voice.position -= first;
+        voice.available = keep;
+        int space = voice.buffer.length / channels - keep;
+        voice.available += voice.source.read(voice.buffer, keep * channels, space);
+    }
+    
+    private Voice find(int handle) {
+        for (Voice voice : voices) {
+            if (voice.source != null && voice.handle == handle) {
+                return voice;
+            }
+        }
+        return null;
+    }
+    
+    private static void release(Voice voice) {
+        voice.source.close();
+        voice.source = null;
+        voice.handle = 0;
+    }
+    
+    public int getSampleRate() {
+        return sampleRate;
+    }
+    
+    public int getMaxVoices() {
+        return voices.length;
+    }
+    
+    /**
+     * Голосов, звучавших в последнем блоке
+     */
+    public int getActiveVoices() {
+        return activeVoices;
+    }
+    
+    public long getStolenVoices() {
+        return stolenVoices;
+    }
+    
+    public long getRejectedSounds() {
+        return rejectedSounds;
+    }
+    
+    public long getUnderruns() {
+        return underruns;
+    }
+    
+    public long getMixedFrames() {
+        return mixedFrames;
+    }
+}
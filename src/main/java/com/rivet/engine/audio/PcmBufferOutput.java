@@ -0,0 +1,72 @@
+package com.rivet.engine.audio;
+
+import java.util.Arrays;
+
+/**
+ * Выход микшера в 16-битный PCM в памяти, без звукового устройства
+ * Используется для проверки микширования и записи звука в файл.
+ */
+public final class PcmBufferOutput implements AudioOutput {
+    
+    private final int sampleRate;
+    private short[] samples;
+    private int frames = 0;
+    
+    /**
+     * @param sampleRate частота дискретизации
+     * @param capacityFrames начальная емкость в стерео кадрах (растет при необходимости)
+     */
+    public PcmBufferOutput(int sampleRate, int capacityFrames) {
+        this.sampleRate = sampleRate;
+        this.samples = new short[Math.max(16, capacityFrames) * 2];
+    }
+    
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+    
+    @Override
+    public void write(float[] source, int count) {
+        int needed = (frames + count) * 2;
+        if (needed > samples.length) {
+            samples = Arrays.copyOf(samples, Math.max(needed, samples.length * 2));
+        }
+        int offset = frames * 2;
+        for (int i = 0, length = count * 2; i < length; i++) {
+            samples[offset + i] = toPcm16(source[i]);
+        }
+        frames += count;
+    }
+    
+    /**
+     * Перевести float в 16-битный отсчет с ограничением
+     */
+    static short toPcm16(float sample) {
+        float clamped = Math.max(-1.0f, Math.min(1.0f, sample));
+        return (short) Math.round(clamped * Short.MAX_VALUE);
+    }
+    
+    @Override
+    public void close() {
+        // Буфер остается доступным для чтения
+    }
+    
+    /**
+     * Записанные отсчеты: стерео с чередованием каналов, первые getFrameCount() * 2
+     */
+    public short[] getSamples() {
+        return samples;
+    }
+    
+    public int getFrameCount() {
+        return frames;
+    }
+    
+    /**
+     * Очистить записанные данные
+     */
+    public void reset() {
+        frames = 0;
+    }
+}
@@ -0,0 +1,57 @@
+package com.rivet.engine.audio;
+
+/**
+ * Полностью декодированный короткий звук в куче
+ * Неизменяем; один клип может одновременно играть в нескольких голосах.
+ */
+public final class SoundClip {
+    
+    private final float[] samples;
+    private final int channels;
+    private final int sampleRate;
+    
+    /**
+     * @param samples кадры с чередованием каналов, float в [-1, 1]
+     * @param channels количество каналов
+     * @param sampleRate частота дискретизации
+     */
+    public SoundClip(float[] samples, int channels, int sampleRate) {
+        if (channels < 1 || channels > 2) {
+            throw new IllegalArgumentException("Unsupported channel count: " + channels);
+        }
+        this.samples = samples;
+        this.channels = channels;
+        this.sampleRate = sampleRate;
+    }
+    
+    /**
+     * Создать источник для одного воспроизведения
+     */
+    public AudioSource play() {
+        return new ClipSource(this);
+    }
+    
+    float[] getSamples() {
+        return samples;
+    }
+    
+    public int getChannels() {
+        return channels;
+    }
+    
+    public int getSampleRate() {
+        return sampleRate;
+    }
+    
+    public int getFrameCount() {
+        return samples.length / channels;
+    }
+    
+    /**
+     * Размер данных в куче
+     * @return размер в байтах
+     */
+    public long getSize() {
+        return (long) samples.length * Float.BYTES;
+    }
+}
@@ -0,0 +1,118 @@
+package com.rivet.engine.audio;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Фоновый поток, декодирующий потоковые источники вперед
+ *
+ * Новые источники передаются через неблокирующую очередь; список активных
+ * принадлежит только потоку декодера. Закрытые и закончившиеся источники
+ * освобождаются здесь же, поэтому нативные ресурсы stb_vorbis используются
+ * из одного потока.
+ */
+public final class StreamDecoder implements Runnable {
+    
+    private static final Logger logger = LoggerFactory.getLogger(StreamDecoder.class);
+    
+    // Пауза между проходами: много меньше длины буфера источника
+    private static final long IDLE_NANOS = 10_000_000L;
+    
+    private final ConcurrentLinkedQueue<StreamingSource> added = new ConcurrentLinkedQueue<>();
+    private final List<StreamingSource> active = new ArrayList<>();
+    private volatile boolean running = false;
+    private Thread thread;
+    
+    /**
+     * Запустить поток декодера
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this, "AudioDecoder");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /**
+     * Добавить источник (из любого потока)
+     * Первое заполнение буфера тоже выполняет поток декодера: он будится
+     * сразу, а ошибки декодирования закрывают источник, не выходя к
+     * вызывающему. До заполнения микшер отдает тишину.
+     * @param source открытый источник
+     */
+    public void add(StreamingSource source) {
+        added.add(source);
+        LockSupport.unpark(thread);
+    }
+    
+    @Override
+    public void run() {
+        while (running) {
+            decodeAll();
+            LockSupport.parkNanos(IDLE_NANOS);
+        }
+        for (StreamingSource source : active) {
+            source.release();
+        }
+        active.clear();
+        StreamingSource source;
+        while ((source = added.poll()) != null) {
+            source.release();
+        }
+    }
+    
+    /**
+     * Один проход по всем источникам (поток декодера; без потока - для проверки)
+     */
+    public void decodeAll() {
+        StreamingSource source;
+        while ((source = added.poll()) != null) {
+            active.add(source);
+        }
+        for (int i = active.size() - 1; i >= 0; i--) {
+            StreamingSource current = active.get(i);
+            try {
+                current.fill();
+            } catch (RuntimeException e) {
+                logger.error("Ошибка декодирования звука {}", current.getName(), e);
+                current.close();
+            }
+            if (current.isClosed() || current.isEnded()) {
+                current.release();
+                active.remove(i);
+            }
+        }
+    }
+    
+    /**
+     * Остановить поток и освободить все источники
+     */
+    public synchronized void shutdown() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+    
+    /**
+     * Количество источников, которые сейчас декодируются
+     */
+    public int getActiveCount() {
+        return active.size();
+    }
+}
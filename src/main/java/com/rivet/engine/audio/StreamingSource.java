@@ -0,0 +1,308 @@
+package com.rivet.engine.audio;
+
+import com.rivet.engine.memory.MemoryCategory;
+import com.rivet.engine.memory.NativeMemory;
+import org.lwjgl.PointerBuffer;
+import org.lwjgl.stb.STBVorbisInfo;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+import org.lwjgl.system.Pointer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.lwjgl.stb.STBVorbis.VORBIS_need_more_data;
+import static org.lwjgl.stb.STBVorbis.stb_vorbis_close;
+import static org.lwjgl.stb.STBVorbis.stb_vorbis_decode_frame_pushdata;
+import static org.lwjgl.stb.STBVorbis.stb_vorbis_get_info;
+import static org.lwjgl.stb.STBVorbis.stb_vorbis_open_pushdata;
+
+/**
+ * Потоковое декодирование Ogg Vorbis в кольцевой буфер
+ *
+ * Сжатые данные читаются из потока небольшими блоками и подаются в
+ * stb_vorbis через pushdata API, так что в памяти одновременно лежат только
+ * блок входа, один декодированный фрейм и кольцевой буфер на
+ * {@link #BUFFER_SECONDS} секунды звука. {@link #fill()} вызывается потоком
+ * декодера ({@link StreamDecoder}), {@link #read} - потоком микшера; нативные
+ * ресурсы освобождает только поток декодера.
+ */
+public final class StreamingSource implements AudioSource {
+    
+    /**
+     * Открытие сжатого потока (повторно - для зацикливания)
+     */
+    @FunctionalInterface
+    public interface StreamOpener {
+        InputStream open() throws IOException;
+    }
+    
+    public static final float BUFFER_SECONDS = 0.5f;
+    
+    private static final int INPUT_BLOCK = 8 * 1024;
+    private static final int MAX_INPUT = 1024 * 1024;
+    
+    private final StreamOpener opener;
+    private final boolean loop;
+    private final String name;
+    
+    // Состояние декодера: только поток декодера
+    private InputStream input;
+    private ByteBuffer inputBuffer;
+    private final byte[] transfer = new byte[INPUT_BLOCK];
+    private boolean inputEnded;
+    private long handle;
+    private final int[] consumed = new int[1];
+    private final int[] error = new int[1];
+    private final int[] frameChannels = new int[1];
+    private final int[] frameSamples = new int[1];
+    private final PointerBuffer output = MemoryUtil.memAllocPointer(1);
+    private float[] pending = new float[4096];
+    private int pendingOffset = 0;
+    private int pendingLength = 0;
+    private boolean released = false;
+    
+    private final int channels;
+    private final int sampleRate;
+    private final FloatRingBuffer ring;
+    
+    private volatile boolean decodeEnded = false;
+    private volatile boolean closed = false;
+    private volatile long underruns = 0;
+    
+    /**
+     * Открыть поток и прочитать заголовки
+     * @param opener открытие сжатых данных
+     * @param loop начинать заново по окончании
+     * @param name имя для сообщений
+     * @throws IOException если поток не читается или не является Ogg Vorbis
+     */
+    public StreamingSource(StreamOpener opener, boolean loop, String name) throws IOException {
+        this.opener = opener;
+        this.loop = loop;
+        this.name = name;
+        this.inputBuffer = NativeMemory.malloc(MemoryCategory.AUDIO, INPUT_BLOCK * 4);
+        this.inputBuffer.limit(0);
+        try {
+            open();
+            try (MemoryStack stack = MemoryStack.stackPush()) {
+                STBVorbisInfo info = stb_vorbis_get_info(handle, STBVorbisInfo.malloc(stack));
+                this.channels = info.channels();
+                this.sampleRate = info.sample_rate();
+            }
+            if (channels < 1 || channels > 2) {
+                throw new IOException("Unsupported channel count " + channels + " in " + name);
+            }
+        } catch (IOException | RuntimeException e) {
+            release();
+            throw e;
+        }
+        this.ring = new FloatRingBuffer((int) (sampleRate * BUFFER_SECONDS) * channels);
+    }
+    
+    private void open() throws IOException {
+        input = opener.open();
+        if (input == null) {
+            throw new IOException("Sound stream not found: " + name);
+        }
+        inputEnded = false;
+        inputBuffer.clear().limit(0);
+        while (true) {
+            handle = stb_vorbis_open_pushdata(inputBuffer, consumed, error, null);
+            if (handle != MemoryUtil.NULL) {
+                inputBuffer.position(inputBuffer.position() + consumed[0]);
+                return;
+            }
+            if (error[0] != VORBIS_need_more_data || !readInput()) {
+                throw new IOException("Failed to open Vorbis stream " + name + " (error " + error[0] + ")");
+            }
+        }
+    }
+    
+    /**
+     * Дочитать сжатые данные в конец входного буфера
+     * @return false если поток закончился
+     */
+    private boolean readInput() throws IOException {
+        if (inputEnded) {
+            return false;
+        }
+        if (inputBuffer.position() == 0 && inputBuffer.limit() == inputBuffer.capacity()) {
+            // Заголовки или фрейм не помещаются в буфер
+            if (inputBuffer.capacity() >= MAX_INPUT) {
+                throw new IOException("Vorbis packet too large in " + name);
+            }
+            int limit = inputBuffer.limit();
+            inputBuffer = NativeMemory.realloc(MemoryCategory.AUDIO, inputBuffer, inputBuffer.capacity() * 2);
+            inputBuffer.position(0).limit(limit);
+        }
+        inputBuffer.compact();
+        int read = input.read(transfer, 0, Math.min(transfer.length, inputBuffer.remaining()));
+        if (read < 0) {
+            inputEnded = true;
+        } else {
+            inputBuffer.put(transfer, 0, read);
+        }
+        inputBuffer.flip();
+        return read >= 0;
+    }
+    
+    /**
+     * Декодировать вперед, пока есть место в кольцевом буфере (поток декодера)
+     * @return записано элементов
+     */
+    public int fill() {
+        if (closed) {
+            release();
+            return 0;
+        }
+        int written = 0;
+        try {
+            while (true) {
+                if (pendingOffset < pendingLength) {
+                    int count = ring.write(pending, pendingOffset, pendingLength - pendingOffset);
+                    pendingOffset += count;
+                    written += count;
+                    if (pendingOffset < pendingLength) {
+                        break;
+                    }
+                }
+                if (decodeEnded || !decodeFrame()) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            decodeEnded = true;
+            throw new IllegalStateException("Failed to decode " + name, e);
+        }
+        return written;
+    }
+    
+    /**
+     * Декодировать следующий фрейм в pending
+     * @return false если поток закончился
+     */
+    private boolean decodeFrame() throws IOException {
+        while (true) {
+            int used = stb_vorbis_decode_frame_pushdata(handle, inputBuffer, frameChannels, output, frameSamples);
+            if (used == 0) {
+                if (readInput()) {
+                    continue;
+                }
+                if (!loop) {
+                    decodeEnded = true;
+                    return false;
+                }
+                restart();
+                continue;
+            }
+            inputBuffer.position(inputBuffer.position() + used);
+            int samples = frameSamples[0];
+            if (samples == 0) {
+                continue; // пропуск при ресинхронизации
+            }
+            interleave(samples);
+            return true;
+        }
+    }
+    
+    private void restart() throws IOException {
+        stb_vorbis_close(handle);
+        handle = MemoryUtil.NULL;
+        input.close();
+        open();
+    }
+    
+    /**
+     * Перенести фрейм из раздельных каналов stb_vorbis в pending с чередованием
+     */
+    private void interleave(int samples) {
+        int length = samples * channels;
+        if (pending.length < length) {
+            pending = Arrays.copyOf(pending, length);
+        }
+        long channelPointers = output.get(0);
+        for (int c = 0; c < channels; c++) {
+            long data = MemoryUtil.memGetAddress(channelPointers + (long) c * Pointer.POINTER_SIZE);
+            for (int s = 0; s < samples; s++) {
+                pending[s * channels + c] = MemoryUtil.memGetFloat(data + (long) s * Float.BYTES);
+            }
+        }
+        pendingOffset = 0;
+        pendingLength = length;
+    }
+    
+    @Override
+    public int read(float[] out, int offset, int frames) {
+        int count = Math.min(frames, ring.available() / channels);
+        if (count <= 0) {
+            if (!isEnded()) {
+                underruns++;
+            }
+            return 0;
+        }
+        ring.read(out, offset, count * channels);
+        return count;
+    }
+    
+    @Override
+    public boolean isEnded() {
+        return (decodeEnded || closed) && ring.available() < channels;
+    }
+    
+    @Override
+    public void close() {
+        closed = true;
+    }
+    
+    public boolean isClosed() {
+        return closed;
+    }
+    
+    /**
+     * Освободить нативные ресурсы (поток декодера или при ошибке открытия)
+     */
+    void release() {
+        if (released) {
+            return;
+        }
+        released = true;
+        decodeEnded = true;
+        if (handle != MemoryUtil.NULL) {
+            stb_vorbis_close(handle);
+            handle = MemoryUtil.NULL;
+        }
+        NativeMemory.free(MemoryCategory.AUDIO, inputBuffer);
+        MemoryUtil.memFree(output);
+        if (input != null) {
+            try {
+                input.close();
+            } catch (IOException ignored) {
+                // Поток только читался
+            }
+        }
+    }
+    
+    @Override
+    public int getChannels() {
+        return channels;
+    }
+    
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+    
+    /**
+     * Количество чтений, когда декодер не успел заполнить буфер
+     */
+    public long getUnderruns() {
+        return underruns;
+    }
+    
+    public String getName() {
+        return name;
+    }
+}
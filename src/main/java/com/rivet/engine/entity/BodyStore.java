@@ -0,0 +1,59 @@
+package com.rivet.engine.entity;
+
+import java.util.Arrays;
+
+/**
+ * Физические тела: сущности, которые двигает {@link com.rivet.engine.physics.PhysicsSystem}
+ * с гравитацией и столкновениями вместо {@link MovementSystem}
+ *
+ * Флаги контакта (VoxelCollider.COLLIDED_*, ON_GROUND) обновляются каждый шаг физики.
+ */
+public final class BodyStore extends ComponentStore {
+    
+    private float[] gravity;
+    private int[] flags;
+    
+    public BodyStore(int capacity) {
+        super(capacity);
+        int actual = Math.max(16, capacity);
+        gravity = new float[actual];
+        flags = new int[actual];
+    }
+    
+    /**
+     * Добавить или изменить тело сущности
+     * @param entity сущность
+     * @param gravity множитель гравитации (0 - невесомое тело)
+     * @return плотный индекс
+     */
+    public int add(int entity, float gravity) {
+        int i = addEntity(entity);
+        this.gravity[i] = gravity;
+        this.flags[i] = 0;
+        return i;
+    }
+    
+    @Override
+    protected void grow(int capacity) {
+        gravity = Arrays.copyOf(gravity, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+    }
+    
+    @Override
+    protected void swap(int a, int b) {
+        float gravityA = gravity[a];
+        gravity[a] = gravity[b];
+        gravity[b] = gravityA;
+        int flagsA = flags[a];
+        flags[a] = flags[b];
+        flags[b] = flagsA;
+    }
+    
+    public float[] getGravity() {
+        return gravity;
+    }
+    
+    public int[] getFlags() {
+        return flags;
+    }
+}
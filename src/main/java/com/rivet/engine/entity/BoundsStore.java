@@ -0,0 +1,126 @@
+package com.rivet.engine.entity;
+
+import java.util.Arrays;
+
+/**
+ * Ограничивающие параллелепипеды сущностей
+ *
+ * Размер задается полушириной и высотой относительно позиции (центр основания),
+ * мировые границы min/max пересчитывает {@link MovementSystem} после перемещения.
+ */
+public final class BoundsStore extends ComponentStore {
+    
+    private float[] halfWidth;
+    private float[] height;
+    private float[] minX;
+    private float[] minY;
+    private float[] minZ;
+    private float[] maxX;
+    private float[] maxY;
+    private float[] maxZ;
+    
+    public BoundsStore(int capacity) {
+        super(capacity);
+        grow(Math.max(16, capacity));
+    }
+    
+    /**
+     * Добавить или изменить размер сущности
+     * @param entity сущность
+     * @param halfWidth половина ширины по X и Z
+     * @param height высота
+     * @return плотный индекс
+     */
+    public int add(int entity, float halfWidth, float height) {
+        int i = addEntity(entity);
+        this.halfWidth[i] = halfWidth;
+        this.height[i] = height;
+        return i;
+    }
+    
+    /**
+     * Пересчитать мировые границы по позиции
+     * @param i плотный индекс
+     */
+    public void update(int i, float x, float y, float z) {
+        float half = halfWidth[i];
+        minX[i] = x - half;
+        minY[i] = y;
+        minZ[i] = z - half;
+        maxX[i] = x + half;
+        maxY[i] = y + height[i];
+        maxZ[i] = z + half;
+    }
+    
+    @Override
+    protected void grow(int capacity) {
+        halfWidth = halfWidth == null ? new float[capacity] : Arrays.copyOf(halfWidth, capacity);
+        height = height == null ? new float[capacity] : Arrays.copyOf(height, capacity);
+        minX = minX == null ? new float[capacity] : Arrays.copyOf(minX, capacity);
+        minY = minY == null ? new float[capacity] : Arrays.copyOf(minY, capacity);
+        minZ = minZ == null ? new float[capacity] : Arrays.copyOf(minZ, capacity);
+        maxX = maxX == null ? new float[capacity] : Arrays.copyOf(maxX, capacity);
+        maxY = maxY == null ? new float[capacity] : Arrays.copyOf(maxY, capacity);
+        maxZ = maxZ == null ? new float[capacity] : Arrays.copyOf(maxZ, capacity);
+    }
+    
+    @Override
+    protected void swap(int a, int b) {
+        float halfWidthA = halfWidth[a];
+        halfWidth[a] = halfWidth[b];
+        halfWidth[b] = halfWidthA;
+        float heightA = height[a];
+        height[a] = height[b];
+        height[b] = heightA;
+        float minXA = minX[a];
+        minX[a] = minX[b];
+        minX[b] = minXA;
+        float minYA = minY[a];
+        minY[a] = minY[b];
+        minY[b] = minYA;
+        float minZA = minZ[a];
+        minZ[a] = minZ[b];
+        minZ[b] = minZA;
+        float maxXA = maxX[a];
+        maxX[a] = maxX[b];
+        maxX[b] = maxXA;
+        float maxYA = maxY[a];
+        maxY[a] = maxY[b];
+        maxY[b] = maxYA;
+        float maxZA = maxZ[a];
+        maxZ[a] = maxZ[b];
+        maxZ[b] = maxZA;
+    }
+    
+    public float[] getHalfWidth() {
+        return halfWidth;
+    }
+    
+    public float[] getHeight() {
+        return height;
+    }
+    
+    public float[] getMinX() {
+        return minX;
+    }
+    
+    public float[] getMinY() {
+        return minY;
+    }
+    
+    public float[] getMinZ() {
+        return minZ;
+    }
+    
+    public float[] getMaxX() {
+        return maxX;
+    }
+    
+    public float[] getMaxY() {
+        return maxY;
+    }
+    
+    public float[] getMaxZ() {
+        return maxZ;
+    }
+}
@@ -0,0 +1,158 @@
+package com.rivet.engine.entity;
+
+import java.util.Arrays;
+
+/**
+ * Хранилище компонента на разреженном множестве
+ *
+ * Разреженный массив отображает индекс сущности в позицию в плотных
+ * массивах; данные компонента лежат в плотных примитивных массивах
+ * наследника (структура массивов) без пропусков. Удаление переносит
+ * последний элемент на место удаленного, поэтому порядок обхода не
+ * сохраняется; {@link #alignTo} восстанавливает порядок другого хранилища,
+ * чтобы системы читали оба хранилища по одному плотному индексу. Не потокобезопасно: изменять состав можно только вне
+ * обхода систем, а данные по разным плотным индексам - из разных потоков.
+ */
+public abstract class ComponentStore {
+    
+    // Индекс сущности -> плотный индекс + 1 (0 - компонента нет)
+    private int[] sparse;
+    private int[] entities;
+    private int size = 0;
+    // Растет при каждом изменении состава или порядка
+    private int version = 0;
+    
+    /**
+     * @param capacity начальная емкость плотных массивов
+     */
+    protected ComponentStore(int capacity) {
+        int actual = Math.max(16, capacity);
+        this.sparse = new int[actual];
+        this.entities = new int[actual];
+    }
+    
+    /**
+     * Добавить компонент сущности (или вернуть существующий)
+     * Данные нового компонента не инициализируются.
+     * @param entity сущность
+     * @return плотный индекс компонента
+     */
+    protected final int addEntity(int entity) {
+        int index = EntityManager.index(entity);
+        if (index >= sparse.length) {
+            sparse = Arrays.copyOf(sparse, Math.max(index + 1, sparse.length * 2));
+        }
+        int existing = sparse[index] - 1;
+        if (existing >= 0) {
+            entities[existing] = entity;
+            return existing;
+        }
+        if (size == entities.length) {
+            entities = Arrays.copyOf(entities, size * 2);
+            grow(size * 2);
+        }
+        entities[size] = entity;
+        sparse[index] = size + 1;
+        version++;
+        return size++;
+    }
+    
+    /**
+     * Удалить компонент сущности
+     * @param entity сущность
+     * @return false если компонента не было
+     */
+    public final boolean remove(int entity) {
+        int dense = indexOf(entity);
+        if (dense < 0) {
+            return false;
+        }
+        int last = size - 1;
+        if (dense != last) {
+            swapEntries(dense, last);
+        }
+        sparse[EntityManager.index(entity)] = 0;
+        size--;
+        version++;
+        return true;
+    }
+    
+    /**
+     * Переставить компоненты в порядке ведущего хранилища
+     * После вызова сущности, общие с leader, лежат в начале плотных массивов
+     * в том же относительном порядке; если все сущности leader есть здесь,
+     * плотные индексы совпадают: entityAt(i) == leader.entityAt(i).
+     * @param leader ведущее хранилище
+     */
+    public final void alignTo(ComponentStore leader) {
+        int next = 0;
+        for (int i = 0; i < leader.size; i++) {
+            int dense = indexOf(leader.entities[i]);
+            if (dense >= 0) {
+                if (dense != next) {
+                    swapEntries(dense, next);
+                }
+                next++;
+            }
+        }
+        version++;
+    }
+    
+    private void swapEntries(int a, int b) {
+        int entityA = entities[a];
+        int entityB = entities[b];
+        entities[a] = entityB;
+        entities[b] = entityA;
+        sparse[EntityManager.index(entityA)] = b + 1;
+        sparse[EntityManager.index(entityB)] = a + 1;
+        swap(a, b);
+    }
+    
+    /**
+     * Версия состава и порядка хранилища
+     * @return счетчик изменений
+     */
+    public final int getVersion() {
+        return version;
+    }
+    
+    /**
+     * Плотный индекс компонента сущности
+     * @param entity сущность
+     * @return индекс или -1 если компонента нет
+     */
+    public final int indexOf(int entity) {
+        int index = EntityManager.index(entity);
+        return index < sparse.length ? sparse[index] - 1 : -1;
+    }
+    
+    public final boolean contains(int entity) {
+        return indexOf(entity) >= 0;
+    }
+    
+    public final int size() {
+        return size;
+    }
+    
+    /**
+     * Сущность по плотному индексу
+     * @param dense плотный индекс (0 - size()-1)
+     * @return сущность
+     */
+    public final int entityAt(int dense) {
+        return entities[dense];
+    }
+    
+    /**
+     * Увеличить плотные массивы данных
+     * @param capacity новая емкость
+     */
+    protected abstract void grow(int capacity);
+    
+    /**
+     * Поменять местами данные компонента двух плотных индексов
+     * @param a первый индекс
+     * @param b второй индекс
+     */
+    protected abstract void swap(int a, int b);
+}
@@ -0,0 +1,136 @@
+package com.rivet.engine.entity;
+
+import java.util.Arrays;
+
+/**
+ * Выдача идентификаторов сущностей
+ *
+ * Сущность - это int: младшие 24 бита - индекс в хранилищах компонентов,
+ * старшие 8 бит - поколение индекса. Поколение растет при удалении, поэтому
+ * устаревший идентификатор не совпадает с новой сущностью на том же индексе.
+ * Не потокобезопасен: создание и удаление выполняются в потоке симуляции
+ * вне обхода систем.
+ */
+public final class EntityManager {
+    
+    public static final int NULL = -1;
+    
+    private static final int INDEX_BITS = 24;
+    private static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+    private static final int MAX_ENTITIES = INDEX_MASK;
+    private static final int GENERATION_MASK = 0xFF;
+    private static final int ALIVE = 0x100;
+    
+    // Поколение индекса и флаг ALIVE
+    private int[] generations;
+    private int[] freeIndices;
+    private int freeCount = 0;
+    private int nextIndex = 0;
+    private int aliveCount = 0;
+    private ComponentStore[] stores = new ComponentStore[0];
+    
+    public EntityManager() {
+        this(1024);
+    }
+    
+    /**
+     * @param capacity начальная емкость (растет при необходимости)
+     */
+    public EntityManager(int capacity) {
+        generations = new int[Math.max(16, capacity)];
+        freeIndices = new int[Math.max(16, capacity)];
+    }
+    
+    /**
+     * Индекс сущности в хранилищах
+     * @param entity сущность
+     * @return индекс (0 - 16777214)
+     */
+    public static int index(int entity) {
+        return entity & INDEX_MASK;
+    }
+    
+    /**
+     * Поколение индекса сущности
+     * @param entity сущность
+     * @return поколение (0-255)
+     */
+    public static int generation(int entity) {
+        return entity >>> INDEX_BITS;
+    }
+    
+    /**
+     * Зарегистрировать хранилище: при удалении сущности ее компонент удаляется
+     * @param store хранилище компонента
+     */
+    public void register(ComponentStore store) {
+        stores = Arrays.copyOf(stores, stores.length + 1);
+        stores[stores.length - 1] = store;
+    }
+    
+    /**
+     * Создать сущность без компонентов
+     * @return сущность
+     */
+    public int create() {
+        int index;
+        if (freeCount > 0) {
+            index = freeIndices[--freeCount];
+        } else {
+            if (nextIndex == MAX_ENTITIES) {
+                throw new IllegalStateException("Too many entities: " + MAX_ENTITIES);
+            }
+            index = nextIndex++;
+            if (index == generations.length) {
+                generations = Arrays.copyOf(generations, index * 2);
+            }
+        }
+        generations[index] |= ALIVE;
+        aliveCount++;
+        return (generations[index] & GENERATION_MASK) << INDEX_BITS | index;
+    }
+    
+    /**
+     * Удалить сущность и все ее компоненты
+     * @param entity сущность
+     * @return false если сущность уже удалена
+     */
+    public boolean destroy(int entity) {
+        if (!isAlive(entity)) {
+            return false;
+        }
+        for (ComponentStore store : stores) {
+            store.remove(entity);
+        }
+        int index = index(entity);
+        generations[index] = (generations[index] + 1) & GENERATION_MASK;
+        if (freeCount == freeIndices.length) {
+            freeIndices = Arrays.copyOf(freeIndices, freeCount * 2);
+        }
+        freeIndices[freeCount++] = index;
+        aliveCount--;
+        return true;
+    }
+    
+    /**
+     * Проверить, что сущность существует
+     * @param entity сущность
+     * @return true если индекс выдан и поколение совпадает
+     */
+    public boolean isAlive(int entity) {
+        int index = index(entity);
+        return entity != NULL && index < nextIndex && generations[index] == (generation(entity) | ALIVE);
+    }
+    
+    public int getAliveCount() {
+        return aliveCount;
+    }
+    
+    /**
+     * Получить количество выданных индексов (живых и свободных)
+     * @return верхняя граница индексов
+     */
+    public int getIndexCount() {
+        return nextIndex;
+    }
+}
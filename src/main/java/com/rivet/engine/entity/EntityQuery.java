@@ -0,0 +1,288 @@
+package com.rivet.engine.entity;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Выборка сущностей, у которых есть все заданные компоненты
+ *
+ * Обход идет по плотному массиву первого (ведущего) хранилища - первым
+ * стоит ставить самое маленькое или то, чьи данные читаются чаще всего.
+ * Наличие остальных компонентов (и отсутствие исключенных) проверяется
+ * через разреженные массивы один раз при изменении состава хранилищ:
+ * результат кэшируется как список непрерывных диапазонов плотных индексов,
+ * и обход между изменениями не проверяет сущности по одной.
+ * Обход не создает объектов; диапазоны плотных индексов можно делить между потоками.
+ * Во время обхода состав хранилищ менять нельзя.
+ */
+public final class EntityQuery {
+    
+    /**
+     * Обработчик сущности выборки
+     */
+    @FunctionalInterface
+    public interface Processor {
+        /**
+         * @param entity сущность
+         * @param index плотный индекс сущности в ведущем хранилище
+         */
+        void process(int entity, int index);
+    }
+    
+    /**
+     * Обработчик непрерывного диапазона сущностей выборки
+     */
+    @FunctionalInterface
+    public interface RangeProcessor {
+        /**
+         * Все плотные индексы ведущего хранилища в [start, end) входят в выборку
+         * @param start первый индекс
+         * @param end индекс после последнего
+         */
+        void process(int start, int end);
+    }
+    
+    private final ComponentStore[] stores;
+    private final ComponentStore driver;
+    private ComponentStore[] excluded = new ComponentStore[0];
+    
+    // Диапазоны подходящих плотных индексов: пары [start, end) подряд
+    private int[] runs = new int[16];
+    private int runCount = 0;
+    private int runsVersion = -1;
+    private boolean runsValid = false;
+    
+    /**
+     * @param stores хранилища требуемых компонентов
+     */
+    public EntityQuery(ComponentStore... stores) {
+        if (stores.length == 0) {
+            throw new IllegalArgumentException("Query requires at least one component store");
+        }
+        this.stores = stores.clone();
+        this.driver = stores[0];
+    }
+    
+    /**
+     * Исключить сущности, у которых есть любой из компонентов
+     * @param stores хранилища исключаемых компонентов
+     * @return эта выборка
+     */
+    public EntityQuery exclude(ComponentStore... stores) {
+        ComponentStore[] updated = Arrays.copyOf(excluded, excluded.length + stores.length);
+        System.arraycopy(stores, 0, updated, excluded.length, stores.length);
+        excluded = updated;
+        runsValid = false;
+        return this;
+    }
+    
+    /**
+     * Размер диапазона плотных индексов
+     * @return размер ведущего хранилища: диапазон [0, size)
+     */
+    public int size() {
+        return driver.size();
+    }
+    
+    /**
+     * Количество сущностей выборки
+     * @return сумма длин диапазонов
+     */
+    public int count() {
+        refresh();
+        int total = 0;
+        for (int r = 0; r < runCount; r += 2) {
+            total += runs[r + 1] - runs[r];
+        }
+        return total;
+    }
+    
+    /**
+     * Обойти все сущности выборки в текущем потоке
+     * @param processor обработчик
+     */
+    public void forEach(Processor processor) {
+        refresh();
+        forRuns(0, driver.size(), processor, null);
+    }
+    
+    /**
+     * Обойти диапазон плотных индексов ведущего хранилища
+     * @param start первый индекс
+     * @param end индекс после последнего
+     * @param processor обработчик
+     */
+    public void forRange(int start, int end, Processor processor) {
+        refresh();
+        forRuns(start, end, processor, null);
+    }
+    
+    /**
+     * Обойти выборку непрерывными диапазонами в текущем потоке
+     * @param processor обработчик диапазонов
+     */
+    public void forEachRange(RangeProcessor processor) {
+        refresh();
+        forRuns(0, driver.size(), null, processor);
+    }
+    
+    /**
+     * Обойти выборку, разделив диапазон между потоками пула
+     * Обработчик должен менять только данные своей сущности.
+     * @param pool пул потоков
+     * @param minRange минимальный диапазон одной задачи
+     * @param processor обработчик
+     */
+    public void forEachParallel(ForkJoinPool pool, int minRange, Processor processor) {
+        invoke(pool, minRange, processor, null);
+    }
+    
+    /**
+     * Обойти выборку диапазонами, разделив их между потоками пула
+     * Обработчик должен менять только данные сущностей своего диапазона.
+     * @param pool пул потоков
+     * @param minRange минимальный диапазон одной задачи
+     * @param processor обработчик диапазонов
+     */
+    public void forEachRangeParallel(ForkJoinPool pool, int minRange, RangeProcessor processor) {
+        invoke(pool, minRange, null, processor);
+    }
+    
+    private void invoke(ForkJoinPool pool, int minRange, Processor processor, RangeProcessor ranges) {
+        // Кэш диапазонов обновляется до раздачи задач, рабочие потоки только читают его
+        refresh();
+        int size = driver.size();
+        if (size <= minRange) {
+            forRuns(0, size, processor, ranges);
+        } else {
+            pool.invoke(new RangeTask(processor, ranges, 0, size, Math.max(1, minRange)));
+        }
+    }
+    
+    /**
+     * Пересобрать диапазоны, если состав хранилищ изменился
+     * Версии только растут, поэтому сумма меняется при любом изменении.
+     */
+    private void refresh() {
+        int version = 0;
+        for (ComponentStore store : stores) {
+            version += store.getVersion();
+        }
+        for (ComponentStore store : excluded) {
+            version += store.getVersion();
+        }
+        if (runsValid && version == runsVersion) {
+            return;
+        }
+        
+        runCount = 0;
+        int size = driver.size();
+        if (stores.length == 1 && excluded.length == 0) {
+            addRun(0, size);
+        } else {
+            int start = -1;
+            for (int i = 0; i < size; i++) {
+                boolean match = matches(driver.entityAt(i), stores, excluded);
+                if (match && start < 0) {
+                    start = i;
+                } else if (!match && start >= 0) {
+                    addRun(start, i);
+                    start = -1;
+                }
+            }
+            if (start >= 0) {
+                addRun(start, size);
+            }
+        }
+        runsVersion = version;
+        runsValid = true;
+    }
+    
+    private void addRun(int start, int end) {
+        if (start == end) {
+            return;
+        }
+        if (runCount == runs.length) {
+            runs = Arrays.copyOf(runs, runCount * 2);
+        }
+        runs[runCount++] = start;
+        runs[runCount++] = end;
+    }
+    
+    private static boolean matches(int entity, ComponentStore[] required, ComponentStore[] rejected) {
+        for (int s = 1; s < required.length; s++) {
+            if (!required[s].contains(entity)) {
+                return false;
+            }
+        }
+        for (int s = 0; s < rejected.length; s++) {
+            if (rejected[s].contains(entity)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Обойти пересечение кэшированных диапазонов с [start, end)
+     * Ровно один из обработчиков не null.
+     */
+    private void forRuns(int start, int end, Processor processor, RangeProcessor ranges) {
+        int[] cached = runs;
+        int count = runCount;
+        // Первый диапазон, который заканчивается после start
+        int low = 0;
+        int high = count >> 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (cached[middle * 2 + 1] <= start) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        ComponentStore lead = driver;
+        for (int r = low * 2; r < count && cached[r] < end; r += 2) {
+            int from = Math.max(start, cached[r]);
+            int to = Math.min(end, cached[r + 1]);
+            if (ranges != null) {
+                ranges.process(from, to);
+            } else {
+                for (int i = from; i < to; i++) {
+                    processor.process(lead.entityAt(i), i);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Деление диапазона пополам до минимального размера
+     */
+    private final class RangeTask extends RecursiveAction {
+        private final Processor processor;
+        private final RangeProcessor ranges;
+        private final int start;
+        private final int end;
+        private final int minRange;
+        
+        RangeTask(Processor processor, RangeProcessor ranges, int start, int end, int minRange) {
+            this.processor = processor;
+            this.ranges = ranges;
+            this.start = start;
+            this.end = end;
+            this.minRange = minRange;
+        }
+        
+        @Override
+        protected void compute() {
+            if (end - start <= minRange) {
+                forRuns(start, end, processor, ranges);
+                return;
+            }
+            int middle = (start + end) >>> 1;
+            invokeAll(new RangeTask(processor, ranges, start, middle, minRange),
+                      new RangeTask(processor, ranges, middle, end, minRange));
+        }
+    }
+}
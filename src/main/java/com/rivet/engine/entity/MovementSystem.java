@@ -0,0 +1,130 @@
+package com.rivet.engine.entity;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Перемещение сущностей по скорости и пересчет их границ
+ *
+ * Перед обходом позиции и границы выравниваются по порядку скоростей
+ * (только если состав хранилищ изменился), поэтому все три хранилища
+ * читаются последовательно по одному плотному индексу. Выборка отдает
+ * непрерывные диапазоны, и на выровненной части цикл идет прямо по массивам;
+ * за ее пределами индексы позиций и границ ищутся через разреженные массивы.
+ * Обход делится между потоками пула, если сущностей больше {@link #PARALLEL_THRESHOLD}.
+ * Физические тела ({@link BodyStore}) пропускаются выборкой - их двигает физика.
+ */
+public final class MovementSystem {
+    
+    public static final int PARALLEL_THRESHOLD = 8192;
+    
+    private final PositionStore positions;
+    private final VelocityStore velocities;
+    private final BoundsStore bounds;
+    private final EntityQuery query;
+    private final EntityQuery.RangeProcessor move = this::move;
+    private int alignedVersion = -1;
+    // Плотные индексы [0, n) совпадают у скоростей и позиций (границ)
+    private int positionsAligned = 0;
+    private int boundsAligned = 0;
+    
+    // Параметры текущего обновления, читаются рабочими потоками
+    private float deltaTime;
+    private float[] px, py, pz;
+    private float[] vx, vy, vz;
+    private float[] halfWidth, height;
+    private float[] minX, minY, minZ, maxX, maxY, maxZ;
+    
+    public MovementSystem(PositionStore positions, VelocityStore velocities, BoundsStore bounds, BodyStore bodies) {
+        this.positions = positions;
+        this.velocities = velocities;
+        this.bounds = bounds;
+        // Ведущее хранилище - скорости: неподвижные сущности не обходятся
+        this.query = new EntityQuery(velocities, positions).exclude(bodies);
+    }
+    
+    /**
+     * Переместить все движущиеся сущности
+     * @param deltaTime шаг в секундах
+     * @param pool пул рабочих потоков (null - в текущем потоке)
+     */
+    public void update(float deltaTime, ForkJoinPool pool) {
+        int version = velocities.getVersion() + positions.getVersion() + bounds.getVersion();
+        if (version != alignedVersion) {
+            positions.alignTo(velocities);
+            bounds.alignTo(velocities);
+            alignedVersion = velocities.getVersion() + positions.getVersion() + bounds.getVersion();
+            positionsAligned = alignedPrefix(positions);
+            boundsAligned = alignedPrefix(bounds);
+        }
+        
+        this.deltaTime = deltaTime;
+        px = positions.getX();
+        py = positions.getY();
+        pz = positions.getZ();
+        vx = velocities.getX();
+        vy = velocities.getY();
+        vz = velocities.getZ();
+        halfWidth = bounds.getHalfWidth();
+        height = bounds.getHeight();
+        minX = bounds.getMinX();
+        minY = bounds.getMinY();
+        minZ = bounds.getMinZ();
+        maxX = bounds.getMaxX();
+        maxY = bounds.getMaxY();
+        maxZ = bounds.getMaxZ();
+        
+        if (pool == null) {
+            query.forEachRange(move);
+        } else {
+            query.forEachRangeParallel(pool, PARALLEL_THRESHOLD, move);
+        }
+    }
+    
+    private int alignedPrefix(ComponentStore store) {
+        int limit = Math.min(store.size(), velocities.size());
+        int i = 0;
+        while (i < limit && store.entityAt(i) == velocities.entityAt(i)) {
+            i++;
+        }
+        return i;
+    }
+    
+    private void move(int start, int end) {
+        float dt = deltaTime;
+        float[] px = this.px, py = this.py, pz = this.pz;
+        float[] vx = this.vx, vy = this.vy, vz = this.vz;
+        float[] halfWidth = this.halfWidth, height = this.height;
+        float[] minX = this.minX, minY = this.minY, minZ = this.minZ;
+        float[] maxX = this.maxX, maxY = this.maxY, maxZ = this.maxZ;
+        
+        int direct = Math.min(end, Math.min(positionsAligned, boundsAligned));
+        int v = start;
+        for (; v < direct; v++) {
+            float x = px[v] += vx[v] * dt;
+            float y = py[v] += vy[v] * dt;
+            float z = pz[v] += vz[v] * dt;
+            float half = halfWidth[v];
+            minX[v] = x - half;
+            minY[v] = y;
+            minZ[v] = z - half;
+            maxX[v] = x + half;
+            maxY[v] = y + height[v];
+            maxZ[v] = z + half;
+        }
+        for (; v < end; v++) {
+            step(velocities.entityAt(v), v);
+        }
+    }
+    
+    private void step(int entity, int v) {
+        int p = v < positions.size() && positions.entityAt(v) == entity ? v : positions.indexOf(entity);
+        float x = px[p] += vx[v] * deltaTime;
+        float y = py[p] += vy[v] * deltaTime;
+        float z = pz[p] += vz[v] * deltaTime;
+        
+        int b = v < bounds.size() && bounds.entityAt(v) == entity ? v : bounds.indexOf(entity);
+        if (b >= 0) {
+            bounds.update(b, x, y, z);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.rivet.engine.entity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Спрайты сущностей: текстура и размер billboard-изображения
+ * Текстуры хранятся как короткие id в таблице ключей ресурсов
+ * (например "textures/char.png"), чтобы компонент оставался примитивным.
+ */
+public final class SpriteStore extends ComponentStore {
+    
+    private final List<String> textureKeys = new ArrayList<>();
+    private int[] texture;
+    private float[] width;
+    private float[] height;
+    
+    public SpriteStore(int capacity) {
+        super(capacity);
+        int actual = Math.max(16, capacity);
+        texture = new int[actual];
+        width = new float[actual];
+        height = new float[actual];
+    }
+    
+    /**
+     * Получить id текстуры по ключу ресурса, регистрируя новый ключ
+     * @param key ключ ресурса текстуры
+     * @return id текстуры
+     */
+    public int textureId(String key) {
+        int id = textureKeys.indexOf(key);
+        if (id < 0) {
+            id = textureKeys.size();
+            textureKeys.add(key);
+        }
+        return id;
+    }
+    
+    /**
+     * Получить ключ ресурса текстуры
+     * @param id id текстуры
+     * @return ключ ресурса
+     */
+    public String getTextureKey(int id) {
+        return textureKeys.get(id);
+    }
+    
+    /**
+     * Добавить или изменить спрайт сущности
+     * @param entity сущность
+     * @param textureId id текстуры (см. {@link #textureId(String)})
+     * @param spriteWidth ширина в блоках
+     * @param spriteHeight высота в блоках
+     * @return плотный индекс
+     */
+    public int add(int entity, int textureId, float spriteWidth, float spriteHeight) {
+        int i = addEntity(entity);
+        texture[i] = textureId;
+        width[i] = spriteWidth;
+        height[i] = spriteHeight;
+        return i;
+    }
+    
+    @Override
+    protected void grow(int capacity) {
+        texture = Arrays.copyOf(texture, capacity);
+        width = Arrays.copyOf(width, capacity);
+        height = Arrays.copyOf(height, capacity);
+    }
+    
+    @Override
+    protected void swap(int a, int b) {
+        int textureA = texture[a];
+        texture[a] = texture[b];
+        texture[b] = textureA;
+        float widthA = width[a];
+        width[a] = width[b];
+        width[b] = widthA;
+        float heightA = height[a];
+        height[a] = height[b];
+        height[b] = heightA;
+    }
+    
+    public int[] getTexture() {
+        return texture;
+    }
+    
+    public float[] getWidth() {
+        return width;
+    }
+    
+    public float[] getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,66 @@
+package com.rivet.engine.entity;
+
+import java.util.Arrays;
+
+/**
+ * Скорости сущностей в блоках в секунду: параллельные массивы x, y, z
+ * Массивы заменяются при росте - системы берут их через геттеры в начале обхода.
+ */
+public final class VelocityStore extends ComponentStore {
+    
+    private float[] x;
+    private float[] y;
+    private float[] z;
+    
+    public VelocityStore(int capacity) {
+        super(capacity);
+        int actual = Math.max(16, capacity);
+        x = new float[actual];
+        y = new float[actual];
+        z = new float[actual];
+    }
+    
+    /**
+     * Добавить или изменить скорость сущности
+     * @return плотный индекс
+     */
+    public int add(int entity, float vx, float vy, float vz) {
+        int i = addEntity(entity);
+        x[i] = vx;
+        y[i] = vy;
+        z[i] = vz;
+        return i;
+    }
+    
+    @Override
+    protected void grow(int capacity) {
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        z = Arrays.copyOf(z, capacity);
+    }
+    
+    @Override
+    protected void swap(int a, int b) {
+        float xA = x[a];
+        x[a] = x[b];
+        x[b] = xA;
+        float yA = y[a];
+        y[a] = y[b];
+        y[b] = yA;
+        float zA = z[a];
+        z[a] = z[b];
+        z[b] = zA;
+    }
+    
+    public float[] getX() {
+        return x;
+    }
+    
+    public float[] getY() {
+        return y;
+    }
+    
+    public float[] getZ() {
+        return z;
+    }
+}
@@ -0,0 +1,200 @@
+package com.rivet.engine.memory;
+
+import org.lwjgl.system.MemoryUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Линейный аллокатор памяти одного кадра
+ *
+ * Выделение - сдвиг указателя внутри одного нативного блока с выравниванием
+ * по 16 байт, освобождения по отдельности нет: {@link #reset()} в конце кадра
+ * возвращает всю память разом. Вложенные временные данные можно вернуть
+ * раньше через {@link #mark()} и {@link #rewind(int)}. Если блока не хватило,
+ * буфер выделяется отдельно и освобождается при сбросе, а блок увеличивается
+ * до наибольшего спроса кадра, поэтому после прогрева кадры не выделяют память.
+ * Методы malloc* создают на каждый вызов обертку буфера в куче, горячий
+ * код пишет по адресу из {@link #allocate(int)}.
+ * Все методы вызываются только из потока-владельца (поток OpenGL).
+ */
+public final class FrameArena {
+    
+    private static final Logger logger = LoggerFactory.getLogger(FrameArena.class);
+    
+    private static final int ALIGNMENT = 16;
+    
+    private final int category;
+    private ByteBuffer block;
+    private long address;
+    private int capacity;
+    private int offset = 0;
+    
+    // Наибольший спрос кадра с учетом выделений, не поместившихся в блок
+    private long demand = 0;
+    private long overflowBytes = 0;
+    private long lastDemand = 0;
+    private Buffer[] overflow = new Buffer[4];
+    private int overflowCount = 0;
+    private long overflowTotal = 0;
+    
+    /**
+     * @param category категория учета
+     * @param capacity начальный размер блока в байтах
+     */
+    public FrameArena(int category, int capacity) {
+        this.category = category;
+        allocateBlock(capacity);
+    }
+    
+    private void allocateBlock(int size) {
+        block = NativeMemory.malloc(category, size);
+        address = MemoryUtil.memAddress(block);
+        capacity = size;
+    }
+    
+    /**
+     * Выделить память до конца кадра без объекта-обертки
+     * Запись - через MemoryUtil.memPut*, передача в OpenGL - через ngl*-вызовы.
+     * @param size размер в байтах
+     * @return адрес начала, выровненный по 16 байт
+     */
+    public long allocate(int size) {
+        long start = reserve(size);
+        if (start < 0) {
+            return MemoryUtil.memAddress(addOverflow(NativeMemory.malloc(category, size)));
+        }
+        return start;
+    }
+    
+    /**
+     * Выделить память до конца кадра
+     * Каждый вызов создает в куче обертку ByteBuffer (см. {@link #allocate(int)}).
+     * @param size размер в байтах
+     * @return буфер в нативном порядке байт
+     */
+    public ByteBuffer malloc(int size) {
+        long start = reserve(size);
+        if (start < 0) {
+            return addOverflow(NativeMemory.malloc(category, size));
+        }
+        return MemoryUtil.memByteBuffer(start, size);
+    }
+    
+    public IntBuffer mallocInt(int count) {
+        long start = reserve(count * Integer.BYTES);
+        if (start < 0) {
+            return addOverflow(NativeMemory.mallocInt(category, count));
+        }
+        return MemoryUtil.memIntBuffer(start, count);
+    }
+    
+    public FloatBuffer mallocFloat(int count) {
+        long start = reserve(count * Float.BYTES);
+        if (start < 0) {
+            return addOverflow(NativeMemory.mallocFloat(category, count));
+        }
+        return MemoryUtil.memFloatBuffer(start, count);
+    }
+    
+    /**
+     * Сдвинуть указатель
+     * @return адрес начала или -1 если блок исчерпан
+     */
+    private long reserve(int size) {
+        int aligned = (offset + ALIGNMENT - 1) & -ALIGNMENT;
+        demand = Math.max(demand, (long) aligned + size + overflowBytes);
+        if (size > capacity - aligned) {
+            overflowBytes += size + ALIGNMENT;
+            return -1;
+        }
+        offset = aligned + size;
+        return address + aligned;
+    }
+    
+    private <T extends Buffer> T addOverflow(T buffer) {
+        if (overflowCount == overflow.length) {
+            overflow = Arrays.copyOf(overflow, overflowCount * 2);
+        }
+        overflow[overflowCount++] = buffer;
+        overflowTotal++;
+        return buffer;
+    }
+    
+    /**
+     * Текущая позиция для последующего {@link #rewind(int)}
+     * @return смещение в блоке
+     */
+    public int mark() {
+        return offset;
+    }
+    
+    /**
+     * Вернуть память, выделенную после отметки
+     * Буферы, полученные после отметки, больше использовать нельзя.
+     * @param mark значение {@link #mark()}
+     */
+    public void rewind(int mark) {
+        offset = mark;
+    }
+    
+    /**
+     * Освободить всю память кадра
+     * Блок увеличивается, если спрос кадра его превысил.
+     */
+    public void reset() {
+        while (overflowCount > 0) {
+            Buffer buffer = overflow[--overflowCount];
+            overflow[overflowCount] = null;
+            NativeMemory.free(category, buffer);
+        }
+        if (demand > capacity) {
+            int size = (int) Math.min(Integer.MAX_VALUE, Long.highestOneBit(demand - 1) << 1);
+            logger.debug("FrameArena [{}]: блок {} KB -> {} KB", MemoryCategory.name(category), capacity / 1024, size / 1024);
+            NativeMemory.free(category, block);
+            allocateBlock(size);
+        }
+        lastDemand = demand;
+        demand = 0;
+        overflowBytes = 0;
+        offset = 0;
+    }
+    
+    /**
+     * Освободить блок (арена больше не используется)
+     */
+    public void free() {
+        reset();
+        if (block != null) {
+            NativeMemory.free(category, block);
+            block = null;
+            address = 0;
+            capacity = 0;
+        }
+    }
+    
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    /**
+     * Получить наибольший объем, занятый за прошлый кадр
+     * @return размер в байтах с учетом выравнивания
+     */
+    public long getLastDemand() {
+        return lastDemand;
+    }
+    
+    /**
+     * Получить количество выделений, не поместившихся в блок, за все время
+     * @return количество выделений
+     */
+    public long getOverflowCount() {
+        return overflowTotal;
+    }
+}
@@ -0,0 +1,173 @@
+package com.rivet.engine.memory;
+
+import com.rivet.engine.util.LongObjectHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Учет видеопамяти буферов и текстур
+ *
+ * Владелец объекта OpenGL сообщает размер данных после glBufferData или
+ * glTexImage и снимает объект с учета перед удалением. Повторная регистрация
+ * того же имени (новый glBufferData) заменяет прежний размер. Объем - оценка
+ * по размеру данных: выравнивание и служебные структуры драйвера не видны.
+ * Регистрация вызывается только из потока OpenGL, счетчики можно читать из любого.
+ */
+public final class GpuMemory {
+    
+    private static final Logger logger = LoggerFactory.getLogger(GpuMemory.class);
+    
+    private static final long BUFFER = 0L;
+    private static final long TEXTURE = 1L << 32;
+    private static final int MAX_REPORTED_LEAKS = 16;
+    
+    private static final LongObjectHashMap<Allocation> objects = new LongObjectHashMap<>(256);
+    private static final AtomicLongArray bytes = new AtomicLongArray(MemoryCategory.COUNT);
+    private static final AtomicLongArray counts = new AtomicLongArray(MemoryCategory.COUNT);
+    
+    /**
+     * Зарегистрированный объект OpenGL
+     */
+    private static final class Allocation {
+        final int category;
+        long bytes;
+        final Throwable trace;
+        
+        Allocation(int category, long bytes, Throwable trace) {
+            this.category = category;
+            this.bytes = bytes;
+            this.trace = trace;
+        }
+    }
+    
+    private GpuMemory() {
+    }
+    
+    /**
+     * Зарегистрировать хранилище буфера
+     * @param buffer имя буфера OpenGL
+     * @param category категория учета
+     * @param size размер данных в байтах
+     */
+    public static void trackBuffer(int buffer, int category, long size) {
+        track(BUFFER | (buffer & 0xFFFFFFFFL), category, size);
+    }
+    
+    /**
+     * Снять буфер с учета (перед glDeleteBuffers)
+     * @param buffer имя буфера OpenGL
+     */
+    public static void untrackBuffer(int buffer) {
+        untrack(BUFFER | (buffer & 0xFFFFFFFFL));
+    }
+    
+    /**
+     * Зарегистрировать текстуру
+     * @param texture имя текстуры OpenGL
+     * @param category категория учета
+     * @param size размер всех уровней в байтах
+     */
+    public static void trackTexture(int texture, int category, long size) {
+        track(TEXTURE | (texture & 0xFFFFFFFFL), category, size);
+    }
+    
+    /**
+     * Снять текстуру с учета (перед glDeleteTextures)
+     * @param texture имя текстуры OpenGL
+     */
+    public static void untrackTexture(int texture) {
+        untrack(TEXTURE | (texture & 0xFFFFFFFFL));
+    }
+    
+    /**
+     * Размер текстуры RGBA8 с полной цепочкой мипмапов
+     * @param width ширина
+     * @param height высота
+     * @param mipmaps true если вызывается glGenerateMipmap
+     * @return размер в байтах
+     */
+    public static long textureSize(int width, int height, boolean mipmaps) {
+        long size = (long) width * height * 4;
+        return mipmaps ? size * 4 / 3 : size;
+    }
+    
+    private static void track(long key, int category, long size) {
+        Allocation allocation = objects.get(key);
+        if (allocation == null) {
+            objects.put(key, new Allocation(category, size,
+                NativeMemory.isDebug() ? new Throwable("Объект OpenGL [" + MemoryCategory.name(category) + "]") : null));
+            bytes.addAndGet(category, size);
+            counts.incrementAndGet(category);
+            return;
+        }
+        bytes.addAndGet(allocation.category, size - allocation.bytes);
+        allocation.bytes = size;
+    }
+    
+    private static void untrack(long key) {
+        Allocation allocation = objects.remove(key);
+        if (allocation != null) {
+            bytes.addAndGet(allocation.category, -allocation.bytes);
+            counts.decrementAndGet(allocation.category);
+        }
+    }
+    
+    /**
+     * Получить объем видеопамяти категории
+     * @param category категория
+     * @return размер в байтах
+     */
+    public static long getBytes(int category) {
+        return bytes.get(category);
+    }
+    
+    /**
+     * Получить количество объектов OpenGL категории
+     * @param category категория
+     * @return количество буферов и текстур
+     */
+    public static long getCount(int category) {
+        return counts.get(category);
+    }
+    
+    /**
+     * Получить общий объем учтенной видеопамяти
+     * @return размер в байтах
+     */
+    public static long getTotalBytes() {
+        long total = 0;
+        for (int i = 0; i < MemoryCategory.COUNT; i++) {
+            total += bytes.get(i);
+        }
+        return total;
+    }
+    
+    /**
+     * Вывести в лог объекты OpenGL, не удаленные к концу работы
+     * @return количество неудаленных объектов
+     */
+    public static long reportLeaks() {
+        long leaked = 0;
+        for (int i = 0; i < MemoryCategory.COUNT; i++) {
+            long count = counts.get(i);
+            if (count != 0) {
+                leaked += count;
+                logger.warn("Утечка видеопамяти [{}]: {} объектов, {} KB",
+                    MemoryCategory.name(i), count, bytes.get(i) / 1024);
+            }
+        }
+        
+        if (NativeMemory.isDebug()) {
+            int[] reported = new int[1];
+            objects.forEach((key, allocation) -> {
+                if (reported[0]++ < MAX_REPORTED_LEAKS) {
+                    logger.warn("Не удален объект OpenGL: {} #{}", (key & TEXTURE) != 0 ? "текстура" : "буфер",
+                        (int) key, allocation.trace);
+                }
+            });
+        }
+        return leaked;
+    }
+}
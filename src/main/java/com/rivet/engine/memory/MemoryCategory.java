@@ -0,0 +1,33 @@
+package com.rivet.engine.memory;
+
+/**
+ * Подсистемы, по которым ведется учет нативной и видеопамяти
+ */
+public final class MemoryCategory {
+    
+    public static final int TEXTURE = 0;
+    public static final int MESH = 1;
+    public static final int RENDER = 2;
+    public static final int AUDIO = 3;
+    public static final int WORLD = 4;
+    public static final int NETWORK = 5;
+    public static final int OTHER = 6;
+    
+    public static final int COUNT = 7;
+    
+    private static final String[] NAMES = {
+        "texture", "mesh", "render", "audio", "world", "network", "other"
+    };
+    
+    private MemoryCategory() {
+    }
+    
+    /**
+     * Имя категории (используется в свойствах бюджетов и отчетах)
+     * @param category категория
+     * @return имя в нижнем регистре
+     */
+    public static String name(int category) {
+        return category >= 0 && category < COUNT ? NAMES[category] : "unknown(" + category + ")";
+    }
+}
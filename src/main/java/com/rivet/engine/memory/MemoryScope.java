@@ -0,0 +1,73 @@
+package com.rivet.engine.memory;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Область временных нативных буферов
+ *
+ * Все буферы, выделенные через область, освобождаются в {@link #close()}
+ * в обратном порядке. Используется в try-with-resources для данных,
+ * которые нужны только до передачи в OpenGL или декодер. В отличие от
+ * MemoryStack подходит для буферов любого размера. Экземпляр не потокобезопасен.
+ */
+public final class MemoryScope implements AutoCloseable {
+    
+    private final int category;
+    private Buffer[] buffers = new Buffer[4];
+    private int count = 0;
+    
+    /**
+     * @param category категория учета всех буферов области
+     */
+    public MemoryScope(int category) {
+        this.category = category;
+    }
+    
+    public ByteBuffer malloc(int size) {
+        return add(NativeMemory.malloc(category, size));
+    }
+    
+    public ByteBuffer calloc(int size) {
+        return add(NativeMemory.calloc(category, size));
+    }
+    
+    public IntBuffer mallocInt(int count) {
+        return add(NativeMemory.mallocInt(category, count));
+    }
+    
+    public FloatBuffer mallocFloat(int count) {
+        return add(NativeMemory.mallocFloat(category, count));
+    }
+    
+    /**
+     * Скопировать массив в новый буфер области
+     * @param data данные
+     * @return буфер, подготовленный для чтения
+     */
+    public ByteBuffer copyOf(byte[] data) {
+        ByteBuffer buffer = malloc(data.length);
+        buffer.put(data).flip();
+        return buffer;
+    }
+    
+    private <T extends Buffer> T add(T buffer) {
+        if (count == buffers.length) {
+            buffers = Arrays.copyOf(buffers, count * 2);
+        }
+        buffers[count++] = buffer;
+        return buffer;
+    }
+    
+    @Override
+    public void close() {
+        while (count > 0) {
+            Buffer buffer = buffers[--count];
+            buffers[count] = null;
+            NativeMemory.free(category, buffer);
+        }
+    }
+}
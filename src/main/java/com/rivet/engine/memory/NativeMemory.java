@@ -0,0 +1,301 @@
+package com.rivet.engine.memory;
+
+import org.lwjgl.system.MemoryUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Учет нативной памяти движка
+ *
+ * Все нативные буферы выделяются через MemoryUtil и освобождаются явно;
+ * объем и количество живых выделений считаются по категориям
+ * {@link MemoryCategory}. Настройки:
+ * <pre>
+ * -Drivet.memory.debug=true          - запоминать стек каждого выделения, ловить двойное освобождение
+ * -Drivet.memory.budget.&lt;имя&gt;=&lt;MB&gt; - мягкий бюджет категории (предупреждение при превышении)
+ * </pre>
+ * Методы потокобезопасны.
+ */
+public final class NativeMemory {
+    
+    private static final Logger logger = LoggerFactory.getLogger(NativeMemory.class);
+    
+    private static final boolean DEBUG = "true".equals(System.getProperty("rivet.memory.debug"));
+    private static final int MAX_REPORTED_LEAKS = 16;
+    
+    private static final AtomicLongArray bytes = new AtomicLongArray(MemoryCategory.COUNT);
+    private static final AtomicLongArray counts = new AtomicLongArray(MemoryCategory.COUNT);
+    private static final AtomicLongArray peaks = new AtomicLongArray(MemoryCategory.COUNT);
+    private static final long[] budgets = readBudgets();
+    private static final AtomicIntegerArray overBudget = new AtomicIntegerArray(MemoryCategory.COUNT);
+    
+    // Только в режиме отладки: адрес -> выделение со стеком
+    private static final Map<Long, Allocation> allocations = DEBUG ? new ConcurrentHashMap<>() : null;
+    
+    /**
+     * Живое выделение (режим отладки)
+     */
+    private static final class Allocation {
+        final int category;
+        final long bytes;
+        final Throwable trace;
+        
+        Allocation(int category, long bytes) {
+            this.category = category;
+            this.bytes = bytes;
+            this.trace = new Throwable("Выделено " + bytes + " байт [" + MemoryCategory.name(category) + "]");
+        }
+    }
+    
+    private NativeMemory() {
+    }
+    
+    private static long[] readBudgets() {
+        long[] result = new long[MemoryCategory.COUNT];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = Integer.getInteger("rivet.memory.budget." + MemoryCategory.name(i), 0) * 1024L * 1024L;
+        }
+        return result;
+    }
+    
+    /**
+     * Выделить неинициализированный буфер
+     * @param category категория учета
+     * @param size размер в байтах
+     * @return буфер в нативном порядке байт
+     */
+    public static ByteBuffer malloc(int category, int size) {
+        ByteBuffer buffer = MemoryUtil.memAlloc(size);
+        allocated(category, buffer, size);
+        return buffer;
+    }
+    
+    /**
+     * Выделить обнуленный буфер
+     * @param category категория учета
+     * @param size размер в байтах
+     * @return буфер в нативном порядке байт
+     */
+    public static ByteBuffer calloc(int category, int size) {
+        ByteBuffer buffer = MemoryUtil.memCalloc(size);
+        allocated(category, buffer, size);
+        return buffer;
+    }
+    
+    public static IntBuffer mallocInt(int category, int count) {
+        IntBuffer buffer = MemoryUtil.memAllocInt(count);
+        allocated(category, buffer, (long) count * Integer.BYTES);
+        return buffer;
+    }
+    
+    public static FloatBuffer mallocFloat(int category, int count) {
+        FloatBuffer buffer = MemoryUtil.memAllocFloat(count);
+        allocated(category, buffer, (long) count * Float.BYTES);
+        return buffer;
+    }
+    
+    /**
+     * Изменить размер буфера с сохранением содержимого
+     * @param category категория, в которой буфер был выделен
+     * @param buffer буфер из этого класса
+     * @param size новый размер в байтах
+     * @return новый буфер (старый больше использовать нельзя)
+     */
+    public static ByteBuffer realloc(int category, ByteBuffer buffer, int size) {
+        long old = released(category, buffer);
+        ByteBuffer result = MemoryUtil.memRealloc(buffer, size);
+        reallocated(category, result, old, size);
+        return result;
+    }
+    
+    public static IntBuffer realloc(int category, IntBuffer buffer, int count) {
+        long old = released(category, buffer);
+        IntBuffer result = MemoryUtil.memRealloc(buffer, count);
+        reallocated(category, result, old, (long) count * Integer.BYTES);
+        return result;
+    }
+    
+    public static FloatBuffer realloc(int category, FloatBuffer buffer, int count) {
+        long old = released(category, buffer);
+        FloatBuffer result = MemoryUtil.memRealloc(buffer, count);
+        reallocated(category, result, old, (long) count * Float.BYTES);
+        return result;
+    }
+    
+    /**
+     * Освободить буфер
+     * @param category категория, в которой буфер был выделен
+     * @param buffer буфер из этого класса (null игнорируется)
+     */
+    public static void free(int category, Buffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+        long size = released(category, buffer);
+        account(category, -size, -1);
+        MemoryUtil.memFree(buffer);
+    }
+    
+    private static void allocated(int category, Buffer buffer, long size) {
+        if (DEBUG) {
+            allocations.put(MemoryUtil.memAddress0(buffer), new Allocation(category, size));
+        }
+        account(category, size, 1);
+    }
+    
+    private static void reallocated(int category, Buffer buffer, long oldSize, long size) {
+        if (DEBUG) {
+            allocations.put(MemoryUtil.memAddress0(buffer), new Allocation(category, size));
+        }
+        account(category, size - oldSize, 0);
+    }
+    
+    /**
+     * Снять буфер с учета по адресу
+     * @return размер буфера в байтах
+     */
+    private static long released(int category, Buffer buffer) {
+        long size = byteSize(buffer);
+        if (DEBUG) {
+            Allocation allocation = allocations.remove(MemoryUtil.memAddress0(buffer));
+            if (allocation == null) {
+                throw new IllegalStateException("Native buffer was not allocated by NativeMemory or is already freed");
+            }
+            if (allocation.category != category) {
+                logger.warn("Буфер категории {} освобождается как {}",
+                    MemoryCategory.name(allocation.category), MemoryCategory.name(category), allocation.trace);
+            }
+            return allocation.bytes;
+        }
+        return size;
+    }
+    
+    private static long byteSize(Buffer buffer) {
+        if (buffer instanceof ByteBuffer) {
+            return buffer.capacity();
+        }
+        if (buffer instanceof IntBuffer || buffer instanceof FloatBuffer) {
+            return (long) buffer.capacity() * 4;
+        }
+        return (long) buffer.capacity() * 8;
+    }
+    
+    private static void account(int category, long delta, int countDelta) {
+        long total = bytes.addAndGet(category, delta);
+        counts.addAndGet(category, countDelta);
+        long peak;
+        while (total > (peak = peaks.get(category)) && !peaks.compareAndSet(category, peak, total)) {
+            // повтор до успешной записи пика
+        }
+        
+        long budget = budgets[category];
+        if (budget > 0) {
+            if (total > budget) {
+                if (overBudget.compareAndSet(category, 0, 1)) {
+                    logger.warn("Превышен бюджет нативной памяти [{}]: {} MB из {} MB",
+                        MemoryCategory.name(category), total / (1024 * 1024), budget / (1024 * 1024));
+                }
+            } else {
+                overBudget.set(category, 0);
+            }
+        }
+    }
+    
+    /**
+     * Получить объем живых выделений категории
+     * @param category категория
+     * @return размер в байтах
+     */
+    public static long getBytes(int category) {
+        return bytes.get(category);
+    }
+    
+    /**
+     * Получить количество живых выделений категории
+     * @param category категория
+     * @return количество буферов
+     */
+    public static long getCount(int category) {
+        return counts.get(category);
+    }
+    
+    /**
+     * Получить наибольший объем категории за время работы
+     * @param category категория
+     * @return размер в байтах
+     */
+    public static long getPeakBytes(int category) {
+        return peaks.get(category);
+    }
+    
+    /**
+     * Получить общий объем нативной памяти
+     * @return размер в байтах
+     */
+    public static long getTotalBytes() {
+        long total = 0;
+        for (int i = 0; i < MemoryCategory.COUNT; i++) {
+            total += bytes.get(i);
+        }
+        return total;
+    }
+    
+    /**
+     * Проверить, превышен ли бюджет категории
+     * @param category категория
+     * @return true если задан бюджет и объем его превышает
+     */
+    public static boolean isOverBudget(int category) {
+        long budget = budgets[category];
+        return budget > 0 && bytes.get(category) > budget;
+    }
+    
+    public static boolean isDebug() {
+        return DEBUG;
+    }
+    
+    /**
+     * Вывести в лог неосвобожденные выделения
+     * Вызывается после очистки всех модулей: все, что осталось, - утечка.
+     * В режиме отладки для первых выделений выводится стек.
+     * @return количество неосвобожденных буферов
+     */
+    public static long reportLeaks() {
+        long leaked = 0;
+        for (int i = 0; i < MemoryCategory.COUNT; i++) {
+            long count = counts.get(i);
+            if (count != 0) {
+                leaked += count;
+                logger.warn("Утечка нативной памяти [{}]: {} буферов, {} байт (пик {} KB)",
+                    MemoryCategory.name(i), count, bytes.get(i), peaks.get(i) / 1024);
+            }
+        }
+        
+        if (DEBUG) {
+            int reported = 0;
+            for (Allocation allocation : allocations.values()) {
+                if (reported++ == MAX_REPORTED_LEAKS) {
+                    logger.warn("... и еще {} выделений", allocations.size() - MAX_REPORTED_LEAKS);
+                    break;
+                }
+                logger.warn("Неосвобожденный буфер", allocation.trace);
+            }
+        } else if (leaked > 0) {
+            logger.warn("Запустите с -Drivet.memory.debug=true, чтобы увидеть стеки выделений");
+        }
+        
+        if (leaked == 0) {
+            logger.info("Нативная память освобождена полностью");
+        }
+        return leaked;
+    }
+}
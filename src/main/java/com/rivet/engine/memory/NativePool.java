@@ -0,0 +1,120 @@
+package com.rivet.engine.memory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Пул нативных буферов с классами размеров (степени двойки)
+ *
+ * Возвращенные буферы переиспользуются; сверх лимита класса и при
+ * {@link #clear()} память освобождается явно, а не сборщиком мусора.
+ * Буфер, не возвращенный в пул, считается утечкой и попадает в отчет
+ * {@link NativeMemory#reportLeaks()}. Методы потокобезопасны.
+ */
+public final class NativePool {
+    
+    private final int category;
+    private final int minShift;
+    private final int maxShift;
+    private final int maxRetainedPerClass;
+    private final ArrayDeque<ByteBuffer>[] free;
+    private final AtomicLong allocatedBytes = new AtomicLong();
+    private final AtomicLong pooledBytes = new AtomicLong();
+    
+    /**
+     * @param category категория учета
+     * @param minShift двоичный логарифм наименьшего класса
+     * @param maxShift двоичный логарифм наибольшего класса
+     * @param maxRetainedPerClass максимальное число свободных буферов каждого класса
+     */
+    @SuppressWarnings("unchecked")
+    public NativePool(int category, int minShift, int maxShift, int maxRetainedPerClass) {
+        this.category = category;
+        this.minShift = minShift;
+        this.maxShift = maxShift;
+        this.maxRetainedPerClass = maxRetainedPerClass;
+        this.free = new ArrayDeque[maxShift - minShift + 1];
+        for (int i = 0; i < free.length; i++) {
+            free[i] = new ArrayDeque<>(maxRetainedPerClass);
+        }
+    }
+    
+    /**
+     * Взять буфер из пула
+     * @param minBytes минимальная емкость
+     * @return очищенный буфер в нативном порядке байт
+     */
+    public ByteBuffer acquire(int minBytes) {
+        int shift = Math.max(minShift, 32 - Integer.numberOfLeadingZeros(Math.max(1, minBytes - 1)));
+        if (shift > maxShift) {
+            throw new IllegalArgumentException("Pooled buffer too large: " + minBytes + " bytes");
+        }
+        
+        ArrayDeque<ByteBuffer> queue = free[shift - minShift];
+        synchronized (queue) {
+            ByteBuffer buffer = queue.pollFirst();
+            if (buffer != null) {
+                pooledBytes.addAndGet(-buffer.capacity());
+                buffer.clear();
+                return buffer;
+            }
+        }
+        
+        allocatedBytes.addAndGet(1L << shift);
+        return NativeMemory.malloc(category, 1 << shift);
+    }
+    
+    /**
+     * Вернуть буфер в пул
+     * @param buffer буфер, полученный через {@link #acquire(int)}
+     */
+    public void release(ByteBuffer buffer) {
+        int shift = Integer.numberOfTrailingZeros(buffer.capacity());
+        ArrayDeque<ByteBuffer> queue = free[shift - minShift];
+        synchronized (queue) {
+            if (queue.size() < maxRetainedPerClass) {
+                buffer.clear();
+                queue.addFirst(buffer);
+                pooledBytes.addAndGet(buffer.capacity());
+                return;
+            }
+        }
+        
+        allocatedBytes.addAndGet(-buffer.capacity());
+        NativeMemory.free(category, buffer);
+    }
+    
+    /**
+     * Получить общий объем выделенных пулом буферов
+     * @return размер в байтах
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes.get();
+    }
+    
+    /**
+     * Получить объем свободных буферов в пуле
+     * @return размер в байтах
+     */
+    public long getPooledBytes() {
+        return pooledBytes.get();
+    }
+    
+    /**
+     * Освободить все свободные буферы
+     * Выданные буферы остаются действительными до возврата в пул.
+     */
+    public void clear() {
+        for (ArrayDeque<ByteBuffer> queue : free) {
+            synchronized (queue) {
+                ByteBuffer buffer;
+                while ((buffer = queue.pollFirst()) != null) {
+                    allocatedBytes.addAndGet(-buffer.capacity());
+                    pooledBytes.addAndGet(-buffer.capacity());
+                    NativeMemory.free(category, buffer);
+                }
+            }
+        }
+    }
+}
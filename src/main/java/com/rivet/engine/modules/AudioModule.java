@@ -0,0 +1,194 @@
+package com.rivet.engine.modules;
+
+import com.rivet.engine.audio.AudioOutput;
+import com.rivet.engine.audio.AudioSource;
+import com.rivet.engine.audio.JavaSoundOutput;
+import com.rivet.engine.audio.Mixer;
+import com.rivet.engine.audio.StreamDecoder;
+import com.rivet.engine.audio.StreamingSource;
+import com.rivet.engine.resources.Resource;
+import com.rivet.engine.resources.ResourceLoadException;
+import com.rivet.engine.resources.SoundResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Модуль звука: программный микшер, поток вывода и поток декодирования
+ *
+ * Микшер работает в своем потоке и получает темп от блокирующей записи в
+ * устройство. Без звукового устройства модуль остается рабочим, но звуки не
+ * запускаются.
+ */
+public class AudioModule implements GameModule {
+    
+    private static final Logger logger = LoggerFactory.getLogger(AudioModule.class);
+    
+    // Приоритеты: при нехватке голосов первыми вытесняются звуки с меньшим
+    public static final int PRIORITY_AMBIENT = 0;
+    public static final int PRIORITY_WORLD = 50;
+    public static final int PRIORITY_UI = 100;
+    
+    private static final int SAMPLE_RATE = 44100;
+    private static final int DEFAULT_VOICES = 32;
+    private static final int BLOCK_FRAMES = 512;
+    private static final int DEVICE_BUFFER_FRAMES = BLOCK_FRAMES * 4;
+    
+    private final ResourceModule resourceModule;
+    
+    private boolean initialized = false;
+    private Mixer mixer;
+    private StreamDecoder decoder;
+    private AudioOutput output;
+    private Thread mixerThread;
+    private volatile boolean running = false;
+    
+    public AudioModule(ResourceModule resourceModule) {
+        this.resourceModule = resourceModule;
+    }
+    
+    @Override
+    public void initialize() throws Exception {
+        if (initialized) {
+            return;
+        }
+        
+        // -Drivet.audio.voices=<количество> - максимум одновременных голосов
+        int voices = Math.max(1, Integer.getInteger("rivet.audio.voices", DEFAULT_VOICES));
+        mixer = new Mixer(SAMPLE_RATE, voices);
+        decoder = new StreamDecoder();
+        
+        // -Drivet.audio=false - без вывода звука
+        if (!"false".equals(System.getProperty("rivet.audio"))) {
+            try {
+                output = new JavaSoundOutput(SAMPLE_RATE, DEVICE_BUFFER_FRAMES);
+            } catch (Exception e) {
+                logger.warn("Звуковое устройство недоступно, звук отключен: {}", e.toString());
+            }
+        }
+        if (output != null) {
+            decoder.start();
+            running = true;
+            mixerThread = new Thread(this::mixLoop, "AudioMixer");
+            mixerThread.setDaemon(true);
+            mixerThread.setPriority(Thread.MAX_PRIORITY);
+            mixerThread.start();
+        }
+        
+        initialized = true;
+        logger.info("Модуль звука инициализирован ({} голосов, {} Гц, вывод: {})",
+            voices, SAMPLE_RATE, output != null ? "включен" : "выключен");
+    }
+    
+    private void mixLoop() {
+        float[] block = new float[BLOCK_FRAMES * 2];
+        while (running) {
+            mixer.mix(block, BLOCK_FRAMES);
+            output.write(block, BLOCK_FRAMES);
+        }
+        // Команды, поставленные перед остановкой (stopAll из cleanup), закрывают голоса
+        mixer.drain();
+    }
+    
+    /**
+     * Запустить звук по ключу ресурса (из любого потока)
+     * @param key ключ звука в resources.json
+     * @param priority приоритет голоса ({@link #PRIORITY_AMBIENT}, {@link #PRIORITY_WORLD}, {@link #PRIORITY_UI})
+     * @param volume громкость
+     * @param pan панорама от -1 до 1
+     * @param loop начинать заново по окончании (только для потоковых звуков)
+     * @return идентификатор голоса или 0 если звук не запущен
+     */
+    public int play(String key, int priority, float volume, float pan, boolean loop) {
+        if (output == null) {
+            return 0;
+        }
+        try {
+            Resource resource = resourceModule.getResourceManager().loadResource(key);
+            if (!(resource instanceof SoundResource sound)) {
+                logger.warn("Ресурс {} не является звуком", key);
+                return 0;
+            }
+            AudioSource source = sound.createSource(loop);
+            if (source instanceof StreamingSource stream) {
+                decoder.add(stream);
+            }
+            return mixer.play(source, priority, volume, pan);
+        } catch (ResourceLoadException e) {
+            logger.warn("Не удалось запустить звук {}: {}", key, e.getMessage());
+            return 0;
+        }
+    }
+    
+    /**
+     * Остановить голос
+     * @param handle идентификатор из {@link #play}
+     */
+    public void stop(int handle) {
+        mixer.stop(handle);
+    }
+    
+    @Override
+    public void update(float deltaTime) {
+        // Микшер работает в своем потоке
+    }
+    
+    @Override
+    public void render(float partialTicks) {
+        // Звук не рисуется
+    }
+    
+    @Override
+    public void cleanup() {
+        if (initialized) {
+            // Команда ставится до остановки: поток микшера применит ее перед выходом
+            mixer.stopAll();
+            running = false;
+            if (mixerThread != null) {
+                try {
+                    mixerThread.join(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (mixerThread.isAlive()) {
+                    logger.warn("Поток микшера не завершился за 1 с");
+                }
+                mixerThread = null;
+            } else {
+                mixer.drain();
+            }
+            decoder.shutdown();
+            if (output != null) {
+                output.close();
+                output = null;
+            }
+            logger.info("Очистка модуля звука: вытеснено голосов {}, отклонено звуков {}, недоборов {}",
+                mixer.getStolenVoices(), mixer.getRejectedSounds(), mixer.getUnderruns());
+            initialized = false;
+        }
+    }
+    
+    @Override
+    public boolean isInitialized() {
+        return initialized;
+    }
+    
+    @Override
+    public String getName() {
+        return "AudioModule";
+    }
+    
+    public Mixer getMixer() {
+        return mixer;
+    }
+    
+    public StreamDecoder getDecoder() {
+        return decoder;
+    }
+    
+    /**
+     * Проверить, выводится ли звук на устройство
+     */
+    public boolean isOutputEnabled() {
+        return output != null;
+    }
+}
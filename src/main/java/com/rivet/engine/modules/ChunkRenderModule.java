@@ -0,0 +1,403 @@
+package com.rivet.engine.modules;
+
+import com.rivet.engine.FrameSnapshot;
+import com.rivet.engine.render.Camera;
+import com.rivet.engine.render.ChunkRenderer;
+import com.rivet.engine.render.RenderQueue;
+import com.rivet.engine.render.SectionRenderer;
+import com.rivet.engine.render.TerrainRenderer;
+import com.rivet.engine.render.VisibilityCuller;
+import com.rivet.engine.render.mesh.MeshUploader;
+import com.rivet.engine.render.mesh.ChunkMeshingService;
+import com.rivet.engine.resources.ResourceLocation;
+import com.rivet.engine.resources.TextureResource;
+import com.rivet.engine.util.LongObjectHashMap;
+import com.rivet.engine.util.LongQueue;
+import com.rivet.engine.world.BlockChangeListener;
+import com.rivet.engine.world.Chunk;
+import com.rivet.engine.world.ChunkListener;
+import com.rivet.engine.world.ChunkPos;
+import com.rivet.engine.world.World;
+import com.rivet.engine.world.light.LightChangeListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Модуль рендеринга мира: фоновое мешение секций и отрисовка
+ */
+public class ChunkRenderModule implements GameModule {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ChunkRenderModule.class);
+    
+    // Бюджет загрузки мешей на GPU за кадр
+    private static final long UPLOAD_BUDGET_NANOS = 2_000_000L;
+    
+    // Атлас плиток блоков (TerrainShader.ATLAS_TILES x ATLAS_TILES плиток)
+    public static final ResourceLocation ATLAS = new ResourceLocation("", "terrain.png");
+    
+    // Расстояние полной детализации в чанках и бюджет буферов уменьшенных мешей
+    private static final int LOD_DISTANCE = 8;
+    private static final int LOD_BUDGET_MB = 64;
+    
+    private final WorldModule worldModule;
+    private final InitializationModule initModule;
+    private boolean initialized = false;
+    
+    private Camera camera;
+    private SectionRenderer renderer;
+    private TerrainRenderer lodRenderer;
+    private TextureResource atlas;
+    private ChunkMeshingService meshingService;
+    private VisibilityCuller culler;
+    private MeshUploader uploader;
+    private BlockChangeListener blockListener;
+    private ChunkListener chunkListener;
+    private LightChangeListener lightListener;
+    
+    // Поток симуляции: точка обзора и события мира до публикации в снимок
+    private float viewX, viewY, viewZ, viewYaw, viewPitch;
+    private float prevX, prevY, prevZ, prevYaw, prevPitch;
+    private final LongQueue eventTypes = new LongQueue(256);
+    private final LongQueue eventKeys = new LongQueue(256);
+    private final LongQueue eventData = new LongQueue(256);
+    
+    // Поток OpenGL просит полный список чанков после потери событий
+    private volatile boolean resyncRequested = false;
+    
+    // Поток OpenGL: снимок текущего кадра, чанки с мешами и центр колец детализации
+    private FrameSnapshot snapshot;
+    private final LongObjectHashMap<Boolean> residentChunks = new LongObjectHashMap<>(1024);
+    private final LongObjectHashMap<Boolean> resyncChunks = new LongObjectHashMap<>(1024);
+    private final LongQueue staleChunks = new LongQueue(64);
+    private int lodCenterX = Integer.MIN_VALUE;
+    private int lodCenterZ = Integer.MIN_VALUE;
+    
+    public ChunkRenderModule(WorldModule worldModule, InitializationModule initModule) {
+        this.worldModule = worldModule;
+        this.initModule = initModule;
+    }
+    
+    @Override
+    public void initialize() throws Exception {
+        if (initialized) {
+            return;
+        }
+        
+        camera = new Camera();
+        camera.setPerspective(70.0f, (float) initModule.getWidth() / initModule.getHeight(), 0.05f, 1024.0f);
+        
+        // -Drivet.terrain.renderer=simple - по одному VAO и вызову отрисовки на секцию
+        if ("simple".equals(System.getProperty("rivet.terrain.renderer"))) {
+            renderer = new ChunkRenderer();
+        } else {
+            renderer = new TerrainRenderer(initModule.getFrameArena());
+        }
+        renderer.initialize();
+        
+        // Уменьшенные меши дальних колец - в отдельных буферах с ограниченным объемом
+        // -Drivet.lod.budgetMB=<MB> - бюджет буферов уменьшенных мешей
+        long lodBudget = Integer.getInteger("rivet.lod.budgetMB", LOD_BUDGET_MB) * 1024L * 1024L;
+        lodRenderer = new TerrainRenderer(lodBudget, initModule.getFrameArena());
+        lodRenderer.initialize();
+        
+        // Вершины мешей копирует поток загрузки с общим контекстом (если он есть)
+        if (renderer instanceof TerrainRenderer terrainRenderer) {
+            terrainRenderer.setGpuUploader(initModule.getUploader());
+        }
+        lodRenderer.setGpuUploader(initModule.getUploader());
+        
+        // Атлас принадлежит модулю: удаляется в cleanup, пока контекст OpenGL еще жив
+        atlas = new TextureResource(ATLAS, true);
+        atlas.load();
+        renderer.setAtlasTexture(atlas.getTextureId());
+        lodRenderer.setAtlasTexture(atlas.getTextureId());
+        
+        culler = new VisibilityCuller(worldModule.getGenerationRadius());
+        uploader = mesh -> {
+            culler.setSection(mesh.getSectionX(), mesh.getSectionY(), mesh.getSectionZ(), mesh.getVisibility());
+            if (mesh.getLodLevel() == 0) {
+                renderer.upload(mesh);
+                lodRenderer.removeSection(mesh.getSectionX(), mesh.getSectionY(), mesh.getSectionZ());
+            } else {
+                lodRenderer.upload(mesh);
+                renderer.removeSection(mesh.getSectionX(), mesh.getSectionY(), mesh.getSectionZ());
+            }
+        };
+        
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        meshingService = new ChunkMeshingService(worldModule.getWorld(), threads);
+        // -Drivet.lod.distance=<чанки> - расстояние полной детализации (0 - без LOD)
+        meshingService.setLodDistance(Integer.getInteger("rivet.lod.distance", LOD_DISTANCE));
+        
+        // Слушатели вызываются в потоке симуляции: события передаются в поток OpenGL через снимок
+        blockListener = (x, y, z, oldId, newId) ->
+            postEvent(FrameSnapshot.EVENT_BLOCK_CHANGED, ChunkPos.packSection(x, y, z), FrameSnapshot.blockChange(oldId, newId));
+        chunkListener = new ChunkListener() {
+            @Override
+            public void onChunkLoaded(Chunk chunk) {
+                postEvent(FrameSnapshot.EVENT_CHUNK_LOADED, chunk.getKey());
+            }
+            
+            @Override
+            public void onChunkUnloaded(Chunk chunk) {
+                postEvent(FrameSnapshot.EVENT_CHUNK_UNLOADED, chunk.getKey());
+            }
+        };
+        // Меш хранит освещение в вершинах - изменение света требует перестроения
+        lightListener = (sectionX, sectionY, sectionZ) ->
+            postEvent(FrameSnapshot.EVENT_SECTION_DIRTY, ChunkPos.packSection(sectionX, sectionY, sectionZ));
+        
+        worldModule.getWorld().addBlockChangeListener(blockListener);
+        worldModule.getWorld().addChunkListener(chunkListener);
+        worldModule.getLightEngine().addLightChangeListener(lightListener);
+        
+        initialized = true;
+        logger.info("Модуль рендеринга мира инициализирован");
+    }
+    
+    private void postEvent(int type, long key) {
+        postEvent(type, key, 0);
+    }
+    
+    private void postEvent(int type, long key, int data) {
+        eventTypes.add(type);
+        eventKeys.add(key);
+        eventData.add(data);
+    }
+    
+    /**
+     * Переместить точку обзора (поток симуляции)
+     * Изменение применяется к камере интерполяцией в течение следующего тика.
+     * @param x мировая координата X
+     * @param y мировая координата Y
+     * @param z мировая координата Z
+     * @param yaw поворот в градусах
+     * @param pitch наклон в градусах
+     */
+    public void setViewpoint(float x, float y, float z, float yaw, float pitch) {
+        viewX = x;
+        viewY = y;
+        viewZ = z;
+        viewYaw = yaw;
+        viewPitch = pitch;
+    }
+    
+    /**
+     * Мгновенно переместить точку обзора без интерполяции (поток симуляции)
+     */
+    public void teleport(float x, float y, float z, float yaw, float pitch) {
+        setViewpoint(x, y, z, yaw, pitch);
+        prevX = x;
+        prevY = y;
+        prevZ = z;
+        prevYaw = yaw;
+        prevPitch = pitch;
+    }
+    
+    @Override
+    public void update(float deltaTime) {
+        prevX = viewX;
+        prevY = viewY;
+        prevZ = viewZ;
+        prevYaw = viewYaw;
+        prevPitch = viewPitch;
+        
+        // Генерация чанков следует за точкой обзора
+        double yaw = Math.toRadians(viewYaw);
+        worldModule.setViewer(viewX, viewZ, (float) Math.sin(yaw), (float) -Math.cos(yaw));
+    }
+    
+    @Override
+    public void publish(FrameSnapshot snapshot) {
+        snapshot.setCamera(prevX, prevY, prevZ, prevYaw, prevPitch, viewX, viewY, viewZ, viewYaw, viewPitch);
+        while (!eventKeys.isEmpty()) {
+            snapshot.addEvent((int) eventTypes.poll(), eventKeys.poll(), (int) eventData.poll());
+        }
+        if (resyncRequested) {
+            resyncRequested = false;
+            snapshot.addEvent(FrameSnapshot.EVENT_CHUNKS_RESYNC, 0, worldModule.getWorld().getLoadedChunkCount());
+            worldModule.getWorld().forEachChunk((key, chunk) -> snapshot.addEvent(FrameSnapshot.EVENT_CHUNK_LOADED, key));
+        }
+    }
+    
+    @Override
+    public void consume(FrameSnapshot snapshot) {
+        this.snapshot = snapshot;
+        if (snapshot.isEventGap()) {
+            // Изменения блоков и выгрузки потеряны: следующий тик пришлет все загруженные чанки
+            logger.warn("Потеряны события мира, полная синхронизация мешей");
+            resyncRequested = true;
+        }
+        for (int i = snapshot.getFirstNewEvent(); i < snapshot.getEventCount(); i++) {
+            long key = snapshot.getEventKey(i);
+            switch (snapshot.getEventType(i)) {
+                case FrameSnapshot.EVENT_SECTION_DIRTY:
+                    meshingService.markSectionDirty(ChunkPos.sectionX(key), ChunkPos.sectionY(key), ChunkPos.sectionZ(key));
+                    break;
+                case FrameSnapshot.EVENT_BLOCK_CHANGED:
+                    meshingService.onBlockChanged(ChunkPos.sectionX(key), ChunkPos.sectionY(key), ChunkPos.sectionZ(key), 0, 0);
+                    break;
+                case FrameSnapshot.EVENT_CHUNK_LOADED:
+                    residentChunks.put(key, Boolean.TRUE);
+                    meshingService.markChunkDirty(ChunkPos.unpackX(key), ChunkPos.unpackZ(key));
+                    break;
+                case FrameSnapshot.EVENT_CHUNK_UNLOADED:
+                    removeChunk(key);
+                    break;
+                case FrameSnapshot.EVENT_CHUNKS_RESYNC:
+                    resync(snapshot, i + 1, snapshot.getEventData(i));
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+    
+    private void removeChunk(long key) {
+        int chunkX = ChunkPos.unpackX(key);
+        int chunkZ = ChunkPos.unpackZ(key);
+        residentChunks.remove(key);
+        meshingService.cancelChunk(chunkX, chunkZ);
+        culler.removeChunk(chunkX, chunkZ);
+        renderer.removeChunk(chunkX, chunkZ);
+        lodRenderer.removeChunk(chunkX, chunkZ);
+    }
+    
+    /**
+     * Удалить меши чанков, которых нет в полном списке; сами чанки списка
+     * перестраиваются следующими за маркером событиями EVENT_CHUNK_LOADED
+     */
+    private void resync(FrameSnapshot snapshot, int start, int count) {
+        int end = Math.min(snapshot.getEventCount(), start + count);
+        resyncChunks.clear();
+        for (int i = start; i < end; i++) {
+            resyncChunks.put(snapshot.getEventKey(i), Boolean.TRUE);
+        }
+        residentChunks.forEach((key, resident) -> {
+            if (!resyncChunks.containsKey(key)) {
+                staleChunks.add(key);
+            }
+        });
+        while (!staleChunks.isEmpty()) {
+            removeChunk(staleChunks.poll());
+        }
+        resyncChunks.clear();
+    }
+    
+    @Override
+    public void render(float partialTicks) {
+        if (snapshot != null) {
+            snapshot.applyCamera(camera, partialTicks);
+        }
+        updateLodCenter();
+        meshingService.uploadCompleted(uploader, UPLOAD_BUDGET_NANOS);
+        camera.update();
+        int visibleCount = culler.cull(camera);
+        RenderQueue queue = initModule.getRenderQueue();
+        queue.setMaxDepth(camera.getFar());
+        renderer.render(camera, culler.getVisible(), visibleCount, queue);
+        lodRenderer.render(camera, culler.getVisible(), visibleCount, queue);
+    }
+    
+    /**
+     * Сдвинуть кольца детализации за камерой
+     * Перестраиваются только загруженные чанки, у которых сменился уровень.
+     */
+    private void updateLodCenter() {
+        int centerX = (int) Math.floor(camera.getPosition().x) >> 4;
+        int centerZ = (int) Math.floor(camera.getPosition().z) >> 4;
+        if (centerX == lodCenterX && centerZ == lodCenterZ) {
+            return;
+        }
+        
+        int oldX = lodCenterX;
+        int oldZ = lodCenterZ;
+        lodCenterX = centerX;
+        lodCenterZ = centerZ;
+        meshingService.setLodCenter(centerX, centerZ);
+        if (oldX == Integer.MIN_VALUE) {
+            return;
+        }
+        
+        int distance = meshingService.getLodDistance();
+        int radius = worldModule.getGenerationRadius() + 1;
+        World world = worldModule.getWorld();
+        for (int dz = -radius; dz <= radius; dz++) {
+            for (int dx = -radius; dx <= radius; dx++) {
+                int chunkX = centerX + dx;
+                int chunkZ = centerZ + dz;
+                if (ChunkMeshingService.lodLevel(chunkX, chunkZ, oldX, oldZ, distance)
+                        != ChunkMeshingService.lodLevel(chunkX, chunkZ, centerX, centerZ, distance)
+                        && world.isChunkLoaded(chunkX, chunkZ)) {
+                    for (int sectionY = 0; sectionY < Chunk.SECTION_COUNT; sectionY++) {
+                        meshingService.markSectionDirty(chunkX, sectionY, chunkZ);
+                    }
+                }
+            }
+        }
+    }
+    
+    @Override
+    public void cleanup() {
+        if (initialized) {
+            worldModule.getWorld().removeBlockChangeListener(blockListener);
+            worldModule.getWorld().removeChunkListener(chunkListener);
+            worldModule.getLightEngine().removeLightChangeListener(lightListener);
+            meshingService.shutdown();
+            renderer.cleanup();
+            lodRenderer.cleanup();
+            atlas.unload();
+            atlas = null;
+            snapshot = null;
+            initialized = false;
+            logger.info("Модуль рендеринга мира очищен");
+        }
+    }
+    
+    @Override
+    public boolean isInitialized() {
+        return initialized;
+    }
+    
+    @Override
+    public String getName() {
+        return "ChunkRenderModule";
+    }
+    
+    /**
+     * Получить камеру потока OpenGL
+     * Положение камеры задается снимком тика; для перемещения используйте setViewpoint.
+     * @return камера
+     */
+    public Camera getCamera() {
+        return camera;
+    }
+    
+    public SectionRenderer getRenderer() {
+        return renderer;
+    }
+    
+    /**
+     * Получить рендерер уменьшенных мешей дальних колец
+     * @return рендерер
+     */
+    public TerrainRenderer getLodRenderer() {
+        return lodRenderer;
+    }
+    
+    /**
+     * Получить текстуру атласа блоков (поток OpenGL)
+     * @return id текстуры OpenGL
+     */
+    public int getAtlasTexture() {
+        return atlas.getTextureId();
+    }
+    
+    public VisibilityCuller getCuller() {
+        return culler;
+    }
+    
+    public ChunkMeshingService getMeshingService() {
+        return meshingService;
+    }
+}
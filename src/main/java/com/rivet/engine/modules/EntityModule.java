@@ -0,0 +1,198 @@
+package com.rivet.engine.modules;
+
+import com.rivet.engine.entity.BodyStore;
+import com.rivet.engine.entity.BoundsStore;
+import com.rivet.engine.entity.EntityManager;
+import com.rivet.engine.entity.MovementSystem;
+import com.rivet.engine.entity.PositionStore;
+import com.rivet.engine.entity.SpriteStore;
+import com.rivet.engine.entity.VelocityStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Модуль сущностей: хранилища компонентов и системы, обновляемые каждый тик
+ */
+public class EntityModule implements GameModule {
+    
+    private static final Logger logger = LoggerFactory.getLogger(EntityModule.class);
+    
+    private static final String PLAYER_TEXTURE = "textures/char.png";
+    private static final int DEFAULT_MOBS = 100;
+    private static final float MOB_SPAWN_RADIUS = 32.0f;
+    private static final float MOB_SPEED = 1.5f;
+    
+    private boolean initialized = false;
+    private EntityManager entities;
+    private PositionStore positions;
+    private VelocityStore velocities;
+    private BoundsStore bounds;
+    private BodyStore bodies;
+    private SpriteStore sprites;
+    private MovementSystem movement;
+    private ForkJoinPool pool;
+    private int player = EntityManager.NULL;
+    
+    // Метрики
+    private volatile long lastUpdateNanos = 0;
+    
+    @Override
+    public void initialize() throws Exception {
+        if (initialized) {
+            return;
+        }
+        
+        entities = new EntityManager(1024);
+        positions = new PositionStore(1024);
+        velocities = new VelocityStore(1024);
+        bounds = new BoundsStore(1024);
+        bodies = new BodyStore(1024);
+        sprites = new SpriteStore(1024);
+        entities.register(positions);
+        entities.register(velocities);
+        entities.register(bounds);
+        entities.register(bodies);
+        entities.register(sprites);
+        movement = new MovementSystem(positions, velocities, bounds, bodies);
+        
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger counter = new AtomicInteger();
+        pool = new ForkJoinPool(threads, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("EntitySystem-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+        
+        initialized = true;
+        logger.info("Модуль сущностей инициализирован ({} рабочих потоков)", threads);
+    }
+    
+    /**
+     * Создать игрока и мобов вокруг него (поток симуляции до запуска тиков)
+     * -Drivet.entities.mobs=<количество> - число мобов
+     * @param x мировая координата X
+     * @param y мировая координата Y
+     * @param z мировая координата Z
+     */
+    public void spawnPlayer(float x, float y, float z) {
+        int texture = sprites.textureId(PLAYER_TEXTURE);
+        player = spawn(x, y, z, 0.0f, 0.0f, texture);
+        
+        int mobs = Integer.getInteger("rivet.entities.mobs", DEFAULT_MOBS);
+        Random random = new Random(Long.getLong("rivet.seed", 20240601L));
+        for (int i = 0; i < mobs; i++) {
+            float angle = random.nextFloat() * (float) (Math.PI * 2.0);
+            float distance = random.nextFloat() * MOB_SPAWN_RADIUS;
+            float heading = random.nextFloat() * (float) (Math.PI * 2.0);
+            spawn(x + (float) Math.cos(angle) * distance, y, z + (float) Math.sin(angle) * distance,
+                (float) Math.cos(heading) * MOB_SPEED, (float) Math.sin(heading) * MOB_SPEED, texture);
+        }
+        logger.info("Создано сущностей: {}", entities.getAliveCount());
+    }
+    
+    private int spawn(float x, float y, float z, float velocityX, float velocityZ, int texture) {
+        int entity = entities.create();
+        positions.add(entity, x, y, z);
+        velocities.add(entity, velocityX, 0.0f, velocityZ);
+        bounds.update(bounds.add(entity, 0.3f, 1.8f), x, y, z);
+        bodies.add(entity, 1.0f);
+        sprites.add(entity, texture, 1.0f, 2.0f);
+        return entity;
+    }
+    
+    @Override
+    public void update(float deltaTime) {
+        long start = System.nanoTime();
+        movement.update(deltaTime, pool);
+        lastUpdateNanos = System.nanoTime() - start;
+    }
+    
+    @Override
+    public void render(float partialTicks) {
+        // Спрайты сущностей пока не рисуются
+    }
+    
+    @Override
+    public void cleanup() {
+        if (initialized) {
+            pool.shutdownNow();
+            try {
+                pool.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            logger.info("Очистка модуля сущностей: {} сущностей, последний тик {} мкс",
+                entities.getAliveCount(), lastUpdateNanos / 1000L);
+            initialized = false;
+        }
+    }
+    
+    @Override
+    public boolean isInitialized() {
+        return initialized;
+    }
+    
+    @Override
+    public String getName() {
+        return "EntityModule";
+    }
+    
+    public EntityManager getEntities() {
+        return entities;
+    }
+    
+    public PositionStore getPositions() {
+        return positions;
+    }
+    
+    public VelocityStore getVelocities() {
+        return velocities;
+    }
+    
+    public BoundsStore getBounds() {
+        return bounds;
+    }
+    
+    public BodyStore getBodies() {
+        return bodies;
+    }
+    
+    public SpriteStore getSprites() {
+        return sprites;
+    }
+    
+    /**
+     * Получить пул рабочих потоков систем сущностей (задачи из потока симуляции)
+     * @return пул
+     */
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+    
+    public MovementSystem getMovement() {
+        return movement;
+    }
+    
+    /**
+     * Получить сущность игрока
+     * @return сущность или {@link EntityManager#NULL} до spawnPlayer
+     */
+    public int getPlayer() {
+        return player;
+    }
+    
+    /**
+     * Время последнего обновления систем
+     * @return время в наносекундах
+     */
+    public long getLastUpdateNanos() {
+        return lastUpdateNanos;
+    }
+}
@@ -1,5 +1,7 @@
 package com.rivet.engine.modules;
 
+import com.rivet.engine.FrameSnapshot;
+
 /**
  * Базовый интерфейс для всех модулей движка Rivet
  * Обеспечивает единообразную инициализацию и управление жизненным циклом
@@ -24,6 +26,20 @@ public interface GameModule {
      */
     void render(float partialTicks);
     
+    /**
+     * Запись состояния для потока рендеринга (в потоке симуляции после update)
+     * @param snapshot снимок текущего тика
+     */
+    default void publish(FrameSnapshot snapshot) {
+    }
+    
+    /**
+     * Применение снимка тика (в потоке OpenGL перед render)
+     * @param snapshot последний опубликованный снимок
+     */
+    default void consume(FrameSnapshot snapshot) {
+    }
+    
     /**
      * Очистка ресурсов модуля
      */
@@ -1,7 +1,11 @@
 package com.rivet.engine.modules;
 
+import com.rivet.engine.opengl.GpuUploader;
 import com.rivet.engine.opengl.Shader;
 import com.rivet.engine.opengl.ShaderException;
+import com.rivet.engine.memory.FrameArena;
+import com.rivet.engine.memory.MemoryCategory;
+import com.rivet.engine.render.RenderQueue;
 import org.lwjgl.glfw.GLFW;
 import org.lwjgl.glfw.GLFWErrorCallback;
 import org.lwjgl.glfw.GLFWVidMode;
@@ -17,14 +21,23 @@ import org.slf4j.LoggerFactory;
 public class InitializationModule implements GameModule {
     
     private static final Logger logger = LoggerFactory.getLogger(InitializationModule.class);
+    private static final int FRAME_ARENA_BYTES = 1024 * 1024;
+    // Бюджет загрузок на GPU в потоке OpenGL за кадр (без общего контекста)
+    private static final long UPLOAD_BUDGET_NANOS = 2_000_000L;
     private boolean initialized = false;
     private long window;
     private int width;
     private int height;
     private boolean fullscreen;
+    private final boolean osmesa = "true".equals(System.getProperty("rivet.gl.osmesa"));
+    // -Drivet.gl.uploadThread=false - загрузка текстур и буферов только в потоке OpenGL
+    private final boolean uploadThread = !"false".equals(System.getProperty("rivet.gl.uploadThread"));
     
     // OpenGL объекты
     private Shader basicShader;
+    private final RenderQueue renderQueue = new RenderQueue();
+    private FrameArena frameArena;
+    private GpuUploader uploader;
     
     public InitializationModule(int width, int height, boolean fullscreen) {
         this.width = width;
@@ -50,6 +63,12 @@ public class InitializationModule implements GameModule {
         // 4. Загрузка шейдеров
         loadShaders();
         
+        // 5. Память кадра (сбрасывается после выполнения очереди отрисовки)
+        frameArena = new FrameArena(MemoryCategory.RENDER, FRAME_ARENA_BYTES);
+        
+        // 6. Загрузчик GPU: скрытое окно с общим контекстом или бюджет в потоке OpenGL
+        uploader = new GpuUploader(window, uploadThread);
+        
         initialized = true;
         logger.info("InitializationModule: Инициализация завершена");
         logger.info("OpenGL Version: {}", GL11.glGetString(GL11.GL_VERSION));
@@ -61,6 +80,11 @@ public class InitializationModule implements GameModule {
         // Setup error callback
         GLFWErrorCallback.createPrint(System.err).set();
         
+        // -Drivet.gl.osmesa=true - без оконной системы: пустая платформа GLFW и программный OSMesa
+        if (osmesa) {
+            GLFW.glfwInitHint(GLFW.GLFW_PLATFORM, GLFW.GLFW_PLATFORM_NULL);
+        }
+        
         // Initialize GLFW
         if (!GLFW.glfwInit()) {
             throw new IllegalStateException("Unable to initialize GLFW");
@@ -74,6 +98,9 @@ public class InitializationModule implements GameModule {
         GLFW.glfwWindowHint(GLFW.GLFW_CONTEXT_VERSION_MINOR, 2);
         GLFW.glfwWindowHint(GLFW.GLFW_OPENGL_PROFILE, GLFW.GLFW_OPENGL_CORE_PROFILE);
         GLFW.glfwWindowHint(GLFW.GLFW_OPENGL_FORWARD_COMPAT, GLFW.GLFW_TRUE);
+        if (osmesa) {
+            GLFW.glfwWindowHint(GLFW.GLFW_CONTEXT_CREATION_API, GLFW.GLFW_OSMESA_CONTEXT_API);
+        }
     }
     
     private void createWindow() {
@@ -155,7 +182,8 @@ public class InitializationModule implements GameModule {
     
     @Override
     public void render(float partialTicks) {
-        // Инициализация не требует рендеринга
+        // Без общего контекста загрузки выполняются здесь в пределах бюджета
+        uploader.pump(UPLOAD_BUDGET_NANOS);
     }
     
     @Override
@@ -163,6 +191,14 @@ public class InitializationModule implements GameModule {
         if (basicShader != null) {
             basicShader.cleanup();
         }
+        if (frameArena != null) {
+            frameArena.free();
+            frameArena = null;
+        }
+        if (uploader != null) {
+            uploader.shutdown();
+            uploader = null;
+        }
         
         if (window != 0) {
             GLFW.glfwDestroyWindow(window);
@@ -187,6 +223,9 @@ public class InitializationModule implements GameModule {
     public int getWidth() { return width; }
     public int getHeight() { return height; }
     public Shader getBasicShader() { return basicShader; }
+    public RenderQueue getRenderQueue() { return renderQueue; }
+    public FrameArena getFrameArena() { return frameArena; }
+    public GpuUploader getUploader() { return uploader; }
     
     // Метод для обновления размеров окна
     public void updateWindowSize(int newWidth, int newHeight) {
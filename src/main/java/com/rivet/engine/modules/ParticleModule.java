@@ -0,0 +1,196 @@
+package com.rivet.engine.modules;
+
+import com.rivet.engine.FrameSnapshot;
+import com.rivet.engine.particle.ParticleBatch;
+import com.rivet.engine.particle.ParticleSystem;
+import com.rivet.engine.render.ParticleRenderer;
+import com.rivet.engine.resources.ResourceLocation;
+import com.rivet.engine.resources.TextureResource;
+import com.rivet.engine.world.Blocks;
+import com.rivet.engine.world.ChunkPos;
+import com.rivet.engine.world.Face;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Модуль частиц: осколки разрушенных блоков и пыль поставленных
+ *
+ * Частицы - чисто визуальный эффект: симулируются в потоке OpenGL с шагом
+ * кадра, события изменения блоков приходят через снимок тика.
+ */
+public class ParticleModule implements GameModule {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ParticleModule.class);
+    
+    // Текстурные страницы: атлас блоков terrain.png и облака textures/clouds.png
+    public static final int PAGE_BLOCKS = 0;
+    public static final int PAGE_CLOUDS = 1;
+    private static final int PAGE_COUNT = 2;
+    private static final int BLOCK_PAGE_TILES = 16;
+    public static final ResourceLocation CLOUDS = new ResourceLocation("", "textures/clouds.png");
+    
+    // Емкость системы и одного пакета (пакет - единица параллельной симуляции)
+    private static final int DEFAULT_CAPACITY = 200_000;
+    private static final int BATCH_CAPACITY = 16384;
+    
+    // Шаг симуляции не больше 100 мс (после паузы частицы не разлетаются)
+    private static final float MAX_STEP = 0.1f;
+    
+    private static final int DEBRIS_PER_BLOCK = 32;
+    private static final int DUST_PER_BLOCK = 12;
+    
+    private final InitializationModule initModule;
+    private final ChunkRenderModule chunkRenderModule;
+    private boolean initialized = false;
+    
+    private ParticleSystem system;
+    private ParticleRenderer renderer;
+    // Атлас блоков принадлежит ChunkRenderModule, облака - этому модулю
+    private TextureResource clouds;
+    private ForkJoinPool pool;
+    private ParticleBatch[] blockBatches;
+    private ParticleBatch[] cloudBatches;
+    private int nextBlockBatch = 0;
+    private int nextCloudBatch = 0;
+    private long lastFrameNanos = 0;
+    
+    public ParticleModule(InitializationModule initModule, ChunkRenderModule chunkRenderModule) {
+        this.initModule = initModule;
+        this.chunkRenderModule = chunkRenderModule;
+    }
+    
+    @Override
+    public void initialize() throws Exception {
+        if (initialized) {
+            return;
+        }
+        
+        // -Drivet.particles.capacity=<число> - максимум живых частиц
+        int capacity = Math.max(2, Integer.getInteger("rivet.particles.capacity", DEFAULT_CAPACITY));
+        system = new ParticleSystem(PAGE_COUNT);
+        int cloudCapacity = Math.max(1, capacity / 8);
+        blockBatches = addBatches(PAGE_BLOCKS, capacity - cloudCapacity, 20.0f, 0.5f);
+        cloudBatches = addBatches(PAGE_CLOUDS, cloudCapacity, -0.3f, 2.0f);
+        
+        renderer = new ParticleRenderer(system);
+        renderer.initialize();
+        clouds = new TextureResource(CLOUDS);
+        clouds.load();
+        renderer.setPageTexture(PAGE_BLOCKS, chunkRenderModule.getAtlasTexture(), BLOCK_PAGE_TILES);
+        renderer.setPageTexture(PAGE_CLOUDS, clouds.getTextureId(), 1);
+        
+        // -Drivet.particles.threads=<число> - потоки симуляции пакетов
+        int threads = Math.max(1, Integer.getInteger("rivet.particles.threads",
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2)));
+        AtomicInteger counter = new AtomicInteger();
+        pool = new ForkJoinPool(threads, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("Particles-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+        
+        initialized = true;
+        logger.info("Модуль частиц инициализирован ({} частиц в {} пакетах, {} рабочих потоков)",
+            system.getCapacity(), system.getBatchCount(), threads);
+    }
+    
+    private ParticleBatch[] addBatches(int page, int capacity, float gravity, float drag) {
+        int count = (capacity + BATCH_CAPACITY - 1) / BATCH_CAPACITY;
+        ParticleBatch[] batches = new ParticleBatch[count];
+        for (int i = 0; i < count; i++) {
+            int batchCapacity = Math.min(BATCH_CAPACITY, capacity - i * BATCH_CAPACITY);
+            batches[i] = system.addBatch(page, batchCapacity);
+            batches[i].setForces(gravity, drag);
+        }
+        return batches;
+    }
+    
+    @Override
+    public void update(float deltaTime) {
+        // Частицы симулируются в потоке OpenGL с шагом кадра
+    }
+    
+    @Override
+    public void consume(FrameSnapshot snapshot) {
+        for (int i = snapshot.getFirstNewEvent(); i < snapshot.getEventCount(); i++) {
+            if (snapshot.getEventType(i) != FrameSnapshot.EVENT_BLOCK_CHANGED) {
+                continue;
+            }
+            long key = snapshot.getEventKey(i);
+            int data = snapshot.getEventData(i);
+            int oldId = FrameSnapshot.oldBlockId(data);
+            int newId = FrameSnapshot.newBlockId(data);
+            float x = ChunkPos.sectionX(key) + 0.5f;
+            float y = ChunkPos.sectionY(key) + 0.5f;
+            float z = ChunkPos.sectionZ(key) + 0.5f;
+            if (oldId != Blocks.AIR_ID && newId == Blocks.AIR_ID) {
+                ParticleBatch batch = blockBatches[nextBlockBatch];
+                nextBlockBatch = (nextBlockBatch + 1) % blockBatches.length;
+                batch.burst(x, y, z, DEBRIS_PER_BLOCK, 0.4f, 2.5f, 1.0f, 0.12f,
+                    ParticleBatch.rgba(255, 255, 255, 255), Blocks.tile(oldId, Face.NORTH));
+            } else if (oldId == Blocks.AIR_ID && newId != Blocks.AIR_ID) {
+                ParticleBatch batch = cloudBatches[nextCloudBatch];
+                nextCloudBatch = (nextCloudBatch + 1) % cloudBatches.length;
+                batch.burst(x, y - 0.4f, z, DUST_PER_BLOCK, 0.6f, 0.6f, 1.5f, 0.4f,
+                    ParticleBatch.rgba(200, 200, 200, 160), 0);
+            }
+        }
+    }
+    
+    @Override
+    public void render(float partialTicks) {
+        long now = System.nanoTime();
+        float dt = lastFrameNanos == 0 ? 0.0f : Math.min(MAX_STEP, (now - lastFrameNanos) / 1_000_000_000.0f);
+        lastFrameNanos = now;
+        
+        system.simulate(dt, pool);
+        // Камера уже обновлена ChunkRenderModule в этом кадре
+        renderer.render(chunkRenderModule.getCamera(), pool, initModule.getRenderQueue());
+    }
+    
+    @Override
+    public void cleanup() {
+        if (initialized) {
+            pool.shutdownNow();
+            renderer.cleanup();
+            clouds.unload();
+            logger.info("Очистка модуля частиц: {} живых частиц, симуляция {} мкс, запись {} мкс",
+                system.getAliveCount(), system.getLastSimulateNanos() / 1000, system.getLastWriteNanos() / 1000);
+            renderer = null;
+            clouds = null;
+            system = null;
+            initialized = false;
+        }
+    }
+    
+    @Override
+    public boolean isInitialized() {
+        return initialized;
+    }
+    
+    @Override
+    public String getName() {
+        return "ParticleModule";
+    }
+    
+    /**
+     * Получить систему частиц (поток OpenGL)
+     * @return система частиц
+     */
+    public ParticleSystem getSystem() {
+        return system;
+    }
+    
+    /**
+     * Получить рендерер частиц; текстуры страниц задаются через setPageTexture
+     * @return рендерер
+     */
+    public ParticleRenderer getRenderer() {
+        return renderer;
+    }
+}
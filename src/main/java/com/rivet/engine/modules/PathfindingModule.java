@@ -0,0 +1,89 @@
+package com.rivet.engine.modules;
+
+import com.rivet.engine.path.PathfindingService;
+import com.rivet.engine.world.World;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Модуль поиска пути: сервис запросов пути сущностей с бюджетом узлов на тик
+ */
+public class PathfindingModule implements GameModule {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PathfindingModule.class);
+    
+    // Бюджет раскрываемых узлов на тик и размер кэша путей
+    private static final int NODES_PER_TICK = 16384;
+    private static final int CACHE_CAPACITY = 512;
+    
+    private final WorldModule worldModule;
+    
+    private boolean initialized = false;
+    private World world;
+    private PathfindingService service;
+    
+    public PathfindingModule(WorldModule worldModule) {
+        this.worldModule = worldModule;
+    }
+    
+    @Override
+    public void initialize() throws Exception {
+        if (initialized) {
+            return;
+        }
+        
+        world = worldModule.getWorld();
+        // -Drivet.path.threads=<число> - потоки поиска, -Drivet.path.nodesPerTick=<число> - бюджет узлов
+        int threads = Math.max(1, Integer.getInteger("rivet.path.threads",
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 4)));
+        int nodesPerTick = Integer.getInteger("rivet.path.nodesPerTick", NODES_PER_TICK);
+        service = new PathfindingService(world, threads, nodesPerTick, CACHE_CAPACITY);
+        world.addBlockChangeListener(service);
+        world.addChunkListener(service);
+        
+        initialized = true;
+        logger.info("Модуль поиска пути инициализирован");
+    }
+    
+    @Override
+    public void update(float deltaTime) {
+        service.update();
+    }
+    
+    @Override
+    public void render(float partialTicks) {
+        // Поиск пути не рисуется
+    }
+    
+    @Override
+    public void cleanup() {
+        if (initialized) {
+            service.shutdown();
+            world.removeBlockChangeListener(service);
+            world.removeChunkListener(service);
+            logger.info("Очистка модуля поиска пути: {} запросов, {} из кэша, {} поисков",
+                service.getRequestCount(), service.getCacheHits(), service.getSearchCount());
+            service = null;
+            world = null;
+            initialized = false;
+        }
+    }
+    
+    @Override
+    public boolean isInitialized() {
+        return initialized;
+    }
+    
+    @Override
+    public String getName() {
+        return "PathfindingModule";
+    }
+    
+    /**
+     * Получить сервис поиска пути
+     * @return сервис (запросы из потока симуляции)
+     */
+    public PathfindingService getService() {
+        return service;
+    }
+}
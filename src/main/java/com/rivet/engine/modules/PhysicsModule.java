@@ -0,0 +1,125 @@
+package com.rivet.engine.modules;
+
+import com.rivet.engine.physics.PhysicsSystem;
+import com.rivet.engine.physics.RayBatch;
+import com.rivet.engine.physics.VoxelRaycaster;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Модуль физики: тела сущностей с гравитацией и столкновениями
+ *
+ * Тик симуляции делится на шаги фиксированной длины {@link PhysicsSystem#STEP}, остаток
+ * переносится в следующий тик, так что результат не зависит от частоты тиков.
+ * Трассировка лучей: одиночные лучи - {@link #getRaycaster()} в потоке
+ * симуляции, пакеты лучей - {@link #castRays(RayBatch)} на пуле сущностей.
+ */
+public class PhysicsModule implements GameModule {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PhysicsModule.class);
+    
+    private final EntityModule entityModule;
+    private final WorldModule worldModule;
+    
+    private boolean initialized = false;
+    private PhysicsSystem physics;
+    private VoxelRaycaster raycaster;
+    
+    // Метрики
+    private volatile long stepCount = 0;
+    private volatile long lastUpdateNanos = 0;
+    
+    public PhysicsModule(EntityModule entityModule, WorldModule worldModule) {
+        this.entityModule = entityModule;
+        this.worldModule = worldModule;
+    }
+    
+    @Override
+    public void initialize() throws Exception {
+        if (initialized) {
+            return;
+        }
+        
+        physics = new PhysicsSystem(worldModule.getWorld(), entityModule.getPositions(),
+            entityModule.getVelocities(), entityModule.getBounds(), entityModule.getBodies());
+        raycaster = new VoxelRaycaster(worldModule.getWorld());
+        
+        initialized = true;
+        logger.info("Модуль физики инициализирован (шаг {} мс)", PhysicsSystem.STEP * 1000.0f);
+    }
+    
+    @Override
+    public void update(float deltaTime) {
+        long start = System.nanoTime();
+        stepCount += physics.advance(deltaTime);
+        lastUpdateNanos = System.nanoTime() - start;
+    }
+    
+    @Override
+    public void render(float partialTicks) {
+        // Физика не рисуется
+    }
+    
+    @Override
+    public void cleanup() {
+        if (initialized) {
+            logger.info("Очистка модуля физики: {} шагов, последний тик {} мкс",
+                stepCount, lastUpdateNanos / 1000L);
+            physics = null;
+            raycaster = null;
+            initialized = false;
+        }
+    }
+    
+    @Override
+    public boolean isInitialized() {
+        return initialized;
+    }
+    
+    @Override
+    public String getName() {
+        return "PhysicsModule";
+    }
+    
+    public PhysicsSystem getPhysics() {
+        return physics;
+    }
+    
+    /**
+     * Получить трассировщик лучей потока симуляции
+     * Другим потокам нужен свой экземпляр {@link VoxelRaycaster}.
+     * @return трассировщик
+     */
+    public VoxelRaycaster getRaycaster() {
+        return raycaster;
+    }
+    
+    /**
+     * Протрассировать пакет лучей параллельно (поток симуляции)
+     * @param batch пакет лучей
+     */
+    public void castRays(RayBatch batch) {
+        batch.cast(entityModule.getPool());
+    }
+    
+    /**
+     * Создать пакет лучей по миру модуля
+     * @param capacity начальная емкость в лучах
+     * @return пустой пакет
+     */
+    public RayBatch createRayBatch(int capacity) {
+        return new RayBatch(worldModule.getWorld(), capacity);
+    }
+    
+    public long getStepCount() {
+        return stepCount;
+    }
+    
+    /**
+     * Время последнего обновления
+     * @return время в наносекундах
+     */
+    public long getLastUpdateNanos() {
+        return lastUpdateNanos;
+    }
+}
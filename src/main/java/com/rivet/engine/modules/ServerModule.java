@@ -0,0 +1,610 @@
+package com.rivet.engine.modules;
+
+import com.rivet.engine.net.Connection;
+import com.rivet.engine.net.NetServer;
+import com.rivet.engine.net.PacketReader;
+import com.rivet.engine.net.PacketWriter;
+import com.rivet.engine.net.Protocol;
+import com.rivet.engine.util.LongObjectHashMap;
+import com.rivet.engine.world.BlockChangeListener;
+import com.rivet.engine.world.Blocks;
+import com.rivet.engine.world.Chunk;
+import com.rivet.engine.world.ChunkListener;
+import com.rivet.engine.world.ChunkPos;
+import com.rivet.engine.world.World;
+import com.rivet.engine.world.light.LightChangeListener;
+import com.rivet.engine.world.storage.ChunkCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Модуль многопользовательского сервера
+ *
+ * Сеть обслуживает {@link NetServer}, а весь игровой протокол разбирается
+ * здесь, в потоке симуляции: входящие пакеты применяются к миру как обычные
+ * изменения потока-писателя. За тик каждому клиенту уходят сначала пакет
+ * изменений блоков его чанков, затем новые чанки по возрастанию расстояния.
+ * Чанки придерживаются, пока очередь клиента больше {@link #SOFT_LIMIT};
+ * клиент с очередью больше {@link #HARD_LIMIT} отключается. Каждый игрок -
+ * наблюдатель генерации с номером соединения: чанки строятся и удерживаются
+ * вокруг всех игроков, а не только вокруг точки появления.
+ */
+public class ServerModule implements GameModule, BlockChangeListener, ChunkListener, LightChangeListener {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ServerModule.class);
+    
+    private static final int MAX_VIEW_RADIUS = 16;
+    private static final int MIN_VIEW_RADIUS = 2;
+    
+    // Новых чанков клиенту за тик и пределы его очереди отправки
+    private static final int CHUNKS_PER_TICK = 8;
+    public static final long SOFT_LIMIT = 256 * 1024;
+    public static final long HARD_LIMIT = 8 * 1024 * 1024;
+    
+    // Предел кэша сжатых чанков
+    private static final int ENCODED_CACHE_LIMIT = 1024;
+    
+    // Смещения чанков вокруг игрока по возрастанию расстояния
+    private static final int[] OFFSET_X;
+    private static final int[] OFFSET_Z;
+    private static final int[] OFFSET_DISTANCE;
+    
+    static {
+        int side = MAX_VIEW_RADIUS * 2 + 1;
+        long[] order = new long[side * side];
+        int count = 0;
+        for (int dz = -MAX_VIEW_RADIUS; dz <= MAX_VIEW_RADIUS; dz++) {
+            for (int dx = -MAX_VIEW_RADIUS; dx <= MAX_VIEW_RADIUS; dx++) {
+                int distanceSq = dx * dx + dz * dz;
+                if (distanceSq <= MAX_VIEW_RADIUS * MAX_VIEW_RADIUS) {
+                    order[count++] = (long) distanceSq << 32 | (dz + MAX_VIEW_RADIUS) * side + dx + MAX_VIEW_RADIUS;
+                }
+            }
+        }
+        Arrays.sort(order, 0, count);
+        OFFSET_X = new int[count];
+        OFFSET_Z = new int[count];
+        OFFSET_DISTANCE = new int[count];
+        for (int i = 0; i < count; i++) {
+            int cell = (int) order[i];
+            OFFSET_X[i] = cell % side - MAX_VIEW_RADIUS;
+            OFFSET_Z[i] = cell / side - MAX_VIEW_RADIUS;
+            OFFSET_DISTANCE[i] = (int) (order[i] >>> 32);
+        }
+    }
+    
+    /**
+     * Состояние подключенного игрока
+     */
+    private static final class Session {
+        final Connection connection;
+        final String name;
+        final int radius;
+        float x, y, z;
+        int chunkX, chunkZ;
+        // Отправленные чанки: ключ -> экземпляр, который видел клиент
+        final LongObjectHashMap<Chunk> sent = new LongObjectHashMap<>(256);
+        // Все чанки в радиусе отправлены
+        boolean complete = false;
+        
+        Session(Connection connection, String name, int radius) {
+            this.connection = connection;
+            this.name = name;
+            this.radius = radius;
+        }
+    }
+    
+    /**
+     * Изменения блоков одного чанка за тик
+     */
+    private static final class DeltaBatch {
+        final long key;
+        int[] indices = new int[8];
+        int[] ids = new int[8];
+        int count = 0;
+        // Закодированный фрагмент пакета BLOCK_DELTAS
+        byte[] segment;
+        
+        DeltaBatch(long key) {
+            this.key = key;
+        }
+        
+        void add(int index, int id) {
+            if (count == indices.length) {
+                indices = Arrays.copyOf(indices, count * 2);
+                ids = Arrays.copyOf(ids, count * 2);
+            }
+            indices[count] = index;
+            ids[count] = id;
+            count++;
+        }
+    }
+    
+    private final WorldModule worldModule;
+    
+    private boolean initialized = false;
+    private World world;
+    private NetServer server;
+    private int viewRadius;
+    private int maxPlayers;
+    private float spawnX, spawnY, spawnZ;
+    
+    private final Map<Connection, Session> sessions = new HashMap<>();
+    private final List<Session> sessionList = new ArrayList<>();
+    private final PacketWriter writer = new PacketWriter(4096);
+    private final PacketWriter segmentWriter = new PacketWriter(256);
+    private final PacketReader reader = new PacketReader();
+    private final ChunkCodec codec = new ChunkCodec();
+    
+    // Кадры CHUNK, общие для всех клиентов до изменения чанка
+    private final LongObjectHashMap<ByteBuffer> encoded = new LongObjectHashMap<>(256);
+    private final LongObjectHashMap<DeltaBatch> deltaIndex = new LongObjectHashMap<>(64);
+    private final List<DeltaBatch> deltas = new ArrayList<>();
+    
+    // Метрики
+    private volatile long chunksSent = 0;
+    private volatile long chunksEncoded = 0;
+    private volatile long blockDeltasSent = 0;
+    private volatile long bytesQueued = 0;
+    private volatile long kickedCount = 0;
+    private volatile long lastUpdateNanos = 0;
+    
+    public ServerModule(WorldModule worldModule) {
+        this.worldModule = worldModule;
+    }
+    
+    @Override
+    public void initialize() throws Exception {
+        if (initialized) {
+            return;
+        }
+        
+        world = worldModule.getWorld();
+        // -Drivet.server.port=<порт>, -Drivet.server.viewDistance=<чанки>, -Drivet.server.maxPlayers=<число>
+        int port = Integer.getInteger("rivet.server.port", Protocol.DEFAULT_PORT);
+        viewRadius = Math.max(MIN_VIEW_RADIUS, Math.min(MAX_VIEW_RADIUS,
+            Math.min(worldModule.getGenerationRadius(), Integer.getInteger("rivet.server.viewDistance", 8))));
+        maxPlayers = Integer.getInteger("rivet.server.maxPlayers", 256);
+        
+        spawnX = 8.5f;
+        spawnY = worldModule.getGenerator().getSurfaceHeight(8, 8) + 2;
+        spawnZ = 8.5f;
+        
+        world.addBlockChangeListener(this);
+        world.addChunkListener(this);
+        worldModule.getLightEngine().addLightChangeListener(this);
+        
+        server = new NetServer(Protocol.MAX_CLIENT_FRAME);
+        server.start(new InetSocketAddress(port));
+        
+        initialized = true;
+        logger.info("Модуль сервера инициализирован: порт {}, обзор {} чанков, до {} игроков",
+            server.getPort(), viewRadius, maxPlayers);
+    }
+    
+    @Override
+    public void update(float deltaTime) {
+        long start = System.nanoTime();
+        
+        NetServer.Message message;
+        while ((message = server.poll()) != null) {
+            handle(message);
+        }
+        
+        flushDeltas();
+        for (int i = sessionList.size() - 1; i >= 0; i--) {
+            Session session = sessionList.get(i);
+            if (session.connection.getQueuedBytes() > HARD_LIMIT) {
+                // Очередь не разбирается: отправить причину уже некуда
+                logger.warn("Игрок {} отключен: очередь {} KB", session.name,
+                    session.connection.getQueuedBytes() / 1024);
+                session.connection.close();
+                removeSession(session);
+                kickedCount++;
+                continue;
+            }
+            streamChunks(session);
+        }
+        
+        lastUpdateNanos = System.nanoTime() - start;
+    }
+    
+    private void handle(NetServer.Message message) {
+        Connection connection = message.connection;
+        Session session = sessions.get(connection);
+        if (message.payload == null) {
+            if (session != null) {
+                logger.info("Игрок {} отключился", session.name);
+                removeSession(session);
+            }
+            return;
+        }
+        if (connection.isClosing()) {
+            return;
+        }
+        
+        try {
+            reader.reset(message.payload, 0, message.payload.length);
+            int type = reader.readByte();
+            if (session == null) {
+                if (type != Protocol.HELLO) {
+                    throw new IOException("Expected HELLO, got " + type);
+                }
+                hello(connection);
+                return;
+            }
+            switch (type) {
+                case Protocol.MOVE -> move(session);
+                case Protocol.SET_BLOCK -> setBlock(session);
+                default -> throw new IOException("Unexpected packet " + type);
+            }
+        } catch (IOException e) {
+            logger.debug("Некорректный пакет от {}: {}", connection.getAddress(), e.getMessage());
+            kick(connection, "Bad packet");
+        }
+    }
+    
+    private void hello(Connection connection) throws IOException {
+        int version = reader.readVarInt();
+        String name = reader.readString(32);
+        int requestedRadius = reader.readVarInt();
+        if (version != Protocol.VERSION) {
+            kick(connection, "Protocol version " + Protocol.VERSION + " required");
+            return;
+        }
+        if (sessionList.size() >= maxPlayers) {
+            kick(connection, "Server is full");
+            return;
+        }
+        
+        int radius = Math.max(MIN_VIEW_RADIUS, Math.min(viewRadius, requestedRadius));
+        Session session = new Session(connection, name, radius);
+        session.x = spawnX;
+        session.y = spawnY;
+        session.z = spawnZ;
+        session.chunkX = (int) Math.floor(spawnX) >> 4;
+        session.chunkZ = (int) Math.floor(spawnZ) >> 4;
+        sessions.put(connection, session);
+        sessionList.add(session);
+        worldModule.setViewer(connection.getId(), spawnX, spawnZ, 0.0f, -1.0f);
+        
+        writer.begin(Protocol.WELCOME);
+        writer.writeVarInt(connection.getId());
+        writer.writeFloat(spawnX);
+        writer.writeFloat(spawnY);
+        writer.writeFloat(spawnZ);
+        writer.writeVarInt(radius);
+        send(session, writer.toFrame());
+        logger.info("Игрок {} подключился с {} (обзор {} чанков)", name, connection.getAddress(), radius);
+    }
+    
+    private void move(Session session) throws IOException {
+        float x = reader.readFloat();
+        float y = reader.readFloat();
+        float z = reader.readFloat();
+        float yaw = reader.readFloat();
+        reader.readFloat();
+        if (!Float.isFinite(x) || !Float.isFinite(y) || !Float.isFinite(z) || !Float.isFinite(yaw)) {
+            throw new IOException("Non-finite position");
+        }
+        session.x = x;
+        session.y = y;
+        session.z = z;
+        double radians = Math.toRadians(yaw);
+        worldModule.setViewer(session.connection.getId(), x, z, (float) Math.sin(radians), (float) -Math.cos(radians));
+        
+        int chunkX = (int) Math.floor(x) >> 4;
+        int chunkZ = (int) Math.floor(z) >> 4;
+        if (chunkX != session.chunkX || chunkZ != session.chunkZ) {
+            session.chunkX = chunkX;
+            session.chunkZ = chunkZ;
+            session.complete = false;
+            unloadOutOfRange(session);
+        }
+    }
+    
+    private void setBlock(Session session) throws IOException {
+        int x = reader.readSignedVarInt();
+        int y = reader.readSignedVarInt();
+        int z = reader.readSignedVarInt();
+        int id = reader.readVarInt();
+        if (id < 0 || id >= Blocks.count()) {
+            throw new IOException("Unknown block " + id);
+        }
+        // Менять можно только блоки чанков, которые клиент уже получил
+        if (session.sent.containsKey(ChunkPos.pack(x >> 4, z >> 4))) {
+            world.setBlock(x, y, z, id);
+        }
+    }
+    
+    /**
+     * Выгрузить у клиента чанки за пределами радиуса обзора (с запасом в один чанк)
+     */
+    private void unloadOutOfRange(Session session) {
+        int limit = session.radius + 1;
+        long[] keys = new long[session.sent.size()];
+        int[] count = new int[1];
+        session.sent.forEach((key, chunk) -> {
+            int dx = ChunkPos.unpackX(key) - session.chunkX;
+            int dz = ChunkPos.unpackZ(key) - session.chunkZ;
+            if (dx * dx + dz * dz > limit * limit) {
+                keys[count[0]++] = key;
+            }
+        });
+        for (int i = 0; i < count[0]; i++) {
+            session.sent.remove(keys[i]);
+            sendUnload(session, keys[i]);
+        }
+    }
+    
+    /**
+     * Отправить изменения блоков тика клиентам, у которых есть эти чанки
+     */
+    private void flushDeltas() {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        
+        for (int i = 0; i < deltas.size(); i++) {
+            DeltaBatch batch = deltas.get(i);
+            segmentWriter.reset();
+            segmentWriter.writeSignedVarInt(ChunkPos.unpackX(batch.key));
+            segmentWriter.writeSignedVarInt(ChunkPos.unpackZ(batch.key));
+            segmentWriter.writeVarInt(batch.count);
+            for (int j = 0; j < batch.count; j++) {
+                segmentWriter.writeVarInt(batch.indices[j]);
+                segmentWriter.writeVarInt(batch.ids[j]);
+            }
+            batch.segment = segmentWriter.toByteArray();
+        }
+        
+        for (int s = 0; s < sessionList.size(); s++) {
+            Session session = sessionList.get(s);
+            int chunks = 0;
+            for (int i = 0; i < deltas.size(); i++) {
+                if (session.sent.containsKey(deltas.get(i).key)) {
+                    chunks++;
+                }
+            }
+            if (chunks == 0) {
+                continue;
+            }
+            
+            writer.begin(Protocol.BLOCK_DELTAS);
+            writer.writeVarInt(chunks);
+            int blocks = 0;
+            for (int i = 0; i < deltas.size(); i++) {
+                DeltaBatch batch = deltas.get(i);
+                if (session.sent.containsKey(batch.key)) {
+                    writer.writeBytes(batch.segment, 0, batch.segment.length);
+                    blocks += batch.count;
+                }
+            }
+            send(session, writer.toFrame());
+            blockDeltasSent += blocks;
+        }
+        
+        deltas.clear();
+        deltaIndex.clear();
+    }
+    
+    /**
+     * Отправить клиенту ближайшие загруженные чанки, которых у него нет
+     */
+    private void streamChunks(Session session) {
+        if (session.complete) {
+            return;
+        }
+        int budget = CHUNKS_PER_TICK;
+        boolean missing = false;
+        int radiusSq = session.radius * session.radius;
+        for (int i = 0; i < OFFSET_X.length && OFFSET_DISTANCE[i] <= radiusSq; i++) {
+            int chunkX = session.chunkX + OFFSET_X[i];
+            int chunkZ = session.chunkZ + OFFSET_Z[i];
+            Chunk chunk = world.getChunk(chunkX, chunkZ);
+            if (chunk == null || !chunk.isLightInitialized()) {
+                missing = true;
+                continue;
+            }
+            long key = chunk.getKey();
+            if (session.sent.get(key) == chunk) {
+                continue;
+            }
+            if (budget == 0 || session.connection.getQueuedBytes() > SOFT_LIMIT) {
+                missing = true;
+                break;
+            }
+            send(session, encode(key, chunk).duplicate());
+            session.sent.put(key, chunk);
+            chunksSent++;
+            budget--;
+        }
+        session.complete = !missing;
+    }
+    
+    private ByteBuffer encode(long key, Chunk chunk) {
+        ByteBuffer frame = encoded.get(key);
+        if (frame != null) {
+            return frame;
+        }
+        int size = codec.encode(chunk);
+        writer.begin(Protocol.CHUNK);
+        writer.writeSignedVarInt(chunk.getChunkX());
+        writer.writeSignedVarInt(chunk.getChunkZ());
+        writer.writeVarInt(size);
+        writer.writeBytes(codec.getCompressed(), 0, size);
+        frame = writer.toFrame();
+        if (encoded.size() >= ENCODED_CACHE_LIMIT) {
+            encoded.clear();
+        }
+        encoded.put(key, frame);
+        chunksEncoded++;
+        return frame;
+    }
+    
+    private void sendUnload(Session session, long key) {
+        writer.begin(Protocol.UNLOAD);
+        writer.writeSignedVarInt(ChunkPos.unpackX(key));
+        writer.writeSignedVarInt(ChunkPos.unpackZ(key));
+        send(session, writer.toFrame());
+    }
+    
+    private void send(Session session, ByteBuffer frame) {
+        int size = frame.remaining();
+        if (session.connection.send(frame)) {
+            bytesQueued += size;
+        }
+    }
+    
+    private void kick(Connection connection, String reason) {
+        writer.begin(Protocol.DISCONNECT);
+        writer.writeString(reason);
+        connection.send(writer.toFrame());
+        connection.closeAfterFlush();
+        Session session = sessions.get(connection);
+        if (session != null) {
+            removeSession(session);
+        }
+        kickedCount++;
+    }
+    
+    private void removeSession(Session session) {
+        sessions.remove(session.connection);
+        sessionList.remove(session);
+        worldModule.removeViewer(session.connection.getId());
+    }
+    
+    @Override
+    public void onBlockChanged(int x, int y, int z, int oldId, int newId) {
+        long key = ChunkPos.pack(x >> 4, z >> 4);
+        encoded.remove(key);
+        if (sessionList.isEmpty()) {
+            return;
+        }
+        DeltaBatch batch = deltaIndex.get(key);
+        if (batch == null) {
+            batch = new DeltaBatch(key);
+            deltaIndex.put(key, batch);
+            deltas.add(batch);
+        }
+        batch.add(Protocol.blockIndex(x & 15, y, z & 15), newId);
+    }
+    
+    @Override
+    public void onChunkLoaded(Chunk chunk) {
+        encoded.remove(chunk.getKey());
+        for (int i = 0; i < sessionList.size(); i++) {
+            sessionList.get(i).complete = false;
+        }
+    }
+    
+    @Override
+    public void onChunkUnloaded(Chunk chunk) {
+        long key = chunk.getKey();
+        encoded.remove(key);
+        for (int i = 0; i < sessionList.size(); i++) {
+            Session session = sessionList.get(i);
+            if (session.sent.get(key) == chunk) {
+                session.sent.remove(key);
+                sendUnload(session, key);
+            }
+        }
+    }
+    
+    @Override
+    public void onLightChanged(int sectionX, int sectionY, int sectionZ) {
+        // Клиенты, уже получившие чанк, пересчитывают свет сами; новым уходит актуальный
+        encoded.remove(ChunkPos.pack(sectionX, sectionZ));
+    }
+    
+    @Override
+    public void render(float partialTicks) {
+        // Сервер не рисует
+    }
+    
+    @Override
+    public void cleanup() {
+        if (initialized) {
+            for (int i = 0; i < sessionList.size(); i++) {
+                Connection connection = sessionList.get(i).connection;
+                writer.begin(Protocol.DISCONNECT);
+                writer.writeString("Server closed");
+                connection.send(writer.toFrame());
+                connection.closeAfterFlush();
+                worldModule.removeViewer(connection.getId());
+            }
+            server.shutdown();
+            world.removeBlockChangeListener(this);
+            world.removeChunkListener(this);
+            if (worldModule.getLightEngine() != null) {
+                worldModule.getLightEngine().removeLightChangeListener(this);
+            }
+            codec.close();
+            logger.info("Очистка модуля сервера: {} чанков отправлено ({} сжато), {} изменений блоков, {} KB",
+                chunksSent, chunksEncoded, blockDeltasSent, bytesQueued / 1024);
+            sessions.clear();
+            sessionList.clear();
+            encoded.clear();
+            initialized = false;
+        }
+    }
+    
+    @Override
+    public boolean isInitialized() {
+        return initialized;
+    }
+    
+    @Override
+    public String getName() {
+        return "ServerModule";
+    }
+    
+    /**
+     * Порт, на котором слушает сервер
+     * @return номер порта
+     */
+    public int getPort() {
+        return server.getPort();
+    }
+    
+    public int getPlayerCount() {
+        return sessionList.size();
+    }
+    
+    public long getChunksSent() {
+        return chunksSent;
+    }
+    
+    public long getChunksEncoded() {
+        return chunksEncoded;
+    }
+    
+    public long getBlockDeltasSent() {
+        return blockDeltasSent;
+    }
+    
+    /**
+     * Объем кадров, поставленных в очереди клиентов
+     * @return размер в байтах
+     */
+    public long getBytesQueued() {
+        return bytesQueued;
+    }
+    
+    public long getKickedCount() {
+        return kickedCount;
+    }
+    
+    public long getLastUpdateNanos() {
+        return lastUpdateNanos;
+    }
+}
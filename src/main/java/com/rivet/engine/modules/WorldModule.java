@@ -0,0 +1,220 @@
+package com.rivet.engine.modules;
+
+import com.rivet.engine.world.Blocks;
+import com.rivet.engine.world.World;
+import com.rivet.engine.world.gen.ChunkGenerationScheduler;
+import com.rivet.engine.world.gen.TerrainGenerator;
+import com.rivet.engine.world.light.LightEngine;
+import com.rivet.engine.world.storage.WorldStorage;
+import com.rivet.engine.world.tick.BlockTicks;
+import com.rivet.engine.world.tick.GrassTickHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Модуль воксельного мира для движка Rivet
+ */
+public class WorldModule implements GameModule {
+    
+    private static final Logger logger = LoggerFactory.getLogger(WorldModule.class);
+    
+    // Радиус генерации и радиус готовности к игре в чанках
+    private static final int GENERATION_RADIUS = 16;
+    private static final int PLAYABLE_RADIUS = 4;
+    
+    // Максимум чанков, добавляемых в мир за одно обновление
+    private static final int CHUNKS_PER_UPDATE = 32;
+    
+    // Случайных тиков на секцию с тикающими блоками за тик
+    private static final int RANDOM_TICK_SPEED = 3;
+    
+    private boolean initialized = false;
+    private int generationRadius = GENERATION_RADIUS;
+    private World world;
+    private TerrainGenerator generator;
+    private ChunkGenerationScheduler scheduler;
+    private LightEngine lightEngine;
+    private BlockTicks blockTicks;
+    private WorldStorage storage;
+    
+    @Override
+    public void initialize() throws Exception {
+        if (initialized) {
+            return;
+        }
+        
+        world = new World();
+        
+        // -Drivet.seed=<число> - зерно мира
+        long seed = Long.getLong("rivet.seed", 20240601L);
+        generator = new TerrainGenerator(seed);
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        // -Drivet.renderDistance=<чанки> - радиус генерации и прорисовки
+        generationRadius = Math.max(PLAYABLE_RADIUS, Integer.getInteger("rivet.renderDistance", GENERATION_RADIUS));
+        scheduler = new ChunkGenerationScheduler(world, generator, threads, threads * 2,
+            generationRadius, PLAYABLE_RADIUS);
+        logger.info("Зерно мира: {}, радиус генерации: {} чанков", seed, generationRadius);
+        
+        lightEngine = new LightEngine(world, threads);
+        world.addBlockChangeListener(lightEngine);
+        world.addChunkListener(lightEngine);
+        
+        // -Drivet.randomTickSpeed=<число> - случайных тиков на секцию (0 - без случайных тиков)
+        int randomTickSpeed = Math.max(0, Integer.getInteger("rivet.randomTickSpeed", RANDOM_TICK_SPEED));
+        blockTicks = new BlockTicks(world, seed, Runtime.getRuntime().availableProcessors(), randomTickSpeed);
+        blockTicks.register(Blocks.GRASS_ID, new GrassTickHandler());
+        world.addBlockChangeListener(blockTicks);
+        world.addChunkListener(blockTicks);
+        
+        // -Drivet.save=false - без сохранения мира
+        // -Drivet.worldDir=<каталог> - каталог регионов, -Drivet.save.interval=<секунды> - автосохранение
+        if (!"false".equals(System.getProperty("rivet.save"))) {
+            Path directory = Paths.get(System.getProperty("rivet.worldDir", "saves/world-" + seed));
+            float interval = Float.parseFloat(System.getProperty("rivet.save.interval", "5"));
+            storage = new WorldStorage(world, directory, interval);
+            world.addBlockChangeListener(storage);
+            world.addChunkListener(storage);
+            scheduler.setStorage(storage);
+        }
+        
+        initialized = true;
+        logger.info("Модуль мира инициализирован");
+    }
+    
+    @Override
+    public void update(float deltaTime) {
+        scheduler.update(CHUNKS_PER_UPDATE);
+        // Тики блоков до запуска пакета освещения: их изменения попадают в тот же пакет
+        blockTicks.update();
+        lightEngine.update();
+        if (storage != null) {
+            storage.update();
+        }
+    }
+    
+    @Override
+    public void render(float partialTicks) {
+        // Мир пока не требует рендеринга
+    }
+    
+    @Override
+    public void cleanup() {
+        if (initialized && world != null) {
+            scheduler.shutdown();
+            lightEngine.shutdown();
+            if (storage != null) {
+                storage.shutdown();
+                world.removeBlockChangeListener(storage);
+                world.removeChunkListener(storage);
+                storage = null;
+            }
+            world.removeBlockChangeListener(lightEngine);
+            world.removeChunkListener(lightEngine);
+            blockTicks.shutdown();
+            world.removeBlockChangeListener(blockTicks);
+            world.removeChunkListener(blockTicks);
+            logger.info("Генерация: {} чанков, в среднем {} мкс на чанк",
+                scheduler.getGeneratedCount(), scheduler.getAverageGenerationNanos() / 1000L);
+            logger.info("Выгрузка мира: {} чанков, ~{} KB", 
+                world.getLoadedChunkCount(), world.getMemoryUsage() / 1024);
+            world = null;
+            scheduler = null;
+            lightEngine = null;
+            blockTicks = null;
+            initialized = false;
+        }
+    }
+    
+    @Override
+    public boolean isInitialized() {
+        return initialized;
+    }
+    
+    @Override
+    public String getName() {
+        return "WorldModule";
+    }
+    
+    /**
+     * Получить мир
+     * @return World
+     */
+    public World getWorld() {
+        if (!initialized) {
+            throw new IllegalStateException("WorldModule not initialized");
+        }
+        return world;
+    }
+    
+    /**
+     * Задать положение и направление взгляда наблюдателя для генерации чанков
+     * @param x мировая координата X
+     * @param z мировая координата Z
+     * @param dirX X направления взгляда
+     * @param dirZ Z направления взгляда
+     */
+    public void setViewer(float x, float z, float dirX, float dirZ) {
+        scheduler.setViewer(x, z, dirX, dirZ);
+    }
+    
+    /**
+     * Добавить наблюдателя (игрока сервера) или изменить его положение
+     * @param id номер наблюдателя, не {@link ChunkGenerationScheduler#PRIMARY_VIEWER}
+     * @param x мировая координата X
+     * @param z мировая координата Z
+     * @param dirX X направления взгляда
+     * @param dirZ Z направления взгляда
+     */
+    public void setViewer(int id, float x, float z, float dirX, float dirZ) {
+        scheduler.setViewer(id, x, z, dirX, dirZ);
+    }
+    
+    /**
+     * Удалить наблюдателя; его чанки выгружаются, если рядом нет других
+     * @param id номер наблюдателя
+     */
+    public void removeViewer(int id) {
+        if (scheduler != null) {
+            scheduler.removeViewer(id);
+        }
+    }
+    
+    /**
+     * Получить радиус генерации чанков вокруг наблюдателя
+     * @return радиус в чанках
+     */
+    public int getGenerationRadius() {
+        return generationRadius;
+    }
+    
+    public TerrainGenerator getGenerator() {
+        return generator;
+    }
+    
+    public ChunkGenerationScheduler getScheduler() {
+        return scheduler;
+    }
+    
+    public LightEngine getLightEngine() {
+        return lightEngine;
+    }
+    
+    /**
+     * Получить систему тиков блоков
+     * @return запланированные и случайные тики
+     */
+    public BlockTicks getBlockTicks() {
+        return blockTicks;
+    }
+    
+    /**
+     * Получить хранилище сохраненных чанков
+     * @return хранилище или null если сохранение отключено
+     */
+    public WorldStorage getStorage() {
+        return storage;
+    }
+}
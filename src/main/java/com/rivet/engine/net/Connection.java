@@ -0,0 +1,161 @@
+package com.rivet.engine.net;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Соединение клиента с {@link NetServer}
+ *
+ * Исходящие кадры копятся в собственной очереди клиента и пишутся в сокет
+ * потоком сервера, так что медленный клиент не задерживает остальных.
+ * Объем очереди ({@link #getQueuedBytes()}) служит сигналом обратного давления:
+ * отправитель решает, какие пакеты придержать.
+ */
+public final class Connection {
+    
+    // Кадров за одну запись в сокет
+    private static final int GATHER = 32;
+    
+    private final NetServer server;
+    private final int id;
+    private final SocketChannel channel;
+    private final SocketAddress address;
+    final ByteBuffer inbound;
+    SelectionKey key;
+    
+    private final ConcurrentLinkedQueue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();
+    private final AtomicLong queuedBytes = new AtomicLong();
+    final AtomicBoolean writeScheduled = new AtomicBoolean();
+    private volatile boolean closing = false;
+    private volatile boolean closed = false;
+    
+    // Метрики (пишет поток сервера)
+    private volatile long bytesSent = 0;
+    private volatile long bytesReceived = 0;
+    
+    Connection(NetServer server, int id, SocketChannel channel, int inboundCapacity) throws IOException {
+        this.server = server;
+        this.id = id;
+        this.channel = channel;
+        this.address = channel.getRemoteAddress();
+        this.inbound = ByteBuffer.allocate(inboundCapacity);
+    }
+    
+    /**
+     * Поставить кадр в очередь отправки (любой поток)
+     * @param frame кадр от {@link PacketWriter#toFrame()}; после вызова не изменяется
+     * @return false если соединение закрыто или закрывается
+     */
+    public boolean send(ByteBuffer frame) {
+        if (closing || closed) {
+            return false;
+        }
+        queuedBytes.addAndGet(frame.remaining());
+        outbound.add(frame);
+        if (writeScheduled.compareAndSet(false, true)) {
+            server.scheduleWrite(this);
+        }
+        return true;
+    }
+    
+    /**
+     * Закрыть соединение после отправки уже поставленных кадров
+     */
+    public void closeAfterFlush() {
+        closing = true;
+        if (writeScheduled.compareAndSet(false, true)) {
+            server.scheduleWrite(this);
+        }
+    }
+    
+    /**
+     * Закрыть соединение, не дожидаясь отправки
+     */
+    public void close() {
+        closing = true;
+        server.scheduleClose(this);
+    }
+    
+    /**
+     * Записать очередь в сокет (поток сервера)
+     * @return true если очередь опустела
+     * @throws IOException при ошибке сокета
+     */
+    boolean flush(ByteBuffer[] gather) throws IOException {
+        while (true) {
+            int count = 0;
+            Iterator<ByteBuffer> iterator = outbound.iterator();
+            while (count < GATHER && count < gather.length && iterator.hasNext()) {
+                gather[count++] = iterator.next();
+            }
+            if (count == 0) {
+                return true;
+            }
+            long written = channel.write(gather, 0, count);
+            bytesSent += written;
+            queuedBytes.addAndGet(-written);
+            for (int i = 0; i < count; i++) {
+                if (gather[i].hasRemaining()) {
+                    Arrays.fill(gather, 0, count, null);
+                    return false;
+                }
+                outbound.poll();
+            }
+            Arrays.fill(gather, 0, count, null);
+        }
+    }
+    
+    void addBytesReceived(int bytes) {
+        bytesReceived += bytes;
+    }
+    
+    void markClosed() {
+        closed = true;
+        outbound.clear();
+        queuedBytes.set(0);
+    }
+    
+    SocketChannel getChannel() {
+        return channel;
+    }
+    
+    public int getId() {
+        return id;
+    }
+    
+    public SocketAddress getAddress() {
+        return address;
+    }
+    
+    /**
+     * Объем кадров, ожидающих отправки
+     * @return размер в байтах
+     */
+    public long getQueuedBytes() {
+        return queuedBytes.get();
+    }
+    
+    public boolean isClosing() {
+        return closing;
+    }
+    
+    public boolean isClosed() {
+        return closed;
+    }
+    
+    public long getBytesSent() {
+        return bytesSent;
+    }
+    
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+}
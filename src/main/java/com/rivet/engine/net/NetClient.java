@@ -0,0 +1,261 @@
+package com.rivet.engine.net;
+
+import com.rivet.engine.world.Chunk;
+import com.rivet.engine.world.World;
+import com.rivet.engine.world.storage.ChunkCodec;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+
+/**
+ * Клиент протокола Rivet, зеркалирующий чанки сервера в собственный {@link World}
+ *
+ * Работает на неблокирующем сокете без своих потоков: {@link #update()}
+ * вызывается из цикла владельца, поэтому один поток может вести много
+ * клиентов (нагрузочные боты). Экземпляр не потокобезопасен.
+ */
+public final class NetClient {
+    
+    private final World world = new World();
+    private final ChunkCodec codec = new ChunkCodec();
+    private final PacketWriter writer = new PacketWriter(64);
+    private final PacketReader reader = new PacketReader();
+    private final ByteBuffer inbound = ByteBuffer.allocate(Protocol.MAX_SERVER_FRAME + 5);
+    private final ArrayDeque<ByteBuffer> outbound = new ArrayDeque<>();
+    
+    private SocketChannel channel;
+    private boolean connected = false;
+    
+    // Состояние, присланное сервером
+    private int clientId = -1;
+    private float spawnX, spawnY, spawnZ;
+    private int viewRadius;
+    private String disconnectReason;
+    
+    // Метрики
+    private long bytesReceived = 0;
+    private long chunkCount = 0;
+    private long unloadCount = 0;
+    private long deltaCount = 0;
+    private long deltaPacketCount = 0;
+    
+    /**
+     * Подключиться и отправить HELLO
+     * @param address адрес сервера
+     * @param name имя игрока
+     * @param viewRadius запрошенный радиус обзора в чанках
+     * @throws IOException если соединение не установлено
+     */
+    public void connect(InetSocketAddress address, String name, int viewRadius) throws IOException {
+        channel = SocketChannel.open(address);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        channel.configureBlocking(false);
+        connected = true;
+        
+        writer.begin(Protocol.HELLO);
+        writer.writeVarInt(Protocol.VERSION);
+        writer.writeString(name);
+        writer.writeVarInt(viewRadius);
+        outbound.add(writer.toFrame());
+        flush();
+    }
+    
+    /**
+     * Сообщить серверу положение игрока
+     */
+    public void move(float x, float y, float z, float yaw, float pitch) {
+        writer.begin(Protocol.MOVE);
+        writer.writeFloat(x);
+        writer.writeFloat(y);
+        writer.writeFloat(z);
+        writer.writeFloat(yaw);
+        writer.writeFloat(pitch);
+        outbound.add(writer.toFrame());
+    }
+    
+    /**
+     * Запросить изменение блока
+     */
+    public void setBlock(int x, int y, int z, int id) {
+        writer.begin(Protocol.SET_BLOCK);
+        writer.writeSignedVarInt(x);
+        writer.writeSignedVarInt(y);
+        writer.writeSignedVarInt(z);
+        writer.writeVarInt(id);
+        outbound.add(writer.toFrame());
+    }
+    
+    /**
+     * Отправить накопленные пакеты и применить все пришедшие
+     * @return количество обработанных пакетов
+     * @throws IOException при ошибке сокета или некорректном пакете
+     */
+    public int update() throws IOException {
+        if (!connected) {
+            return 0;
+        }
+        flush();
+        int read = channel.read(inbound);
+        if (read < 0) {
+            close();
+            return 0;
+        }
+        bytesReceived += read;
+        
+        int packets = 0;
+        inbound.flip();
+        byte[] payload;
+        while ((payload = Protocol.readFrame(inbound, Protocol.MAX_SERVER_FRAME)) != null) {
+            handle(payload);
+            packets++;
+        }
+        inbound.compact();
+        return packets;
+    }
+    
+    private void flush() throws IOException {
+        ByteBuffer frame;
+        while ((frame = outbound.peek()) != null) {
+            channel.write(frame);
+            if (frame.hasRemaining()) {
+                return;
+            }
+            outbound.poll();
+        }
+    }
+    
+    private void handle(byte[] payload) throws IOException {
+        reader.reset(payload, 0, payload.length);
+        int type = reader.readByte();
+        switch (type) {
+            case Protocol.WELCOME -> {
+                clientId = reader.readVarInt();
+                spawnX = reader.readFloat();
+                spawnY = reader.readFloat();
+                spawnZ = reader.readFloat();
+                viewRadius = reader.readVarInt();
+            }
+            case Protocol.CHUNK -> {
+                reader.readSignedVarInt();
+                reader.readSignedVarInt();
+                int size = reader.readVarInt();
+                int offset = reader.skip(size);
+                world.putChunk(codec.decode(payload, offset, size));
+                chunkCount++;
+            }
+            case Protocol.UNLOAD -> {
+                int chunkX = reader.readSignedVarInt();
+                int chunkZ = reader.readSignedVarInt();
+                world.unloadChunk(chunkX, chunkZ);
+                unloadCount++;
+            }
+            case Protocol.BLOCK_DELTAS -> {
+                deltaPacketCount++;
+                int chunks = reader.readVarInt();
+                for (int i = 0; i < chunks; i++) {
+                    int chunkX = reader.readSignedVarInt();
+                    int chunkZ = reader.readSignedVarInt();
+                    int count = reader.readVarInt();
+                    Chunk chunk = world.getChunk(chunkX, chunkZ);
+                    for (int j = 0; j < count; j++) {
+                        int index = reader.readVarInt();
+                        int id = reader.readVarInt();
+                        if (chunk != null) {
+                            chunk.setBlock(index & 15, index >>> 8, (index >>> 4) & 15, id);
+                        }
+                    }
+                    deltaCount += count;
+                }
+            }
+            case Protocol.DISCONNECT -> {
+                disconnectReason = reader.readString(256);
+                close();
+            }
+            default -> throw new IOException("Unknown packet type " + type);
+        }
+    }
+    
+    /**
+     * Закрыть соединение
+     */
+    public void close() {
+        if (!connected) {
+            return;
+        }
+        connected = false;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Сокет уже закрыт сервером
+        }
+        codec.close();
+    }
+    
+    public boolean isConnected() {
+        return connected;
+    }
+    
+    /**
+     * Мир с чанками, полученными от сервера
+     * @return зеркало мира
+     */
+    public World getWorld() {
+        return world;
+    }
+    
+    public int getClientId() {
+        return clientId;
+    }
+    
+    public float getSpawnX() {
+        return spawnX;
+    }
+    
+    public float getSpawnY() {
+        return spawnY;
+    }
+    
+    public float getSpawnZ() {
+        return spawnZ;
+    }
+    
+    public int getViewRadius() {
+        return viewRadius;
+    }
+    
+    /**
+     * Причина отключения сервером
+     * @return причина или null
+     */
+    public String getDisconnectReason() {
+        return disconnectReason;
+    }
+    
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+    
+    public long getChunkCount() {
+        return chunkCount;
+    }
+    
+    public long getUnloadCount() {
+        return unloadCount;
+    }
+    
+    public long getDeltaCount() {
+        return deltaCount;
+    }
+    
+    /**
+     * Получить количество пакетов BLOCK_DELTAS
+     * @return пакеты (в одном - все изменения тика)
+     */
+    public long getDeltaPacketCount() {
+        return deltaPacketCount;
+    }
+}
@@ -0,0 +1,270 @@
+package com.rivet.engine.net;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Сервер на неблокирующих сокетах с одним потоком селектора
+ *
+ * Поток "NetServer" только принимает соединения и перекладывает байты:
+ * входящие кадры целиком попадают в очередь {@link #poll()}, которую разбирает
+ * поток симуляции, исходящие пишутся из очередей {@link Connection}. Игровое
+ * состояние этот поток не читает, поэтому мир остается однописательским.
+ */
+public final class NetServer implements Runnable {
+    
+    private static final Logger logger = LoggerFactory.getLogger(NetServer.class);
+    
+    /**
+     * Входящее событие: кадр клиента или закрытие соединения
+     */
+    public static final class Message {
+        public final Connection connection;
+        // Тело кадра; null - соединение закрыто
+        public final byte[] payload;
+        
+        Message(Connection connection, byte[] payload) {
+            this.connection = connection;
+            this.payload = payload;
+        }
+    }
+    
+    private final int maxFrame;
+    private final ConcurrentLinkedQueue<Message> messages = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Connection> pendingWrites = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Connection> pendingCloses = new ConcurrentLinkedQueue<>();
+    private final List<Connection> connections = new ArrayList<>();
+    private final ByteBuffer[] gather = new ByteBuffer[32];
+    
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread thread;
+    private volatile boolean running = false;
+    private int nextId = 1;
+    
+    // Метрики (пишет поток сервера)
+    private volatile int connectionCount = 0;
+    private volatile long acceptedCount = 0;
+    
+    /**
+     * @param maxFrame максимальная длина тела входящего кадра
+     */
+    public NetServer(int maxFrame) {
+        this.maxFrame = maxFrame;
+    }
+    
+    /**
+     * Открыть порт и запустить поток селектора
+     * @param address адрес (порт 0 - любой свободный)
+     * @throws IOException если порт занят
+     */
+    public void start(InetSocketAddress address) throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.configureBlocking(false);
+        serverChannel.bind(address);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        
+        running = true;
+        thread = new Thread(this, "NetServer");
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("Сервер слушает {}", serverChannel.getLocalAddress());
+    }
+    
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select();
+                processCloses();
+                processWrites();
+                
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection connection = (Connection) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            read(connection);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            write(connection);
+                        }
+                    } catch (IOException e) {
+                        logger.debug("Соединение {} закрыто: {}", connection.getAddress(), e.getMessage());
+                        closeConnection(connection);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Ошибка сетевого потока", e);
+        } finally {
+            for (Connection connection : new ArrayList<>(connections)) {
+                closeConnection(connection);
+            }
+        }
+    }
+    
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        // Длина varint и тело самого длинного кадра
+        Connection connection = new Connection(this, nextId++, channel, maxFrame + 5);
+        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        connections.add(connection);
+        connectionCount = connections.size();
+        acceptedCount++;
+    }
+    
+    private void read(Connection connection) throws IOException {
+        ByteBuffer in = connection.inbound;
+        int read = connection.getChannel().read(in);
+        if (read < 0) {
+            throw new IOException("end of stream");
+        }
+        connection.addBytesReceived(read);
+        in.flip();
+        byte[] payload;
+        while ((payload = Protocol.readFrame(in, maxFrame)) != null) {
+            messages.add(new Message(connection, payload));
+        }
+        in.compact();
+    }
+    
+    private void write(Connection connection) throws IOException {
+        if (connection.flush(gather)) {
+            if (connection.isClosing()) {
+                closeConnection(connection);
+            } else {
+                connection.key.interestOps(SelectionKey.OP_READ);
+            }
+        } else {
+            connection.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+    }
+    
+    private void processWrites() {
+        Connection connection;
+        while ((connection = pendingWrites.poll()) != null) {
+            // Флаг сбрасывается до записи: кадр, добавленный во время записи, запланирует ее снова
+            connection.writeScheduled.set(false);
+            if (connection.isClosed() || !connection.key.isValid()) {
+                continue;
+            }
+            try {
+                write(connection);
+            } catch (IOException e) {
+                logger.debug("Соединение {} закрыто: {}", connection.getAddress(), e.getMessage());
+                closeConnection(connection);
+            }
+        }
+    }
+    
+    private void processCloses() {
+        Connection connection;
+        while ((connection = pendingCloses.poll()) != null) {
+            closeConnection(connection);
+        }
+    }
+    
+    private void closeConnection(Connection connection) {
+        if (connection.isClosed()) {
+            return;
+        }
+        connection.markClosed();
+        if (connection.key != null) {
+            connection.key.cancel();
+        }
+        try {
+            connection.getChannel().close();
+        } catch (IOException e) {
+            logger.debug("Ошибка закрытия сокета {}", connection.getAddress(), e);
+        }
+        connections.remove(connection);
+        connectionCount = connections.size();
+        messages.add(new Message(connection, null));
+    }
+    
+    void scheduleWrite(Connection connection) {
+        pendingWrites.add(connection);
+        selector.wakeup();
+    }
+    
+    void scheduleClose(Connection connection) {
+        pendingCloses.add(connection);
+        selector.wakeup();
+    }
+    
+    /**
+     * Извлечь следующее входящее событие (поток симуляции)
+     * @return событие или null если очередь пуста
+     */
+    public Message poll() {
+        return messages.poll();
+    }
+    
+    /**
+     * Закрыть порт и все соединения
+     */
+    public void shutdown() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(1000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            serverChannel.close();
+            selector.close();
+        } catch (IOException e) {
+            logger.warn("Ошибка закрытия сервера", e);
+        }
+        messages.clear();
+    }
+    
+    /**
+     * Порт, на котором слушает сервер
+     * @return номер порта
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+    
+    public int getConnectionCount() {
+        return connectionCount;
+    }
+    
+    public long getAcceptedCount() {
+        return acceptedCount;
+    }
+}
@@ -0,0 +1,117 @@
+package com.rivet.engine.net;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Чтение тела пакета, записанного {@link PacketWriter}
+ * Выход за конец тела и некорректный varint дают IOException:
+ * данные пришли из сети и не заслуживают доверия.
+ */
+public final class PacketReader {
+    
+    private byte[] data;
+    private int position;
+    private int limit;
+    
+    public PacketReader() {
+        reset(new byte[0], 0, 0);
+    }
+    
+    /**
+     * Начать чтение нового тела
+     * @param data массив с телом пакета
+     * @param offset начало тела
+     * @param size длина тела
+     * @return этот читатель
+     */
+    public PacketReader reset(byte[] data, int offset, int size) {
+        this.data = data;
+        this.position = offset;
+        this.limit = offset + size;
+        return this;
+    }
+    
+    public int readByte() throws IOException {
+        require(1);
+        return data[position++] & 0xFF;
+    }
+    
+    /**
+     * Прочитать целое без знака varint
+     * @return значение
+     * @throws IOException если varint длиннее 5 байт или тело закончилось
+     */
+    public int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("VarInt is too long");
+    }
+    
+    public int readSignedVarInt() throws IOException {
+        int value = readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+    
+    public float readFloat() throws IOException {
+        require(4);
+        int bits = (data[position] & 0xFF) << 24
+            | (data[position + 1] & 0xFF) << 16
+            | (data[position + 2] & 0xFF) << 8
+            | (data[position + 3] & 0xFF);
+        position += 4;
+        return Float.intBitsToFloat(bits);
+    }
+    
+    /**
+     * Прочитать строку UTF-8 с длиной varint
+     * @param maxBytes максимальная длина в байтах
+     * @return строка
+     * @throws IOException если строка длиннее maxBytes или тело закончилось
+     */
+    public String readString(int maxBytes) throws IOException {
+        int size = readVarInt();
+        if (size < 0 || size > maxBytes) {
+            throw new IOException("String is too long: " + size);
+        }
+        require(size);
+        String value = new String(data, position, size, StandardCharsets.UTF_8);
+        position += size;
+        return value;
+    }
+    
+    /**
+     * Пропустить байты, оставив их в массиве (см. {@link #getData()})
+     * @param count количество байт
+     * @return позиция первого пропущенного байта
+     */
+    public int skip(int count) throws IOException {
+        if (count < 0) {
+            throw new IOException("Negative length " + count);
+        }
+        require(count);
+        int start = position;
+        position += count;
+        return start;
+    }
+    
+    public byte[] getData() {
+        return data;
+    }
+    
+    public int remaining() {
+        return limit - position;
+    }
+    
+    private void require(int bytes) throws IOException {
+        if (position + bytes > limit) {
+            throw new IOException("Packet ends at " + limit);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.rivet.engine.net;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Построитель тела пакета в растущем массиве
+ *
+ * Целые без знака пишутся как varint (7 бит на байт, старший бит - продолжение),
+ * знаковые - как zigzag varint, вещественные - 4 байта big-endian.
+ * Экземпляр переиспользуется между пакетами; не потокобезопасен.
+ */
+public final class PacketWriter {
+    
+    private byte[] data;
+    private int length = 0;
+    
+    public PacketWriter() {
+        this(256);
+    }
+    
+    /**
+     * @param capacity начальная емкость (растет при необходимости)
+     */
+    public PacketWriter(int capacity) {
+        this.data = new byte[Math.max(16, capacity)];
+    }
+    
+    /**
+     * Начать новый пакет
+     * @param type тип пакета ({@link Protocol})
+     * @return этот построитель
+     */
+    public PacketWriter begin(int type) {
+        length = 0;
+        writeByte(type);
+        return this;
+    }
+    
+    /**
+     * Начать фрагмент без типа (для вставки в другой пакет)
+     * @return этот построитель
+     */
+    public PacketWriter reset() {
+        length = 0;
+        return this;
+    }
+    
+    public void writeByte(int value) {
+        ensure(1);
+        data[length++] = (byte) value;
+    }
+    
+    /**
+     * Записать целое без знака как varint
+     * @param value значение (отрицательные занимают 5 байт)
+     */
+    public void writeVarInt(int value) {
+        ensure(5);
+        while ((value & ~0x7F) != 0) {
+            data[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[length++] = (byte) value;
+    }
+    
+    /**
+     * Записать знаковое целое как zigzag varint
+     * @param value значение
+     */
+    public void writeSignedVarInt(int value) {
+        writeVarInt((value << 1) ^ (value >> 31));
+    }
+    
+    public void writeFloat(float value) {
+        int bits = Float.floatToIntBits(value);
+        ensure(4);
+        data[length++] = (byte) (bits >>> 24);
+        data[length++] = (byte) (bits >>> 16);
+        data[length++] = (byte) (bits >>> 8);
+        data[length++] = (byte) bits;
+    }
+    
+    public void writeBytes(byte[] bytes, int offset, int count) {
+        ensure(count);
+        System.arraycopy(bytes, offset, data, length, count);
+        length += count;
+    }
+    
+    /**
+     * Записать строку UTF-8 с длиной varint
+     * @param value строка
+     */
+    public void writeString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length);
+        writeBytes(bytes, 0, bytes.length);
+    }
+    
+    /**
+     * Размер тела пакета
+     * @return длина в байтах
+     */
+    public int size() {
+        return length;
+    }
+    
+    /**
+     * Скопировать записанные байты
+     * @return массив длиной {@link #size()}
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(data, length);
+    }
+    
+    /**
+     * Скопировать пакет в кадр для отправки: длина varint и тело
+     * @return буфер, готовый к записи в канал
+     */
+    public ByteBuffer toFrame() {
+        ByteBuffer frame = ByteBuffer.allocate(varIntSize(length) + length);
+        int value = length;
+        while ((value & ~0x7F) != 0) {
+            frame.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        frame.put((byte) value);
+        frame.put(data, 0, length);
+        return frame.flip();
+    }
+    
+    /**
+     * Количество байт varint
+     * @param value значение
+     * @return от 1 до 5
+     */
+    public static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+    
+    private void ensure(int bytes) {
+        if (length + bytes > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, length + bytes));
+        }
+    }
+}
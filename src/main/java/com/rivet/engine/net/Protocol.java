@@ -0,0 +1,96 @@
+package com.rivet.engine.net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Сетевой протокол Rivet
+ *
+ * Кадр: длина тела (varint) | тип пакета (1) | поля. Пакеты (поля в порядке записи):
+ * <pre>
+ * клиент -> сервер
+ *   HELLO        версия, имя (строка), радиус обзора
+ *   MOVE         x, y, z, yaw, pitch (float)
+ *   SET_BLOCK    x, y, z (zigzag), id
+ * сервер -> клиент
+ *   WELCOME      id клиента, x, y, z появления (float), радиус обзора
+ *   CHUNK        chunkX, chunkZ (zigzag), длина, данные {@link com.rivet.engine.world.storage.ChunkCodec}
+ *   UNLOAD       chunkX, chunkZ (zigzag)
+ *   BLOCK_DELTAS число чанков, для каждого: chunkX, chunkZ (zigzag), число изменений,
+ *                изменения: индекс в чанке (y << 8 | z << 4 | x), id
+ *   DISCONNECT   причина (строка)
+ * </pre>
+ * Целые без пометки - varint без знака.
+ */
+public final class Protocol {
+    
+    public static final int VERSION = 1;
+    public static final int DEFAULT_PORT = 24680;
+    
+    // Максимальная длина тела кадра от сервера и от клиента
+    public static final int MAX_SERVER_FRAME = 1 << 21;
+    public static final int MAX_CLIENT_FRAME = 1 << 10;
+    
+    // Клиент -> сервер
+    public static final int HELLO = 0x01;
+    public static final int MOVE = 0x02;
+    public static final int SET_BLOCK = 0x03;
+    
+    // Сервер -> клиент
+    public static final int WELCOME = 0x41;
+    public static final int CHUNK = 0x42;
+    public static final int UNLOAD = 0x43;
+    public static final int BLOCK_DELTAS = 0x44;
+    public static final int DISCONNECT = 0x45;
+    
+    private Protocol() {
+    }
+    
+    /**
+     * Извлечь следующий полный кадр из входного буфера
+     * Если кадр еще не пришел целиком, позиция буфера не меняется.
+     * @param in буфер в режиме чтения
+     * @param maxFrame максимальная длина тела
+     * @return тело кадра или null если данных недостаточно
+     * @throws IOException если длина кадра некорректна или превышает maxFrame
+     */
+    public static byte[] readFrame(ByteBuffer in, int maxFrame) throws IOException {
+        int start = in.position();
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (!in.hasRemaining()) {
+                in.position(start);
+                return null;
+            }
+            if (shift == 35) {
+                throw new IOException("Frame length is too long");
+            }
+            int b = in.get() & 0xFF;
+            length |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        if (length <= 0 || length > maxFrame) {
+            throw new IOException("Bad frame length " + length);
+        }
+        if (in.remaining() < length) {
+            in.position(start);
+            return null;
+        }
+        byte[] payload = new byte[length];
+        in.get(payload);
+        return payload;
+    }
+    
+    /**
+     * Индекс блока внутри чанка в пакете BLOCK_DELTAS
+     * @param x локальная координата X (0-15)
+     * @param y координата Y (0-255)
+     * @param z локальная координата Z (0-15)
+     * @return индекс
+     */
+    public static int blockIndex(int x, int y, int z) {
+        return y << 8 | z << 4 | x;
+    }
+}
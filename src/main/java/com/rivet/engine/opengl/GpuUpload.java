@@ -0,0 +1,155 @@
+package com.rivet.engine.opengl;
+
+import org.lwjgl.glfw.GLFW;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL32;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Загрузка данных на GPU, поставленная в {@link GpuUploader}
+ *
+ * Задача выполняется потоком загрузки с общим контекстом и публикуется
+ * барьером glFenceSync. Поток OpenGL проверяет барьер в {@link #isReady()}
+ * без ожидания и использует объект, только когда GPU закончил копирование.
+ * В резервном режиме задача выполняется в потоке OpenGL, и барьер не нужен.
+ */
+public final class GpuUpload {
+    
+    public static final int PENDING = 0;
+    public static final int RUNNING = 1;
+    public static final int FENCED = 2;
+    public static final int READY = 3;
+    public static final int FAILED = 4;
+    public static final int CANCELLED = 5;
+    
+    private final String name;
+    private final GpuUploader.Task task;
+    private final Thread renderThread;
+    private final AtomicInteger state = new AtomicInteger(PENDING);
+    private volatile long fence = 0;
+    private volatile Exception error;
+    
+    GpuUpload(String name, GpuUploader.Task task, Thread renderThread) {
+        this.name = name;
+        this.task = task;
+        this.renderThread = renderThread;
+    }
+    
+    /**
+     * Выполнить задачу, если она не отменена (поток загрузки или поток OpenGL)
+     * @param fenced true - поставить барьер после команд задачи
+     */
+    void execute(boolean fenced) {
+        if (!state.compareAndSet(PENDING, RUNNING)) {
+            return;
+        }
+        try {
+            task.run();
+            if (fenced) {
+                fence = GL32.glFenceSync(GL32.GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+                // Без сброса барьер может не дойти до GPU, и ожидание в другом контексте не завершится
+                GL11.glFlush();
+                finish(FENCED);
+            } else {
+                finish(READY);
+            }
+        } catch (Exception e) {
+            error = e;
+            finish(FAILED);
+        }
+    }
+    
+    private void finish(int result) {
+        synchronized (this) {
+            state.set(result);
+            notifyAll();
+        }
+    }
+    
+    /**
+     * Проверить, можно ли использовать результат
+     * В потоке OpenGL опрашивает барьер с нулевым таймаутом; в других потоках
+     * только читает состояние.
+     * @return true если данные на GPU и видны контексту потока OpenGL
+     */
+    public boolean isReady() {
+        int current = state.get();
+        if (current == FENCED && Thread.currentThread() == renderThread) {
+            int result = GL32.glClientWaitSync(fence, 0, 0L);
+            if (result == GL32.GL_ALREADY_SIGNALED || result == GL32.GL_CONDITION_SATISFIED) {
+                GL32.glDeleteSync(fence);
+                fence = 0;
+                state.set(READY);
+                return true;
+            }
+            if (result == GL32.GL_WAIT_FAILED) {
+                GL32.glDeleteSync(fence);
+                fence = 0;
+                error = new IllegalStateException("glClientWaitSync failed for " + name);
+                state.set(FAILED);
+            }
+            return false;
+        }
+        return current == READY;
+    }
+    
+    /**
+     * Проверить, закончил ли поток загрузки работу с задачей
+     * @return true если задача выполнена, завершилась ошибкой или отменена
+     */
+    public boolean isDone() {
+        return state.get() >= FENCED;
+    }
+    
+    public boolean isFailed() {
+        return state.get() == FAILED;
+    }
+    
+    /**
+     * Отменить задачу, если она еще не начата
+     * @return true если задача не будет выполнена
+     */
+    public boolean cancel() {
+        return state.compareAndSet(PENDING, CANCELLED) || state.get() == CANCELLED;
+    }
+    
+    /**
+     * Дождаться окончания задачи, уже взятой потоком загрузки
+     * Для задачи в резервной очереди сначала нужно вызвать {@link #cancel()}.
+     * @throws InterruptedException если ожидание прервано
+     */
+    public void awaitDone() throws InterruptedException {
+        synchronized (this) {
+            while (!isDone()) {
+                wait();
+            }
+        }
+    }
+    
+    /**
+     * Удалить неопрошенный барьер (поток OpenGL, при выгрузке объекта)
+     */
+    public void release() {
+        if (fence != 0 && Thread.currentThread() == renderThread && GLFW.glfwGetCurrentContext() != 0) {
+            GL32.glDeleteSync(fence);
+            fence = 0;
+        }
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public int getState() {
+        return state.get();
+    }
+    
+    /**
+     * Получить ошибку задачи
+     * @return исключение или null
+     */
+    public Exception getError() {
+        return error;
+    }
+}
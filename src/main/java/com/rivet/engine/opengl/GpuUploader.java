@@ -0,0 +1,181 @@
+package com.rivet.engine.opengl;
+
+import org.lwjgl.glfw.GLFW;
+import org.lwjgl.opengl.GL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Загрузка текстур и буферов на GPU вне потока OpenGL
+ *
+ * Поток загрузки работает со скрытым окном, контекст которого разделяет
+ * объекты с основным: текстуры и буферы, созданные в нем, видны потоку
+ * OpenGL после срабатывания барьера (см. {@link GpuUpload}). VAO и
+ * framebuffer между контекстами не разделяются - их создает только поток OpenGL.
+ * Если общий контекст создать не удалось или он отключен, задачи выполняются
+ * в потоке OpenGL в {@link #pump(long)} в пределах бюджета кадра.
+ * Конструктор и {@link #shutdown()} вызываются в потоке OpenGL (требование GLFW).
+ */
+public final class GpuUploader {
+    
+    private static final Logger logger = LoggerFactory.getLogger(GpuUploader.class);
+    
+    // Ожидание потока загрузки при остановке (задача может висеть в драйвере)
+    private static final long SHUTDOWN_TIMEOUT_MS = 2000;
+    
+    /**
+     * Задача загрузки: команды OpenGL выполняются в текущем контексте потока
+     */
+    @FunctionalInterface
+    public interface Task {
+        void run() throws Exception;
+    }
+    
+    private final Thread renderThread = Thread.currentThread();
+    private final long window;
+    private final Thread thread;
+    private final BlockingQueue<GpuUpload> queue = new LinkedBlockingQueue<>();
+    private final ConcurrentLinkedQueue<GpuUpload> mainQueue = new ConcurrentLinkedQueue<>();
+    
+    /**
+     * @param mainWindow окно с контекстом потока OpenGL (контекст текущий)
+     * @param shared true - попытаться создать поток загрузки с общим контекстом
+     */
+    public GpuUploader(long mainWindow, boolean shared) {
+        long loaderWindow = 0;
+        if (shared) {
+            if (GL.getCapabilities().OpenGL32) {
+                // Подсказки окна остаются от основного окна: та же версия и профиль контекста
+                GLFW.glfwWindowHint(GLFW.GLFW_VISIBLE, GLFW.GLFW_FALSE);
+                loaderWindow = GLFW.glfwCreateWindow(1, 1, "Rivet loader", 0, mainWindow);
+                if (loaderWindow == 0) {
+                    logger.warn("Не удалось создать общий контекст, загрузка на GPU в потоке OpenGL");
+                }
+            } else {
+                logger.warn("Нет glFenceSync (OpenGL 3.2), загрузка на GPU в потоке OpenGL");
+            }
+        }
+        this.window = loaderWindow;
+        
+        if (window != 0) {
+            thread = new Thread(this::runLoader, "GpuUploader");
+            thread.setDaemon(true);
+            thread.start();
+            logger.info("Поток загрузки на GPU запущен");
+        } else {
+            thread = null;
+        }
+    }
+    
+    private void runLoader() {
+        GLFW.glfwMakeContextCurrent(window);
+        GL.createCapabilities();
+        try {
+            while (true) {
+                execute(queue.take(), true);
+            }
+        } catch (InterruptedException e) {
+            // Завершение работы
+        } finally {
+            GL.setCapabilities(null);
+            GLFW.glfwMakeContextCurrent(0);
+        }
+    }
+    
+    private static void execute(GpuUpload upload, boolean fenced) {
+        upload.execute(fenced);
+        if (upload.isFailed()) {
+            logger.error("Ошибка загрузки на GPU: {}", upload.getName(), upload.getError());
+        }
+    }
+    
+    /**
+     * Поставить загрузку в очередь (любой поток)
+     * @param name имя для логов
+     * @param task задача с командами OpenGL
+     * @return загрузка, готовность проверяется в потоке OpenGL
+     */
+    public GpuUpload submit(String name, Task task) {
+        GpuUpload upload = new GpuUpload(name, task, renderThread);
+        if (thread != null) {
+            queue.add(upload);
+        } else {
+            mainQueue.add(upload);
+        }
+        return upload;
+    }
+    
+    /**
+     * Выполнить задачи резервного режима (поток OpenGL, раз за кадр)
+     * Бюджет проверяется между задачами: одна задача не делится.
+     * @param budgetNanos бюджет времени в наносекундах
+     * @return количество выполненных задач
+     */
+    public int pump(long budgetNanos) {
+        if (thread != null) {
+            return 0;
+        }
+        long deadline = System.nanoTime() + budgetNanos;
+        int executed = 0;
+        
+        GpuUpload upload;
+        while ((upload = mainQueue.poll()) != null) {
+            execute(upload, false);
+            executed++;
+            if (System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+        return executed;
+    }
+    
+    /**
+     * Проверить, работает ли поток загрузки с общим контекстом
+     * @return false в резервном режиме
+     */
+    public boolean isShared() {
+        return thread != null;
+    }
+    
+    /**
+     * Получить количество загрузок в очереди
+     * @return количество задач, еще не взятых на выполнение
+     */
+    public int getPendingCount() {
+        return queue.size() + mainQueue.size();
+    }
+    
+    /**
+     * Остановить поток загрузки и отменить невыполненные задачи
+     * Вызывается до уничтожения основного окна. Если поток не завершился за
+     * {@link #SHUTDOWN_TIMEOUT_MS} мс, его окно не уничтожается: контекст еще
+     * текущий в потоке загрузки, а поток-демон не держит процесс.
+     */
+    public void shutdown() {
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(SHUTDOWN_TIMEOUT_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (thread.isAlive()) {
+                logger.warn("Поток загрузки на GPU не завершился за {} мс", SHUTDOWN_TIMEOUT_MS);
+            } else {
+                GLFW.glfwDestroyWindow(window);
+            }
+        }
+        
+        GpuUpload upload;
+        while ((upload = queue.poll()) != null) {
+            upload.cancel();
+        }
+        while ((upload = mainQueue.poll()) != null) {
+            upload.cancel();
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.rivet.engine.opengl;
 
+import com.rivet.engine.profiling.ShaderCompileEvent;
+import com.rivet.engine.profiling.ShaderLinkEvent;
 import org.lwjgl.opengl.GL20;
 import org.lwjgl.opengl.GL30;
 
@@ -17,12 +19,26 @@ public class Shader {
     private int vertexShaderId;
     private int fragmentShaderId;
     private boolean linked = false;
+    private final UniformCalls uniforms;
+    
+    // Буфер для передачи матриц, чтобы установка uniform не создавала мусор каждый кадр
+    private final float[] matrixArray = new float[16];
     
     /**
      * Создать новый шейдер
      */
     public Shader() {
-        programId = GL20.glCreateProgram();
+        this(GL20.glCreateProgram(), UniformCalls.GL);
+    }
+    
+    /**
+     * Шейдер поверх готовой программы с заданными вызовами uniform (для тестов без OpenGL)
+     * @param programId ID программы
+     * @param uniforms вызовы установки uniform
+     */
+    Shader(int programId, UniformCalls uniforms) {
+        this.programId = programId;
+        this.uniforms = uniforms;
     }
     
     /**
@@ -32,7 +48,7 @@ public class Shader {
      */
     public void loadVertexShader(String resourcePath) throws ShaderException {
         String source = loadShaderSource(resourcePath);
-        vertexShaderId = compileShader(source, GL20.GL_VERTEX_SHADER);
+        vertexShaderId = compileShader(source, GL20.GL_VERTEX_SHADER, resourcePath);
         GL20.glAttachShader(programId, vertexShaderId);
     }
     
@@ -43,7 +59,7 @@ public class Shader {
      */
     public void loadFragmentShader(String resourcePath) throws ShaderException {
         String source = loadShaderSource(resourcePath);
-        fragmentShaderId = compileShader(source, GL20.GL_FRAGMENT_SHADER);
+        fragmentShaderId = compileShader(source, GL20.GL_FRAGMENT_SHADER, resourcePath);
         GL20.glAttachShader(programId, fragmentShaderId);
     }
     
@@ -52,9 +68,17 @@ public class Shader {
      * @throws ShaderException если связывание не удалось
      */
     public void link() throws ShaderException {
+        ShaderLinkEvent event = new ShaderLinkEvent();
+        event.begin();
         GL20.glLinkProgram(programId);
         
         int status = GL20.glGetProgrami(programId, GL20.GL_LINK_STATUS);
+        event.end();
+        if (event.shouldCommit()) {
+            event.program = programId;
+            event.succeeded = status != 0;
+            event.commit();
+        }
         if (status == 0) {
             String log = GL20.glGetProgramInfoLog(programId);
             throw new ShaderException("Failed to link shader program: " + log);
@@ -112,9 +136,8 @@ public class Shader {
      * @param matrix матрица
      */
     public void setUniformMatrix4f(int location, org.joml.Matrix4f matrix) {
-        float[] matrixArray = new float[16];
         matrix.get(matrixArray);
-        GL20.glUniformMatrix4fv(location, false, matrixArray);
+        uniforms.uniformMatrix4fv(location, matrixArray);
     }
     
     /**
@@ -123,7 +146,7 @@ public class Shader {
      * @param vector вектор
      */
     public void setUniformVector3f(int location, org.joml.Vector3f vector) {
-        GL20.glUniform3f(location, vector.x, vector.y, vector.z);
+        uniforms.uniform3f(location, vector.x, vector.y, vector.z);
     }
     
     /**
@@ -132,7 +155,7 @@ public class Shader {
      * @param value значение
      */
     public void setUniformFloat(int location, float value) {
-        GL20.glUniform1f(location, value);
+        uniforms.uniform1f(location, value);
     }
     
     /**
@@ -141,7 +164,7 @@ public class Shader {
      * @param value значение
      */
     public void setUniformInt(int location, int value) {
-        GL20.glUniform1i(location, value);
+        uniforms.uniform1i(location, value);
     }
     
     /**
@@ -165,15 +188,26 @@ public class Shader {
      * Скомпилировать шейдер
      * @param source исходный код шейдера
      * @param type тип шейдера
+     * @param resourcePath путь к исходному коду (для профилирования)
      * @return ID скомпилированного шейдера
      * @throws ShaderException если компиляция не удалась
      */
-    private int compileShader(String source, int type) throws ShaderException {
+    private int compileShader(String source, int type, String resourcePath) throws ShaderException {
+        ShaderCompileEvent event = new ShaderCompileEvent();
+        event.begin();
         int shaderId = GL20.glCreateShader(type);
         GL20.glShaderSource(shaderId, source);
         GL20.glCompileShader(shaderId);
         
+        // Запрос статуса ждет завершения компиляции в драйвере - событие включает ожидание
         int status = GL20.glGetShaderi(shaderId, GL20.GL_COMPILE_STATUS);
+        event.end();
+        if (event.shouldCommit()) {
+            event.source = resourcePath;
+            event.stage = type == GL20.GL_VERTEX_SHADER ? "vertex" : "fragment";
+            event.succeeded = status != 0;
+            event.commit();
+        }
         if (status == 0) {
             String log = GL20.glGetShaderInfoLog(shaderId);
             GL20.glDeleteShader(shaderId);
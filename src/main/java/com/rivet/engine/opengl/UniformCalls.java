@@ -0,0 +1,41 @@
+package com.rivet.engine.opengl;
+
+import org.lwjgl.opengl.GL20;
+
+/**
+ * Вызовы OpenGL для установки uniform-переменных
+ * Шейдер вызывает их через интерфейс, чтобы установку uniform можно было
+ * проверить без контекста OpenGL.
+ */
+interface UniformCalls {
+    
+    UniformCalls GL = new UniformCalls() {
+        @Override
+        public void uniformMatrix4fv(int location, float[] matrix) {
+            GL20.glUniformMatrix4fv(location, false, matrix);
+        }
+        
+        @Override
+        public void uniform3f(int location, float x, float y, float z) {
+            GL20.glUniform3f(location, x, y, z);
+        }
+        
+        @Override
+        public void uniform1f(int location, float value) {
+            GL20.glUniform1f(location, value);
+        }
+        
+        @Override
+        public void uniform1i(int location, int value) {
+            GL20.glUniform1i(location, value);
+        }
+    };
+    
+    void uniformMatrix4fv(int location, float[] matrix);
+    
+    void uniform3f(int location, float x, float y, float z);
+    
+    void uniform1f(int location, float value);
+    
+    void uniform1i(int location, int value);
+}
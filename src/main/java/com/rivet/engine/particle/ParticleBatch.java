@@ -0,0 +1,297 @@
+package com.rivet.engine.particle;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Пакет частиц одной текстурной страницы с хранением структурой массивов
+ *
+ * Позиция, скорость, время жизни, размер, цвет и плитка каждой частицы
+ * лежат в отдельных массивах фиксированной емкости; живые частицы занимают
+ * индексы [0, count). Удаление - перенос последней частицы на место
+ * удаленной, поэтому индексы частиц не стабильны между кадрами.
+ * Симуляция и запись экземпляров не создают объектов. Пакет - единица
+ * параллельной симуляции: разные пакеты можно обновлять в разных потоках,
+ * один пакет - только в одном.
+ */
+public final class ParticleBatch {
+    
+    private static final int MAX_EMITTERS = 16;
+    
+    private final int page;
+    private final int capacity;
+    
+    final float[] x;
+    final float[] y;
+    final float[] z;
+    final float[] velocityX;
+    final float[] velocityY;
+    final float[] velocityZ;
+    final float[] life;
+    final float[] maxLife;
+    final float[] size;
+    // Цвет RGBA8: r - младший байт (порядок байт в буфере экземпляров)
+    final int[] color;
+    final int[] tile;
+    private int count = 0;
+    
+    private float gravity = 0.0f;
+    private float drag = 0.0f;
+    private long random;
+    
+    private final ParticleEmitter[] emitters = new ParticleEmitter[MAX_EMITTERS];
+    private int emitterCount = 0;
+    
+    /**
+     * @param page текстурная страница частиц пакета
+     * @param capacity максимум живых частиц
+     * @param seed зерно случайных чисел пакета
+     */
+    public ParticleBatch(int page, int capacity, long seed) {
+        this.page = page;
+        this.capacity = capacity;
+        this.random = seed;
+        x = new float[capacity];
+        y = new float[capacity];
+        z = new float[capacity];
+        velocityX = new float[capacity];
+        velocityY = new float[capacity];
+        velocityZ = new float[capacity];
+        life = new float[capacity];
+        maxLife = new float[capacity];
+        size = new float[capacity];
+        color = new int[capacity];
+        tile = new int[capacity];
+    }
+    
+    /**
+     * Задать силы пакета
+     * @param gravity ускорение вниз в блоках/с^2
+     * @param drag доля скорости, теряемая за секунду
+     */
+    public void setForces(float gravity, float drag) {
+        this.gravity = gravity;
+        this.drag = drag;
+    }
+    
+    /**
+     * Добавить частицу
+     * @param life время жизни в секундах
+     * @param size размер в блоках
+     * @param color цвет {@link #rgba}
+     * @param tile плитка страницы
+     * @return индекс частицы или -1 если пакет заполнен
+     */
+    public int emit(float x, float y, float z, float velocityX, float velocityY, float velocityZ,
+                    float life, float size, int color, int tile) {
+        if (count == capacity || !(life > 0.0f)) {
+            return -1;
+        }
+        int i = count++;
+        this.x[i] = x;
+        this.y[i] = y;
+        this.z[i] = z;
+        this.velocityX[i] = velocityX;
+        this.velocityY[i] = velocityY;
+        this.velocityZ[i] = velocityZ;
+        this.life[i] = life;
+        this.maxLife[i] = life;
+        this.size[i] = size;
+        this.color[i] = color;
+        this.tile[i] = tile;
+        return i;
+    }
+    
+    /**
+     * Выбросить облако частиц из точки во все стороны
+     * @param amount количество частиц (обрезается по свободному месту)
+     * @param spread полуразмер куба, в котором появляются частицы
+     * @param speed максимальная начальная скорость
+     * @param life время жизни в секундах (разброс от половины до полного)
+     * @return количество добавленных частиц
+     */
+    public int burst(float x, float y, float z, int amount, float spread, float speed,
+                     float life, float size, int color, int tile) {
+        int added = Math.min(amount, capacity - count);
+        for (int n = 0; n < added; n++) {
+            emit(x + spread * nextSigned(), y + spread * nextSigned(), z + spread * nextSigned(),
+                speed * nextSigned(), speed * nextFloat(), speed * nextSigned(),
+                life * (0.5f + 0.5f * nextFloat()), size, color, tile);
+        }
+        return added;
+    }
+    
+    /**
+     * Удалить частицу переносом последней на ее место
+     * @param index индекс живой частицы
+     */
+    public void kill(int index) {
+        int last = --count;
+        if (index != last) {
+            move(last, index);
+        }
+    }
+    
+    private void move(int from, int to) {
+        x[to] = x[from];
+        y[to] = y[from];
+        z[to] = z[from];
+        velocityX[to] = velocityX[from];
+        velocityY[to] = velocityY[from];
+        velocityZ[to] = velocityZ[from];
+        life[to] = life[from];
+        maxLife[to] = maxLife[from];
+        size[to] = size[from];
+        color[to] = color[from];
+        tile[to] = tile[from];
+    }
+    
+    /**
+     * Удалить все частицы
+     */
+    public void clear() {
+        count = 0;
+    }
+    
+    /**
+     * Подключить излучатель к пакету
+     * @param emitter излучатель
+     * @throws IllegalStateException если у пакета уже {@value #MAX_EMITTERS} излучателей
+     */
+    public void addEmitter(ParticleEmitter emitter) {
+        if (emitterCount == MAX_EMITTERS) {
+            throw new IllegalStateException("Too many emitters in particle batch");
+        }
+        emitters[emitterCount++] = emitter;
+    }
+    
+    public void removeEmitter(ParticleEmitter emitter) {
+        for (int i = 0; i < emitterCount; i++) {
+            if (emitters[i] == emitter) {
+                emitters[i] = emitters[--emitterCount];
+                emitters[emitterCount] = null;
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Продвинуть частицы на шаг
+     * Сначала излучатели добавляют новые частицы, затем умершие удаляются,
+     * а остальные интегрируются явным методом Эйлера.
+     * @param dt шаг в секундах
+     */
+    public void simulate(float dt) {
+        for (int e = 0; e < emitterCount; e++) {
+            emitters[e].emit(this, dt);
+        }
+        
+        float damping = Math.max(0.0f, 1.0f - drag * dt);
+        float fall = gravity * dt;
+        int n = count;
+        int i = 0;
+        while (i < n) {
+            float remaining = life[i] - dt;
+            if (remaining <= 0.0f) {
+                // Перенесенная с конца частица еще не обработана - индекс не сдвигается
+                if (i != --n) {
+                    move(n, i);
+                }
+                continue;
+            }
+            life[i] = remaining;
+            float vx = velocityX[i] * damping;
+            float vy = (velocityY[i] - fall) * damping;
+            float vz = velocityZ[i] * damping;
+            velocityX[i] = vx;
+            velocityY[i] = vy;
+            velocityZ[i] = vz;
+            x[i] += vx * dt;
+            y[i] += vy * dt;
+            z[i] += vz * dt;
+            i++;
+        }
+        count = n;
+    }
+    
+    /**
+     * Записать живые частицы в буфер экземпляров
+     * Формат экземпляра - {@link ParticleSystem#INSTANCE_BYTES} байт: позиция xyz
+     * и размер (float), цвет RGBA8, плитка (uint16), непрозрачность по
+     * оставшейся жизни (unorm16). Запись абсолютная, позиция буфера не
+     * меняется, поэтому разные пакеты пишут в один буфер параллельно.
+     * Не требует нативных библиотек: годится и буфер ByteBuffer.allocateDirect.
+     * @param target буфер в нативном порядке байт
+     * @param first номер первого экземпляра пакета в буфере
+     */
+    public void writeInstances(ByteBuffer target, int first) {
+        int offset = first * ParticleSystem.INSTANCE_BYTES;
+        for (int i = 0; i < count; i++) {
+            target.putFloat(offset, x[i]);
+            target.putFloat(offset + 4, y[i]);
+            target.putFloat(offset + 8, z[i]);
+            target.putFloat(offset + 12, size[i]);
+            target.putInt(offset + 16, color[i]);
+            target.putShort(offset + 20, (short) tile[i]);
+            target.putShort(offset + 22, (short) (life[i] / maxLife[i] * 65535.0f));
+            offset += ParticleSystem.INSTANCE_BYTES;
+        }
+    }
+    
+    /**
+     * Упаковать цвет частицы
+     * @return цвет RGBA8 (r - младший байт)
+     */
+    public static int rgba(int r, int g, int b, int a) {
+        return (r & 0xFF) | (g & 0xFF) << 8 | (b & 0xFF) << 16 | (a & 0xFF) << 24;
+    }
+    
+    /**
+     * Случайное число SplitMix64 из состояния пакета
+     * @return значение в [0, 1)
+     */
+    float nextFloat() {
+        long z = (random += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return ((z ^ (z >>> 31)) >>> 40) * 0x1.0p-24f;
+    }
+    
+    /**
+     * @return значение в [-1, 1)
+     */
+    float nextSigned() {
+        return nextFloat() * 2.0f - 1.0f;
+    }
+    
+    public int getPage() {
+        return page;
+    }
+    
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    /**
+     * Получить количество живых частиц
+     * @return количество частиц
+     */
+    public int size() {
+        return count;
+    }
+    
+    public float getX(int index) {
+        return x[index];
+    }
+    
+    public float getY(int index) {
+        return y[index];
+    }
+    
+    public float getZ(int index) {
+        return z[index];
+    }
+    
+    public float getLife(int index) {
+        return life[index];
+    }
+}
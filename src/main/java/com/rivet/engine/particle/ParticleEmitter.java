@@ -0,0 +1,122 @@
+package com.rivet.engine.particle;
+
+/**
+ * Непрерывный излучатель частиц
+ *
+ * Подключается к {@link ParticleBatch} и в каждом шаге симуляции добавляет
+ * rate * dt частиц (дробная часть накапливается между шагами) в случайные
+ * точки своего параллелепипеда. Настраивается из потока, который
+ * симулирует пакет, или до подключения.
+ */
+public final class ParticleEmitter {
+    
+    private float x;
+    private float y;
+    private float z;
+    private float extentX;
+    private float extentY;
+    private float extentZ;
+    private float velocityX;
+    private float velocityY;
+    private float velocityZ;
+    private float velocitySpread;
+    private float minLife = 1.0f;
+    private float maxLife = 1.0f;
+    private float size = 0.1f;
+    private int color = -1;
+    private int firstTile = 0;
+    private int tileCount = 1;
+    private float rate;
+    private float pending = 0.0f;
+    
+    /**
+     * @param rate частиц в секунду
+     */
+    public ParticleEmitter(float rate) {
+        this.rate = rate;
+    }
+    
+    /**
+     * Задать центр и полуразмеры области появления частиц
+     */
+    public void setArea(float x, float y, float z, float extentX, float extentY, float extentZ) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.extentX = extentX;
+        this.extentY = extentY;
+        this.extentZ = extentZ;
+    }
+    
+    public void setPosition(float x, float y, float z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+    
+    /**
+     * Задать начальную скорость
+     * @param spread максимальное отклонение по каждой оси
+     */
+    public void setVelocity(float velocityX, float velocityY, float velocityZ, float spread) {
+        this.velocityX = velocityX;
+        this.velocityY = velocityY;
+        this.velocityZ = velocityZ;
+        this.velocitySpread = spread;
+    }
+    
+    /**
+     * Задать время жизни частиц
+     * @param minLife минимум в секундах
+     * @param maxLife максимум в секундах
+     */
+    public void setLife(float minLife, float maxLife) {
+        this.minLife = minLife;
+        this.maxLife = Math.max(minLife, maxLife);
+    }
+    
+    /**
+     * Задать внешний вид частиц
+     * @param size размер в блоках
+     * @param color цвет {@link ParticleBatch#rgba}
+     * @param firstTile первая плитка страницы
+     * @param tileCount количество плиток, из которых выбирается случайная
+     */
+    public void setAppearance(float size, int color, int firstTile, int tileCount) {
+        this.size = size;
+        this.color = color;
+        this.firstTile = firstTile;
+        this.tileCount = Math.max(1, tileCount);
+    }
+    
+    public void setRate(float rate) {
+        this.rate = rate;
+    }
+    
+    public float getRate() {
+        return rate;
+    }
+    
+    /**
+     * Добавить частицы за шаг (поток симуляции пакета)
+     * Если пакет заполнен, недостающие частицы не откладываются.
+     */
+    void emit(ParticleBatch batch, float dt) {
+        pending += rate * dt;
+        int amount = (int) pending;
+        pending -= amount;
+        for (int n = 0; n < amount; n++) {
+            float life = minLife + (maxLife - minLife) * batch.nextFloat();
+            int tile = firstTile + (int) (batch.nextFloat() * tileCount);
+            if (batch.emit(x + extentX * batch.nextSigned(), y + extentY * batch.nextSigned(),
+                    z + extentZ * batch.nextSigned(),
+                    velocityX + velocitySpread * batch.nextSigned(),
+                    velocityY + velocitySpread * batch.nextSigned(),
+                    velocityZ + velocitySpread * batch.nextSigned(),
+                    life, size, color, tile) < 0) {
+                pending = 0.0f;
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.rivet.engine.particle;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Система частиц: набор пакетов с параллельной симуляцией по пакетам
+ *
+ * Пакеты создаются заранее с фиксированной емкостью; шаг симуляции и запись
+ * буфера экземпляров выполняются задачами ForkJoin, по одной на пакет,
+ * объекты задач переиспользуются между кадрами. Экземпляры в буфере
+ * сгруппированы по текстурным страницам, чтобы каждая страница рисовалась
+ * одним вызовом. Не использует OpenGL; все методы вызываются из одного потока.
+ */
+public final class ParticleSystem {
+    
+    // Размер экземпляра в буфере: xyz + размер (4 float), RGBA8, плитка uint16, непрозрачность unorm16
+    public static final int INSTANCE_BYTES = 24;
+    
+    private static final int MODE_SIMULATE = 0;
+    private static final int MODE_WRITE = 1;
+    
+    private final int pageCount;
+    private ParticleBatch[] batches = new ParticleBatch[8];
+    private BatchTask[] tasks = new BatchTask[8];
+    private int batchCount = 0;
+    private int capacity = 0;
+    private final RootTask root = new RootTask();
+    
+    // Раскладка буфера экземпляров последней записи
+    private final int[] pageFirst;
+    private final int[] pageCounts;
+    
+    // Параметры текущего прохода задач
+    private int mode;
+    private float dt;
+    private ByteBuffer target;
+    
+    // Метрики
+    private long lastSimulateNanos = 0;
+    private long lastWriteNanos = 0;
+    
+    /**
+     * Задача одного пакета
+     */
+    private final class BatchTask extends RecursiveAction {
+        final ParticleBatch batch;
+        int first;
+        
+        BatchTask(ParticleBatch batch) {
+            this.batch = batch;
+        }
+        
+        @Override
+        protected void compute() {
+            if (mode == MODE_SIMULATE) {
+                batch.simulate(dt);
+            } else {
+                batch.writeInstances(target, first);
+            }
+        }
+    }
+    
+    /**
+     * Все пакеты параллельно
+     */
+    private final class RootTask extends RecursiveAction {
+        @Override
+        protected void compute() {
+            for (int i = 0; i < batchCount; i++) {
+                tasks[i].reinitialize();
+            }
+            for (int i = 1; i < batchCount; i++) {
+                tasks[i].fork();
+            }
+            tasks[0].invoke();
+            for (int i = batchCount - 1; i >= 1; i--) {
+                tasks[i].join();
+            }
+        }
+    }
+    
+    /**
+     * @param pageCount количество текстурных страниц
+     */
+    public ParticleSystem(int pageCount) {
+        this.pageCount = pageCount;
+        this.pageFirst = new int[pageCount];
+        this.pageCounts = new int[pageCount];
+    }
+    
+    /**
+     * Создать пакет
+     * @param page текстурная страница
+     * @param capacity максимум живых частиц пакета
+     * @return пакет
+     */
+    public ParticleBatch addBatch(int page, int capacity) {
+        if (page < 0 || page >= pageCount) {
+            throw new IllegalArgumentException("Invalid particle page: " + page);
+        }
+        if (batchCount == batches.length) {
+            batches = Arrays.copyOf(batches, batchCount * 2);
+            tasks = Arrays.copyOf(tasks, batchCount * 2);
+        }
+        ParticleBatch batch = new ParticleBatch(page, capacity, 0x9E3779B97F4A7C15L * (batchCount + 1));
+        batches[batchCount] = batch;
+        tasks[batchCount] = new BatchTask(batch);
+        batchCount++;
+        this.capacity += capacity;
+        return batch;
+    }
+    
+    /**
+     * Продвинуть все пакеты на шаг
+     * @param dt шаг в секундах
+     * @param pool пул для параллельной симуляции (null - в текущем потоке)
+     */
+    public void simulate(float dt, ForkJoinPool pool) {
+        long start = System.nanoTime();
+        this.mode = MODE_SIMULATE;
+        this.dt = dt;
+        run(pool);
+        lastSimulateNanos = System.nanoTime() - start;
+    }
+    
+    /**
+     * Записать живые частицы всех пакетов в буфер экземпляров
+     * Экземпляры страницы p занимают [getPageFirst(p), getPageFirst(p) + getPageInstanceCount(p)).
+     * @param target буфер не меньше getCapacity() * {@link #INSTANCE_BYTES} байт
+     * @param pool пул для параллельной записи (null - в текущем потоке)
+     * @return количество записанных экземпляров
+     */
+    public int writeInstances(ByteBuffer target, ForkJoinPool pool) {
+        long start = System.nanoTime();
+        int total = 0;
+        for (int page = 0; page < pageCount; page++) {
+            pageFirst[page] = total;
+            for (int i = 0; i < batchCount; i++) {
+                if (batches[i].getPage() == page) {
+                    tasks[i].first = total;
+                    total += batches[i].size();
+                }
+            }
+            pageCounts[page] = total - pageFirst[page];
+        }
+        
+        this.mode = MODE_WRITE;
+        this.target = target;
+        run(pool);
+        this.target = null;
+        lastWriteNanos = System.nanoTime() - start;
+        return total;
+    }
+    
+    private void run(ForkJoinPool pool) {
+        if (batchCount == 0) {
+            return;
+        }
+        if (pool == null || batchCount == 1) {
+            for (int i = 0; i < batchCount; i++) {
+                tasks[i].compute();
+            }
+            return;
+        }
+        root.reinitialize();
+        pool.invoke(root);
+    }
+    
+    /**
+     * Удалить частицы всех пакетов
+     */
+    public void clear() {
+        for (int i = 0; i < batchCount; i++) {
+            batches[i].clear();
+        }
+    }
+    
+    public int getBatchCount() {
+        return batchCount;
+    }
+    
+    public ParticleBatch getBatch(int index) {
+        return batches[index];
+    }
+    
+    public int getPageCount() {
+        return pageCount;
+    }
+    
+    /**
+     * Получить номер первого экземпляра страницы в последней записи
+     * @param page страница
+     * @return номер экземпляра
+     */
+    public int getPageFirst(int page) {
+        return pageFirst[page];
+    }
+    
+    /**
+     * Получить количество экземпляров страницы в последней записи
+     * @param page страница
+     * @return количество экземпляров
+     */
+    public int getPageInstanceCount(int page) {
+        return pageCounts[page];
+    }
+    
+    /**
+     * Получить суммарную емкость пакетов
+     * @return максимум живых частиц
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    /**
+     * Получить количество живых частиц
+     * @return количество частиц
+     */
+    public int getAliveCount() {
+        int alive = 0;
+        for (int i = 0; i < batchCount; i++) {
+            alive += batches[i].size();
+        }
+        return alive;
+    }
+    
+    public long getLastSimulateNanos() {
+        return lastSimulateNanos;
+    }
+    
+    public long getLastWriteNanos() {
+        return lastWriteNanos;
+    }
+}
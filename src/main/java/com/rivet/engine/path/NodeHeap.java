@@ -0,0 +1,64 @@
+package com.rivet.engine.path;
+
+import java.util.Arrays;
+
+/**
+ * Открытый список поиска пути: двоичная куча примитивных long
+ *
+ * Значение упаковывается вызывающим так, что меньшее число - более
+ * приоритетный узел. Уменьшения ключа нет: узел с улучшенной стоимостью
+ * добавляется повторно, устаревшие записи пропускаются при извлечении.
+ */
+final class NodeHeap {
+    
+    private long[] heap;
+    private int size = 0;
+    
+    NodeHeap(int capacity) {
+        heap = new long[capacity];
+    }
+    
+    void push(long value) {
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= value) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = value;
+    }
+    
+    long pop() {
+        long top = heap[0];
+        long last = heap[--size];
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (last <= heap[child]) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        return top;
+    }
+    
+    boolean isEmpty() {
+        return size == 0;
+    }
+    
+    void clear() {
+        size = 0;
+    }
+}
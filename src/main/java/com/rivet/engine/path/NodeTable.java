@@ -0,0 +1,118 @@
+package com.rivet.engine.path;
+
+import java.util.Arrays;
+
+/**
+ * Узлы поиска пути: упакованные координаты, стоимость, родитель, признак закрытия
+ *
+ * Узлы хранятся в параллельных примитивных массивах по номеру, номер узла
+ * находится по ключу в таблице с открытой адресацией. Очистка между
+ * поисками - смена поколения без обхода массивов; после прогрева таблица
+ * не создает объектов.
+ */
+final class NodeTable {
+    
+    // Пустой ячейки нет: ячейка занята, если ее поколение совпадает с текущим
+    private long[] slotKeys;
+    private int[] slotNodes;
+    private int[] slotStamps;
+    private int slotMask;
+    private int stamp = 1;
+    
+    long[] keys;
+    int[] costs;
+    int[] parents;
+    boolean[] closed;
+    private int count = 0;
+    
+    /**
+     * @param capacity начальное количество узлов
+     */
+    NodeTable(int capacity) {
+        keys = new long[capacity];
+        costs = new int[capacity];
+        parents = new int[capacity];
+        closed = new boolean[capacity];
+        allocateSlots(Integer.highestOneBit(capacity) * 4);
+    }
+    
+    /**
+     * Удалить все узлы
+     */
+    void clear() {
+        count = 0;
+        if (++stamp == 0) {
+            Arrays.fill(slotStamps, 0);
+            stamp = 1;
+        }
+    }
+    
+    /**
+     * Найти узел по ключу или добавить новый
+     * Новый узел открыт, без родителя и с бесконечной стоимостью.
+     * @param key упакованные координаты
+     * @return номер узла
+     */
+    int nodeFor(long key) {
+        int i = mix(key) & slotMask;
+        while (slotStamps[i] == stamp) {
+            if (slotKeys[i] == key) {
+                return slotNodes[i];
+            }
+            i = (i + 1) & slotMask;
+        }
+        
+        if (count == keys.length) {
+            int capacity = keys.length * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            costs = Arrays.copyOf(costs, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            closed = Arrays.copyOf(closed, capacity);
+        }
+        int node = count++;
+        keys[node] = key;
+        costs[node] = Integer.MAX_VALUE;
+        parents[node] = -1;
+        closed[node] = false;
+        
+        slotKeys[i] = key;
+        slotNodes[i] = node;
+        slotStamps[i] = stamp;
+        if (count * 2 > slotMask) {
+            rehash();
+        }
+        return node;
+    }
+    
+    int size() {
+        return count;
+    }
+    
+    private void allocateSlots(int capacity) {
+        slotKeys = new long[capacity];
+        slotNodes = new int[capacity];
+        slotStamps = new int[capacity];
+        slotMask = capacity - 1;
+    }
+    
+    private void rehash() {
+        allocateSlots((slotMask + 1) * 2);
+        stamp = 1;
+        for (int node = 0; node < count; node++) {
+            int i = mix(keys[node]) & slotMask;
+            while (slotStamps[i] == stamp) {
+                i = (i + 1) & slotMask;
+            }
+            slotKeys[i] = keys[node];
+            slotNodes[i] = node;
+            slotStamps[i] = stamp;
+        }
+    }
+    
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        h ^= h >>> 16;
+        return (int) h;
+    }
+}
@@ -0,0 +1,144 @@
+package com.rivet.engine.path;
+
+import com.rivet.engine.world.ChunkPos;
+
+/**
+ * Найденный путь: позиции ног от старта до цели (или до ближайшей к цели позиции)
+ *
+ * Позиции упакованы {@link ChunkPos#packSection} в мировых координатах блоков.
+ * Неизменяемый, один путь из кэша может разделяться несколькими сущностями.
+ */
+public final class Path {
+    
+    private final long[] nodes;
+    private final long start;
+    private final long goal;
+    private final boolean complete;
+    private final int expandedNodes;
+    
+    // Границы позиций пути для проверки изменений блоков
+    private final int minX;
+    private final int minY;
+    private final int minZ;
+    private final int maxX;
+    private final int maxY;
+    private final int maxZ;
+    
+    Path(long[] nodes, long start, long goal, boolean complete, int expandedNodes) {
+        this.nodes = nodes;
+        this.start = start;
+        this.goal = goal;
+        this.complete = complete;
+        this.expandedNodes = expandedNodes;
+        
+        int x0 = Integer.MAX_VALUE;
+        int y0 = Integer.MAX_VALUE;
+        int z0 = Integer.MAX_VALUE;
+        int x1 = Integer.MIN_VALUE;
+        int y1 = Integer.MIN_VALUE;
+        int z1 = Integer.MIN_VALUE;
+        for (long node : nodes) {
+            x0 = Math.min(x0, ChunkPos.sectionX(node));
+            y0 = Math.min(y0, ChunkPos.sectionY(node));
+            z0 = Math.min(z0, ChunkPos.sectionZ(node));
+            x1 = Math.max(x1, ChunkPos.sectionX(node));
+            y1 = Math.max(y1, ChunkPos.sectionY(node));
+            z1 = Math.max(z1, ChunkPos.sectionZ(node));
+        }
+        this.minX = x0;
+        this.minY = y0;
+        this.minZ = z0;
+        this.maxX = x1;
+        this.maxY = y1;
+        this.maxZ = z1;
+    }
+    
+    /**
+     * Проверить, зависит ли путь от блока
+     * Переход использует блок под ногами, колонну над ногами с запасом на
+     * прыжок и падение и соседние колонны для диагоналей.
+     * @return true если изменение блока может сделать путь непроходимым
+     */
+    boolean dependsOn(int x, int y, int z) {
+        if (x < minX - 1 || x > maxX + 1 || z < minZ - 1 || z > maxZ + 1
+                || y < minY - 1 || y > maxY + PathFinder.MAX_DROP + 1) {
+            return false;
+        }
+        for (long node : nodes) {
+            int nodeY = ChunkPos.sectionY(node);
+            if (Math.abs(ChunkPos.sectionX(node) - x) <= 1 && Math.abs(ChunkPos.sectionZ(node) - z) <= 1
+                    && y >= nodeY - 1 && y <= nodeY + PathFinder.MAX_DROP + 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Проверить, проходит ли путь через чанк или рядом с его границей
+     * @param chunkX координата X чанка
+     * @param chunkZ координата Z чанка
+     * @return true если путь зависит от блоков чанка
+     */
+    boolean crossesChunk(int chunkX, int chunkZ) {
+        return (minX - 1) >> 4 <= chunkX && (maxX + 1) >> 4 >= chunkX
+            && (minZ - 1) >> 4 <= chunkZ && (maxZ + 1) >> 4 >= chunkZ;
+    }
+    
+    /**
+     * Получить количество позиций (со стартом)
+     * @return длина пути
+     */
+    public int length() {
+        return nodes.length;
+    }
+    
+    /**
+     * Получить упакованную позицию
+     * @param index номер позиции от старта
+     * @return ключ {@link ChunkPos#packSection}
+     */
+    public long getNode(int index) {
+        return nodes[index];
+    }
+    
+    public int getX(int index) {
+        return ChunkPos.sectionX(nodes[index]);
+    }
+    
+    public int getY(int index) {
+        return ChunkPos.sectionY(nodes[index]);
+    }
+    
+    public int getZ(int index) {
+        return ChunkPos.sectionZ(nodes[index]);
+    }
+    
+    public long getStart() {
+        return start;
+    }
+    
+    /**
+     * Получить запрошенную цель
+     * @return ключ цели (последняя позиция совпадает с ним только для полного пути)
+     */
+    public long getGoal() {
+        return goal;
+    }
+    
+    /**
+     * Проверить, доходит ли путь до цели
+     * @return false если поиск исчерпал лимит узлов или цель недостижима
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+    
+    /**
+     * Получить количество раскрытых узлов поиска
+     * @return количество узлов
+     */
+    public int getExpandedNodes() {
+        return expandedNodes;
+    }
+}
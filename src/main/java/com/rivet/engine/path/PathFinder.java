@@ -0,0 +1,315 @@
+package com.rivet.engine.path;
+
+import com.rivet.engine.world.Blocks;
+import com.rivet.engine.world.Chunk;
+import com.rivet.engine.world.ChunkPos;
+import com.rivet.engine.world.World;
+
+import java.util.Arrays;
+
+/**
+ * Поиск пути A* по воксельной сетке для сущности шириной 1 и высотой 2 блока
+ *
+ * Позиция проходима, если под ногами непрозрачный блок, а два блока над ним
+ * прозрачны. Из позиции можно шагнуть в 8 соседних колонн: по прямой - на
+ * тот же уровень, на блок вверх (если над головой есть место) или вниз не
+ * больше чем на {@link #MAX_DROP} блоков; по диагонали - только на том же
+ * уровне и без срезания углов. Незагруженные чанки непроходимы.
+ *
+ * Узлы - упакованные {@link ChunkPos#packSection} координаты в таблице с
+ * открытой адресацией, открытый список - куча long (f, h, номер узла), так
+ * что при равной оценке первым раскрывается узел ближе к цели. Поиск можно
+ * выполнять частями ({@link #step}); при исчерпании лимита узлов
+ * возвращается путь к раскрытой позиции, ближайшей к цели.
+ * Читает мир из любого потока; экземпляр не потокобезопасен.
+ */
+public final class PathFinder {
+    
+    public static final int MAX_DROP = 3;
+    
+    // Верхняя граница лимита узлов: номер узла должен помещаться в FIELD_BITS
+    public static final int MAX_NODES = 1 << 16;
+    
+    // Стоимости шагов (1 блок = 10)
+    private static final int STRAIGHT_COST = 10;
+    private static final int DIAGONAL_COST = 14;
+    private static final int VERTICAL_COST = 4;
+    
+    private static final int FIELD_BITS = 21;
+    private static final int FIELD_MASK = (1 << FIELD_BITS) - 1;
+    
+    private static final int UNLOADED = -1;
+    
+    private static final int CHUNK_CACHE_BITS = 2;
+    private static final int CHUNK_CACHE_MASK = (1 << CHUNK_CACHE_BITS) - 1;
+    
+    private static final int[] DIRECTION_X = { 1, -1, 0, 0, 1, 1, -1, -1 };
+    private static final int[] DIRECTION_Z = { 0, 0, 1, -1, 1, -1, 1, -1 };
+    
+    private final World world;
+    private final NodeTable nodes = new NodeTable(1024);
+    private final NodeHeap open = new NodeHeap(1024);
+    
+    private long start;
+    private long goal;
+    private int goalX;
+    private int goalY;
+    private int goalZ;
+    private int maxNodes;
+    private int expanded;
+    private int bestNode;
+    private int bestEstimate;
+    private boolean found;
+    private boolean finished = true;
+    
+    // Прочитанные чанки: прямое отображение 4x4, соседние чанки не вытесняют друг друга
+    private final Chunk[] chunkCache = new Chunk[1 << (2 * CHUNK_CACHE_BITS)];
+    
+    public PathFinder(World world) {
+        this.world = world;
+    }
+    
+    /**
+     * Найти путь целиком в текущем потоке
+     * @return путь или null если старт непроходим
+     */
+    public Path find(int startX, int startY, int startZ, int goalX, int goalY, int goalZ, int maxNodes) {
+        begin(startX, startY, startZ, goalX, goalY, goalZ, maxNodes);
+        while (!finished) {
+            step(maxNodes);
+        }
+        return buildPath();
+    }
+    
+    /**
+     * Начать поиск
+     * @param maxNodes лимит раскрытых узлов (не больше {@link #MAX_NODES})
+     */
+    public void begin(int startX, int startY, int startZ, int goalX, int goalY, int goalZ, int maxNodes) {
+        nodes.clear();
+        open.clear();
+        Arrays.fill(chunkCache, null);
+        this.start = ChunkPos.packSection(startX, startY, startZ);
+        this.goal = ChunkPos.packSection(goalX, goalY, goalZ);
+        this.goalX = goalX;
+        this.goalY = goalY;
+        this.goalZ = goalZ;
+        this.maxNodes = Math.max(1, Math.min(maxNodes, MAX_NODES));
+        this.expanded = 0;
+        this.found = false;
+        this.bestNode = -1;
+        
+        if (!standable(startX, startY, startZ)) {
+            finished = true;
+            return;
+        }
+        int node = nodes.nodeFor(start);
+        nodes.costs[node] = 0;
+        int estimate = estimate(startX, startY, startZ);
+        bestNode = node;
+        bestEstimate = estimate;
+        open.push(entry(estimate, estimate, node));
+        finished = false;
+    }
+    
+    /**
+     * Продолжить поиск
+     * @param budget максимум раскрываемых узлов
+     * @return количество раскрытых узлов
+     */
+    public int step(int budget) {
+        int done = 0;
+        while (done < budget && !finished) {
+            if (open.isEmpty() || expanded >= maxNodes) {
+                finished = true;
+                break;
+            }
+            long entry = open.pop();
+            int node = (int) entry & FIELD_MASK;
+            if (nodes.closed[node]) {
+                continue;
+            }
+            nodes.closed[node] = true;
+            expanded++;
+            done++;
+            
+            long key = nodes.keys[node];
+            if (key == goal) {
+                found = true;
+                bestNode = node;
+                finished = true;
+                break;
+            }
+            int estimate = (int) (entry >>> FIELD_BITS) & FIELD_MASK;
+            if (estimate < bestEstimate) {
+                bestEstimate = estimate;
+                bestNode = node;
+            }
+            expand(node, ChunkPos.sectionX(key), ChunkPos.sectionY(key), ChunkPos.sectionZ(key));
+        }
+        return done;
+    }
+    
+    private void expand(int node, int x, int y, int z) {
+        int cost = nodes.costs[node];
+        boolean headroom = isPassable(x, y + 2, z);
+        // Биты прямых направлений, в которых колонна свободна на высоту сущности
+        int free = 0;
+        for (int d = 0; d < 4; d++) {
+            int nextX = x + DIRECTION_X[d];
+            int nextZ = z + DIRECTION_Z[d];
+            if (!isPassable(nextX, y, nextZ) || !isPassable(nextX, y + 1, nextZ)) {
+                if (headroom && standable(nextX, y + 1, nextZ)) {
+                    relax(node, nextX, y + 1, nextZ, cost + STRAIGHT_COST + VERTICAL_COST);
+                }
+                continue;
+            }
+            free |= 1 << d;
+            if (isSolid(nextX, y - 1, nextZ)) {
+                relax(node, nextX, y, nextZ, cost + STRAIGHT_COST);
+                continue;
+            }
+            // Опоры нет: падение до первого непрозрачного блока
+            for (int drop = 1; drop <= MAX_DROP; drop++) {
+                int landY = y - drop;
+                if (!isPassable(nextX, landY, nextZ)) {
+                    break;
+                }
+                if (isSolid(nextX, landY - 1, nextZ)) {
+                    relax(node, nextX, landY, nextZ, cost + STRAIGHT_COST + VERTICAL_COST * drop);
+                    break;
+                }
+            }
+        }
+        
+        // Диагональ: обе боковые колонны свободны (без срезания углов), уровень тот же
+        for (int d = 4; d < DIRECTION_X.length; d++) {
+            int sides = (DIRECTION_X[d] > 0 ? 1 : 2) | (DIRECTION_Z[d] > 0 ? 4 : 8);
+            if ((free & sides) != sides) {
+                continue;
+            }
+            int nextX = x + DIRECTION_X[d];
+            int nextZ = z + DIRECTION_Z[d];
+            if (standable(nextX, y, nextZ)) {
+                relax(node, nextX, y, nextZ, cost + DIAGONAL_COST);
+            }
+        }
+    }
+    
+    private void relax(int parent, int x, int y, int z, int cost) {
+        int node = nodes.nodeFor(ChunkPos.packSection(x, y, z));
+        if (nodes.closed[node] || cost >= nodes.costs[node]) {
+            return;
+        }
+        nodes.costs[node] = cost;
+        nodes.parents[node] = parent;
+        int estimate = estimate(x, y, z);
+        open.push(entry(Math.min(cost + estimate, FIELD_MASK), estimate, node));
+    }
+    
+    /**
+     * Оценка стоимости до цели: октильное расстояние по горизонтали плюс
+     * вертикальная надбавка; не больше реальной стоимости любого пути
+     */
+    private int estimate(int x, int y, int z) {
+        int dx = Math.abs(x - goalX);
+        int dz = Math.abs(z - goalZ);
+        int estimate = STRAIGHT_COST * Math.max(dx, dz) + (DIAGONAL_COST - STRAIGHT_COST) * Math.min(dx, dz)
+            + VERTICAL_COST * Math.abs(y - goalY);
+        return Math.min(estimate, FIELD_MASK);
+    }
+    
+    private static long entry(int total, int estimate, int node) {
+        return (long) total << (2 * FIELD_BITS) | (long) estimate << FIELD_BITS | node;
+    }
+    
+    /**
+     * Собрать путь от старта до цели или до ближайшей к цели раскрытой позиции
+     * @return путь или null если старт непроходим
+     */
+    public Path buildPath() {
+        if (bestNode < 0) {
+            return null;
+        }
+        int length = 0;
+        for (int node = bestNode; node >= 0; node = nodes.parents[node]) {
+            length++;
+        }
+        long[] path = new long[length];
+        for (int node = bestNode, i = length - 1; node >= 0; node = nodes.parents[node], i--) {
+            path[i] = nodes.keys[node];
+        }
+        return new Path(path, start, goal, found, expanded);
+    }
+    
+    /**
+     * Проверить, может ли сущность стоять в позиции
+     * Чанки читаются заново: между поисками их могли выгрузить.
+     * @return true если под ногами непрозрачный блок, а два блока над ним свободны
+     */
+    public boolean isStandable(int x, int y, int z) {
+        Arrays.fill(chunkCache, null);
+        return standable(x, y, z);
+    }
+    
+    private boolean standable(int x, int y, int z) {
+        return isSolid(x, y - 1, z) && isPassable(x, y, z) && isPassable(x, y + 1, z);
+    }
+    
+    private boolean isPassable(int x, int y, int z) {
+        if (y < 0) {
+            return false;
+        }
+        if (y >= Chunk.HEIGHT) {
+            return true;
+        }
+        int id = getBlock(x, y, z);
+        return id != UNLOADED && !Blocks.isOpaque(id);
+    }
+    
+    private boolean isSolid(int x, int y, int z) {
+        if (y < 0) {
+            return true;
+        }
+        if (y >= Chunk.HEIGHT) {
+            return false;
+        }
+        int id = getBlock(x, y, z);
+        return id != UNLOADED && Blocks.isOpaque(id);
+    }
+    
+    private int getBlock(int x, int y, int z) {
+        int chunkX = x >> 4;
+        int chunkZ = z >> 4;
+        int slot = (chunkX & CHUNK_CACHE_MASK) << CHUNK_CACHE_BITS | (chunkZ & CHUNK_CACHE_MASK);
+        Chunk chunk = chunkCache[slot];
+        if (chunk == null || chunk.getChunkX() != chunkX || chunk.getChunkZ() != chunkZ) {
+            chunk = world.getChunk(chunkX, chunkZ);
+            if (chunk == null) {
+                return UNLOADED;
+            }
+            chunkCache[slot] = chunk;
+        }
+        return chunk.getBlock(x & 15, y, z & 15);
+    }
+    
+    /**
+     * Проверить, закончен ли поиск
+     * @return true если цель достигнута, лимит исчерпан или узлов больше нет
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+    
+    public boolean isFound() {
+        return found;
+    }
+    
+    /**
+     * Получить количество раскрытых узлов текущего поиска
+     * @return количество узлов
+     */
+    public int getExpandedCount() {
+        return expanded;
+    }
+}
@@ -0,0 +1,94 @@
+package com.rivet.engine.path;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Запрос пути, поставленный в {@link PathfindingService}
+ *
+ * Сущность опрашивает {@link #isDone()} в своих тиках и берет путь, когда
+ * он готов. Отмена снимает запрос из очереди или прерывает начатый поиск
+ * между порциями узлов.
+ */
+public final class PathRequest {
+    
+    public static final int PENDING = 0;
+    public static final int SEARCHING = 1;
+    public static final int DONE = 2;
+    public static final int CANCELLED = 3;
+    
+    final long start;
+    final long goal;
+    final int maxNodes;
+    // Номер изменения проходимости мира при постановке: по нему решается, можно ли кэшировать путь
+    final long stamp;
+    
+    private final AtomicInteger state;
+    private volatile Path path;
+    
+    PathRequest(long start, long goal, int maxNodes, long stamp) {
+        this.start = start;
+        this.goal = goal;
+        this.maxNodes = maxNodes;
+        this.stamp = stamp;
+        this.state = new AtomicInteger(PENDING);
+    }
+    
+    /**
+     * Готовый запрос с путем из кэша
+     */
+    PathRequest(Path path, long stamp) {
+        this.start = path.getStart();
+        this.goal = path.getGoal();
+        this.maxNodes = 0;
+        this.stamp = stamp;
+        this.path = path;
+        this.state = new AtomicInteger(DONE);
+    }
+    
+    /**
+     * Взять запрос в работу (рабочий поток)
+     * @return false если запрос отменен
+     */
+    boolean begin() {
+        return state.compareAndSet(PENDING, SEARCHING);
+    }
+    
+    /**
+     * Опубликовать результат (рабочий поток)
+     * @return false если запрос отменен во время поиска
+     */
+    boolean complete(Path result) {
+        path = result;
+        return state.compareAndSet(SEARCHING, DONE);
+    }
+    
+    /**
+     * Отменить запрос
+     * @return true если путь не будет опубликован
+     */
+    public boolean cancel() {
+        return state.compareAndSet(PENDING, CANCELLED) || state.compareAndSet(SEARCHING, CANCELLED)
+            || state.get() == CANCELLED;
+    }
+    
+    public boolean isDone() {
+        return state.get() == DONE;
+    }
+    
+    public boolean isCancelled() {
+        return state.get() == CANCELLED;
+    }
+    
+    public int getState() {
+        return state.get();
+    }
+    
+    /**
+     * Получить путь
+     * @return путь (возможно неполный, см. {@link Path#isComplete()}) или null до
+     *         завершения и если стартовая позиция непроходима
+     */
+    public Path getPath() {
+        return state.get() == DONE ? path : null;
+    }
+}
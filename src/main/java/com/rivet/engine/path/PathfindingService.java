@@ -0,0 +1,303 @@
+package com.rivet.engine.path;
+
+import com.rivet.engine.util.LongObjectHashMap;
+import com.rivet.engine.world.BlockChangeListener;
+import com.rivet.engine.world.Blocks;
+import com.rivet.engine.world.Chunk;
+import com.rivet.engine.world.ChunkListener;
+import com.rivet.engine.world.ChunkPos;
+import com.rivet.engine.world.World;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Сервис поиска пути для сущностей
+ *
+ * Запросы выполняются рабочими потоками по очереди, у каждого потока свой
+ * {@link PathFinder}. Поиск идет порциями по {@link #SLICE_NODES} узлов,
+ * и каждая порция берется из бюджета узлов тика: когда бюджет исчерпан,
+ * рабочие потоки ждут следующего {@link #update()}, сохраняя состояние
+ * поиска. Так сотни одновременных запросов растягиваются на несколько
+ * тиков и не занимают ядра целиком.
+ *
+ * Полные пути кэшируются по паре (старт, цель). Кэш сбрасывается точечно:
+ * изменение блока, меняющее проходимость, удаляет пути рядом с ним, а
+ * выгрузка чанка - пути через него. Путь, при поиске которого проходимость
+ * мира менялась, отдается запросу, но не кэшируется.
+ * Методы постановки, слушателей и {@link #update()} вызываются только из
+ * потока-писателя мира.
+ */
+public class PathfindingService implements BlockChangeListener, ChunkListener {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PathfindingService.class);
+    
+    public static final int DEFAULT_MAX_NODES = 4096;
+    
+    // Узлов в порции поиска между проверками бюджета и отмены
+    static final int SLICE_NODES = 256;
+    
+    private final World world;
+    private final int nodesPerTick;
+    private final Thread[] workers;
+    private final LinkedBlockingQueue<PathRequest> queue = new LinkedBlockingQueue<>();
+    private final ConcurrentLinkedQueue<PathRequest> completed = new ConcurrentLinkedQueue<>();
+    private final Semaphore budget = new Semaphore(0);
+    private final AtomicInteger expandedThisTick = new AtomicInteger();
+    
+    // Кэш путей: таблица по ключу пары и кольцо вытеснения в порядке добавления
+    private final LongObjectHashMap<Path> cache;
+    private final Path[] cacheRing;
+    private int cacheNext = 0;
+    
+    // Счетчик изменений проходимости (поток-писатель)
+    private long changeCount = 0;
+    
+    // Метрики
+    private volatile long requestCount = 0;
+    private volatile long cacheHits = 0;
+    private volatile long searchCount = 0;
+    private volatile int lastTickNodes = 0;
+    
+    /**
+     * @param world мир
+     * @param threads количество рабочих потоков
+     * @param nodesPerTick бюджет раскрываемых узлов на тик для всех потоков
+     * @param cacheCapacity количество кэшируемых путей
+     */
+    public PathfindingService(World world, int threads, int nodesPerTick, int cacheCapacity) {
+        this.world = world;
+        this.nodesPerTick = Math.max(SLICE_NODES, nodesPerTick);
+        this.cache = new LongObjectHashMap<>(cacheCapacity);
+        this.cacheRing = new Path[Math.max(1, cacheCapacity)];
+        
+        this.workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            Thread thread = new Thread(this::work, "PathFinder-" + (i + 1));
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            workers[i] = thread;
+            thread.start();
+        }
+        
+        logger.info("PathfindingService: {} рабочих потоков, {} узлов на тик, кэш {} путей",
+            threads, this.nodesPerTick, cacheRing.length);
+    }
+    
+    /**
+     * Запросить путь с лимитом {@link #DEFAULT_MAX_NODES} узлов
+     * @return запрос (готовый сразу, если путь есть в кэше)
+     */
+    public PathRequest submit(int startX, int startY, int startZ, int goalX, int goalY, int goalZ) {
+        return submit(startX, startY, startZ, goalX, goalY, goalZ, DEFAULT_MAX_NODES);
+    }
+    
+    /**
+     * Запросить путь
+     * Координаты - блоки, в которых находятся ноги сущности и цель.
+     * @param maxNodes лимит раскрытых узлов (не больше {@link PathFinder#MAX_NODES})
+     * @return запрос (готовый сразу, если путь есть в кэше)
+     */
+    public PathRequest submit(int startX, int startY, int startZ, int goalX, int goalY, int goalZ, int maxNodes) {
+        long start = ChunkPos.packSection(startX, startY, startZ);
+        long goal = ChunkPos.packSection(goalX, goalY, goalZ);
+        requestCount++;
+        
+        Path cached = cache.get(cacheKey(start, goal));
+        if (cached != null && cached.getStart() == start && cached.getGoal() == goal) {
+            cacheHits++;
+            return new PathRequest(cached, changeCount);
+        }
+        
+        PathRequest request = new PathRequest(start, goal, maxNodes, changeCount);
+        queue.add(request);
+        return request;
+    }
+    
+    /**
+     * Перенести готовые пути в кэш и выдать бюджет узлов на следующий тик
+     */
+    public void update() {
+        PathRequest request;
+        while ((request = completed.poll()) != null) {
+            searchCount++;
+            Path path = request.getPath();
+            if (path != null && path.isComplete() && request.stamp == changeCount) {
+                cachePath(path);
+            }
+        }
+        
+        lastTickNodes = expandedThisTick.getAndSet(0);
+        // Неизрасходованный бюджет не копится: после простоя тик не получает двойную порцию
+        budget.drainPermits();
+        budget.release(nodesPerTick);
+    }
+    
+    private void cachePath(Path path) {
+        Path evicted = cacheRing[cacheNext];
+        if (evicted != null) {
+            long key = cacheKey(evicted.getStart(), evicted.getGoal());
+            if (cache.get(key) == evicted) {
+                cache.remove(key);
+            }
+        }
+        cacheRing[cacheNext] = path;
+        cacheNext = (cacheNext + 1) % cacheRing.length;
+        cache.put(cacheKey(path.getStart(), path.getGoal()), path);
+    }
+    
+    private static long cacheKey(long start, long goal) {
+        return start * 0x9E3779B97F4A7C15L ^ goal;
+    }
+    
+    /**
+     * Цикл рабочего потока
+     */
+    private void work() {
+        PathFinder finder = new PathFinder(world);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                PathRequest request = queue.take();
+                if (request.begin()) {
+                    search(finder, request);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void search(PathFinder finder, PathRequest request) throws InterruptedException {
+        Path path;
+        try {
+            finder.begin(ChunkPos.sectionX(request.start), ChunkPos.sectionY(request.start),
+                ChunkPos.sectionZ(request.start), ChunkPos.sectionX(request.goal),
+                ChunkPos.sectionY(request.goal), ChunkPos.sectionZ(request.goal), request.maxNodes);
+            while (!finder.isFinished()) {
+                if (request.isCancelled()) {
+                    return;
+                }
+                budget.acquire(SLICE_NODES);
+                int used = finder.step(SLICE_NODES);
+                if (used < SLICE_NODES) {
+                    budget.release(SLICE_NODES - used);
+                }
+                expandedThisTick.addAndGet(used);
+            }
+            path = finder.buildPath();
+        } catch (RuntimeException e) {
+            logger.error("Ошибка поиска пути", e);
+            path = null;
+        }
+        if (request.complete(path)) {
+            completed.add(request);
+        }
+    }
+    
+    @Override
+    public void onBlockChanged(int x, int y, int z, int oldId, int newId) {
+        // Трава и земля одинаково непрозрачны: тики травы не трогают кэш
+        if (Blocks.isOpaque(oldId) == Blocks.isOpaque(newId)) {
+            return;
+        }
+        changeCount++;
+        for (int i = 0; i < cacheRing.length; i++) {
+            Path path = cacheRing[i];
+            if (path != null && path.dependsOn(x, y, z)) {
+                evict(i, path);
+            }
+        }
+    }
+    
+    @Override
+    public void onChunkLoaded(Chunk chunk) {
+        // Новый чанк не делает существующие пути непроходимыми
+    }
+    
+    @Override
+    public void onChunkUnloaded(Chunk chunk) {
+        changeCount++;
+        for (int i = 0; i < cacheRing.length; i++) {
+            Path path = cacheRing[i];
+            if (path != null && path.crossesChunk(chunk.getChunkX(), chunk.getChunkZ())) {
+                evict(i, path);
+            }
+        }
+    }
+    
+    private void evict(int slot, Path path) {
+        long key = cacheKey(path.getStart(), path.getGoal());
+        if (cache.get(key) == path) {
+            cache.remove(key);
+        }
+        cacheRing[slot] = null;
+    }
+    
+    /**
+     * Остановить рабочие потоки и отменить ожидающие запросы
+     */
+    public void shutdown() {
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join(1000L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        PathRequest request;
+        while ((request = queue.poll()) != null) {
+            request.cancel();
+        }
+        cache.clear();
+        Arrays.fill(cacheRing, null);
+    }
+    
+    /**
+     * Получить количество запросов в очереди
+     * @return запросы, еще не взятые рабочими потоками
+     */
+    public int getQueuedCount() {
+        return queue.size();
+    }
+    
+    public int getCachedCount() {
+        return cache.size();
+    }
+    
+    public long getRequestCount() {
+        return requestCount;
+    }
+    
+    public long getCacheHits() {
+        return cacheHits;
+    }
+    
+    /**
+     * Получить количество завершенных поисков
+     * @return поиски без учета попаданий в кэш и отмененных
+     */
+    public long getSearchCount() {
+        return searchCount;
+    }
+    
+    /**
+     * Получить количество узлов, раскрытых за предыдущий тик
+     * @return количество узлов
+     */
+    public int getLastTickNodes() {
+        return lastTickNodes;
+    }
+    
+    public int getNodesPerTick() {
+        return nodesPerTick;
+    }
+}
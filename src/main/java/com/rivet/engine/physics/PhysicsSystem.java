@@ -0,0 +1,224 @@
+package com.rivet.engine.physics;
+
+import com.rivet.engine.entity.BodyStore;
+import com.rivet.engine.entity.BoundsStore;
+import com.rivet.engine.entity.PositionStore;
+import com.rivet.engine.entity.VelocityStore;
+import com.rivet.engine.world.World;
+
+import java.util.Arrays;
+
+/**
+ * Шаг физики тел: гравитация, расталкивание пересекающихся тел и
+ * столкновения с блоками
+ *
+ * Каждый шаг границы тел заново раскладываются по {@link SpatialHash}, пары
+ * пересекающихся тел получают смещение расталкивания по горизонтали (оно
+ * не копится в скорости), затем каждое тело перемещается через
+ * {@link VoxelCollider}. Все выполняется
+ * последовательно в порядке плотного массива тел, поэтому результат при
+ * одинаковом входе одинаков. Время тика делится на шаги фиксированной длины
+ * {@link #STEP} ({@link #advance(float)}), так что результат не зависит и от
+ * частоты тиков. Вызывается только из потока-писателя мира.
+ */
+public final class PhysicsSystem {
+    
+    public static final float GRAVITY = 28.0f;
+    public static final float TERMINAL_VELOCITY = 60.0f;
+    public static final float STEP = 1.0f / 60.0f;
+    
+    // Максимум шагов за тик: после долгой паузы время не догоняется
+    private static final int MAX_STEPS = 8;
+    // Погрешность суммы float-тиков: тик 1/20 с должен давать ровно 3 шага
+    private static final double STEP_EPSILON = 1.0e-6;
+    
+    // Скорость расталкивания на блок взаимного проникновения, 1/с
+    private static final float SEPARATION_RATE = 8.0f;
+    private static final float CELL_SIZE = 2.0f;
+    
+    private final PositionStore positions;
+    private final VelocityStore velocities;
+    private final BoundsStore bounds;
+    private final BodyStore bodies;
+    private final VoxelCollider collider;
+    private final SpatialHash hash = new SpatialHash(CELL_SIZE, 1024);
+    private final SpatialHash.PairVisitor separate = this::separate;
+    
+    // Скорость расталкивания тел на текущий шаг, по плотному индексу тела
+    private float[] pushX = new float[0];
+    private float[] pushZ = new float[0];
+    private double accumulator = 0.0;
+    
+    // Метрики последнего шага
+    private int lastPairCount = 0;
+    private int lastCollisionCount = 0;
+    
+    public PhysicsSystem(World world, PositionStore positions, VelocityStore velocities,
+                         BoundsStore bounds, BodyStore bodies) {
+        this.positions = positions;
+        this.velocities = velocities;
+        this.bounds = bounds;
+        this.bodies = bodies;
+        this.collider = new VoxelCollider(world);
+    }
+    
+    /**
+     * Продвинуть физику на время тика шагами {@link #STEP}
+     * Остаток переносится в следующий вызов.
+     * @param deltaTime время тика в секундах
+     * @return количество выполненных шагов
+     */
+    public int advance(float deltaTime) {
+        accumulator += deltaTime;
+        int steps = 0;
+        while (accumulator > STEP - STEP_EPSILON && steps < MAX_STEPS) {
+            step(STEP);
+            accumulator -= STEP;
+            steps++;
+        }
+        if (steps == MAX_STEPS) {
+            accumulator = 0.0;
+        }
+        return steps;
+    }
+    
+    /**
+     * Выполнить один шаг физики
+     * @param deltaTime фиксированный шаг в секундах
+     */
+    public void step(float deltaTime) {
+        rebuildHash();
+        
+        int count = bodies.size();
+        if (pushX.length < count) {
+            pushX = new float[Math.max(16, count * 2)];
+            pushZ = new float[pushX.length];
+        }
+        Arrays.fill(pushX, 0, count, 0.0f);
+        Arrays.fill(pushZ, 0, count, 0.0f);
+        lastPairCount = 0;
+        hash.forEachPair(separate);
+        
+        float[] gravity = bodies.getGravity();
+        int[] flags = bodies.getFlags();
+        float[] px = positions.getX();
+        float[] py = positions.getY();
+        float[] pz = positions.getZ();
+        float[] vx = velocities.getX();
+        float[] vy = velocities.getY();
+        float[] vz = velocities.getZ();
+        float[] minX = bounds.getMinX();
+        float[] minY = bounds.getMinY();
+        float[] minZ = bounds.getMinZ();
+        float[] maxX = bounds.getMaxX();
+        float[] maxY = bounds.getMaxY();
+        float[] maxZ = bounds.getMaxZ();
+        
+        int collisions = 0;
+        for (int i = 0; i < count; i++) {
+            int entity = bodies.entityAt(i);
+            int p = positions.indexOf(entity);
+            int v = velocities.indexOf(entity);
+            int b = bounds.indexOf(entity);
+            if (p < 0 || v < 0 || b < 0) {
+                continue;
+            }
+            
+            vy[v] = Math.max(-TERMINAL_VELOCITY, vy[v] - GRAVITY * gravity[i] * deltaTime);
+            int result = collider.move(minX[b], minY[b], minZ[b], maxX[b], maxY[b], maxZ[b],
+                (vx[v] + pushX[i]) * deltaTime, vy[v] * deltaTime, (vz[v] + pushZ[i]) * deltaTime);
+            
+            px[p] += collider.getMovedX();
+            py[p] += collider.getMovedY();
+            pz[p] += collider.getMovedZ();
+            if ((result & VoxelCollider.COLLIDED_X) != 0) {
+                vx[v] = 0.0f;
+            }
+            if ((result & VoxelCollider.COLLIDED_Y) != 0) {
+                vy[v] = 0.0f;
+            }
+            if ((result & VoxelCollider.COLLIDED_Z) != 0) {
+                vz[v] = 0.0f;
+            }
+            if ((result & (VoxelCollider.COLLIDED_X | VoxelCollider.COLLIDED_Z)) != 0) {
+                collisions++;
+            }
+            flags[i] = result;
+            bounds.update(b, px[p], py[p], pz[p]);
+        }
+        lastCollisionCount = collisions;
+    }
+    
+    private void rebuildHash() {
+        float[] minX = bounds.getMinX();
+        float[] minY = bounds.getMinY();
+        float[] minZ = bounds.getMinZ();
+        float[] maxX = bounds.getMaxX();
+        float[] maxY = bounds.getMaxY();
+        float[] maxZ = bounds.getMaxZ();
+        hash.clear();
+        for (int i = 0, count = bodies.size(); i < count; i++) {
+            int entity = bodies.entityAt(i);
+            int b = bounds.indexOf(entity);
+            if (b >= 0) {
+                hash.insert(entity, minX[b], minY[b], minZ[b], maxX[b], maxY[b], maxZ[b]);
+            }
+        }
+        hash.build();
+    }
+    
+    /**
+     * Развести пару пересекающихся тел по горизонтали
+     */
+    private void separate(int first, int second) {
+        int pa = positions.indexOf(first);
+        int pb = positions.indexOf(second);
+        if (pa < 0 || pb < 0) {
+            return;
+        }
+        lastPairCount++;
+        
+        float[] px = positions.getX();
+        float[] pz = positions.getZ();
+        float dx = px[pb] - px[pa];
+        float dz = pz[pb] - pz[pa];
+        float distance = (float) Math.sqrt(dx * dx + dz * dz);
+        float nx = 1.0f;
+        float nz = 0.0f;
+        if (distance > 1.0e-4f) {
+            nx = dx / distance;
+            nz = dz / distance;
+        }
+        float[] halfWidth = bounds.getHalfWidth();
+        float reach = halfWidth[bounds.indexOf(first)] + halfWidth[bounds.indexOf(second)];
+        float push = Math.max(0.0f, reach - distance) * SEPARATION_RATE * 0.5f;
+        
+        int a = bodies.indexOf(first);
+        int b = bodies.indexOf(second);
+        pushX[a] -= nx * push;
+        pushZ[a] -= nz * push;
+        pushX[b] += nx * push;
+        pushZ[b] += nz * push;
+    }
+    
+    /**
+     * Найти тела, пересекающие AABB (по границам на начало последнего шага)
+     * @param visitor посетитель сущностей
+     */
+    public void query(float minX, float minY, float minZ, float maxX, float maxY, float maxZ,
+                      SpatialHash.Visitor visitor) {
+        hash.query(minX, minY, minZ, maxX, maxY, maxZ, visitor);
+    }
+    
+    public VoxelCollider getCollider() {
+        return collider;
+    }
+    
+    public int getLastPairCount() {
+        return lastPairCount;
+    }
+    
+    public int getLastCollisionCount() {
+        return lastCollisionCount;
+    }
+}
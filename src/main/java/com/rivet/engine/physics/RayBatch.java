@@ -0,0 +1,238 @@
+package com.rivet.engine.physics;
+
+import com.rivet.engine.world.World;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Пакет лучей с параллельной трассировкой (видимость мобов, лучи взрыва)
+ *
+ * Лучи и результаты хранятся в параллельных массивах. Пакет делится на
+ * отрезки по {@link #SLICE} лучей; каждый отрезок - задача ForkJoin со
+ * своим {@link VoxelRaycaster}, объекты задач переиспользуются между
+ * вызовами. Массивы растут при добавлении, после прогрева пакет не создает
+ * объектов. Лучи добавляются и читаются из одного потока; мир во время
+ * трассировки только читается.
+ */
+public final class RayBatch {
+    
+    // Лучей в одной задаче: достаточно, чтобы окупить fork/join
+    public static final int SLICE = 64;
+    
+    private final World world;
+    private int count = 0;
+    
+    // Лучи
+    private float[] originX;
+    private float[] originY;
+    private float[] originZ;
+    private float[] dirX;
+    private float[] dirY;
+    private float[] dirZ;
+    private float[] maxDistance;
+    
+    // Результаты
+    private int[] type;
+    private int[] blockX;
+    private int[] blockY;
+    private int[] blockZ;
+    private int[] blockId;
+    private int[] face;
+    private float[] distance;
+    
+    private SliceTask[] tasks = new SliceTask[0];
+    private int taskCount = 0;
+    private final RootTask root = new RootTask();
+    
+    // Метрики
+    private long lastCastNanos = 0;
+    
+    /**
+     * Задача одного отрезка пакета
+     */
+    private final class SliceTask extends RecursiveAction {
+        final VoxelRaycaster raycaster = new VoxelRaycaster(world);
+        final RaycastResult result = new RaycastResult();
+        int from;
+        int to;
+        
+        @Override
+        protected void compute() {
+            for (int i = from; i < to; i++) {
+                raycaster.cast(originX[i], originY[i], originZ[i], dirX[i], dirY[i], dirZ[i],
+                    maxDistance[i], result);
+                type[i] = result.type;
+                blockX[i] = result.blockX;
+                blockY[i] = result.blockY;
+                blockZ[i] = result.blockZ;
+                blockId[i] = result.blockId;
+                face[i] = result.face;
+                distance[i] = result.distance;
+            }
+        }
+    }
+    
+    /**
+     * Все отрезки параллельно
+     */
+    private final class RootTask extends RecursiveAction {
+        @Override
+        protected void compute() {
+            for (int i = 0; i < taskCount; i++) {
+                tasks[i].reinitialize();
+            }
+            for (int i = 1; i < taskCount; i++) {
+                tasks[i].fork();
+            }
+            tasks[0].invoke();
+            for (int i = taskCount - 1; i >= 1; i--) {
+                tasks[i].join();
+            }
+        }
+    }
+    
+    /**
+     * @param world мир
+     * @param capacity начальная емкость в лучах
+     */
+    public RayBatch(World world, int capacity) {
+        this.world = world;
+        allocate(Math.max(1, capacity));
+    }
+    
+    /**
+     * Добавить луч
+     * @param maxDistance длина луча в блоках
+     * @return номер луча в пакете
+     */
+    public int add(float originX, float originY, float originZ, float dirX, float dirY, float dirZ,
+                   float maxDistance) {
+        if (count == this.originX.length) {
+            allocate(count * 2);
+        }
+        int index = count++;
+        this.originX[index] = originX;
+        this.originY[index] = originY;
+        this.originZ[index] = originZ;
+        this.dirX[index] = dirX;
+        this.dirY[index] = dirY;
+        this.dirZ[index] = dirZ;
+        this.maxDistance[index] = maxDistance;
+        return index;
+    }
+    
+    /**
+     * Добавить отрезок для проверки прямой видимости
+     * @return номер луча; видимость - {@link #isVisible(int)} после трассировки
+     */
+    public int addSegment(float fromX, float fromY, float fromZ, float toX, float toY, float toZ) {
+        float dx = toX - fromX;
+        float dy = toY - fromY;
+        float dz = toZ - fromZ;
+        return add(fromX, fromY, fromZ, dx, dy, dz, (float) Math.sqrt(dx * dx + dy * dy + dz * dz));
+    }
+    
+    /**
+     * Протрассировать все лучи пакета
+     * @param pool пул для параллельной трассировки (null - в текущем потоке)
+     */
+    public void cast(ForkJoinPool pool) {
+        long start = System.nanoTime();
+        int slices = (count + SLICE - 1) / SLICE;
+        if (slices > tasks.length) {
+            int old = tasks.length;
+            tasks = Arrays.copyOf(tasks, slices);
+            for (int i = old; i < slices; i++) {
+                tasks[i] = new SliceTask();
+            }
+        }
+        for (int i = 0; i < slices; i++) {
+            tasks[i].from = i * SLICE;
+            tasks[i].to = Math.min(count, (i + 1) * SLICE);
+        }
+        taskCount = slices;
+        
+        if (pool == null || slices <= 1) {
+            for (int i = 0; i < slices; i++) {
+                tasks[i].compute();
+            }
+        } else {
+            root.reinitialize();
+            pool.invoke(root);
+        }
+        lastCastNanos = System.nanoTime() - start;
+    }
+    
+    /**
+     * Удалить все лучи; емкость сохраняется
+     */
+    public void clear() {
+        count = 0;
+    }
+    
+    private void allocate(int capacity) {
+        originX = grow(originX, capacity);
+        originY = grow(originY, capacity);
+        originZ = grow(originZ, capacity);
+        dirX = grow(dirX, capacity);
+        dirY = grow(dirY, capacity);
+        dirZ = grow(dirZ, capacity);
+        maxDistance = grow(maxDistance, capacity);
+        type = grow(type, capacity);
+        blockX = grow(blockX, capacity);
+        blockY = grow(blockY, capacity);
+        blockZ = grow(blockZ, capacity);
+        blockId = grow(blockId, capacity);
+        face = grow(face, capacity);
+        distance = grow(distance, capacity);
+    }
+    
+    private static float[] grow(float[] array, int capacity) {
+        return array == null ? new float[capacity] : Arrays.copyOf(array, capacity);
+    }
+    
+    private static int[] grow(int[] array, int capacity) {
+        return array == null ? new int[capacity] : Arrays.copyOf(array, capacity);
+    }
+    
+    /**
+     * Скопировать результат луча
+     * @param index номер луча
+     * @param result результат, перезаписывается
+     */
+    public void getResult(int index, RaycastResult result) {
+        result.set(type[index], blockX[index], blockY[index], blockZ[index], blockId[index],
+            face[index], distance[index]);
+    }
+    
+    /**
+     * Проверить, что луч прошел всю длину без блоков и незагруженных чанков
+     * @param index номер луча
+     * @return true для исхода MISS
+     */
+    public boolean isVisible(int index) {
+        return type[index] == RaycastResult.MISS;
+    }
+    
+    /**
+     * Получить исход луча
+     * @return RaycastResult.MISS, BLOCK или UNLOADED
+     */
+    public int getType(int index) {
+        return type[index];
+    }
+    
+    public float getDistance(int index) {
+        return distance[index];
+    }
+    
+    public int size() {
+        return count;
+    }
+    
+    public long getLastCastNanos() {
+        return lastCastNanos;
+    }
+}
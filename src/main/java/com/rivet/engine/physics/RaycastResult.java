@@ -0,0 +1,83 @@
+package com.rivet.engine.physics;
+
+import com.rivet.engine.world.Blocks;
+
+/**
+ * Результат трассировки луча, заполняемый {@link VoxelRaycaster}
+ *
+ * Объект создается вызывающим кодом и переиспользуется между запросами.
+ */
+public final class RaycastResult {
+    
+    // Чем закончился луч
+    public static final int MISS = 0;
+    public static final int BLOCK = 1;
+    public static final int UNLOADED = 2;
+    
+    int type = MISS;
+    int blockX;
+    int blockY;
+    int blockZ;
+    int blockId = Blocks.AIR_ID;
+    int face = -1;
+    float distance;
+    
+    void set(int type, int x, int y, int z, int blockId, int face, float distance) {
+        this.type = type;
+        this.blockX = x;
+        this.blockY = y;
+        this.blockZ = z;
+        this.blockId = blockId;
+        this.face = face;
+        this.distance = distance;
+    }
+    
+    /**
+     * Проверить попадание в блок
+     * @return true если луч остановлен блоком
+     */
+    public boolean isHit() {
+        return type == BLOCK;
+    }
+    
+    /**
+     * Получить исход трассировки
+     * @return MISS, BLOCK или UNLOADED
+     */
+    public int getType() {
+        return type;
+    }
+    
+    public int getBlockX() {
+        return blockX;
+    }
+    
+    public int getBlockY() {
+        return blockY;
+    }
+    
+    public int getBlockZ() {
+        return blockZ;
+    }
+    
+    public int getBlockId() {
+        return blockId;
+    }
+    
+    /**
+     * Получить грань блока, через которую вошел луч
+     * @return константа {@link com.rivet.engine.world.Face} или -1, если луч начался внутри блока
+     */
+    public int getFace() {
+        return face;
+    }
+    
+    /**
+     * Получить расстояние от начала луча
+     * @return расстояние до точки входа в блок (BLOCK), до границы незагруженного
+     *         чанка (UNLOADED) или пройденная длина луча (MISS)
+     */
+    public float getDistance() {
+        return distance;
+    }
+}
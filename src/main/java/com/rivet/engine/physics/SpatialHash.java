@@ -0,0 +1,219 @@
+package com.rivet.engine.physics;
+
+import java.util.Arrays;
+
+/**
+ * Равномерная сетка на хеш-таблице для широкой фазы столкновений
+ *
+ * Объекты вставляются по центру своего AABB и раскладываются по корзинам
+ * сортировкой подсчетом; все данные лежат в примитивных массивах, которые
+ * переиспользуются между перестроениями. Запрос расширяется на наибольший
+ * полуразмер вставленного объекта, поэтому находит все пересечения. Объекты
+ * из разных ячеек, попавших в одну корзину, отсеиваются сравнением координат
+ * ячейки, так что каждый объект посещается один раз. При ограниченной
+ * плотности построение и поиск всех пар линейны по числу объектов.
+ */
+public final class SpatialHash {
+    
+    /**
+     * Посетитель найденного объекта
+     */
+    @FunctionalInterface
+    public interface Visitor {
+        void accept(int id);
+    }
+    
+    /**
+     * Посетитель пары пересекающихся объектов
+     */
+    @FunctionalInterface
+    public interface PairVisitor {
+        void accept(int first, int second);
+    }
+    
+    private final float cellSize;
+    private final float inverseCellSize;
+    
+    // Вставленные объекты в порядке вставки
+    private int count = 0;
+    private int[] ids;
+    private float[] minX, minY, minZ, maxX, maxY, maxZ;
+    private int[] cellX, cellY, cellZ;
+    private int[] bucket;
+    private float maxHalfX, maxHalfY, maxHalfZ;
+    
+    // Корзины: начала диапазонов и индексы объектов, отсортированные по корзинам
+    private int[] bucketStart = new int[0];
+    private int[] sorted = new int[0];
+    private int mask;
+    
+    /**
+     * @param cellSize размер ячейки в блоках (порядка размера объектов)
+     * @param capacity начальная емкость
+     */
+    public SpatialHash(float cellSize, int capacity) {
+        this.cellSize = cellSize;
+        this.inverseCellSize = 1.0f / cellSize;
+        allocate(Math.max(16, capacity));
+    }
+    
+    private void allocate(int capacity) {
+        ids = ids == null ? new int[capacity] : Arrays.copyOf(ids, capacity);
+        minX = minX == null ? new float[capacity] : Arrays.copyOf(minX, capacity);
+        minY = minY == null ? new float[capacity] : Arrays.copyOf(minY, capacity);
+        minZ = minZ == null ? new float[capacity] : Arrays.copyOf(minZ, capacity);
+        maxX = maxX == null ? new float[capacity] : Arrays.copyOf(maxX, capacity);
+        maxY = maxY == null ? new float[capacity] : Arrays.copyOf(maxY, capacity);
+        maxZ = maxZ == null ? new float[capacity] : Arrays.copyOf(maxZ, capacity);
+        cellX = cellX == null ? new int[capacity] : Arrays.copyOf(cellX, capacity);
+        cellY = cellY == null ? new int[capacity] : Arrays.copyOf(cellY, capacity);
+        cellZ = cellZ == null ? new int[capacity] : Arrays.copyOf(cellZ, capacity);
+        bucket = bucket == null ? new int[capacity] : Arrays.copyOf(bucket, capacity);
+    }
+    
+    /**
+     * Удалить все объекты перед новым заполнением
+     */
+    public void clear() {
+        count = 0;
+        maxHalfX = 0.0f;
+        maxHalfY = 0.0f;
+        maxHalfZ = 0.0f;
+    }
+    
+    /**
+     * Вставить объект (до {@link #build()})
+     * @param id идентификатор, передаваемый посетителям
+     */
+    public void insert(int id, float x0, float y0, float z0, float x1, float y1, float z1) {
+        if (count == ids.length) {
+            allocate(count * 2);
+        }
+        int i = count++;
+        ids[i] = id;
+        minX[i] = x0;
+        minY[i] = y0;
+        minZ[i] = z0;
+        maxX[i] = x1;
+        maxY[i] = y1;
+        maxZ[i] = z1;
+        cellX[i] = cell((x0 + x1) * 0.5f);
+        cellY[i] = cell((y0 + y1) * 0.5f);
+        cellZ[i] = cell((z0 + z1) * 0.5f);
+        maxHalfX = Math.max(maxHalfX, (x1 - x0) * 0.5f);
+        maxHalfY = Math.max(maxHalfY, (y1 - y0) * 0.5f);
+        maxHalfZ = Math.max(maxHalfZ, (z1 - z0) * 0.5f);
+    }
+    
+    /**
+     * Разложить вставленные объекты по корзинам
+     */
+    public void build() {
+        int buckets = Integer.highestOneBit(Math.max(16, count) * 2 - 1) << 1;
+        if (bucketStart.length != buckets + 1) {
+            bucketStart = new int[buckets + 1];
+        } else {
+            Arrays.fill(bucketStart, 0);
+        }
+        if (sorted.length < count) {
+            sorted = new int[ids.length];
+        }
+        mask = buckets - 1;
+        
+        for (int i = 0; i < count; i++) {
+            int b = hash(cellX[i], cellY[i], cellZ[i]);
+            bucket[i] = b;
+            bucketStart[b + 1]++;
+        }
+        for (int b = 0; b < buckets; b++) {
+            bucketStart[b + 1] += bucketStart[b];
+        }
+        // Раскладка с конца корзины сохраняет порядок вставки внутри корзины
+        for (int i = count - 1; i >= 0; i--) {
+            sorted[--bucketStart[bucket[i] + 1]] = i;
+        }
+        // После раскладки bucketStart[b + 1] указывает на начало корзины b
+        System.arraycopy(bucketStart, 1, bucketStart, 0, buckets);
+        bucketStart[buckets] = count;
+    }
+    
+    /**
+     * Найти объекты, пересекающие AABB
+     * @param visitor посетитель идентификаторов
+     */
+    public void query(float x0, float y0, float z0, float x1, float y1, float z1, Visitor visitor) {
+        int cx0 = cell(x0 - maxHalfX);
+        int cy0 = cell(y0 - maxHalfY);
+        int cz0 = cell(z0 - maxHalfZ);
+        int cx1 = cell(x1 + maxHalfX);
+        int cy1 = cell(y1 + maxHalfY);
+        int cz1 = cell(z1 + maxHalfZ);
+        for (int cy = cy0; cy <= cy1; cy++) {
+            for (int cz = cz0; cz <= cz1; cz++) {
+                for (int cx = cx0; cx <= cx1; cx++) {
+                    int b = hash(cx, cy, cz);
+                    for (int s = bucketStart[b], end = bucketStart[b + 1]; s < end; s++) {
+                        int i = sorted[s];
+                        if (cellX[i] == cx && cellY[i] == cy && cellZ[i] == cz
+                                && overlaps(i, x0, y0, z0, x1, y1, z1)) {
+                            visitor.accept(ids[i]);
+                        }
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Найти все пары пересекающихся объектов, каждую один раз
+     * @param visitor посетитель пар (первым идет объект, вставленный раньше)
+     */
+    public void forEachPair(PairVisitor visitor) {
+        for (int i = 0; i < count; i++) {
+            // Центры пересекающих объектов лежат не дальше наибольшего полуразмера от AABB
+            int cx0 = cell(minX[i] - maxHalfX);
+            int cy0 = cell(minY[i] - maxHalfY);
+            int cz0 = cell(minZ[i] - maxHalfZ);
+            int cx1 = cell(maxX[i] + maxHalfX);
+            int cy1 = cell(maxY[i] + maxHalfY);
+            int cz1 = cell(maxZ[i] + maxHalfZ);
+            for (int cy = cy0; cy <= cy1; cy++) {
+                for (int cz = cz0; cz <= cz1; cz++) {
+                    for (int cx = cx0; cx <= cx1; cx++) {
+                        int b = hash(cx, cy, cz);
+                        for (int s = bucketStart[b], end = bucketStart[b + 1]; s < end; s++) {
+                            int j = sorted[s];
+                            if (j > i && cellX[j] == cx && cellY[j] == cy && cellZ[j] == cz
+                                    && overlaps(j, minX[i], minY[i], minZ[i], maxX[i], maxY[i], maxZ[i])) {
+                                visitor.accept(ids[i], ids[j]);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+    
+    private boolean overlaps(int i, float x0, float y0, float z0, float x1, float y1, float z1) {
+        return minX[i] < x1 && maxX[i] > x0
+            && minY[i] < y1 && maxY[i] > y0
+            && minZ[i] < z1 && maxZ[i] > z0;
+    }
+    
+    private int cell(float value) {
+        return (int) Math.floor(value * inverseCellSize);
+    }
+    
+    private int hash(int x, int y, int z) {
+        int h = x * 0x8DA6B343 ^ y * 0xD8163841 ^ z * 0xCB1AB31F;
+        return (h ^ h >>> 15) & mask;
+    }
+    
+    public int size() {
+        return count;
+    }
+    
+    public float getCellSize() {
+        return cellSize;
+    }
+}
@@ -0,0 +1,166 @@
+package com.rivet.engine.physics;
+
+import com.rivet.engine.world.Blocks;
+import com.rivet.engine.world.Chunk;
+import com.rivet.engine.world.World;
+
+/**
+ * Столкновение движущегося AABB с воксельной сеткой
+ *
+ * Перемещение разбивается по осям в порядке Y, X, Z; по каждой оси
+ * перебираются только слои блоков, которые пересекает смещенный
+ * параллелепипед, от ближнего к дальнему, и смещение обрезается по первому
+ * твердому слою. Незагруженные чанки и все, что ниже мира, считаются твердыми.
+ * Не создает объектов; экземпляр не потокобезопасен.
+ */
+public final class VoxelCollider {
+    
+    public static final int COLLIDED_X = 1;
+    public static final int COLLIDED_Y = 2;
+    public static final int COLLIDED_Z = 4;
+    public static final int ON_GROUND = 8;
+    
+    private static final float EPSILON = 1.0e-4f;
+    private static final int[] ORDER = { 1, 0, 2 };
+    private static final int[] AXIS_FLAGS = { COLLIDED_X, COLLIDED_Y, COLLIDED_Z };
+    
+    private final World world;
+    private final float[] min = new float[3];
+    private final float[] max = new float[3];
+    private final float[] moved = new float[3];
+    private final int[] block = new int[3];
+    
+    // Последний прочитанный чанк
+    private Chunk cachedChunk;
+    private int cachedX;
+    private int cachedZ;
+    
+    public VoxelCollider(World world) {
+        this.world = world;
+    }
+    
+    /**
+     * Переместить параллелепипед с обрезкой по твердым блокам
+     * Фактическое смещение - {@link #getMovedX()}, {@link #getMovedY()}, {@link #getMovedZ()}.
+     * @return флаги COLLIDED_X, COLLIDED_Y, COLLIDED_Z, ON_GROUND
+     */
+    public int move(float minX, float minY, float minZ, float maxX, float maxY, float maxZ,
+                    float dx, float dy, float dz) {
+        min[0] = minX;
+        min[1] = minY;
+        min[2] = minZ;
+        max[0] = maxX;
+        max[1] = maxY;
+        max[2] = maxZ;
+        moved[0] = dx;
+        moved[1] = dy;
+        moved[2] = dz;
+        cachedChunk = null;
+        
+        int flags = 0;
+        for (int axis : ORDER) {
+            float delta = moved[axis];
+            if (delta == 0.0f) {
+                continue;
+            }
+            float clipped = clip(axis, delta);
+            if (clipped != delta) {
+                flags |= AXIS_FLAGS[axis];
+                if (axis == 1 && delta < 0.0f) {
+                    flags |= ON_GROUND;
+                }
+            }
+            moved[axis] = clipped;
+            min[axis] += clipped;
+            max[axis] += clipped;
+        }
+        cachedChunk = null;
+        return flags;
+    }
+    
+    /**
+     * Обрезать смещение по оси первым твердым слоем блоков на пути
+     */
+    private float clip(int axis, float delta) {
+        int u = (axis + 1) % 3;
+        int v = (axis + 2) % 3;
+        int u0 = floor(min[u] + EPSILON);
+        int u1 = floor(max[u] - EPSILON);
+        int v0 = floor(min[v] + EPSILON);
+        int v1 = floor(max[v] - EPSILON);
+        
+        if (delta > 0.0f) {
+            int first = floor(max[axis] - EPSILON) + 1;
+            int last = floor(max[axis] + delta - EPSILON);
+            for (int layer = first; layer <= last; layer++) {
+                if (isLayerSolid(axis, layer, u, u0, u1, v, v0, v1)) {
+                    return Math.max(0.0f, layer - max[axis]);
+                }
+            }
+        } else {
+            int first = floor(min[axis] + EPSILON) - 1;
+            int last = floor(min[axis] + delta + EPSILON);
+            for (int layer = first; layer >= last; layer--) {
+                if (isLayerSolid(axis, layer, u, u0, u1, v, v0, v1)) {
+                    return Math.min(0.0f, layer + 1 - min[axis]);
+                }
+            }
+        }
+        return delta;
+    }
+    
+    private boolean isLayerSolid(int axis, int layer, int u, int u0, int u1, int v, int v0, int v1) {
+        block[axis] = layer;
+        for (int bu = u0; bu <= u1; bu++) {
+            block[u] = bu;
+            for (int bv = v0; bv <= v1; bv++) {
+                block[v] = bv;
+                if (isSolid(block[0], block[1], block[2])) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Проверить твердость блока
+     * @return true для непрозрачных блоков, незагруженных чанков и y < 0
+     */
+    public boolean isSolid(int x, int y, int z) {
+        if (y < 0) {
+            return true;
+        }
+        if (y >= Chunk.HEIGHT) {
+            return false;
+        }
+        int chunkX = x >> 4;
+        int chunkZ = z >> 4;
+        if (cachedChunk == null || cachedX != chunkX || cachedZ != chunkZ) {
+            cachedChunk = world.getChunk(chunkX, chunkZ);
+            cachedX = chunkX;
+            cachedZ = chunkZ;
+            if (cachedChunk == null) {
+                return true;
+            }
+        }
+        return Blocks.isOpaque(cachedChunk.getBlock(x & 15, y, z & 15));
+    }
+    
+    private static int floor(float value) {
+        int i = (int) value;
+        return value < i ? i - 1 : i;
+    }
+    
+    public float getMovedX() {
+        return moved[0];
+    }
+    
+    public float getMovedY() {
+        return moved[1];
+    }
+    
+    public float getMovedZ() {
+        return moved[2];
+    }
+}
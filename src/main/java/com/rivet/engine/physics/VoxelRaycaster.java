@@ -0,0 +1,240 @@
+package com.rivet.engine.physics;
+
+import com.rivet.engine.world.Blocks;
+import com.rivet.engine.world.Chunk;
+import com.rivet.engine.world.ChunkSection;
+import com.rivet.engine.world.Face;
+import com.rivet.engine.world.World;
+
+/**
+ * Трассировка луча по воксельной сетке (3D DDA, Amanatides-Woo)
+ *
+ * Луч проходит блоки по одному в порядке пересечения их граней и
+ * останавливается на первом блоке, отличном от воздуха. Пустая или
+ * отсутствующая секция 16x16x16 пересекается за один шаг: луч сразу
+ * переносится на ее выходную грань, поэтому длинный луч над рельефом или в
+ * небе стоит порядка числа пройденных секций, а не блоков. Незагруженный
+ * чанк останавливает луч с исходом {@link RaycastResult#UNLOADED}.
+ * Последний прочитанный чанк кэшируется только на время одного луча, чтобы
+ * между вызовами не удерживать выгруженный чанк.
+ * Не создает объектов; экземпляр не потокобезопасен - по одному на поток.
+ */
+public final class VoxelRaycaster {
+    
+    private static final float INFINITY = Float.POSITIVE_INFINITY;
+    
+    private final World world;
+    
+    // Последний прочитанный чанк текущего луча
+    private Chunk cachedChunk;
+    private int cachedX;
+    private int cachedZ;
+    
+    // Метрики последнего луча
+    private int lastBlockSteps = 0;
+    private int lastSectionSkips = 0;
+    
+    public VoxelRaycaster(World world) {
+        this.world = world;
+    }
+    
+    /**
+     * Протрассировать луч
+     * @param originX начало луча X
+     * @param originY начало луча Y
+     * @param originZ начало луча Z
+     * @param dirX направление X (нормировать не обязательно)
+     * @param dirY направление Y
+     * @param dirZ направление Z
+     * @param maxDistance длина луча в блоках
+     * @param result результат, перезаписывается
+     * @return true если луч попал в блок
+     */
+    public boolean cast(float originX, float originY, float originZ, float dirX, float dirY, float dirZ,
+                        float maxDistance, RaycastResult result) {
+        lastBlockSteps = 0;
+        lastSectionSkips = 0;
+        cachedChunk = null;
+        float length = (float) Math.sqrt(dirX * dirX + dirY * dirY + dirZ * dirZ);
+        if (length == 0.0f || !(maxDistance > 0.0f)) {
+            result.set(RaycastResult.MISS, 0, 0, 0, Blocks.AIR_ID, -1, 0.0f);
+            return false;
+        }
+        dirX /= length;
+        dirY /= length;
+        dirZ /= length;
+        
+        int x = floor(originX);
+        int y = floor(originY);
+        int z = floor(originZ);
+        int stepX = dirX > 0.0f ? 1 : (dirX < 0.0f ? -1 : 0);
+        int stepY = dirY > 0.0f ? 1 : (dirY < 0.0f ? -1 : 0);
+        int stepZ = dirZ > 0.0f ? 1 : (dirZ < 0.0f ? -1 : 0);
+        float deltaX = stepX != 0 ? 1.0f / Math.abs(dirX) : INFINITY;
+        float deltaY = stepY != 0 ? 1.0f / Math.abs(dirY) : INFINITY;
+        float deltaZ = stepZ != 0 ? 1.0f / Math.abs(dirZ) : INFINITY;
+        float maxX = boundary(originX, x, stepX, deltaX);
+        float maxY = boundary(originY, y, stepY, deltaY);
+        float maxZ = boundary(originZ, z, stepZ, deltaZ);
+        int face = -1;
+        float t = 0.0f;
+        
+        while (true) {
+            // Над миром вверх или под миром вниз блоков уже не будет
+            if ((y >= Chunk.HEIGHT && stepY >= 0) || (y < 0 && stepY <= 0)) {
+                result.set(RaycastResult.MISS, x, y, z, Blocks.AIR_ID, face, maxDistance);
+                cachedChunk = null;
+                return false;
+            }
+            
+            int chunkX = x >> 4;
+            int chunkZ = z >> 4;
+            int sectionY = y >> 4;
+            if (cachedChunk == null || cachedX != chunkX || cachedZ != chunkZ) {
+                cachedChunk = world.getChunk(chunkX, chunkZ);
+                cachedX = chunkX;
+                cachedZ = chunkZ;
+            }
+            if (cachedChunk == null) {
+                result.set(RaycastResult.UNLOADED, x, y, z, Blocks.AIR_ID, face, t);
+                return false;
+            }
+            ChunkSection section = cachedChunk.getSection(sectionY);
+            
+            if (section == null || section.isEmpty()) {
+                // Выход из секции: ближайшая из трех граней по ходу луча
+                int baseX = chunkX << 4;
+                int baseY = sectionY << 4;
+                int baseZ = chunkZ << 4;
+                float exitX = exit(originX, dirX, baseX, stepX);
+                float exitY = exit(originY, dirY, baseY, stepY);
+                float exitZ = exit(originZ, dirZ, baseZ, stepZ);
+                if (exitX <= exitY && exitX <= exitZ) {
+                    t = exitX;
+                    x = stepX > 0 ? baseX + ChunkSection.SIZE : baseX - 1;
+                    y = clamp(floor(originY + dirY * t), baseY);
+                    z = clamp(floor(originZ + dirZ * t), baseZ);
+                    face = stepX > 0 ? Face.WEST : Face.EAST;
+                } else if (exitY <= exitZ) {
+                    t = exitY;
+                    x = clamp(floor(originX + dirX * t), baseX);
+                    y = stepY > 0 ? baseY + ChunkSection.SIZE : baseY - 1;
+                    z = clamp(floor(originZ + dirZ * t), baseZ);
+                    face = stepY > 0 ? Face.DOWN : Face.UP;
+                } else {
+                    t = exitZ;
+                    x = clamp(floor(originX + dirX * t), baseX);
+                    y = clamp(floor(originY + dirY * t), baseY);
+                    z = stepZ > 0 ? baseZ + ChunkSection.SIZE : baseZ - 1;
+                    face = stepZ > 0 ? Face.NORTH : Face.SOUTH;
+                }
+                if (t > maxDistance) {
+                    result.set(RaycastResult.MISS, x, y, z, Blocks.AIR_ID, face, maxDistance);
+                    cachedChunk = null;
+                    return false;
+                }
+                maxX = boundary(originX, x, stepX, deltaX);
+                maxY = boundary(originY, y, stepY, deltaY);
+                maxZ = boundary(originZ, z, stepZ, deltaZ);
+                lastSectionSkips++;
+                continue;
+            }
+            
+            // Блоки внутри непустой секции
+            while (true) {
+                int id = section.getBlock(x & 15, y & 15, z & 15);
+                if (id != Blocks.AIR_ID) {
+                    result.set(RaycastResult.BLOCK, x, y, z, id, face, t);
+                    cachedChunk = null;
+                    return true;
+                }
+                lastBlockSteps++;
+                if (maxX < maxY && maxX < maxZ) {
+                    t = maxX;
+                    maxX += deltaX;
+                    x += stepX;
+                    face = stepX > 0 ? Face.WEST : Face.EAST;
+                } else if (maxY < maxZ) {
+                    t = maxY;
+                    maxY += deltaY;
+                    y += stepY;
+                    face = stepY > 0 ? Face.DOWN : Face.UP;
+                } else {
+                    t = maxZ;
+                    maxZ += deltaZ;
+                    z += stepZ;
+                    face = stepZ > 0 ? Face.NORTH : Face.SOUTH;
+                }
+                if (t > maxDistance) {
+                    result.set(RaycastResult.MISS, x, y, z, Blocks.AIR_ID, face, maxDistance);
+                    cachedChunk = null;
+                    return false;
+                }
+                if ((x >> 4) != chunkX || (y >> 4) != sectionY || (z >> 4) != chunkZ) {
+                    break;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Проверить прямую видимость между двумя точками
+     * @param result результат трассировки отрезка, перезаписывается
+     * @return true если отрезок не пересекает блоков и незагруженных чанков
+     */
+    public boolean hasLineOfSight(float fromX, float fromY, float fromZ, float toX, float toY, float toZ,
+                                  RaycastResult result) {
+        float dx = toX - fromX;
+        float dy = toY - fromY;
+        float dz = toZ - fromZ;
+        float distance = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+        return !cast(fromX, fromY, fromZ, dx, dy, dz, distance, result)
+            && result.type == RaycastResult.MISS;
+    }
+    
+    // Параметр луча на первой границе блока по оси
+    private static float boundary(float origin, int block, int step, float delta) {
+        if (step > 0) {
+            return (block + 1 - origin) * delta;
+        }
+        if (step < 0) {
+            return (origin - block) * delta;
+        }
+        return INFINITY;
+    }
+    
+    // Параметр луча на выходной грани секции по оси
+    private static float exit(float origin, float dir, int base, int step) {
+        if (step > 0) {
+            return (base + ChunkSection.SIZE - origin) / dir;
+        }
+        if (step < 0) {
+            return (base - origin) / dir;
+        }
+        return INFINITY;
+    }
+    
+    // Координата в пределах секции (погрешность float на выходной грани)
+    private static int clamp(int value, int base) {
+        return value < base ? base : (value > base + 15 ? base + 15 : value);
+    }
+    
+    private static int floor(float value) {
+        int i = (int) value;
+        return value < i ? i - 1 : i;
+    }
+    
+    /**
+     * Количество блоков, пройденных последним лучом поблочно
+     */
+    public int getLastBlockSteps() {
+        return lastBlockSteps;
+    }
+    
+    /**
+     * Количество пустых секций, пересеченных последним лучом за один шаг
+     */
+    public int getLastSectionSkips() {
+        return lastSectionSkips;
+    }
+}
@@ -0,0 +1,29 @@
+package com.rivet.engine.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Кадр потока OpenGL от опроса событий окна до смены буферов (Rivet.run)
+ * Ограничение частоты кадров в длительность не входит.
+ */
+@Name("rivet.Frame")
+@Label("Frame")
+@Category({"Rivet", "Frames"})
+@Enabled(false)
+@StackTrace(false)
+public final class FrameEvent extends Event {
+    
+    @Label("Frame")
+    public long frame;
+    
+    @Label("Tick")
+    public long tick;
+    
+    @Label("Render Queue Items")
+    public int queueItems;
+}
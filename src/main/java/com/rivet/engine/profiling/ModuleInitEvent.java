@@ -0,0 +1,22 @@
+package com.rivet.engine.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Инициализация модуля движка (ModuleManager.initializeAll)
+ */
+@Name("rivet.ModuleInit")
+@Label("Module Initialize")
+@Category({"Rivet", "Modules"})
+@Enabled(false)
+@StackTrace(false)
+public final class ModuleInitEvent extends Event {
+    
+    @Label("Module")
+    public String module;
+}
@@ -0,0 +1,22 @@
+package com.rivet.engine.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Отрисовка модуля за кадр (ModuleManager.renderAll)
+ */
+@Name("rivet.ModuleRender")
+@Label("Module Render")
+@Category({"Rivet", "Modules"})
+@Enabled(false)
+@StackTrace(false)
+public final class ModuleRenderEvent extends Event {
+    
+    @Label("Module")
+    public String module;
+}
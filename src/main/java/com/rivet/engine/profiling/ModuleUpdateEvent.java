@@ -0,0 +1,22 @@
+package com.rivet.engine.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Обновление модуля за тик симуляции (ModuleManager.updateAll)
+ */
+@Name("rivet.ModuleUpdate")
+@Label("Module Update")
+@Category({"Rivet", "Modules"})
+@Enabled(false)
+@StackTrace(false)
+public final class ModuleUpdateEvent extends Event {
+    
+    @Label("Module")
+    public String module;
+}
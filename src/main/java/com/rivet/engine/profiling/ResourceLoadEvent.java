@@ -0,0 +1,43 @@
+package com.rivet.engine.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Загрузка ресурса (ResourceManager.loadResource)
+ * Длительность события - вся загрузка; декодирование и передача в OpenGL
+ * указываются отдельно, если ресурс их измеряет. Стек показывает, кто
+ * запросил загрузку, например посреди кадра.
+ */
+@Name("rivet.ResourceLoad")
+@Label("Resource Load")
+@Category({"Rivet", "Resources"})
+@Enabled(false)
+public final class ResourceLoadEvent extends Event {
+    
+    @Label("Location")
+    public String location;
+    
+    @Label("Type")
+    public String type;
+    
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+    
+    @Label("Decode Time")
+    @Timespan
+    public long decodeTime;
+    
+    @Label("Upload Time")
+    @Timespan
+    public long uploadTime;
+    
+    @Label("Succeeded")
+    public boolean succeeded;
+}
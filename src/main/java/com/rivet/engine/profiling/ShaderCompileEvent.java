@@ -0,0 +1,28 @@
+package com.rivet.engine.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Компиляция шейдера (Shader.compileShader), включая ожидание статуса от драйвера
+ */
+@Name("rivet.ShaderCompile")
+@Label("Shader Compile")
+@Category({"Rivet", "Shaders"})
+@Enabled(false)
+@StackTrace(false)
+public final class ShaderCompileEvent extends Event {
+    
+    @Label("Source")
+    public String source;
+    
+    @Label("Stage")
+    public String stage;
+    
+    @Label("Succeeded")
+    public boolean succeeded;
+}
@@ -0,0 +1,25 @@
+package com.rivet.engine.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Связывание шейдерной программы (Shader.link)
+ */
+@Name("rivet.ShaderLink")
+@Label("Shader Link")
+@Category({"Rivet", "Shaders"})
+@Enabled(false)
+@StackTrace(false)
+public final class ShaderLinkEvent extends Event {
+    
+    @Label("Program")
+    public int program;
+    
+    @Label("Succeeded")
+    public boolean succeeded;
+}
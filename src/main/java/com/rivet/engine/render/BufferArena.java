@@ -0,0 +1,162 @@
+package com.rivet.engine.render;
+
+import java.util.Arrays;
+
+/**
+ * Подраспределитель диапазонов внутри одного большого буфера
+ * Свободные блоки хранятся отсортированными по смещению в примитивных массивах,
+ * выделение first-fit, при освобождении соседние блоки сливаются.
+ * Не зависит от OpenGL; единицы измерения задает владелец (байты, вершины, четырехугольники).
+ */
+public final class BufferArena {
+    
+    private final int capacity;
+    private int[] freeOffsets = new int[16];
+    private int[] freeSizes = new int[16];
+    private int freeCount = 0;
+    private int used = 0;
+    private int allocations = 0;
+    
+    /**
+     * @param capacity емкость арены в единицах
+     */
+    public BufferArena(int capacity) {
+        this.capacity = capacity;
+        freeOffsets[0] = 0;
+        freeSizes[0] = capacity;
+        freeCount = 1;
+    }
+    
+    /**
+     * Выделить диапазон
+     * @param size размер в единицах (больше 0)
+     * @return смещение или -1 если подходящего блока нет
+     */
+    public int allocate(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Allocation size must be positive: " + size);
+        }
+        
+        for (int i = 0; i < freeCount; i++) {
+            if (freeSizes[i] >= size) {
+                int offset = freeOffsets[i];
+                if (freeSizes[i] == size) {
+                    removeFree(i);
+                } else {
+                    freeOffsets[i] += size;
+                    freeSizes[i] -= size;
+                }
+                used += size;
+                allocations++;
+                return offset;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Освободить ранее выделенный диапазон
+     * @param offset смещение, полученное из {@link #allocate(int)}
+     * @param size размер выделения
+     */
+    public void free(int offset, int size) {
+        if (offset < 0 || size <= 0 || offset + size > capacity) {
+            throw new IllegalArgumentException("Invalid range: " + offset + "+" + size);
+        }
+        
+        int index = Arrays.binarySearch(freeOffsets, 0, freeCount, offset);
+        if (index >= 0) {
+            throw new IllegalStateException("Range already free: " + offset);
+        }
+        index = -index - 1;
+        
+        boolean mergePrev = index > 0 && freeOffsets[index - 1] + freeSizes[index - 1] == offset;
+        boolean mergeNext = index < freeCount && offset + size == freeOffsets[index];
+        
+        if (mergePrev && mergeNext) {
+            freeSizes[index - 1] += size + freeSizes[index];
+            removeFree(index);
+        } else if (mergePrev) {
+            freeSizes[index - 1] += size;
+        } else if (mergeNext) {
+            freeOffsets[index] = offset;
+            freeSizes[index] += size;
+        } else {
+            insertFree(index, offset, size);
+        }
+        
+        used -= size;
+        allocations--;
+    }
+    
+    private void removeFree(int index) {
+        int tail = freeCount - index - 1;
+        System.arraycopy(freeOffsets, index + 1, freeOffsets, index, tail);
+        System.arraycopy(freeSizes, index + 1, freeSizes, index, tail);
+        freeCount--;
+    }
+    
+    private void insertFree(int index, int offset, int size) {
+        if (freeCount == freeOffsets.length) {
+            freeOffsets = Arrays.copyOf(freeOffsets, freeCount * 2);
+            freeSizes = Arrays.copyOf(freeSizes, freeCount * 2);
+        }
+        int tail = freeCount - index;
+        System.arraycopy(freeOffsets, index, freeOffsets, index + 1, tail);
+        System.arraycopy(freeSizes, index, freeSizes, index + 1, tail);
+        freeOffsets[index] = offset;
+        freeSizes[index] = size;
+        freeCount++;
+    }
+    
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    public int getUsed() {
+        return used;
+    }
+    
+    public int getFree() {
+        return capacity - used;
+    }
+    
+    public int getAllocationCount() {
+        return allocations;
+    }
+    
+    /**
+     * Получить количество свободных блоков
+     * @return количество разрывов свободного пространства
+     */
+    public int getFreeBlockCount() {
+        return freeCount;
+    }
+    
+    /**
+     * Получить размер наибольшего свободного блока
+     * @return размер в единицах
+     */
+    public int getLargestFreeBlock() {
+        int largest = 0;
+        for (int i = 0; i < freeCount; i++) {
+            largest = Math.max(largest, freeSizes[i]);
+        }
+        return largest;
+    }
+    
+    /**
+     * Получить степень фрагментации свободного пространства
+     * @return 0 - свободное место одним блоком, ближе к 1 - раздроблено на мелкие блоки
+     */
+    public float getFragmentation() {
+        int free = getFree();
+        return free == 0 ? 0.0f : 1.0f - (float) getLargestFreeBlock() / free;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("BufferArena[used=%d/%d, allocations=%d, freeBlocks=%d, fragmentation=%.2f]",
+            used, capacity, allocations, freeCount, getFragmentation());
+    }
+}
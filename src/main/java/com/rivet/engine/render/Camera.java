@@ -0,0 +1,90 @@
+package com.rivet.engine.render;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+/**
+ * Камера от первого лица
+ */
+public class Camera {
+    
+    private final Vector3f position = new Vector3f();
+    private final Matrix4f projection = new Matrix4f();
+    private final Matrix4f view = new Matrix4f();
+    private final Matrix4f viewProjection = new Matrix4f();
+    
+    private float yaw = 0.0f;
+    private float pitch = 0.0f;
+    private float fov = 70.0f;
+    private float aspect = 16.0f / 9.0f;
+    private float near = 0.05f;
+    private float far = 1024.0f;
+    
+    /**
+     * Пересчитать матрицы вида и проекции
+     */
+    public void update() {
+        projection.setPerspective((float) Math.toRadians(fov), aspect, near, far);
+        view.identity()
+            .rotateX((float) Math.toRadians(pitch))
+            .rotateY((float) Math.toRadians(yaw))
+            .translate(-position.x, -position.y, -position.z);
+        projection.mul(view, viewProjection);
+    }
+    
+    public Vector3f getPosition() {
+        return position;
+    }
+    
+    public void setPosition(float x, float y, float z) {
+        position.set(x, y, z);
+    }
+    
+    public float getYaw() {
+        return yaw;
+    }
+    
+    public float getPitch() {
+        return pitch;
+    }
+    
+    /**
+     * Установить поворот камеры
+     * @param yaw поворот вокруг вертикальной оси в градусах
+     * @param pitch наклон в градусах (ограничивается ±90)
+     */
+    public void setRotation(float yaw, float pitch) {
+        this.yaw = yaw;
+        this.pitch = Math.max(-90.0f, Math.min(90.0f, pitch));
+    }
+    
+    /**
+     * Установить параметры проекции
+     * @param fov угол обзора по вертикали в градусах
+     * @param aspect соотношение сторон
+     * @param near ближняя плоскость отсечения
+     * @param far дальняя плоскость отсечения
+     */
+    public void setPerspective(float fov, float aspect, float near, float far) {
+        this.fov = fov;
+        this.aspect = aspect;
+        this.near = near;
+        this.far = far;
+    }
+    
+    public float getFar() {
+        return far;
+    }
+    
+    public Matrix4f getProjection() {
+        return projection;
+    }
+    
+    public Matrix4f getView() {
+        return view;
+    }
+    
+    public Matrix4f getViewProjection() {
+        return viewProjection;
+    }
+}
@@ -0,0 +1,174 @@
+package com.rivet.engine.render;
+
+import com.rivet.engine.memory.GpuMemory;
+import com.rivet.engine.memory.MemoryCategory;
+import com.rivet.engine.opengl.ShaderException;
+import com.rivet.engine.render.mesh.SectionMesh;
+import com.rivet.engine.util.LongObjectHashMap;
+import com.rivet.engine.world.ChunkPos;
+import org.joml.Vector3f;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
+
+/**
+ * Простой рендерер секций мира: по одному VAO/VBO и вызову отрисовки на секцию
+ * Все методы вызываются только из потока OpenGL.
+ */
+public class ChunkRenderer implements SectionRenderer {
+    
+    private static final int MAX_QUADS = 16 * 16 * 16 * 3;
+    
+    /**
+     * Данные секции на GPU
+     */
+    private static final class SectionBuffers {
+        final int vao;
+        final int vbo;
+        final float originX;
+        final float originY;
+        final float originZ;
+        int quadCount;
+        
+        SectionBuffers(int vao, int vbo, int sectionX, int sectionY, int sectionZ) {
+            this.vao = vao;
+            this.vbo = vbo;
+            this.originX = sectionX * 16.0f;
+            this.originY = sectionY * 16.0f;
+            this.originZ = sectionZ * 16.0f;
+        }
+    }
+    
+    private final LongObjectHashMap<SectionBuffers> sections = new LongObjectHashMap<>(1024);
+    private TerrainShader shader;
+    private int quadIndexBuffer;
+    private int atlasTexture = 0;
+    
+    // Видимые секции кадра, читаются при выполнении очереди
+    private final RenderQueue.DrawCommand drawCommand = this::drawSection;
+    private long[] visible;
+    
+    @Override
+    public void initialize() throws ShaderException {
+        shader = new TerrainShader();
+        quadIndexBuffer = TerrainShader.createQuadIndexBuffer(MAX_QUADS);
+    }
+    
+    @Override
+    public void upload(SectionMesh mesh) {
+        long key = mesh.getKey();
+        SectionBuffers buffers = sections.get(key);
+        
+        if (mesh.isEmpty()) {
+            if (buffers != null) {
+                deleteBuffers(buffers);
+                sections.remove(key);
+            }
+            return;
+        }
+        
+        if (buffers == null) {
+            buffers = createBuffers(mesh.getSectionX(), mesh.getSectionY(), mesh.getSectionZ());
+            sections.put(key, buffers);
+        }
+        
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, buffers.vbo);
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, mesh.getVertices(), GL15.GL_STATIC_DRAW);
+        GpuMemory.trackBuffer(buffers.vbo, MemoryCategory.MESH, mesh.getVertices().remaining());
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+        buffers.quadCount = mesh.getQuadCount();
+    }
+    
+    private SectionBuffers createBuffers(int sectionX, int sectionY, int sectionZ) {
+        int vao = GL30.glGenVertexArrays();
+        int vbo = GL15.glGenBuffers();
+        
+        GL30.glBindVertexArray(vao);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
+        GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, quadIndexBuffer);
+        
+        TerrainShader.setupVertexAttributes();
+        
+        GL30.glBindVertexArray(0);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+        
+        return new SectionBuffers(vao, vbo, sectionX, sectionY, sectionZ);
+    }
+    
+    private void deleteBuffers(SectionBuffers buffers) {
+        GL30.glDeleteVertexArrays(buffers.vao);
+        GpuMemory.untrackBuffer(buffers.vbo);
+        GL15.glDeleteBuffers(buffers.vbo);
+    }
+    
+    @Override
+    public void render(Camera camera, long[] visible, int visibleCount, RenderQueue queue) {
+        if (sections.isEmpty() || visibleCount == 0) {
+            return;
+        }
+        
+        // Секция - отдельный элемент очереди: непрозрачные рисуются спереди назад
+        shader.setCamera(camera);
+        this.visible = visible;
+        Vector3f position = camera.getPosition();
+        int program = shader.getProgramId();
+        for (int i = 0; i < visibleCount; i++) {
+            SectionBuffers buffers = sections.get(visible[i]);
+            if (buffers != null) {
+                float dx = buffers.originX + 8.0f - position.x;
+                float dy = buffers.originY + 8.0f - position.y;
+                float dz = buffers.originZ + 8.0f - position.z;
+                float depth = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+                queue.submit(RenderQueue.LAYER_OPAQUE, program, atlasTexture, depth, drawCommand, i);
+            }
+        }
+    }
+    
+    private void drawSection(int visibleIndex) {
+        SectionBuffers buffers = sections.get(visible[visibleIndex]);
+        shader.uploadCamera();
+        GL20.glVertexAttrib3f(TerrainShader.SECTION_ORIGIN_ATTRIBUTE, buffers.originX, buffers.originY, buffers.originZ);
+        GL30.glBindVertexArray(buffers.vao);
+        GL11.glDrawElements(GL11.GL_TRIANGLES, buffers.quadCount * 6, GL11.GL_UNSIGNED_INT, 0L);
+    }
+    
+    @Override
+    public void removeSection(int sectionX, int sectionY, int sectionZ) {
+        SectionBuffers buffers = sections.remove(ChunkPos.packSection(sectionX, sectionY, sectionZ));
+        if (buffers != null) {
+            deleteBuffers(buffers);
+        }
+    }
+    
+    @Override
+    public void removeChunk(int chunkX, int chunkZ) {
+        for (int sectionY = 0; sectionY < 16; sectionY++) {
+            removeSection(chunkX, sectionY, chunkZ);
+        }
+    }
+    
+    @Override
+    public void setAtlasTexture(int textureId) {
+        this.atlasTexture = textureId;
+    }
+    
+    @Override
+    public int getSectionCount() {
+        return sections.size();
+    }
+    
+    @Override
+    public void cleanup() {
+        sections.forEach((key, buffers) -> deleteBuffers(buffers));
+        sections.clear();
+        if (quadIndexBuffer != 0) {
+            GpuMemory.untrackBuffer(quadIndexBuffer);
+            GL15.glDeleteBuffers(quadIndexBuffer);
+            quadIndexBuffer = 0;
+        }
+        if (shader != null) {
+            shader.cleanup();
+        }
+    }
+}
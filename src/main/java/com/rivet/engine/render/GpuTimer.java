@@ -0,0 +1,87 @@
+package com.rivet.engine.render;
+
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL33;
+import org.lwjgl.opengl.GLCapabilities;
+
+/**
+ * Измерение времени кадра на GPU запросами GL_TIME_ELAPSED
+ *
+ * Запросы идут по кольцу: результат кадра читается через несколько кадров,
+ * когда он уже готов, поэтому измерение не останавливает конвейер. Без
+ * OpenGL 3.3 или ARB_timer_query таймер выключен и возвращает -1.
+ * Все методы вызываются только из потока OpenGL.
+ */
+public final class GpuTimer {
+    
+    private static final int RING = 4;
+    
+    private final int[] queries = new int[RING];
+    private final boolean supported;
+    private int next = 0;
+    private int pending = 0;
+    private boolean active = false;
+    
+    public GpuTimer() {
+        GLCapabilities caps = GL.getCapabilities();
+        supported = caps.OpenGL33 || caps.GL_ARB_timer_query;
+        if (supported) {
+            GL15.glGenQueries(queries);
+        }
+    }
+    
+    public boolean isSupported() {
+        return supported;
+    }
+    
+    /**
+     * Начать измерение кадра
+     * Если все запросы кольца еще в работе, кадр пропускается.
+     */
+    public void begin() {
+        if (!supported || pending == RING) {
+            return;
+        }
+        GL15.glBeginQuery(GL33.GL_TIME_ELAPSED, queries[next]);
+        active = true;
+    }
+    
+    /**
+     * Закончить измерение кадра
+     */
+    public void end() {
+        if (!active) {
+            return;
+        }
+        GL15.glEndQuery(GL33.GL_TIME_ELAPSED);
+        active = false;
+        next = (next + 1) % RING;
+        pending++;
+    }
+    
+    /**
+     * Забрать самый старый готовый результат
+     * @return время в наносекундах или -1, если результата нет
+     */
+    public long poll() {
+        if (pending == 0) {
+            return -1;
+        }
+        int query = queries[(next - pending + RING) % RING];
+        if (GL15.glGetQueryObjecti(query, GL15.GL_QUERY_RESULT_AVAILABLE) == 0) {
+            return -1;
+        }
+        pending--;
+        return GL33.glGetQueryObjecti64(query, GL15.GL_QUERY_RESULT);
+    }
+    
+    /**
+     * Удалить объекты запросов
+     */
+    public void cleanup() {
+        if (supported) {
+            GL15.glDeleteQueries(queries);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.rivet.engine.render;
+
+import com.rivet.engine.memory.GpuMemory;
+import com.rivet.engine.memory.MemoryCategory;
+import com.rivet.engine.memory.MemoryScope;
+import com.rivet.engine.memory.NativeMemory;
+import com.rivet.engine.opengl.Shader;
+import com.rivet.engine.opengl.ShaderException;
+import com.rivet.engine.particle.ParticleSystem;
+import org.joml.Vector3f;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
+import org.lwjgl.opengl.GL33;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Рендерер частиц с инстансингом
+ *
+ * Каждый кадр живые частицы записываются в один нативный буфер экземпляров
+ * (сгруппированно по текстурным страницам) и загружаются в VBO одним
+ * glBufferSubData после сброса старого содержимого. Страница - один элемент
+ * полупрозрачного слоя очереди и один вызов glDrawArraysInstanced:
+ * атрибуты экземпляров перенаправляются на начало страницы в буфере.
+ * Все методы вызываются только из потока OpenGL.
+ */
+public class ParticleRenderer {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ParticleRenderer.class);
+    
+    // Атрибуты экземпляра (см. particle.vert)
+    private static final int POSITION_SIZE_ATTRIBUTE = 1;
+    private static final int COLOR_ATTRIBUTE = 2;
+    private static final int TILE_ATTRIBUTE = 3;
+    private static final int FADE_ATTRIBUTE = 4;
+    
+    private final ParticleSystem system;
+    private final int[] pageTextures;
+    private final float[] pageTiles;
+    
+    private Shader shader;
+    private int viewProjectionLocation;
+    private int cameraRightLocation;
+    private int cameraUpLocation;
+    private int pageTilesLocation;
+    private int vao;
+    private int quadBuffer;
+    private int instanceBuffer;
+    private ByteBuffer instances;
+    private int bufferBytes;
+    
+    private Camera camera;
+    private boolean cameraDirty = false;
+    private final Vector3f cameraRight = new Vector3f();
+    private final Vector3f cameraUp = new Vector3f();
+    private final RenderQueue.DrawCommand drawCommand = this::drawPage;
+    private int instanceCount = 0;
+    private int drawCalls = 0;
+    
+    /**
+     * @param system система частиц
+     */
+    public ParticleRenderer(ParticleSystem system) {
+        this.system = system;
+        this.pageTextures = new int[system.getPageCount()];
+        this.pageTiles = new float[system.getPageCount()];
+        Arrays.fill(pageTiles, 1.0f);
+    }
+    
+    /**
+     * Загрузить шейдер и создать буферы
+     * @throws ShaderException если шейдер не загрузился
+     */
+    public void initialize() throws ShaderException {
+        shader = new Shader();
+        shader.loadVertexShader("/shaders/particle.vert");
+        shader.loadFragmentShader("/shaders/particle.frag");
+        shader.link();
+        viewProjectionLocation = shader.getUniformLocation("viewProjection");
+        cameraRightLocation = shader.getUniformLocation("cameraRight");
+        cameraUpLocation = shader.getUniformLocation("cameraUp");
+        pageTilesLocation = shader.getUniformLocation("pageTiles");
+        shader.use();
+        shader.setUniformInt(shader.getUniformLocation("page"), 0);
+        shader.stop();
+        
+        vao = GL30.glGenVertexArrays();
+        GL30.glBindVertexArray(vao);
+        
+        // Общий четырехугольник - полоса из четырех углов
+        quadBuffer = GL15.glGenBuffers();
+        try (MemoryScope scope = new MemoryScope(MemoryCategory.RENDER)) {
+            FloatBuffer corners = scope.mallocFloat(8);
+            corners.put(-0.5f).put(-0.5f).put(0.5f).put(-0.5f).put(-0.5f).put(0.5f).put(0.5f).put(0.5f).flip();
+            GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, quadBuffer);
+            GL15.glBufferData(GL15.GL_ARRAY_BUFFER, corners, GL15.GL_STATIC_DRAW);
+        }
+        GpuMemory.trackBuffer(quadBuffer, MemoryCategory.RENDER, 8 * Float.BYTES);
+        GL20.glVertexAttribPointer(0, 2, GL11.GL_FLOAT, false, 2 * Float.BYTES, 0);
+        GL20.glEnableVertexAttribArray(0);
+        
+        // Буфер экземпляров на всю емкость системы
+        bufferBytes = Math.max(1, system.getCapacity()) * ParticleSystem.INSTANCE_BYTES;
+        instances = NativeMemory.malloc(MemoryCategory.RENDER, bufferBytes);
+        instanceBuffer = GL15.glGenBuffers();
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, instanceBuffer);
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, bufferBytes, GL15.GL_STREAM_DRAW);
+        GpuMemory.trackBuffer(instanceBuffer, MemoryCategory.RENDER, bufferBytes);
+        GL20.glEnableVertexAttribArray(POSITION_SIZE_ATTRIBUTE);
+        GL20.glEnableVertexAttribArray(COLOR_ATTRIBUTE);
+        GL20.glEnableVertexAttribArray(TILE_ATTRIBUTE);
+        GL20.glEnableVertexAttribArray(FADE_ATTRIBUTE);
+        GL33.glVertexAttribDivisor(POSITION_SIZE_ATTRIBUTE, 1);
+        GL33.glVertexAttribDivisor(COLOR_ATTRIBUTE, 1);
+        GL33.glVertexAttribDivisor(TILE_ATTRIBUTE, 1);
+        GL33.glVertexAttribDivisor(FADE_ATTRIBUTE, 1);
+        pointInstances(0);
+        
+        GL30.glBindVertexArray(0);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+        
+        logger.info("ParticleRenderer: {} частиц, буфер экземпляров {} KB",
+            system.getCapacity(), bufferBytes / 1024);
+    }
+    
+    /**
+     * Направить атрибуты экземпляров на экземпляр first
+     * VAO и буфер экземпляров должны быть привязаны.
+     */
+    private static void pointInstances(int first) {
+        long base = (long) first * ParticleSystem.INSTANCE_BYTES;
+        int stride = ParticleSystem.INSTANCE_BYTES;
+        GL20.glVertexAttribPointer(POSITION_SIZE_ATTRIBUTE, 4, GL11.GL_FLOAT, false, stride, base);
+        GL20.glVertexAttribPointer(COLOR_ATTRIBUTE, 4, GL11.GL_UNSIGNED_BYTE, true, stride, base + 16);
+        GL30.glVertexAttribIPointer(TILE_ATTRIBUTE, 1, GL11.GL_UNSIGNED_SHORT, stride, base + 20);
+        GL20.glVertexAttribPointer(FADE_ATTRIBUTE, 1, GL11.GL_UNSIGNED_SHORT, true, stride, base + 22);
+    }
+    
+    /**
+     * Записать и загрузить экземпляры кадра и добавить страницы в очередь
+     * @param camera камера кадра (уже обновлена)
+     * @param pool пул для параллельной записи экземпляров (null - в текущем потоке)
+     * @param queue очередь отрисовки
+     */
+    public void render(Camera camera, ForkJoinPool pool, RenderQueue queue) {
+        drawCalls = 0;
+        instanceCount = system.writeInstances(instances, pool);
+        if (instanceCount == 0) {
+            return;
+        }
+        
+        // Сброс старого содержимого: драйвер не ждет отрисовки прошлого кадра
+        instances.limit(instanceCount * ParticleSystem.INSTANCE_BYTES);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, instanceBuffer);
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, bufferBytes, GL15.GL_STREAM_DRAW);
+        GL15.glBufferSubData(GL15.GL_ARRAY_BUFFER, 0, instances);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+        instances.clear();
+        
+        this.camera = camera;
+        this.cameraDirty = true;
+        int program = shader.getProgramId();
+        for (int page = 0; page < pageTextures.length; page++) {
+            if (system.getPageInstanceCount(page) > 0) {
+                queue.submit(RenderQueue.LAYER_TRANSLUCENT, program, pageTextures[page], 0.0f, drawCommand, page);
+            }
+        }
+    }
+    
+    private void drawPage(int page) {
+        if (cameraDirty) {
+            camera.getView().positiveX(cameraRight);
+            camera.getView().positiveY(cameraUp);
+            shader.setUniformMatrix4f(viewProjectionLocation, camera.getViewProjection());
+            shader.setUniformVector3f(cameraRightLocation, cameraRight);
+            shader.setUniformVector3f(cameraUpLocation, cameraUp);
+            cameraDirty = false;
+        }
+        shader.setUniformFloat(pageTilesLocation, pageTiles[page]);
+        
+        GL30.glBindVertexArray(vao);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, instanceBuffer);
+        pointInstances(system.getPageFirst(page));
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+        GL31.glDrawArraysInstanced(GL11.GL_TRIANGLE_STRIP, 0, 4, system.getPageInstanceCount(page));
+        drawCalls++;
+    }
+    
+    /**
+     * Задать текстуру страницы
+     * @param page страница
+     * @param textureId текстура OpenGL
+     * @param tiles количество плиток по стороне текстуры
+     */
+    public void setPageTexture(int page, int textureId, int tiles) {
+        pageTextures[page] = textureId;
+        pageTiles[page] = tiles;
+    }
+    
+    /**
+     * Получить количество экземпляров последнего кадра
+     * @return количество частиц
+     */
+    public int getInstanceCount() {
+        return instanceCount;
+    }
+    
+    /**
+     * Получить количество вызовов отрисовки последнего кадра
+     * @return количество вызовов
+     */
+    public int getDrawCalls() {
+        return drawCalls;
+    }
+    
+    public void cleanup() {
+        if (instanceBuffer != 0) {
+            GpuMemory.untrackBuffer(instanceBuffer);
+            GL15.glDeleteBuffers(instanceBuffer);
+            instanceBuffer = 0;
+        }
+        if (quadBuffer != 0) {
+            GpuMemory.untrackBuffer(quadBuffer);
+            GL15.glDeleteBuffers(quadBuffer);
+            quadBuffer = 0;
+        }
+        if (vao != 0) {
+            GL30.glDeleteVertexArrays(vao);
+            vao = 0;
+        }
+        if (instances != null) {
+            NativeMemory.free(MemoryCategory.RENDER, instances);
+            instances = null;
+        }
+        if (shader != null) {
+            shader.cleanup();
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package com.rivet.engine.render;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
+
+import java.util.Arrays;
+
+/**
+ * Очередь отрисовки с упакованными 64-битными ключами сортировки
+ *
+ * Модули добавляют элементы в {@link com.rivet.engine.modules.GameModule#render}, после чего очередь
+ * сортируется поразрядной сортировкой и выполняется одним проходом: программа
+ * и текстура переключаются только при смене, состояние OpenGL слоя
+ * выставляется один раз на слой. Раскладка ключа (от старших бит):
+ * <pre>
+ * непрозрачный, cutout: слой (2) | шейдер (10) | текстура (12) | глубина (24) | 0 (16)
+ * полупрозрачный:       слой (2) | глубина сзади вперед (24) | шейдер (10) | текстура (12) | 0 (16)
+ * </pre>
+ * Все методы вызываются только из потока OpenGL.
+ */
+public final class RenderQueue {
+    
+    public static final int LAYER_OPAQUE = 0;
+    public static final int LAYER_CUTOUT = 1;
+    public static final int LAYER_TRANSLUCENT = 2;
+    
+    public static final int MAX_PROGRAMS = 1 << 10;
+    public static final int MAX_TEXTURES = 1 << 12;
+    
+    private static final int DEPTH_BITS = 24;
+    private static final int DEPTH_MAX = (1 << DEPTH_BITS) - 1;
+    
+    /**
+     * Команда отрисовки элемента очереди
+     * Программа и текстура элемента уже привязаны очередью.
+     */
+    @FunctionalInterface
+    public interface DrawCommand {
+        void draw(int payload);
+    }
+    
+    // Элементы в порядке добавления
+    private DrawCommand[] commands;
+    private int[] payloads;
+    private int[] programs;
+    private int[] textures;
+    private int count = 0;
+    
+    // Ключи и индексы элементов, сортируются вместе
+    private long[] keys;
+    private int[] order;
+    private long[] scratchKeys;
+    private int[] scratchOrder;
+    private final int[] histograms = new int[8 * 256];
+    
+    // Отображение имен OpenGL в короткие id ключа
+    private final int[] programIds = new int[MAX_PROGRAMS];
+    private final int[] textureIds = new int[MAX_TEXTURES];
+    private int programCount = 0;
+    private int textureCount = 0;
+    
+    private float maxDepth = 1024.0f;
+    
+    // Метрики последнего выполнения
+    private int lastItemCount = 0;
+    private int lastProgramChanges = 0;
+    private int lastTextureChanges = 0;
+    private long lastSortNanos = 0;
+    
+    public RenderQueue() {
+        this(1024);
+    }
+    
+    /**
+     * @param capacity начальная емкость (растет при необходимости)
+     */
+    public RenderQueue(int capacity) {
+        allocate(Math.max(16, capacity));
+    }
+    
+    private void allocate(int capacity) {
+        commands = commands == null ? new DrawCommand[capacity] : Arrays.copyOf(commands, capacity);
+        payloads = payloads == null ? new int[capacity] : Arrays.copyOf(payloads, capacity);
+        programs = programs == null ? new int[capacity] : Arrays.copyOf(programs, capacity);
+        textures = textures == null ? new int[capacity] : Arrays.copyOf(textures, capacity);
+        keys = keys == null ? new long[capacity] : Arrays.copyOf(keys, capacity);
+        order = order == null ? new int[capacity] : Arrays.copyOf(order, capacity);
+        scratchKeys = new long[capacity];
+        scratchOrder = new int[capacity];
+    }
+    
+    /**
+     * Задать дальность, на которую квантуется глубина
+     * @param maxDepth максимальная глубина (обычно дальняя плоскость камеры)
+     */
+    public void setMaxDepth(float maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+    
+    /**
+     * Добавить элемент отрисовки
+     * @param layer слой ({@link #LAYER_OPAQUE}, {@link #LAYER_CUTOUT}, {@link #LAYER_TRANSLUCENT})
+     * @param program программа OpenGL (0 - не переключать)
+     * @param texture текстура OpenGL для блока 0 (0 - не переключать)
+     * @param depth расстояние от камеры
+     * @param command команда отрисовки
+     * @param payload параметр команды
+     */
+    public void submit(int layer, int program, int texture, float depth, DrawCommand command, int payload) {
+        if (count == keys.length) {
+            allocate(count * 2);
+        }
+        commands[count] = command;
+        payloads[count] = payload;
+        programs[count] = program;
+        textures[count] = texture;
+        keys[count] = makeKey(layer, programId(program), textureId(texture), quantizeDepth(depth));
+        order[count] = count;
+        count++;
+    }
+    
+    /**
+     * Упаковать ключ сортировки
+     * @param layer слой
+     * @param programId короткий id программы (0-1023)
+     * @param textureId короткий id текстуры (0-4095)
+     * @param depth квантованная глубина (0 - ближе всего)
+     * @return ключ
+     */
+    public static long makeKey(int layer, int programId, int textureId, int depth) {
+        long key = (long) layer << 62;
+        if (layer == LAYER_TRANSLUCENT) {
+            return key
+                | (long) (DEPTH_MAX - depth) << 38
+                | (long) programId << 28
+                | (long) textureId << 16;
+        }
+        return key
+            | (long) programId << 52
+            | (long) textureId << 40
+            | (long) depth << 16;
+    }
+    
+    private int quantizeDepth(float depth) {
+        float normalized = depth / maxDepth;
+        if (!(normalized > 0.0f)) {
+            return 0;
+        }
+        return normalized >= 1.0f ? DEPTH_MAX : (int) (normalized * DEPTH_MAX);
+    }
+    
+    private int programId(int program) {
+        for (int i = 0; i < programCount; i++) {
+            if (programIds[i] == program) {
+                return i;
+            }
+        }
+        if (programCount == MAX_PROGRAMS) {
+            throw new IllegalStateException("Too many shader programs in render queue");
+        }
+        programIds[programCount] = program;
+        return programCount++;
+    }
+    
+    private int textureId(int texture) {
+        for (int i = 0; i < textureCount; i++) {
+            if (textureIds[i] == texture) {
+                return i;
+            }
+        }
+        if (textureCount == MAX_TEXTURES) {
+            throw new IllegalStateException("Too many textures in render queue");
+        }
+        textureIds[textureCount] = texture;
+        return textureCount++;
+    }
+    
+    /**
+     * Отсортировать элементы по ключам
+     */
+    public void sort() {
+        long start = System.nanoTime();
+        radixSort(keys, order, scratchKeys, scratchOrder, histograms, count);
+        lastSortNanos = System.nanoTime() - start;
+    }
+    
+    /**
+     * Отсортировать, выполнить и очистить очередь
+     */
+    public void execute() {
+        sort();
+        
+        int currentLayer = -1;
+        int currentProgram = -1;
+        int currentTexture = -1;
+        int programChanges = 0;
+        int textureChanges = 0;
+        
+        for (int i = 0; i < count; i++) {
+            int item = order[i];
+            int layer = (int) (keys[i] >>> 62);
+            if (layer != currentLayer) {
+                applyLayerState(layer);
+                currentLayer = layer;
+            }
+            int program = programs[item];
+            if (program != 0 && program != currentProgram) {
+                GL20.glUseProgram(program);
+                currentProgram = program;
+                programChanges++;
+            }
+            int texture = textures[item];
+            if (texture != 0 && texture != currentTexture) {
+                GL13.glActiveTexture(GL13.GL_TEXTURE0);
+                GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture);
+                currentTexture = texture;
+                textureChanges++;
+            }
+            commands[item].draw(payloads[item]);
+        }
+        
+        if (count > 0) {
+            restoreDefaultState();
+        }
+        lastItemCount = count;
+        lastProgramChanges = programChanges;
+        lastTextureChanges = textureChanges;
+        clear();
+    }
+    
+    private static void applyLayerState(int layer) {
+        if (layer == LAYER_OPAQUE) {
+            GL11.glEnable(GL11.GL_CULL_FACE);
+            GL11.glDisable(GL11.GL_BLEND);
+            GL11.glDepthMask(true);
+        } else if (layer == LAYER_CUTOUT) {
+            GL11.glDisable(GL11.GL_CULL_FACE);
+            GL11.glDisable(GL11.GL_BLEND);
+            GL11.glDepthMask(true);
+        } else {
+            GL11.glDisable(GL11.GL_CULL_FACE);
+            GL11.glEnable(GL11.GL_BLEND);
+            GL11.glDepthMask(false);
+        }
+    }
+    
+    /**
+     * Вернуть состояние, выставленное InitializationModule
+     */
+    private static void restoreDefaultState() {
+        GL11.glDisable(GL11.GL_CULL_FACE);
+        GL11.glEnable(GL11.GL_BLEND);
+        GL11.glDepthMask(true);
+        GL30.glBindVertexArray(0);
+        GL20.glUseProgram(0);
+    }
+    
+    /**
+     * Очистить очередь без выполнения
+     */
+    public void clear() {
+        Arrays.fill(commands, 0, count, null);
+        count = 0;
+    }
+    
+    /**
+     * Поразрядная сортировка LSD по 8 бит с переносом значений
+     * Проходы, в которых все элементы попадают в одну корзину, пропускаются.
+     * Ключи сравниваются как беззнаковые; сортировка устойчива.
+     * @param keys ключи (результат записывается сюда)
+     * @param values значения, переставляемые вместе с ключами
+     * @param scratchKeys рабочий массив не меньше count
+     * @param scratchValues рабочий массив не меньше count
+     * @param histograms рабочий массив из 8 * 256 элементов
+     * @param count количество элементов
+     */
+    public static void radixSort(long[] keys, int[] values, long[] scratchKeys, int[] scratchValues,
+                                 int[] histograms, int count) {
+        if (count < 2) {
+            return;
+        }
+        
+        // Гистограммы всех восьми байтов за один проход
+        Arrays.fill(histograms, 0);
+        for (int i = 0; i < count; i++) {
+            long key = keys[i];
+            for (int pass = 0; pass < 8; pass++) {
+                histograms[pass * 256 + (int) ((key >>> (pass * 8)) & 0xFF)]++;
+            }
+        }
+        
+        long[] srcKeys = keys;
+        int[] srcValues = values;
+        long[] dstKeys = scratchKeys;
+        int[] dstValues = scratchValues;
+        
+        for (int pass = 0; pass < 8; pass++) {
+            int base = pass * 256;
+            int shift = pass * 8;
+            if (histograms[base + (int) ((srcKeys[0] >>> shift) & 0xFF)] == count) {
+                continue;
+            }
+            
+            int offset = 0;
+            for (int bucket = 0; bucket < 256; bucket++) {
+                int bucketCount = histograms[base + bucket];
+                histograms[base + bucket] = offset;
+                offset += bucketCount;
+            }
+            for (int i = 0; i < count; i++) {
+                long key = srcKeys[i];
+                int position = histograms[base + (int) ((key >>> shift) & 0xFF)]++;
+                dstKeys[position] = key;
+                dstValues[position] = srcValues[i];
+            }
+            
+            long[] swapKeys = srcKeys;
+            srcKeys = dstKeys;
+            dstKeys = swapKeys;
+            int[] swapValues = srcValues;
+            srcValues = dstValues;
+            dstValues = swapValues;
+        }
+        
+        if (srcKeys != keys) {
+            System.arraycopy(srcKeys, 0, keys, 0, count);
+            System.arraycopy(srcValues, 0, values, 0, count);
+        }
+    }
+    
+    public int size() {
+        return count;
+    }
+    
+    public int getLastItemCount() {
+        return lastItemCount;
+    }
+    
+    public int getLastProgramChanges() {
+        return lastProgramChanges;
+    }
+    
+    public int getLastTextureChanges() {
+        return lastTextureChanges;
+    }
+    
+    public long getLastSortNanos() {
+        return lastSortNanos;
+    }
+}
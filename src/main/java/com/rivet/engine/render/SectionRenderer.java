@@ -0,0 +1,59 @@
+package com.rivet.engine.render;
+
+import com.rivet.engine.opengl.ShaderException;
+import com.rivet.engine.render.mesh.MeshUploader;
+
+/**
+ * Рендерер мешей секций мира
+ * Все методы вызываются только из потока OpenGL.
+ */
+public interface SectionRenderer extends MeshUploader {
+    
+    /**
+     * Инициализация ресурсов OpenGL
+     * @throws ShaderException если шейдер не загрузился
+     */
+    void initialize() throws ShaderException;
+    
+    /**
+     * Добавить видимые секции в очередь отрисовки
+     * Массив visible читается при выполнении очереди и не должен меняться до него.
+     * @param camera камера
+     * @param visible ключи видимых секций (см. {@link VisibilityCuller})
+     * @param visibleCount количество ключей
+     * @param queue очередь отрисовки кадра
+     */
+    void render(Camera camera, long[] visible, int visibleCount, RenderQueue queue);
+    
+    /**
+     * Удалить данные секции (например при переходе в рендерер другой детализации)
+     * @param sectionX координата X секции
+     * @param sectionY координата Y секции
+     * @param sectionZ координата Z секции
+     */
+    void removeSection(int sectionX, int sectionY, int sectionZ);
+    
+    /**
+     * Удалить данные секций чанка
+     * @param chunkX координата X чанка
+     * @param chunkZ координата Z чанка
+     */
+    void removeChunk(int chunkX, int chunkZ);
+    
+    /**
+     * Установить текстуру атласа блоков
+     * @param textureId ID текстуры OpenGL
+     */
+    void setAtlasTexture(int textureId);
+    
+    /**
+     * Получить количество секций на GPU
+     * @return количество секций
+     */
+    int getSectionCount();
+    
+    /**
+     * Освободить ресурсы OpenGL
+     */
+    void cleanup();
+}
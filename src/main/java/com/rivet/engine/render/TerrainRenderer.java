@@ -0,0 +1,583 @@
+package com.rivet.engine.render;
+
+import com.rivet.engine.memory.FrameArena;
+import com.rivet.engine.memory.GpuMemory;
+import com.rivet.engine.memory.MemoryCategory;
+import com.rivet.engine.opengl.GpuUpload;
+import com.rivet.engine.opengl.GpuUploader;
+import com.rivet.engine.opengl.ShaderException;
+import com.rivet.engine.render.mesh.MeshBuilder;
+import com.rivet.engine.render.mesh.SectionMesh;
+import com.rivet.engine.util.LongObjectHashMap;
+import com.rivet.engine.util.LongQueue;
+import com.rivet.engine.world.ChunkPos;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL32;
+import org.lwjgl.opengl.GL33;
+import org.lwjgl.opengl.GL40;
+import org.lwjgl.opengl.GL43;
+import org.lwjgl.system.MemoryUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Рендерер террейна с общими буферами-аренами
+ *
+ * Меши всех секций лежат в нескольких больших VBO (страницах), место в них
+ * выделяет {@link BufferArena}. Каждый кадр для видимых секций собирается буфер
+ * команд DrawElementsIndirectCommand и страница рисуется одним вызовом
+ * glMultiDrawElementsIndirect. Без GL 4.3 используется glDrawElementsBaseVertex
+ * с одной привязкой VAO на страницу. Буферы команд собираются в памяти кадра
+ * {@link FrameArena} и возвращаются в нее сразу после передачи в OpenGL.
+ *
+ * С {@link GpuUploader} в режиме общего контекста вершины копируются в страницу
+ * потоком загрузки: меш получает новое место, а секция переключается на него,
+ * когда сработал барьер загрузки (старое место освобождается тогда же). VAO
+ * страниц создаются и привязываются только в потоке OpenGL.
+ * Все методы вызываются только из потока OpenGL.
+ */
+public class TerrainRenderer implements SectionRenderer {
+    
+    private static final Logger logger = LoggerFactory.getLogger(TerrainRenderer.class);
+    
+    private static final int MAX_SECTION_QUADS = 16 * 16 * 16 * 3;
+    private static final int PAGE_BYTES = 32 * 1024 * 1024;
+    private static final int MAX_PAGES = 8;
+    private static final int COMMAND_INTS = 5;
+    
+    /**
+     * Страница - один VBO с собственной ареной
+     */
+    private static final class Page {
+        final int index;
+        final int vao;
+        final int vbo;
+        final int originBuffer;
+        final BufferArena arena;
+        
+        Page(int index, int vao, int vbo, int originBuffer, int quads) {
+            this.index = index;
+            this.vao = vao;
+            this.vbo = vbo;
+            this.originBuffer = originBuffer;
+            this.arena = new BufferArena(quads);
+        }
+    }
+    
+    /**
+     * Место секции внутри страницы (в четырехугольниках)
+     */
+    private static final class Allocation {
+        final Page page;
+        final int offset;
+        final int size;
+        final float originX;
+        final float originY;
+        final float originZ;
+        int quadCount;
+        
+        Allocation(Page page, int offset, int size, int sectionX, int sectionY, int sectionZ) {
+            this.page = page;
+            this.offset = offset;
+            this.size = size;
+            this.originX = sectionX * 16.0f;
+            this.originY = sectionY * 16.0f;
+            this.originZ = sectionZ * 16.0f;
+        }
+    }
+    
+    /**
+     * Меш, копируемый потоком загрузки в новое место страницы
+     */
+    private static final class PendingUpload {
+        final long key;
+        final Allocation allocation;
+        final SectionMesh mesh;
+        final GpuUpload upload;
+        
+        PendingUpload(long key, Allocation allocation, SectionMesh mesh, GpuUpload upload) {
+            this.key = key;
+            this.allocation = allocation;
+            this.mesh = mesh;
+            this.upload = upload;
+        }
+    }
+    
+    private final LongObjectHashMap<Allocation> sections = new LongObjectHashMap<>(4096);
+    private final LongObjectHashMap<PendingUpload> pending = new LongObjectHashMap<>(256);
+    // Загрузки, вытесненные новым мешем или удалением секции, но уже взятые потоком загрузки
+    private final List<PendingUpload> orphaned = new ArrayList<>();
+    private final LongQueue finished = new LongQueue(64);
+    private GpuUploader gpuUploader;
+    private final int pageBytes;
+    private final Page[] pages;
+    private int pageCount = 0;
+    private long rejectedUploads = 0;
+    
+    private TerrainShader shader;
+    private boolean multiDrawIndirect;
+    private int quadIndexBuffer;
+    private int indirectBuffer;
+    private final FrameArena frameArena;
+    private int atlasTexture = 0;
+    private int drawCalls = 0;
+    
+    // Видимые секции кадра, читаются при выполнении очереди
+    private final RenderQueue.DrawCommand drawCommand = this::drawPage;
+    private long[] visible;
+    private int visibleCount;
+    
+    /**
+     * @param frameArena память кадра для буферов команд
+     */
+    public TerrainRenderer(FrameArena frameArena) {
+        this((long) PAGE_BYTES * MAX_PAGES, frameArena);
+    }
+    
+    /**
+     * @param budgetBytes предельный объем вершинных буферов; меши сверх бюджета не загружаются
+     * @param frameArena память кадра для буферов команд
+     */
+    public TerrainRenderer(long budgetBytes, FrameArena frameArena) {
+        this.frameArena = frameArena;
+        int bytes = (int) Math.min(PAGE_BYTES, budgetBytes);
+        this.pageBytes = Math.max(MeshBuilder.QUAD_SIZE, bytes - bytes % MeshBuilder.QUAD_SIZE);
+        this.pages = new Page[(int) Math.max(1, budgetBytes / pageBytes)];
+    }
+    
+    @Override
+    public void initialize() throws ShaderException {
+        GLCapabilities caps = GL.getCapabilities();
+        multiDrawIndirect = caps.OpenGL43 || caps.GL_ARB_multi_draw_indirect;
+        
+        shader = new TerrainShader();
+        quadIndexBuffer = TerrainShader.createQuadIndexBuffer(MAX_SECTION_QUADS);
+        
+        if (multiDrawIndirect) {
+            indirectBuffer = GL15.glGenBuffers();
+        }
+        
+        logger.info("TerrainRenderer: {}", multiDrawIndirect
+            ? "glMultiDrawElementsIndirect" : "glDrawElementsBaseVertex (GL 4.3 недоступен)");
+    }
+    
+    /**
+     * Загружать вершины через поток загрузки с общим контекстом
+     * В резервном режиме загрузчика меши по-прежнему копируются сразу.
+     * @param gpuUploader загрузчик или null
+     */
+    public void setGpuUploader(GpuUploader gpuUploader) {
+        this.gpuUploader = gpuUploader != null && gpuUploader.isShared() ? gpuUploader : null;
+    }
+    
+    @Override
+    public void upload(SectionMesh mesh) {
+        long key = mesh.getKey();
+        discardPending(key);
+        if (gpuUploader != null) {
+            uploadAsync(key, mesh);
+            return;
+        }
+        
+        Allocation allocation = sections.get(key);
+        int quads = mesh.getQuadCount();
+        
+        if (mesh.isEmpty()) {
+            if (allocation != null) {
+                allocation.page.arena.free(allocation.offset, allocation.size);
+                sections.remove(key);
+            }
+            return;
+        }
+        
+        // Меш помещается на старое место и не тратит его больше чем вдвое - пишем поверх
+        if (allocation == null || quads > allocation.size || quads < allocation.size / 2) {
+            if (allocation != null) {
+                allocation.page.arena.free(allocation.offset, allocation.size);
+                sections.remove(key);
+            }
+            allocation = allocate(quads, mesh.getSectionX(), mesh.getSectionY(), mesh.getSectionZ());
+            if (allocation == null) {
+                if (rejectedUploads++ == 0) {
+                    logger.warn("Нет места в буферах террейна ({} MB) для секции [{}, {}, {}] ({} quads)",
+                        getBudgetBytes() / (1024 * 1024), mesh.getSectionX(), mesh.getSectionY(), mesh.getSectionZ(), quads);
+                }
+                return;
+            }
+            sections.put(key, allocation);
+        }
+        
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, allocation.page.vbo);
+        GL15.glBufferSubData(GL15.GL_ARRAY_BUFFER, (long) allocation.offset * MeshBuilder.QUAD_SIZE, mesh.getVertices());
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+        allocation.quadCount = quads;
+    }
+    
+    private void uploadAsync(long key, SectionMesh mesh) {
+        if (mesh.isEmpty()) {
+            freeSection(key);
+            return;
+        }
+        
+        // Всегда новое место: старое еще рисуется, пока копирование не закончено
+        int quads = mesh.getQuadCount();
+        Allocation allocation = allocate(quads, mesh.getSectionX(), mesh.getSectionY(), mesh.getSectionZ());
+        if (allocation == null) {
+            if (rejectedUploads++ == 0) {
+                logger.warn("Нет места в буферах террейна ({} MB) для секции [{}, {}, {}] ({} quads)",
+                    getBudgetBytes() / (1024 * 1024), mesh.getSectionX(), mesh.getSectionY(), mesh.getSectionZ(), quads);
+            }
+            return;
+        }
+        allocation.quadCount = quads;
+        
+        mesh.retain();
+        int vbo = allocation.page.vbo;
+        long offset = (long) allocation.offset * MeshBuilder.QUAD_SIZE;
+        GpuUpload upload = gpuUploader.submit("section " + ChunkPos.sectionX(key) + "," + ChunkPos.sectionY(key) + ","
+            + ChunkPos.sectionZ(key), () -> {
+            GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
+            GL15.glBufferSubData(GL15.GL_ARRAY_BUFFER, offset, mesh.getVertices());
+            GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+        });
+        pending.put(key, new PendingUpload(key, allocation, mesh, upload));
+    }
+    
+    /**
+     * Переключить секции на загруженные меши (раз за кадр)
+     */
+    private void pollUploads() {
+        if (!orphaned.isEmpty()) {
+            for (int i = orphaned.size() - 1; i >= 0; i--) {
+                PendingUpload upload = orphaned.get(i);
+                if (upload.upload.isReady() || upload.upload.isFailed()) {
+                    dropPending(upload);
+                    orphaned.remove(i);
+                }
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        
+        pending.forEach((key, upload) -> {
+            if (upload.upload.isReady() || upload.upload.isFailed()) {
+                finished.add(key);
+            }
+        });
+        while (!finished.isEmpty()) {
+            PendingUpload upload = pending.remove(finished.poll());
+            if (upload.upload.isFailed()) {
+                dropPending(upload);
+                continue;
+            }
+            Allocation previous = sections.put(upload.key, upload.allocation);
+            if (previous != null) {
+                previous.page.arena.free(previous.offset, previous.size);
+            }
+            upload.mesh.release();
+        }
+    }
+    
+    /**
+     * Отменить ожидающую загрузку секции; уже выполняемая дорабатывает и удаляется позже
+     */
+    private void discardPending(long key) {
+        PendingUpload upload = pending.remove(key);
+        if (upload == null) {
+            return;
+        }
+        if (upload.upload.cancel()) {
+            dropPending(upload);
+        } else {
+            orphaned.add(upload);
+        }
+    }
+    
+    private void dropPending(PendingUpload upload) {
+        upload.upload.release();
+        upload.allocation.page.arena.free(upload.allocation.offset, upload.allocation.size);
+        upload.mesh.release();
+    }
+    
+    private void freeSection(long key) {
+        Allocation allocation = sections.remove(key);
+        if (allocation != null) {
+            allocation.page.arena.free(allocation.offset, allocation.size);
+        }
+    }
+    
+    /**
+     * Получить количество мешей, копируемых потоком загрузки
+     * @return количество секций
+     */
+    public int getPendingUploads() {
+        return pending.size() + orphaned.size();
+    }
+    
+    private Allocation allocate(int quads, int sectionX, int sectionY, int sectionZ) {
+        for (int i = 0; i < pageCount; i++) {
+            int offset = pages[i].arena.allocate(quads);
+            if (offset >= 0) {
+                return new Allocation(pages[i], offset, quads, sectionX, sectionY, sectionZ);
+            }
+        }
+        
+        if (pageCount == pages.length) {
+            return null;
+        }
+        Page page = createPage(pageCount);
+        pages[pageCount++] = page;
+        return new Allocation(page, page.arena.allocate(quads), quads, sectionX, sectionY, sectionZ);
+    }
+    
+    private Page createPage(int index) {
+        int vao = GL30.glGenVertexArrays();
+        int vbo = GL15.glGenBuffers();
+        int originBuffer = multiDrawIndirect ? GL15.glGenBuffers() : 0;
+        
+        GL30.glBindVertexArray(vao);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, pageBytes, GL15.GL_STATIC_DRAW);
+        GpuMemory.trackBuffer(vbo, MemoryCategory.MESH, pageBytes);
+        GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, quadIndexBuffer);
+        TerrainShader.setupVertexAttributes();
+        
+        if (multiDrawIndirect) {
+            // Смещение секции - атрибут экземпляра, индекс берется из baseInstance команды
+            GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, originBuffer);
+            GL20.glVertexAttribPointer(TerrainShader.SECTION_ORIGIN_ATTRIBUTE, 3, GL11.GL_FLOAT, false, 12, 0);
+            GL20.glEnableVertexAttribArray(TerrainShader.SECTION_ORIGIN_ATTRIBUTE);
+            GL33.glVertexAttribDivisor(TerrainShader.SECTION_ORIGIN_ATTRIBUTE, 1);
+        }
+        
+        GL30.glBindVertexArray(0);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+        
+        logger.info("TerrainRenderer: создана страница буфера #{} ({} MB)", index, pageBytes / (1024 * 1024));
+        return new Page(index, vao, vbo, originBuffer, pageBytes / MeshBuilder.QUAD_SIZE);
+    }
+    
+    @Override
+    public void render(Camera camera, long[] visible, int visibleCount, RenderQueue queue) {
+        drawCalls = 0;
+        pollUploads();
+        if (sections.isEmpty() || visibleCount == 0) {
+            return;
+        }
+        
+        // Страница - один элемент очереди; секции внутри идут в порядке обхода куллера (от камеры)
+        shader.setCamera(camera);
+        this.visible = visible;
+        this.visibleCount = visibleCount;
+        int program = shader.getProgramId();
+        for (int p = 0; p < pageCount; p++) {
+            queue.submit(RenderQueue.LAYER_OPAQUE, program, atlasTexture, 0.0f, drawCommand, p);
+        }
+    }
+    
+    private void drawPage(int pageIndex) {
+        shader.uploadCamera();
+        if (multiDrawIndirect) {
+            drawPageIndirect(pages[pageIndex], visible, visibleCount);
+        } else {
+            drawPageBaseVertex(pages[pageIndex], visible, visibleCount);
+        }
+    }
+    
+    private void drawPageIndirect(Page page, long[] visible, int visibleCount) {
+        // Команды и начала секций пишутся по адресам арены без оберток буферов;
+        // после glBufferData память возвращается арене
+        int mark = frameArena.mark();
+        long commands = frameArena.allocate(visibleCount * COMMAND_INTS * Integer.BYTES);
+        long origins = frameArena.allocate(visibleCount * 3 * Float.BYTES);
+        int draws = 0;
+        
+        for (int i = 0; i < visibleCount; i++) {
+            Allocation allocation = sections.get(visible[i]);
+            if (allocation == null || allocation.page != page) {
+                continue;
+            }
+            // DrawElementsIndirectCommand: count, instanceCount, firstIndex, baseVertex, baseInstance
+            long command = commands + (long) draws * COMMAND_INTS * Integer.BYTES;
+            MemoryUtil.memPutInt(command, allocation.quadCount * 6);
+            MemoryUtil.memPutInt(command + 4, 1);
+            MemoryUtil.memPutInt(command + 8, 0);
+            MemoryUtil.memPutInt(command + 12, allocation.offset * 4);
+            MemoryUtil.memPutInt(command + 16, draws);
+            long origin = origins + (long) draws * 3 * Float.BYTES;
+            MemoryUtil.memPutFloat(origin, allocation.originX);
+            MemoryUtil.memPutFloat(origin + 4, allocation.originY);
+            MemoryUtil.memPutFloat(origin + 8, allocation.originZ);
+            draws++;
+        }
+        
+        if (draws == 0) {
+            frameArena.rewind(mark);
+            return;
+        }
+        
+        long originBytes = (long) draws * 3 * Float.BYTES;
+        long commandBytes = (long) draws * COMMAND_INTS * Integer.BYTES;
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, page.originBuffer);
+        GL15.nglBufferData(GL15.GL_ARRAY_BUFFER, originBytes, origins, GL15.GL_STREAM_DRAW);
+        GpuMemory.trackBuffer(page.originBuffer, MemoryCategory.RENDER, originBytes);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+        GL15.glBindBuffer(GL40.GL_DRAW_INDIRECT_BUFFER, indirectBuffer);
+        GL15.nglBufferData(GL40.GL_DRAW_INDIRECT_BUFFER, commandBytes, commands, GL15.GL_STREAM_DRAW);
+        GpuMemory.trackBuffer(indirectBuffer, MemoryCategory.RENDER, commandBytes);
+        frameArena.rewind(mark);
+        
+        GL30.glBindVertexArray(page.vao);
+        GL43.glMultiDrawElementsIndirect(GL11.GL_TRIANGLES, GL11.GL_UNSIGNED_INT, 0L, draws, 0);
+        GL15.glBindBuffer(GL40.GL_DRAW_INDIRECT_BUFFER, 0);
+        drawCalls++;
+    }
+    
+    private void drawPageBaseVertex(Page page, long[] visible, int visibleCount) {
+        boolean bound = false;
+        for (int i = 0; i < visibleCount; i++) {
+            Allocation allocation = sections.get(visible[i]);
+            if (allocation == null || allocation.page != page) {
+                continue;
+            }
+            if (!bound) {
+                GL30.glBindVertexArray(page.vao);
+                bound = true;
+            }
+            GL20.glVertexAttrib3f(TerrainShader.SECTION_ORIGIN_ATTRIBUTE,
+                allocation.originX, allocation.originY, allocation.originZ);
+            GL32.glDrawElementsBaseVertex(GL11.GL_TRIANGLES, allocation.quadCount * 6,
+                GL11.GL_UNSIGNED_INT, 0L, allocation.offset * 4);
+            drawCalls++;
+        }
+    }
+    
+    @Override
+    public void removeSection(int sectionX, int sectionY, int sectionZ) {
+        long key = ChunkPos.packSection(sectionX, sectionY, sectionZ);
+        discardPending(key);
+        freeSection(key);
+    }
+    
+    @Override
+    public void removeChunk(int chunkX, int chunkZ) {
+        for (int sectionY = 0; sectionY < 16; sectionY++) {
+            removeSection(chunkX, sectionY, chunkZ);
+        }
+    }
+    
+    @Override
+    public void setAtlasTexture(int textureId) {
+        this.atlasTexture = textureId;
+    }
+    
+    @Override
+    public int getSectionCount() {
+        return sections.size();
+    }
+    
+    /**
+     * Проверить, используется ли multi-draw indirect
+     * @return true если доступен GL 4.3 или ARB_multi_draw_indirect
+     */
+    public boolean isMultiDrawIndirect() {
+        return multiDrawIndirect;
+    }
+    
+    /**
+     * Получить количество вызовов отрисовки последнего кадра
+     * @return количество вызовов
+     */
+    public int getDrawCalls() {
+        return drawCalls;
+    }
+    
+    /**
+     * Получить арену страницы для статистики
+     * @param page индекс страницы
+     * @return арена страницы
+     */
+    public BufferArena getArena(int page) {
+        return pages[page].arena;
+    }
+    
+    public int getPageCount() {
+        return pageCount;
+    }
+    
+    /**
+     * Получить предельный объем вершинных буферов
+     * @return размер в байтах
+     */
+    public long getBudgetBytes() {
+        return (long) pageBytes * pages.length;
+    }
+    
+    /**
+     * Получить количество мешей, не загруженных из-за исчерпания бюджета
+     * @return количество мешей
+     */
+    public long getRejectedUploads() {
+        return rejectedUploads;
+    }
+    
+    @Override
+    public void cleanup() {
+        // Поток загрузки мог начать копирование в страницу: дождаться его до удаления буферов
+        pending.forEach((key, upload) -> orphaned.add(upload));
+        pending.clear();
+        for (PendingUpload upload : orphaned) {
+            if (!upload.upload.cancel()) {
+                try {
+                    upload.upload.awaitDone();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            upload.upload.release();
+            upload.mesh.release();
+        }
+        orphaned.clear();
+        
+        for (int i = 0; i < pageCount; i++) {
+            Page page = pages[i];
+            logger.info("TerrainRenderer: страница #{}: {}", page.index, page.arena);
+            GL30.glDeleteVertexArrays(page.vao);
+            GpuMemory.untrackBuffer(page.vbo);
+            GL15.glDeleteBuffers(page.vbo);
+            if (page.originBuffer != 0) {
+                GpuMemory.untrackBuffer(page.originBuffer);
+                GL15.glDeleteBuffers(page.originBuffer);
+            }
+            pages[i] = null;
+        }
+        pageCount = 0;
+        sections.clear();
+        if (rejectedUploads > 0) {
+            logger.warn("TerrainRenderer: {} мешей не загружено из-за бюджета памяти", rejectedUploads);
+        }
+        
+        if (indirectBuffer != 0) {
+            GpuMemory.untrackBuffer(indirectBuffer);
+            GL15.glDeleteBuffers(indirectBuffer);
+            indirectBuffer = 0;
+        }
+        if (quadIndexBuffer != 0) {
+            GpuMemory.untrackBuffer(quadIndexBuffer);
+            GL15.glDeleteBuffers(quadIndexBuffer);
+            quadIndexBuffer = 0;
+        }
+        if (shader != null) {
+            shader.cleanup();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.rivet.engine.render;
+
+import com.rivet.engine.memory.GpuMemory;
+import com.rivet.engine.memory.MemoryCategory;
+import com.rivet.engine.memory.MemoryScope;
+import com.rivet.engine.opengl.Shader;
+import com.rivet.engine.opengl.ShaderException;
+import com.rivet.engine.render.mesh.MeshBuilder;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
+
+import java.nio.IntBuffer;
+
+/**
+ * Шейдер террейна и общие для рендереров секций объекты OpenGL
+ *
+ * Смещение секции передается атрибутом {@link #SECTION_ORIGIN_ATTRIBUTE}:
+ * массивом на экземпляр при multi-draw indirect или постоянным значением
+ * glVertexAttrib3f при отрисовке по одной секции.
+ */
+final class TerrainShader {
+    
+    static final int SECTION_ORIGIN_ATTRIBUTE = 4;
+    static final float ATLAS_TILES = 16.0f;
+    
+    private final Shader shader;
+    private final int viewProjectionLocation;
+    private Camera camera;
+    private boolean cameraDirty = false;
+    
+    /**
+     * Загрузить и связать шейдер террейна
+     * @throws ShaderException если шейдер не загрузился
+     */
+    TerrainShader() throws ShaderException {
+        shader = new Shader();
+        shader.loadVertexShader("/shaders/terrain.vert");
+        shader.loadFragmentShader("/shaders/terrain.frag");
+        shader.link();
+        
+        viewProjectionLocation = shader.getUniformLocation("viewProjection");
+        shader.use();
+        shader.setUniformInt(shader.getUniformLocation("atlas"), 0);
+        shader.setUniformFloat(shader.getUniformLocation("atlasTiles"), ATLAS_TILES);
+        shader.stop();
+    }
+    
+    int getProgramId() {
+        return shader.getProgramId();
+    }
+    
+    /**
+     * Задать камеру кадра; матрица загружается при первой отрисовке
+     * @param camera камера
+     */
+    void setCamera(Camera camera) {
+        this.camera = camera;
+        this.cameraDirty = true;
+    }
+    
+    /**
+     * Загрузить матрицу камеры, если она еще не загружена в этом кадре
+     * Программа шейдера должна быть привязана (см. {@link RenderQueue}).
+     */
+    void uploadCamera() {
+        if (cameraDirty) {
+            shader.setUniformMatrix4f(viewProjectionLocation, camera.getViewProjection());
+            cameraDirty = false;
+        }
+    }
+    
+    void cleanup() {
+        shader.cleanup();
+    }
+    
+    /**
+     * Настроить атрибуты вершин террейна для привязанных VAO и VBO
+     * Формат вершины описан в {@link com.rivet.engine.render.mesh.TerrainVertexFormat}.
+     */
+    static void setupVertexAttributes() {
+        GL30.glVertexAttribIPointer(0, 2, GL11.GL_UNSIGNED_INT, MeshBuilder.VERTEX_SIZE, 0);
+        GL20.glEnableVertexAttribArray(0);
+    }
+    
+    /**
+     * Создать индексный буфер шаблона 0,1,2, 2,3,0 для четырехугольников
+     * @param maxQuads количество четырехугольников
+     * @return ID буфера
+     */
+    static int createQuadIndexBuffer(int maxQuads) {
+        try (MemoryScope scope = new MemoryScope(MemoryCategory.RENDER)) {
+            IntBuffer indices = scope.mallocInt(maxQuads * 6);
+            for (int q = 0; q < maxQuads; q++) {
+                int base = q * 4;
+                indices.put(base).put(base + 1).put(base + 2)
+                       .put(base + 2).put(base + 3).put(base);
+            }
+            indices.flip();
+            
+            int buffer = GL15.glGenBuffers();
+            GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, buffer);
+            GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, indices, GL15.GL_STATIC_DRAW);
+            GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
+            GpuMemory.trackBuffer(buffer, MemoryCategory.RENDER, (long) maxQuads * 6 * Integer.BYTES);
+            return buffer;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.rivet.engine.render;
+
+import com.rivet.engine.render.mesh.SectionVisibility;
+import com.rivet.engine.world.Chunk;
+import com.rivet.engine.world.ChunkPos;
+import com.rivet.engine.world.Face;
+import org.joml.FrustumIntersection;
+import org.joml.Matrix4f;
+
+import java.util.Arrays;
+
+/**
+ * Определение видимых секций перед отрисовкой кадра
+ *
+ * Обход в ширину от секции камеры по графу связности граней (отсечение пещер)
+ * с проверкой AABB секций против пирамиды видимости. Данные секций хранятся
+ * в кольцевой сетке вокруг камеры в примитивных массивах; обход не создает объектов.
+ * Все методы вызываются из потока рендеринга.
+ */
+public class VisibilityCuller {
+    
+    private static final int HEIGHT = Chunk.SECTION_COUNT;
+    private static final long NO_KEY = Long.MIN_VALUE;
+    
+    private final int radius;
+    private final int width;
+    
+    // Кольцевая сетка по абсолютным координатам: данные секций
+    private final long[] keys;
+    private final long[] visibility;
+    
+    // Сетка относительно камеры: состояние обхода текущего кадра
+    private final int[] visitStamp;
+    private final byte[] traversed;
+    private final byte[] entryFace;
+    private final int[] columnStamp;
+    private final byte[] columnState;
+    private final int[] ringX;
+    private final int[] ringZ;
+    private final int[] queue;
+    
+    private final long[] visible;
+    private final FrustumIntersection frustum = new FrustumIntersection();
+    private int visibleCount = 0;
+    private int stamp = 0;
+    
+    /**
+     * @param radius радиус прорисовки в чанках (не более 127)
+     */
+    public VisibilityCuller(int radius) {
+        if (radius < 1 || radius > 127) {
+            throw new IllegalArgumentException("Render radius out of range: " + radius);
+        }
+        this.radius = radius;
+        this.width = radius * 2 + 1;
+        int capacity = width * width * HEIGHT;
+        this.keys = new long[capacity];
+        this.visibility = new long[capacity];
+        this.visitStamp = new int[capacity];
+        this.traversed = new byte[capacity];
+        this.entryFace = new byte[capacity];
+        this.columnStamp = new int[width * width];
+        this.columnState = new byte[width * width];
+        this.ringX = new int[width];
+        this.ringZ = new int[width];
+        this.queue = new int[capacity];
+        this.visible = new long[capacity];
+        Arrays.fill(keys, NO_KEY);
+    }
+    
+    private int slot(int sectionX, int sectionY, int sectionZ) {
+        return (Math.floorMod(sectionX, width) * width + Math.floorMod(sectionZ, width)) * HEIGHT + sectionY;
+    }
+    
+    /**
+     * Записать граф связности секции (после построения ее меша)
+     * @param sectionX координата X секции
+     * @param sectionY координата Y секции
+     * @param sectionZ координата Z секции
+     * @param sectionVisibility маска {@link SectionVisibility}
+     */
+    public void setSection(int sectionX, int sectionY, int sectionZ, long sectionVisibility) {
+        if (sectionY < 0 || sectionY >= HEIGHT) {
+            return;
+        }
+        int slot = slot(sectionX, sectionY, sectionZ);
+        keys[slot] = ChunkPos.packSection(sectionX, sectionY, sectionZ);
+        visibility[slot] = sectionVisibility;
+    }
+    
+    /**
+     * Удалить секции выгруженного чанка
+     * @param chunkX координата X чанка
+     * @param chunkZ координата Z чанка
+     */
+    public void removeChunk(int chunkX, int chunkZ) {
+        for (int sectionY = 0; sectionY < HEIGHT; sectionY++) {
+            int slot = slot(chunkX, sectionY, chunkZ);
+            if (keys[slot] == ChunkPos.packSection(chunkX, sectionY, chunkZ)) {
+                keys[slot] = NO_KEY;
+            }
+        }
+    }
+    
+    /**
+     * Вычислить список видимых секций
+     * @param camera камера (матрицы уже обновлены)
+     * @return количество видимых секций, ключи доступны через {@link #getVisible()}
+     */
+    public int cull(Camera camera) {
+        return cull(camera.getViewProjection(), camera.getPosition().x, camera.getPosition().y, camera.getPosition().z);
+    }
+    
+    /**
+     * Вычислить список видимых секций
+     * @param viewProjection матрица вида-проекции
+     * @param cameraX позиция камеры X
+     * @param cameraY позиция камеры Y
+     * @param cameraZ позиция камеры Z
+     * @return количество видимых секций
+     */
+    public int cull(Matrix4f viewProjection, float cameraX, float cameraY, float cameraZ) {
+        frustum.set(viewProjection, false);
+        visibleCount = 0;
+        if (++stamp == 0) {
+            Arrays.fill(visitStamp, 0);
+            Arrays.fill(columnStamp, 0);
+            stamp = 1;
+        }
+        
+        int originX = ((int) Math.floor(cameraX) >> 4) - radius;
+        int originY = Math.max(0, Math.min(HEIGHT - 1, (int) Math.floor(cameraY) >> 4));
+        int originZ = ((int) Math.floor(cameraZ) >> 4) - radius;
+        for (int i = 0; i < width; i++) {
+            ringX[i] = Math.floorMod(originX + i, width) * width * HEIGHT;
+            ringZ[i] = Math.floorMod(originZ + i, width) * HEIGHT;
+        }
+        
+        // Элемент очереди: lx << 16 | lz << 8 | y в координатах относительно угла сетки
+        int start = (radius << 16) | (radius << 8) | originY;
+        int startLocal = (radius * width + radius) * HEIGHT + originY;
+        if (keys[ringX[radius] + ringZ[radius] + originY] != ChunkPos.packSection(originX + radius, originY, originZ + radius)) {
+            return 0;
+        }
+        visitStamp[startLocal] = stamp;
+        traversed[startLocal] = 0;
+        entryFace[startLocal] = -1;
+        
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        
+        while (head < tail) {
+            int packed = queue[head++];
+            int lx = packed >>> 16;
+            int lz = (packed >>> 8) & 0xFF;
+            int y = packed & 0xFF;
+            int local = (lx * width + lz) * HEIGHT + y;
+            int slot = ringX[lx] + ringZ[lz] + y;
+            
+            visible[visibleCount++] = keys[slot];
+            
+            long connectivity = visibility[slot];
+            int entry = entryFace[local];
+            int directions = traversed[local];
+            
+            for (int face = 0; face < Face.COUNT; face++) {
+                // Не возвращаемся против уже пройденного направления
+                if ((directions & (1 << Face.opposite(face))) != 0) {
+                    continue;
+                }
+                if (entry >= 0 && !SectionVisibility.isConnected(connectivity, entry, face)) {
+                    continue;
+                }
+                
+                int nx = lx + Face.OFFSET_X[face];
+                int ny = y + Face.OFFSET_Y[face];
+                int nz = lz + Face.OFFSET_Z[face];
+                if (ny < 0 || ny >= HEIGHT || nx < 0 || nx >= width || nz < 0 || nz >= width) {
+                    continue;
+                }
+                
+                int nextLocal = (nx * width + nz) * HEIGHT + ny;
+                if (visitStamp[nextLocal] == stamp) {
+                    continue;
+                }
+                int nextSlot = ringX[nx] + ringZ[nz] + ny;
+                if (keys[nextSlot] != ChunkPos.packSection(originX + nx, ny, originZ + nz)) {
+                    continue;
+                }
+                if (!inFrustum(nx * width + nz, originX + nx, ny, originZ + nz)) {
+                    continue;
+                }
+                
+                visitStamp[nextLocal] = stamp;
+                traversed[nextLocal] = (byte) (directions | (1 << face));
+                entryFace[nextLocal] = (byte) Face.opposite(face);
+                queue[tail++] = (nx << 16) | (nz << 8) | ny;
+            }
+        }
+        return visibleCount;
+    }
+    
+    /**
+     * Проверка секции против пирамиды видимости
+     * Колонка целиком проверяется один раз за кадр: если она полностью внутри,
+     * проверки отдельных секций не нужны.
+     */
+    private boolean inFrustum(int column, int sectionX, int sectionY, int sectionZ) {
+        int state;
+        if (columnStamp[column] == stamp) {
+            state = columnState[column];
+        } else {
+            float minX = sectionX << 4;
+            float minZ = sectionZ << 4;
+            state = frustum.intersectAab(minX, 0.0f, minZ, minX + 16, Chunk.HEIGHT, minZ + 16);
+            columnStamp[column] = stamp;
+            columnState[column] = (byte) state;
+        }
+        
+        if (state == FrustumIntersection.INSIDE) {
+            return true;
+        }
+        if (state != FrustumIntersection.INTERSECT) {
+            return false;
+        }
+        float minX = sectionX << 4;
+        float minY = sectionY << 4;
+        float minZ = sectionZ << 4;
+        return frustum.testAab(minX, minY, minZ, minX + 16, minY + 16, minZ + 16);
+    }
+    
+    /**
+     * Получить ключи видимых секций последнего вызова cull
+     * Массив переиспользуется, действительны первые {@link #getVisibleCount()} элементов.
+     * @return ключи ChunkPos.packSection в порядке удаления от камеры
+     */
+    public long[] getVisible() {
+        return visible;
+    }
+    
+    public int getVisibleCount() {
+        return visibleCount;
+    }
+    
+    public int getRadius() {
+        return radius;
+    }
+}
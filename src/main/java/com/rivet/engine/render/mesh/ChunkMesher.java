@@ -0,0 +1,280 @@
+package com.rivet.engine.render.mesh;
+
+import com.rivet.engine.world.Blocks;
+import com.rivet.engine.world.ChunkSection;
+import com.rivet.engine.world.Face;
+import com.rivet.engine.world.NibbleArray;
+import com.rivet.engine.world.PalettedContainer;
+import com.rivet.engine.world.World;
+
+/**
+ * Жадный мешер секций 16x16x16
+ *
+ * Копирует секцию вместе с граничным слоем соседей в рабочий массив 18x18x18,
+ * отбрасывает грани, закрытые непрозрачными соседями, и объединяет грани
+ * с одинаковой плиткой, затенением углов и освещением в прямоугольники. Экземпляр не потокобезопасен: по одному на поток.
+ */
+public final class ChunkMesher {
+    
+    private static final int S = ChunkSection.SIZE;
+    private static final int N = S + 2;
+    
+    // Шаги индекса рабочего массива по осям X, Y, Z
+    private static final int[] STRIDE = { 1, N * N, N };
+    private static final int ORIGIN = 1 + N * N + N;
+    
+    private final int[] blocks = new int[N * N * N];
+    // Освещение клеток: небесный свет << 4 | свет блоков
+    private final byte[] light = new byte[N * N * N];
+    private final int[] mask = new int[S * S];
+    private final ChunkSection[] neighbours = new ChunkSection[27];
+    private final int[] corners = new int[12];
+    private final int[] cornerAo = new int[4];
+    private final int[] pos = new int[3];
+    private final int[] fillQueue = new int[ChunkSection.VOLUME];
+    private final long[] filled = new long[ChunkSection.VOLUME / 64];
+    
+    /**
+     * Скопировать блоки секции и граничные блоки соседей
+     * @param world мир
+     * @param sectionX координата X секции
+     * @param sectionY координата Y секции
+     * @param sectionZ координата Z секции
+     * @return false если центральная секция пустая и меш не нужен
+     */
+    public boolean gather(World world, int sectionX, int sectionY, int sectionZ) {
+        for (int dz = -1; dz <= 1; dz++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    neighbours[(dz + 1) * 9 + (dy + 1) * 3 + dx + 1] =
+                        world.getSection(sectionX + dx, sectionY + dy, sectionZ + dz);
+                }
+            }
+        }
+        
+        ChunkSection center = neighbours[13];
+        if (center == null || center.isEmpty()) {
+            return false;
+        }
+        
+        // Центральная секция - прямое чтение хранилища
+        PalettedContainer storage = center.getBlocks();
+        NibbleArray sky = center.getSkyLight();
+        NibbleArray block = center.getBlockLight();
+        for (int y = 0; y < S; y++) {
+            for (int z = 0; z < S; z++) {
+                int src = (y << 8) | (z << 4);
+                int dst = ORIGIN + y * STRIDE[1] + z * STRIDE[2];
+                for (int x = 0; x < S; x++) {
+                    blocks[dst + x] = storage.get(src + x);
+                    light[dst + x] = (byte) (sky.get(src + x) << 4 | block.get(src + x));
+                }
+            }
+        }
+        
+        // Граничный слой
+        for (int y = -1; y <= S; y++) {
+            for (int z = -1; z <= S; z++) {
+                for (int x = -1; x <= S; x++) {
+                    int dx = x < 0 ? -1 : (x >= S ? 1 : 0);
+                    int dy = y < 0 ? -1 : (y >= S ? 1 : 0);
+                    int dz = z < 0 ? -1 : (z >= S ? 1 : 0);
+                    if (dx == 0 && dy == 0 && dz == 0) {
+                        x = S - 1; // пропускаем внутренность строки
+                        continue;
+                    }
+                    ChunkSection section = neighbours[(dz + 1) * 9 + (dy + 1) * 3 + dx + 1];
+                    int dst = ORIGIN + x + y * STRIDE[1] + z * STRIDE[2];
+                    if (section == null) {
+                        // Отсутствующая секция - воздух, открытый небу
+                        blocks[dst] = Blocks.AIR_ID;
+                        light[dst] = (byte) (15 << 4);
+                    } else {
+                        int src = ChunkSection.index(x & 15, y & 15, z & 15);
+                        blocks[dst] = section.getBlocks().get(src);
+                        light[dst] = (byte) (section.getSkyLight().get(src) << 4 | section.getBlockLight().get(src));
+                    }
+                }
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Построить меш по скопированным данным
+     * @param out построитель вершин (begin() уже вызван)
+     */
+    public void mesh(MeshBuilder out) {
+        for (int face = 0; face < Face.COUNT; face++) {
+            int d = Face.axis(face);
+            int u = (d + 1) % 3;
+            int v = (d + 2) % 3;
+            boolean positive = Face.isPositive(face);
+            int neighbourStep = positive ? STRIDE[d] : -STRIDE[d];
+            
+            for (int k = 0; k < S; k++) {
+                buildMask(face, d, u, v, k, neighbourStep);
+                mergeMask(out, face, d, u, v, positive ? k + 1 : k, positive);
+            }
+        }
+    }
+    
+    /**
+     * Вычислить граф связности граней секции по скопированным данным
+     * Заливка проходит по непрозрачным для взгляда блокам; если одна область
+     * касается граней A и B, секцию можно "просмотреть" насквозь от A к B.
+     * @return маска {@link SectionVisibility}
+     */
+    public long computeVisibility() {
+        java.util.Arrays.fill(filled, 0L);
+        long visibility = 0L;
+        
+        for (int start = 0; start < ChunkSection.VOLUME; start++) {
+            if ((filled[start >>> 6] & (1L << start)) != 0 || Blocks.isOpaque(blockAt(start))) {
+                continue;
+            }
+            
+            int faces = 0;
+            int head = 0;
+            int tail = 0;
+            fillQueue[tail++] = start;
+            filled[start >>> 6] |= 1L << start;
+            
+            while (head < tail) {
+                int index = fillQueue[head++];
+                int x = index & 15;
+                int z = (index >>> 4) & 15;
+                int y = index >>> 8;
+                
+                if (x == 0) faces |= 1 << Face.WEST; else tail = visit(index - 1, tail);
+                if (x == 15) faces |= 1 << Face.EAST; else tail = visit(index + 1, tail);
+                if (y == 0) faces |= 1 << Face.DOWN; else tail = visit(index - 256, tail);
+                if (y == 15) faces |= 1 << Face.UP; else tail = visit(index + 256, tail);
+                if (z == 0) faces |= 1 << Face.NORTH; else tail = visit(index - 16, tail);
+                if (z == 15) faces |= 1 << Face.SOUTH; else tail = visit(index + 16, tail);
+            }
+            
+            visibility |= SectionVisibility.connectAll(faces);
+        }
+        return visibility;
+    }
+    
+    private int visit(int index, int tail) {
+        if ((filled[index >>> 6] & (1L << index)) == 0 && !Blocks.isOpaque(blockAt(index))) {
+            filled[index >>> 6] |= 1L << index;
+            fillQueue[tail++] = index;
+        }
+        return tail;
+    }
+    
+    private int blockAt(int sectionIndex) {
+        return blocks[ORIGIN + (sectionIndex & 15) + (sectionIndex >>> 8) * STRIDE[1] + ((sectionIndex >>> 4) & 15) * STRIDE[2]];
+    }
+    
+    private void buildMask(int face, int d, int u, int v, int k, int neighbourStep) {
+        int base = ORIGIN + k * STRIDE[d];
+        int su = STRIDE[u];
+        int sv = STRIDE[v];
+        for (int j = 0; j < S; j++) {
+            for (int i = 0; i < S; i++) {
+                int index = base + i * su + j * sv;
+                int id = blocks[index];
+                int value = 0;
+                int front = index + neighbourStep;
+                if (id != Blocks.AIR_ID && !Blocks.isOpaque(blocks[front])) {
+                    // Затенение углов (0,0) (1,0) (1,1) (0,1) по блокам слоя перед гранью
+                    int ao = vertexAo(front, -su, -sv)
+                           | vertexAo(front, su, -sv) << 2
+                           | vertexAo(front, su, sv) << 4
+                           | vertexAo(front, -su, sv) << 6;
+                    value = 1 | Blocks.tile(id, face) << 1 | ao << 13 | faceLight(front) << 21;
+                }
+                mask[j * S + i] = value;
+            }
+        }
+    }
+    
+    /**
+     * Затенение вершины: 0 если обе боковые клетки заняты, иначе 3 минус число занятых
+     */
+    private int vertexAo(int front, int stepU, int stepV) {
+        int side1 = Blocks.isOpaque(blocks[front + stepU]) ? 1 : 0;
+        int side2 = Blocks.isOpaque(blocks[front + stepV]) ? 1 : 0;
+        if (side1 == 1 && side2 == 1) {
+            return 0;
+        }
+        int corner = Blocks.isOpaque(blocks[front + stepU + stepV]) ? 1 : 0;
+        return 3 - side1 - side2 - corner;
+    }
+    
+    /**
+     * Освещенность клетки перед гранью: небесный свет << 4 | свет блоков
+     */
+    private int faceLight(int front) {
+        return light[front] & 0xFF;
+    }
+    
+    private void mergeMask(MeshBuilder out, int face, int d, int u, int v, int plane, boolean positive) {
+        for (int j = 0; j < S; j++) {
+            for (int i = 0; i < S; ) {
+                int value = mask[j * S + i];
+                if (value == 0) {
+                    i++;
+                    continue;
+                }
+                
+                int w = 1;
+                while (i + w < S && mask[j * S + i + w] == value) {
+                    w++;
+                }
+                
+                int h = 1;
+                grow:
+                while (j + h < S) {
+                    int row = (j + h) * S;
+                    for (int x = 0; x < w; x++) {
+                        if (mask[row + i + x] != value) {
+                            break grow;
+                        }
+                    }
+                    h++;
+                }
+                
+                for (int y = 0; y < h; y++) {
+                    int row = (j + y) * S;
+                    for (int x = 0; x < w; x++) {
+                        mask[row + i + x] = 0;
+                    }
+                }
+                
+                emitQuad(out, face, d, u, v, plane, i, j, w, h, positive, value);
+                i += w;
+            }
+        }
+    }
+    
+    private void emitQuad(MeshBuilder out, int face, int d, int u, int v, int plane,
+                          int i, int j, int w, int h, boolean positive, int value) {
+        int tile = (value >>> 1) & 0xFFF;
+        int ao = (value >>> 13) & 0xFF;
+        int light = (value >>> 21) & 0xFF;
+        
+        // Для положительной грани обход (0,0) (w,0) (w,h) (0,h) идет против часовой стрелки,
+        // так как u x v совпадает с направлением нормали
+        setCorner(0, d, u, v, plane, i, j, ao);
+        setCorner(positive ? 1 : 3, d, u, v, plane, i + w, j, ao >>> 2);
+        setCorner(2, d, u, v, plane, i + w, j + h, ao >>> 4);
+        setCorner(positive ? 3 : 1, d, u, v, plane, i, j + h, ao >>> 6);
+        out.quad(face, corners, cornerAo, tile, light >>> 4, light & 15);
+    }
+    
+    private void setCorner(int corner, int d, int u, int v, int plane, int cu, int cv, int ao) {
+        pos[d] = plane;
+        pos[u] = cu;
+        pos[v] = cv;
+        corners[corner * 3] = pos[0];
+        corners[corner * 3 + 1] = pos[1];
+        corners[corner * 3 + 2] = pos[2];
+        cornerAo[corner] = ao & 3;
+    }
+}
@@ -0,0 +1,345 @@
+package com.rivet.engine.render.mesh;
+
+import com.rivet.engine.util.LongObjectHashMap;
+import com.rivet.engine.world.BlockChangeListener;
+import com.rivet.engine.world.Chunk;
+import com.rivet.engine.world.ChunkPos;
+import com.rivet.engine.world.World;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Сервис фонового построения мешей секций
+ *
+ * Грязные секции мешируются на рабочих потоках в буферы из пула,
+ * готовые меши передаются в поток OpenGL через {@link #uploadCompleted}.
+ * Секции дальше {@link #setLodCenter расстояния детализации} строятся
+ * {@link LodMesher} в отдельный пул буферов; уровень выбирается при запуске
+ * задачи по текущему центру.
+ * Методы пометки и загрузки вызываются только из потока-писателя мира.
+ */
+public class ChunkMeshingService implements BlockChangeListener {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ChunkMeshingService.class);
+    
+    private final World world;
+    private final MeshBufferPool pool;
+    private final ExecutorService executor;
+    private final ThreadLocal<ChunkMesher> meshers = ThreadLocal.withInitial(ChunkMesher::new);
+    private final ThreadLocal<MeshBuilder> builders;
+    private final MeshBufferPool lodPool;
+    private final ThreadLocal<LodMesher> lodMeshers = ThreadLocal.withInitial(LodMesher::new);
+    private final ThreadLocal<MeshBuilder> lodBuilders;
+    private final LongObjectHashMap<MeshTask> tasks = new LongObjectHashMap<>(1024);
+    private final ConcurrentLinkedQueue<SectionMesh> completed = new ConcurrentLinkedQueue<>();
+    
+    // Кольца детализации: центр в чанках и расстояние полной детализации (0 - без LOD)
+    private volatile int lodCenterX = 0;
+    private volatile int lodCenterZ = 0;
+    private volatile int lodDistance = 0;
+    
+    /**
+     * Задача построения меша одной секции
+     */
+    private final class MeshTask implements Runnable {
+        final int sectionX;
+        final int sectionY;
+        final int sectionZ;
+        volatile boolean started = false;
+        volatile boolean cancelled = false;
+        
+        MeshTask(int sectionX, int sectionY, int sectionZ) {
+            this.sectionX = sectionX;
+            this.sectionY = sectionY;
+            this.sectionZ = sectionZ;
+        }
+        
+        @Override
+        public void run() {
+            started = true;
+            if (cancelled) {
+                return;
+            }
+            try {
+                completed.add(buildMesh(sectionX, sectionY, sectionZ, this));
+            } catch (Exception e) {
+                logger.error("Ошибка построения меша секции [{}, {}, {}]", sectionX, sectionY, sectionZ, e);
+            }
+        }
+    }
+    
+    /**
+     * @param world мир
+     * @param threads количество рабочих потоков
+     */
+    public ChunkMeshingService(World world, int threads) {
+        this.world = world;
+        this.pool = new MeshBufferPool(threads * 4);
+        this.builders = ThreadLocal.withInitial(() -> new MeshBuilder(pool));
+        this.lodPool = new MeshBufferPool(threads * 2);
+        this.lodBuilders = ThreadLocal.withInitial(() -> new MeshBuilder(lodPool));
+        
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "ChunkMesher-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+        
+        logger.info("ChunkMeshingService: {} рабочих потоков", threads);
+    }
+    
+    /**
+     * Построить меш секции синхронно в текущем потоке
+     * @param sectionX координата X секции
+     * @param sectionY координата Y секции
+     * @param sectionZ координата Z секции
+     * @return готовый меш (вызывающий обязан вызвать release())
+     */
+    public SectionMesh meshNow(int sectionX, int sectionY, int sectionZ) {
+        return buildMesh(sectionX, sectionY, sectionZ, null);
+    }
+    
+    private SectionMesh buildMesh(int sectionX, int sectionY, int sectionZ, Object task) {
+        int level = lodLevel(sectionX, sectionZ, lodCenterX, lodCenterZ, lodDistance);
+        if (level > 0) {
+            return buildLodMesh(sectionX, sectionY, sectionZ, level, task);
+        }
+        
+        ChunkMesher mesher = meshers.get();
+        if (!mesher.gather(world, sectionX, sectionY, sectionZ)) {
+            return new SectionMesh(sectionX, sectionY, sectionZ, null, 0, SectionVisibility.ALL, 0, pool, task);
+        }
+        
+        MeshBuilder builder = builders.get();
+        builder.begin();
+        mesher.mesh(builder);
+        long visibility = mesher.computeVisibility();
+        int quads = builder.getQuadCount();
+        return new SectionMesh(sectionX, sectionY, sectionZ, builder.finish(), quads, visibility, 0, pool, task);
+    }
+    
+    private SectionMesh buildLodMesh(int sectionX, int sectionY, int sectionZ, int level, Object task) {
+        LodMesher mesher = lodMeshers.get();
+        if (!mesher.gather(world, sectionX, sectionY, sectionZ, level)) {
+            return new SectionMesh(sectionX, sectionY, sectionZ, null, 0, SectionVisibility.ALL, level, lodPool, task);
+        }
+        
+        MeshBuilder builder = lodBuilders.get();
+        builder.begin();
+        mesher.mesh(builder);
+        long visibility = mesher.computeVisibility();
+        int quads = builder.getQuadCount();
+        return new SectionMesh(sectionX, sectionY, sectionZ, builder.finish(), quads, visibility, level, lodPool, task);
+    }
+    
+    /**
+     * Уровень детализации чанка
+     * Кольца удваиваются: до distance - полный меш, до 2 * distance - уровень 1,
+     * до 4 * distance - уровень 2, дальше - уровень 3.
+     * @param chunkX координата X чанка
+     * @param chunkZ координата Z чанка
+     * @param centerX координата X центрального чанка
+     * @param centerZ координата Z центрального чанка
+     * @param distance расстояние полной детализации в чанках (0 - без LOD)
+     * @return уровень 0-3
+     */
+    public static int lodLevel(int chunkX, int chunkZ, int centerX, int centerZ, int distance) {
+        if (distance <= 0) {
+            return 0;
+        }
+        int d = Math.max(Math.abs(chunkX - centerX), Math.abs(chunkZ - centerZ));
+        int level = 0;
+        while (level < LodMesher.MAX_LEVEL && d > distance << level) {
+            level++;
+        }
+        return level;
+    }
+    
+    /**
+     * Задать центр колец детализации
+     * Секции, у которых сменился уровень, перестраивает вызывающий.
+     * @param chunkX координата X чанка камеры
+     * @param chunkZ координата Z чанка камеры
+     */
+    public void setLodCenter(int chunkX, int chunkZ) {
+        lodCenterX = chunkX;
+        lodCenterZ = chunkZ;
+    }
+    
+    /**
+     * Задать расстояние полной детализации
+     * @param chunks расстояние в чанках (0 - все секции с полной детализацией)
+     */
+    public void setLodDistance(int chunks) {
+        lodDistance = Math.max(0, chunks);
+    }
+    
+    public int getLodDistance() {
+        return lodDistance;
+    }
+    
+    /**
+     * Уровень детализации чанка для текущего центра
+     * @param chunkX координата X чанка
+     * @param chunkZ координата Z чанка
+     * @return уровень 0-3
+     */
+    public int getLodLevel(int chunkX, int chunkZ) {
+        return lodLevel(chunkX, chunkZ, lodCenterX, lodCenterZ, lodDistance);
+    }
+    
+    /**
+     * Пометить секцию для перестроения
+     * Повторная пометка еще не начатой задачи ничего не делает.
+     * @param sectionX координата X секции
+     * @param sectionY координата Y секции
+     * @param sectionZ координата Z секции
+     */
+    public void markSectionDirty(int sectionX, int sectionY, int sectionZ) {
+        if (sectionY < 0 || sectionY >= Chunk.SECTION_COUNT) {
+            return;
+        }
+        
+        long key = ChunkPos.packSection(sectionX, sectionY, sectionZ);
+        MeshTask current = tasks.get(key);
+        if (current != null && !current.started) {
+            return;
+        }
+        
+        MeshTask task = new MeshTask(sectionX, sectionY, sectionZ);
+        tasks.put(key, task);
+        executor.execute(task);
+    }
+    
+    /**
+     * Пометить для перестроения все секции чанка и граничащие с ним секции соседей
+     * @param chunkX координата X чанка
+     * @param chunkZ координата Z чанка
+     */
+    public void markChunkDirty(int chunkX, int chunkZ) {
+        for (int sectionY = 0; sectionY < Chunk.SECTION_COUNT; sectionY++) {
+            markSectionDirty(chunkX, sectionY, chunkZ);
+            markSectionDirty(chunkX - 1, sectionY, chunkZ);
+            markSectionDirty(chunkX + 1, sectionY, chunkZ);
+            markSectionDirty(chunkX, sectionY, chunkZ - 1);
+            markSectionDirty(chunkX, sectionY, chunkZ + 1);
+        }
+    }
+    
+    /**
+     * Отменить ожидающие задачи секций чанка (например при выгрузке)
+     * @param chunkX координата X чанка
+     * @param chunkZ координата Z чанка
+     */
+    public void cancelChunk(int chunkX, int chunkZ) {
+        for (int sectionY = 0; sectionY < Chunk.SECTION_COUNT; sectionY++) {
+            MeshTask task = tasks.remove(ChunkPos.packSection(chunkX, sectionY, chunkZ));
+            if (task != null) {
+                task.cancelled = true;
+            }
+        }
+    }
+    
+    @Override
+    public void onBlockChanged(int x, int y, int z, int oldId, int newId) {
+        int sectionX = x >> 4;
+        int sectionY = y >> 4;
+        int sectionZ = z >> 4;
+        markSectionDirty(sectionX, sectionY, sectionZ);
+        
+        // Соседние секции перестраиваются только при изменении граничного блока
+        int lx = x & 15;
+        int ly = y & 15;
+        int lz = z & 15;
+        if (lx == 0) markSectionDirty(sectionX - 1, sectionY, sectionZ);
+        if (lx == 15) markSectionDirty(sectionX + 1, sectionY, sectionZ);
+        if (ly == 0) markSectionDirty(sectionX, sectionY - 1, sectionZ);
+        if (ly == 15) markSectionDirty(sectionX, sectionY + 1, sectionZ);
+        if (lz == 0) markSectionDirty(sectionX, sectionY, sectionZ - 1);
+        if (lz == 15) markSectionDirty(sectionX, sectionY, sectionZ + 1);
+    }
+    
+    /**
+     * Передать готовые меши в поток OpenGL в пределах бюджета времени
+     * Устаревшие меши (секция была помечена снова) отбрасываются.
+     * @param uploader приемник мешей
+     * @param budgetNanos бюджет времени в наносекундах
+     * @return количество загруженных мешей
+     */
+    public int uploadCompleted(MeshUploader uploader, long budgetNanos) {
+        long deadline = System.nanoTime() + budgetNanos;
+        int uploaded = 0;
+        
+        SectionMesh mesh;
+        while ((mesh = completed.poll()) != null) {
+            try {
+                long key = mesh.getKey();
+                if (tasks.get(key) != mesh.task) {
+                    continue;
+                }
+                tasks.remove(key);
+                uploader.upload(mesh);
+                uploaded++;
+            } finally {
+                mesh.release();
+            }
+            
+            if (System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+        return uploaded;
+    }
+    
+    /**
+     * Получить количество незавершенных задач
+     * @return количество секций в очереди или в работе
+     */
+    public int getPendingCount() {
+        return tasks.size();
+    }
+    
+    /**
+     * Получить пул буферов мешей
+     * @return пул
+     */
+    public MeshBufferPool getBufferPool() {
+        return pool;
+    }
+    
+    /**
+     * Получить пул буферов уменьшенных мешей
+     * @return пул
+     */
+    public MeshBufferPool getLodBufferPool() {
+        return lodPool;
+    }
+    
+    /**
+     * Остановить рабочие потоки и освободить буферы
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        
+        SectionMesh mesh;
+        while ((mesh = completed.poll()) != null) {
+            mesh.release();
+        }
+        tasks.clear();
+        pool.clear();
+        lodPool.clear();
+    }
+}
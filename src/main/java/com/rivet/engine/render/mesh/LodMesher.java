@@ -0,0 +1,281 @@
+package com.rivet.engine.render.mesh;
+
+import com.rivet.engine.world.Blocks;
+import com.rivet.engine.world.ChunkSection;
+import com.rivet.engine.world.Face;
+import com.rivet.engine.world.NibbleArray;
+import com.rivet.engine.world.PalettedContainer;
+import com.rivet.engine.world.World;
+
+/**
+ * Мешер упрощенных секций для дальних колец прорисовки
+ *
+ * Секция уменьшается в 2, 4 или 8 раз по каждой оси: ячейка размером
+ * scale^3 блоков считается непрозрачной, если непрозрачна хотя бы половина
+ * ее блоков, и берет блок верхнего занятого слоя. Грани ячеек объединяются
+ * жадно, как в {@link ChunkMesher}, но без затенения углов. На боковых
+ * границах секции у ячеек верхнего слоя добавляются юбки - грани, опущенные
+ * на одну ячейку вниз, которые закрывают щели между соседями разной детализации.
+ * Экземпляр не потокобезопасен: по одному на поток.
+ */
+public final class LodMesher {
+    
+    public static final int MAX_LEVEL = 3;
+    
+    private static final int S = ChunkSection.SIZE;
+    private static final int MAX_WIDTH = S / 2 + 2;
+    private static final int SKIRT = 1 << 13;
+    
+    private final int[] cells = new int[MAX_WIDTH * MAX_WIDTH * MAX_WIDTH];
+    // Освещение ячеек: максимум небесного света << 4 | максимум света блоков
+    private final byte[] light = new byte[MAX_WIDTH * MAX_WIDTH * MAX_WIDTH];
+    private final int[] mask = new int[(S / 2) * (S / 2)];
+    private final ChunkSection[] neighbours = new ChunkSection[27];
+    private final int[] corners = new int[12];
+    private final int[] cornerAo = { 3, 3, 3, 3 };
+    private final int[] pos = new int[3];
+    
+    // Параметры текущей секции: размер ячейки, ячеек по оси, ширина сетки с границей
+    private int scale;
+    private int size;
+    private final int[] stride = new int[3];
+    private int origin;
+    
+    /**
+     * Размер ячейки уровня детализации
+     * @param level уровень (1-3)
+     * @return сторона ячейки в блоках (2, 4 или 8)
+     */
+    public static int scale(int level) {
+        return 1 << level;
+    }
+    
+    /**
+     * Уменьшить секцию и граничный слой соседей до ячеек уровня
+     * @param world мир
+     * @param sectionX координата X секции
+     * @param sectionY координата Y секции
+     * @param sectionZ координата Z секции
+     * @param level уровень детализации (1-3)
+     * @return false если центральная секция пустая и меш не нужен
+     */
+    public boolean gather(World world, int sectionX, int sectionY, int sectionZ, int level) {
+        if (level < 1 || level > MAX_LEVEL) {
+            throw new IllegalArgumentException("LOD level out of range: " + level);
+        }
+        
+        for (int dz = -1; dz <= 1; dz++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    neighbours[(dz + 1) * 9 + (dy + 1) * 3 + dx + 1] =
+                        world.getSection(sectionX + dx, sectionY + dy, sectionZ + dz);
+                }
+            }
+        }
+        
+        ChunkSection center = neighbours[13];
+        if (center == null || center.isEmpty()) {
+            return false;
+        }
+        
+        scale = scale(level);
+        size = S / scale;
+        int width = size + 2;
+        stride[0] = 1;
+        stride[1] = width * width;
+        stride[2] = width;
+        origin = 1 + width + width * width;
+        
+        for (int y = -1; y <= size; y++) {
+            for (int z = -1; z <= size; z++) {
+                for (int x = -1; x <= size; x++) {
+                    int dx = x < 0 ? -1 : (x >= size ? 1 : 0);
+                    int dy = y < 0 ? -1 : (y >= size ? 1 : 0);
+                    int dz = z < 0 ? -1 : (z >= size ? 1 : 0);
+                    if ((dx & 1) + (dy & 1) + (dz & 1) > 1) {
+                        continue; // ребра и углы границы мешеру не нужны
+                    }
+                    ChunkSection section = neighbours[(dz + 1) * 9 + (dy + 1) * 3 + dx + 1];
+                    int cell = origin + x + y * stride[1] + z * stride[2];
+                    if (section == null) {
+                        // Отсутствующая секция - воздух, открытый небу
+                        cells[cell] = Blocks.AIR_ID;
+                        light[cell] = (byte) (15 << 4);
+                    } else {
+                        downsample(section, (x * scale) & 15, (y * scale) & 15, (z * scale) & 15, cell);
+                    }
+                }
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Уменьшить блоки scale^3 секции в одну ячейку
+     */
+    private void downsample(ChunkSection section, int baseX, int baseY, int baseZ, int cell) {
+        PalettedContainer storage = section.getBlocks();
+        NibbleArray sky = section.getSkyLight();
+        NibbleArray block = section.getBlockLight();
+        int opaque = 0;
+        int topId = Blocks.AIR_ID;
+        int maxSky = 0;
+        int maxBlock = 0;
+        
+        // Сверху вниз: первый найденный непрозрачный блок лежит в верхнем занятом слое
+        for (int y = baseY + scale - 1; y >= baseY; y--) {
+            for (int z = baseZ; z < baseZ + scale; z++) {
+                int row = ChunkSection.index(baseX, y, z);
+                for (int x = 0; x < scale; x++) {
+                    int index = row + x;
+                    int id = storage.get(index);
+                    if (Blocks.isOpaque(id)) {
+                        if (opaque++ == 0) {
+                            topId = id;
+                        }
+                    } else {
+                        maxSky = Math.max(maxSky, sky.get(index));
+                        maxBlock = Math.max(maxBlock, block.get(index));
+                    }
+                }
+            }
+        }
+        
+        cells[cell] = opaque * 2 >= scale * scale * scale ? topId : Blocks.AIR_ID;
+        light[cell] = (byte) (maxSky << 4 | maxBlock);
+    }
+    
+    /**
+     * Построить меш по уменьшенным данным
+     * @param out построитель вершин (begin() уже вызван)
+     */
+    public void mesh(MeshBuilder out) {
+        for (int face = 0; face < Face.COUNT; face++) {
+            int d = Face.axis(face);
+            int u = (d + 1) % 3;
+            int v = (d + 2) % 3;
+            boolean positive = Face.isPositive(face);
+            int neighbourStep = positive ? stride[d] : -stride[d];
+            
+            for (int k = 0; k < size; k++) {
+                buildMask(face, d, u, v, k, neighbourStep, positive);
+                mergeMask(out, face, d, u, v, positive ? k + 1 : k, positive);
+            }
+        }
+    }
+    
+    /**
+     * Граф связности уменьшенной секции
+     * Полностью заполненная секция непрозрачна, в остальных случаях
+     * считается прозрачной во всех направлениях.
+     * @return маска {@link SectionVisibility}
+     */
+    public long computeVisibility() {
+        for (int y = 0; y < size; y++) {
+            for (int z = 0; z < size; z++) {
+                int row = origin + y * stride[1] + z * stride[2];
+                for (int x = 0; x < size; x++) {
+                    if (cells[row + x] == Blocks.AIR_ID) {
+                        return SectionVisibility.ALL;
+                    }
+                }
+            }
+        }
+        return SectionVisibility.NONE;
+    }
+    
+    private void buildMask(int face, int d, int u, int v, int k, int neighbourStep, boolean positive) {
+        int base = origin + k * stride[d];
+        int su = stride[u];
+        int sv = stride[v];
+        boolean boundary = d != 1 && (positive ? k == size - 1 : k == 0);
+        for (int j = 0; j < size; j++) {
+            for (int i = 0; i < size; i++) {
+                int index = base + i * su + j * sv;
+                int id = cells[index];
+                int value = 0;
+                if (id != Blocks.AIR_ID) {
+                    int front = index + neighbourStep;
+                    int above = index + stride[1];
+                    if (cells[front] == Blocks.AIR_ID) {
+                        value = 1 | Blocks.tile(id, face) << 1 | (light[front] & 0xFF) << 21;
+                    } else if (boundary && cells[above] == Blocks.AIR_ID) {
+                        // Юбка: граница закрыта соседом, но у соседа другой детализации поверхность может быть ниже
+                        value = 1 | Blocks.tile(id, face) << 1 | SKIRT | (light[above] & 0xFF) << 21;
+                    }
+                }
+                mask[j * size + i] = value;
+            }
+        }
+    }
+    
+    private void mergeMask(MeshBuilder out, int face, int d, int u, int v, int plane, boolean positive) {
+        for (int j = 0; j < size; j++) {
+            for (int i = 0; i < size; ) {
+                int value = mask[j * size + i];
+                if (value == 0) {
+                    i++;
+                    continue;
+                }
+                
+                int w = 1;
+                while (i + w < size && mask[j * size + i + w] == value) {
+                    w++;
+                }
+                
+                int h = 1;
+                grow:
+                while (j + h < size) {
+                    int row = (j + h) * size;
+                    for (int x = 0; x < w; x++) {
+                        if (mask[row + i + x] != value) {
+                            break grow;
+                        }
+                    }
+                    h++;
+                }
+                
+                for (int y = 0; y < h; y++) {
+                    int row = (j + y) * size;
+                    for (int x = 0; x < w; x++) {
+                        mask[row + i + x] = 0;
+                    }
+                }
+                
+                emitQuad(out, face, d, u, v, plane, i, j, w, h, positive, value);
+                i += w;
+            }
+        }
+    }
+    
+    private void emitQuad(MeshBuilder out, int face, int d, int u, int v, int plane,
+                          int i, int j, int w, int h, boolean positive, int value) {
+        int tile = (value >>> 1) & 0xFFF;
+        int light = (value >>> 21) & 0xFF;
+        
+        setCorner(0, d, u, v, plane, i, j);
+        setCorner(positive ? 1 : 3, d, u, v, plane, i + w, j);
+        setCorner(2, d, u, v, plane, i + w, j + h);
+        setCorner(positive ? 3 : 1, d, u, v, plane, i, j + h);
+        
+        if ((value & SKIRT) != 0) {
+            // Нижний край юбки опускается на одну ячейку (в пределах секции)
+            int bottom = Math.min(Math.min(corners[1], corners[4]), Math.min(corners[7], corners[10]));
+            for (int c = 0; c < 4; c++) {
+                if (corners[c * 3 + 1] == bottom) {
+                    corners[c * 3 + 1] = Math.max(0, bottom - scale);
+                }
+            }
+        }
+        out.quad(face, corners, cornerAo, tile, light >>> 4, light & 15);
+    }
+    
+    private void setCorner(int corner, int d, int u, int v, int plane, int cu, int cv) {
+        pos[d] = plane * scale;
+        pos[u] = cu * scale;
+        pos[v] = cv * scale;
+        corners[corner * 3] = pos[0];
+        corners[corner * 3 + 1] = pos[1];
+        corners[corner * 3 + 2] = pos[2];
+    }
+}
@@ -0,0 +1,67 @@
+package com.rivet.engine.render.mesh;
+
+import com.rivet.engine.memory.MemoryCategory;
+import com.rivet.engine.memory.NativePool;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Пул нативных буферов для вершинных данных мешей
+ * Буферы разбиты на классы размеров (степени двойки) и переиспользуются,
+ * поэтому новая память выделяется только при прогреве пула. Память
+ * освобождается явно и учитывается в категории {@link MemoryCategory#MESH}.
+ */
+public final class MeshBufferPool {
+    
+    private static final int MIN_SHIFT = 16; // 64 KB
+    private static final int MAX_SHIFT = 23; // 8 MB
+    
+    private final NativePool pool;
+    
+    /**
+     * @param maxRetainedPerClass максимальное число свободных буферов каждого класса
+     */
+    public MeshBufferPool(int maxRetainedPerClass) {
+        this.pool = new NativePool(MemoryCategory.MESH, MIN_SHIFT, MAX_SHIFT, maxRetainedPerClass);
+    }
+    
+    /**
+     * Взять буфер из пула
+     * @param minBytes минимальная емкость
+     * @return очищенный буфер в нативном порядке байт
+     */
+    public ByteBuffer acquire(int minBytes) {
+        return pool.acquire(minBytes);
+    }
+    
+    /**
+     * Вернуть буфер в пул
+     * @param buffer буфер, полученный через {@link #acquire(int)}
+     */
+    public void release(ByteBuffer buffer) {
+        pool.release(buffer);
+    }
+    
+    /**
+     * Получить общий объем выделенных пулом буферов
+     * @return размер в байтах
+     */
+    public long getAllocatedBytes() {
+        return pool.getAllocatedBytes();
+    }
+    
+    /**
+     * Получить объем свободных буферов в пуле
+     * @return размер в байтах
+     */
+    public long getPooledBytes() {
+        return pool.getPooledBytes();
+    }
+    
+    /**
+     * Освободить все свободные буферы
+     */
+    public void clear() {
+        pool.clear();
+    }
+}
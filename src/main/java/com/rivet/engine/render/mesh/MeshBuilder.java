@@ -0,0 +1,87 @@
+package com.rivet.engine.render.mesh;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Построитель вершинных данных секции в буфере из пула
+ * Вершины записываются в упакованном формате {@link TerrainVertexFormat}.
+ */
+public final class MeshBuilder {
+    
+    public static final int VERTEX_SIZE = TerrainVertexFormat.VERTEX_SIZE;
+    public static final int QUAD_SIZE = VERTEX_SIZE * 4;
+    
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+    
+    private final MeshBufferPool pool;
+    private ByteBuffer buffer;
+    private int quadCount;
+    
+    public MeshBuilder(MeshBufferPool pool) {
+        this.pool = pool;
+    }
+    
+    /**
+     * Начать новый меш
+     */
+    public void begin() {
+        if (buffer == null) {
+            buffer = pool.acquire(INITIAL_CAPACITY);
+        }
+        buffer.clear();
+        quadCount = 0;
+    }
+    
+    /**
+     * Добавить четырехугольник грани
+     * Углы передаются против часовой стрелки при взгляде снаружи грани.
+     * Если затенение неравномерно, диагональ разбиения выбирается так,
+     * чтобы интерполяция ao не давала анизотропных артефактов.
+     * @param face грань (см. {@link com.rivet.engine.world.Face})
+     * @param corners координаты 4 углов (x, y, z подряд)
+     * @param ao затенение каждого угла (0-3)
+     * @param tile индекс плитки атласа
+     * @param skyLight небесный свет (0-15)
+     * @param blockLight свет блоков (0-15)
+     */
+    public void quad(int face, int[] corners, int[] ao, int tile, int skyLight, int blockLight) {
+        if (buffer.remaining() < QUAD_SIZE) {
+            grow();
+        }
+        
+        // Индексы рисуют треугольники (0,1,2) и (2,3,0); сдвиг на один угол меняет диагональ
+        int start = ao[0] + ao[2] < ao[1] + ao[3] ? 1 : 0;
+        int material = TerrainVertexFormat.packMaterial(tile, skyLight, blockLight);
+        for (int i = 0; i < 4; i++) {
+            int c = (start + i) & 3;
+            buffer.putInt(TerrainVertexFormat.packPosition(
+                corners[c * 3], corners[c * 3 + 1], corners[c * 3 + 2], face, c, ao[c]));
+            buffer.putInt(material);
+        }
+        quadCount++;
+    }
+    
+    /**
+     * Завершить меш и передать буфер владельцу
+     * Построитель берет новый буфер из пула при следующем begin().
+     * @return буфер с вершинами, подготовленный для чтения (flip)
+     */
+    public ByteBuffer finish() {
+        ByteBuffer result = buffer;
+        buffer = null;
+        result.flip();
+        return result;
+    }
+    
+    public int getQuadCount() {
+        return quadCount;
+    }
+    
+    private void grow() {
+        ByteBuffer larger = pool.acquire(buffer.capacity() * 2);
+        buffer.flip();
+        larger.put(buffer);
+        pool.release(buffer);
+        buffer = larger;
+    }
+}
@@ -0,0 +1,15 @@
+package com.rivet.engine.render.mesh;
+
+/**
+ * Приемник готовых мешей в потоке OpenGL
+ */
+@FunctionalInterface
+public interface MeshUploader {
+    
+    /**
+     * Загрузить меш секции на GPU (пустой меш удаляет прежние данные)
+     * Буфер вершин действителен только во время вызова, если меш не удержан через {@link SectionMesh#retain()}.
+     * @param mesh готовый меш
+     */
+    void upload(SectionMesh mesh);
+}
@@ -0,0 +1,113 @@
+package com.rivet.engine.render.mesh;
+
+import com.rivet.engine.world.ChunkPos;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Готовый меш секции, ожидающий загрузки на GPU
+ * Буфер вершин принадлежит пулу и возвращается в него через {@link #release()};
+ * приемник, читающий вершины позже (поток загрузки), удерживает меш через {@link #retain()}.
+ */
+public final class SectionMesh {
+    
+    private final int sectionX;
+    private final int sectionY;
+    private final int sectionZ;
+    private final ByteBuffer vertices;
+    private final int quadCount;
+    private final long visibility;
+    private final int lodLevel;
+    private final MeshBufferPool pool;
+    final Object task;
+    private int references = 1;
+    
+    SectionMesh(int sectionX, int sectionY, int sectionZ, ByteBuffer vertices, int quadCount,
+                long visibility, int lodLevel, MeshBufferPool pool, Object task) {
+        this.sectionX = sectionX;
+        this.sectionY = sectionY;
+        this.sectionZ = sectionZ;
+        this.vertices = vertices;
+        this.quadCount = quadCount;
+        this.visibility = visibility;
+        this.lodLevel = lodLevel;
+        this.pool = pool;
+        this.task = task;
+    }
+    
+    public int getSectionX() {
+        return sectionX;
+    }
+    
+    public int getSectionY() {
+        return sectionY;
+    }
+    
+    public int getSectionZ() {
+        return sectionZ;
+    }
+    
+    /**
+     * Получить упакованный ключ секции
+     * @return ключ ChunkPos.packSection
+     */
+    public long getKey() {
+        return ChunkPos.packSection(sectionX, sectionY, sectionZ);
+    }
+    
+    /**
+     * Получить вершинные данные
+     * @return буфер для чтения или null для пустого меша
+     */
+    public ByteBuffer getVertices() {
+        return vertices;
+    }
+    
+    public int getQuadCount() {
+        return quadCount;
+    }
+    
+    public int getTriangleCount() {
+        return quadCount * 2;
+    }
+    
+    public int getVertexCount() {
+        return quadCount * 4;
+    }
+    
+    /**
+     * Получить граф связности граней секции
+     * @return маска {@link SectionVisibility}
+     */
+    public long getVisibility() {
+        return visibility;
+    }
+    
+    /**
+     * Получить уровень детализации меша
+     * @return 0 для полного меша, 1-3 для уменьшенного в 2, 4 или 8 раз
+     */
+    public int getLodLevel() {
+        return lodLevel;
+    }
+    
+    public boolean isEmpty() {
+        return quadCount == 0;
+    }
+    
+    /**
+     * Удержать буфер вершин до парного {@link #release()} (поток OpenGL)
+     */
+    public void retain() {
+        references++;
+    }
+    
+    /**
+     * Вернуть буфер вершин в пул, когда меш больше никто не удерживает (поток OpenGL)
+     */
+    public void release() {
+        if (--references == 0 && vertices != null) {
+            pool.release(vertices);
+        }
+    }
+}
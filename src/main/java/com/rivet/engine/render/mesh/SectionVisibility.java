@@ -0,0 +1,43 @@
+package com.rivet.engine.render.mesh;
+
+/**
+ * Граф связности граней секции, упакованный в long
+ * Бит (from * 6 + to) установлен, если сквозь секцию видно от грани from к грани to.
+ */
+public final class SectionVisibility {
+    
+    /** Секция полностью прозрачна (например, воздух) */
+    public static final long ALL = (1L << 36) - 1;
+    
+    /** Секция полностью непрозрачна */
+    public static final long NONE = 0L;
+    
+    private SectionVisibility() {
+    }
+    
+    /**
+     * Проверить видимость между гранями
+     * @param visibility маска связности
+     * @param from грань входа
+     * @param to грань выхода
+     * @return true если грани связаны
+     */
+    public static boolean isConnected(long visibility, int from, int to) {
+        return (visibility & (1L << (from * 6 + to))) != 0;
+    }
+    
+    /**
+     * Связать попарно все грани из набора
+     * @param faces битовый набор граней (1 << face)
+     * @return маска связности
+     */
+    public static long connectAll(int faces) {
+        long mask = 0L;
+        for (int from = 0; from < 6; from++) {
+            if ((faces & (1 << from)) != 0) {
+                mask |= (long) faces << (from * 6);
+            }
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,95 @@
+package com.rivet.engine.render.mesh;
+
+/**
+ * Упакованный формат вершины террейна - 8 байт (два uint)
+ *
+ * Слово 0: x(5) y(5) z(5) - позиция в секции 0..16, нормаль(3) - индекс грани,
+ *          угол(2) - угол четырехугольника, ao(2) - затенение 0 (темно) .. 3 (светло).
+ * Слово 1: плитка атласа(16), небесный свет(4), свет блоков(4).
+ *
+ * Раскодирование на GPU выполняет shaders/terrain.vert, методы unpack
+ * повторяют его на CPU.
+ */
+public final class TerrainVertexFormat {
+    
+    public static final int VERTEX_SIZE = 8;
+    
+    private static final int POSITION_BITS = 5;
+    private static final int POSITION_MASK = (1 << POSITION_BITS) - 1;
+    private static final int NORMAL_SHIFT = 15;
+    private static final int CORNER_SHIFT = 18;
+    private static final int AO_SHIFT = 20;
+    private static final int SKY_LIGHT_SHIFT = 16;
+    private static final int BLOCK_LIGHT_SHIFT = 20;
+    
+    private TerrainVertexFormat() {
+    }
+    
+    /**
+     * Упаковать первое слово вершины
+     * @param x позиция X (0-31)
+     * @param y позиция Y (0-31)
+     * @param z позиция Z (0-31)
+     * @param normal индекс грани (0-5)
+     * @param corner угол четырехугольника (0-3)
+     * @param ao затенение (0-3)
+     * @return слово 0
+     */
+    public static int packPosition(int x, int y, int z, int normal, int corner, int ao) {
+        return (x & POSITION_MASK)
+             | (y & POSITION_MASK) << 5
+             | (z & POSITION_MASK) << 10
+             | (normal & 7) << NORMAL_SHIFT
+             | (corner & 3) << CORNER_SHIFT
+             | (ao & 3) << AO_SHIFT;
+    }
+    
+    /**
+     * Упаковать второе слово вершины
+     * @param tile плитка атласа (0-65535)
+     * @param skyLight небесный свет (0-15)
+     * @param blockLight свет блоков (0-15)
+     * @return слово 1
+     */
+    public static int packMaterial(int tile, int skyLight, int blockLight) {
+        return (tile & 0xFFFF)
+             | (skyLight & 15) << SKY_LIGHT_SHIFT
+             | (blockLight & 15) << BLOCK_LIGHT_SHIFT;
+    }
+    
+    public static int unpackX(int word0) {
+        return word0 & POSITION_MASK;
+    }
+    
+    public static int unpackY(int word0) {
+        return (word0 >>> 5) & POSITION_MASK;
+    }
+    
+    public static int unpackZ(int word0) {
+        return (word0 >>> 10) & POSITION_MASK;
+    }
+    
+    public static int unpackNormal(int word0) {
+        return (word0 >>> NORMAL_SHIFT) & 7;
+    }
+    
+    public static int unpackCorner(int word0) {
+        return (word0 >>> CORNER_SHIFT) & 3;
+    }
+    
+    public static int unpackAo(int word0) {
+        return (word0 >>> AO_SHIFT) & 3;
+    }
+    
+    public static int unpackTile(int word1) {
+        return word1 & 0xFFFF;
+    }
+    
+    public static int unpackSkyLight(int word1) {
+        return (word1 >>> SKY_LIGHT_SHIFT) & 15;
+    }
+    
+    public static int unpackBlockLight(int word1) {
+        return (word1 >>> BLOCK_LIGHT_SHIFT) & 15;
+    }
+}
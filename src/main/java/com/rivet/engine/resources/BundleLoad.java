@@ -0,0 +1,129 @@
+package com.rivet.engine.resources;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Предзагрузка набора ресурсов, поставленная в {@link ResourceManager#preloadBundle}
+ *
+ * Экран загрузки опрашивает {@link #getProgress()} каждый кадр. Ресурс
+ * считается готовым, когда загрузчик закончил с ним работу: звук загружен,
+ * текстура передана потоку загрузки GPU (в потоке OpenGL она становится
+ * доступной после барьера, см. {@link TextureResource#isLoaded()}).
+ * Ошибка загрузки одного ресурса не останавливает остальные.
+ */
+public final class BundleLoad {
+    
+    private final String name;
+    private final String[] keys;
+    private final ResourceLocation[] locations;
+    private final AtomicInteger loaded = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private volatile int priority;
+    private volatile boolean released = false;
+    
+    BundleLoad(String name, String[] keys, ResourceLocation[] locations, int priority) {
+        this.name = name;
+        this.keys = keys;
+        this.locations = locations;
+        this.priority = priority;
+    }
+    
+    /**
+     * Отметить окончание загрузки ресурса набора (поток загрузчика)
+     * @param succeeded false если ресурс не загрузился
+     */
+    void finish(boolean succeeded) {
+        (succeeded ? loaded : failed).incrementAndGet();
+        if (isDone()) {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+    
+    /**
+     * Отметить освобождение набора; ожидающие потоки просыпаются
+     */
+    void release() {
+        released = true;
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+    
+    ResourceLocation[] locations() {
+        return locations;
+    }
+    
+    void setPriority(int priority) {
+        this.priority = priority;
+    }
+    
+    /**
+     * Получить долю обработанных ресурсов
+     * @return значение от 0 до 1 (пустой набор - 1)
+     */
+    public float getProgress() {
+        return keys.length == 0 ? 1.0f : (float) (loaded.get() + failed.get()) / keys.length;
+    }
+    
+    /**
+     * Проверить, обработаны ли все ресурсы набора
+     * @return true если каждый ресурс загружен или не загрузился
+     */
+    public boolean isDone() {
+        return loaded.get() + failed.get() >= keys.length;
+    }
+    
+    /**
+     * Проверить, загружен ли набор целиком
+     * @return true если все ресурсы обработаны без ошибок
+     */
+    public boolean isSucceeded() {
+        return isDone() && failed.get() == 0;
+    }
+    
+    /**
+     * Дождаться окончания предзагрузки или освобождения набора
+     * @throws InterruptedException если ожидание прервано
+     */
+    public void awaitDone() throws InterruptedException {
+        synchronized (this) {
+            while (!isDone() && !released) {
+                wait();
+            }
+        }
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public int getPriority() {
+        return priority;
+    }
+    
+    /**
+     * Получить количество ресурсов набора (со вложенными наборами, без повторов)
+     * @return количество ресурсов
+     */
+    public int getTotalCount() {
+        return keys.length;
+    }
+    
+    public int getLoadedCount() {
+        return loaded.get();
+    }
+    
+    public int getFailedCount() {
+        return failed.get();
+    }
+    
+    /**
+     * Проверить, освобожден ли набор
+     * @return true после {@link ResourceManager#releaseBundle}
+     */
+    public boolean isReleased() {
+        return released;
+    }
+}
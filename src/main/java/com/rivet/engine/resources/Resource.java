@@ -33,5 +33,21 @@ public interface Resource {
      * @return размер в байтах
      */
     long getSize();
+    
+    /**
+     * Время декодирования при последней загрузке (для профилирования)
+     * @return время в наносекундах или 0 если не измеряется
+     */
+    default long getDecodeNanos() {
+        return 0;
+    }
+    
+    /**
+     * Время передачи данных в OpenGL при последней загрузке (для профилирования)
+     * @return время в наносекундах или 0 если не измеряется
+     */
+    default long getUploadNanos() {
+        return 0;
+    }
 }
 
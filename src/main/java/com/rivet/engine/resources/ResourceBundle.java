@@ -0,0 +1,42 @@
+package com.rivet.engine.resources;
+
+import java.util.List;
+
+/**
+ * Именованная группа ресурсов из секции "bundles" в resources.json
+ *
+ * Набор может включать другие наборы; при предзагрузке и освобождении
+ * используется объединение ресурсов набора и всех вложенных наборов.
+ */
+public final class ResourceBundle {
+    
+    private final String name;
+    private final List<String> resources;
+    private final List<String> includes;
+    
+    ResourceBundle(String name, List<String> resources, List<String> includes) {
+        this.name = name;
+        this.resources = List.copyOf(resources);
+        this.includes = List.copyOf(includes);
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * Получить ключи ресурсов самого набора (без вложенных наборов)
+     * @return неизменяемый список ключей
+     */
+    public List<String> getResources() {
+        return resources;
+    }
+    
+    /**
+     * Получить имена вложенных наборов
+     * @return неизменяемый список имен
+     */
+    public List<String> getIncludes() {
+        return includes;
+    }
+}
@@ -0,0 +1,221 @@
+package com.rivet.engine.resources;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.PriorityBlockingQueue;
+
+/**
+ * Фоновая загрузка ресурсов наборов по приоритету
+ *
+ * Ресурсы ждут в очереди с приоритетом (больший - раньше, при равном - в
+ * порядке постановки); одновременно загружается не больше ресурсов, чем
+ * рабочих потоков. Ресурс, запрошенный несколькими наборами, загружается
+ * один раз, а повторный запрос с большим приоритетом поднимает его в очереди.
+ */
+final class ResourceLoader {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ResourceLoader.class);
+    
+    /**
+     * Ресурс в очереди и наборы, которые его ждут
+     */
+    private static final class Task implements Comparable<Task> {
+        final String key;
+        final ResourceLocation location;
+        final List<BundleLoad> waiters = new ArrayList<>(2);
+        int priority;
+        long sequence;
+        boolean started = false;
+        
+        Task(String key, ResourceLocation location) {
+            this.key = key;
+            this.location = location;
+        }
+        
+        @Override
+        public int compareTo(Task other) {
+            if (priority != other.priority) {
+                return Integer.compare(other.priority, priority);
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+    
+    private final ResourceManager manager;
+    private final PriorityBlockingQueue<Task> queue = new PriorityBlockingQueue<>();
+    // Задачи в очереди и в работе; изменяются под блокировкой загрузчика
+    private final Map<ResourceLocation, Task> tasks = new HashMap<>();
+    private final Thread[] workers;
+    private long sequence = 0;
+    private volatile boolean running = true;
+    
+    /**
+     * @param manager менеджер, выполняющий загрузку
+     * @param threads предельное количество одновременных загрузок
+     */
+    ResourceLoader(ResourceManager manager, int threads) {
+        this.manager = manager;
+        this.workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(this::run, "ResourceLoader-" + (i + 1));
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+    
+    /**
+     * Поставить ресурс в очередь для набора
+     * @param key ключ ресурса
+     * @param location адрес ресурса
+     * @param priority приоритет (больший загружается раньше)
+     * @param waiter набор, который получит результат
+     */
+    synchronized void request(String key, ResourceLocation location, int priority, BundleLoad waiter) {
+        Task task = tasks.get(location);
+        if (task == null) {
+            task = new Task(key, location);
+            task.priority = priority;
+            task.sequence = sequence++;
+            task.waiters.add(waiter);
+            tasks.put(location, task);
+            queue.add(task);
+            return;
+        }
+        task.waiters.add(waiter);
+        raise(task, priority);
+    }
+    
+    /**
+     * Поднять приоритет ресурса, если он еще в очереди
+     */
+    synchronized void raise(ResourceLocation location, int priority) {
+        Task task = tasks.get(location);
+        if (task != null) {
+            raise(task, priority);
+        }
+    }
+    
+    private void raise(Task task, int priority) {
+        // Приоритет задачи внутри кучи менять нельзя - задача переставляется
+        if (!task.started && priority > task.priority && queue.remove(task)) {
+            task.priority = priority;
+            queue.add(task);
+        }
+    }
+    
+    /**
+     * Снять ресурс с очереди, если его загрузка еще не начата
+     * @param location адрес ресурса
+     */
+    synchronized void cancel(ResourceLocation location) {
+        Task task = tasks.get(location);
+        if (task != null && !task.started) {
+            queue.remove(task);
+            tasks.remove(location);
+        }
+    }
+    
+    private void run() {
+        while (running) {
+            Task task;
+            try {
+                task = queue.take();
+            } catch (InterruptedException e) {
+                break;
+            }
+            synchronized (this) {
+                if (tasks.get(task.location) != task) {
+                    continue;
+                }
+                task.started = true;
+            }
+            
+            boolean succeeded = false;
+            boolean skipped = false;
+            try {
+                skipped = !manager.preload(task.key, task.location);
+                succeeded = true;
+            } catch (ResourceLoadException e) {
+                logger.warn("Не удалось предзагрузить ресурс {}: {}", task.key, e.getMessage());
+            } catch (InterruptedException e) {
+                break;
+            } catch (RuntimeException e) {
+                logger.error("Ошибка предзагрузки ресурса {}", task.key, e);
+            }
+            
+            List<BundleLoad> waiters;
+            synchronized (this) {
+                tasks.remove(task.location);
+                waiters = task.waiters;
+                if (skipped) {
+                    requeue(task);
+                    continue;
+                }
+            }
+            for (BundleLoad waiter : waiters) {
+                waiter.finish(succeeded);
+            }
+        }
+    }
+    
+    /**
+     * Поставить пропущенный ресурс в очередь заново для наборов, которые еще не освобождены
+     * Ресурс пропускается, если его наборы освобождены до загрузки; набор,
+     * запросивший ресурс во время работы над ним, иначе получил бы ресурс
+     * готовым, хотя он не загружен. Освобожденные наборы результата не ждут.
+     */
+    private void requeue(Task skipped) {
+        Task task = null;
+        for (BundleLoad waiter : skipped.waiters) {
+            if (waiter.isReleased()) {
+                continue;
+            }
+            if (task == null) {
+                task = new Task(skipped.key, skipped.location);
+                task.priority = waiter.getPriority();
+                task.sequence = sequence++;
+            }
+            task.priority = Math.max(task.priority, waiter.getPriority());
+            task.waiters.add(waiter);
+        }
+        if (task != null) {
+            tasks.put(task.location, task);
+            queue.add(task);
+        }
+    }
+    
+    /**
+     * Получить количество ресурсов в очереди и в работе
+     * @return количество ресурсов
+     */
+    synchronized int getPendingCount() {
+        return tasks.size();
+    }
+    
+    /**
+     * Остановить рабочие потоки; очередь отбрасывается
+     */
+    void shutdown() {
+        running = false;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        synchronized (this) {
+            queue.clear();
+            tasks.clear();
+        }
+    }
+}
@@ -2,26 +2,73 @@ package com.rivet.engine.resources;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rivet.engine.memory.GpuMemory;
+import com.rivet.engine.memory.MemoryCategory;
+import com.rivet.engine.memory.NativeMemory;
+import com.rivet.engine.opengl.GpuUpload;
+import com.rivet.engine.opengl.GpuUploader;
+import com.rivet.engine.profiling.ResourceLoadEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Менеджер ресурсов для движка Rivet
  * Управляет загрузкой, кэшированием и доступом к ресурсам
+ *
+ * Ресурсы можно загружать по одному ({@link #loadResource(String)}) или
+ * наборами из секции "bundles" конфигурации: {@link #preloadBundle} ставит
+ * ресурсы набора в фоновую загрузку по приоритету, {@link #releaseBundle}
+ * выгружает ресурсы, которые больше не нужны ни одному загруженному набору.
+ * Настройки:
+ * <pre>
+ * -Drivet.resources.loadThreads=&lt;число&gt; - предел одновременных фоновых загрузок
+ * </pre>
  */
 public class ResourceManager {
     
     private static final Logger logger = LoggerFactory.getLogger(ResourceManager.class);
     
+    // Приоритеты предзагрузки наборов (больший загружается раньше)
+    public static final int PRIORITY_BACKGROUND = 0;
+    public static final int PRIORITY_NORMAL = 10;
+    public static final int PRIORITY_URGENT = 20;
+    
+    private static final int DEFAULT_LOAD_THREADS = 2;
+    private static final String CONFIG_PATH = "/resources.json";
+    
+    private final String configPath;
     private final Map<String, ResourceLocation> resourceMap = new ConcurrentHashMap<>();
     private final Map<ResourceLocation, Resource> loadedResources = new ConcurrentHashMap<>();
+    private final Map<String, ResourceBundle> bundles = new ConcurrentHashMap<>();
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private volatile GpuUploader uploader;
+    private ResourceLoader loader;
+    
+    // Загруженные наборы и число наборов, удерживающих каждый ресурс (под блокировкой residencyLock)
+    private final Object residencyLock = new Object();
+    private final Map<String, BundleLoad> residentBundles = new HashMap<>();
+    private final Map<ResourceLocation, Integer> residency = new HashMap<>();
+    
+    public ResourceManager() {
+        this(CONFIG_PATH);
+    }
+    
+    /**
+     * @param configPath путь к конфигурации ресурсов в classpath
+     */
+    ResourceManager(String configPath) {
+        this.configPath = configPath;
+    }
     
     /**
      * Инициализация менеджера ресурсов
@@ -32,17 +79,23 @@ public class ResourceManager {
         
         try {
             loadResourceConfig();
-            logger.info("Конфигурация ресурсов загружена: {} записей", resourceMap.size());
+            validateBundles();
+            logger.info("Конфигурация ресурсов загружена: {} записей, {} наборов", resourceMap.size(), bundles.size());
+        } catch (ResourceLoadException e) {
+            throw e;
         } catch (Exception e) {
             throw new ResourceLoadException("Failed to initialize ResourceManager", e);
         }
+        
+        int threads = Math.max(1, Integer.getInteger("rivet.resources.loadThreads", DEFAULT_LOAD_THREADS));
+        loader = new ResourceLoader(this, threads);
     }
     
     /**
      * Загрузить конфигурацию ресурсов из JSON
      */
     private void loadResourceConfig() throws IOException {
-        try (InputStream configStream = getClass().getResourceAsStream("/resources.json")) {
+        try (InputStream configStream = getClass().getResourceAsStream(configPath)) {
             if (configStream == null) {
                 logger.warn("Файл конфигурации ресурсов не найден, создаем базовую конфигурацию");
                 createDefaultResourceConfig();
@@ -73,7 +126,59 @@ public class ResourceManager {
                     resourceMap.put(key, new ResourceLocation("", path));
                 });
             }
+            
+            // Наборы: {"имя": {"resources": [ключи], "include": [вложенные наборы]}}
+            if (root.has("bundles")) {
+                root.get("bundles").fields().forEachRemaining(entry -> {
+                    JsonNode bundle = entry.getValue();
+                    bundles.put(entry.getKey(), new ResourceBundle(entry.getKey(),
+                        readNames(bundle.get("resources")), readNames(bundle.get("include"))));
+                });
+            }
+        }
+    }
+    
+    private static List<String> readNames(JsonNode array) {
+        List<String> names = new ArrayList<>();
+        if (array != null) {
+            array.forEach(node -> names.add(node.asText()));
         }
+        return names;
+    }
+    
+    /**
+     * Проверить наборы: известные ключи, существующие вложенные наборы, отсутствие циклов
+     */
+    private void validateBundles() throws ResourceLoadException {
+        for (ResourceBundle bundle : bundles.values()) {
+            for (String key : bundle.getResources()) {
+                if (!resourceMap.containsKey(key)) {
+                    throw new ResourceLoadException("Bundle " + bundle.getName() + " references unknown resource: " + key);
+                }
+            }
+            collectKeys(bundle.getName(), new LinkedHashSet<>(), new LinkedHashSet<>());
+        }
+    }
+    
+    /**
+     * Собрать ключи набора и вложенных наборов в порядке объявления
+     * @param name имя набора
+     * @param keys результат (без повторов)
+     * @param path наборы текущей цепочки вложения (для поиска циклов)
+     */
+    private void collectKeys(String name, Set<String> keys, Set<String> path) throws ResourceLoadException {
+        ResourceBundle bundle = bundles.get(name);
+        if (bundle == null) {
+            throw new ResourceLoadException("Bundle not found: " + name);
+        }
+        if (!path.add(name)) {
+            throw new ResourceLoadException("Bundle includes itself: " + String.join(" -> ", path) + " -> " + name);
+        }
+        keys.addAll(bundle.getResources());
+        for (String include : bundle.getIncludes()) {
+            collectKeys(include, keys, path);
+        }
+        path.remove(name);
     }
     
     /**
@@ -127,7 +232,7 @@ public class ResourceManager {
         
         // Определяем тип ресурса и создаем соответствующий загрузчик
         Resource resource = createResource(location);
-        resource.load();
+        loadTracked(location, resource);
         
         // Кэшируем
         loadedResources.put(location, resource);
@@ -136,6 +241,60 @@ public class ResourceManager {
         return resource;
     }
     
+    /**
+     * Загрузить текстуру в потоке загрузчика GPU
+     * Возвращается сразу: текстура готова, когда {@link TextureResource#isLoaded()}
+     * в потоке OpenGL вернет true. Без загрузчика текстура загружается синхронно.
+     * @param key ключ ресурса
+     * @return текстура (возможно, еще загружаемая)
+     * @throws ResourceLoadException если ресурс не текстура или синхронная загрузка не удалась
+     */
+    public TextureResource loadTextureAsync(String key) throws ResourceLoadException {
+        ResourceLocation location = getLocation(key);
+        Resource cached = loadedResources.get(location);
+        if (cached instanceof TextureResource && (cached.isLoaded() || ((TextureResource) cached).isUploading())) {
+            return (TextureResource) cached;
+        }
+        
+        Resource resource = createResource(location);
+        if (!(resource instanceof TextureResource)) {
+            throw new ResourceLoadException(location, "Resource is not a texture");
+        }
+        TextureResource texture = (TextureResource) resource;
+        GpuUploader current = uploader;
+        if (current != null) {
+            texture.setUpload(current.submit(location.toString(), () -> loadTracked(location, texture)));
+        } else {
+            loadTracked(location, texture);
+        }
+        loadedResources.put(location, texture);
+        return texture;
+    }
+    
+    /**
+     * Загрузить ресурс с записью события JFR
+     */
+    private void loadTracked(ResourceLocation location, Resource resource) throws ResourceLoadException {
+        ResourceLoadEvent event = new ResourceLoadEvent();
+        event.begin();
+        boolean succeeded = false;
+        try {
+            resource.load();
+            succeeded = true;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.location = location.toString();
+                event.type = resource.getClass().getSimpleName();
+                event.bytes = resource.getSize();
+                event.decodeTime = resource.getDecodeNanos();
+                event.uploadTime = resource.getUploadNanos();
+                event.succeeded = succeeded;
+                event.commit();
+            }
+        }
+    }
+    
     /**
      * Создать ресурс по типу
      * @param location адрес ресурса
@@ -145,7 +304,7 @@ public class ResourceManager {
     private Resource createResource(ResourceLocation location) throws ResourceLoadException {
         String path = location.getPath();
         
-        if (path.startsWith("textures/")) {
+        if (isTexture(location)) {
             return new TextureResource(location);
         } else if (path.startsWith("sounds/")) {
             return new SoundResource(location);
@@ -154,6 +313,165 @@ public class ResourceManager {
         }
     }
     
+    private static boolean isTexture(ResourceLocation location) {
+        return location.getPath().startsWith("textures/");
+    }
+    
+    /**
+     * Поставить набор ресурсов в фоновую загрузку
+     * Ресурсы загружаются рабочими потоками в порядке приоритета; текстуры
+     * передаются загрузчику GPU (без него предзагрузка текстур не выполняется).
+     * Повторный вызов для загруженного набора возвращает ту же предзагрузку и
+     * только поднимает приоритет ее ресурсов, еще ждущих в очереди.
+     * @param name имя набора в секции "bundles"
+     * @param priority приоритет ({@link #PRIORITY_BACKGROUND}, {@link #PRIORITY_NORMAL}, {@link #PRIORITY_URGENT})
+     * @return предзагрузка для опроса прогресса
+     * @throws ResourceLoadException если набор не найден
+     */
+    public BundleLoad preloadBundle(String name, int priority) throws ResourceLoadException {
+        Set<String> keySet = new LinkedHashSet<>();
+        collectKeys(name, keySet, new LinkedHashSet<>());
+        String[] keys = keySet.toArray(new String[0]);
+        ResourceLocation[] locations = new ResourceLocation[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            locations[i] = getLocation(keys[i]);
+        }
+        
+        synchronized (residencyLock) {
+            BundleLoad existing = residentBundles.get(name);
+            if (existing != null) {
+                if (priority > existing.getPriority()) {
+                    existing.setPriority(priority);
+                    for (ResourceLocation location : existing.locations()) {
+                        loader.raise(location, priority);
+                    }
+                }
+                return existing;
+            }
+            
+            BundleLoad load = new BundleLoad(name, keys, locations, priority);
+            residentBundles.put(name, load);
+            for (int i = 0; i < keys.length; i++) {
+                residency.merge(locations[i], 1, Integer::sum);
+                Resource cached = loadedResources.get(locations[i]);
+                if (cached != null && cached.isLoaded()) {
+                    load.finish(true);
+                } else {
+                    loader.request(keys[i], locations[i], priority, load);
+                }
+            }
+            logger.debug("Предзагрузка набора {}: {} ресурсов, приоритет {}", name, keys.length, priority);
+            return load;
+        }
+    }
+    
+    /**
+     * Освободить набор ресурсов
+     * Выгружаются ресурсы набора, которые не входят в другие загруженные
+     * наборы; ждущие в очереди снимаются с нее. Вызывается в потоке OpenGL,
+     * как и {@link #unloadResource(String)}.
+     * @param name имя набора
+     * @return false если набор не был загружен
+     */
+    public boolean releaseBundle(String name) {
+        List<ResourceLocation> unused = new ArrayList<>();
+        BundleLoad load;
+        synchronized (residencyLock) {
+            load = residentBundles.remove(name);
+            if (load == null) {
+                return false;
+            }
+            for (ResourceLocation location : load.locations()) {
+                if (residency.merge(location, -1, Integer::sum) <= 0) {
+                    residency.remove(location);
+                    loader.cancel(location);
+                    unused.add(location);
+                }
+            }
+        }
+        load.release();
+        
+        // Выгрузка вне блокировки: текстура может ждать поток загрузки GPU
+        for (ResourceLocation location : unused) {
+            unload(location);
+        }
+        logger.debug("Набор {} освобожден: выгружено {} из {} ресурсов", name, unused.size(), load.getTotalCount());
+        return true;
+    }
+    
+    /**
+     * Загрузить ресурс набора (поток загрузчика)
+     * Ресурс, набор которого уже освобожден, не загружается.
+     * @return false если ресурс пропущен или выгружен: все его наборы освобождены
+     * @throws InterruptedException если поток загрузчика остановлен во время ожидания текстуры
+     */
+    boolean preload(String key, ResourceLocation location) throws ResourceLoadException, InterruptedException {
+        if (!isResident(location)) {
+            return false;
+        }
+        if (!isTexture(location)) {
+            loadResource(location);
+            // Набор освобожден во время загрузки: ресурс без OpenGL можно выгрузить здесь
+            if (!isResident(location)) {
+                unload(location);
+                return false;
+            }
+            return true;
+        }
+        
+        if (uploader == null) {
+            throw new ResourceLoadException(location, "Texture preload requires GPU uploader");
+        }
+        TextureResource texture = loadTextureAsync(key);
+        GpuUpload upload = texture.getUpload();
+        // Набор освобожден до постановки текстуры: неначатую загрузку можно снять без OpenGL
+        if (!isResident(location) && upload != null && upload.cancel()) {
+            loadedResources.remove(location, texture);
+            return false;
+        }
+        if (upload != null) {
+            upload.awaitDone();
+            if (upload.isFailed()) {
+                throw new ResourceLoadException(location, "Texture upload failed", upload.getError());
+            }
+        }
+        return true;
+    }
+    
+    private boolean isResident(ResourceLocation location) {
+        synchronized (residencyLock) {
+            return residency.containsKey(location);
+        }
+    }
+    
+    /**
+     * Проверить, загружен ли набор
+     * @param name имя набора
+     * @return true если набор предзагружается или загружен и не освобожден
+     */
+    public boolean isBundleResident(String name) {
+        synchronized (residencyLock) {
+            return residentBundles.containsKey(name);
+        }
+    }
+    
+    /**
+     * Получить описание набора
+     * @param name имя набора
+     * @return набор или null если он не объявлен
+     */
+    public ResourceBundle getBundle(String name) {
+        return bundles.get(name);
+    }
+    
+    /**
+     * Получить количество ресурсов, ждущих фоновой загрузки
+     * @return количество ресурсов в очереди и в работе
+     */
+    public int getPendingPreloadCount() {
+        return loader.getPendingCount();
+    }
+    
     /**
      * Проверить, загружен ли ресурс
      * @param key ключ ресурса
@@ -175,24 +493,38 @@ public class ResourceManager {
      */
     public void unloadResource(String key) {
         try {
-            ResourceLocation location = getLocation(key);
-            Resource resource = loadedResources.get(location);
-            if (resource != null) {
-                resource.unload();
-                loadedResources.remove(location);
-                logger.debug("Ресурс выгружен: {}", location);
-            }
+            unload(getLocation(key));
         } catch (ResourceLoadException e) {
             logger.warn("Не удалось выгрузить ресурс: {}", key, e);
         }
     }
     
+    private void unload(ResourceLocation location) {
+        Resource resource = loadedResources.remove(location);
+        if (resource != null) {
+            resource.unload();
+            logger.debug("Ресурс выгружен: {}", location);
+        }
+    }
+    
     /**
      * Очистить все ресурсы
      */
     public void cleanup() {
         logger.info("Очистка ResourceManager");
         
+        if (loader != null) {
+            loader.shutdown();
+            loader = null;
+        }
+        synchronized (residencyLock) {
+            for (BundleLoad load : residentBundles.values()) {
+                load.release();
+            }
+            residentBundles.clear();
+            residency.clear();
+        }
+        
         for (Resource resource : loadedResources.values()) {
             try {
                 resource.unload();
@@ -203,6 +535,15 @@ public class ResourceManager {
         
         loadedResources.clear();
         resourceMap.clear();
+        bundles.clear();
+    }
+    
+    /**
+     * Задать загрузчик GPU для {@link #loadTextureAsync(String)}
+     * @param uploader загрузчик или null - синхронная загрузка
+     */
+    public void setUploader(GpuUploader uploader) {
+        this.uploader = uploader;
     }
     
     /**
@@ -222,4 +563,28 @@ public class ResourceManager {
                 .mapToLong(Resource::getSize)
                 .sum();
     }
+    
+    /**
+     * Получить объем нативной памяти движка (все подсистемы)
+     * @return размер в байтах
+     */
+    public long getNativeMemorySize() {
+        return NativeMemory.getTotalBytes();
+    }
+    
+    /**
+     * Получить оценку видеопамяти текстур и буферов
+     * @return размер в байтах
+     */
+    public long getGpuMemorySize() {
+        return GpuMemory.getTotalBytes();
+    }
+    
+    /**
+     * Получить оценку видеопамяти текстур ресурсов
+     * @return размер в байтах
+     */
+    public long getTextureMemorySize() {
+        return GpuMemory.getBytes(MemoryCategory.TEXTURE);
+    }
 }
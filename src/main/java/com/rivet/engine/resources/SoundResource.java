@@ -1,23 +1,49 @@
 package com.rivet.engine.resources;
 
+import com.rivet.engine.audio.AudioSource;
+import com.rivet.engine.audio.SoundClip;
+import com.rivet.engine.audio.StreamingSource;
+import com.rivet.engine.memory.MemoryCategory;
+import com.rivet.engine.memory.MemoryScope;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.libc.LibCStdlib;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+import static org.lwjgl.stb.STBVorbis.stb_vorbis_decode_memory;
 
 /**
  * Ресурс звука для системы аудио
- * Пока что заглушка, будет реализована позже с OpenAL
+ *
+ * Короткие звуки (WAV и OGG до {@link #CLIP_LIMIT} байт) декодируются целиком
+ * в {@link SoundClip} и кэшируются. Длинные OGG не держатся в памяти: каждое
+ * воспроизведение открывает свой {@link StreamingSource}, который читает файл
+ * небольшими блоками.
  */
 public class SoundResource implements Resource {
     
     private static final Logger logger = LoggerFactory.getLogger(SoundResource.class);
     
+    // Сжатый размер, до которого OGG декодируется целиком
+    public static final int CLIP_LIMIT = 64 * 1024;
+    
     private final ResourceLocation location;
-    private byte[] soundData;
+    private SoundClip clip;
+    private boolean streaming = false;
     private boolean loaded = false;
     private long size = 0;
+    private long decodeNanos = 0;
     
     public SoundResource(ResourceLocation location) {
         this.location = location;
@@ -30,7 +56,7 @@ public class SoundResource implements Resource {
     
     @Override
     public boolean isLoaded() {
-        return loaded && soundData != null;
+        return loaded && (streaming || clip != null);
     }
     
     @Override
@@ -39,25 +65,85 @@ public class SoundResource implements Resource {
             return;
         }
         
-        try (InputStream inputStream = getClass().getResourceAsStream(location.getClasspathPath())) {
+        try (InputStream inputStream = openInput()) {
             if (inputStream == null) {
                 throw new ResourceLoadException(location, "Sound file not found");
             }
             
-            soundData = inputStream.readAllBytes();
-            size = soundData.length;
+            String path = location.getPath();
+            long decodeStart = System.nanoTime();
+            if (path.endsWith(".wav")) {
+                clip = decodeWav(inputStream);
+            } else if (path.endsWith(".ogg")) {
+                byte[] head = inputStream.readNBytes(CLIP_LIMIT + 1);
+                if (head.length <= CLIP_LIMIT) {
+                    clip = decodeVorbis(head);
+                } else {
+                    streaming = true;
+                }
+            } else {
+                throw new ResourceLoadException(location, "Unsupported sound format");
+            }
+            decodeNanos = System.nanoTime() - decodeStart;
+            size = clip != null ? clip.getSize() : 0;
             loaded = true;
             
-            logger.debug("Звук загружен: {} ({} bytes)", location, size);
-            
-        } catch (IOException e) {
+            if (streaming) {
+                logger.debug("Звук будет воспроизводиться потоком: {}", location);
+            } else {
+                logger.debug("Звук декодирован: {} ({} кадров, {} bytes)", location, clip.getFrameCount(), size);
+            }
+        
+        } catch (IOException | UnsupportedAudioFileException e) {
             throw new ResourceLoadException(location, "Failed to load sound file", e);
         }
     }
     
+    private InputStream openInput() {
+        return getClass().getResourceAsStream(location.getClasspathPath());
+    }
+    
+    private SoundClip decodeWav(InputStream inputStream) throws IOException, UnsupportedAudioFileException {
+        try (AudioInputStream source = AudioSystem.getAudioInputStream(new BufferedInputStream(inputStream))) {
+            AudioFormat format = source.getFormat();
+            AudioFormat target = new AudioFormat(format.getSampleRate(), 16, format.getChannels(), true, false);
+            try (AudioInputStream pcm = AudioSystem.getAudioInputStream(target, source)) {
+                byte[] bytes = pcm.readAllBytes();
+                float[] samples = new float[bytes.length / 2];
+                for (int i = 0; i < samples.length; i++) {
+                    samples[i] = (short) (bytes[i * 2] & 0xFF | bytes[i * 2 + 1] << 8) / 32768.0f;
+                }
+                return new SoundClip(samples, target.getChannels(), (int) target.getSampleRate());
+            }
+        }
+    }
+    
+    private SoundClip decodeVorbis(byte[] data) throws IOException {
+        try (MemoryScope scope = new MemoryScope(MemoryCategory.AUDIO);
+             MemoryStack stack = MemoryStack.stackPush()) {
+            ByteBuffer encoded = scope.copyOf(data);
+            IntBuffer channels = stack.mallocInt(1);
+            IntBuffer sampleRate = stack.mallocInt(1);
+            ShortBuffer decoded = stb_vorbis_decode_memory(encoded, channels, sampleRate);
+            if (decoded == null) {
+                throw new IOException("Failed to decode Vorbis data");
+            }
+            try {
+                float[] samples = new float[decoded.remaining()];
+                for (int i = 0; i < samples.length; i++) {
+                    samples[i] = decoded.get(i) / 32768.0f;
+                }
+                return new SoundClip(samples, channels.get(0), sampleRate.get(0));
+            } finally {
+                LibCStdlib.free(decoded);
+            }
+        }
+    }
+    
     @Override
     public void unload() {
-        soundData = null;
+        clip = null;
+        streaming = false;
         loaded = false;
         size = 0;
     }
@@ -67,15 +153,55 @@ public class SoundResource implements Resource {
         return size;
     }
     
+    @Override
+    public long getDecodeNanos() {
+        return decodeNanos;
+    }
+    
+    /**
+     * Проверить, воспроизводится ли звук потоком
+     * @return true для длинных звуков без кэшированных данных
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+    
+    /**
+     * Получить декодированный звук
+     * @return клип короткого звука
+     */
+    public SoundClip getClip() {
+        if (!isLoaded() || streaming) {
+            throw new IllegalStateException("Sound is not a decoded clip: " + location);
+        }
+        return clip;
+    }
+    
     /**
-     * Получить данные звука
-     * @return массив байтов с данными звука
+     * Открыть потоковое воспроизведение
+     * Потоковый источник нужно передать в {@link com.rivet.engine.audio.StreamDecoder}.
+     * @param loop начинать заново по окончании
+     * @return новый источник
+     * @throws ResourceLoadException если поток не открывается
      */
-    public byte[] getSoundData() {
-        if (!isLoaded()) {
-            throw new IllegalStateException("Sound not loaded: " + location);
+    public StreamingSource openStream(boolean loop) throws ResourceLoadException {
+        if (!isLoaded() || !streaming) {
+            throw new IllegalStateException("Sound is not streamed: " + location);
+        }
+        try {
+            return new StreamingSource(this::openInput, loop, location.toString());
+        } catch (IOException e) {
+            throw new ResourceLoadException(location, "Failed to open sound stream", e);
         }
-        return soundData;
+    }
+    
+    /**
+     * Создать источник для одного воспроизведения
+     * @param loop начинать заново по окончании (только для потоковых звуков)
+     * @return клип или новый потоковый источник
+     * @throws ResourceLoadException если поток не открывается
+     */
+    public AudioSource createSource(boolean loop) throws ResourceLoadException {
+        return streaming ? openStream(loop) : getClip().play();
     }
 }
-
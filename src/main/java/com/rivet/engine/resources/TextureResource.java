@@ -1,5 +1,9 @@
 package com.rivet.engine.resources;
 
+import com.rivet.engine.memory.GpuMemory;
+import com.rivet.engine.memory.MemoryCategory;
+import com.rivet.engine.memory.MemoryScope;
+import com.rivet.engine.opengl.GpuUpload;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL30;
 import org.lwjgl.stb.STBImage;
@@ -13,21 +17,39 @@ import java.nio.IntBuffer;
 
 /**
  * Ресурс текстуры для системы рендеринга
+ * Загружается синхронно в потоке OpenGL или через {@link com.rivet.engine.opengl.GpuUploader};
+ * во втором случае текстура считается загруженной после срабатывания барьера загрузки.
  */
 public class TextureResource implements Resource {
     
     private static final Logger logger = LoggerFactory.getLogger(TextureResource.class);
     
     private final ResourceLocation location;
+    // Пиксельная графика (атлас блоков): выборка без сглаживания
+    private final boolean nearest;
     private int textureId = 0;
     private int width = 0;
     private int height = 0;
     private int channels = 0;
     private boolean loaded = false;
     private long size = 0;
+    private long decodeNanos = 0;
+    private long uploadNanos = 0;
+    
+    // Загрузка в потоке загрузчика (null - загружена синхронно или не загружалась)
+    private volatile GpuUpload upload;
     
     public TextureResource(ResourceLocation location) {
+        this(location, false);
+    }
+    
+    /**
+     * @param location адрес изображения
+     * @param nearest true - фильтрация GL_NEAREST (плитки атласа не размываются)
+     */
+    public TextureResource(ResourceLocation location, boolean nearest) {
         this.location = location;
+        this.nearest = nearest;
     }
     
     @Override
@@ -37,16 +59,50 @@ public class TextureResource implements Resource {
     
     @Override
     public boolean isLoaded() {
+        GpuUpload current = upload;
+        if (current != null) {
+            if (!current.isReady()) {
+                return false;
+            }
+            upload = null;
+        }
         return loaded && textureId != 0;
     }
     
+    /**
+     * Проверить, идет ли загрузка в потоке загрузчика
+     * @return true если загрузка поставлена и еще не завершилась ошибкой
+     */
+    public boolean isUploading() {
+        GpuUpload current = upload;
+        return current != null && !current.isFailed() && current.getState() != GpuUpload.CANCELLED;
+    }
+    
+    /**
+     * Связать текстуру с загрузкой в потоке загрузчика
+     * @param upload загрузка, задача которой вызывает {@link #load()}
+     */
+    void setUpload(GpuUpload upload) {
+        this.upload = upload;
+    }
+    
+    /**
+     * Получить загрузку в потоке загрузчика
+     * @return загрузка или null если текстура загружена синхронно или барьер уже опрошен
+     */
+    GpuUpload getUpload() {
+        return upload;
+    }
+    
     @Override
     public void load() throws ResourceLoadException {
         if (loaded) {
             return;
         }
         
-        try (InputStream inputStream = getClass().getResourceAsStream(location.getClasspathPath())) {
+        // Временные нативные буферы освобождаются при выходе из области, а не сборщиком мусора
+        try (InputStream inputStream = getClass().getResourceAsStream(location.getClasspathPath());
+             MemoryScope scope = new MemoryScope(MemoryCategory.TEXTURE)) {
             if (inputStream == null) {
                 throw new ResourceLoadException(location, "Texture file not found");
             }
@@ -64,58 +120,52 @@ public class TextureResource implements Resource {
             
             logger.debug("Размер файла: {} bytes, начинаем загрузку через STB", size);
             
-            // Создаем ByteBuffer для STB
-            ByteBuffer imageBuffer = ByteBuffer.allocateDirect(imageBytes.length);
-            imageBuffer.put(imageBytes);
-            imageBuffer.flip();
+            long decodeStart = System.nanoTime();
             
-            // СОЗДАЕМ ПРОСТУЮ ЗАГЛУШКУ БЕЗ STB IMAGE
-            // Используем фиксированные размеры для тестирования
-            this.width = 1344;  // Размер атласа из JSON
-            this.height = 1600; // Размер атласа из JSON
-            this.channels = 4;  // RGBA
+            // Создаем ByteBuffer для STB
+            ByteBuffer imageBuffer = scope.copyOf(imageBytes);
+            IntBuffer w = scope.mallocInt(1);
+            IntBuffer h = scope.mallocInt(1);
+            IntBuffer comp = scope.mallocInt(1);
             
-            // Создаем простую текстуру в памяти (красный квадрат)
-            byte[] textureData = new byte[width * height * 4];
-            for (int i = 0; i < width * height; i++) {
-                textureData[i * 4] = (byte) 255;     // R
-                textureData[i * 4 + 1] = (byte) 0;    // G
-                textureData[i * 4 + 2] = (byte) 0;    // B
-                textureData[i * 4 + 3] = (byte) 255; // A
+            // Всегда RGBA: строки выровнены по 4 байта, формат один для всех текстур
+            ByteBuffer imageData = STBImage.stbi_load_from_memory(imageBuffer, w, h, comp, 4);
+            if (imageData == null) {
+                throw new ResourceLoadException(location, "Failed to decode texture: " + STBImage.stbi_failure_reason());
             }
             
-            ByteBuffer imageData = ByteBuffer.allocateDirect(textureData.length);
-            imageData.put(textureData);
-            imageData.flip();
-            
-            logger.debug("STB Image загрузил изображение успешно: {}x{}, {} каналов", this.width, this.height, this.channels);
-            
-            // Создаем OpenGL текстуру
-            textureId = GL11.glGenTextures();
-            GL11.glBindTexture(GL11.GL_TEXTURE_2D, textureId);
-            
-            // Определяем формат
-            int format = channels == 4 ? GL11.GL_RGBA : 
-                        channels == 3 ? GL11.GL_RGB : 
-                        channels == 1 ? GL11.GL_RED : GL11.GL_RGBA;
-            
-            // Загружаем данные в OpenGL
-            GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, format, width, height, 0, format, GL11.GL_UNSIGNED_BYTE, imageData);
+            long uploadStart = System.nanoTime();
+            try {
+                this.width = w.get(0);
+                this.height = h.get(0);
+                this.channels = 4;
+                decodeNanos = uploadStart - decodeStart;
+                logger.debug("STB Image загрузил изображение успешно: {}x{}, {} каналов в файле",
+                    width, height, comp.get(0));
+                
+                // Создаем OpenGL текстуру
+                textureId = GL11.glGenTextures();
+                GL11.glBindTexture(GL11.GL_TEXTURE_2D, textureId);
+                GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA8, width, height, 0, GL11.GL_RGBA,
+                    GL11.GL_UNSIGNED_BYTE, imageData);
+            } finally {
+                STBImage.stbi_image_free(imageData);
+            }
             
             // Настройки фильтрации
-            GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR);
-            GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
+            int filter = nearest ? GL11.GL_NEAREST : GL11.GL_LINEAR;
+            GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, filter);
+            GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, filter);
             GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_S, GL11.GL_REPEAT);
             GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_T, GL11.GL_REPEAT);
             
             // Генерируем мипмапы
             GL30.glGenerateMipmap(GL11.GL_TEXTURE_2D);
+            GpuMemory.trackTexture(textureId, MemoryCategory.TEXTURE, GpuMemory.textureSize(width, height, true));
             
             // Отвязываем текстуру
             GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
-            
-            // Освобождаем память STB
-            STBImage.stbi_image_free(imageData);
+            uploadNanos = System.nanoTime() - uploadStart;
             
             loaded = true;
             logger.debug("Текстура загружена: {} ({}x{}, {} channels, {} bytes)", 
@@ -128,7 +178,23 @@ public class TextureResource implements Resource {
     
     @Override
     public void unload() {
+        GpuUpload current = upload;
+        if (current != null) {
+            // Текстуру, которую поток загрузчика еще создает, удалять нельзя
+            if (!current.cancel()) {
+                try {
+                    current.awaitDone();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                current.release();
+            }
+            upload = null;
+        }
+        
         if (textureId != 0) {
+            GpuMemory.untrackTexture(textureId);
             GL11.glDeleteTextures(textureId);
             textureId = 0;
         }
@@ -142,6 +208,16 @@ public class TextureResource implements Resource {
         return size;
     }
     
+    @Override
+    public long getDecodeNanos() {
+        return decodeNanos;
+    }
+    
+    @Override
+    public long getUploadNanos() {
+        return uploadNanos;
+    }
+    
     /**
      * Получить ID текстуры OpenGL
      * @return ID текстуры
@@ -0,0 +1,221 @@
+package com.rivet.engine.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Хэш-таблица с примитивными long ключами (открытая адресация, линейное пробирование)
+ * Без упаковки ключей в Long и без аллокаций при чтении.
+ * Один писатель + любое количество параллельных читателей.
+ */
+public final class LongObjectHashMap<V> {
+    
+    private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(Object[].class);
+    private static final Object TOMBSTONE = new Object();
+    private static final int MIN_CAPACITY = 16;
+    
+    /**
+     * Обход записей без упаковки ключей
+     */
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        void accept(long key, V value);
+    }
+    
+    private static final class Table {
+        final long[] keys;
+        final Object[] values;
+        final int mask;
+        
+        Table(int capacity) {
+            this.keys = new long[capacity];
+            this.values = new Object[capacity];
+            this.mask = capacity - 1;
+        }
+    }
+    
+    private volatile Table table;
+    private int size = 0;
+    private int tombstones = 0;
+    
+    public LongObjectHashMap() {
+        this(MIN_CAPACITY);
+    }
+    
+    /**
+     * @param expectedSize ожидаемое количество записей
+     */
+    public LongObjectHashMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        this.table = new Table(capacity);
+    }
+    
+    /**
+     * Получить значение по ключу (потокобезопасно для читателей)
+     * @param key ключ
+     * @return значение или null
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        Table t = table;
+        int i = mix(key) & t.mask;
+        while (true) {
+            Object value = VALUES.getAcquire(t.values, i);
+            if (value == null) {
+                return null;
+            }
+            if (value != TOMBSTONE && t.keys[i] == key) {
+                return (V) value;
+            }
+            i = (i + 1) & t.mask;
+        }
+    }
+    
+    /**
+     * Проверить наличие ключа
+     * @param key ключ
+     * @return true если запись существует
+     */
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+    
+    /**
+     * Добавить или заменить значение (только поток-писатель)
+     * @param key ключ
+     * @param value значение (не null)
+     * @return предыдущее значение или null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null values are not supported");
+        }
+        
+        Table t = table;
+        int i = mix(key) & t.mask;
+        int ownTombstone = -1;
+        while (true) {
+            Object current = t.values[i];
+            if (current == null) {
+                break;
+            }
+            if (current == TOMBSTONE) {
+                if (ownTombstone < 0 && t.keys[i] == key) {
+                    ownTombstone = i;
+                }
+            } else if (t.keys[i] == key) {
+                VALUES.setRelease(t.values, i, value);
+                return (V) current;
+            }
+            i = (i + 1) & t.mask;
+        }
+        
+        if (ownTombstone >= 0) {
+            // Слот удаленной записи того же ключа: ключ в нем не меняется
+            VALUES.setRelease(t.values, ownTombstone, value);
+            tombstones--;
+        } else {
+            // Надгробие чужого ключа не занимается до rehash: читатель мог прочитать
+            // старое значение слота и затем сравнить его с новым ключом.
+            // Ключ публикуется до значения: читатель сначала видит значение (acquire), затем ключ
+            t.keys[i] = key;
+            VALUES.setRelease(t.values, i, value);
+        }
+        size++;
+        
+        if ((size + tombstones) * 2 > t.keys.length) {
+            rehash(size * 2 > t.keys.length / 2 ? t.keys.length << 1 : t.keys.length);
+        }
+        return null;
+    }
+    
+    /**
+     * Удалить значение (только поток-писатель)
+     * @param key ключ
+     * @return удаленное значение или null
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        Table t = table;
+        int i = mix(key) & t.mask;
+        while (true) {
+            Object current = t.values[i];
+            if (current == null) {
+                return null;
+            }
+            if (current != TOMBSTONE && t.keys[i] == key) {
+                VALUES.setRelease(t.values, i, TOMBSTONE);
+                size--;
+                tombstones++;
+                return (V) current;
+            }
+            i = (i + 1) & t.mask;
+        }
+    }
+    
+    /**
+     * Обойти все записи
+     * @param consumer обработчик записей
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<? super V> consumer) {
+        Table t = table;
+        for (int i = 0; i < t.values.length; i++) {
+            Object value = VALUES.getAcquire(t.values, i);
+            if (value != null && value != TOMBSTONE) {
+                consumer.accept(t.keys[i], (V) value);
+            }
+        }
+    }
+    
+    /**
+     * Удалить все записи (только поток-писатель)
+     */
+    public void clear() {
+        table = new Table(MIN_CAPACITY);
+        size = 0;
+        tombstones = 0;
+    }
+    
+    /**
+     * Получить количество записей
+     * @return количество записей
+     */
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    private void rehash(int capacity) {
+        Table old = table;
+        Table t = new Table(capacity);
+        for (int j = 0; j < old.values.length; j++) {
+            Object value = old.values[j];
+            if (value != null && value != TOMBSTONE) {
+                int i = mix(old.keys[j]) & t.mask;
+                while (t.values[i] != null) {
+                    i = (i + 1) & t.mask;
+                }
+                t.keys[i] = old.keys[j];
+                t.values[i] = value;
+            }
+        }
+        tombstones = 0;
+        // Публикация новой таблицы через volatile запись
+        table = t;
+    }
+    
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        h ^= h >>> 16;
+        return (int) h;
+    }
+}
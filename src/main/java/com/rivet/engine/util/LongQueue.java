@@ -0,0 +1,108 @@
+package com.rivet.engine.util;
+
+import java.util.Arrays;
+
+/**
+ * Очередь FIFO примитивных long на кольцевом буфере
+ * Растет автоматически и не создает объектов при добавлении и извлечении.
+ * Не потокобезопасна.
+ */
+public final class LongQueue {
+    
+    private long[] elements;
+    private int head = 0;
+    private int size = 0;
+    
+    public LongQueue() {
+        this(64);
+    }
+    
+    /**
+     * @param capacity начальная емкость (округляется до степени двойки)
+     */
+    public LongQueue(int capacity) {
+        int actual = 16;
+        while (actual < capacity) {
+            actual <<= 1;
+        }
+        this.elements = new long[actual];
+    }
+    
+    /**
+     * Добавить значение в конец очереди
+     * @param value значение
+     */
+    public void add(long value) {
+        if (size == elements.length) {
+            grow();
+        }
+        elements[(head + size) & (elements.length - 1)] = value;
+        size++;
+    }
+    
+    /**
+     * Извлечь значение из начала очереди
+     * @return значение
+     * @throws IllegalStateException если очередь пуста
+     */
+    public long poll() {
+        if (size == 0) {
+            throw new IllegalStateException("Queue is empty");
+        }
+        long value = elements[head];
+        head = (head + 1) & (elements.length - 1);
+        size--;
+        return value;
+    }
+    
+    /**
+     * Получить значение по позиции от начала очереди без извлечения
+     * @param index позиция (0 - начало)
+     * @return значение
+     */
+    public long get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        return elements[(head + index) & (elements.length - 1)];
+    }
+    
+    private void grow() {
+        long[] grown = new long[elements.length * 2];
+        int firstPart = elements.length - head;
+        System.arraycopy(elements, head, grown, 0, firstPart);
+        System.arraycopy(elements, 0, grown, firstPart, head);
+        elements = grown;
+        head = 0;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+    
+    /**
+     * Скопировать содержимое в массив
+     * @return новый массив в порядке очереди
+     */
+    public long[] toArray() {
+        long[] result = new long[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = elements[(head + i) & (elements.length - 1)];
+        }
+        return result;
+    }
+    
+    @Override
+    public String toString() {
+        return "LongQueue" + Arrays.toString(toArray());
+    }
+}
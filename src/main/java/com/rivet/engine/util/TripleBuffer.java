@@ -0,0 +1,72 @@
+package com.rivet.engine.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Тройной буфер для передачи состояния от одного производителя одному потребителю
+ *
+ * Производитель пишет в задний буфер и публикует его обменом со средним,
+ * потребитель забирает средний обменом с передним. Обе операции - один
+ * атомарный обмен без ожидания: медленный производитель не задерживает
+ * потребителя и наоборот, потребитель всегда видит последнее опубликованное.
+ */
+public final class TripleBuffer<T> {
+    
+    // Состояние среднего слота: индекс буфера | флаг новых данных
+    private static final int FRESH = 4;
+    
+    private final Object[] buffers = new Object[3];
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int back = 0;
+    private int front = 2;
+    
+    /**
+     * @param factory создание трех экземпляров буфера
+     */
+    public TripleBuffer(Supplier<T> factory) {
+        for (int i = 0; i < 3; i++) {
+            buffers[i] = factory.get();
+        }
+    }
+    
+    /**
+     * Получить буфер для записи (только производитель)
+     * @return задний буфер
+     */
+    @SuppressWarnings("unchecked")
+    public T getWriteBuffer() {
+        return (T) buffers[back];
+    }
+    
+    /**
+     * Опубликовать записанный буфер (только производитель)
+     * @return true если предыдущая публикация не была прочитана и заменена
+     */
+    public boolean publish() {
+        int previous = middle.getAndSet(back | FRESH);
+        back = previous & 3;
+        return (previous & FRESH) != 0;
+    }
+    
+    /**
+     * Получить последний опубликованный буфер (только потребитель)
+     * Если новых данных нет, возвращается тот же буфер, что и в прошлый раз.
+     * @return передний буфер
+     */
+    @SuppressWarnings("unchecked")
+    public T acquire() {
+        if ((middle.get() & FRESH) != 0) {
+            front = middle.getAndSet(front) & 3;
+        }
+        return (T) buffers[front];
+    }
+    
+    /**
+     * Проверить наличие неполученной публикации
+     * @return true если производитель опубликовал новый буфер
+     */
+    public boolean hasFresh() {
+        return (middle.get() & FRESH) != 0;
+    }
+}
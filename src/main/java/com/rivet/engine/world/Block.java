@@ -0,0 +1,94 @@
+package com.rivet.engine.world;
+
+/**
+ * Тип блока мира
+ * Идентификатор блока используется как id состояния в хранилище секций
+ */
+public class Block {
+    
+    private final int id;
+    private final String name;
+    private final String textureKey;
+    private final boolean opaque;
+    private final int topTile;
+    private final int sideTile;
+    private final int bottomTile;
+    private final int lightEmission;
+    
+    /**
+     * Создать блок
+     * @param id числовой идентификатор состояния
+     * @param name имя блока
+     * @param textureKey ключ текстуры из resources.json (может быть null)
+     * @param opaque true если блок полностью закрывает соседние грани
+     * @param topTile индекс плитки атласа terrain.png для верхней грани
+     * @param sideTile индекс плитки атласа для боковых граней
+     * @param bottomTile индекс плитки атласа для нижней грани
+     * @param lightEmission уровень излучаемого света (0-15)
+     */
+    public Block(int id, String name, String textureKey, boolean opaque,
+                 int topTile, int sideTile, int bottomTile, int lightEmission) {
+        this.id = id;
+        this.name = name;
+        this.textureKey = textureKey;
+        this.opaque = opaque;
+        this.topTile = topTile;
+        this.sideTile = sideTile;
+        this.bottomTile = bottomTile;
+        this.lightEmission = lightEmission;
+    }
+    
+    /**
+     * Создать блок, не излучающий свет
+     */
+    public Block(int id, String name, String textureKey, boolean opaque, int topTile, int sideTile, int bottomTile) {
+        this(id, name, textureKey, opaque, topTile, sideTile, bottomTile, 0);
+    }
+    
+    /**
+     * Создать блок с одной плиткой атласа на все грани
+     */
+    public Block(int id, String name, String textureKey, boolean opaque, int tile) {
+        this(id, name, textureKey, opaque, tile, tile, tile);
+    }
+    
+    public int getId() {
+        return id;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public String getTextureKey() {
+        return textureKey;
+    }
+    
+    public boolean isOpaque() {
+        return opaque;
+    }
+    
+    public int getLightEmission() {
+        return lightEmission;
+    }
+    
+    /**
+     * Получить плитку атласа для грани
+     * @param face грань (см. {@link Face})
+     * @return индекс плитки в атласе terrain.png
+     */
+    public int getTile(int face) {
+        if (face == Face.UP) {
+            return topTile;
+        }
+        if (face == Face.DOWN) {
+            return bottomTile;
+        }
+        return sideTile;
+    }
+    
+    @Override
+    public String toString() {
+        return name;
+    }
+}
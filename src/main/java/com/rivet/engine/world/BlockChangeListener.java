@@ -0,0 +1,19 @@
+package com.rivet.engine.world;
+
+/**
+ * Слушатель изменений блоков мира
+ * Вызывается в потоке-писателе сразу после изменения
+ */
+@FunctionalInterface
+public interface BlockChangeListener {
+    
+    /**
+     * Блок изменен
+     * @param x мировая координата X
+     * @param y мировая координата Y
+     * @param z мировая координата Z
+     * @param oldId предыдущий id состояния
+     * @param newId новый id состояния
+     */
+    void onBlockChanged(int x, int y, int z, int oldId, int newId);
+}
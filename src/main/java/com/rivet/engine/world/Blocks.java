@@ -0,0 +1,94 @@
+package com.rivet.engine.world;
+
+/**
+ * Реестр блоков мира
+ * Ключи текстур совпадают с секцией "textures" в resources.json
+ */
+public final class Blocks {
+    
+    public static final int AIR_ID = 0;
+    public static final int STONE_ID = 1;
+    public static final int GRASS_ID = 2;
+    public static final int DIRT_ID = 3;
+    
+    // Плитки атласа terrain.png (сетка 16x16, классическая раскладка)
+    public static final Block AIR = new Block(AIR_ID, "air", null, false, 0);
+    public static final Block STONE = new Block(STONE_ID, "stone", "STONE", true, 1);
+    public static final Block GRASS = new Block(GRASS_ID, "grass", "GRASS", true, 0, 3, 2);
+    public static final Block DIRT = new Block(DIRT_ID, "dirt", "DIRT", true, 2);
+    
+    private static final Block[] BY_ID = { AIR, STONE, GRASS, DIRT };
+    private static final boolean[] OPAQUE = new boolean[BY_ID.length];
+    private static final byte[] LIGHT_EMISSION = new byte[BY_ID.length];
+    private static final int[] TILES = new int[BY_ID.length * Face.COUNT];
+    // Блоки со случайными тиками (трава разрастается и зарастает землей)
+    private static final boolean[] RANDOM_TICKS = new boolean[BY_ID.length];
+    
+    static {
+        RANDOM_TICKS[GRASS_ID] = true;
+        for (Block block : BY_ID) {
+            OPAQUE[block.getId()] = block.isOpaque();
+            LIGHT_EMISSION[block.getId()] = (byte) block.getLightEmission();
+            for (int face = 0; face < Face.COUNT; face++) {
+                TILES[block.getId() * Face.COUNT + face] = block.getTile(face);
+            }
+        }
+    }
+    
+    private Blocks() {
+    }
+    
+    /**
+     * Получить блок по id
+     * @param id идентификатор состояния
+     * @return блок или AIR для неизвестного id
+     */
+    public static Block byId(int id) {
+        return id >= 0 && id < BY_ID.length ? BY_ID[id] : AIR;
+    }
+    
+    /**
+     * Быстрая проверка непрозрачности без обращения к объекту блока
+     * @param id идентификатор состояния
+     * @return true если блок непрозрачный
+     */
+    public static boolean isOpaque(int id) {
+        return id > 0 && id < OPAQUE.length && OPAQUE[id];
+    }
+    
+    /**
+     * Быстрое получение уровня излучаемого света
+     * @param id идентификатор состояния
+     * @return уровень света (0-15)
+     */
+    public static int lightEmission(int id) {
+        return id > 0 && id < LIGHT_EMISSION.length ? LIGHT_EMISSION[id] : 0;
+    }
+    
+    /**
+     * Быстрое получение плитки атласа без обращения к объекту блока
+     * @param id идентификатор состояния
+     * @param face грань (см. {@link Face})
+     * @return индекс плитки в атласе
+     */
+    public static int tile(int id, int face) {
+        return id >= 0 && id < BY_ID.length ? TILES[id * Face.COUNT + face] : 0;
+    }
+    
+    /**
+     * Проверить, получает ли блок случайные тики
+     * @param id идентификатор состояния
+     * @return true если блок учитывается в {@link ChunkSection#getRandomTickCount()}
+     */
+    public static boolean ticksRandomly(int id) {
+        return id > 0 && id < RANDOM_TICKS.length && RANDOM_TICKS[id];
+    }
+    
+    /**
+     * Получить количество зарегистрированных блоков
+     * @return количество блоков
+     */
+    public static int count() {
+        return BY_ID.length;
+    }
+}
@@ -0,0 +1,132 @@
+package com.rivet.engine.world;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Чанк - вертикальная колонка секций 16x256x16 блоков
+ * Секции создаются лениво: отсутствующая секция состоит из воздуха
+ */
+public class Chunk {
+    
+    public static final int SECTION_COUNT = 16;
+    public static final int HEIGHT = SECTION_COUNT * ChunkSection.SIZE;
+    
+    private final int chunkX;
+    private final int chunkZ;
+    private final AtomicReferenceArray<ChunkSection> sections = new AtomicReferenceArray<>(SECTION_COUNT);
+    private volatile boolean lightInitialized = false;
+    
+    public Chunk(int chunkX, int chunkZ) {
+        this.chunkX = chunkX;
+        this.chunkZ = chunkZ;
+    }
+    
+    /**
+     * Получить id блока
+     * @param x локальная координата X (0-15)
+     * @param y мировая координата Y (0-255)
+     * @param z локальная координата Z (0-15)
+     * @return id состояния блока или AIR вне высоты мира
+     */
+    public int getBlock(int x, int y, int z) {
+        if (y < 0 || y >= HEIGHT) {
+            return Blocks.AIR_ID;
+        }
+        ChunkSection section = sections.get(y >> 4);
+        return section == null ? Blocks.AIR_ID : section.getBlock(x, y & 15, z);
+    }
+    
+    /**
+     * Установить id блока (только поток-писатель)
+     * @param x локальная координата X (0-15)
+     * @param y мировая координата Y (0-255)
+     * @param z локальная координата Z (0-15)
+     * @param id новый id состояния
+     * @return предыдущий id состояния
+     */
+    public int setBlock(int x, int y, int z, int id) {
+        if (y < 0 || y >= HEIGHT) {
+            return Blocks.AIR_ID;
+        }
+        ChunkSection section = sections.get(y >> 4);
+        if (section == null) {
+            if (id == Blocks.AIR_ID) {
+                return Blocks.AIR_ID;
+            }
+            section = getOrCreateSection(y >> 4);
+        }
+        return section.setBlock(x, y & 15, z, id);
+    }
+    
+    /**
+     * Получить секцию
+     * @param sectionY индекс секции (0-15)
+     * @return секция или null если она пустая
+     */
+    public ChunkSection getSection(int sectionY) {
+        if (sectionY < 0 || sectionY >= SECTION_COUNT) {
+            return null;
+        }
+        return sections.get(sectionY);
+    }
+    
+    /**
+     * Получить или создать секцию
+     * Секции создает и поток-писатель, и потоки освещения, поэтому создание атомарное.
+     * @param sectionY индекс секции (0-15)
+     * @return секция
+     */
+    public ChunkSection getOrCreateSection(int sectionY) {
+        ChunkSection section = sections.get(sectionY);
+        if (section == null) {
+            section = new ChunkSection(sectionY);
+            if (!sections.compareAndSet(sectionY, null, section)) {
+                section = sections.get(sectionY);
+            }
+        }
+        return section;
+    }
+    
+    /**
+     * Проверить, рассчитано ли начальное освещение чанка
+     * @return true если свет внутри чанка уже распространен
+     */
+    public boolean isLightInitialized() {
+        return lightInitialized;
+    }
+    
+    public void setLightInitialized(boolean lightInitialized) {
+        this.lightInitialized = lightInitialized;
+    }
+    
+    public int getChunkX() {
+        return chunkX;
+    }
+    
+    public int getChunkZ() {
+        return chunkZ;
+    }
+    
+    /**
+     * Получить упакованный ключ чанка
+     * @return ключ для ChunkPos
+     */
+    public long getKey() {
+        return ChunkPos.pack(chunkX, chunkZ);
+    }
+    
+    /**
+     * Получить примерный объем занимаемой памяти
+     * @return размер в байтах
+     */
+    public long getMemoryUsage() {
+        long bytes = 32 + 16 + SECTION_COUNT * 4L;
+        for (int i = 0; i < SECTION_COUNT; i++) {
+            ChunkSection section = sections.get(i);
+            if (section != null) {
+                bytes += section.getMemoryUsage();
+            }
+        }
+        return bytes;
+    }
+}
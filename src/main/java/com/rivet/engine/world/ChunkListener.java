@@ -0,0 +1,20 @@
+package com.rivet.engine.world;
+
+/**
+ * Слушатель загрузки и выгрузки чанков
+ * Вызывается в потоке-писателе мира
+ */
+public interface ChunkListener {
+    
+    /**
+     * Чанк добавлен в мир
+     * @param chunk загруженный чанк
+     */
+    void onChunkLoaded(Chunk chunk);
+    
+    /**
+     * Чанк удален из мира
+     * @param chunk выгруженный чанк
+     */
+    void onChunkUnloaded(Chunk chunk);
+}
@@ -0,0 +1,54 @@
+package com.rivet.engine.world;
+
+/**
+ * Упаковка координат чанков и секций в long
+ * Используется как ключ примитивных таблиц вместо объектов-координат
+ */
+public final class ChunkPos {
+    
+    private ChunkPos() {
+    }
+    
+    /**
+     * Упаковать координаты чанка
+     * @param chunkX координата X чанка
+     * @param chunkZ координата Z чанка
+     * @return упакованный ключ
+     */
+    public static long pack(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+    
+    public static int unpackX(long key) {
+        return (int) (key >> 32);
+    }
+    
+    public static int unpackZ(long key) {
+        return (int) key;
+    }
+    
+    /**
+     * Упаковать координаты секции (x и z по 26 бит, y по 12 бит)
+     * @param sectionX координата X секции
+     * @param sectionY координата Y секции
+     * @param sectionZ координата Z секции
+     * @return упакованный ключ секции
+     */
+    public static long packSection(int sectionX, int sectionY, int sectionZ) {
+        return ((long) (sectionX & 0x3FFFFFF) << 38)
+                | ((long) (sectionZ & 0x3FFFFFF) << 12)
+                | (sectionY & 0xFFF);
+    }
+    
+    public static int sectionX(long key) {
+        return (int) (key >> 38);
+    }
+    
+    public static int sectionY(long key) {
+        return (int) (key << 52 >> 52);
+    }
+    
+    public static int sectionZ(long key) {
+        return (int) (key << 26 >> 38);
+    }
+}
@@ -0,0 +1,162 @@
+package com.rivet.engine.world;
+
+/**
+ * Секция чанка 16x16x16 блоков
+ */
+public class ChunkSection {
+    
+    public static final int SIZE = 16;
+    public static final int VOLUME = SIZE * SIZE * SIZE;
+    
+    private final int sectionY;
+    private final PalettedContainer blocks;
+    private final NibbleArray skyLight = new NibbleArray(15);
+    private final NibbleArray blockLight = new NibbleArray(0);
+    private volatile int nonAirCount = 0;
+    private volatile int randomTickCount = 0;
+    
+    /**
+     * Создать пустую секцию (заполненную воздухом)
+     * @param sectionY индекс секции по вертикали
+     */
+    public ChunkSection(int sectionY) {
+        this.sectionY = sectionY;
+        this.blocks = new PalettedContainer(Blocks.AIR_ID);
+    }
+    
+    /**
+     * Индекс блока внутри секции
+     * @param x локальная координата X (0-15)
+     * @param y локальная координата Y (0-15)
+     * @param z локальная координата Z (0-15)
+     * @return индекс в хранилище
+     */
+    public static int index(int x, int y, int z) {
+        return (y << 8) | (z << 4) | x;
+    }
+    
+    /**
+     * Получить id блока
+     * @param x локальная координата X (0-15)
+     * @param y локальная координата Y (0-15)
+     * @param z локальная координата Z (0-15)
+     * @return id состояния блока
+     */
+    public int getBlock(int x, int y, int z) {
+        return blocks.get(index(x, y, z));
+    }
+    
+    /**
+     * Установить id блока (только поток-писатель)
+     * @param x локальная координата X (0-15)
+     * @param y локальная координата Y (0-15)
+     * @param z локальная координата Z (0-15)
+     * @param id новый id состояния
+     * @return предыдущий id состояния
+     */
+    public int setBlock(int x, int y, int z, int id) {
+        int previous = blocks.set(index(x, y, z), id);
+        if (previous != id) {
+            if (previous == Blocks.AIR_ID) {
+                nonAirCount++;
+            } else if (id == Blocks.AIR_ID) {
+                nonAirCount--;
+            }
+            if (Blocks.ticksRandomly(previous)) {
+                randomTickCount--;
+            }
+            if (Blocks.ticksRandomly(id)) {
+                randomTickCount++;
+            }
+        }
+        return previous;
+    }
+    
+    /**
+     * Заполнить секцию одним блоком (только поток-писатель)
+     * @param id id состояния
+     */
+    public void fill(int id) {
+        blocks.fill(id);
+        nonAirCount = id == Blocks.AIR_ID ? 0 : VOLUME;
+        randomTickCount = Blocks.ticksRandomly(id) ? VOLUME : 0;
+    }
+    
+    /**
+     * Заменить все блоки секции (только поток-писатель)
+     * @param ids id состояний в порядке {@link #index(int, int, int)}
+     */
+    public void setBlocks(int[] ids) {
+        int count = 0;
+        int ticking = 0;
+        for (int i = 0; i < VOLUME; i++) {
+            if (ids[i] != Blocks.AIR_ID) {
+                count++;
+            }
+            if (Blocks.ticksRandomly(ids[i])) {
+                ticking++;
+            }
+        }
+        blocks.setAll(ids);
+        nonAirCount = count;
+        randomTickCount = ticking;
+    }
+    
+    /**
+     * Проверить, состоит ли секция только из воздуха
+     * @return true если в секции нет блоков
+     */
+    public boolean isEmpty() {
+        return nonAirCount == 0;
+    }
+    
+    public int getNonAirCount() {
+        return nonAirCount;
+    }
+    
+    /**
+     * Получить количество блоков со случайными тиками
+     * Секции без таких блоков системой тиков не обходятся.
+     * @return количество блоков
+     */
+    public int getRandomTickCount() {
+        return randomTickCount;
+    }
+    
+    public int getSectionY() {
+        return sectionY;
+    }
+    
+    /**
+     * Получить хранилище блоков секции
+     * @return хранилище с палитрой
+     */
+    public PalettedContainer getBlocks() {
+        return blocks;
+    }
+    
+    /**
+     * Получить небесное освещение секции
+     * Новая секция полностью открыта небу (15), как и отсутствующая.
+     * @return уровни небесного света
+     */
+    public NibbleArray getSkyLight() {
+        return skyLight;
+    }
+    
+    /**
+     * Получить освещение от блоков
+     * @return уровни света от источников
+     */
+    public NibbleArray getBlockLight() {
+        return blockLight;
+    }
+    
+    /**
+     * Получить примерный объем занимаемой памяти
+     * @return размер в байтах
+     */
+    public long getMemoryUsage() {
+        return 40 + blocks.getMemoryUsage() + skyLight.getMemoryUsage() + blockLight.getMemoryUsage();
+    }
+}
@@ -0,0 +1,51 @@
+package com.rivet.engine.world;
+
+/**
+ * Грани блока и их единичные смещения
+ * Грань кодируется числом: ось (0=X, 1=Y, 2=Z) * 2 + (1 для положительного направления)
+ */
+public final class Face {
+    
+    public static final int WEST = 0;   // -X
+    public static final int EAST = 1;   // +X
+    public static final int DOWN = 2;   // -Y
+    public static final int UP = 3;     // +Y
+    public static final int NORTH = 4;  // -Z
+    public static final int SOUTH = 5;  // +Z
+    
+    public static final int COUNT = 6;
+    
+    public static final int[] OFFSET_X = { -1, 1, 0, 0, 0, 0 };
+    public static final int[] OFFSET_Y = { 0, 0, -1, 1, 0, 0 };
+    public static final int[] OFFSET_Z = { 0, 0, 0, 0, -1, 1 };
+    
+    private Face() {
+    }
+    
+    /**
+     * Получить ось грани
+     * @param face грань
+     * @return 0=X, 1=Y, 2=Z
+     */
+    public static int axis(int face) {
+        return face >> 1;
+    }
+    
+    /**
+     * Проверить направление грани
+     * @param face грань
+     * @return true для положительного направления оси
+     */
+    public static boolean isPositive(int face) {
+        return (face & 1) != 0;
+    }
+    
+    /**
+     * Получить противоположную грань
+     * @param face грань
+     * @return противоположная грань
+     */
+    public static int opposite(int face) {
+        return face ^ 1;
+    }
+}
@@ -0,0 +1,97 @@
+package com.rivet.engine.world;
+
+import java.util.Arrays;
+
+/**
+ * Массив 4-битных значений для секции 16x16x16 (уровни освещения)
+ *
+ * Пока все значения одинаковы, массив не выделяется. Запись выполняет
+ * один поток-владелец, читать можно из любого потока: устаревшее значение
+ * допустимо, разорванное - нет (байт пишется целиком).
+ */
+public final class NibbleArray {
+    
+    public static final int SIZE = 16 * 16 * 16;
+    
+    private volatile byte[] data;
+    private volatile int uniform;
+    
+    /**
+     * Создать массив, заполненный одним значением
+     * @param value значение (0-15)
+     */
+    public NibbleArray(int value) {
+        this.uniform = value;
+    }
+    
+    /**
+     * Получить значение
+     * @param index индекс (y << 8 | z << 4 | x)
+     * @return значение (0-15)
+     */
+    public int get(int index) {
+        byte[] d = data;
+        if (d == null) {
+            return uniform;
+        }
+        int packed = d[index >> 1];
+        return (index & 1) == 0 ? packed & 15 : (packed >> 4) & 15;
+    }
+    
+    /**
+     * Установить значение (только поток-владелец)
+     * @param index индекс (y << 8 | z << 4 | x)
+     * @param value значение (0-15)
+     */
+    public void set(int index, int value) {
+        byte[] d = data;
+        if (d == null) {
+            if (value == uniform) {
+                return;
+            }
+            d = new byte[SIZE / 2];
+            Arrays.fill(d, (byte) (uniform | uniform << 4));
+            data = d;
+        }
+        int i = index >> 1;
+        if ((index & 1) == 0) {
+            d[i] = (byte) ((d[i] & 0xF0) | value);
+        } else {
+            d[i] = (byte) ((d[i] & 0x0F) | value << 4);
+        }
+    }
+    
+    /**
+     * Заменить все значения упакованными данными (только поток-владелец)
+     * @param packed по два значения в байте, младшие 4 бита - четный индекс
+     * @param offset начало SIZE / 2 байт в packed
+     */
+    public void load(byte[] packed, int offset) {
+        data = Arrays.copyOfRange(packed, offset, offset + SIZE / 2);
+    }
+    
+    /**
+     * Заполнить массив одним значением и освободить память
+     * @param value значение (0-15)
+     */
+    public void fill(int value) {
+        uniform = value;
+        data = null;
+    }
+    
+    /**
+     * Проверить, одинаковы ли все значения (массив не выделен)
+     * @return true если массив хранит одно значение
+     */
+    public boolean isUniform() {
+        return data == null;
+    }
+    
+    /**
+     * Получить примерный объем занимаемой памяти
+     * @return размер в байтах
+     */
+    public long getMemoryUsage() {
+        return 24 + (data == null ? 0 : 16 + SIZE / 2);
+    }
+}
@@ -0,0 +1,277 @@
+package com.rivet.engine.world;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * Хранилище id состояний блоков секции 16x16x16 с локальной палитрой
+ * Данные упакованы в long[] и расширяются автоматически:
+ * одно значение (0 бит) -> 4 бита -> 8 бит -> прямые id (16 бит).
+ *
+ * В палитре 8 бит id ищется линейным проходом только при записи одного
+ * блока; массовые операции (setAll, расширение формата) строят временную
+ * обратную таблицу, которая не хранится в секции, чтобы формат 8 бит
+ * оставался меньше прямого.
+ *
+ * Чтение и запись не создают объектов. Допускается один поток-писатель
+ * и любое количество параллельных читателей: запись слова публикуется
+ * с release-семантикой, смена формата - через volatile ссылку.
+ */
+public final class PalettedContainer {
+    
+    public static final int SIZE = 16 * 16 * 16;
+    public static final int DIRECT_BITS = 16;
+    
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+    // Слотов временной обратной таблицы палитры 8 бит (вдвое больше записей)
+    private static final int LOOKUP_SIZE = 512;
+    
+    /**
+     * Неизменяемый формат хранения (кроме содержимого массивов)
+     */
+    private static final class Data {
+        final int bits;
+        final int wordShift;
+        final long mask;
+        final long[] storage;
+        final int[] palette;
+        int paletteSize;
+        
+        Data(int bits) {
+            this.bits = bits;
+            if (bits == 0) {
+                this.wordShift = 0;
+                this.mask = 0;
+                this.storage = null;
+                this.palette = new int[1];
+            } else {
+                int valuesPerLong = 64 / bits;
+                this.wordShift = Integer.numberOfTrailingZeros(valuesPerLong);
+                this.mask = (1L << bits) - 1;
+                this.storage = new long[SIZE / valuesPerLong];
+                this.palette = bits == DIRECT_BITS ? null : new int[1 << bits];
+            }
+        }
+    }
+    
+    /**
+     * Временная обратная таблица палитры для массовых операций
+     * Ключи и значения чередуются: [2 * slot] - id, [2 * slot + 1] - индекс палитры.
+     */
+    private static int[] newLookup(Data d) {
+        if (d.bits != 8) {
+            return null;
+        }
+        int[] lookup = new int[LOOKUP_SIZE * 2];
+        Arrays.fill(lookup, -1);
+        return lookup;
+    }
+    
+    private volatile Data data;
+    
+    /**
+     * Создать хранилище, заполненное одним значением
+     * @param initialId id состояния для всех блоков
+     */
+    public PalettedContainer(int initialId) {
+        Data d = new Data(0);
+        d.palette[0] = initialId;
+        d.paletteSize = 1;
+        this.data = d;
+    }
+    
+    /**
+     * Получить id состояния блока
+     * @param index индекс блока (y << 8 | z << 4 | x)
+     * @return id состояния
+     */
+    public int get(int index) {
+        Data d = data;
+        if (d.bits == 0) {
+            return d.palette[0];
+        }
+        long word = (long) LONGS.getAcquire(d.storage, index >>> d.wordShift);
+        int shift = (index & ((1 << d.wordShift) - 1)) * d.bits;
+        int value = (int) ((word >>> shift) & d.mask);
+        return d.palette == null ? value : d.palette[value];
+    }
+    
+    /**
+     * Установить id состояния блока (только поток-писатель)
+     * @param index индекс блока (y << 8 | z << 4 | x)
+     * @param id новый id состояния
+     * @return предыдущий id состояния
+     */
+    public int set(int index, int id) {
+        Data d = data;
+        if (d.bits == 0) {
+            int current = d.palette[0];
+            if (current == id) {
+                return current;
+            }
+            d = resize(d, 4);
+        }
+        
+        int paletteIndex = paletteIndex(d, id, null);
+        if (paletteIndex < 0) {
+            d = resize(d, d.bits == 4 ? 8 : DIRECT_BITS);
+            paletteIndex = paletteIndex(d, id, null);
+        }
+        
+        int wordIndex = index >>> d.wordShift;
+        int shift = (index & ((1 << d.wordShift) - 1)) * d.bits;
+        long word = d.storage[wordIndex];
+        int previous = (int) ((word >>> shift) & d.mask);
+        long updated = (word & ~(d.mask << shift)) | ((long) paletteIndex << shift);
+        LONGS.setRelease(d.storage, wordIndex, updated);
+        return d.palette == null ? previous : d.palette[previous];
+    }
+    
+    /**
+     * Заполнить все хранилище одним значением (только поток-писатель)
+     * @param id id состояния
+     */
+    public void fill(int id) {
+        Data d = new Data(0);
+        d.palette[0] = id;
+        d.paletteSize = 1;
+        this.data = d;
+    }
+    
+    /**
+     * Заменить все значения одним проходом (только поток-писатель)
+     * Формат выбирается по числу различных id и публикуется один раз.
+     * @param ids id состояний для всех SIZE блоков
+     */
+    public void setAll(int[] ids) {
+        int bits = 4;
+        Data d = new Data(bits);
+        int[] lookup = null;
+        for (int i = 0; i < SIZE; i++) {
+            int paletteIndex = paletteIndex(d, ids[i], lookup);
+            if (paletteIndex < 0) {
+                bits = bits == 4 ? 8 : DIRECT_BITS;
+                d = new Data(bits);
+                lookup = newLookup(d);
+                i = -1;
+                continue;
+            }
+            int shift = (i & ((1 << d.wordShift) - 1)) * d.bits;
+            d.storage[i >>> d.wordShift] |= (long) paletteIndex << shift;
+        }
+        if (d.palette != null && d.paletteSize == 1) {
+            fill(ids[0]);
+        } else {
+            this.data = d;
+        }
+    }
+    
+    /**
+     * Найти или добавить значение в палитру
+     * @param lookup временная обратная таблица {@link #newLookup} или null - линейный поиск
+     * @return индекс палитры, id для прямого режима, -1 если палитра заполнена
+     */
+    private static int paletteIndex(Data d, int id, int[] lookup) {
+        if (d.palette == null) {
+            return id;
+        }
+        
+        int slot = 0;
+        if (lookup == null) {
+            for (int i = 0; i < d.paletteSize; i++) {
+                if (d.palette[i] == id) {
+                    return i;
+                }
+            }
+        } else {
+            slot = (id * 0x9E3779B9) >>> 23;
+            while (lookup[slot * 2] != -1) {
+                if (lookup[slot * 2] == id) {
+                    return lookup[slot * 2 + 1];
+                }
+                slot = (slot + 1) & (LOOKUP_SIZE - 1);
+            }
+        }
+        
+        if (d.paletteSize == d.palette.length) {
+            return -1;
+        }
+        
+        // Запись палитры видна читателям раньше, чем слово хранилища, ссылающееся на нее
+        int index = d.paletteSize++;
+        d.palette[index] = id;
+        if (lookup != null) {
+            lookup[slot * 2] = id;
+            lookup[slot * 2 + 1] = index;
+        }
+        return index;
+    }
+    
+    /**
+     * Перепаковать данные в более широкий формат и опубликовать его
+     */
+    private Data resize(Data old, int bits) {
+        Data d = new Data(bits);
+        int[] lookup = newLookup(d);
+        for (int i = 0; i < SIZE; i++) {
+            int id = get(old, i);
+            int paletteIndex = paletteIndex(d, id, lookup);
+            int wordIndex = i >>> d.wordShift;
+            int shift = (i & ((1 << d.wordShift) - 1)) * d.bits;
+            d.storage[wordIndex] |= (long) paletteIndex << shift;
+        }
+        this.data = d;
+        return d;
+    }
+    
+    private static int get(Data d, int index) {
+        if (d.bits == 0) {
+            return d.palette[0];
+        }
+        long word = d.storage[index >>> d.wordShift];
+        int value = (int) ((word >>> ((index & ((1 << d.wordShift) - 1)) * d.bits)) & d.mask);
+        return d.palette == null ? value : d.palette[value];
+    }
+    
+    /**
+     * Получить текущую ширину значения в битах
+     * @return 0, 4, 8 или DIRECT_BITS
+     */
+    public int getBits() {
+        return data.bits;
+    }
+    
+    /**
+     * Проверить, хранит ли контейнер единственное значение
+     * @return true для режима одного значения
+     */
+    public boolean isSingleValue() {
+        return data.bits == 0;
+    }
+    
+    /**
+     * Получить количество записей палитры
+     * @return размер палитры или 0 в прямом режиме
+     */
+    public int getPaletteSize() {
+        Data d = data;
+        return d.palette == null ? 0 : d.paletteSize;
+    }
+    
+    /**
+     * Получить примерный объем занимаемой памяти
+     * @return размер в байтах (заголовки объектов и массивы)
+     */
+    public long getMemoryUsage() {
+        Data d = data;
+        long bytes = 16 + 40; // контейнер + Data
+        if (d.storage != null) {
+            bytes += 16 + (long) d.storage.length * Long.BYTES;
+        }
+        if (d.palette != null) {
+            bytes += 16 + (long) d.palette.length * Integer.BYTES;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,231 @@
+package com.rivet.engine.world;
+
+import com.rivet.engine.util.LongObjectHashMap;
+
+import java.util.Arrays;
+
+/**
+ * Воксельный мир Rivet
+ * Хранит загруженные чанки в примитивной long-таблице.
+ * Изменения выполняет один поток-писатель, читать можно из любых потоков.
+ */
+public class World {
+    
+    private final LongObjectHashMap<Chunk> chunks = new LongObjectHashMap<>(1024);
+    private volatile BlockChangeListener[] listeners = new BlockChangeListener[0];
+    private volatile ChunkListener[] chunkListeners = new ChunkListener[0];
+    
+    /**
+     * Получить id блока
+     * @param x мировая координата X
+     * @param y мировая координата Y
+     * @param z мировая координата Z
+     * @return id состояния или AIR для незагруженных чанков
+     */
+    public int getBlock(int x, int y, int z) {
+        Chunk chunk = chunks.get(ChunkPos.pack(x >> 4, z >> 4));
+        return chunk == null ? Blocks.AIR_ID : chunk.getBlock(x & 15, y, z & 15);
+    }
+    
+    /**
+     * Установить id блока (только поток-писатель)
+     * @param x мировая координата X
+     * @param y мировая координата Y
+     * @param z мировая координата Z
+     * @param id новый id состояния
+     * @return true если блок изменился
+     */
+    public boolean setBlock(int x, int y, int z, int id) {
+        Chunk chunk = chunks.get(ChunkPos.pack(x >> 4, z >> 4));
+        if (chunk == null || y < 0 || y >= Chunk.HEIGHT) {
+            return false;
+        }
+        
+        int previous = chunk.setBlock(x & 15, y, z & 15, id);
+        if (previous == id) {
+            return false;
+        }
+        
+        fireBlockChanged(x, y, z, previous, id);
+        return true;
+    }
+    
+    /**
+     * Оповестить слушателей об изменении, записанном напрямую в чанк (только поток-писатель)
+     * Используется, когда блоки меняются параллельно в рабочих потоках, а
+     * слушатели должны получить изменения позже в потоке-писателе.
+     * @param x мировая координата X
+     * @param y мировая координата Y
+     * @param z мировая координата Z
+     * @param oldId предыдущий id состояния
+     * @param newId новый id состояния
+     */
+    public void fireBlockChanged(int x, int y, int z, int oldId, int newId) {
+        BlockChangeListener[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+            current[i].onBlockChanged(x, y, z, oldId, newId);
+        }
+    }
+    
+    /**
+     * Получить загруженный чанк
+     * @param chunkX координата X чанка
+     * @param chunkZ координата Z чанка
+     * @return чанк или null
+     */
+    public Chunk getChunk(int chunkX, int chunkZ) {
+        return chunks.get(ChunkPos.pack(chunkX, chunkZ));
+    }
+    
+    /**
+     * Получить секцию по координатам секции
+     * @param sectionX координата X секции
+     * @param sectionY координата Y секции
+     * @param sectionZ координата Z секции
+     * @return секция или null если она пустая или не загружена
+     */
+    public ChunkSection getSection(int sectionX, int sectionY, int sectionZ) {
+        Chunk chunk = chunks.get(ChunkPos.pack(sectionX, sectionZ));
+        return chunk == null ? null : chunk.getSection(sectionY);
+    }
+    
+    /**
+     * Получить чанк или создать пустой (только поток-писатель)
+     * @param chunkX координата X чанка
+     * @param chunkZ координата Z чанка
+     * @return чанк
+     */
+    public Chunk getOrCreateChunk(int chunkX, int chunkZ) {
+        long key = ChunkPos.pack(chunkX, chunkZ);
+        Chunk chunk = chunks.get(key);
+        if (chunk == null) {
+            chunk = new Chunk(chunkX, chunkZ);
+            chunks.put(key, chunk);
+        }
+        return chunk;
+    }
+    
+    /**
+     * Добавить готовый чанк (только поток-писатель)
+     * @param chunk чанк
+     */
+    public void putChunk(Chunk chunk) {
+        Chunk previous = chunks.put(chunk.getKey(), chunk);
+        ChunkListener[] current = chunkListeners;
+        for (int i = 0; i < current.length; i++) {
+            if (previous != null) {
+                current[i].onChunkUnloaded(previous);
+            }
+            current[i].onChunkLoaded(chunk);
+        }
+    }
+    
+    /**
+     * Выгрузить чанк (только поток-писатель)
+     * @param chunkX координата X чанка
+     * @param chunkZ координата Z чанка
+     * @return выгруженный чанк или null
+     */
+    public Chunk unloadChunk(int chunkX, int chunkZ) {
+        Chunk chunk = chunks.remove(ChunkPos.pack(chunkX, chunkZ));
+        if (chunk != null) {
+            ChunkListener[] current = chunkListeners;
+            for (int i = 0; i < current.length; i++) {
+                current[i].onChunkUnloaded(chunk);
+            }
+        }
+        return chunk;
+    }
+    
+    /**
+     * Проверить, загружен ли чанк
+     * @param chunkX координата X чанка
+     * @param chunkZ координата Z чанка
+     * @return true если чанк загружен
+     */
+    public boolean isChunkLoaded(int chunkX, int chunkZ) {
+        return chunks.containsKey(ChunkPos.pack(chunkX, chunkZ));
+    }
+    
+    /**
+     * Обойти все загруженные чанки
+     * @param consumer обработчик (ключ чанка, чанк)
+     */
+    public void forEachChunk(LongObjectHashMap.EntryConsumer<Chunk> consumer) {
+        chunks.forEach(consumer);
+    }
+    
+    /**
+     * Получить количество загруженных чанков
+     * @return количество чанков
+     */
+    public int getLoadedChunkCount() {
+        return chunks.size();
+    }
+    
+    /**
+     * Получить примерный объем памяти загруженных чанков
+     * @return размер в байтах
+     */
+    public long getMemoryUsage() {
+        long[] total = new long[1];
+        chunks.forEach((key, chunk) -> total[0] += chunk.getMemoryUsage());
+        return total[0];
+    }
+    
+    /**
+     * Добавить слушатель изменений блоков
+     * @param listener слушатель
+     */
+    public synchronized void addBlockChangeListener(BlockChangeListener listener) {
+        BlockChangeListener[] current = listeners;
+        BlockChangeListener[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = listener;
+        listeners = updated;
+    }
+    
+    /**
+     * Удалить слушатель изменений блоков
+     * @param listener слушатель
+     */
+    public synchronized void removeBlockChangeListener(BlockChangeListener listener) {
+        BlockChangeListener[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == listener) {
+                BlockChangeListener[] updated = new BlockChangeListener[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                listeners = updated;
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Добавить слушатель загрузки и выгрузки чанков
+     * @param listener слушатель
+     */
+    public synchronized void addChunkListener(ChunkListener listener) {
+        ChunkListener[] current = chunkListeners;
+        ChunkListener[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = listener;
+        chunkListeners = updated;
+    }
+    
+    /**
+     * Удалить слушатель загрузки и выгрузки чанков
+     * @param listener слушатель
+     */
+    public synchronized void removeChunkListener(ChunkListener listener) {
+        ChunkListener[] current = chunkListeners;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == listener) {
+                ChunkListener[] updated = new ChunkListener[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                chunkListeners = updated;
+                return;
+            }
+        }
+    }
+}
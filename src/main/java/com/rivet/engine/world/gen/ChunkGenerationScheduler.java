@@ -0,0 +1,605 @@
+package com.rivet.engine.world.gen;
+
+import com.rivet.engine.util.LongObjectHashMap;
+import com.rivet.engine.world.Chunk;
+import com.rivet.engine.world.ChunkPos;
+import com.rivet.engine.world.World;
+import com.rivet.engine.world.light.LightEngine;
+import com.rivet.engine.world.storage.WorldStorage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Потоковая генерация чанков вокруг наблюдателей
+ *
+ * Недостающие чанки в радиусе каждого наблюдателя сортируются по расстоянию
+ * с учетом направления взгляда (чанки впереди раньше); чанк рядом с
+ * несколькими наблюдателями получает лучший из приоритетов. Чанки
+ * генерируются на рабочих потоках, не более maxInFlight одновременно.
+ * Сохраненные чанки читаются из хранилища вместо генерации. Чанки, вышедшие
+ * из радиуса всех наблюдателей, отменяются или выгружаются. Основной
+ * наблюдатель {@link #PRIMARY_VIEWER} есть всегда, остальные (игроки
+ * сервера) добавляются и удаляются по номеру. Все методы, кроме геттеров
+ * метрик, вызываются только из потока-писателя мира.
+ *
+ * Чанк, генерация которого завершилась ошибкой, повторяется с удваивающейся
+ * задержкой; после {@link #MAX_ATTEMPTS} неудач он пропускается, пока не
+ * выйдет из радиуса.
+ */
+public class ChunkGenerationScheduler {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ChunkGenerationScheduler.class);
+    
+    // Порог изменения направления взгляда для пересортировки очереди (косинус угла)
+    private static final float RESORT_DOT = 0.9f;
+    
+    // Повтор после ошибки генерации: задержка удваивается с каждой попыткой
+    public static final int MAX_ATTEMPTS = 5;
+    private static final long RETRY_DELAY_NANOS = 100_000_000L;
+    
+    // Номер основного наблюдателя (камера клиента, точка появления сервера)
+    public static final int PRIMARY_VIEWER = 0;
+    
+    private final World world;
+    private final TerrainGenerator generator;
+    private final ExecutorService executor;
+    private final int maxInFlight;
+    private final LongObjectHashMap<GenerationTask> tasks = new LongObjectHashMap<>(256);
+    private final ConcurrentLinkedQueue<GenerationTask> completed = new ConcurrentLinkedQueue<>();
+    private final LongObjectHashMap<Failure> failures = new LongObjectHashMap<>(16);
+    private long nextRetry = Long.MAX_VALUE;
+    private volatile WorldStorage storage;
+    
+    private int radius;
+    private int playableRadius;
+    
+    // Наблюдатели, основной всегда первый
+    private final List<Viewer> viewers = new ArrayList<>();
+    private final Viewer primary;
+    private boolean dirty = true;
+    
+    // Очередь ожидания, отсортированная по приоритету
+    private long[] pending = new long[0];
+    private long[] order = new long[0];
+    private final LongObjectHashMap<Boolean> queued = new LongObjectHashMap<>(256);
+    private int pendingCount = 0;
+    private int pendingCursor = 0;
+    private int inFlight = 0;
+    private long[] unloadKeys = new long[64];
+    private int unloadCount = 0;
+    
+    // Метрики
+    private final long startTime = System.nanoTime();
+    private volatile long generatedCount = 0;
+    private volatile long generationNanos = 0;
+    private volatile long timeToPlayable = -1;
+    private volatile long failureCount = 0;
+    
+    /**
+     * Точка, вокруг которой генерируются чанки
+     */
+    private static final class Viewer {
+        final int id;
+        float x;
+        float z;
+        float dirX = 0.0f;
+        float dirZ = -1.0f;
+        int centerChunkX = Integer.MIN_VALUE;
+        int centerChunkZ = Integer.MIN_VALUE;
+        float sortedDirX;
+        float sortedDirZ;
+        
+        Viewer(int id) {
+            this.id = id;
+        }
+    }
+    
+    /**
+     * Неудачные попытки генерации чанка
+     */
+    private static final class Failure {
+        int attempts;
+        // Время, раньше которого чанк не ставится в очередь (Long.MAX_VALUE - попытки исчерпаны)
+        long retryAt;
+    }
+    
+    /**
+     * Задача генерации одного чанка
+     */
+    private final class GenerationTask implements Runnable {
+        final int chunkX;
+        final int chunkZ;
+        volatile boolean cancelled = false;
+        Chunk result;
+        long nanos;
+        
+        GenerationTask(int chunkX, int chunkZ) {
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+        }
+        
+        @Override
+        public void run() {
+            if (!cancelled) {
+                try {
+                    long start = System.nanoTime();
+                    WorldStorage source = storage;
+                    Chunk chunk = source != null ? source.load(chunkX, chunkZ) : null;
+                    if (chunk == null) {
+                        chunk = generator.generate(chunkX, chunkZ);
+                    }
+                    if (!chunk.isLightInitialized()) {
+                        LightEngine.initializeChunk(chunk);
+                    }
+                    nanos = System.nanoTime() - start;
+                    result = chunk;
+                } catch (Exception e) {
+                    logger.error("Ошибка генерации чанка [{}, {}]", chunkX, chunkZ, e);
+                }
+            }
+            // Отмененные задачи тоже возвращаются, чтобы освободить слот
+            completed.add(this);
+        }
+    }
+    
+    /**
+     * @param world мир
+     * @param generator генератор ландшафта
+     * @param threads количество рабочих потоков
+     * @param maxInFlight максимум одновременно генерируемых чанков
+     * @param radius радиус генерации в чанках
+     * @param playableRadius радиус, после загрузки которого мир считается готовым к игре
+     */
+    public ChunkGenerationScheduler(World world, TerrainGenerator generator, int threads,
+                                    int maxInFlight, int radius, int playableRadius) {
+        this.world = world;
+        this.generator = generator;
+        this.maxInFlight = maxInFlight;
+        this.radius = radius;
+        this.playableRadius = Math.min(playableRadius, radius);
+        this.primary = new Viewer(PRIMARY_VIEWER);
+        viewers.add(primary);
+        
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "ChunkGenerator-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+        
+        logger.info("ChunkGenerationScheduler: {} рабочих потоков, радиус {}", threads, radius);
+    }
+    
+    /**
+     * Задать хранилище сохраненных чанков
+     * @param storage хранилище или null - всегда генерировать
+     */
+    public void setStorage(WorldStorage storage) {
+        this.storage = storage;
+    }
+    
+    /**
+     * Задать положение и направление взгляда основного наблюдателя
+     * @param x мировая координата X
+     * @param z мировая координата Z
+     * @param dirX X направления взгляда
+     * @param dirZ Z направления взгляда
+     */
+    public void setViewer(float x, float z, float dirX, float dirZ) {
+        setViewer(PRIMARY_VIEWER, x, z, dirX, dirZ);
+    }
+    
+    /**
+     * Добавить наблюдателя или изменить его положение и направление взгляда
+     * @param id номер наблюдателя
+     * @param x мировая координата X
+     * @param z мировая координата Z
+     * @param dirX X направления взгляда
+     * @param dirZ Z направления взгляда
+     */
+    public void setViewer(int id, float x, float z, float dirX, float dirZ) {
+        Viewer viewer = findViewer(id);
+        if (viewer == null) {
+            viewer = new Viewer(id);
+            viewers.add(viewer);
+        }
+        viewer.x = x;
+        viewer.z = z;
+        float length = (float) Math.sqrt(dirX * dirX + dirZ * dirZ);
+        if (length > 1.0e-4f) {
+            viewer.dirX = dirX / length;
+            viewer.dirZ = dirZ / length;
+        }
+        
+        int chunkX = (int) Math.floor(x) >> 4;
+        int chunkZ = (int) Math.floor(z) >> 4;
+        if (chunkX != viewer.centerChunkX || chunkZ != viewer.centerChunkZ
+                || viewer.dirX * viewer.sortedDirX + viewer.dirZ * viewer.sortedDirZ < RESORT_DOT) {
+            dirty = true;
+        }
+    }
+    
+    /**
+     * Удалить наблюдателя; его чанки выгружаются, если рядом нет других
+     * @param id номер наблюдателя (не {@link #PRIMARY_VIEWER})
+     */
+    public void removeViewer(int id) {
+        if (id == PRIMARY_VIEWER) {
+            throw new IllegalArgumentException("Primary viewer cannot be removed");
+        }
+        Viewer viewer = findViewer(id);
+        if (viewer != null) {
+            viewers.remove(viewer);
+            dirty = true;
+        }
+    }
+    
+    private Viewer findViewer(int id) {
+        for (int i = 0; i < viewers.size(); i++) {
+            Viewer viewer = viewers.get(i);
+            if (viewer.id == id) {
+                return viewer;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Изменить радиус генерации
+     * @param radius радиус в чанках
+     */
+    public void setRadius(int radius) {
+        if (this.radius != radius) {
+            this.radius = radius;
+            this.playableRadius = Math.min(playableRadius, radius);
+            dirty = true;
+        }
+    }
+    
+    /**
+     * Обработать готовые чанки и запустить новые задачи
+     * @param maxChunks максимум чанков, добавляемых в мир за вызов
+     * @return количество добавленных чанков
+     */
+    public int update(int maxChunks) {
+        if (nextRetry != Long.MAX_VALUE && System.nanoTime() - nextRetry >= 0) {
+            nextRetry = Long.MAX_VALUE;
+            dirty = true;
+        }
+        if (dirty) {
+            rebuildQueue();
+        }
+        
+        int added = drainCompleted(maxChunks);
+        submitPending();
+        
+        if (timeToPlayable < 0 && isAreaLoaded(playableRadius)) {
+            timeToPlayable = System.nanoTime() - startTime;
+            logger.info("Мир готов к игре за {} мс ({} чанков, {} чанков/с)",
+                timeToPlayable / 1_000_000L, generatedCount, String.format("%.1f", getChunksPerSecond()));
+        }
+        return added;
+    }
+    
+    private void rebuildQueue() {
+        dirty = false;
+        for (int i = 0; i < viewers.size(); i++) {
+            Viewer viewer = viewers.get(i);
+            viewer.centerChunkX = (int) Math.floor(viewer.x) >> 4;
+            viewer.centerChunkZ = (int) Math.floor(viewer.z) >> 4;
+            viewer.sortedDirX = viewer.dirX;
+            viewer.sortedDirZ = viewer.dirZ;
+        }
+        
+        cancelOutOfRange();
+        unloadOutOfRange();
+        forgetOutOfRange();
+        long now = System.nanoTime();
+        nextRetry = Long.MAX_VALUE;
+        
+        int side = radius * 2 + 1;
+        int capacity = side * side * viewers.size();
+        if (pending.length < capacity) {
+            pending = new long[capacity];
+            order = new long[capacity];
+        }
+        
+        // Ключ сортировки: биты неотрицательного float приоритета в старших 32 битах, индекс в младших
+        int count = 0;
+        int radiusSq = radius * radius;
+        for (int v = 0; v < viewers.size(); v++) {
+            Viewer viewer = viewers.get(v);
+            for (int dz = -radius; dz <= radius; dz++) {
+                for (int dx = -radius; dx <= radius; dx++) {
+                    int distanceSq = dx * dx + dz * dz;
+                    if (distanceSq > radiusSq) {
+                        continue;
+                    }
+                    int chunkX = viewer.centerChunkX + dx;
+                    int chunkZ = viewer.centerChunkZ + dz;
+                    long key = ChunkPos.pack(chunkX, chunkZ);
+                    if (world.isChunkLoaded(chunkX, chunkZ) || tasks.containsKey(key)) {
+                        continue;
+                    }
+                    Failure failure = failures.get(key);
+                    if (failure != null && (failure.retryAt == Long.MAX_VALUE || failure.retryAt - now > 0)) {
+                        scheduleRetry(failure.retryAt);
+                        continue;
+                    }
+                    
+                    float priority = priority(viewer, chunkX, chunkZ);
+                    pending[count] = key;
+                    order[count] = ((long) Float.floatToRawIntBits(priority) << 32) | count;
+                    count++;
+                }
+            }
+        }
+        Arrays.sort(order, 0, count);
+        
+        // Переставить ключи в порядке приоритета, используя order как временный буфер;
+        // чанк рядом с несколькими наблюдателями остается на месте лучшего приоритета
+        int unique = 0;
+        queued.clear();
+        for (int i = 0; i < count; i++) {
+            long key = pending[(int) order[i]];
+            if (queued.put(key, Boolean.TRUE) == null) {
+                order[unique++] = key;
+            }
+        }
+        System.arraycopy(order, 0, pending, 0, unique);
+        pendingCount = unique;
+        pendingCursor = 0;
+    }
+    
+    /**
+     * Приоритет чанка для наблюдателя: квадрат расстояния, уменьшенный до двух раз для чанков впереди
+     */
+    private static float priority(Viewer viewer, int chunkX, int chunkZ) {
+        float dx = (chunkX << 4) + 8.0f - viewer.x;
+        float dz = (chunkZ << 4) + 8.0f - viewer.z;
+        float distanceSq = dx * dx + dz * dz;
+        if (distanceSq < 1.0f) {
+            return 0.0f;
+        }
+        float dot = (dx * viewer.dirX + dz * viewer.dirZ) / (float) Math.sqrt(distanceSq);
+        return distanceSq * (1.5f - 0.5f * dot);
+    }
+    
+    private void cancelOutOfRange() {
+        int limitSq = radius * radius;
+        tasks.forEach((key, task) -> {
+            if (!task.cancelled && distanceSq(task.chunkX, task.chunkZ) > limitSq) {
+                task.cancelled = true;
+            }
+        });
+    }
+    
+    private void unloadOutOfRange() {
+        // Запас в один чанк, чтобы не выгружать и не генерировать заново на границе
+        int limitSq = (radius + 1) * (radius + 1);
+        unloadCount = 0;
+        world.forEachChunk((key, chunk) -> {
+            if (distanceSq(chunk.getChunkX(), chunk.getChunkZ()) > limitSq) {
+                if (unloadCount == unloadKeys.length) {
+                    unloadKeys = Arrays.copyOf(unloadKeys, unloadKeys.length * 2);
+                }
+                unloadKeys[unloadCount++] = key;
+            }
+        });
+        for (int i = 0; i < unloadCount; i++) {
+            world.unloadChunk(ChunkPos.unpackX(unloadKeys[i]), ChunkPos.unpackZ(unloadKeys[i]));
+        }
+    }
+    
+    private void forgetOutOfRange() {
+        // Вышедший из радиуса чанк при возвращении получает попытки заново
+        int limitSq = (radius + 1) * (radius + 1);
+        unloadCount = 0;
+        failures.forEach((key, failure) -> {
+            if (distanceSq(ChunkPos.unpackX(key), ChunkPos.unpackZ(key)) > limitSq) {
+                if (unloadCount == unloadKeys.length) {
+                    unloadKeys = Arrays.copyOf(unloadKeys, unloadKeys.length * 2);
+                }
+                unloadKeys[unloadCount++] = key;
+            }
+        });
+        for (int i = 0; i < unloadCount; i++) {
+            failures.remove(unloadKeys[i]);
+        }
+    }
+    
+    /**
+     * Квадрат расстояния в чанках до ближайшего наблюдателя
+     */
+    private int distanceSq(int chunkX, int chunkZ) {
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < viewers.size(); i++) {
+            Viewer viewer = viewers.get(i);
+            int dx = chunkX - viewer.centerChunkX;
+            int dz = chunkZ - viewer.centerChunkZ;
+            min = Math.min(min, dx * dx + dz * dz);
+        }
+        return min;
+    }
+    
+    private void submitPending() {
+        while (inFlight < maxInFlight && pendingCursor < pendingCount) {
+            long key = pending[pendingCursor++];
+            int chunkX = ChunkPos.unpackX(key);
+            int chunkZ = ChunkPos.unpackZ(key);
+            if (world.isChunkLoaded(chunkX, chunkZ) || tasks.containsKey(key)) {
+                continue;
+            }
+            
+            GenerationTask task = new GenerationTask(chunkX, chunkZ);
+            tasks.put(key, task);
+            inFlight++;
+            executor.execute(task);
+        }
+    }
+    
+    private int drainCompleted(int maxChunks) {
+        int added = 0;
+        GenerationTask task;
+        while (added < maxChunks && (task = completed.poll()) != null) {
+            inFlight--;
+            long key = ChunkPos.pack(task.chunkX, task.chunkZ);
+            if (tasks.get(key) == task) {
+                tasks.remove(key);
+            }
+            if (task.cancelled) {
+                // Чанк мог вернуться в радиус, пока задача была отменена
+                dirty = true;
+                continue;
+            }
+            if (task.result == null) {
+                recordFailure(key, task);
+                continue;
+            }
+            
+            failures.remove(key);
+            world.putChunk(task.result);
+            generationNanos += task.nanos;
+            generatedCount++;
+            added++;
+        }
+        return added;
+    }
+    
+    private void recordFailure(long key, GenerationTask task) {
+        Failure failure = failures.get(key);
+        if (failure == null) {
+            failure = new Failure();
+            failures.put(key, failure);
+        }
+        failure.attempts++;
+        failureCount++;
+        if (failure.attempts >= MAX_ATTEMPTS) {
+            failure.retryAt = Long.MAX_VALUE;
+            logger.error("Чанк [{}, {}] пропущен после {} неудачных попыток генерации",
+                task.chunkX, task.chunkZ, failure.attempts);
+            return;
+        }
+        
+        long delay = RETRY_DELAY_NANOS << (failure.attempts - 1);
+        failure.retryAt = System.nanoTime() + delay;
+        scheduleRetry(failure.retryAt);
+        logger.warn("Повтор генерации чанка [{}, {}] через {} мс (попытка {} из {})",
+            task.chunkX, task.chunkZ, delay / 1_000_000L, failure.attempts + 1, MAX_ATTEMPTS);
+    }
+    
+    private void scheduleRetry(long retryAt) {
+        if (retryAt != Long.MAX_VALUE && (nextRetry == Long.MAX_VALUE || retryAt - nextRetry < 0)) {
+            nextRetry = retryAt;
+        }
+    }
+    
+    /**
+     * Проверить, загружены ли все чанки в радиусе от основного наблюдателя
+     * @param checkRadius радиус в чанках
+     * @return true если все загружены
+     */
+    public boolean isAreaLoaded(int checkRadius) {
+        int radiusSq = checkRadius * checkRadius;
+        for (int dz = -checkRadius; dz <= checkRadius; dz++) {
+            for (int dx = -checkRadius; dx <= checkRadius; dx++) {
+                if (dx * dx + dz * dz <= radiusSq
+                        && !world.isChunkLoaded(primary.centerChunkX + dx, primary.centerChunkZ + dz)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Получить количество чанков в очереди и в работе
+     * @return количество чанков
+     */
+    public int getPendingCount() {
+        return pendingCount - pendingCursor + inFlight;
+    }
+    
+    /**
+     * Количество наблюдателей, включая основного
+     */
+    public int getViewerCount() {
+        return viewers.size();
+    }
+    
+    public int getInFlight() {
+        return inFlight;
+    }
+    
+    public int getRadius() {
+        return radius;
+    }
+    
+    public long getGeneratedCount() {
+        return generatedCount;
+    }
+    
+    /**
+     * Количество неудачных попыток генерации с момента создания
+     * @return количество попыток
+     */
+    public long getFailureCount() {
+        return failureCount;
+    }
+    
+    /**
+     * Среднее время генерации одного чанка на рабочем потоке
+     * @return время в наносекундах
+     */
+    public long getAverageGenerationNanos() {
+        long count = generatedCount;
+        return count == 0 ? 0 : generationNanos / count;
+    }
+    
+    /**
+     * Пропускная способность генерации с момента создания
+     * @return чанков в секунду
+     */
+    public double getChunksPerSecond() {
+        long elapsed = System.nanoTime() - startTime;
+        return elapsed <= 0 ? 0.0 : generatedCount * 1.0e9 / elapsed;
+    }
+    
+    /**
+     * Время от создания до загрузки игрового радиуса
+     * @return время в наносекундах или -1, если мир еще не готов
+     */
+    public long getTimeToPlayableNanos() {
+        return timeToPlayable;
+    }
+    
+    /**
+     * Остановить рабочие потоки
+     */
+    public void shutdown() {
+        tasks.forEach((key, task) -> task.cancelled = true);
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        tasks.clear();
+        completed.clear();
+        failures.clear();
+        nextRetry = Long.MAX_VALUE;
+        pendingCount = 0;
+        pendingCursor = 0;
+        inFlight = 0;
+    }
+}
@@ -0,0 +1,122 @@
+package com.rivet.engine.world.gen;
+
+import com.rivet.engine.world.Blocks;
+import com.rivet.engine.world.Chunk;
+
+/**
+ * Генератор ландшафта: камень, земля и трава по слоям шума
+ *
+ * Результат зависит только от зерна и координат чанка, поэтому одинаков
+ * при любом количестве потоков. Экземпляр потокобезопасен: рабочие массивы
+ * берутся из ThreadLocal.
+ */
+public class TerrainGenerator {
+    
+    private static final int SEA_LEVEL = 64;
+    private static final int DIRT_DEPTH = 3;
+    
+    private final long seed;
+    private final ValueNoise continents;
+    private final ValueNoise hills;
+    private final ValueNoise soil;
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+    
+    /**
+     * Рабочие массивы потока генерации
+     */
+    private static final class Scratch {
+        final float[] heights = new float[256];
+        final float[] detail = new float[256];
+        final float[] soilDepth = new float[256];
+        final float[] work = new float[64];
+        final int[] surface = new int[256];
+    }
+    
+    /**
+     * @param seed зерно мира
+     */
+    public TerrainGenerator(long seed) {
+        this.seed = seed;
+        this.continents = new ValueNoise(seed, 4, 1.0f / 256.0f, 0.5f);
+        this.hills = new ValueNoise(seed + 1, 3, 1.0f / 48.0f, 0.5f);
+        this.soil = new ValueNoise(seed + 2, 2, 1.0f / 16.0f, 0.5f);
+    }
+    
+    /**
+     * Сгенерировать чанк
+     * @param chunkX координата X чанка
+     * @param chunkZ координата Z чанка
+     * @return новый чанк, еще не добавленный в мир
+     */
+    public Chunk generate(int chunkX, int chunkZ) {
+        Scratch buffers = scratch.get();
+        float[] heights = buffers.heights;
+        float[] detail = buffers.detail;
+        float[] soilDepth = buffers.soilDepth;
+        float[] work = buffers.work;
+        int[] surface = buffers.surface;
+        
+        int startX = chunkX << 4;
+        int startZ = chunkZ << 4;
+        continents.fill(heights, startX, startZ, 16, work);
+        hills.fill(detail, startX, startZ, 16, work);
+        soil.fill(soilDepth, startX, startZ, 16, work);
+        
+        int minHeight = Chunk.HEIGHT;
+        for (int i = 0; i < 256; i++) {
+            float h = SEA_LEVEL + heights[i] * 28.0f + detail[i] * detail[i] * 18.0f;
+            int y = Math.max(1, Math.min(Chunk.HEIGHT - 2, (int) h));
+            surface[i] = y;
+            minHeight = Math.min(minHeight, y);
+        }
+        
+        Chunk chunk = new Chunk(chunkX, chunkZ);
+        
+        // Секции целиком ниже слоя почвы - один камень в режиме одного значения
+        int solidSections = Math.max(0, (minHeight - DIRT_DEPTH - 2) >> 4);
+        for (int sectionY = 0; sectionY < solidSections; sectionY++) {
+            chunk.getOrCreateSection(sectionY).fill(Blocks.STONE_ID);
+        }
+        
+        int startY = solidSections << 4;
+        for (int z = 0; z < 16; z++) {
+            for (int x = 0; x < 16; x++) {
+                int i = z * 16 + x;
+                int top = surface[i];
+                int dirtDepth = DIRT_DEPTH + (int) (soilDepth[i] * 1.5f);
+                for (int y = startY; y <= top; y++) {
+                    int id;
+                    if (y == top) {
+                        id = Blocks.GRASS_ID;
+                    } else if (y >= top - dirtDepth) {
+                        id = Blocks.DIRT_ID;
+                    } else {
+                        id = Blocks.STONE_ID;
+                    }
+                    chunk.setBlock(x, y, z, id);
+                }
+            }
+        }
+        return chunk;
+    }
+    
+    public long getSeed() {
+        return seed;
+    }
+    
+    /**
+     * Высота поверхности в точке (для размещения игрока)
+     * @param x мировая координата X
+     * @param z мировая координата Z
+     * @return Y первого блока воздуха над поверхностью
+     */
+    public int getSurfaceHeight(int x, int z) {
+        Chunk chunk = generate(x >> 4, z >> 4);
+        for (int y = Chunk.HEIGHT - 1; y >= 0; y--) {
+            if (chunk.getBlock(x & 15, y, z & 15) != Blocks.AIR_ID) {
+                return y + 1;
+            }
+        }
+        return 0;
+    }
+}
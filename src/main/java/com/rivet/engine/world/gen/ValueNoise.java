@@ -0,0 +1,108 @@
+package com.rivet.engine.world.gen;
+
+/**
+ * Многооктавный 2D шум значений с зерном
+ *
+ * Не имеет изменяемого состояния и потокобезопасен. Заполнение выполняется
+ * пакетами по колонкам 16x16: веса интерполяции считаются один раз на строку
+ * и столбец, а внутренние циклы по плоским массивам JIT может векторизовать.
+ */
+public final class ValueNoise {
+    
+    private final long seed;
+    private final int octaves;
+    private final float baseFrequency;
+    private final float persistence;
+    
+    /**
+     * @param seed зерно мира
+     * @param octaves количество октав
+     * @param baseFrequency частота первой октавы (1 / размер детали в блоках)
+     * @param persistence множитель амплитуды каждой следующей октавы
+     */
+    public ValueNoise(long seed, int octaves, float baseFrequency, float persistence) {
+        this.seed = seed;
+        this.octaves = octaves;
+        this.baseFrequency = baseFrequency;
+        this.persistence = persistence;
+    }
+    
+    /**
+     * Заполнить блок значений шума size x size
+     * @param out массив результата (size * size, индекс z * size + x), значения около [-1, 1]
+     * @param startX мировая координата X первого столбца
+     * @param startZ мировая координата Z первой строки
+     * @param size размер стороны блока
+     * @param scratch рабочий массив не меньше 4 * size
+     */
+    public void fill(float[] out, int startX, int startZ, int size, float[] scratch) {
+        int area = size * size;
+        for (int i = 0; i < area; i++) {
+            out[i] = 0.0f;
+        }
+        
+        float frequency = baseFrequency;
+        float amplitude = 1.0f;
+        float norm = 0.0f;
+        
+        for (int octave = 0; octave < octaves; octave++) {
+            long octaveSeed = seed * 6364136223846793005L + octave * 1442695040888963407L;
+            
+            // Веса по X: scratch[0..size) - дробная часть, scratch[size..2size) - целая часть
+            for (int x = 0; x < size; x++) {
+                float fx = (startX + x) * frequency;
+                float cell = (float) Math.floor(fx);
+                scratch[x] = smooth(fx - cell);
+                scratch[size + x] = cell;
+            }
+            
+            for (int z = 0; z < size; z++) {
+                float fz = (startZ + z) * frequency;
+                int cellZ = (int) Math.floor(fz);
+                float tz = smooth(fz - cellZ);
+                int row = z * size;
+                
+                for (int x = 0; x < size; x++) {
+                    int cellX = (int) scratch[size + x];
+                    float tx = scratch[x];
+                    float v00 = lattice(octaveSeed, cellX, cellZ);
+                    float v10 = lattice(octaveSeed, cellX + 1, cellZ);
+                    float v01 = lattice(octaveSeed, cellX, cellZ + 1);
+                    float v11 = lattice(octaveSeed, cellX + 1, cellZ + 1);
+                    float a = v00 + (v10 - v00) * tx;
+                    float b = v01 + (v11 - v01) * tx;
+                    scratch[2 * size + x] = a + (b - a) * tz;
+                }
+                
+                // Накопление октавы - простой векторизуемый цикл
+                for (int x = 0; x < size; x++) {
+                    out[row + x] += scratch[2 * size + x] * amplitude;
+                }
+            }
+            
+            norm += amplitude;
+            amplitude *= persistence;
+            frequency *= 2.0f;
+        }
+        
+        float inv = 1.0f / norm;
+        for (int i = 0; i < area; i++) {
+            out[i] *= inv;
+        }
+    }
+    
+    private static float smooth(float t) {
+        return t * t * (3.0f - 2.0f * t);
+    }
+    
+    /**
+     * Псевдослучайное значение в узле решетки [-1, 1]
+     */
+    private static float lattice(long seed, int x, int z) {
+        long h = seed ^ (x * 0x9E3779B97F4A7C15L) ^ (z * 0xC2B2AE3D27D4EB4FL);
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        h ^= h >>> 31;
+        return (h >>> 40) * (2.0f / (1 << 24)) - 1.0f;
+    }
+}
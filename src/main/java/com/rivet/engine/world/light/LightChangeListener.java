@@ -0,0 +1,17 @@
+package com.rivet.engine.world.light;
+
+/**
+ * Слушатель изменения освещения секций
+ * Вызывается в потоке-писателе мира после завершения пакета пересчета.
+ */
+@FunctionalInterface
+public interface LightChangeListener {
+    
+    /**
+     * Освещение секции (или граничный свет, читаемый ее гранями) изменилось
+     * @param sectionX координата X секции
+     * @param sectionY координата Y секции
+     * @param sectionZ координата Z секции
+     */
+    void onLightChanged(int sectionX, int sectionY, int sectionZ);
+}
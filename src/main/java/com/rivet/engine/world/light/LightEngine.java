@@ -0,0 +1,355 @@
+package com.rivet.engine.world.light;
+
+import com.rivet.engine.util.LongObjectHashMap;
+import com.rivet.engine.util.LongQueue;
+import com.rivet.engine.world.BlockChangeListener;
+import com.rivet.engine.world.Blocks;
+import com.rivet.engine.world.Chunk;
+import com.rivet.engine.world.ChunkListener;
+import com.rivet.engine.world.ChunkPos;
+import com.rivet.engine.world.World;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Инкрементальный расчет небесного света и света блоков
+ *
+ * Изменения блоков и загрузки чанков копятся по чанкам и обрабатываются
+ * пакетом в фоне. Работа делится на 9 фаз по остатку координат чанка по
+ * модулю 3: задачи одной фазы владеют непересекающимися областями 3x3 и
+ * выполняются параллельно без блокировок. Пока пакет считается, новые
+ * изменения копятся для следующего. Методы слушателей и {@link #update()}
+ * вызываются только из потока-писателя мира.
+ */
+public class LightEngine implements BlockChangeListener, ChunkListener {
+    
+    private static final Logger logger = LoggerFactory.getLogger(LightEngine.class);
+    
+    private static final int PHASES = 9;
+    private static final ThreadLocal<LightPropagator> PROPAGATORS = ThreadLocal.withInitial(LightPropagator::new);
+    
+    private final World world;
+    private final ForkJoinPool pool;
+    private LongObjectHashMap<ChunkWork> pending = new LongObjectHashMap<>(64);
+    private LongObjectHashMap<ChunkWork> spare = new LongObjectHashMap<>(64);
+    private volatile LightChangeListener[] listeners = new LightChangeListener[0];
+    
+    private ForkJoinTask<?> running;
+    private ChunkWork[][] runningPhases;
+    private long runningStart;
+    
+    // Метрики
+    private volatile long batchCount = 0;
+    private volatile long editCount = 0;
+    private volatile long lastBatchNanos = 0;
+    private volatile long totalBatchNanos = 0;
+    
+    /**
+     * Накопленная работа одного чанка
+     */
+    private static final class ChunkWork {
+        final int chunkX;
+        final int chunkZ;
+        final LongQueue edits = new LongQueue(16);
+        final LongQueue changed = new LongQueue(16);
+        boolean initialize;
+        boolean stitch;
+        
+        ChunkWork(int chunkX, int chunkZ) {
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+        }
+    }
+    
+    /**
+     * Пересчет одного чанка (и его области 3x3)
+     */
+    private final class ChunkTask extends RecursiveAction {
+        private final ChunkWork work;
+        
+        ChunkTask(ChunkWork work) {
+            this.work = work;
+        }
+        
+        @Override
+        protected void compute() {
+            LightPropagator propagator = PROPAGATORS.get();
+            try {
+                Chunk chunk = world.getChunk(work.chunkX, work.chunkZ);
+                if (chunk == null) {
+                    return;
+                }
+                if (work.initialize && !chunk.isLightInitialized()) {
+                    propagator.initializeChunk(chunk);
+                }
+                propagator.bind(world, work.chunkX, work.chunkZ);
+                if (!work.edits.isEmpty()) {
+                    propagator.processEdits(work.edits);
+                }
+                if (work.stitch) {
+                    propagator.stitchChunk();
+                }
+                propagator.drainChanged(work.changed);
+            } catch (Exception e) {
+                logger.error("Ошибка расчета освещения чанка [{}, {}]", work.chunkX, work.chunkZ, e);
+            } finally {
+                propagator.unbind();
+            }
+        }
+    }
+    
+    /**
+     * Последовательное выполнение фаз пакета
+     */
+    private static final class BatchTask extends RecursiveAction {
+        private final ChunkTask[][] phases;
+        
+        BatchTask(ChunkTask[][] phases) {
+            this.phases = phases;
+        }
+        
+        @Override
+        protected void compute() {
+            for (ChunkTask[] phase : phases) {
+                if (phase.length > 0) {
+                    invokeAll(phase);
+                }
+            }
+        }
+    }
+    
+    /**
+     * @param world мир
+     * @param threads количество рабочих потоков
+     */
+    public LightEngine(World world, int threads) {
+        this.world = world;
+        
+        AtomicInteger counter = new AtomicInteger();
+        this.pool = new ForkJoinPool(threads, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("LightEngine-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        }, null, false);
+        
+        logger.info("LightEngine: {} рабочих потоков", threads);
+    }
+    
+    /**
+     * Рассчитать освещение чанка, еще не добавленного в мир
+     * Вызывается из потока генерации: свет распространяется только внутри чанка,
+     * связь с соседями выполняется после загрузки.
+     * @param chunk новый чанк
+     */
+    public static void initializeChunk(Chunk chunk) {
+        PROPAGATORS.get().initializeChunk(chunk);
+    }
+    
+    @Override
+    public void onBlockChanged(int x, int y, int z, int oldId, int newId) {
+        // Замена блока с теми же световыми свойствами (например трава -> земля) свет не меняет
+        if (Blocks.isOpaque(oldId) == Blocks.isOpaque(newId)
+                && Blocks.lightEmission(oldId) == Blocks.lightEmission(newId)) {
+            return;
+        }
+        work(x >> 4, z >> 4).edits.add(LightPropagator.pack(x, y, z, 0));
+    }
+    
+    @Override
+    public void onChunkLoaded(Chunk chunk) {
+        ChunkWork work = work(chunk.getChunkX(), chunk.getChunkZ());
+        work.initialize = !chunk.isLightInitialized();
+        work.stitch = true;
+    }
+    
+    @Override
+    public void onChunkUnloaded(Chunk chunk) {
+        pending.remove(chunk.getKey());
+    }
+    
+    private ChunkWork work(int chunkX, int chunkZ) {
+        long key = ChunkPos.pack(chunkX, chunkZ);
+        ChunkWork work = pending.get(key);
+        if (work == null) {
+            work = new ChunkWork(chunkX, chunkZ);
+            pending.put(key, work);
+        }
+        return work;
+    }
+    
+    /**
+     * Завершить готовый пакет и запустить следующий
+     * @return true если пакет был запущен или еще выполняется
+     */
+    public boolean update() {
+        if (running != null) {
+            if (!running.isDone()) {
+                return true;
+            }
+            finishBatch();
+        }
+        if (pending.isEmpty()) {
+            return false;
+        }
+        startBatch();
+        return true;
+    }
+    
+    /**
+     * Синхронно обработать все накопленные изменения
+     */
+    public void flush() {
+        while (update()) {
+            running.join();
+        }
+    }
+    
+    private void startBatch() {
+        List<List<ChunkTask>> buckets = new ArrayList<>(PHASES);
+        for (int i = 0; i < PHASES; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        int[] edits = new int[1];
+        pending.forEach((key, work) -> {
+            int phase = Math.floorMod(work.chunkX, 3) * 3 + Math.floorMod(work.chunkZ, 3);
+            buckets.get(phase).add(new ChunkTask(work));
+            edits[0] += work.edits.size();
+        });
+        
+        ChunkTask[][] phases = new ChunkTask[PHASES][];
+        runningPhases = new ChunkWork[PHASES][];
+        for (int i = 0; i < PHASES; i++) {
+            List<ChunkTask> bucket = buckets.get(i);
+            phases[i] = bucket.toArray(new ChunkTask[0]);
+            runningPhases[i] = new ChunkWork[phases[i].length];
+            for (int j = 0; j < phases[i].length; j++) {
+                runningPhases[i][j] = phases[i][j].work;
+            }
+        }
+        
+        // Новые изменения копятся во второй таблице, пока пакет считается
+        LongObjectHashMap<ChunkWork> swap = pending;
+        pending = spare;
+        spare = swap;
+        spare.clear();
+        
+        editCount += edits[0];
+        runningStart = System.nanoTime();
+        running = pool.submit(new BatchTask(phases));
+    }
+    
+    private void finishBatch() {
+        running = null;
+        long nanos = System.nanoTime() - runningStart;
+        lastBatchNanos = nanos;
+        totalBatchNanos += nanos;
+        batchCount++;
+        
+        LightChangeListener[] current = listeners;
+        for (ChunkWork[] phase : runningPhases) {
+            for (ChunkWork work : phase) {
+                LongQueue changed = work.changed;
+                for (int i = 0; i < changed.size(); i++) {
+                    long key = changed.get(i);
+                    for (int l = 0; l < current.length; l++) {
+                        current[l].onLightChanged(ChunkPos.sectionX(key), ChunkPos.sectionY(key), ChunkPos.sectionZ(key));
+                    }
+                }
+            }
+        }
+        runningPhases = null;
+    }
+    
+    /**
+     * Проверить, нет ли незавершенной работы
+     * @return true если все изменения обработаны
+     */
+    public boolean isIdle() {
+        return running == null && pending.isEmpty();
+    }
+    
+    /**
+     * Получить количество чанков, ожидающих пересчета
+     * @return количество чанков
+     */
+    public int getPendingChunkCount() {
+        return pending.size();
+    }
+    
+    public long getBatchCount() {
+        return batchCount;
+    }
+    
+    public long getEditCount() {
+        return editCount;
+    }
+    
+    public long getLastBatchNanos() {
+        return lastBatchNanos;
+    }
+    
+    /**
+     * Среднее время пакета пересчета
+     * @return время в наносекундах
+     */
+    public long getAverageBatchNanos() {
+        long count = batchCount;
+        return count == 0 ? 0 : totalBatchNanos / count;
+    }
+    
+    /**
+     * Добавить слушатель изменения освещения
+     * @param listener слушатель
+     */
+    public synchronized void addLightChangeListener(LightChangeListener listener) {
+        LightChangeListener[] current = listeners;
+        LightChangeListener[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = listener;
+        listeners = updated;
+    }
+    
+    /**
+     * Удалить слушатель изменения освещения
+     * @param listener слушатель
+     */
+    public synchronized void removeLightChangeListener(LightChangeListener listener) {
+        LightChangeListener[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == listener) {
+                LightChangeListener[] updated = new LightChangeListener[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                listeners = updated;
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Остановить рабочие потоки
+     */
+    public void shutdown() {
+        pool.shutdownNow();
+        try {
+            pool.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        pending.clear();
+        spare.clear();
+        running = null;
+        runningPhases = null;
+    }
+}
@@ -0,0 +1,473 @@
+package com.rivet.engine.world.light;
+
+import com.rivet.engine.util.LongQueue;
+import com.rivet.engine.world.Blocks;
+import com.rivet.engine.world.Chunk;
+import com.rivet.engine.world.ChunkPos;
+import com.rivet.engine.world.ChunkSection;
+import com.rivet.engine.world.Face;
+import com.rivet.engine.world.NibbleArray;
+import com.rivet.engine.world.PalettedContainer;
+import com.rivet.engine.world.World;
+
+import java.util.Arrays;
+
+/**
+ * Распространение света поиском в ширину внутри области 3x3 чанка
+ *
+ * Экземпляр владеет областью вокруг центрального чанка на время задачи и
+ * никогда не пишет за ее пределы, поэтому задачи с центрами на расстоянии
+ * трех чанков выполняются параллельно без блокировок. Элементы очередей -
+ * упакованные long: x (26 бит) | z (26 бит) | y (8 бит) | уровень (4 бита).
+ * Экземпляр не потокобезопасен: по одному на поток.
+ */
+final class LightPropagator {
+    
+    static final int MAX_LIGHT = 15;
+    
+    // Область изменений 5x5 чанков: владение 3x3 плюс соседи, чьи меши читают граничный свет
+    private static final int CHANGED_SIDE = 5;
+    
+    private final Chunk[] region = new Chunk[9];
+    private final LongQueue removeQueue = new LongQueue(1024);
+    private final LongQueue increaseQueue = new LongQueue(4096);
+    private final long[] changed = new long[(CHANGED_SIDE * CHANGED_SIDE * Chunk.SECTION_COUNT + 63) / 64];
+    private final int[] heights = new int[256];
+    private int centerX;
+    private int centerZ;
+    private boolean trackChanges;
+    
+    static long pack(int x, int y, int z, int level) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | ((long) y << 4) | level;
+    }
+    
+    static int unpackX(long packed) {
+        return (int) (packed >> 38);
+    }
+    
+    static int unpackZ(long packed) {
+        return (int) (packed << 26 >> 38);
+    }
+    
+    static int unpackY(long packed) {
+        return (int) (packed >>> 4) & 0xFF;
+    }
+    
+    static int unpackLevel(long packed) {
+        return (int) packed & 15;
+    }
+    
+    /**
+     * Захватить область 3x3 вокруг чанка мира
+     */
+    void bind(World world, int chunkX, int chunkZ) {
+        centerX = chunkX;
+        centerZ = chunkZ;
+        for (int dz = -1; dz <= 1; dz++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                region[(dz + 1) * 3 + dx + 1] = world.getChunk(chunkX + dx, chunkZ + dz);
+            }
+        }
+        trackChanges = true;
+    }
+    
+    /**
+     * Захватить одиночный чанк, еще не добавленный в мир
+     */
+    private void bindDetached(Chunk chunk) {
+        centerX = chunk.getChunkX();
+        centerZ = chunk.getChunkZ();
+        Arrays.fill(region, null);
+        region[4] = chunk;
+        trackChanges = false;
+    }
+    
+    void unbind() {
+        Arrays.fill(region, null);
+        Arrays.fill(changed, 0L);
+        removeQueue.clear();
+        increaseQueue.clear();
+    }
+    
+    /**
+     * Начальное освещение нового чанка без учета соседей
+     * Небесный свет падает в каждую колонку до первого непрозрачного блока и
+     * растекается под навесы внутри чанка; свет блоков растекается от источников.
+     */
+    void initializeChunk(Chunk chunk) {
+        bindDetached(chunk);
+        int startX = centerX << 4;
+        int startZ = centerZ << 4;
+        
+        int top = Chunk.SECTION_COUNT - 1;
+        while (top >= 0 && chunk.getSection(top) == null) {
+            top--;
+        }
+        
+        // Карта высот: верхний непрозрачный блок колонки
+        int minHeight = Chunk.HEIGHT;
+        int maxHeight = -1;
+        for (int z = 0; z < 16; z++) {
+            for (int x = 0; x < 16; x++) {
+                int y = (top << 4) + 15;
+                while (y >= 0 && !Blocks.isOpaque(chunk.getBlock(x, y, z))) {
+                    y--;
+                }
+                heights[z * 16 + x] = y;
+                minHeight = Math.min(minHeight, y);
+                maxHeight = Math.max(maxHeight, y);
+            }
+        }
+        
+        for (int sectionY = 0; sectionY <= top; sectionY++) {
+            int baseY = sectionY << 4;
+            ChunkSection section = chunk.getSection(sectionY);
+            if (section == null) {
+                if (baseY > maxHeight) {
+                    continue;
+                }
+                // Пустая секция под навесом темная и должна хранить свет
+                section = chunk.getOrCreateSection(sectionY);
+            }
+            NibbleArray sky = section.getSkyLight();
+            if (baseY + 15 <= minHeight) {
+                sky.fill(0);
+            } else {
+                for (int index = 0; index < ChunkSection.VOLUME; index++) {
+                    int y = baseY + (index >>> 8);
+                    if (y <= heights[index & 255]) {
+                        sky.set(index, 0);
+                    }
+                }
+            }
+            initializeSources(section);
+        }
+        
+        // Свет входит в колонку сбоку от более низких соседей
+        for (int z = 0; z < 16; z++) {
+            for (int x = 0; x < 16; x++) {
+                int height = heights[z * 16 + x];
+                int neighbourHeight = height;
+                if (x > 0) neighbourHeight = Math.max(neighbourHeight, heights[z * 16 + x - 1]);
+                if (x < 15) neighbourHeight = Math.max(neighbourHeight, heights[z * 16 + x + 1]);
+                if (z > 0) neighbourHeight = Math.max(neighbourHeight, heights[(z - 1) * 16 + x]);
+                if (z < 15) neighbourHeight = Math.max(neighbourHeight, heights[(z + 1) * 16 + x]);
+                for (int y = height + 1; y <= neighbourHeight; y++) {
+                    increaseQueue.add(pack(startX + x, y, startZ + z, MAX_LIGHT));
+                }
+            }
+        }
+        propagateIncrease(true);
+        
+        for (int sectionY = 0; sectionY <= top; sectionY++) {
+            ChunkSection section = chunk.getSection(sectionY);
+            if (section != null) {
+                seedSources(section, startX, sectionY << 4, startZ);
+            }
+        }
+        propagateIncrease(false);
+        
+        chunk.setLightInitialized(true);
+        unbind();
+    }
+    
+    private void initializeSources(ChunkSection section) {
+        PalettedContainer blocks = section.getBlocks();
+        if (blocks.isSingleValue() && Blocks.lightEmission(blocks.get(0)) == 0) {
+            return;
+        }
+        NibbleArray light = section.getBlockLight();
+        for (int index = 0; index < ChunkSection.VOLUME; index++) {
+            int emission = Blocks.lightEmission(blocks.get(index));
+            if (emission > 0) {
+                light.set(index, emission);
+            }
+        }
+    }
+    
+    private void seedSources(ChunkSection section, int startX, int baseY, int startZ) {
+        NibbleArray light = section.getBlockLight();
+        if (light.isUniform() && light.get(0) == 0) {
+            return;
+        }
+        for (int index = 0; index < ChunkSection.VOLUME; index++) {
+            int level = light.get(index);
+            if (level > 1) {
+                increaseQueue.add(pack(startX + (index & 15), baseY + (index >>> 8), startZ + ((index >>> 4) & 15), level));
+            }
+        }
+    }
+    
+    /**
+     * Пересчитать свет после изменений блоков центрального чанка
+     * Все правки пакета сначала удаляют старый свет, затем распространение
+     * выполняется один раз для всего пакета.
+     * @param edits упакованные позиции (уровень не используется)
+     */
+    void processEdits(LongQueue edits) {
+        for (int pass = 0; pass < 2; pass++) {
+            boolean sky = pass == 0;
+            for (int i = 0; i < edits.size(); i++) {
+                long edit = edits.get(i);
+                enqueueEdit(unpackX(edit), unpackY(edit), unpackZ(edit), sky);
+            }
+            propagateRemoval(sky);
+            propagateIncrease(sky);
+        }
+    }
+    
+    private void enqueueEdit(int x, int y, int z, boolean sky) {
+        Chunk chunk = chunkAt(x, z);
+        if (chunk == null) {
+            return;
+        }
+        int block = chunk.getBlock(x & 15, y, z & 15);
+        boolean opaque = Blocks.isOpaque(block);
+        int old = getLight(chunk, x, y, z, sky);
+        int source;
+        if (sky) {
+            source = !opaque && y == Chunk.HEIGHT - 1 ? MAX_LIGHT : 0;
+        } else {
+            source = Blocks.lightEmission(block);
+        }
+        
+        if (old > 0) {
+            setLight(chunk, x, y, z, sky, source);
+            removeQueue.add(pack(x, y, z, old));
+        }
+        if (source > 0) {
+            setLight(chunk, x, y, z, sky, source);
+            increaseQueue.add(pack(x, y, z, source));
+        }
+        if (old == 0 && !opaque) {
+            // Блок убран: свет соседей должен войти в освободившуюся клетку
+            for (int face = 0; face < Face.COUNT; face++) {
+                int nx = x + Face.OFFSET_X[face];
+                int ny = y + Face.OFFSET_Y[face];
+                int nz = z + Face.OFFSET_Z[face];
+                if (ny < 0 || ny >= Chunk.HEIGHT) {
+                    continue;
+                }
+                Chunk neighbour = chunkAt(nx, nz);
+                if (neighbour != null) {
+                    int level = getLight(neighbour, nx, ny, nz, sky);
+                    if (level > 1) {
+                        increaseQueue.add(pack(nx, ny, nz, level));
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Связать свет нового чанка с уже загруженными соседями
+     * Граничные клетки с перепадом больше единицы становятся источниками.
+     */
+    void stitchChunk() {
+        Chunk chunk = region[4];
+        if (chunk == null) {
+            return;
+        }
+        int startX = centerX << 4;
+        int startZ = centerZ << 4;
+        for (int side = 0; side < 4; side++) {
+            int face = side < 2 ? side : side + 2; // WEST, EAST, NORTH, SOUTH
+            Chunk neighbour = region[(Face.OFFSET_Z[face] + 1) * 3 + Face.OFFSET_X[face] + 1];
+            if (neighbour == null) {
+                continue;
+            }
+            
+            int top = Math.max(topSection(chunk), topSection(neighbour));
+            for (int i = 0; i < 16; i++) {
+                int x = face == Face.WEST ? startX : face == Face.EAST ? startX + 15 : startX + i;
+                int z = face == Face.NORTH ? startZ : face == Face.SOUTH ? startZ + 15 : startZ + i;
+                int nx = x + Face.OFFSET_X[face];
+                int nz = z + Face.OFFSET_Z[face];
+                for (int y = 0; y < (top + 1) << 4; y++) {
+                    stitchCell(chunk, x, y, z, neighbour, nx, nz, true);
+                    stitchCell(chunk, x, y, z, neighbour, nx, nz, false);
+                }
+            }
+        }
+        propagateIncrease(true);
+        propagateIncrease(false);
+    }
+    
+    private void stitchCell(Chunk chunk, int x, int y, int z, Chunk neighbour, int nx, int nz, boolean sky) {
+        int level = getLight(chunk, x, y, z, sky);
+        int neighbourLevel = getLight(neighbour, nx, y, nz, sky);
+        if (level > neighbourLevel + 1 && !Blocks.isOpaque(neighbour.getBlock(nx & 15, y, nz & 15))) {
+            increaseQueue.add(pack(x, y, z, level));
+        } else if (neighbourLevel > level + 1 && !Blocks.isOpaque(chunk.getBlock(x & 15, y, z & 15))) {
+            increaseQueue.add(pack(nx, y, nz, neighbourLevel));
+        }
+    }
+    
+    private static int topSection(Chunk chunk) {
+        int top = Chunk.SECTION_COUNT - 1;
+        while (top >= 0 && chunk.getSection(top) == null) {
+            top--;
+        }
+        return top;
+    }
+    
+    private void propagateRemoval(boolean sky) {
+        while (!removeQueue.isEmpty()) {
+            long entry = removeQueue.poll();
+            int x = unpackX(entry);
+            int y = unpackY(entry);
+            int z = unpackZ(entry);
+            int level = unpackLevel(entry);
+            
+            for (int face = 0; face < Face.COUNT; face++) {
+                int nx = x + Face.OFFSET_X[face];
+                int ny = y + Face.OFFSET_Y[face];
+                int nz = z + Face.OFFSET_Z[face];
+                if (ny < 0 || ny >= Chunk.HEIGHT) {
+                    continue;
+                }
+                Chunk neighbour = chunkAt(nx, nz);
+                if (neighbour == null) {
+                    continue;
+                }
+                int neighbourLevel = getLight(neighbour, nx, ny, nz, sky);
+                if (neighbourLevel == 0) {
+                    continue;
+                }
+                
+                boolean dependent = neighbourLevel < level
+                    || (sky && face == Face.DOWN && level == MAX_LIGHT && neighbourLevel == MAX_LIGHT);
+                if (dependent) {
+                    // Свет соседа пришел отсюда - гасим и продолжаем удаление
+                    int emission = sky ? 0 : Blocks.lightEmission(neighbour.getBlock(nx & 15, ny, nz & 15));
+                    setLight(neighbour, nx, ny, nz, sky, emission);
+                    removeQueue.add(pack(nx, ny, nz, neighbourLevel));
+                    if (emission > 0) {
+                        increaseQueue.add(pack(nx, ny, nz, emission));
+                    }
+                } else {
+                    // Независимый свет заново заливает погашенную область
+                    increaseQueue.add(pack(nx, ny, nz, neighbourLevel));
+                }
+            }
+        }
+    }
+    
+    private void propagateIncrease(boolean sky) {
+        while (!increaseQueue.isEmpty()) {
+            long entry = increaseQueue.poll();
+            int x = unpackX(entry);
+            int y = unpackY(entry);
+            int z = unpackZ(entry);
+            int level = unpackLevel(entry);
+            
+            Chunk chunk = chunkAt(x, z);
+            if (chunk == null || getLight(chunk, x, y, z, sky) != level) {
+                continue; // устаревшая запись
+            }
+            
+            for (int face = 0; face < Face.COUNT; face++) {
+                int target = sky && face == Face.DOWN && level == MAX_LIGHT ? MAX_LIGHT : level - 1;
+                if (target <= 0) {
+                    continue;
+                }
+                int nx = x + Face.OFFSET_X[face];
+                int ny = y + Face.OFFSET_Y[face];
+                int nz = z + Face.OFFSET_Z[face];
+                if (ny < 0 || ny >= Chunk.HEIGHT) {
+                    continue;
+                }
+                Chunk neighbour = (nx >> 4) == (x >> 4) && (nz >> 4) == (z >> 4) ? chunk : chunkAt(nx, nz);
+                if (neighbour == null
+                        || Blocks.isOpaque(neighbour.getBlock(nx & 15, ny, nz & 15))
+                        || getLight(neighbour, nx, ny, nz, sky) >= target) {
+                    continue;
+                }
+                setLight(neighbour, nx, ny, nz, sky, target);
+                increaseQueue.add(pack(nx, ny, nz, target));
+            }
+        }
+    }
+    
+    private Chunk chunkAt(int x, int z) {
+        int rx = (x >> 4) - centerX + 1;
+        int rz = (z >> 4) - centerZ + 1;
+        if (rx < 0 || rx > 2 || rz < 0 || rz > 2) {
+            return null;
+        }
+        return region[rz * 3 + rx];
+    }
+    
+    private static int getLight(Chunk chunk, int x, int y, int z, boolean sky) {
+        ChunkSection section = chunk.getSection(y >> 4);
+        if (section == null) {
+            return sky ? MAX_LIGHT : 0;
+        }
+        NibbleArray light = sky ? section.getSkyLight() : section.getBlockLight();
+        return light.get(ChunkSection.index(x & 15, y & 15, z & 15));
+    }
+    
+    private void setLight(Chunk chunk, int x, int y, int z, boolean sky, int level) {
+        ChunkSection section = chunk.getSection(y >> 4);
+        if (section == null) {
+            // Отсутствующая секция целиком освещена небом - создаем только при отличии
+            if (level == (sky ? MAX_LIGHT : 0)) {
+                return;
+            }
+            section = chunk.getOrCreateSection(y >> 4);
+        }
+        NibbleArray light = sky ? section.getSkyLight() : section.getBlockLight();
+        int index = ChunkSection.index(x & 15, y & 15, z & 15);
+        if (light.get(index) == level) {
+            return;
+        }
+        light.set(index, level);
+        if (trackChanges) {
+            markChanged(x, y, z);
+        }
+    }
+    
+    /**
+     * Отметить секцию клетки и соседние секции, чьи грани читают свет этой клетки
+     */
+    private void markChanged(int x, int y, int z) {
+        int cx = (x >> 4) - centerX + 2;
+        int cz = (z >> 4) - centerZ + 2;
+        int sy = y >> 4;
+        markSection(cx, sy, cz);
+        int lx = x & 15;
+        int ly = y & 15;
+        int lz = z & 15;
+        if (lx == 0) markSection(cx - 1, sy, cz);
+        if (lx == 15) markSection(cx + 1, sy, cz);
+        if (ly == 0 && sy > 0) markSection(cx, sy - 1, cz);
+        if (ly == 15 && sy < Chunk.SECTION_COUNT - 1) markSection(cx, sy + 1, cz);
+        if (lz == 0) markSection(cx, sy, cz - 1);
+        if (lz == 15) markSection(cx, sy, cz + 1);
+    }
+    
+    private void markSection(int cx, int sy, int cz) {
+        int bit = (cz * CHANGED_SIDE + cx) * Chunk.SECTION_COUNT + sy;
+        changed[bit >>> 6] |= 1L << bit;
+    }
+    
+    /**
+     * Выгрузить ключи секций с изменившимся светом
+     * @param out очередь для ключей {@link ChunkPos#packSection}
+     */
+    void drainChanged(LongQueue out) {
+        for (int word = 0; word < changed.length; word++) {
+            long bits = changed[word];
+            while (bits != 0) {
+                int bit = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                int sy = bit % Chunk.SECTION_COUNT;
+                int column = bit / Chunk.SECTION_COUNT;
+                int cx = column % CHANGED_SIDE;
+                int cz = column / CHANGED_SIDE;
+                out.add(ChunkPos.packSection(centerX + cx - 2, sy, centerZ + cz - 2));
+            }
+            changed[word] = 0L;
+        }
+    }
+}
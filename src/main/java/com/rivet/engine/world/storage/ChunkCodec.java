@@ -0,0 +1,314 @@
+package com.rivet.engine.world.storage;
+
+import com.rivet.engine.world.Chunk;
+import com.rivet.engine.world.ChunkSection;
+import com.rivet.engine.world.NibbleArray;
+import com.rivet.engine.world.PalettedContainer;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Сериализация чанка в сжатый Deflate формат региона
+ *
+ * Формат (до сжатия, big-endian):
+ * <pre>
+ * версия (1) | chunkX (4) | chunkZ (4) | свет рассчитан (1) | маска секций (2)
+ * секция: флаги (1) | блоки | небесный свет | свет блоков
+ *   блоки: один id (2) либо размер палитры (2), палитра (2 * n), индексы (1 или 2 на блок)
+ *   свет: одно значение (1) либо 2048 байт по два значения в байте
+ * </pre>
+ * Буферы переиспользуются между вызовами; экземпляр не потокобезопасен.
+ * Секции читаются без блокировок: одновременная запись потоком-писателем
+ * дает устаревший, но целостный снимок, а чанк снова помечается грязным.
+ */
+public final class ChunkCodec {
+    
+    public static final int VERSION = 1;
+    
+    private static final int FLAG_SINGLE_BLOCK = 1;
+    private static final int FLAG_UNIFORM_SKY = 2;
+    private static final int FLAG_UNIFORM_BLOCK_LIGHT = 4;
+    
+    private final Deflater deflater;
+    private final Inflater inflater = new Inflater();
+    
+    private byte[] raw = new byte[16 * 1024];
+    private int length;
+    private int position;
+    private byte[] compressed = new byte[16 * 1024];
+    
+    // Палитра секции: id -> индекс + 1 (0 - нет в палитре)
+    private final int[] paletteIndex = new int[1 << PalettedContainer.DIRECT_BITS];
+    private final int[] palette = new int[ChunkSection.VOLUME];
+    private final int[] ids = new int[ChunkSection.VOLUME];
+    
+    /**
+     * @param level уровень сжатия Deflate (1 - быстрее всего)
+     */
+    public ChunkCodec(int level) {
+        this.deflater = new Deflater(level);
+    }
+    
+    public ChunkCodec() {
+        this(Deflater.BEST_SPEED);
+    }
+    
+    /**
+     * Сериализовать и сжать чанк
+     * @param chunk чанк
+     * @return длина сжатых данных в {@link #getCompressed()}
+     */
+    public int encode(Chunk chunk) {
+        length = 0;
+        writeByte(VERSION);
+        writeInt(chunk.getChunkX());
+        writeInt(chunk.getChunkZ());
+        writeByte(chunk.isLightInitialized() ? 1 : 0);
+        
+        int mask = 0;
+        for (int y = 0; y < Chunk.SECTION_COUNT; y++) {
+            if (chunk.getSection(y) != null) {
+                mask |= 1 << y;
+            }
+        }
+        writeShort(mask);
+        for (int y = 0; y < Chunk.SECTION_COUNT; y++) {
+            ChunkSection section = chunk.getSection(y);
+            if (section != null) {
+                writeSection(section);
+            }
+        }
+        return compress();
+    }
+    
+    private void writeSection(ChunkSection section) {
+        PalettedContainer blocks = section.getBlocks();
+        NibbleArray sky = section.getSkyLight();
+        NibbleArray light = section.getBlockLight();
+        int flags = (blocks.isSingleValue() ? FLAG_SINGLE_BLOCK : 0)
+            | (sky.isUniform() ? FLAG_UNIFORM_SKY : 0)
+            | (light.isUniform() ? FLAG_UNIFORM_BLOCK_LIGHT : 0);
+        writeByte(flags);
+        
+        if ((flags & FLAG_SINGLE_BLOCK) != 0) {
+            writeShort(blocks.get(0));
+        } else {
+            writeBlocks(blocks);
+        }
+        writeLight(sky, (flags & FLAG_UNIFORM_SKY) != 0);
+        writeLight(light, (flags & FLAG_UNIFORM_BLOCK_LIGHT) != 0);
+    }
+    
+    private void writeBlocks(PalettedContainer blocks) {
+        int size = 0;
+        for (int i = 0; i < ChunkSection.VOLUME; i++) {
+            int id = blocks.get(i);
+            ids[i] = id;
+            if (paletteIndex[id] == 0) {
+                palette[size++] = id;
+                paletteIndex[id] = size;
+            }
+        }
+        writeShort(size);
+        for (int i = 0; i < size; i++) {
+            writeShort(palette[i]);
+        }
+        ensure(ChunkSection.VOLUME * 2);
+        if (size <= 256) {
+            for (int i = 0; i < ChunkSection.VOLUME; i++) {
+                raw[length++] = (byte) (paletteIndex[ids[i]] - 1);
+            }
+        } else {
+            for (int i = 0; i < ChunkSection.VOLUME; i++) {
+                int index = paletteIndex[ids[i]] - 1;
+                raw[length++] = (byte) (index >>> 8);
+                raw[length++] = (byte) index;
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            paletteIndex[palette[i]] = 0;
+        }
+    }
+    
+    private void writeLight(NibbleArray light, boolean uniform) {
+        if (uniform) {
+            writeByte(light.get(0));
+            return;
+        }
+        ensure(NibbleArray.SIZE / 2);
+        for (int i = 0; i < NibbleArray.SIZE; i += 2) {
+            raw[length++] = (byte) (light.get(i) | light.get(i + 1) << 4);
+        }
+    }
+    
+    private int compress() {
+        deflater.reset();
+        deflater.setInput(raw, 0, length);
+        deflater.finish();
+        int size = 0;
+        while (!deflater.finished()) {
+            if (size == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            size += deflater.deflate(compressed, size, compressed.length - size);
+        }
+        return size;
+    }
+    
+    /**
+     * Распаковать и восстановить чанк
+     * @param data сжатые данные
+     * @param offset начало данных
+     * @param size длина данных
+     * @return новый чанк
+     * @throws IOException если данные повреждены
+     */
+    public Chunk decode(byte[] data, int offset, int size) throws IOException {
+        inflate(data, offset, size);
+        position = 0;
+        try {
+            int version = readByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported chunk version " + version);
+            }
+            Chunk chunk = new Chunk(readInt(), readInt());
+            boolean lightInitialized = readByte() != 0;
+            int mask = readShort();
+            for (int y = 0; y < Chunk.SECTION_COUNT; y++) {
+                if ((mask & 1 << y) != 0) {
+                    readSection(chunk.getOrCreateSection(y));
+                }
+            }
+            if (position != length) {
+                throw new IOException("Trailing bytes in chunk data");
+            }
+            chunk.setLightInitialized(lightInitialized);
+            return chunk;
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Truncated chunk data", e);
+        }
+    }
+    
+    private void readSection(ChunkSection section) throws IOException {
+        int flags = readByte();
+        if ((flags & FLAG_SINGLE_BLOCK) != 0) {
+            section.fill(readShort());
+        } else {
+            int size = readShort();
+            if (size == 0 || size > ChunkSection.VOLUME) {
+                throw new IOException("Bad palette size " + size);
+            }
+            for (int i = 0; i < size; i++) {
+                palette[i] = readShort();
+            }
+            boolean wide = size > 256;
+            checkAvailable(ChunkSection.VOLUME * (wide ? 2 : 1));
+            for (int i = 0; i < ChunkSection.VOLUME; i++) {
+                int index = wide ? (raw[position++] & 0xFF) << 8 | raw[position++] & 0xFF : raw[position++] & 0xFF;
+                if (index >= size) {
+                    throw new IOException("Palette index out of range");
+                }
+                ids[i] = palette[index];
+            }
+            section.setBlocks(ids);
+        }
+        readLight(section.getSkyLight(), (flags & FLAG_UNIFORM_SKY) != 0);
+        readLight(section.getBlockLight(), (flags & FLAG_UNIFORM_BLOCK_LIGHT) != 0);
+    }
+    
+    private void readLight(NibbleArray light, boolean uniform) {
+        if (uniform) {
+            light.fill(readByte() & 15);
+            return;
+        }
+        checkAvailable(NibbleArray.SIZE / 2);
+        light.load(raw, position);
+        position += NibbleArray.SIZE / 2;
+    }
+    
+    private void inflate(byte[] data, int offset, int size) throws IOException {
+        inflater.reset();
+        inflater.setInput(data, offset, size);
+        length = 0;
+        try {
+            while (!inflater.finished()) {
+                if (length == raw.length) {
+                    raw = Arrays.copyOf(raw, raw.length * 2);
+                }
+                int count = inflater.inflate(raw, length, raw.length - length);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated compressed chunk");
+                }
+                length += count;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt compressed chunk", e);
+        }
+    }
+    
+    private void ensure(int bytes) {
+        if (length + bytes > raw.length) {
+            raw = Arrays.copyOf(raw, Math.max(raw.length * 2, length + bytes));
+        }
+    }
+    
+    private void writeByte(int value) {
+        ensure(1);
+        raw[length++] = (byte) value;
+    }
+    
+    private void writeShort(int value) {
+        ensure(2);
+        raw[length++] = (byte) (value >>> 8);
+        raw[length++] = (byte) value;
+    }
+    
+    private void writeInt(int value) {
+        ensure(4);
+        raw[length++] = (byte) (value >>> 24);
+        raw[length++] = (byte) (value >>> 16);
+        raw[length++] = (byte) (value >>> 8);
+        raw[length++] = (byte) value;
+    }
+    
+    private int readByte() {
+        checkAvailable(1);
+        return raw[position++] & 0xFF;
+    }
+    
+    private int readShort() {
+        checkAvailable(2);
+        return (raw[position++] & 0xFF) << 8 | raw[position++] & 0xFF;
+    }
+    
+    private int readInt() {
+        checkAvailable(4);
+        return (raw[position++] & 0xFF) << 24 | (raw[position++] & 0xFF) << 16
+            | (raw[position++] & 0xFF) << 8 | raw[position++] & 0xFF;
+    }
+    
+    private void checkAvailable(int bytes) {
+        if (position + bytes > length) {
+            throw new ArrayIndexOutOfBoundsException("Chunk data ends at " + length);
+        }
+    }
+    
+    /**
+     * Сжатые данные последнего {@link #encode}
+     */
+    public byte[] getCompressed() {
+        return compressed;
+    }
+    
+    /**
+     * Освободить нативные буферы zlib
+     */
+    public void close() {
+        deflater.end();
+        inflater.end();
+    }
+}
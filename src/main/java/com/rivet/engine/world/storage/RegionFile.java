@@ -0,0 +1,384 @@
+package com.rivet.engine.world.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.zip.CRC32;
+
+/**
+ * Файл региона: 32x32 чанка в секторах по 4 КБ
+ *
+ * Первые шесть секторов - две копии заголовка по три сектора: 1024 записи
+ * (сектор << 8 | число секторов), 1024 контрольные суммы CRC32 сжатых данных,
+ * номер версии заголовка (8) и CRC32 самой копии (4). Данные чанка: длина (4),
+ * тип сжатия (1), сжатые данные; занимает до 255 секторов. Новая версия чанка
+ * всегда пишется в свободные сектора, а заголовок на диске меняется только в
+ * {@link #commit()} после fsync данных, причем копии пишутся по очереди:
+ * оборванная запись портит только одну копию, и при открытии берется целая
+ * копия с большим номером, то есть предыдущая сохраненная версия. Сектора,
+ * на которые ссылается предыдущая копия, освобождаются только после записи
+ * следующей. При открытии записи, выходящие за конец файла или
+ * пересекающиеся с другими, отбрасываются; при чтении данные с неверной
+ * длиной или суммой считаются отсутствующими. Все операции с файлом
+ * выполняются позиционными чтениями и записями FileChannel; fsync в
+ * {@link #commit()} не держит монитор файла, чтение идет параллельно.
+ */
+public final class RegionFile implements AutoCloseable {
+    
+    private static final Logger logger = LoggerFactory.getLogger(RegionFile.class);
+    
+    public static final int SIZE = 32;
+    public static final int CHUNKS = SIZE * SIZE;
+    public static final int SECTOR_BYTES = 4096;
+    public static final int HEADER_COPY_SECTORS = 3;
+    public static final int HEADER_SECTORS = HEADER_COPY_SECTORS * 2;
+    public static final int MAX_CHUNK_SECTORS = 255;
+    public static final int COMPRESSION_DEFLATE = 1;
+    
+    private static final int PAYLOAD_HEADER = 5;
+    
+    // Смещения внутри копии заголовка
+    private static final int CHECKSUMS_OFFSET = CHUNKS * 4;
+    private static final int SEQUENCE_OFFSET = CHUNKS * 8;
+    private static final int HEADER_CRC_OFFSET = SEQUENCE_OFFSET + 8;
+    private static final int HEADER_COPY_BYTES = HEADER_COPY_SECTORS * SECTOR_BYTES;
+    
+    private final Path path;
+    private final FileChannel channel;
+    private final int[] locations = new int[CHUNKS];
+    private final int[] checksums = new int[CHUNKS];
+    private final BitSet usedSectors = new BitSet();
+    private final CRC32 crc = new CRC32();
+    private final CRC32 headerCrc = new CRC32();
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_COPY_BYTES);
+    
+    // Порядок блокировок: commitLock, затем монитор файла
+    private final Object commitLock = new Object();
+    private long sequence = 0;
+    private boolean closed = false;
+    private ByteBuffer writeBuffer = ByteBuffer.allocate(SECTOR_BYTES * 4);
+    
+    // Сектора прежних версий, освобождаемые после записи заголовка
+    private final BitSet releasedSectors = new BitSet();
+    private boolean headerDirty = false;
+    private int recoveredEntries = 0;
+    
+    /**
+     * Открыть или создать файл региона
+     * @param path путь к файлу
+     * @throws IOException если файл не открывается
+     */
+    public RegionFile(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            readHeader();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+    
+    private void readHeader() throws IOException {
+        usedSectors.set(0, HEADER_SECTORS);
+        long fileSize = channel.size();
+        int copy = -1;
+        for (int i = 0; i < 2; i++) {
+            if (readHeaderCopy(i) && (copy < 0 || header.getLong(SEQUENCE_OFFSET) > sequence)) {
+                copy = i;
+                sequence = header.getLong(SEQUENCE_OFFSET);
+            }
+        }
+        if (copy < 0) {
+            // Новый файл или обе копии повреждены: все чанки считаются отсутствующими
+            if (fileSize > 0) {
+                logger.warn("Заголовок региона {} поврежден ({} байт), регион очищен", path, fileSize);
+            }
+            sequence = 0;
+            headerDirty = true;
+            return;
+        }
+        readHeaderCopy(copy);
+        
+        long fileSectors = (fileSize + SECTOR_BYTES - 1) / SECTOR_BYTES;
+        for (int i = 0; i < CHUNKS; i++) {
+            int location = header.getInt(i * 4);
+            checksums[i] = header.getInt(CHECKSUMS_OFFSET + i * 4);
+            if (location == 0) {
+                continue;
+            }
+            int sector = location >>> 8;
+            int count = location & 0xFF;
+            if (sector < HEADER_SECTORS || count == 0 || sector + count > fileSectors || isUsed(sector, count)) {
+                recoveredEntries++;
+                headerDirty = true;
+                continue;
+            }
+            locations[i] = location;
+            usedSectors.set(sector, sector + count);
+        }
+        if (recoveredEntries > 0) {
+            logger.warn("Регион {}: отброшено {} поврежденных записей", path, recoveredEntries);
+        }
+    }
+    
+    /**
+     * Прочитать копию заголовка в буфер
+     * @return true если копия прочитана полностью и ее сумма верна
+     */
+    private boolean readHeaderCopy(int copy) throws IOException {
+        header.clear();
+        if (!tryReadFully(header, (long) copy * HEADER_COPY_BYTES)) {
+            return false;
+        }
+        headerCrc.reset();
+        headerCrc.update(header.array(), 0, HEADER_CRC_OFFSET);
+        return (int) headerCrc.getValue() == header.getInt(HEADER_CRC_OFFSET);
+    }
+    
+    private boolean isUsed(int sector, int count) {
+        int next = usedSectors.nextSetBit(sector);
+        return next >= 0 && next < sector + count;
+    }
+    
+    private static int index(int localX, int localZ) {
+        return (localZ & (SIZE - 1)) * SIZE + (localX & (SIZE - 1));
+    }
+    
+    /**
+     * Проверить, есть ли чанк в регионе
+     */
+    public synchronized boolean contains(int localX, int localZ) {
+        return locations[index(localX, localZ)] != 0;
+    }
+    
+    /**
+     * Прочитать сжатые данные чанка
+     * @param localX координата X чанка в регионе (0-31)
+     * @param localZ координата Z чанка в регионе (0-31)
+     * @return сжатые данные или null если чанка нет или он поврежден
+     * @throws IOException при ошибке ввода-вывода
+     */
+    public synchronized byte[] read(int localX, int localZ) throws IOException {
+        int i = index(localX, localZ);
+        int location = locations[i];
+        if (location == 0) {
+            return null;
+        }
+        int sector = location >>> 8;
+        int count = location & 0xFF;
+        
+        ByteBuffer payloadHeader = ByteBuffer.allocate(PAYLOAD_HEADER);
+        if (!tryReadFully(payloadHeader, (long) sector * SECTOR_BYTES)) {
+            return corrupt(localX, localZ, "обрезан заголовок данных");
+        }
+        int length = payloadHeader.getInt(0) - 1;
+        int compression = payloadHeader.get(4);
+        if (length < 0 || length + PAYLOAD_HEADER > count * SECTOR_BYTES || compression != COMPRESSION_DEFLATE) {
+            return corrupt(localX, localZ, "неверная длина или тип сжатия");
+        }
+        
+        byte[] data = new byte[length];
+        if (!tryReadFully(ByteBuffer.wrap(data), (long) sector * SECTOR_BYTES + PAYLOAD_HEADER)) {
+            return corrupt(localX, localZ, "обрезаны данные");
+        }
+        crc.reset();
+        crc.update(data, 0, length);
+        if ((int) crc.getValue() != checksums[i]) {
+            return corrupt(localX, localZ, "неверная контрольная сумма");
+        }
+        return data;
+    }
+    
+    private byte[] corrupt(int localX, int localZ, String reason) {
+        logger.warn("Чанк [{}, {}] региона {} поврежден: {}", localX, localZ, path, reason);
+        return null;
+    }
+    
+    /**
+     * Записать сжатые данные чанка в свободные сектора
+     * Заголовок на диске обновляется в {@link #commit()}.
+     * @param localX координата X чанка в регионе (0-31)
+     * @param localZ координата Z чанка в регионе (0-31)
+     * @param data сжатые данные
+     * @param length длина данных
+     * @throws IOException если данные слишком велики или запись не удалась
+     */
+    public synchronized void write(int localX, int localZ, byte[] data, int length) throws IOException {
+        int total = length + PAYLOAD_HEADER;
+        int count = (total + SECTOR_BYTES - 1) / SECTOR_BYTES;
+        if (count > MAX_CHUNK_SECTORS) {
+            throw new IOException("Chunk too large for region: " + total + " bytes");
+        }
+        
+        int sector = allocate(count);
+        int bytes = count * SECTOR_BYTES;
+        if (writeBuffer.capacity() < bytes) {
+            writeBuffer = ByteBuffer.allocate(Math.max(bytes, writeBuffer.capacity() * 2));
+        }
+        writeBuffer.clear();
+        writeBuffer.putInt(length + 1).put((byte) COMPRESSION_DEFLATE).put(data, 0, length);
+        // Дополнение до сектора нулями, чтобы файл оставался выровненным
+        while (writeBuffer.position() < bytes) {
+            writeBuffer.put((byte) 0);
+        }
+        writeBuffer.flip();
+        writeFully(writeBuffer, (long) sector * SECTOR_BYTES);
+        
+        int i = index(localX, localZ);
+        int previous = locations[i];
+        if (previous != 0) {
+            releasedSectors.set(previous >>> 8, (previous >>> 8) + (previous & 0xFF));
+        }
+        crc.reset();
+        crc.update(data, 0, length);
+        locations[i] = sector << 8 | count;
+        checksums[i] = (int) crc.getValue();
+        usedSectors.set(sector, sector + count);
+        headerDirty = true;
+    }
+    
+    /**
+     * Первый подходящий свободный диапазон секторов (старые версии заняты до commit)
+     */
+    private int allocate(int count) {
+        int start = usedSectors.nextClearBit(HEADER_SECTORS);
+        while (true) {
+            int end = usedSectors.nextSetBit(start);
+            if (end < 0 || end - start >= count) {
+                return start;
+            }
+            start = usedSectors.nextClearBit(end);
+        }
+    }
+    
+    /**
+     * Сделать записанные данные постоянными: fsync данных, запись очередной копии
+     * заголовка, fsync заголовка
+     * Заголовок снимается под монитором файла, fsync выполняется без него:
+     * чтение и запись чанков в это время не ждут. Записи после снимка войдут
+     * в следующий commit.
+     * @throws IOException при ошибке ввода-вывода
+     */
+    public void commit() throws IOException {
+        synchronized (commitLock) {
+            BitSet released;
+            long offset;
+            synchronized (this) {
+                if (!headerDirty || closed) {
+                    return;
+                }
+                offset = fillHeader();
+                released = (BitSet) releasedSectors.clone();
+                releasedSectors.clear();
+                headerDirty = false;
+            }
+            try {
+                // Данные, на которые ссылается снимок, записаны до него
+                channel.force(false);
+                writeFully(header, offset);
+                channel.force(false);
+            } catch (IOException e) {
+                // Повтор пишет ту же копию: целой остается последняя сохраненная
+                synchronized (this) {
+                    sequence--;
+                    releasedSectors.or(released);
+                    headerDirty = true;
+                }
+                throw e;
+            }
+            synchronized (this) {
+                usedSectors.andNot(released);
+            }
+        }
+    }
+    
+    /**
+     * Заполнить буфер следующей копией заголовка
+     * @return смещение копии в файле
+     */
+    private long fillHeader() {
+        sequence++;
+        header.clear();
+        for (int i = 0; i < CHUNKS; i++) {
+            header.putInt(i * 4, locations[i]);
+            header.putInt(CHECKSUMS_OFFSET + i * 4, checksums[i]);
+        }
+        header.putLong(SEQUENCE_OFFSET, sequence);
+        headerCrc.reset();
+        headerCrc.update(header.array(), 0, HEADER_CRC_OFFSET);
+        header.putInt(HEADER_CRC_OFFSET, (int) headerCrc.getValue());
+        return (sequence & 1) * HEADER_COPY_BYTES;
+    }
+    
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        if (!tryReadFully(buffer, position)) {
+            throw new IOException("Unexpected end of region file " + path);
+        }
+    }
+    
+    private boolean tryReadFully(ByteBuffer buffer, long position) throws IOException {
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, offset);
+            if (read < 0) {
+                return false;
+            }
+            offset += read;
+        }
+        return true;
+    }
+    
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            offset += channel.write(buffer, offset);
+        }
+    }
+    
+    /**
+     * Проверить, есть ли записи, не сохраненные {@link #commit()}
+     */
+    public synchronized boolean isDirty() {
+        return headerDirty && !closed;
+    }
+    
+    /**
+     * Количество записей, отброшенных при открытии
+     */
+    public int getRecoveredEntries() {
+        return recoveredEntries;
+    }
+    
+    /**
+     * Размер файла в секторах, включая заголовок
+     */
+    public synchronized int getSectorCount() {
+        return usedSectors.length();
+    }
+    
+    public Path getPath() {
+        return path;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        synchronized (commitLock) {
+            try {
+                commit();
+            } finally {
+                synchronized (this) {
+                    closed = true;
+                    channel.close();
+                }
+            }
+        }
+    }
+}
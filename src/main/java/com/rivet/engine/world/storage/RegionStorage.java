@@ -0,0 +1,180 @@
+package com.rivet.engine.world.storage;
+
+import com.rivet.engine.world.Chunk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Каталог файлов регионов с кэшем открытых файлов
+ *
+ * Чанк [x, z] хранится в файле r.(x >> 5).(z >> 5).rvr. Открыто не больше
+ * {@link #MAX_OPEN} файлов, дольше всех не использованные закрываются.
+ * Сжатие выполняется вне блокировки, операции с файлами - под общей
+ * блокировкой каталога, чтобы закрытие файла не пересекалось с чтением;
+ * fsync в {@link #commit()} выполняется вне нее.
+ */
+public final class RegionStorage implements AutoCloseable {
+    
+    private static final Logger logger = LoggerFactory.getLogger(RegionStorage.class);
+    
+    public static final int MAX_OPEN = 32;
+    
+    private final Path directory;
+    private final Map<Long, RegionFile> open = new LinkedHashMap<>(MAX_OPEN * 2, 0.75f, true);
+    
+    // Метрики
+    private final AtomicLong chunksRead = new AtomicLong();
+    private final AtomicLong corruptChunks = new AtomicLong();
+    private volatile long chunksWritten = 0;
+    private volatile long bytesWritten = 0;
+    
+    /**
+     * @param directory каталог регионов (создается при необходимости)
+     * @throws IOException если каталог не создается
+     */
+    public RegionStorage(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+    }
+    
+    /**
+     * Прочитать чанк
+     * @param chunkX координата X чанка
+     * @param chunkZ координата Z чанка
+     * @param codec кодек текущего потока
+     * @return чанк или null если его нет или он поврежден
+     */
+    public Chunk read(int chunkX, int chunkZ, ChunkCodec codec) {
+        byte[] data;
+        synchronized (this) {
+            try {
+                RegionFile region = region(chunkX, chunkZ, false);
+                data = region == null ? null : region.read(chunkX & 31, chunkZ & 31);
+            } catch (IOException e) {
+                logger.error("Ошибка чтения чанка [{}, {}]", chunkX, chunkZ, e);
+                return null;
+            }
+        }
+        if (data == null) {
+            return null;
+        }
+        try {
+            Chunk chunk = codec.decode(data, 0, data.length);
+            if (chunk.getChunkX() != chunkX || chunk.getChunkZ() != chunkZ) {
+                throw new IOException("Chunk position mismatch: [" + chunk.getChunkX() + ", " + chunk.getChunkZ() + "]");
+            }
+            chunksRead.incrementAndGet();
+            return chunk;
+        } catch (IOException e) {
+            corruptChunks.incrementAndGet();
+            logger.warn("Чанк [{}, {}] поврежден и будет создан заново: {}", chunkX, chunkZ, e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Сериализовать и записать чанк (до {@link #commit()} не гарантируется после сбоя)
+     * @param chunk чанк
+     * @param codec кодек текущего потока
+     * @throws IOException если запись не удалась
+     */
+    public void write(Chunk chunk, ChunkCodec codec) throws IOException {
+        int length = codec.encode(chunk);
+        synchronized (this) {
+            region(chunk.getChunkX(), chunk.getChunkZ(), true)
+                .write(chunk.getChunkX() & 31, chunk.getChunkZ() & 31, codec.getCompressed(), length);
+        }
+        chunksWritten++;
+        bytesWritten += length;
+    }
+    
+    /**
+     * Сделать все записи постоянными
+     * Список измененных файлов снимается под блокировкой каталога, fsync идет
+     * вне ее, чтобы не задерживать чтение. Файл, закрытый за это время,
+     * уже сохранен при закрытии.
+     * @throws IOException если fsync или запись заголовка не удались
+     */
+    public void commit() throws IOException {
+        List<RegionFile> dirty = new ArrayList<>();
+        synchronized (this) {
+            for (RegionFile region : open.values()) {
+                if (region.isDirty()) {
+                    dirty.add(region);
+                }
+            }
+        }
+        for (RegionFile region : dirty) {
+            region.commit();
+        }
+    }
+    
+    private RegionFile region(int chunkX, int chunkZ, boolean create) throws IOException {
+        int regionX = chunkX >> 5;
+        int regionZ = chunkZ >> 5;
+        long key = (long) regionX << 32 | (regionZ & 0xFFFFFFFFL);
+        RegionFile region = open.get(key);
+        if (region != null) {
+            return region;
+        }
+        Path path = directory.resolve("r." + regionX + "." + regionZ + ".rvr");
+        if (!create && !Files.exists(path)) {
+            return null;
+        }
+        if (open.size() >= MAX_OPEN) {
+            Iterator<RegionFile> eldest = open.values().iterator();
+            RegionFile evicted = eldest.next();
+            eldest.remove();
+            evicted.close();
+        }
+        region = new RegionFile(path);
+        open.put(key, region);
+        return region;
+    }
+    
+    public Path getDirectory() {
+        return directory;
+    }
+    
+    public long getChunksRead() {
+        return chunksRead.get();
+    }
+    
+    public long getChunksWritten() {
+        return chunksWritten;
+    }
+    
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+    
+    public long getCorruptChunks() {
+        return corruptChunks.get();
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        IOException failure = null;
+        for (RegionFile region : open.values()) {
+            try {
+                region.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        open.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.rivet.engine.world.storage;
+
+import com.rivet.engine.util.LongObjectHashMap;
+import com.rivet.engine.world.BlockChangeListener;
+import com.rivet.engine.world.Chunk;
+import com.rivet.engine.world.ChunkListener;
+import com.rivet.engine.world.ChunkPos;
+import com.rivet.engine.world.World;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сохранение измененных чанков в файлы регионов и загрузка сохраненных
+ *
+ * Поток-писатель только отмечает грязные чанки: изменение блока помечает
+ * чанк, выгрузка грязного чанка переносит его в список ожидающих записи. Раз
+ * в интервал автосохранения накопленные чанки одним пакетом уходят в поток
+ * сохранения, который сериализует, сжимает, пишет и делает fsync. Если
+ * предыдущий пакет еще пишется, автосохранение пропускается и чанки копятся
+ * дальше (повторные изменения одного чанка сливаются) - тик никогда не ждет
+ * диска. Загрузка сначала смотрит в ожидающие записи, поэтому чанк,
+ * выгруженный и сразу загруженный снова, не читается с диска устаревшим.
+ */
+public class WorldStorage implements BlockChangeListener, ChunkListener {
+    
+    private static final Logger logger = LoggerFactory.getLogger(WorldStorage.class);
+    
+    private static final ThreadLocal<ChunkCodec> CODECS = ThreadLocal.withInitial(ChunkCodec::new);
+    
+    private final World world;
+    private final RegionStorage regions;
+    private final long intervalNanos;
+    private final ExecutorService saver;
+    
+    // Поток-писатель: загруженные грязные чанки и время последнего автосохранения
+    private final LongObjectHashMap<Chunk> dirty = new LongObjectHashMap<>(64);
+    private long lastSave = System.nanoTime();
+    private Future<?> saving;
+    
+    // Выгруженные чанки, еще не записанные на диск (читаются потоками загрузки)
+    private final ConcurrentHashMap<Long, Chunk> unsaved = new ConcurrentHashMap<>();
+    
+    // Метрики
+    private volatile long batchCount = 0;
+    private volatile long skippedSaves = 0;
+    private volatile long lastBatchChunks = 0;
+    private volatile long lastBatchNanos = 0;
+    
+    /**
+     * @param world мир
+     * @param directory каталог регионов
+     * @param intervalSeconds интервал автосохранения
+     * @throws IOException если каталог не создается
+     */
+    public WorldStorage(World world, Path directory, float intervalSeconds) throws IOException {
+        this.world = world;
+        this.regions = new RegionStorage(directory);
+        this.intervalNanos = (long) (intervalSeconds * 1.0e9);
+        this.saver = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ChunkSaver");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+        logger.info("WorldStorage: {}, автосохранение каждые {} с", directory, intervalSeconds);
+    }
+    
+    /**
+     * Загрузить сохраненный чанк (потоки генерации)
+     * @param chunkX координата X чанка
+     * @param chunkZ координата Z чанка
+     * @return чанк или null если он не сохранялся или поврежден
+     */
+    public Chunk load(int chunkX, int chunkZ) {
+        Chunk chunk = unsaved.get(ChunkPos.pack(chunkX, chunkZ));
+        if (chunk != null) {
+            return chunk;
+        }
+        return regions.read(chunkX, chunkZ, CODECS.get());
+    }
+    
+    @Override
+    public void onBlockChanged(int x, int y, int z, int oldId, int newId) {
+        int chunkX = x >> 4;
+        int chunkZ = z >> 4;
+        long key = ChunkPos.pack(chunkX, chunkZ);
+        if (!dirty.containsKey(key)) {
+            Chunk chunk = world.getChunk(chunkX, chunkZ);
+            if (chunk != null) {
+                dirty.put(key, chunk);
+            }
+        }
+    }
+    
+    @Override
+    public void onChunkLoaded(Chunk chunk) {
+        // Сгенерированный чанк воспроизводится по зерну: сохраняются только измененные
+    }
+    
+    @Override
+    public void onChunkUnloaded(Chunk chunk) {
+        Chunk removed = dirty.remove(chunk.getKey());
+        if (removed != null) {
+            unsaved.put(chunk.getKey(), removed);
+        }
+    }
+    
+    /**
+     * Запустить автосохранение, если подошел интервал (поток-писатель)
+     * @return true если пакет отправлен в поток сохранения
+     */
+    public boolean update() {
+        long now = System.nanoTime();
+        if (now - lastSave < intervalNanos) {
+            return false;
+        }
+        if (saving != null && !saving.isDone()) {
+            skippedSaves++;
+            return false;
+        }
+        lastSave = now;
+        Chunk[] batch = collectBatch();
+        if (batch.length == 0) {
+            return false;
+        }
+        saving = saver.submit(() -> saveBatch(batch));
+        return true;
+    }
+    
+    private Chunk[] collectBatch() {
+        Chunk[] batch = new Chunk[dirty.size() + unsaved.size()];
+        int[] count = new int[1];
+        dirty.forEach((key, chunk) -> batch[count[0]++] = chunk);
+        dirty.clear();
+        for (Chunk chunk : unsaved.values()) {
+            if (count[0] == batch.length) {
+                break; // выгружен после подсчета - попадет в следующий пакет
+            }
+            batch[count[0]++] = chunk;
+        }
+        return count[0] == batch.length ? batch : Arrays.copyOf(batch, count[0]);
+    }
+    
+    /**
+     * Записать пакет и сделать его постоянным (поток сохранения)
+     */
+    private void saveBatch(Chunk[] batch) {
+        long start = System.nanoTime();
+        ChunkCodec codec = CODECS.get();
+        int saved = 0;
+        for (Chunk chunk : batch) {
+            try {
+                regions.write(chunk, codec);
+                saved++;
+            } catch (IOException e) {
+                logger.error("Ошибка сохранения чанка [{}, {}]", chunk.getChunkX(), chunk.getChunkZ(), e);
+            }
+        }
+        try {
+            regions.commit();
+        } catch (IOException e) {
+            logger.error("Ошибка фиксации регионов", e);
+        }
+        // Убираются только записанные версии: чанк мог снова выгрузиться другим объектом
+        for (Chunk chunk : batch) {
+            unsaved.remove(chunk.getKey(), chunk);
+        }
+        lastBatchNanos = System.nanoTime() - start;
+        lastBatchChunks = saved;
+        batchCount++;
+    }
+    
+    /**
+     * Синхронно сохранить все грязные чанки (поток-писатель, при выходе)
+     */
+    public void flush() {
+        waitForSave();
+        Chunk[] batch = collectBatch();
+        if (batch.length > 0) {
+            saving = saver.submit(() -> saveBatch(batch));
+            waitForSave();
+        }
+        lastSave = System.nanoTime();
+    }
+    
+    private void waitForSave() {
+        if (saving == null) {
+            return;
+        }
+        try {
+            saving.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.error("Ошибка автосохранения", e.getCause());
+        }
+        saving = null;
+    }
+    
+    /**
+     * Сохранить все и закрыть файлы
+     */
+    public void shutdown() {
+        flush();
+        saver.shutdown();
+        try {
+            saver.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            regions.close();
+        } catch (IOException e) {
+            logger.error("Ошибка закрытия регионов", e);
+        }
+        logger.info("Сохранение мира: {} чанков записано, {} KB, {} чанков прочитано, {} повреждено",
+            regions.getChunksWritten(), regions.getBytesWritten() / 1024,
+            regions.getChunksRead(), regions.getCorruptChunks());
+    }
+    
+    /**
+     * Количество чанков, ожидающих сохранения
+     */
+    public int getDirtyCount() {
+        return dirty.size() + unsaved.size();
+    }
+    
+    public RegionStorage getRegions() {
+        return regions;
+    }
+    
+    public long getBatchCount() {
+        return batchCount;
+    }
+    
+    /**
+     * Автосохранения, пропущенные из-за незавершенного предыдущего пакета
+     */
+    public long getSkippedSaves() {
+        return skippedSaves;
+    }
+    
+    public long getLastBatchChunks() {
+        return lastBatchChunks;
+    }
+    
+    public long getLastBatchNanos() {
+        return lastBatchNanos;
+    }
+}
@@ -0,0 +1,29 @@
+package com.rivet.engine.world.tick;
+
+/**
+ * Поведение блока при тиках
+ * Вызывается в рабочих потоках системы тиков (см. {@link TickContext})
+ */
+public interface BlockTickHandler {
+    
+    /**
+     * Случайный тик (только для блоков с {@link com.rivet.engine.world.Blocks#ticksRandomly(int)})
+     * @param context доступ к миру
+     * @param x мировая координата X
+     * @param y мировая координата Y
+     * @param z мировая координата Z
+     */
+    default void randomTick(TickContext context, int x, int y, int z) {
+    }
+    
+    /**
+     * Запланированный тик
+     * Вызывается для блока, который находится в позиции к моменту тика.
+     * @param context доступ к миру
+     * @param x мировая координата X
+     * @param y мировая координата Y
+     * @param z мировая координата Z
+     */
+    default void scheduledTick(TickContext context, int x, int y, int z) {
+    }
+}
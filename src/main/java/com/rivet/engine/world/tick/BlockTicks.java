@@ -0,0 +1,349 @@
+package com.rivet.engine.world.tick;
+
+import com.rivet.engine.util.LongObjectHashMap;
+import com.rivet.engine.util.LongQueue;
+import com.rivet.engine.world.BlockChangeListener;
+import com.rivet.engine.world.Blocks;
+import com.rivet.engine.world.Chunk;
+import com.rivet.engine.world.ChunkListener;
+import com.rivet.engine.world.ChunkPos;
+import com.rivet.engine.world.ChunkSection;
+import com.rivet.engine.world.World;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Запланированные и случайные тики блоков
+ *
+ * Учитываются только активные секции: с запланированными тиками или с
+ * блоками, получающими случайные тики, поэтому стоимость тика зависит от
+ * числа активных блоков, а не загруженных. Секции группируются в регионы
+ * 4x4 чанка; регионы обрабатываются в 9 фаз по остатку координат региона
+ * по модулю 3, и регионы одной фазы параллельно читают и меняют мир без
+ * блокировок. Изменения в чужих регионах, новые тики там же и оповещение
+ * слушателей мира выполняются при слиянии в потоке-писателе в порядке
+ * фаз и ключей регионов, а случайные числа зависят только от зерна мира,
+ * тика и региона - результат не зависит от числа рабочих потоков.
+ * Методы слушателей, {@link #scheduleTick} и {@link #update()} вызываются
+ * только из потока-писателя мира.
+ */
+public class BlockTicks implements BlockChangeListener, ChunkListener {
+    
+    private static final Logger logger = LoggerFactory.getLogger(BlockTicks.class);
+    
+    private static final int PHASES = 9;
+    
+    // Задержка тика блока под измененным блоком
+    private static final int NEIGHBOR_TICK_DELAY = 10;
+    
+    private final World world;
+    private final long seed;
+    private final int randomTicksPerSection;
+    private final ForkJoinPool pool;
+    private final BlockTickHandler[] handlers = new BlockTickHandler[Blocks.count()];
+    private final LongObjectHashMap<TickRegion> regions = new LongObjectHashMap<>(64);
+    private final TickRegion[][] phases = new TickRegion[PHASES][];
+    private final int[] phaseCounts = new int[PHASES];
+    private final BatchTask batch = new BatchTask();
+    private boolean regionsChanged = false;
+    private long tick = 0;
+    
+    // Метрики
+    private volatile long lastUpdateNanos = 0;
+    private volatile int lastScheduledTicks = 0;
+    private volatile int lastRandomTicks = 0;
+    private volatile int activeSections = 0;
+    
+    /**
+     * Фазы тика: регионы фазы параллельно, фазы последовательно
+     */
+    private final class BatchTask extends RecursiveAction {
+        @Override
+        protected void compute() {
+            for (int p = 0; p < PHASES; p++) {
+                TickRegion[] phase = phases[p];
+                int count = phaseCounts[p];
+                if (count == 0) {
+                    continue;
+                }
+                for (int i = 1; i < count; i++) {
+                    phase[i].fork();
+                }
+                phase[0].invoke();
+                for (int i = count - 1; i >= 1; i--) {
+                    phase[i].join();
+                }
+            }
+        }
+    }
+    
+    /**
+     * @param world мир
+     * @param seed зерно мира (случайные тики)
+     * @param threads количество рабочих потоков
+     * @param randomTicksPerSection случайных тиков на активную секцию за тик
+     */
+    public BlockTicks(World world, long seed, int threads, int randomTicksPerSection) {
+        this.world = world;
+        this.seed = seed;
+        this.randomTicksPerSection = randomTicksPerSection;
+        for (int i = 0; i < PHASES; i++) {
+            phases[i] = new TickRegion[8];
+        }
+        
+        AtomicInteger counter = new AtomicInteger();
+        this.pool = new ForkJoinPool(threads, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("BlockTicks-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+        
+        logger.info("BlockTicks: {} рабочих потоков, {} случайных тиков на секцию", threads, randomTicksPerSection);
+    }
+    
+    /**
+     * Задать поведение блока (до первого тика)
+     * @param id идентификатор состояния
+     * @param handler обработчик
+     */
+    public void register(int id, BlockTickHandler handler) {
+        handlers[id] = handler;
+    }
+    
+    /**
+     * Запланировать тик блока
+     * Повторное планирование блока с ожидающим тиком игнорируется.
+     * @param x мировая координата X
+     * @param y мировая координата Y
+     * @param z мировая координата Z
+     * @param delay задержка в тиках (не меньше 1)
+     */
+    public void scheduleTick(int x, int y, int z, int delay) {
+        scheduleAt(x, y, z, tick + Math.max(1, delay));
+    }
+    
+    private void scheduleAt(int x, int y, int z, long target) {
+        if (y < 0 || y >= Chunk.HEIGHT || !world.isChunkLoaded(x >> 4, z >> 4)) {
+            return;
+        }
+        region(x >> 4, z >> 4).schedule(x, y, z, target);
+    }
+    
+    private TickRegion region(int chunkX, int chunkZ) {
+        int regionX = chunkX >> TickRegion.SHIFT;
+        int regionZ = chunkZ >> TickRegion.SHIFT;
+        long key = ChunkPos.pack(regionX, regionZ);
+        TickRegion region = regions.get(key);
+        if (region == null) {
+            region = new TickRegion(regionX, regionZ, world, handlers);
+            regions.put(key, region);
+            regionsChanged = true;
+        }
+        return region;
+    }
+    
+    @Override
+    public void onBlockChanged(int x, int y, int z, int oldId, int newId) {
+        if (Blocks.ticksRandomly(newId)) {
+            region(x >> 4, z >> 4).section(x >> 4, y >> 4, z >> 4);
+        }
+        // Блок под измененным реагирует через запланированный тик
+        int below = world.getBlock(x, y - 1, z);
+        if (below < handlers.length && handlers[below] != null) {
+            scheduleTick(x, y - 1, z, NEIGHBOR_TICK_DELAY);
+        }
+    }
+    
+    @Override
+    public void onChunkLoaded(Chunk chunk) {
+        for (int sectionY = 0; sectionY < Chunk.SECTION_COUNT; sectionY++) {
+            ChunkSection section = chunk.getSection(sectionY);
+            if (section != null && section.getRandomTickCount() > 0) {
+                region(chunk.getChunkX(), chunk.getChunkZ()).section(chunk.getChunkX(), sectionY, chunk.getChunkZ());
+            }
+        }
+    }
+    
+    @Override
+    public void onChunkUnloaded(Chunk chunk) {
+        long key = ChunkPos.pack(chunk.getChunkX() >> TickRegion.SHIFT, chunk.getChunkZ() >> TickRegion.SHIFT);
+        TickRegion region = regions.get(key);
+        if (region != null && region.removeChunk(chunk.getChunkX(), chunk.getChunkZ())) {
+            regions.remove(key);
+            regionsChanged = true;
+        }
+    }
+    
+    /**
+     * Выполнить один тик
+     */
+    public void update() {
+        long start = System.nanoTime();
+        tick++;
+        if (regions.isEmpty()) {
+            return;
+        }
+        if (regionsChanged) {
+            rebuildPhases();
+        }
+        
+        long tickSeed = TickRegion.mix(seed + tick * 0x9E3779B97F4A7C15L);
+        for (int p = 0; p < PHASES; p++) {
+            for (int i = 0; i < phaseCounts[p]; i++) {
+                TickRegion region = phases[p][i];
+                region.begin(tick, TickRegion.mix(tickSeed ^ region.key), randomTicksPerSection);
+            }
+        }
+        batch.reinitialize();
+        pool.invoke(batch);
+        merge();
+        lastUpdateNanos = System.nanoTime() - start;
+    }
+    
+    /**
+     * Разложить регионы по фазам в порядке ключей
+     */
+    private void rebuildPhases() {
+        for (int p = 0; p < PHASES; p++) {
+            phaseCounts[p] = 0;
+        }
+        regions.forEach((key, region) -> {
+            int p = Math.floorMod(region.regionX, 3) * 3 + Math.floorMod(region.regionZ, 3);
+            TickRegion[] phase = phases[p];
+            if (phaseCounts[p] == phase.length) {
+                phase = Arrays.copyOf(phase, phase.length * 2);
+                phases[p] = phase;
+            }
+            // Вставка с сохранением порядка ключей: порядок слияния не зависит от таблицы
+            int i = phaseCounts[p]++;
+            while (i > 0 && phase[i - 1].key > region.key) {
+                phase[i] = phase[i - 1];
+                i--;
+            }
+            phase[i] = region;
+        });
+        for (int p = 0; p < PHASES; p++) {
+            Arrays.fill(phases[p], phaseCounts[p], phases[p].length, null);
+        }
+        regionsChanged = false;
+    }
+    
+    /**
+     * Слияние результатов регионов в потоке-писателе
+     */
+    private void merge() {
+        // Изменения внутри регионов уже в мире - слушатели узнают о них сейчас
+        for (int p = 0; p < PHASES; p++) {
+            for (int i = 0; i < phaseCounts[p]; i++) {
+                TickRegion region = phases[p][i];
+                LongQueue positions = region.changedPositions;
+                for (int j = 0; j < positions.size(); j++) {
+                    long position = positions.get(j);
+                    long ids = region.changedIds.get(j);
+                    world.fireBlockChanged(ChunkPos.sectionX(position), ChunkPos.sectionY(position),
+                        ChunkPos.sectionZ(position), (int) (ids >>> 32), (int) ids);
+                }
+            }
+        }
+        
+        // Отложенные изменения и тики в чужих регионах
+        for (int p = 0; p < PHASES; p++) {
+            for (int i = 0; i < phaseCounts[p]; i++) {
+                TickRegion region = phases[p][i];
+                LongQueue positions = region.deferredPositions;
+                for (int j = 0; j < positions.size(); j++) {
+                    long position = positions.get(j);
+                    long op = region.deferredOps.get(j);
+                    int x = ChunkPos.sectionX(position);
+                    int y = ChunkPos.sectionY(position);
+                    int z = ChunkPos.sectionZ(position);
+                    if ((op & TickRegion.SCHEDULE) != 0) {
+                        scheduleAt(x, y, z, op & ~TickRegion.SCHEDULE);
+                    } else {
+                        world.setBlock(x, y, z, (int) op);
+                    }
+                }
+            }
+        }
+        
+        int scheduled = 0;
+        int random = 0;
+        int sections = 0;
+        for (int p = 0; p < PHASES; p++) {
+            for (int i = 0; i < phaseCounts[p]; i++) {
+                TickRegion region = phases[p][i];
+                region.clearLogs();
+                scheduled += region.executedScheduled;
+                random += region.executedRandom;
+                if (region.removeInactive()) {
+                    regions.remove(region.key);
+                    regionsChanged = true;
+                }
+                sections += region.getSectionCount();
+            }
+        }
+        lastScheduledTicks = scheduled;
+        lastRandomTicks = random;
+        activeSections = sections;
+    }
+    
+    /**
+     * Получить номер последнего тика
+     * @return номер тика
+     */
+    public long getTick() {
+        return tick;
+    }
+    
+    /**
+     * Получить количество запланированных тиков во всех регионах
+     * @return количество тиков
+     */
+    public int getPendingTickCount() {
+        int[] count = new int[1];
+        regions.forEach((key, region) -> count[0] += region.getScheduledCount());
+        return count[0];
+    }
+    
+    /**
+     * Получить количество активных секций после последнего тика
+     * @return количество секций
+     */
+    public int getActiveSectionCount() {
+        return activeSections;
+    }
+    
+    public int getLastScheduledTicks() {
+        return lastScheduledTicks;
+    }
+    
+    public int getLastRandomTicks() {
+        return lastRandomTicks;
+    }
+    
+    public long getLastUpdateNanos() {
+        return lastUpdateNanos;
+    }
+    
+    /**
+     * Остановить рабочие потоки
+     */
+    public void shutdown() {
+        pool.shutdownNow();
+        try {
+            pool.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        regions.clear();
+        regionsChanged = true;
+    }
+}
@@ -0,0 +1,39 @@
+package com.rivet.engine.world.tick;
+
+import com.rivet.engine.world.Blocks;
+
+/**
+ * Трава: разрастается на открытую землю рядом и превращается в землю под непрозрачным блоком
+ */
+public final class GrassTickHandler implements BlockTickHandler {
+    
+    // Попыток распространения за случайный тик
+    private static final int SPREAD_ATTEMPTS = 4;
+    
+    @Override
+    public void randomTick(TickContext context, int x, int y, int z) {
+        if (Blocks.isOpaque(context.getBlock(x, y + 1, z))) {
+            context.setBlock(x, y, z, Blocks.DIRT_ID);
+            return;
+        }
+        
+        // Соседние колонны, от трех блоков ниже до одного выше
+        for (int i = 0; i < SPREAD_ATTEMPTS; i++) {
+            int targetX = x + context.nextInt(3) - 1;
+            int targetY = y + context.nextInt(5) - 3;
+            int targetZ = z + context.nextInt(3) - 1;
+            if (context.getBlock(targetX, targetY, targetZ) == Blocks.DIRT_ID
+                    && !Blocks.isOpaque(context.getBlock(targetX, targetY + 1, targetZ))) {
+                context.setBlock(targetX, targetY, targetZ, Blocks.GRASS_ID);
+            }
+        }
+    }
+    
+    @Override
+    public void scheduledTick(TickContext context, int x, int y, int z) {
+        // Планируется при изменении блока сверху
+        if (Blocks.isOpaque(context.getBlock(x, y + 1, z))) {
+            context.setBlock(x, y, z, Blocks.DIRT_ID);
+        }
+    }
+}
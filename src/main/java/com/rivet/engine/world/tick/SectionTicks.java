@@ -0,0 +1,110 @@
+package com.rivet.engine.world.tick;
+
+import com.rivet.engine.world.ChunkPos;
+import com.rivet.engine.world.ChunkSection;
+
+import java.util.Arrays;
+
+/**
+ * Запланированные тики одной секции
+ *
+ * Двоичная куча примитивных long: тик назначения в старших битах, индекс
+ * блока в секции - в младших 12, поэтому тики одного номера выполняются
+ * в порядке индекса. Битовая маска позиций отбрасывает повторное
+ * планирование блока, у которого уже есть запланированный тик.
+ */
+final class SectionTicks {
+    
+    private static final int INDEX_BITS = 12;
+    private static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+    
+    final int sectionX;
+    final int sectionY;
+    final int sectionZ;
+    final long key;
+    
+    private long[] heap = new long[8];
+    private int size = 0;
+    private final long[] scheduled = new long[ChunkSection.VOLUME / Long.SIZE];
+    
+    SectionTicks(int sectionX, int sectionY, int sectionZ) {
+        this.sectionX = sectionX;
+        this.sectionY = sectionY;
+        this.sectionZ = sectionZ;
+        this.key = ChunkPos.packSection(sectionX, sectionY, sectionZ);
+    }
+    
+    /**
+     * Запланировать тик блока
+     * @param tick номер тика назначения
+     * @param index индекс блока в секции
+     * @return false если у блока уже есть запланированный тик
+     */
+    boolean schedule(long tick, int index) {
+        int word = index >>> 6;
+        long bit = 1L << index;
+        if ((scheduled[word] & bit) != 0) {
+            return false;
+        }
+        scheduled[word] |= bit;
+        
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+        long value = tick << INDEX_BITS | index;
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= value) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = value;
+        return true;
+    }
+    
+    /**
+     * Проверить, наступил ли ближайший тик
+     * @param tick текущий тик
+     * @return true если есть тик с номером не больше текущего
+     */
+    boolean hasDue(long tick) {
+        return size > 0 && heap[0] >>> INDEX_BITS <= tick;
+    }
+    
+    /**
+     * Извлечь ближайший тик
+     * @return индекс блока в секции
+     */
+    int poll() {
+        int index = (int) heap[0] & INDEX_MASK;
+        scheduled[index >>> 6] &= ~(1L << index);
+        
+        long last = heap[--size];
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (last <= heap[child]) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        return index;
+    }
+    
+    boolean isEmpty() {
+        return size == 0;
+    }
+    
+    int size() {
+        return size;
+    }
+}
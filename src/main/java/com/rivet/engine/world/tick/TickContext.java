@@ -0,0 +1,44 @@
+package com.rivet.engine.world.tick;
+
+/**
+ * Доступ обработчика тика к миру
+ *
+ * Обработчики выполняются в рабочих потоках параллельно для разных регионов.
+ * Чтение допускается не дальше 16 блоков от тикающего блока. Изменения внутри
+ * своего региона видны сразу, изменения в чужих регионах откладываются до
+ * слияния в потоке-писателе после всех регионов.
+ */
+public interface TickContext {
+    
+    /**
+     * Получить id блока
+     * @return id состояния или AIR для незагруженных чанков
+     */
+    int getBlock(int x, int y, int z);
+    
+    /**
+     * Установить id блока
+     * @return false если блок не изменился или вне мира (для отложенных изменений всегда true)
+     */
+    boolean setBlock(int x, int y, int z, int id);
+    
+    /**
+     * Запланировать тик блока
+     * Повторное планирование блока с ожидающим тиком игнорируется.
+     * @param delay задержка в тиках (не меньше 1)
+     */
+    void scheduleTick(int x, int y, int z, int delay);
+    
+    /**
+     * Случайное число региона (детерминировано зерном мира, тиком и регионом)
+     * @param bound верхняя граница (не включительно)
+     * @return число от 0 до bound - 1
+     */
+    int nextInt(int bound);
+    
+    /**
+     * Получить номер текущего тика
+     * @return номер тика
+     */
+    long getTick();
+}
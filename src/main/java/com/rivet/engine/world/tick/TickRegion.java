@@ -0,0 +1,301 @@
+package com.rivet.engine.world.tick;
+
+import com.rivet.engine.util.LongObjectHashMap;
+import com.rivet.engine.util.LongQueue;
+import com.rivet.engine.world.Blocks;
+import com.rivet.engine.world.Chunk;
+import com.rivet.engine.world.ChunkPos;
+import com.rivet.engine.world.ChunkSection;
+import com.rivet.engine.world.PalettedContainer;
+import com.rivet.engine.world.World;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Регион 4x4 чанка - единица параллельной обработки тиков
+ *
+ * Во время тика регион обрабатывается одной задачей: секции своего региона
+ * она меняет напрямую (запоминая изменения для слушателей), а изменения и
+ * тики в чужих регионах откладывает. Между тиками объект принадлежит
+ * потоку-писателю мира и переиспользуется, поэтому выбор случайных блоков
+ * не создает объектов.
+ */
+final class TickRegion extends RecursiveAction implements TickContext {
+    
+    private static final Logger logger = LoggerFactory.getLogger(TickRegion.class);
+    
+    // Размер региона в чанках: 1 << SHIFT
+    static final int SHIFT = 2;
+    
+    // Признак отложенного тика в операции (иначе операция - новый id блока)
+    static final long SCHEDULE = Long.MIN_VALUE;
+    
+    final int regionX;
+    final int regionZ;
+    final long key;
+    
+    private final World world;
+    private final BlockTickHandler[] handlers;
+    private final LongObjectHashMap<SectionTicks> sectionMap = new LongObjectHashMap<>(16);
+    private SectionTicks[] sections = new SectionTicks[16];
+    private int sectionCount = 0;
+    
+    private long tick;
+    private long random;
+    private int randomTicksPerSection;
+    
+    // Изменения внутри региона: позиция и (старый id << 32 | новый id)
+    final LongQueue changedPositions = new LongQueue(64);
+    final LongQueue changedIds = new LongQueue(64);
+    // Изменения и тики в чужих регионах: позиция и операция
+    final LongQueue deferredPositions = new LongQueue(16);
+    final LongQueue deferredOps = new LongQueue(16);
+    
+    int executedScheduled;
+    int executedRandom;
+    
+    TickRegion(int regionX, int regionZ, World world, BlockTickHandler[] handlers) {
+        this.regionX = regionX;
+        this.regionZ = regionZ;
+        this.key = ChunkPos.pack(regionX, regionZ);
+        this.world = world;
+        this.handlers = handlers;
+    }
+    
+    /**
+     * Подготовить регион к тику (поток-писатель)
+     * @param tick номер тика
+     * @param seed зерно случайных чисел региона на этот тик
+     * @param randomTicks случайных тиков на секцию
+     */
+    void begin(long tick, long seed, int randomTicks) {
+        this.tick = tick;
+        this.random = seed;
+        this.randomTicksPerSection = randomTicks;
+        executedScheduled = 0;
+        executedRandom = 0;
+        reinitialize();
+    }
+    
+    @Override
+    protected void compute() {
+        for (int i = 0; i < sectionCount; i++) {
+            SectionTicks ticks = sections[i];
+            try {
+                tickSection(ticks);
+            } catch (Exception e) {
+                logger.error("Ошибка тика секции [{}, {}, {}]", ticks.sectionX, ticks.sectionY, ticks.sectionZ, e);
+            }
+        }
+    }
+    
+    private void tickSection(SectionTicks ticks) {
+        Chunk chunk = world.getChunk(ticks.sectionX, ticks.sectionZ);
+        if (chunk == null) {
+            return;
+        }
+        int baseX = ticks.sectionX << 4;
+        int baseY = ticks.sectionY << 4;
+        int baseZ = ticks.sectionZ << 4;
+        
+        while (ticks.hasDue(tick)) {
+            int index = ticks.poll();
+            int x = index & 15;
+            int y = baseY + (index >>> 8);
+            int z = (index >>> 4) & 15;
+            BlockTickHandler handler = handler(chunk.getBlock(x, y, z));
+            if (handler != null) {
+                handler.scheduledTick(this, baseX + x, y, baseZ + z);
+                executedScheduled++;
+            }
+        }
+        
+        ChunkSection section = chunk.getSection(ticks.sectionY);
+        if (section == null || section.getRandomTickCount() == 0) {
+            return;
+        }
+        PalettedContainer blocks = section.getBlocks();
+        for (int i = 0; i < randomTicksPerSection; i++) {
+            int index = (int) nextLong() & (ChunkSection.VOLUME - 1);
+            int id = blocks.get(index);
+            if (!Blocks.ticksRandomly(id)) {
+                continue;
+            }
+            BlockTickHandler handler = handler(id);
+            if (handler != null) {
+                handler.randomTick(this, baseX + (index & 15), baseY + (index >>> 8), baseZ + ((index >>> 4) & 15));
+                executedRandom++;
+            }
+        }
+    }
+    
+    private BlockTickHandler handler(int id) {
+        return id >= 0 && id < handlers.length ? handlers[id] : null;
+    }
+    
+    boolean contains(int chunkX, int chunkZ) {
+        return chunkX >> SHIFT == regionX && chunkZ >> SHIFT == regionZ;
+    }
+    
+    @Override
+    public int getBlock(int x, int y, int z) {
+        return world.getBlock(x, y, z);
+    }
+    
+    @Override
+    public boolean setBlock(int x, int y, int z, int id) {
+        if (y < 0 || y >= Chunk.HEIGHT) {
+            return false;
+        }
+        long position = ChunkPos.packSection(x, y, z);
+        if (!contains(x >> 4, z >> 4)) {
+            deferredPositions.add(position);
+            deferredOps.add(id);
+            return true;
+        }
+        
+        Chunk chunk = world.getChunk(x >> 4, z >> 4);
+        if (chunk == null) {
+            return false;
+        }
+        int previous = chunk.setBlock(x & 15, y, z & 15, id);
+        if (previous == id) {
+            return false;
+        }
+        changedPositions.add(position);
+        changedIds.add((long) previous << 32 | (id & 0xFFFFFFFFL));
+        return true;
+    }
+    
+    @Override
+    public void scheduleTick(int x, int y, int z, int delay) {
+        if (y < 0 || y >= Chunk.HEIGHT) {
+            return;
+        }
+        long target = tick + Math.max(1, delay);
+        if (!contains(x >> 4, z >> 4)) {
+            deferredPositions.add(ChunkPos.packSection(x, y, z));
+            deferredOps.add(target | SCHEDULE);
+            return;
+        }
+        schedule(x, y, z, target);
+    }
+    
+    /**
+     * Запланировать тик в своем регионе (задача региона или поток-писатель)
+     * @return false если у блока уже есть запланированный тик
+     */
+    boolean schedule(int x, int y, int z, long target) {
+        return section(x >> 4, y >> 4, z >> 4).schedule(target, ChunkSection.index(x & 15, y & 15, z & 15));
+    }
+    
+    /**
+     * Получить или создать тики секции
+     */
+    SectionTicks section(int sectionX, int sectionY, int sectionZ) {
+        long sectionKey = ChunkPos.packSection(sectionX, sectionY, sectionZ);
+        SectionTicks ticks = sectionMap.get(sectionKey);
+        if (ticks == null) {
+            ticks = new SectionTicks(sectionX, sectionY, sectionZ);
+            sectionMap.put(sectionKey, ticks);
+            if (sectionCount == sections.length) {
+                sections = Arrays.copyOf(sections, sectionCount * 2);
+            }
+            sections[sectionCount++] = ticks;
+        }
+        return ticks;
+    }
+    
+    @Override
+    public int nextInt(int bound) {
+        return (int) (((nextLong() >>> 32) * bound) >>> 32);
+    }
+    
+    @Override
+    public long getTick() {
+        return tick;
+    }
+    
+    private long nextLong() {
+        random += 0x9E3779B97F4A7C15L;
+        return mix(random);
+    }
+    
+    /**
+     * Перемешивание SplitMix64
+     */
+    static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+    
+    /**
+     * Очистить журналы изменений после слияния (поток-писатель)
+     */
+    void clearLogs() {
+        changedPositions.clear();
+        changedIds.clear();
+        deferredPositions.clear();
+        deferredOps.clear();
+    }
+    
+    /**
+     * Убрать секции без запланированных тиков и без блоков со случайными тиками (поток-писатель)
+     * @return true если в регионе не осталось секций
+     */
+    boolean removeInactive() {
+        int kept = 0;
+        for (int i = 0; i < sectionCount; i++) {
+            SectionTicks ticks = sections[i];
+            ChunkSection section = world.getSection(ticks.sectionX, ticks.sectionY, ticks.sectionZ);
+            if (ticks.isEmpty() && (section == null || section.getRandomTickCount() == 0)) {
+                sectionMap.remove(ticks.key);
+            } else {
+                sections[kept++] = ticks;
+            }
+        }
+        Arrays.fill(sections, kept, sectionCount, null);
+        sectionCount = kept;
+        return kept == 0;
+    }
+    
+    /**
+     * Убрать секции выгруженного чанка (поток-писатель)
+     * Запланированные тики чанка теряются.
+     * @return true если в регионе не осталось секций
+     */
+    boolean removeChunk(int chunkX, int chunkZ) {
+        int kept = 0;
+        for (int i = 0; i < sectionCount; i++) {
+            SectionTicks ticks = sections[i];
+            if (ticks.sectionX == chunkX && ticks.sectionZ == chunkZ) {
+                sectionMap.remove(ticks.key);
+            } else {
+                sections[kept++] = ticks;
+            }
+        }
+        Arrays.fill(sections, kept, sectionCount, null);
+        sectionCount = kept;
+        return kept == 0;
+    }
+    
+    int getSectionCount() {
+        return sectionCount;
+    }
+    
+    /**
+     * Получить количество запланированных тиков региона
+     * @return количество тиков
+     */
+    int getScheduledCount() {
+        int count = 0;
+        for (int i = 0; i < sectionCount; i++) {
+            count += sections[i].size();
+        }
+        return count;
+    }
+}
@@ -1,15 +1,35 @@
 package com.rivet.game;
 
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.rivet.engine.FrameSnapshot;
 import com.rivet.engine.ModuleManager;
+import com.rivet.engine.SimulationLoop;
+import com.rivet.engine.SnapshotExchange;
+import com.rivet.engine.modules.AudioModule;
+import com.rivet.engine.modules.ChunkRenderModule;
+import com.rivet.engine.modules.EntityModule;
 import com.rivet.engine.modules.InitializationModule;
 import com.rivet.engine.modules.LoggingModule;
+import com.rivet.engine.modules.ParticleModule;
+import com.rivet.engine.modules.PathfindingModule;
+import com.rivet.engine.modules.PhysicsModule;
 import com.rivet.engine.modules.ResourceModule;
+import com.rivet.engine.modules.WorldModule;
+import com.rivet.engine.profiling.FrameEvent;
+import com.rivet.engine.render.GpuTimer;
+import com.rivet.game.benchmark.BenchmarkReport;
+import com.rivet.game.benchmark.BenchmarkScript;
+import com.rivet.game.benchmark.FrameRecorder;
+import jdk.jfr.FlightRecorder;
 import org.lwjgl.glfw.GLFW;
+import org.lwjgl.opengl.GL11;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.awt.Component;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import javax.swing.JOptionPane;
 
 /**
@@ -27,6 +47,19 @@ public class Rivet implements Runnable {
     private InitializationModule initModule;
     private LoggingModule loggingModule;
     private ResourceModule resourceModule;
+    private AudioModule audioModule;
+    private WorldModule worldModule;
+    private EntityModule entityModule;
+    private PathfindingModule pathfindingModule;
+    private PhysicsModule physicsModule;
+    private ChunkRenderModule chunkRenderModule;
+    private ParticleModule particleModule;
+    private SnapshotExchange snapshots;
+    private SimulationLoop simulation;
+    
+    // Частота тиков симуляции и режим отдельного потока симуляции
+    private static final int TICKS_PER_SECOND = Integer.getInteger("rivet.tickRate", 20);
+    private final boolean simulationThread = !"false".equals(System.getProperty("rivet.simThread"));
     
     // Основные параметры
     private boolean fullscreen = false;
@@ -37,6 +70,12 @@ public class Rivet implements Runnable {
     public volatile boolean pause = false;
     private volatile boolean running = false;
     private int frames = 0;
+    
+    // Режим бенчмарка: сценарий, файлы отчета и код завершения процесса
+    private BenchmarkScript benchmark;
+    private Path benchmarkReport;
+    private Path benchmarkBaseline;
+    private int benchmarkExitCode = 0;
 
     public Rivet(int width, int height, boolean fullscreen) {
         this.width = width;
@@ -47,21 +86,56 @@ public class Rivet implements Runnable {
         this.moduleManager = new ModuleManager();
         this.loggingModule = new LoggingModule();
         this.resourceModule = new ResourceModule();
+        this.audioModule = new AudioModule(resourceModule);
         this.initModule = new InitializationModule(width, height, fullscreen);
+        this.worldModule = new WorldModule();
+        this.entityModule = new EntityModule();
+        this.pathfindingModule = new PathfindingModule(worldModule);
+        this.physicsModule = new PhysicsModule(entityModule, worldModule);
+        this.chunkRenderModule = new ChunkRenderModule(worldModule, initModule);
+        this.particleModule = new ParticleModule(initModule, chunkRenderModule);
         
         // Добавление модулей в менеджер (порядок важен!)
         moduleManager.addModule(loggingModule);    // Сначала логирование
         moduleManager.addModule(resourceModule);   // Потом ресурсы
+        moduleManager.addModule(audioModule);      // Потом звук
         moduleManager.addModule(initModule);       // Потом OpenGL
+        moduleManager.addModule(worldModule);      // Потом мир
+        moduleManager.addModule(entityModule);     // Потом сущности
+        moduleManager.addModule(pathfindingModule); // Потом поиск пути сущностей
+        moduleManager.addModule(physicsModule);    // Потом физика сущностей
+        moduleManager.addModule(chunkRenderModule); // Потом рендеринг мира
+        moduleManager.addModule(particleModule);   // Потом частицы (камера кадра уже обновлена)
+        
+        this.snapshots = new SnapshotExchange();
+        this.simulation = new SimulationLoop(moduleManager, snapshots, TICKS_PER_SECOND);
     }
 
     public void init() throws IOException {
         try {
             // Инициализация всех модулей
             moduleManager.initializeAll();
+            resourceModule.getResourceManager().setUploader(initModule.getUploader());
             
-            // Показать окно после инициализации
-            GLFW.glfwShowWindow(initModule.getWindow());
+            // Игрок появляется над поверхностью в центре мира
+            int spawnY = worldModule.getGenerator().getSurfaceHeight(8, 8) + 2;
+            chunkRenderModule.teleport(8.5f, spawnY, 8.5f, 0.0f, 0.0f);
+            entityModule.spawnPlayer(8.5f, spawnY, 8.5f);
+            
+            if (benchmark != null) {
+                // Бенчмарк: тики выполняются по одному на кадр, окно остается скрытым
+                float[] view = new float[5];
+                benchmark.sample(0, view);
+                chunkRenderModule.teleport(view[0], view[1], view[2], view[3], view[4]);
+            } else {
+                // -Drivet.simThread=false - симуляция в игровом цикле между кадрами
+                if (simulationThread) {
+                    simulation.start();
+                }
+                
+                // Показать окно после инициализации
+                GLFW.glfwShowWindow(initModule.getWindow());
+            }
             
             // Отключить VSync для максимального FPS
             GLFW.glfwSwapInterval(0);
@@ -75,6 +149,10 @@ public class Rivet implements Runnable {
     }
 
     public void destroy() {
+        // Симуляция останавливается до очистки модулей, которые она обновляет
+        if (simulation != null) {
+            simulation.stop();
+        }
         
         // Очистка всех модулей
         if (moduleManager != null) {
@@ -88,28 +166,68 @@ public class Rivet implements Runnable {
         try {
             this.init();
         } catch (Exception e) {
+            if (benchmark != null) {
+                benchmarkExitCode = 2;
+                this.destroy();
+                return;
+            }
             JOptionPane.showMessageDialog((Component)null, e.toString(), "Failed to start Rivet", 0);
             return;
         }
+        
+        if (benchmark != null) {
+            try {
+                runBenchmark();
+            } catch (Exception e) {
+                logger.error("Ошибка бенчмарка", e);
+                benchmarkExitCode = 2;
+            } finally {
+                this.destroy();
+            }
+            return;
+        }
 
         long lastTime = System.currentTimeMillis();
         long lastFrameTime = System.nanoTime();
         final long NANOS_PER_FRAME = 1000000000L / 120L; // 120 FPS limit
+        long frameNumber = 0;
 
         try {
             while(this.running && !GLFW.glfwWindowShouldClose(initModule.getWindow())) {
+                simulation.setPaused(this.pause);
                 if (this.pause) {
                     Thread.sleep(100L);
                 } else {
+                    // Без JFR событие кадра не создается
+                    FrameEvent frameEvent = FlightRecorder.isInitialized() ? new FrameEvent() : null;
+                    if (frameEvent != null) {
+                        frameEvent.begin();
+                    }
+                    
                     // Poll events
                     GLFW.glfwPollEvents();
 
-                    // Простой рендеринг с современным OpenGL
-                    renderSky();
+                    // Без отдельного потока тики выполняются здесь
+                    if (!simulationThread) {
+                        simulation.runDueTicks(System.nanoTime());
+                    }
+
+                    renderFrame(false);
 
                     // Swap buffers
                     GLFW.glfwSwapBuffers(initModule.getWindow());
                     ++this.frames;
+                    
+                    if (frameEvent != null) {
+                        frameEvent.end();
+                        if (frameEvent.shouldCommit()) {
+                            frameEvent.frame = frameNumber;
+                            frameEvent.tick = simulation.getTickCount();
+                            frameEvent.queueItems = initModule.getRenderQueue().getLastItemCount();
+                            frameEvent.commit();
+                        }
+                    }
+                    frameNumber++;
 
                     // FPS limiting
                     long currentTime = System.nanoTime();
@@ -142,6 +260,121 @@ public class Rivet implements Runnable {
         this.running = false;
     }
     
+    /**
+     * Отрисовать последний снимок тика
+     * @param endOfTick true - состояние конца тика без интерполяции (бенчмарк)
+     */
+    private void renderFrame(boolean endOfTick) {
+        // Последний снимок тика: события мира и интерполяция камеры
+        FrameSnapshot snapshot = snapshots.acquire();
+        moduleManager.consumeAll(snapshot);
+        float partialTicks = endOfTick ? 1.0f : snapshot.getPartialTicks(System.nanoTime());
+        
+        // Простой рендеринг с современным OpenGL
+        renderSky();
+        moduleManager.renderAll(partialTicks);
+        initModule.getRenderQueue().execute();
+        initModule.getFrameArena().reset();
+        snapshots.release(snapshot);
+    }
+    
+    /**
+     * Задать сценарий бенчмарка (до запуска)
+     * @param script сценарий
+     * @param report файл отчета
+     * @param baseline базовый отчет или null - из сценария
+     */
+    public void setBenchmark(BenchmarkScript script, Path report, Path baseline) {
+        this.benchmark = script;
+        this.benchmarkReport = report;
+        this.benchmarkBaseline = baseline != null ? baseline : script.getBaseline();
+    }
+    
+    /**
+     * Прогон сценария бенчмарка
+     * Сначала мир вокруг начальной точки загружается, освещается и строится
+     * (не дольше warmupSeconds), затем выполняется ровно getTicks() кадров,
+     * в каждом из которых один тик с камерой из сценария.
+     */
+    private void runBenchmark() throws IOException, InterruptedException {
+        long window = initModule.getWindow();
+        FrameRecorder recorder = new FrameRecorder(benchmark.getTicks());
+        GpuTimer gpuTimer = new GpuTimer();
+        float[] view = new float[5];
+        
+        long warmupStart = System.nanoTime();
+        long warmupDeadline = warmupStart + (long) (benchmark.getWarmupSeconds() * 1.0e9);
+        int warmupTicks = 0;
+        while (!isWorldSettled() && System.nanoTime() < warmupDeadline) {
+            simulation.tick();
+            renderFrame(true);
+            GLFW.glfwSwapBuffers(window);
+            GLFW.glfwPollEvents();
+            warmupTicks++;
+            // Рабочим потокам генерации и мешинга нужно процессорное время
+            Thread.sleep(5L);
+        }
+        logger.info("Бенчмарк {}: прогрев {} тиков за {} мс{}", benchmark.getName(), warmupTicks,
+            (System.nanoTime() - warmupStart) / 1_000_000L, isWorldSettled() ? "" : " (мир не успел загрузиться)");
+        
+        long start = System.nanoTime();
+        for (int tick = 0; tick < benchmark.getTicks() && !GLFW.glfwWindowShouldClose(window); tick++) {
+            recorder.beginFrame();
+            benchmark.sample(tick, view);
+            chunkRenderModule.setViewpoint(view[0], view[1], view[2], view[3], view[4]);
+            simulation.tick();
+            
+            gpuTimer.begin();
+            renderFrame(true);
+            gpuTimer.end();
+            recorder.endCpu();
+            
+            GLFW.glfwSwapBuffers(window);
+            GLFW.glfwPollEvents();
+            recorder.endFrame(simulation.getLastTickDuration());
+            recorder.addGpu(gpuTimer.poll());
+        }
+        long wall = System.nanoTime() - start;
+        
+        // Результаты последних кадров на GPU
+        GL11.glFinish();
+        long gpu;
+        while ((gpu = gpuTimer.poll()) >= 0) {
+            recorder.addGpu(gpu);
+        }
+        gpuTimer.cleanup();
+        
+        ObjectNode environment = BenchmarkReport.createEnvironment();
+        environment.put("version", VERSION_STRING);
+        environment.put("java", System.getProperty("java.runtime.version"));
+        environment.put("os", System.getProperty("os.name") + " " + System.getProperty("os.arch"));
+        environment.put("cpus", Runtime.getRuntime().availableProcessors());
+        environment.put("glRenderer", GL11.glGetString(GL11.GL_RENDERER));
+        environment.put("glVersion", GL11.glGetString(GL11.GL_VERSION));
+        environment.put("gpuTimer", gpuTimer.isSupported());
+        environment.put("warmupTicks", warmupTicks);
+        
+        BenchmarkReport report = new BenchmarkReport(benchmark, recorder, wall, environment);
+        boolean passed = report.checkAllocationBudget(benchmark.getAllocationBudget());
+        passed &= report.compare(benchmarkBaseline, benchmark.getTolerance());
+        report.write(benchmarkReport);
+        logger.info("Бенчмарк {}: {}", benchmark.getName(), report.describe());
+        logger.info("Отчет: {}", benchmarkReport.toAbsolutePath());
+        report.getRegressions().forEach(regression -> logger.warn("Регрессия {}: {} -> {}",
+            regression.path("metric").asText(), regression.path("baseline").asDouble(), regression.path("current").asDouble()));
+        benchmarkExitCode = passed ? 0 : 1;
+    }
+    
+    /**
+     * Мир вокруг точки обзора загружен, освещен и построен
+     */
+    private boolean isWorldSettled() {
+        return worldModule.getScheduler().getPendingCount() == 0
+            && worldModule.getScheduler().isAreaLoaded(worldModule.getGenerationRadius())
+            && worldModule.getLightEngine().isIdle()
+            && chunkRenderModule.getMeshingService().getPendingCount() == 0;
+    }
+           
            /**
             * Рендеринг неба и UI
             */
@@ -151,7 +384,38 @@ public class Rivet implements Runnable {
                
            }
 
-    public static void main(String[] args) {
+    /**
+     * Без аргументов - игра. {@code --benchmark <сценарий> [--report <файл>] [--baseline <файл>]} -
+     * прогон бенчмарка, код завершения 0 (норма), 1 (регрессия) или 2 (ошибка).
+     * Сценарий - файл или имя из ресурсов /benchmarks/ (например flythrough).
+     */
+    public static void main(String[] args) throws IOException {
+        String script = null;
+        Path report = null;
+        Path baseline = null;
+        for (int i = 0; i < args.length; i++) {
+            if ("--benchmark".equals(args[i]) && i + 1 < args.length) {
+                script = args[++i];
+            } else if ("--report".equals(args[i]) && i + 1 < args.length) {
+                report = Paths.get(args[++i]);
+            } else if ("--baseline".equals(args[i]) && i + 1 < args.length) {
+                baseline = Paths.get(args[++i]);
+            }
+        }
+        
+        if (script != null) {
+            BenchmarkScript benchmarkScript = BenchmarkScript.load(script);
+            // Свойства мира читаются модулями при инициализации
+            benchmarkScript.applyProperties();
+            Rivet rivet = new Rivet(854, 480, false);
+            if (report == null) {
+                report = Paths.get("benchmark-" + benchmarkScript.getName() + ".json");
+            }
+            rivet.setBenchmark(benchmarkScript, report, baseline);
+            rivet.run();
+            System.exit(rivet.benchmarkExitCode);
+        }
+        
         Rivet rivet = new Rivet(854, 480, false);
         (new Thread(rivet)).start();
     }
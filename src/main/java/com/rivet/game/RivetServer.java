@@ -0,0 +1,81 @@
+package com.rivet.game;
+
+import com.rivet.engine.ModuleManager;
+import com.rivet.engine.SimulationLoop;
+import com.rivet.engine.SnapshotExchange;
+import com.rivet.engine.modules.LoggingModule;
+import com.rivet.engine.modules.ServerModule;
+import com.rivet.engine.modules.WorldModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Выделенный сервер Rivet без окна и OpenGL
+ * Мир обновляется циклом симуляции, клиенты подключаются по протоколу
+ * {@link com.rivet.engine.net.Protocol}. Останавливается по SIGINT/SIGTERM.
+ */
+public class RivetServer {
+    
+    private static final Logger logger = LoggerFactory.getLogger(RivetServer.class);
+    
+    private static final int TICKS_PER_SECOND = Integer.getInteger("rivet.tickRate", 20);
+    
+    // Период вывода статистики в секундах
+    private static final int STATS_INTERVAL = 30;
+    
+    private final ModuleManager moduleManager = new ModuleManager();
+    private final WorldModule worldModule = new WorldModule();
+    private final ServerModule serverModule = new ServerModule(worldModule);
+    private final SimulationLoop simulation;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    
+    public RivetServer() {
+        moduleManager.addModule(new LoggingModule());
+        moduleManager.addModule(worldModule);
+        moduleManager.addModule(serverModule);
+        // Снимки тиков никто не читает: обмен нужен только циклу симуляции
+        this.simulation = new SimulationLoop(moduleManager, new SnapshotExchange(), TICKS_PER_SECOND);
+    }
+    
+    /**
+     * Запустить сервер и работать до {@link #stop()}
+     * @throws Exception если модули не инициализировались
+     */
+    public void run() throws Exception {
+        moduleManager.initializeAll();
+        simulation.start();
+        logger.info("{}: сервер запущен на порту {}", Rivet.VERSION_STRING, serverModule.getPort());
+        
+        try {
+            while (!stopped.await(STATS_INTERVAL, TimeUnit.SECONDS)) {
+                logger.info("Игроков: {}, тик {} мкс, отправлено {} чанков, {} KB",
+                    serverModule.getPlayerCount(), simulation.getLastTickDuration() / 1000L,
+                    serverModule.getChunksSent(), serverModule.getBytesQueued() / 1024);
+            }
+        } finally {
+            simulation.stop();
+            moduleManager.cleanupAll();
+        }
+    }
+    
+    public void stop() {
+        stopped.countDown();
+    }
+    
+    public static void main(String[] args) throws Exception {
+        RivetServer server = new RivetServer();
+        Thread main = Thread.currentThread();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            try {
+                main.join(5000L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "ServerShutdown"));
+        server.run();
+    }
+}
@@ -0,0 +1,210 @@
+package com.rivet.game.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Отчет бенчмарка в JSON и сравнение с базовым отчетом
+ *
+ * Для каждого ряда (время кадра, CPU, GPU, тика в мс и выделения на кадр в байтах)
+ * записываются среднее, p50, p90, p95, p99 и максимум. Регрессия - среднее,
+ * p50, p95 или p99 больше базового значения более чем на допуск.
+ * Медиана выделений на кадр дополнительно проверяется по абсолютному бюджету
+ * сценария, чтобы мусор в установившемся кадре ловился и без базового отчета.
+ */
+public final class BenchmarkReport {
+    
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    
+    // Метрики и статистики, по которым сравниваются отчеты
+    private static final String[] COMPARED_METRICS = { "frameMs", "cpuMs", "gpuMs", "tickMs", "allocatedBytesPerFrame" };
+    private static final String[] COMPARED_STATS = { "mean", "p50", "p95", "p99" };
+    
+    private final ObjectNode root = MAPPER.createObjectNode();
+    private final ArrayNode regressions = MAPPER.createArrayNode();
+    private boolean compared = false;
+    
+    /**
+     * @param script сценарий
+     * @param recorder записанные кадры
+     * @param wallNanos длительность замера
+     * @param environment описание окружения (версии, рендерер OpenGL)
+     */
+    public BenchmarkReport(BenchmarkScript script, FrameRecorder recorder, long wallNanos, ObjectNode environment) {
+        root.put("name", script.getName());
+        root.put("timestamp", Instant.now().toString());
+        root.put("seed", script.getSeed());
+        root.put("renderDistance", script.getRenderDistance());
+        root.put("frames", recorder.getFrameCount());
+        root.put("wallSeconds", wallNanos / 1.0e9);
+        root.set("environment", environment);
+        
+        ObjectNode metrics = root.putObject("metrics");
+        metrics.set("frameMs", summary(recorder.getFrameNanos(), 1.0e-6));
+        metrics.set("cpuMs", summary(recorder.getCpuNanos(), 1.0e-6));
+        long[] gpu = recorder.getGpuNanos();
+        if (gpu.length > 0) {
+            metrics.set("gpuMs", summary(gpu, 1.0e-6));
+        }
+        metrics.set("tickMs", summary(recorder.getTickNanos(), 1.0e-6));
+        if (recorder.isAllocationSupported()) {
+            long[] allocated = recorder.getAllocatedBytes();
+            metrics.set("allocatedBytesPerFrame", summary(allocated, 1.0));
+            long total = 0;
+            for (long bytes : allocated) {
+                total += bytes;
+            }
+            root.put("allocatedMBPerSecond", total / (1024.0 * 1024.0) / (wallNanos / 1.0e9));
+        }
+    }
+    
+    /**
+     * Статистика ряда
+     * @param values значения
+     * @param scale множитель единиц
+     * @return объект со средним и перцентилями
+     */
+    static ObjectNode summary(long[] values, double scale) {
+        ObjectNode node = MAPPER.createObjectNode();
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        double sum = 0.0;
+        for (long value : sorted) {
+            sum += value;
+        }
+        node.put("count", sorted.length);
+        node.put("mean", sorted.length == 0 ? 0.0 : sum / sorted.length * scale);
+        node.put("p50", percentile(sorted, 0.50) * scale);
+        node.put("p90", percentile(sorted, 0.90) * scale);
+        node.put("p95", percentile(sorted, 0.95) * scale);
+        node.put("p99", percentile(sorted, 0.99) * scale);
+        node.put("max", sorted.length == 0 ? 0.0 : sorted[sorted.length - 1] * scale);
+        return node;
+    }
+    
+    /**
+     * Перцентиль отсортированного ряда (ближайший ранг)
+     */
+    static double percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int rank = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank))];
+    }
+    
+    /**
+     * Сравнить с базовым отчетом
+     * @param baselineFile файл базового отчета
+     * @param tolerance допустимый относительный рост (0.1 - 10%)
+     * @return true если регрессий нет или базового отчета нет
+     * @throws IOException если базовый отчет не читается
+     */
+    public boolean compare(Path baselineFile, double tolerance) throws IOException {
+        ObjectNode comparison = root.putObject("comparison");
+        comparison.put("baseline", baselineFile.toString());
+        comparison.put("tolerance", tolerance);
+        if (!Files.isRegularFile(baselineFile)) {
+            comparison.put("status", "no-baseline");
+            return true;
+        }
+        
+        JsonNode baseline = MAPPER.readTree(baselineFile.toFile()).path("metrics");
+        JsonNode current = root.path("metrics");
+        for (String metric : COMPARED_METRICS) {
+            for (String stat : COMPARED_STATS) {
+                JsonNode before = baseline.path(metric).path(stat);
+                JsonNode after = current.path(metric).path(stat);
+                if (!before.isNumber() || !after.isNumber() || before.asDouble() <= 0.0) {
+                    continue;
+                }
+                double change = after.asDouble() / before.asDouble() - 1.0;
+                if (change > tolerance) {
+                    ObjectNode regression = regressions.addObject();
+                    regression.put("metric", metric + "." + stat);
+                    regression.put("baseline", before.asDouble());
+                    regression.put("current", after.asDouble());
+                    regression.put("change", change);
+                }
+            }
+        }
+        compared = true;
+        comparison.put("status", regressions.isEmpty() ? "pass" : "regression");
+        comparison.set("regressions", regressions);
+        return regressions.isEmpty();
+    }
+    
+    /**
+     * Проверить медиану выделений на кадр по бюджету
+     * Превышение записывается как регрессия метрики allocatedBytesPerFrame.p50.
+     * @param budget предел в байтах (0 или меньше - без проверки)
+     * @return true если бюджет не задан, не превышен или счетчик выделений не поддерживается
+     */
+    public boolean checkAllocationBudget(long budget) {
+        JsonNode allocated = root.path("metrics").path("allocatedBytesPerFrame").path("p50");
+        if (budget <= 0 || !allocated.isNumber()) {
+            return true;
+        }
+        
+        ObjectNode check = root.putObject("allocationBudget");
+        check.put("budget", budget);
+        check.put("p50", allocated.asDouble());
+        boolean passed = allocated.asDouble() <= budget;
+        check.put("status", passed ? "pass" : "over-budget");
+        if (!passed) {
+            ObjectNode regression = regressions.addObject();
+            regression.put("metric", "allocatedBytesPerFrame.p50");
+            regression.put("baseline", (double) budget);
+            regression.put("current", allocated.asDouble());
+            regression.put("change", allocated.asDouble() / budget - 1.0);
+        }
+        return passed;
+    }
+    
+    /**
+     * Записать отчет
+     * @param file файл отчета
+     * @throws IOException при ошибке записи
+     */
+    public void write(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        MAPPER.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), root);
+    }
+    
+    /**
+     * Краткая строка для лога
+     * @return p50/p99 времени кадра и тика, итог сравнения
+     */
+    public String describe() {
+        JsonNode metrics = root.path("metrics");
+        String status = !regressions.isEmpty() ? regressions.size() + " регрессий" : compared ? "без регрессий" : "без сравнения";
+        return String.format("кадр p50 %.2f / p99 %.2f мс, CPU p50 %.2f мс, GPU p50 %s мс, тик p50 %.2f / p99 %.2f мс; %s",
+            metrics.path("frameMs").path("p50").asDouble(), metrics.path("frameMs").path("p99").asDouble(),
+            metrics.path("cpuMs").path("p50").asDouble(),
+            metrics.has("gpuMs") ? String.format("%.2f", metrics.path("gpuMs").path("p50").asDouble()) : "-",
+            metrics.path("tickMs").path("p50").asDouble(), metrics.path("tickMs").path("p99").asDouble(), status);
+    }
+    
+    public JsonNode getRegressions() {
+        return regressions;
+    }
+    
+    /**
+     * Пустой объект окружения для заполнения вызывающим
+     * @return новый объект
+     */
+    public static ObjectNode createEnvironment() {
+        return MAPPER.createObjectNode();
+    }
+}
@@ -0,0 +1,187 @@
+package com.rivet.game.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Сценарий бенчмарка: зерно мира, число тиков и путь камеры
+ *
+ * Путь задается ключевыми кадрами по номерам тиков; между ними положение
+ * и наклон интерполируются линейно, поворот - по кратчайшей дуге. Камера
+ * зависит только от номера тика, поэтому прогоны повторяют один и тот же ввод.
+ * Формат (JSON):
+ * <pre>
+ * {
+ *   "name": "flythrough", "seed": 20240601, "renderDistance": 12,
+ *   "ticks": 1200, "warmupSeconds": 30, "tolerance": 0.10,
+ *   "baseline": "flythrough-baseline.json", "allocationBudget": 4096,
+ *   "path": [ { "tick": 0, "x": 8.5, "y": 96, "z": 8.5, "yaw": 0, "pitch": -15 }, ... ]
+ * }
+ * </pre>
+ * allocationBudget - предел медианы выделений в куче на кадр в байтах
+ * (проверяется без базового отчета; 0 или отсутствие - без проверки).
+ */
+public final class BenchmarkScript {
+    
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    
+    private final String name;
+    private final long seed;
+    private final int renderDistance;
+    private final int ticks;
+    private final float warmupSeconds;
+    private final double tolerance;
+    private final Path baseline;
+    private final long allocationBudget;
+    
+    // Ключевые кадры: тик и x, y, z, yaw, pitch
+    private final int[] keyTicks;
+    private final float[][] keyValues;
+    
+    private BenchmarkScript(JsonNode root, Path directory) throws IOException {
+        this.name = root.path("name").asText("benchmark");
+        this.seed = root.path("seed").asLong(20240601L);
+        this.renderDistance = root.path("renderDistance").asInt(12);
+        this.ticks = root.path("ticks").asInt(0);
+        this.warmupSeconds = (float) root.path("warmupSeconds").asDouble(30.0);
+        this.tolerance = root.path("tolerance").asDouble(0.10);
+        String baselineName = root.path("baseline").asText(name + "-baseline.json");
+        this.baseline = directory == null ? Paths.get(baselineName) : directory.resolve(baselineName);
+        this.allocationBudget = root.path("allocationBudget").asLong(0);
+        if (ticks <= 0) {
+            throw new IOException("Benchmark script needs a positive tick count");
+        }
+        
+        JsonNode path = root.path("path");
+        if (!path.isArray() || path.isEmpty()) {
+            throw new IOException("Benchmark script needs a camera path");
+        }
+        List<JsonNode> frames = new ArrayList<>();
+        path.forEach(frames::add);
+        frames.sort((a, b) -> Integer.compare(a.path("tick").asInt(), b.path("tick").asInt()));
+        keyTicks = new int[frames.size()];
+        keyValues = new float[frames.size()][];
+        for (int i = 0; i < frames.size(); i++) {
+            JsonNode frame = frames.get(i);
+            keyTicks[i] = frame.path("tick").asInt();
+            keyValues[i] = new float[] {
+                (float) frame.path("x").asDouble(), (float) frame.path("y").asDouble(),
+                (float) frame.path("z").asDouble(), (float) frame.path("yaw").asDouble(),
+                (float) frame.path("pitch").asDouble()
+            };
+        }
+    }
+    
+    /**
+     * Загрузить сценарий из файла или, если файла нет, из ресурсов (/benchmarks/)
+     * @param location путь к файлу или имя ресурса
+     * @return сценарий
+     * @throws IOException если сценарий не найден или некорректен
+     */
+    public static BenchmarkScript load(String location) throws IOException {
+        Path file = Paths.get(location);
+        if (Files.isRegularFile(file)) {
+            return new BenchmarkScript(MAPPER.readTree(file.toFile()), file.toAbsolutePath().getParent());
+        }
+        String resource = location.startsWith("/") ? location : "/benchmarks/" + location;
+        if (!resource.endsWith(".json")) {
+            resource += ".json";
+        }
+        try (InputStream in = BenchmarkScript.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IOException("Benchmark script not found: " + location);
+            }
+            return new BenchmarkScript(MAPPER.readTree(in), null);
+        }
+    }
+    
+    /**
+     * Задать системные свойства мира до инициализации модулей
+     * Сохранения и звук отключаются: прогон не должен зависеть от прошлых прогонов и устройства вывода.
+     */
+    public void applyProperties() {
+        System.setProperty("rivet.seed", Long.toString(seed));
+        System.setProperty("rivet.renderDistance", Integer.toString(renderDistance));
+        System.setProperty("rivet.save", "false");
+        System.setProperty("rivet.audio", "false");
+    }
+    
+    /**
+     * Положение камеры на тике
+     * @param tick номер тика от начала замера
+     * @param out массив x, y, z, yaw, pitch
+     */
+    public void sample(int tick, float[] out) {
+        int last = keyTicks.length - 1;
+        if (tick <= keyTicks[0] || last == 0) {
+            System.arraycopy(keyValues[0], 0, out, 0, 5);
+            return;
+        }
+        if (tick >= keyTicks[last]) {
+            System.arraycopy(keyValues[last], 0, out, 0, 5);
+            return;
+        }
+        int segment = 0;
+        while (keyTicks[segment + 1] <= tick) {
+            segment++;
+        }
+        float[] from = keyValues[segment];
+        float[] to = keyValues[segment + 1];
+        float t = (float) (tick - keyTicks[segment]) / (keyTicks[segment + 1] - keyTicks[segment]);
+        for (int i = 0; i < 5; i++) {
+            float delta = to[i] - from[i];
+            if (i == 3) {
+                delta -= 360.0f * Math.round(delta / 360.0f);
+            }
+            out[i] = from[i] + delta * t;
+        }
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public long getSeed() {
+        return seed;
+    }
+    
+    public int getRenderDistance() {
+        return renderDistance;
+    }
+    
+    public int getTicks() {
+        return ticks;
+    }
+    
+    public float getWarmupSeconds() {
+        return warmupSeconds;
+    }
+    
+    public double getTolerance() {
+        return tolerance;
+    }
+    
+    /**
+     * Файл базового отчета для сравнения
+     * @return путь (файл может отсутствовать)
+     */
+    public Path getBaseline() {
+        return baseline;
+    }
+    
+    /**
+     * Предел медианы выделений на кадр
+     * @return размер в байтах (0 - без проверки)
+     */
+    public long getAllocationBudget() {
+        return allocationBudget;
+    }
+}
@@ -0,0 +1,108 @@
+package com.rivet.game.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Запись времени и выделений памяти каждого кадра бенчмарка
+ *
+ * Время CPU - от начала кадра до обмена буферов, время кадра - включая обмен.
+ * Выделения считаются по потоку кадра (в режиме бенчмарка тик выполняется в нем же).
+ * Результаты GPU приходят с задержкой в несколько кадров и копятся отдельным рядом.
+ */
+public final class FrameRecorder {
+    
+    private final long[] frameNanos;
+    private final long[] cpuNanos;
+    private final long[] tickNanos;
+    private final long[] allocatedBytes;
+    private final long[] gpuNanos;
+    private int frames = 0;
+    private int gpuSamples = 0;
+    
+    private final com.sun.management.ThreadMXBean threads;
+    private final boolean allocationSupported;
+    private long frameStart;
+    private long cpuEnd;
+    private long allocationStart;
+    
+    /**
+     * @param capacity количество кадров замера
+     */
+    public FrameRecorder(int capacity) {
+        frameNanos = new long[capacity];
+        cpuNanos = new long[capacity];
+        tickNanos = new long[capacity];
+        allocatedBytes = new long[capacity];
+        gpuNanos = new long[capacity];
+        
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        allocationSupported = threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled();
+    }
+    
+    public void beginFrame() {
+        frameStart = System.nanoTime();
+        allocationStart = allocationSupported ? threads.getCurrentThreadAllocatedBytes() : 0;
+    }
+    
+    /**
+     * Отметить конец работы CPU (перед обменом буферов)
+     */
+    public void endCpu() {
+        cpuEnd = System.nanoTime();
+    }
+    
+    /**
+     * Завершить кадр
+     * @param tick длительность тика этого кадра в наносекундах
+     */
+    public void endFrame(long tick) {
+        if (frames == frameNanos.length) {
+            return;
+        }
+        long now = System.nanoTime();
+        frameNanos[frames] = now - frameStart;
+        cpuNanos[frames] = cpuEnd - frameStart;
+        tickNanos[frames] = tick;
+        allocatedBytes[frames] = allocationSupported ? threads.getCurrentThreadAllocatedBytes() - allocationStart : 0;
+        frames++;
+    }
+    
+    /**
+     * Добавить готовый результат GPU
+     * @param nanos время в наносекундах (отрицательное игнорируется)
+     */
+    public void addGpu(long nanos) {
+        if (nanos >= 0 && gpuSamples < gpuNanos.length) {
+            gpuNanos[gpuSamples++] = nanos;
+        }
+    }
+    
+    public int getFrameCount() {
+        return frames;
+    }
+    
+    public boolean isAllocationSupported() {
+        return allocationSupported;
+    }
+    
+    public long[] getFrameNanos() {
+        return Arrays.copyOf(frameNanos, frames);
+    }
+    
+    public long[] getCpuNanos() {
+        return Arrays.copyOf(cpuNanos, frames);
+    }
+    
+    public long[] getTickNanos() {
+        return Arrays.copyOf(tickNanos, frames);
+    }
+    
+    public long[] getAllocatedBytes() {
+        return Arrays.copyOf(allocatedBytes, frames);
+    }
+    
+    public long[] getGpuNanos() {
+        return Arrays.copyOf(gpuNanos, gpuSamples);
+    }
+}
@@ -0,0 +1,21 @@
+package com.rivet.game.benchmark.headless;
+
+/**
+ * Набор микробенчмарков без окна и OpenGL
+ * Набор получает {@link SuiteResults}, замеряет через него операции и
+ * записывает метрики; запуск - {@link HeadlessBenchmark}.
+ */
+public interface BenchmarkSuite {
+    
+    /**
+     * Имя набора в командной строке (--benchmark имя)
+     */
+    String getName();
+    
+    /**
+     * Выполнить замеры
+     * @param results приемник метрик
+     * @throws Exception если замер не удался
+     */
+    void run(SuiteResults results) throws Exception;
+}
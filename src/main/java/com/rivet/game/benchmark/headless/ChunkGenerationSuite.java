@@ -0,0 +1,68 @@
+package com.rivet.game.benchmark.headless;
+
+import com.rivet.engine.world.World;
+import com.rivet.engine.world.gen.ChunkGenerationScheduler;
+import com.rivet.engine.world.gen.TerrainGenerator;
+
+/**
+ * Генерация чанков: пропускная способность в зависимости от числа рабочих потоков
+ *
+ * Для 1, 2, 4 ... потоков (до числа ядер или rivet.benchmark.threads)
+ * планировщик загружает круг радиусом {@link #RADIUS} вокруг наблюдателя в
+ * пустом мире. Метрики - чанков в секунду, время до готовности игрового
+ * радиуса {@link #PLAYABLE_RADIUS} и до загрузки всего круга.
+ */
+final class ChunkGenerationSuite implements BenchmarkSuite {
+    
+    private static final long SEED = 12345L;
+    private static final int RADIUS = 10;
+    private static final int PLAYABLE_RADIUS = 4;
+    private static final long TIMEOUT_NANOS = 300_000_000_000L;
+    
+    @Override
+    public String getName() {
+        return "chunkgen";
+    }
+    
+    @Override
+    public void run(SuiteResults results) throws Exception {
+        int maxThreads = Integer.getInteger("rivet.benchmark.threads", Runtime.getRuntime().availableProcessors());
+        
+        // Прогрев JIT генератора и освещения
+        load(1, RADIUS / 2, null, null);
+        
+        for (int threads = 1; ; threads *= 2) {
+            int count = Math.min(threads, maxThreads);
+            load(count, RADIUS, results, "threads" + count + ".");
+            if (count == maxThreads) {
+                break;
+            }
+        }
+    }
+    
+    private static void load(int threads, int radius, SuiteResults results, String prefix) throws Exception {
+        World world = new World();
+        ChunkGenerationScheduler scheduler = new ChunkGenerationScheduler(world, new TerrainGenerator(SEED),
+            threads, threads * 2, radius, Math.min(PLAYABLE_RADIUS, radius));
+        try {
+            long start = System.nanoTime();
+            scheduler.setViewer(8.0f, 8.0f, 0.0f, -1.0f);
+            while (!scheduler.isAreaLoaded(radius)) {
+                if (System.nanoTime() - start > TIMEOUT_NANOS) {
+                    throw new IllegalStateException("Chunk generation timed out with " + threads + " threads");
+                }
+                scheduler.update(Integer.MAX_VALUE);
+                Thread.sleep(1);
+            }
+            long elapsed = System.nanoTime() - start;
+            if (results != null) {
+                results.add(prefix + "chunksPerSecond", scheduler.getGeneratedCount() * 1.0e9 / elapsed, "chunks/s");
+                results.add(prefix + "generationMillis", scheduler.getAverageGenerationNanos() / 1.0e6, "ms/chunk");
+                results.add(prefix + "timeToPlayable", scheduler.getTimeToPlayableNanos() / 1.0e6, "ms");
+                results.add(prefix + "timeToFullRadius", elapsed / 1.0e6, "ms");
+            }
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+}
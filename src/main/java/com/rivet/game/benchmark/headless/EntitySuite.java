@@ -0,0 +1,176 @@
+package com.rivet.game.benchmark.headless;
+
+import com.rivet.engine.entity.BodyStore;
+import com.rivet.engine.entity.BoundsStore;
+import com.rivet.engine.entity.EntityManager;
+import com.rivet.engine.entity.MovementSystem;
+import com.rivet.engine.entity.PositionStore;
+import com.rivet.engine.entity.VelocityStore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Сущности: хранилища struct-of-arrays против объекта на сущность
+ *
+ * {@link #COUNT} сущностей с позицией, скоростью и границами; каждая седьмая
+ * пересоздается, чтобы перемешать плотный порядок хранилищ и раскидать
+ * объекты по куче. Тик - перемещение по скорости и пересчет AABB: через
+ * {@link MovementSystem}, через список объектов и простым циклом по
+ * массивам (нижняя граница).
+ */
+final class EntitySuite implements BenchmarkSuite {
+    
+    private static final int COUNT = 100_000;
+    private static final int TICKS = 20;
+    private static final float DELTA = 1.0f / 20.0f;
+    
+    /**
+     * Сущность-объект: все компоненты в полях
+     */
+    private static final class Entity {
+        float x, y, z;
+        float vx, vy, vz;
+        float halfWidth, height;
+        float minX, minY, minZ, maxX, maxY, maxZ;
+        
+        Entity(Random random) {
+            x = random.nextFloat() * 512.0f;
+            y = 64.0f;
+            z = random.nextFloat() * 512.0f;
+            vx = random.nextFloat() - 0.5f;
+            vz = random.nextFloat() - 0.5f;
+            halfWidth = 0.3f;
+            height = 1.8f;
+        }
+    }
+    
+    @Override
+    public String getName() {
+        return "entities";
+    }
+    
+    @Override
+    public void run(SuiteResults results) {
+        // Хранилища SoA
+        EntityManager entities = new EntityManager(COUNT);
+        PositionStore positions = new PositionStore(COUNT);
+        VelocityStore velocities = new VelocityStore(COUNT);
+        BoundsStore bounds = new BoundsStore(COUNT);
+        BodyStore bodies = new BodyStore(16);
+        entities.register(positions);
+        entities.register(velocities);
+        entities.register(bounds);
+        entities.register(bodies);
+        MovementSystem movement = new MovementSystem(positions, velocities, bounds, bodies);
+        
+        Random random = new Random(36);
+        int[] handles = new int[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            handles[i] = spawn(entities, positions, velocities, bounds, random);
+        }
+        for (int i = 0; i < COUNT; i += 7) {
+            entities.destroy(handles[i]);
+        }
+        for (int i = 0; i < COUNT; i += 7) {
+            handles[i] = spawn(entities, positions, velocities, bounds, random);
+        }
+        
+        // Объект на сущность, пересозданные объекты лежат в куче отдельно от соседей
+        List<Entity> objects = new ArrayList<>(COUNT);
+        for (int i = 0; i < COUNT; i++) {
+            objects.add(new Entity(random));
+        }
+        for (int i = 0; i < COUNT; i += 7) {
+            objects.set(random.nextInt(COUNT), new Entity(random));
+        }
+        
+        // Нижняя граница: те же данные в собственных плотных массивах
+        float[][] raw = new float[12][COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            raw[0][i] = random.nextFloat() * 512.0f;
+            raw[3][i] = random.nextFloat() - 0.5f;
+            raw[5][i] = random.nextFloat() - 0.5f;
+        }
+        
+        long soa = results.medianNanos(() -> {
+            for (int t = 0; t < TICKS; t++) {
+                movement.update(DELTA, null);
+            }
+            return Float.floatToRawIntBits(positions.getX()[0]);
+        });
+        long perObject = results.medianNanos(() -> {
+            for (int t = 0; t < TICKS; t++) {
+                for (int i = 0; i < COUNT; i++) {
+                    Entity e = objects.get(i);
+                    e.x += e.vx * DELTA;
+                    e.y += e.vy * DELTA;
+                    e.z += e.vz * DELTA;
+                    e.minX = e.x - e.halfWidth;
+                    e.minY = e.y;
+                    e.minZ = e.z - e.halfWidth;
+                    e.maxX = e.x + e.halfWidth;
+                    e.maxY = e.y + e.height;
+                    e.maxZ = e.z + e.halfWidth;
+                }
+            }
+            return Float.floatToRawIntBits(objects.get(0).x);
+        });
+        long floor = results.medianNanos(() -> {
+            float[] x = raw[0], y = raw[1], z = raw[2], vx = raw[3], vy = raw[4], vz = raw[5];
+            float[] minX = raw[6], minY = raw[7], minZ = raw[8], maxX = raw[9], maxY = raw[10], maxZ = raw[11];
+            for (int t = 0; t < TICKS; t++) {
+                for (int i = 0; i < COUNT; i++) {
+                    float px = x[i] += vx[i] * DELTA;
+                    float py = y[i] += vy[i] * DELTA;
+                    float pz = z[i] += vz[i] * DELTA;
+                    minX[i] = px - 0.3f;
+                    minY[i] = py;
+                    minZ[i] = pz - 0.3f;
+                    maxX[i] = px + 0.3f;
+                    maxY[i] = py + 1.8f;
+                    maxZ[i] = pz + 0.3f;
+                }
+            }
+            return Float.floatToRawIntBits(x[0]);
+        });
+        
+        results.add("soaTick", soa / 1.0e6 / TICKS, "ms");
+        results.add("objectPerEntityTick", perObject / 1.0e6 / TICKS, "ms");
+        results.add("rawArrayTick", floor / 1.0e6 / TICKS, "ms");
+        results.add("soaRetainedBytesPerEntity", (double) results.retainedBytes(() -> {
+            EntityManager manager = new EntityManager(COUNT);
+            PositionStore p = new PositionStore(COUNT);
+            VelocityStore v = new VelocityStore(COUNT);
+            BoundsStore b = new BoundsStore(COUNT);
+            manager.register(p);
+            manager.register(v);
+            manager.register(b);
+            Random r = new Random(36);
+            for (int i = 0; i < COUNT; i++) {
+                spawn(manager, p, v, b, r);
+            }
+            return new Object[] { manager, p, v, b };
+        }) / COUNT, "B");
+        results.add("objectRetainedBytesPerEntity", (double) results.retainedBytes(() -> {
+            List<Entity> list = new ArrayList<>(COUNT);
+            Random r = new Random(36);
+            for (int i = 0; i < COUNT; i++) {
+                list.add(new Entity(r));
+            }
+            return list;
+        }) / COUNT, "B");
+    }
+    
+    private static int spawn(EntityManager entities, PositionStore positions, VelocityStore velocities,
+                             BoundsStore bounds, Random random) {
+        int entity = entities.create();
+        float x = random.nextFloat() * 512.0f;
+        float z = random.nextFloat() * 512.0f;
+        positions.add(entity, x, 64.0f, z);
+        velocities.add(entity, random.nextFloat() - 0.5f, 0.0f, random.nextFloat() - 0.5f);
+        bounds.update(bounds.add(entity, 0.3f, 1.8f), x, 64.0f, z);
+        return entity;
+    }
+}
@@ -0,0 +1,95 @@
+package com.rivet.game.benchmark.headless;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Микробенчмарки движка без окна: хранилище блоков, генерация, свет,
+ * очередь отрисовки, сущности, поиск пути, сеть, тики блоков
+ *
+ * {@code --benchmark <набор|all> [--report <файл>]} - прогон наборов с
+ * записью метрик в JSON (по умолчанию headless-<набор>.json), код
+ * завершения 0 или 2 (ошибка). Запуск из Gradle: runHeadlessBenchmark.
+ */
+public final class HeadlessBenchmark {
+    
+    private static final Logger logger = LoggerFactory.getLogger(HeadlessBenchmark.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    
+    private static final Map<String, Supplier<BenchmarkSuite>> SUITES = new LinkedHashMap<>();
+    
+    static {
+        register(PaletteSuite::new);
+        register(ChunkGenerationSuite::new);
+        register(LightSuite::new);
+        register(RenderQueueSuite::new);
+        register(EntitySuite::new);
+        register(PathSuite::new);
+        register(NetSuite::new);
+        register(TickSuite::new);
+    }
+    
+    private HeadlessBenchmark() {
+    }
+    
+    private static void register(Supplier<BenchmarkSuite> factory) {
+        SUITES.put(factory.get().getName(), factory);
+    }
+    
+    public static void main(String[] args) {
+        String name = null;
+        Path report = null;
+        for (int i = 0; i < args.length; i++) {
+            if ("--benchmark".equals(args[i]) && i + 1 < args.length) {
+                name = args[++i];
+            } else if ("--report".equals(args[i]) && i + 1 < args.length) {
+                report = Paths.get(args[++i]);
+            }
+        }
+        if (name == null || (!"all".equals(name) && !SUITES.containsKey(name))) {
+            logger.error("Укажите --benchmark <набор>: all, {}", String.join(", ", SUITES.keySet()));
+            System.exit(2);
+        }
+        if (report == null) {
+            report = Paths.get("headless-" + name + ".json");
+        }
+        
+        ObjectNode root = MAPPER.createObjectNode();
+        root.put("timestamp", Instant.now().toString());
+        ObjectNode environment = root.putObject("environment");
+        environment.put("java", System.getProperty("java.version"));
+        environment.put("vm", System.getProperty("java.vm.name"));
+        environment.put("os", System.getProperty("os.name") + " " + System.getProperty("os.arch"));
+        environment.put("processors", Runtime.getRuntime().availableProcessors());
+        ObjectNode suites = root.putObject("suites");
+        
+        long sink = 0;
+        try {
+            for (Map.Entry<String, Supplier<BenchmarkSuite>> entry : SUITES.entrySet()) {
+                if (!"all".equals(name) && !entry.getKey().equals(name)) {
+                    continue;
+                }
+                SuiteResults results = new SuiteResults(entry.getKey(), suites.putObject(entry.getKey()));
+                long start = System.nanoTime();
+                entry.getValue().get().run(results);
+                sink += results.getSink();
+                logger.info("Набор {} выполнен за {} мс", entry.getKey(), (System.nanoTime() - start) / 1_000_000);
+            }
+            MAPPER.writerWithDefaultPrettyPrinter().writeValue(report.toFile(), root);
+        } catch (Exception e) {
+            logger.error("Ошибка бенчмарка {}", name, e);
+            System.exit(2);
+        }
+        logger.info("Отчет: {} (контрольная сумма {})", report.toAbsolutePath(), sink);
+        System.exit(0);
+    }
+}
@@ -0,0 +1,118 @@
+package com.rivet.game.benchmark.headless;
+
+import com.rivet.engine.world.Blocks;
+import com.rivet.engine.world.Chunk;
+import com.rivet.engine.world.World;
+import com.rivet.engine.world.gen.TerrainGenerator;
+import com.rivet.engine.world.light.LightEngine;
+
+import java.util.Random;
+
+/**
+ * Освещение: инкрементальный пересчет после правки блока против полного
+ *
+ * Мир {@link #SIZE}x{@link #SIZE} чанков освещается целиком, затем над
+ * поверхностью центрального чанка ставятся и убираются блоки, отбрасывающие
+ * тень. Инкрементальный путь - событие блока и flush() движка, по одной
+ * правке и пакетом. Полный путь - та же правка без события и пересчет
+ * области 3x3 заново, как при загрузке чанков.
+ */
+final class LightSuite implements BenchmarkSuite {
+    
+    private static final long SEED = 12345L;
+    private static final int SIZE = 7;
+    private static final int EDITS = 32;
+    
+    @Override
+    public String getName() {
+        return "light";
+    }
+    
+    @Override
+    public void run(SuiteResults results) {
+        World world = new World();
+        TerrainGenerator generator = new TerrainGenerator(SEED);
+        LightEngine engine = new LightEngine(world, 1);
+        world.addBlockChangeListener(engine);
+        world.addChunkListener(engine);
+        try {
+            int half = SIZE / 2;
+            long start = System.nanoTime();
+            for (int chunkZ = -half; chunkZ <= half; chunkZ++) {
+                for (int chunkX = -half; chunkX <= half; chunkX++) {
+                    Chunk chunk = generator.generate(chunkX, chunkZ);
+                    LightEngine.initializeChunk(chunk);
+                    world.putChunk(chunk);
+                }
+            }
+            engine.flush();
+            results.add("worldLightMillis", (System.nanoTime() - start) / 1.0e6, "ms");
+            
+            // Правки на 2-5 блоков выше поверхности центрального чанка
+            int[] x = new int[EDITS];
+            int[] y = new int[EDITS];
+            int[] z = new int[EDITS];
+            Random random = new Random(SEED);
+            for (int i = 0; i < EDITS; i++) {
+                x[i] = random.nextInt(16);
+                z[i] = random.nextInt(16);
+                y[i] = generator.getSurfaceHeight(x[i], z[i]) + 2 + random.nextInt(4);
+            }
+            
+            long single = results.medianNanos(() -> {
+                for (int i = 0; i < EDITS; i++) {
+                    world.setBlock(x[i], y[i], z[i], Blocks.STONE_ID);
+                    engine.flush();
+                    world.setBlock(x[i], y[i], z[i], Blocks.AIR_ID);
+                    engine.flush();
+                }
+                return engine.getBatchCount();
+            });
+            results.add("incrementalEdit", single / 1.0e3 / (EDITS * 2), "us/edit");
+            
+            long batched = results.medianNanos(() -> {
+                for (int i = 0; i < EDITS; i++) {
+                    world.setBlock(x[i], y[i], z[i], Blocks.STONE_ID);
+                }
+                engine.flush();
+                for (int i = 0; i < EDITS; i++) {
+                    world.setBlock(x[i], y[i], z[i], Blocks.AIR_ID);
+                }
+                engine.flush();
+                return engine.getBatchCount();
+            });
+            results.add("incrementalBatchedEdit", batched / 1.0e3 / (EDITS * 2), "us/edit");
+            
+            Chunk center = world.getChunk(0, 0);
+            long full = results.medianNanos(() -> {
+                for (int i = 0; i < EDITS; i++) {
+                    center.setBlock(x[i], y[i], z[i], Blocks.STONE_ID);
+                    relight(world, engine);
+                    center.setBlock(x[i], y[i], z[i], Blocks.AIR_ID);
+                    relight(world, engine);
+                }
+                return engine.getBatchCount();
+            });
+            results.add("fullRelightEdit", full / 1.0e3 / (EDITS * 2), "us/edit");
+            results.add("fullToIncrementalRatio", (double) full / single, "x");
+        } finally {
+            world.removeBlockChangeListener(engine);
+            world.removeChunkListener(engine);
+            engine.shutdown();
+        }
+    }
+    
+    /**
+     * Пересчитать область 3x3 вокруг центрального чанка с нуля
+     */
+    private static void relight(World world, LightEngine engine) {
+        for (int chunkZ = -1; chunkZ <= 1; chunkZ++) {
+            for (int chunkX = -1; chunkX <= 1; chunkX++) {
+                Chunk chunk = world.getChunk(chunkX, chunkZ);
+                chunk.setLightInitialized(false);
+                engine.onChunkLoaded(chunk);
+            }
+        }
+        engine.flush();
+    }
+}
@@ -0,0 +1,171 @@
+package com.rivet.game.benchmark.headless;
+
+import com.rivet.engine.modules.ServerModule;
+import com.rivet.engine.modules.WorldModule;
+import com.rivet.engine.net.NetClient;
+import com.rivet.engine.world.Blocks;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Random;
+
+/**
+ * Сервер через loopback: {@link #PLAYERS} клиентов {@link NetClient}
+ *
+ * Сначала вход - клиенты получают все чанки радиуса обзора, затем
+ * {@link #TICKS} тиков ходьбы в разные стороны с правкой блоков. Трафик
+ * считается на игрока за секунду игрового времени (тик - 50 мс), а не
+ * реального, чтобы не зависеть от скорости машины.
+ */
+final class NetSuite implements BenchmarkSuite {
+    
+    private static final int PLAYERS = 16;
+    private static final int VIEW_RADIUS = 6;
+    private static final int TICKS = 400;
+    private static final float TICK = 0.05f;
+    private static final float WALK_SPEED = 4.3f;
+    private static final int EDIT_INTERVAL = 10;
+    
+    private static final int BYTES = 0;
+    private static final int CHUNKS = 1;
+    private static final int DELTAS = 2;
+    private static final int DELTA_PACKETS = 3;
+    
+    private static final String[] PROPERTIES = {
+        "rivet.save", "rivet.renderDistance", "rivet.server.port", "rivet.server.viewDistance",
+        "rivet.server.maxPlayers", "rivet.randomTickSpeed"
+    };
+    
+    @Override
+    public String getName() {
+        return "net";
+    }
+    
+    @Override
+    public void run(SuiteResults results) throws Exception {
+        System.setProperty("rivet.save", "false");
+        System.setProperty("rivet.renderDistance", String.valueOf(VIEW_RADIUS + 1));
+        System.setProperty("rivet.server.port", "0");
+        System.setProperty("rivet.server.viewDistance", String.valueOf(VIEW_RADIUS));
+        System.setProperty("rivet.server.maxPlayers", String.valueOf(PLAYERS));
+        System.setProperty("rivet.randomTickSpeed", "0");
+        WorldModule worldModule = new WorldModule();
+        ServerModule serverModule = null;
+        NetClient[] clients = new NetClient[PLAYERS];
+        try {
+            worldModule.initialize();
+            serverModule = new ServerModule(worldModule);
+            serverModule.initialize();
+            InetSocketAddress address = new InetSocketAddress("127.0.0.1", serverModule.getPort());
+            for (int i = 0; i < PLAYERS; i++) {
+                clients[i] = new NetClient();
+                clients[i].connect(address, "bot" + i, VIEW_RADIUS);
+            }
+            
+            int expected = 0;
+            for (int dz = -VIEW_RADIUS; dz <= VIEW_RADIUS; dz++) {
+                for (int dx = -VIEW_RADIUS; dx <= VIEW_RADIUS; dx++) {
+                    if (dx * dx + dz * dz <= VIEW_RADIUS * VIEW_RADIUS) {
+                        expected++;
+                    }
+                }
+            }
+            long start = System.nanoTime();
+            int joinTicks = 0;
+            while (!joined(clients, expected)) {
+                tick(worldModule, serverModule, clients);
+                joinTicks++;
+                Thread.sleep(1);
+            }
+            results.add("joinMillis", (System.nanoTime() - start) / 1.0e6, "ms");
+            results.add("joinTicks", joinTicks, "ticks");
+            results.add("joinBytesPerPlayer", (double) total(clients, BYTES) / PLAYERS / 1024.0, "KB");
+            results.add("bytesPerChunk", (double) total(clients, BYTES) / total(clients, CHUNKS), "B");
+            results.add("chunksEncodedRatio", (double) serverModule.getChunksEncoded() / serverModule.getChunksSent(), "ratio");
+            
+            walk(results, worldModule, serverModule, clients);
+            results.add("kicked", serverModule.getKickedCount(), "players");
+        } finally {
+            for (NetClient client : clients) {
+                if (client != null) {
+                    client.close();
+                }
+            }
+            if (serverModule != null) {
+                serverModule.cleanup();
+            }
+            worldModule.cleanup();
+            for (String property : PROPERTIES) {
+                System.clearProperty(property);
+            }
+        }
+    }
+    
+    /**
+     * Игроки расходятся по лучам из точки появления, каждый {@link #EDIT_INTERVAL}-й тик ставят блок
+     */
+    private static void walk(SuiteResults results, WorldModule worldModule, ServerModule serverModule,
+                             NetClient[] clients) throws Exception {
+        Random random = new Random(42L);
+        long bytes = total(clients, BYTES);
+        long chunks = total(clients, CHUNKS);
+        long deltas = total(clients, DELTAS);
+        long packets = total(clients, DELTA_PACKETS);
+        long updateNanos = 0;
+        long maxUpdateNanos = 0;
+        for (int tick = 1; tick <= TICKS; tick++) {
+            float distance = WALK_SPEED * TICK * tick;
+            for (int i = 0; i < PLAYERS; i++) {
+                NetClient client = clients[i];
+                double angle = Math.PI * 2 * i / PLAYERS;
+                float x = client.getSpawnX() + (float) Math.cos(angle) * distance;
+                float z = client.getSpawnZ() + (float) Math.sin(angle) * distance;
+                client.move(x, client.getSpawnY(), z, (float) Math.toDegrees(angle), 0.0f);
+                if ((tick + i) % EDIT_INTERVAL == 0) {
+                    int id = random.nextBoolean() ? Blocks.STONE_ID : Blocks.AIR_ID;
+                    client.setBlock((int) Math.floor(x), (int) client.getSpawnY() + 1, (int) Math.floor(z), id);
+                }
+            }
+            tick(worldModule, serverModule, clients);
+            updateNanos += serverModule.getLastUpdateNanos();
+            maxUpdateNanos = Math.max(maxUpdateNanos, serverModule.getLastUpdateNanos());
+        }
+        double seconds = TICKS * TICK;
+        results.add("bytesPerPlayerPerSecond", (total(clients, BYTES) - bytes) / PLAYERS / seconds / 1024.0, "KB/s");
+        results.add("chunksPerPlayerPerSecond", (total(clients, CHUNKS) - chunks) / PLAYERS / seconds, "chunks/s");
+        results.add("deltasPerPlayerPerSecond", (total(clients, DELTAS) - deltas) / PLAYERS / seconds, "blocks/s");
+        results.add("deltaPacketsPerPlayerPerSecond", (total(clients, DELTA_PACKETS) - packets) / PLAYERS / seconds, "packets/s");
+        results.add("serverUpdatePerTick", updateNanos / 1.0e6 / TICKS, "ms");
+        results.add("serverUpdateMax", maxUpdateNanos / 1.0e6, "ms");
+    }
+    
+    private static void tick(WorldModule worldModule, ServerModule serverModule, NetClient[] clients) throws IOException {
+        worldModule.update(TICK);
+        serverModule.update(TICK);
+        for (NetClient client : clients) {
+            client.update();
+        }
+    }
+    
+    private static boolean joined(NetClient[] clients, int expected) {
+        for (NetClient client : clients) {
+            if (client.getChunkCount() < expected) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static long total(NetClient[] clients, int metric) {
+        long sum = 0;
+        for (NetClient client : clients) {
+            sum += switch (metric) {
+                case BYTES -> client.getBytesReceived();
+                case CHUNKS -> client.getChunkCount();
+                case DELTAS -> client.getDeltaCount();
+                default -> client.getDeltaPacketCount();
+            };
+        }
+        return sum;
+    }
+}
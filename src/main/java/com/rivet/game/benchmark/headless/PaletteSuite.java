@@ -0,0 +1,79 @@
+package com.rivet.game.benchmark.headless;
+
+import com.rivet.engine.world.ChunkSection;
+import com.rivet.engine.world.PalettedContainer;
+
+/**
+ * Хранилище блоков секции: get/set и память на секцию для каждой ширины палитры
+ *
+ * Секция заполняется 1, 16, 256 и 4096 различными id - это форматы 0, 4, 8
+ * и 16 бит. Память - оценка getMemoryUsage() и занятая куча на секцию
+ * (вместе с массивами света), измеренная по {@link #SECTIONS} секциям.
+ */
+final class PaletteSuite implements BenchmarkSuite {
+    
+    private static final int[] DISTINCT = { 1, 16, 256, 4096 };
+    private static final int SECTIONS = 4096;
+    private static final int ACCESSES = 1 << 20;
+    
+    @Override
+    public String getName() {
+        return "palette";
+    }
+    
+    @Override
+    public void run(SuiteResults results) {
+        int[] indices = new int[ACCESSES];
+        long seed = 0x2545F4914F6CDD1DL;
+        for (int i = 0; i < ACCESSES; i++) {
+            seed = seed * 6364136223846793005L + 1442695040888963407L;
+            indices[i] = (int) (seed >>> 52);
+        }
+        
+        for (int distinct : DISTINCT) {
+            int[] ids = ids(distinct);
+            PalettedContainer container = new PalettedContainer(ids[0]);
+            container.setAll(ids);
+            String prefix = container.getBits() + "bit.";
+            
+            results.time(prefix + "get", ACCESSES, () -> {
+                long sum = 0;
+                for (int i = 0; i < ACCESSES; i++) {
+                    sum += container.get(indices[i]);
+                }
+                return sum;
+            });
+            // Запись значений, уже лежащих в палитре: без смены формата
+            results.time(prefix + "set", ACCESSES, () -> {
+                long sum = 0;
+                for (int i = 0; i < ACCESSES; i++) {
+                    int index = indices[i];
+                    sum += container.set(index, ids[(index + i) & (PalettedContainer.SIZE - 1)]);
+                }
+                return sum;
+            });
+            
+            results.add(prefix + "containerBytes", container.getMemoryUsage(), "B");
+            ChunkSection probe = new ChunkSection(0);
+            probe.setBlocks(ids);
+            results.add(prefix + "sectionBytes", probe.getMemoryUsage(), "B");
+            long retained = results.retainedBytes(() -> {
+                ChunkSection[] sections = new ChunkSection[SECTIONS];
+                for (int i = 0; i < SECTIONS; i++) {
+                    sections[i] = new ChunkSection(0);
+                    sections[i].setBlocks(ids);
+                }
+                return sections;
+            });
+            results.add(prefix + "sectionRetainedBytes", (double) retained / SECTIONS, "B");
+        }
+    }
+    
+    private static int[] ids(int distinct) {
+        int[] ids = new int[PalettedContainer.SIZE];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = 1 + (int) ((i * 2654435761L) % distinct);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,400 @@
+package com.rivet.game.benchmark.headless;
+
+import com.rivet.engine.path.Path;
+import com.rivet.engine.path.PathFinder;
+import com.rivet.engine.path.PathRequest;
+import com.rivet.engine.path.PathfindingService;
+import com.rivet.engine.world.Blocks;
+import com.rivet.engine.world.Chunk;
+import com.rivet.engine.world.ChunkPos;
+import com.rivet.engine.world.World;
+import com.rivet.engine.world.gen.TerrainGenerator;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Поиск пути: {@link PathFinder} против A* на PriorityQueue и HashMap
+ *
+ * Мир {@link #SIZE}x{@link #SIZE} чанков из генератора, {@link #QUERIES}
+ * пар старт-цель на поверхности. Базовая реализация использует те же
+ * правила переходов и ту же оценку, но объект на узел, HashMap по ключу
+ * позиции и PriorityQueue записей. Второй сценарий - {@link #MOBS} мобов,
+ * которые запрашивают пути через {@link PathfindingService}, затем правка
+ * блоков на части путей и повторный запрос всех путей.
+ */
+final class PathSuite implements BenchmarkSuite {
+    
+    private static final long SEED = 12345L;
+    private static final int SIZE = 8;
+    private static final int QUERIES = 64;
+    private static final int MAX_NODES = 4096;
+    private static final int MOBS = 500;
+    private static final int TARGETS = 8;
+    private static final int NODES_PER_TICK = 16384;
+    
+    @Override
+    public String getName() {
+        return "path";
+    }
+    
+    @Override
+    public void run(SuiteResults results) throws Exception {
+        World world = new World();
+        TerrainGenerator generator = new TerrainGenerator(SEED);
+        int half = SIZE / 2;
+        for (int chunkZ = -half; chunkZ < half; chunkZ++) {
+            for (int chunkX = -half; chunkX < half; chunkX++) {
+                world.putChunk(generator.generate(chunkX, chunkZ));
+            }
+        }
+        
+        PathFinder finder = new PathFinder(world);
+        Random random = new Random(SEED);
+        int[][] queries = new int[QUERIES][];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = pair(finder, world, random, half * 16 - 2, 12, 40);
+        }
+        
+        Baseline baseline = new Baseline(world);
+        long expanded = 0;
+        int mismatches = 0;
+        for (int[] q : queries) {
+            Path path = finder.find(q[0], q[1], q[2], q[3], q[4], q[5], MAX_NODES);
+            int baselineCost = baseline.find(q[0], q[1], q[2], q[3], q[4], q[5], MAX_NODES);
+            expanded += path.getExpandedNodes();
+            // Стоимость полного пути у обеих реализаций должна совпадать
+            if (path.isComplete() && baselineCost != cost(path)) {
+                mismatches++;
+            }
+        }
+        results.add("expandedPerSearch", (double) expanded / QUERIES, "nodes");
+        results.add("costMismatches", mismatches, "paths");
+        
+        double finderNanos = results.time("pathFinderSearch", QUERIES, () -> {
+            long sum = 0;
+            for (int[] q : queries) {
+                sum += finder.find(q[0], q[1], q[2], q[3], q[4], q[5], MAX_NODES).length();
+            }
+            return sum;
+        });
+        double baselineNanos = results.time("baselineSearch", QUERIES, () -> {
+            long sum = 0;
+            for (int[] q : queries) {
+                sum += baseline.find(q[0], q[1], q[2], q[3], q[4], q[5], MAX_NODES);
+            }
+            return sum;
+        });
+        results.add("baselineToFinderRatio", baselineNanos / finderNanos, "x");
+        results.add("pathFinderAllocatedPerSearch", (double) results.allocatedBytes(() -> {
+            for (int[] q : queries) {
+                finder.find(q[0], q[1], q[2], q[3], q[4], q[5], MAX_NODES);
+            }
+        }) / QUERIES, "B");
+        results.add("baselineAllocatedPerSearch", (double) results.allocatedBytes(() -> {
+            for (int[] q : queries) {
+                baseline.find(q[0], q[1], q[2], q[3], q[4], q[5], MAX_NODES);
+            }
+        }) / QUERIES, "B");
+        
+        replan(results, world, finder, random, half);
+    }
+    
+    /**
+     * {@link #MOBS} мобов идут к {@link #TARGETS} общим целям, после правки блоков - повторный запрос
+     */
+    private static void replan(SuiteResults results, World world, PathFinder finder, Random random, int half) throws InterruptedException {
+        int[][] targets = new int[TARGETS][];
+        for (int i = 0; i < TARGETS; i++) {
+            targets[i] = pair(finder, world, random, half * 16 - 2, 0, Integer.MAX_VALUE);
+        }
+        int[][] mobs = new int[MOBS][];
+        for (int i = 0; i < MOBS; i++) {
+            int[] target = targets[i % TARGETS];
+            mobs[i] = pair(finder, world, random, half * 16 - 2, 0, Integer.MAX_VALUE);
+            mobs[i][3] = target[0];
+            mobs[i][4] = target[1];
+            mobs[i][5] = target[2];
+        }
+        
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+        PathfindingService service = new PathfindingService(world, threads, NODES_PER_TICK, 512);
+        world.addBlockChangeListener(service);
+        world.addChunkListener(service);
+        try {
+            Path[] paths = new Path[MOBS];
+            long start = System.nanoTime();
+            long nodes = wave(service, mobs, paths);
+            results.add("replanWaveMillis", (System.nanoTime() - start) / 1.0e6, "ms");
+            results.add("replanWaveTicks", Math.ceil((double) nodes / NODES_PER_TICK), "ticks");
+            
+            // Столб на середине каждого восьмого пути: эти пути выпадают из кэша
+            for (int i = 0; i < MOBS; i += 8) {
+                Path path = paths[i];
+                if (path != null && path.length() > 2) {
+                    int middle = path.length() / 2;
+                    world.setBlock(path.getX(middle), path.getY(middle), path.getZ(middle), Blocks.STONE_ID);
+                }
+            }
+            service.update();
+            long hits = service.getCacheHits();
+            start = System.nanoTime();
+            nodes = wave(service, mobs, paths);
+            results.add("replanAfterEditMillis", (System.nanoTime() - start) / 1.0e6, "ms");
+            results.add("replanAfterEditTicks", Math.ceil((double) nodes / NODES_PER_TICK), "ticks");
+            results.add("replanCacheHitRatio", (double) (service.getCacheHits() - hits) / MOBS, "ratio");
+            results.add("cachedPaths", service.getCachedCount(), "paths");
+        } finally {
+            world.removeBlockChangeListener(service);
+            world.removeChunkListener(service);
+            service.shutdown();
+        }
+    }
+    
+    /**
+     * Запросить пути всех мобов и выдавать бюджет, пока все не будут готовы
+     * @return раскрыто узлов поисками (без попаданий в кэш)
+     */
+    private static long wave(PathfindingService service, int[][] mobs, Path[] paths) throws InterruptedException {
+        PathRequest[] requests = new PathRequest[mobs.length];
+        for (int i = 0; i < mobs.length; i++) {
+            int[] m = mobs[i];
+            requests[i] = service.submit(m[0], m[1], m[2], m[3], m[4], m[5]);
+        }
+        long nodes = 0;
+        for (int i = 0; i < mobs.length; i++) {
+            boolean cached = requests[i].isDone();
+            while (!requests[i].isDone()) {
+                service.update();
+                Thread.sleep(0, 100_000);
+            }
+            paths[i] = requests[i].getPath();
+            if (!cached && paths[i] != null) {
+                nodes += paths[i].getExpandedNodes();
+            }
+        }
+        // Перенести готовые пути в кэш
+        service.update();
+        return nodes;
+    }
+    
+    /**
+     * Случайная пара стоячих позиций на поверхности
+     * @return { startX, startY, startZ, goalX, goalY, goalZ }
+     */
+    private static int[] pair(PathFinder finder, World world, Random random, int range,
+                              int minDistance, int maxDistance) {
+        while (true) {
+            int sx = random.nextInt(range * 2) - range;
+            int sz = random.nextInt(range * 2) - range;
+            int gx = random.nextInt(range * 2) - range;
+            int gz = random.nextInt(range * 2) - range;
+            int distance = Math.max(Math.abs(gx - sx), Math.abs(gz - sz));
+            if (distance < minDistance || distance > maxDistance) {
+                continue;
+            }
+            int sy = surface(world, sx, sz) + 1;
+            int gy = surface(world, gx, gz) + 1;
+            if (finder.isStandable(sx, sy, sz) && finder.isStandable(gx, gy, gz)) {
+                return new int[] { sx, sy, sz, gx, gy, gz };
+            }
+        }
+    }
+    
+    /**
+     * Верхний непрозрачный блок колонны загруженного мира
+     */
+    private static int surface(World world, int x, int z) {
+        for (int y = Chunk.HEIGHT - 1; y > 0; y--) {
+            if (Blocks.isOpaque(world.getBlock(x, y, z))) {
+                return y;
+            }
+        }
+        return 0;
+    }
+    
+    /**
+     * Стоимость пути по тем же весам шагов, что у PathFinder
+     */
+    private static int cost(Path path) {
+        int total = 0;
+        for (int i = 1; i < path.length(); i++) {
+            int dx = Math.abs(path.getX(i) - path.getX(i - 1));
+            int dz = Math.abs(path.getZ(i) - path.getZ(i - 1));
+            int dy = Math.abs(path.getY(i) - path.getY(i - 1));
+            total += (dx + dz == 2 ? Baseline.DIAGONAL_COST : Baseline.STRAIGHT_COST) + Baseline.VERTICAL_COST * dy;
+        }
+        return total;
+    }
+    
+    /**
+     * A* в стиле учебника: объект на узел, HashMap и PriorityQueue
+     */
+    private static final class Baseline {
+        
+        static final int STRAIGHT_COST = 10;
+        static final int DIAGONAL_COST = 14;
+        static final int VERTICAL_COST = 4;
+        
+        private static final int[] DIRECTION_X = { 1, -1, 0, 0, 1, 1, -1, -1 };
+        private static final int[] DIRECTION_Z = { 0, 0, 1, -1, 1, -1, 1, -1 };
+        
+        private static final class Node {
+            final int x, y, z;
+            int cost = Integer.MAX_VALUE;
+            boolean closed;
+            
+            Node(int x, int y, int z) {
+                this.x = x;
+                this.y = y;
+                this.z = z;
+            }
+        }
+        
+        private record Open(Node node, int cost, int total, int estimate) {
+        }
+        
+        private final World world;
+        private Chunk lastChunk;
+        private int goalX, goalY, goalZ;
+        private Map<Long, Node> nodes;
+        private PriorityQueue<Open> open;
+        
+        Baseline(World world) {
+            this.world = world;
+        }
+        
+        /**
+         * @return стоимость пути до цели или -1 если цель не достигнута
+         */
+        int find(int startX, int startY, int startZ, int goalX, int goalY, int goalZ, int maxNodes) {
+            this.goalX = goalX;
+            this.goalY = goalY;
+            this.goalZ = goalZ;
+            lastChunk = null;
+            nodes = new HashMap<>();
+            open = new PriorityQueue<>((a, b) -> a.total != b.total
+                ? Integer.compare(a.total, b.total) : Integer.compare(a.estimate, b.estimate));
+            Node start = node(startX, startY, startZ);
+            start.cost = 0;
+            int estimate = estimate(startX, startY, startZ);
+            open.add(new Open(start, 0, estimate, estimate));
+            int expanded = 0;
+            while (!open.isEmpty() && expanded < maxNodes) {
+                Open entry = open.poll();
+                Node current = entry.node;
+                if (current.closed || entry.cost != current.cost) {
+                    continue;
+                }
+                current.closed = true;
+                expanded++;
+                if (current.x == goalX && current.y == goalY && current.z == goalZ) {
+                    return current.cost;
+                }
+                expand(current);
+            }
+            return -1;
+        }
+        
+        private Node node(int x, int y, int z) {
+            return nodes.computeIfAbsent(ChunkPos.packSection(x, y, z), key -> new Node(x, y, z));
+        }
+        
+        private void expand(Node node) {
+            int x = node.x;
+            int y = node.y;
+            int z = node.z;
+            boolean headroom = isPassable(x, y + 2, z);
+            boolean[] free = new boolean[4];
+            for (int d = 0; d < 4; d++) {
+                int nextX = x + DIRECTION_X[d];
+                int nextZ = z + DIRECTION_Z[d];
+                if (!isPassable(nextX, y, nextZ) || !isPassable(nextX, y + 1, nextZ)) {
+                    if (headroom && isStandable(nextX, y + 1, nextZ)) {
+                        relax(node, nextX, y + 1, nextZ, STRAIGHT_COST + VERTICAL_COST);
+                    }
+                    continue;
+                }
+                free[d] = true;
+                if (isSolid(nextX, y - 1, nextZ)) {
+                    relax(node, nextX, y, nextZ, STRAIGHT_COST);
+                    continue;
+                }
+                for (int drop = 1; drop <= PathFinder.MAX_DROP; drop++) {
+                    int landY = y - drop;
+                    if (!isPassable(nextX, landY, nextZ)) {
+                        break;
+                    }
+                    if (isSolid(nextX, landY - 1, nextZ)) {
+                        relax(node, nextX, landY, nextZ, STRAIGHT_COST + VERTICAL_COST * drop);
+                        break;
+                    }
+                }
+            }
+            for (int d = 4; d < DIRECTION_X.length; d++) {
+                boolean sideX = free[DIRECTION_X[d] > 0 ? 0 : 1];
+                boolean sideZ = free[DIRECTION_Z[d] > 0 ? 2 : 3];
+                int nextX = x + DIRECTION_X[d];
+                int nextZ = z + DIRECTION_Z[d];
+                if (sideX && sideZ && isStandable(nextX, y, nextZ)) {
+                    relax(node, nextX, y, nextZ, DIAGONAL_COST);
+                }
+            }
+        }
+        
+        private void relax(Node parent, int x, int y, int z, int step) {
+            Node next = node(x, y, z);
+            int cost = parent.cost + step;
+            if (next.closed || cost >= next.cost) {
+                return;
+            }
+            next.cost = cost;
+            int estimate = estimate(x, y, z);
+            open.add(new Open(next, cost, cost + estimate, estimate));
+        }
+        
+        private int estimate(int x, int y, int z) {
+            int dx = Math.abs(x - goalX);
+            int dz = Math.abs(z - goalZ);
+            return STRAIGHT_COST * Math.max(dx, dz) + (DIAGONAL_COST - STRAIGHT_COST) * Math.min(dx, dz)
+                + VERTICAL_COST * Math.abs(y - goalY);
+        }
+        
+        private boolean isStandable(int x, int y, int z) {
+            return isSolid(x, y - 1, z) && isPassable(x, y, z) && isPassable(x, y + 1, z);
+        }
+        
+        private boolean isPassable(int x, int y, int z) {
+            if (y < 0) {
+                return false;
+            }
+            if (y >= Chunk.HEIGHT) {
+                return true;
+            }
+            Chunk chunk = chunk(x, z);
+            return chunk != null && !Blocks.isOpaque(chunk.getBlock(x & 15, y, z & 15));
+        }
+        
+        private boolean isSolid(int x, int y, int z) {
+            if (y < 0) {
+                return true;
+            }
+            if (y >= Chunk.HEIGHT) {
+                return false;
+            }
+            Chunk chunk = chunk(x, z);
+            return chunk != null && Blocks.isOpaque(chunk.getBlock(x & 15, y, z & 15));
+        }
+        
+        private Chunk chunk(int x, int z) {
+            Chunk chunk = lastChunk;
+            if (chunk == null || chunk.getChunkX() != x >> 4 || chunk.getChunkZ() != z >> 4) {
+                chunk = world.getChunk(x >> 4, z >> 4);
+                lastChunk = chunk;
+            }
+            return chunk;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.rivet.game.benchmark.headless;
+
+import com.rivet.engine.render.RenderQueue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Очередь отрисовки: сортировка 10k-100k элементов
+ *
+ * Ключи строятся как в кадре: три слоя, 8 программ, 64 текстуры, случайная
+ * глубина. Сравниваются поразрядная сортировка очереди и Arrays.sort тех же
+ * ключей, а также полный путь submit() + sort() без OpenGL.
+ */
+final class RenderQueueSuite implements BenchmarkSuite {
+    
+    private static final int[] SIZES = { 10_000, 25_000, 50_000, 100_000 };
+    private static final RenderQueue.DrawCommand NOOP = payload -> { };
+    
+    @Override
+    public String getName() {
+        return "renderqueue";
+    }
+    
+    @Override
+    public void run(SuiteResults results) {
+        // Первый проход по всем размерам - прогрев JIT, записывается второй
+        measure(results, false);
+        measure(results, true);
+    }
+    
+    private static void measure(SuiteResults results, boolean record) {
+        Random random = new Random(34);
+        for (int size : SIZES) {
+            int[] layer = new int[size];
+            int[] program = new int[size];
+            int[] texture = new int[size];
+            float[] depth = new float[size];
+            long[] source = new long[size];
+            for (int i = 0; i < size; i++) {
+                layer[i] = random.nextInt(3);
+                program[i] = 1 + random.nextInt(8);
+                texture[i] = 1 + random.nextInt(64);
+                depth[i] = random.nextFloat() * 1024.0f;
+                source[i] = RenderQueue.makeKey(layer[i], program[i] - 1, texture[i] - 1,
+                    (int) (depth[i] / 1024.0f * ((1 << 24) - 1)));
+            }
+            
+            long[] keys = new long[size];
+            int[] values = new int[size];
+            long[] scratchKeys = new long[size];
+            int[] scratchValues = new int[size];
+            int[] histograms = new int[8 * 256];
+            String prefix = size / 1000 + "k.";
+            
+            long radix = results.medianNanos(() -> {
+                System.arraycopy(source, 0, keys, 0, size);
+                for (int i = 0; i < size; i++) {
+                    values[i] = i;
+                }
+                RenderQueue.radixSort(keys, values, scratchKeys, scratchValues, histograms, size);
+                return keys[size / 2] + values[0];
+            });
+            long arrays = results.medianNanos(() -> {
+                System.arraycopy(source, 0, keys, 0, size);
+                Arrays.sort(keys, 0, size);
+                return keys[size / 2];
+            });
+            
+            RenderQueue queue = new RenderQueue(size);
+            long submit = results.medianNanos(() -> {
+                for (int i = 0; i < size; i++) {
+                    queue.submit(layer[i], program[i], texture[i], depth[i], NOOP, i);
+                }
+                queue.sort();
+                long sorted = queue.getLastSortNanos();
+                queue.clear();
+                return sorted;
+            });
+            
+            if (!record) {
+                continue;
+            }
+            results.add(prefix + "radixSort", radix / 1.0e6, "ms");
+            results.add(prefix + "arraysSort", arrays / 1.0e6, "ms");
+            results.add(prefix + "radixItemsPerSecond", size * 1.0e9 / radix, "items/s");
+            results.add(prefix + "submitAndSort", submit / 1.0e6, "ms");
+        }
+    }
+}
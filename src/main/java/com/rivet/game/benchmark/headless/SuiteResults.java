@@ -0,0 +1,125 @@
+package com.rivet.game.benchmark.headless;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Метрики одного набора и вспомогательные замеры
+ *
+ * Время операции - медиана {@link #ROUNDS} повторов после {@link #WARMUP_ROUNDS}
+ * повторов прогрева; результат тела замера накапливается, чтобы JIT не
+ * выбросил вычисления. Выделения считаются по текущему потоку, удерживаемая
+ * память - по занятой куче после сборки мусора.
+ */
+public final class SuiteResults {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SuiteResults.class);
+    
+    public static final int WARMUP_ROUNDS = 10;
+    public static final int ROUNDS = 15;
+    
+    private final String suite;
+    private final ObjectNode metrics;
+    private final com.sun.management.ThreadMXBean threads;
+    private final boolean allocationSupported;
+    private long sink = 0;
+    
+    SuiteResults(String suite, ObjectNode metrics) {
+        this.suite = suite;
+        this.metrics = metrics;
+        this.threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        this.allocationSupported = threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled();
+    }
+    
+    /**
+     * Записать метрику
+     * @param metric имя метрики
+     * @param value значение
+     * @param unit единицы измерения
+     */
+    public void add(String metric, double value, String unit) {
+        ObjectNode node = metrics.putObject(metric);
+        node.put("value", value);
+        node.put("unit", unit);
+        logger.info("{} {}: {} {}", suite, metric, String.format("%.3f", value), unit);
+    }
+    
+    /**
+     * Замерить медианное время прогона
+     * @param body прогон; возвращает значение, зависящее от результата работы
+     * @return медиана в наносекундах
+     */
+    public long medianNanos(LongSupplier body) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            sink += body.getAsLong();
+        }
+        long[] samples = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            sink += body.getAsLong();
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[ROUNDS / 2];
+    }
+    
+    /**
+     * Замерить и записать время одной операции
+     * @param metric имя метрики
+     * @param operations количество операций в одном прогоне
+     * @param body прогон
+     * @return наносекунды на операцию
+     */
+    public double time(String metric, int operations, LongSupplier body) {
+        double nanos = (double) medianNanos(body) / operations;
+        add(metric, nanos, "ns/op");
+        return nanos;
+    }
+    
+    /**
+     * Замерить выделения в куче текущим потоком
+     * @param body действие
+     * @return байты (0 если счетчик не поддерживается)
+     */
+    public long allocatedBytes(Runnable body) {
+        long start = allocationSupported ? threads.getCurrentThreadAllocatedBytes() : 0;
+        body.run();
+        return allocationSupported ? threads.getCurrentThreadAllocatedBytes() - start : 0;
+    }
+    
+    /**
+     * Замерить память, удерживаемую построенными объектами (по занятой куче после сборки мусора)
+     * @param build построение; результат удерживается до второго замера
+     * @return байты
+     */
+    public long retainedBytes(Supplier<?> build) {
+        long before = usedHeapAfterGc();
+        Object retained = build.get();
+        long after = usedHeapAfterGc();
+        Reference.reachabilityFence(retained);
+        return after - before;
+    }
+    
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+    
+    public boolean isAllocationSupported() {
+        return allocationSupported;
+    }
+    
+    long getSink() {
+        return sink;
+    }
+}
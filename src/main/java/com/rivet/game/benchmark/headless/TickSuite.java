@@ -0,0 +1,103 @@
+package com.rivet.game.benchmark.headless;
+
+import com.rivet.engine.world.Blocks;
+import com.rivet.engine.world.Chunk;
+import com.rivet.engine.world.World;
+import com.rivet.engine.world.gen.TerrainGenerator;
+import com.rivet.engine.world.tick.BlockTicks;
+import com.rivet.engine.world.tick.GrassTickHandler;
+
+/**
+ * Тики блоков: стоимость тика от числа активных секций
+ *
+ * Сгенерированные миры {@link #SIZES} чанков тикаются {@link #TICKS} тиков
+ * подряд одним потоком и всеми ядрами; время тика делится на число активных
+ * секций. Мир того же размера из одного камня не содержит активных секций,
+ * и его тик должен стоить почти ноль независимо от размера.
+ */
+final class TickSuite implements BenchmarkSuite {
+    
+    private static final long SEED = 12345L;
+    private static final int[] SIZES = { 5, 9, 13 };
+    private static final int TICKS = 20;
+    private static final int RANDOM_TICKS = 3;
+    
+    @Override
+    public String getName() {
+        return "tick";
+    }
+    
+    @Override
+    public void run(SuiteResults results) {
+        TerrainGenerator generator = new TerrainGenerator(SEED);
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int size : SIZES) {
+            World world = generated(generator, size);
+            measure(results, "generated" + size, world, 1);
+            measure(results, "generated" + size + "Parallel", world, cores);
+        }
+        int largest = SIZES[SIZES.length - 1];
+        measure(results, "stone" + largest, stone(largest), cores);
+        results.add("threads", cores, "threads");
+    }
+    
+    /**
+     * Подключить тики к миру, замерить тик и отключить
+     */
+    private static void measure(SuiteResults results, String name, World world, int threads) {
+        BlockTicks ticks = new BlockTicks(world, SEED, threads, RANDOM_TICKS);
+        ticks.register(Blocks.GRASS_ID, new GrassTickHandler());
+        world.addBlockChangeListener(ticks);
+        world.addChunkListener(ticks);
+        world.forEachChunk((key, chunk) -> ticks.onChunkLoaded(chunk));
+        try {
+            // Активные секции считаются во время тика
+            ticks.update();
+            int sections = ticks.getActiveSectionCount();
+            double nanos = results.time(name + "Tick", TICKS, () -> {
+                for (int i = 0; i < TICKS; i++) {
+                    ticks.update();
+                }
+                return ticks.getLastRandomTicks() + ticks.getLastScheduledTicks();
+            });
+            results.add(name + "ActiveSections", sections, "sections");
+            if (sections > 0) {
+                results.add(name + "PerSection", nanos / sections, "ns/section");
+            }
+        } finally {
+            world.removeBlockChangeListener(ticks);
+            world.removeChunkListener(ticks);
+            ticks.shutdown();
+        }
+    }
+    
+    private static World generated(TerrainGenerator generator, int size) {
+        World world = new World();
+        int half = size / 2;
+        for (int chunkZ = -half; chunkZ <= half; chunkZ++) {
+            for (int chunkX = -half; chunkX <= half; chunkX++) {
+                world.putChunk(generator.generate(chunkX, chunkZ));
+            }
+        }
+        return world;
+    }
+    
+    private static World stone(int size) {
+        World world = new World();
+        int half = size / 2;
+        for (int chunkZ = -half; chunkZ <= half; chunkZ++) {
+            for (int chunkX = -half; chunkX <= half; chunkX++) {
+                Chunk chunk = new Chunk(chunkX, chunkZ);
+                for (int x = 0; x < 16; x++) {
+                    for (int z = 0; z < 16; z++) {
+                        for (int y = 0; y < 64; y++) {
+                            chunk.setBlock(x, y, z, Blocks.STONE_ID);
+                        }
+                    }
+                }
+                world.putChunk(chunk);
+            }
+        }
+        return world;
+    }
+}
@@ -0,0 +1,17 @@
+#version 330 core
+
+in vec2 texCoord;
+in vec4 color;
+
+uniform sampler2D page;
+
+out vec4 FragColor;
+
+void main()
+{
+    vec4 texel = texture(page, texCoord) * color;
+    if (texel.a < 0.02) {
+        discard;
+    }
+    FragColor = texel;
+}
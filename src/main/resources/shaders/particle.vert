@@ -0,0 +1,28 @@
+#version 330 core
+
+// Угол четырехугольника (-0.5..0.5) и экземпляр частицы (см. ParticleSystem.INSTANCE_BYTES)
+layout (location = 0) in vec2 aCorner;
+layout (location = 1) in vec4 aPositionSize;
+layout (location = 2) in vec4 aColor;
+layout (location = 3) in uint aTile;
+layout (location = 4) in float aFade;
+
+uniform mat4 viewProjection;
+uniform vec3 cameraRight;
+uniform vec3 cameraUp;
+uniform float pageTiles;
+
+out vec2 texCoord;
+out vec4 color;
+
+void main()
+{
+    // Четырехугольник всегда повернут к камере
+    vec3 offset = (cameraRight * aCorner.x + cameraUp * aCorner.y) * aPositionSize.w;
+    gl_Position = viewProjection * vec4(aPositionSize.xyz + offset, 1.0);
+    
+    float tile = float(aTile);
+    vec2 tileOrigin = vec2(mod(tile, pageTiles), floor(tile / pageTiles));
+    texCoord = (tileOrigin + vec2(aCorner.x + 0.5, 0.5 - aCorner.y)) / pageTiles;
+    color = vec4(aColor.rgb, aColor.a * aFade);
+}
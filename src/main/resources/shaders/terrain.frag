@@ -0,0 +1,19 @@
+#version 330 core
+
+in vec2 texCoord;
+flat in float tile;
+in float shade;
+
+uniform sampler2D atlas;
+uniform float atlasTiles;
+
+out vec4 FragColor;
+
+void main()
+{
+    // Повтор плитки внутри объединенной грани
+    vec2 tileOrigin = vec2(mod(tile, atlasTiles), floor(tile / atlasTiles));
+    vec2 uv = (tileOrigin + fract(texCoord)) / atlasTiles;
+    vec4 color = texture(atlas, uv);
+    FragColor = vec4(color.rgb * shade, color.a);
+}
@@ -0,0 +1,43 @@
+#version 330 core
+
+// Упакованная вершина (см. TerrainVertexFormat):
+// x = позиция xyz по 5 бит, нормаль 3 бита, угол 2 бита, ao 2 бита
+// y = плитка атласа 16 бит, небесный свет 4 бита, свет блоков 4 бита
+layout (location = 0) in uvec2 aPacked;
+layout (location = 4) in vec3 aSectionOrigin;
+
+uniform mat4 viewProjection;
+
+out vec2 texCoord;
+flat out float tile;
+out float shade;
+
+const float FACE_SHADE[6] = float[6](0.8, 0.8, 0.5, 1.0, 0.6, 0.6);
+const float AO_CURVE[4] = float[4](0.45, 0.65, 0.85, 1.0);
+
+void main()
+{
+    uint word0 = aPacked.x;
+    uint word1 = aPacked.y;
+    
+    vec3 pos = vec3(float(word0 & 31u), float((word0 >> 5u) & 31u), float((word0 >> 10u) & 31u));
+    uint normal = (word0 >> 15u) & 7u;
+    uint ao = (word0 >> 20u) & 3u;
+    
+    float skyLight = float((word1 >> 16u) & 15u) / 15.0;
+    float blockLight = float((word1 >> 20u) & 15u) / 15.0;
+    
+    // Текстурные координаты в блоках по осям грани, повтор плитки - во фрагментном шейдере
+    uint axis = normal >> 1u;
+    if (axis == 0u) {
+        texCoord = vec2(pos.z, 16.0 - pos.y);
+    } else if (axis == 1u) {
+        texCoord = pos.xz;
+    } else {
+        texCoord = vec2(pos.x, 16.0 - pos.y);
+    }
+    
+    gl_Position = viewProjection * vec4(aSectionOrigin + pos, 1.0);
+    tile = float(word1 & 0xFFFFu);
+    shade = FACE_SHADE[normal] * AO_CURVE[ao] * mix(0.08, 1.0, max(skyLight, blockLight));
+}
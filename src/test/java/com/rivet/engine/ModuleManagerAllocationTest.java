@@ -0,0 +1,116 @@
+package com.rivet.engine;
+
+import com.rivet.engine.modules.GameModule;
+import com.rivet.engine.util.AllocationMeter;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Бюджет выделений: обход модулей в каждом тике и кадре
+ */
+class ModuleManagerAllocationTest {
+    
+    /**
+     * Модуль без собственных выделений: считает вызовы
+     */
+    private static final class CountingModule implements GameModule {
+        final String name;
+        final boolean initialized;
+        long updates = 0;
+        long renders = 0;
+        long publishes = 0;
+        long consumes = 0;
+        
+        CountingModule(String name, boolean initialized) {
+            this.name = name;
+            this.initialized = initialized;
+        }
+        
+        @Override
+        public void initialize() {
+        }
+        
+        @Override
+        public void update(float deltaTime) {
+            updates++;
+        }
+        
+        @Override
+        public void render(float partialTicks) {
+            renders++;
+        }
+        
+        @Override
+        public void publish(FrameSnapshot snapshot) {
+            publishes++;
+        }
+        
+        @Override
+        public void consume(FrameSnapshot snapshot) {
+            consumes++;
+        }
+        
+        @Override
+        public void cleanup() {
+        }
+        
+        @Override
+        public boolean isInitialized() {
+            return initialized;
+        }
+        
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+    
+    private static ModuleManager createManager(CountingModule... modules) {
+        ModuleManager manager = new ModuleManager();
+        for (CountingModule module : modules) {
+            manager.addModule(module);
+        }
+        return manager;
+    }
+    
+    @Test
+    void updateAllDoesNotAllocate() {
+        CountingModule world = new CountingModule("World", true);
+        CountingModule physics = new CountingModule("Physics", true);
+        CountingModule disabled = new CountingModule("Disabled", false);
+        ModuleManager manager = createManager(world, physics, disabled);
+        
+        AllocationMeter.assertNoAllocation("ModuleManager.updateAll", () -> manager.updateAll(1.0f / 20.0f));
+        assertEquals(world.updates, physics.updates);
+        assertEquals(0, disabled.updates);
+    }
+    
+    @Test
+    void renderAllDoesNotAllocate() {
+        CountingModule chunks = new CountingModule("Chunks", true);
+        CountingModule particles = new CountingModule("Particles", true);
+        CountingModule disabled = new CountingModule("Disabled", false);
+        ModuleManager manager = createManager(chunks, particles, disabled);
+        
+        AllocationMeter.assertNoAllocation("ModuleManager.renderAll", () -> manager.renderAll(0.5f));
+        assertEquals(chunks.renders, particles.renders);
+        assertEquals(0, disabled.renders);
+    }
+    
+    @Test
+    void publishAllAndConsumeAllDoNotAllocate() {
+        CountingModule chunks = new CountingModule("Chunks", true);
+        CountingModule entities = new CountingModule("Entities", true);
+        CountingModule disabled = new CountingModule("Disabled", false);
+        ModuleManager manager = createManager(chunks, entities, disabled);
+        FrameSnapshot snapshot = new FrameSnapshot();
+        
+        AllocationMeter.assertNoAllocation("ModuleManager.publishAll", () -> manager.publishAll(snapshot));
+        AllocationMeter.assertNoAllocation("ModuleManager.consumeAll", () -> manager.consumeAll(snapshot));
+        assertEquals(chunks.publishes, entities.publishes);
+        assertEquals(chunks.consumes, entities.consumes);
+        assertEquals(0, disabled.publishes);
+        assertEquals(0, disabled.consumes);
+    }
+}
@@ -0,0 +1,171 @@
+package com.rivet.engine;
+
+import com.rivet.engine.render.Camera;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotExchangeTest {
+    
+    private static final long TICK_NANOS = 50_000_000L;
+    
+    /**
+     * Опубликовать тик с событиями, ключи которых идут подряд с first
+     */
+    private static void publishTick(SnapshotExchange exchange, long first, int count) {
+        FrameSnapshot snapshot = exchange.beginTick(TICK_NANOS);
+        for (int i = 0; i < count; i++) {
+            snapshot.addEvent(FrameSnapshot.EVENT_SECTION_DIRTY, first + i, (int) (first + i));
+        }
+        exchange.publish();
+    }
+    
+    @Test
+    void eventsAreNewOnlyUntilReleased() {
+        SnapshotExchange exchange = new SnapshotExchange();
+        publishTick(exchange, 0, 3);
+        
+        FrameSnapshot snapshot = exchange.acquire();
+        assertEquals(1, snapshot.getTick());
+        assertEquals(3, snapshot.getEventCount());
+        assertEquals(0, snapshot.getFirstNewEvent());
+        assertFalse(snapshot.isEventGap());
+        assertEquals(2, snapshot.getEventKey(2));
+        assertEquals(2, snapshot.getEventData(2));
+        exchange.release(snapshot);
+        
+        // Новых публикаций нет: тот же снимок, но все события уже обработаны
+        snapshot = exchange.acquire();
+        assertEquals(1, snapshot.getTick());
+        assertEquals(3, snapshot.getFirstNewEvent());
+        exchange.release(snapshot);
+        
+        // Подтвержденные события не копируются в следующий снимок
+        publishTick(exchange, 3, 1);
+        snapshot = exchange.acquire();
+        assertEquals(1, snapshot.getEventCount());
+        assertEquals(0, snapshot.getFirstNewEvent());
+        assertEquals(3, snapshot.getEventKey(0));
+        assertEquals(1, exchange.getPendingEventCount());
+    }
+    
+    @Test
+    void skippedFrameEventsAreCarriedToNextSnapshot() {
+        SnapshotExchange exchange = new SnapshotExchange();
+        publishTick(exchange, 0, 2);
+        // Потребитель не забрал тик 1: тик 2 несет события обоих
+        publishTick(exchange, 2, 1);
+        
+        FrameSnapshot snapshot = exchange.acquire();
+        assertEquals(2, snapshot.getTick());
+        assertEquals(0, snapshot.getEventStart());
+        assertEquals(3, snapshot.getEventCount());
+        assertEquals(0, snapshot.getFirstNewEvent());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i, snapshot.getEventKey(i));
+        }
+        exchange.release(snapshot);
+        
+        publishTick(exchange, 3, 2);
+        snapshot = exchange.acquire();
+        assertEquals(3, snapshot.getEventStart());
+        assertEquals(0, snapshot.getFirstNewEvent());
+        assertEquals(2, snapshot.getEventCount());
+    }
+    
+    @Test
+    void unreleasedSnapshotEventsStayPending() {
+        SnapshotExchange exchange = new SnapshotExchange();
+        publishTick(exchange, 0, 2);
+        FrameSnapshot first = exchange.acquire();
+        assertEquals(2, first.getEventCount());
+        
+        // Кадр еще не подтвердил события: следующий снимок повторяет их
+        publishTick(exchange, 2, 1);
+        exchange.release(first);
+        FrameSnapshot second = exchange.acquire();
+        assertEquals(0, second.getEventStart());
+        assertEquals(3, second.getEventCount());
+        // Первые два уже обработаны в прошлом кадре
+        assertEquals(2, second.getFirstNewEvent());
+        assertFalse(second.isEventGap());
+    }
+    
+    @Test
+    void overflowDropsOldestEventsAndReportsGap() {
+        SnapshotExchange exchange = new SnapshotExchange();
+        int overflow = 100;
+        int total = SnapshotExchange.MAX_PENDING_EVENTS + overflow;
+        for (int i = 0; i < total; i += 1000) {
+            publishTick(exchange, i, Math.min(1000, total - i));
+        }
+        assertEquals(SnapshotExchange.MAX_PENDING_EVENTS, exchange.getPendingEventCount());
+        assertEquals(overflow, exchange.getDroppedEventCount());
+        
+        FrameSnapshot snapshot = exchange.acquire();
+        assertTrue(snapshot.isEventGap());
+        assertEquals(overflow, snapshot.getEventStart());
+        assertEquals(0, snapshot.getFirstNewEvent());
+        assertEquals(overflow, snapshot.getEventKey(0));
+        assertEquals(total - 1, snapshot.getEventKey(snapshot.getEventCount() - 1));
+        exchange.release(snapshot);
+        
+        publishTick(exchange, total, 1);
+        snapshot = exchange.acquire();
+        assertFalse(snapshot.isEventGap());
+        assertEquals(1, snapshot.getEventCount());
+        assertEquals(0, exchange.getDroppedEventCount() - overflow);
+    }
+    
+    @Test
+    void concurrentConsumerReceivesEveryEventOnceInOrder() throws Exception {
+        SnapshotExchange exchange = new SnapshotExchange();
+        long totalEvents = 100_000;
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread producer = new Thread(() -> {
+            long key = 0;
+            while (key < totalEvents) {
+                FrameSnapshot snapshot = exchange.beginTick(TICK_NANOS);
+                float value = snapshot.getTick();
+                snapshot.setCamera(value, value, value, 0, 0, value, value, value, 0, 0);
+                // Не обгонять потребителя: пустые тики, пока журнал длинный
+                if (exchange.getPendingEventCount() < 1024) {
+                    for (int i = 0; i < 3 && key < totalEvents; i++) {
+                        snapshot.addEvent(FrameSnapshot.EVENT_BLOCK_CHANGED, key++);
+                    }
+                }
+                exchange.publish();
+            }
+        }, "SnapshotExchangeTest-producer");
+        producer.setUncaughtExceptionHandler((thread, e) -> failure.set(e));
+        producer.start();
+        
+        Camera camera = new Camera();
+        long expectedKey = 0;
+        long lastTick = 0;
+        while (expectedKey < totalEvents) {
+            FrameSnapshot snapshot = exchange.acquire();
+            assertFalse(snapshot.isEventGap());
+            assertTrue(snapshot.getTick() >= lastTick);
+            lastTick = snapshot.getTick();
+            if (lastTick > 0) {
+                // Камера записана тем же тиком, что и номер снимка
+                snapshot.applyCamera(camera, 1.0f);
+                assertEquals((float) lastTick, camera.getPosition().x);
+            }
+            for (int i = snapshot.getFirstNewEvent(); i < snapshot.getEventCount(); i++) {
+                assertEquals(expectedKey++, snapshot.getEventKey(i));
+            }
+            exchange.release(snapshot);
+            assertNull(failure.get());
+        }
+        producer.join();
+        assertNull(failure.get());
+        assertEquals(0, exchange.getDroppedEventCount());
+    }
+}
@@ -0,0 +1,90 @@
+package com.rivet.engine.audio;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FloatRingBufferTest {
+    
+    @Test
+    void capacityRoundsUpToPowerOfTwo() {
+        assertEquals(16, new FloatRingBuffer(1).capacity());
+        assertEquals(64, new FloatRingBuffer(50).capacity());
+        assertEquals(64, new FloatRingBuffer(64).capacity());
+    }
+    
+    @Test
+    void writeStopsWhenFullAndReadStopsWhenEmpty() {
+        FloatRingBuffer buffer = new FloatRingBuffer(16);
+        float[] source = new float[24];
+        for (int i = 0; i < source.length; i++) {
+            source[i] = i;
+        }
+        assertEquals(16, buffer.write(source, 0, 24));
+        assertEquals(0, buffer.free());
+        assertEquals(0, buffer.write(source, 16, 8));
+        
+        float[] target = new float[24];
+        assertEquals(16, buffer.read(target, 0, 24));
+        for (int i = 0; i < 16; i++) {
+            assertEquals(i, target[i]);
+        }
+        // Недобор: читатель получает 0, а не старые данные
+        assertEquals(0, buffer.read(target, 0, 8));
+        assertEquals(0, buffer.available());
+    }
+    
+    @Test
+    void dataSurvivesWrapAroundTheEnd() {
+        FloatRingBuffer buffer = new FloatRingBuffer(16);
+        float[] chunk = new float[11];
+        float[] target = new float[11];
+        float next = 0;
+        float expected = 0;
+        for (int round = 0; round < 100; round++) {
+            for (int i = 0; i < chunk.length; i++) {
+                chunk[i] = next++;
+            }
+            assertEquals(11, buffer.write(chunk, 0, 11));
+            int read = buffer.read(target, 0, 11);
+            assertEquals(11, read);
+            for (int i = 0; i < read; i++) {
+                assertEquals(expected++, target[i]);
+            }
+        }
+    }
+    
+    @Test
+    void concurrentReaderSeesOrderedStream() throws InterruptedException {
+        FloatRingBuffer buffer = new FloatRingBuffer(256);
+        int total = 1_000_000;
+        Thread writer = new Thread(() -> {
+            float[] chunk = new float[97];
+            int written = 0;
+            while (written < total) {
+                int length = Math.min(chunk.length, total - written);
+                for (int i = 0; i < length; i++) {
+                    chunk[i] = written + i;
+                }
+                int offset = 0;
+                while (offset < length) {
+                    offset += buffer.write(chunk, offset, length - offset);
+                    Thread.onSpinWait();
+                }
+                written += length;
+            }
+        });
+        writer.start();
+        float[] target = new float[61];
+        int received = 0;
+        while (received < total) {
+            int read = buffer.read(target, 0, target.length);
+            for (int i = 0; i < read; i++) {
+                assertEquals((float) (received + i), target[i]);
+            }
+            received += read;
+        }
+        writer.join();
+        assertEquals(0, buffer.available());
+    }
+}
@@ -0,0 +1,187 @@
+package com.rivet.engine.audio;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MixerTest {
+    
+    private static final int RATE = 44100;
+    private static final int BLOCK = 256;
+    
+    /**
+     * Клип постоянного уровня: интерполяция не меняет отсчеты
+     */
+    private static SoundClip constant(float level, int frames) {
+        float[] samples = new float[frames];
+        Arrays.fill(samples, level);
+        return new SoundClip(samples, 1, RATE);
+    }
+    
+    /**
+     * Источник, запоминающий закрытие
+     */
+    private static final class TrackedSource implements AudioSource {
+        private final AudioSource delegate;
+        boolean closed;
+        
+        TrackedSource(AudioSource delegate) {
+            this.delegate = delegate;
+        }
+        
+        @Override
+        public int getChannels() {
+            return delegate.getChannels();
+        }
+        
+        @Override
+        public int getSampleRate() {
+            return delegate.getSampleRate();
+        }
+        
+        @Override
+        public int read(float[] out, int offset, int frames) {
+            return delegate.read(out, offset, frames);
+        }
+        
+        @Override
+        public boolean isEnded() {
+            return delegate.isEnded();
+        }
+        
+        @Override
+        public void close() {
+            closed = true;
+            delegate.close();
+        }
+    }
+    
+    private static PcmBufferOutput render(Mixer mixer, int blocks) {
+        PcmBufferOutput output = new PcmBufferOutput(RATE, BLOCK * blocks);
+        float[] block = new float[BLOCK * 2];
+        for (int i = 0; i < blocks; i++) {
+            mixer.mix(block, BLOCK);
+            output.write(block, BLOCK);
+        }
+        return output;
+    }
+    
+    @Test
+    void voiceLimitStealsOldestOfEqualPriority() {
+        Mixer mixer = new Mixer(RATE, 2);
+        TrackedSource first = new TrackedSource(constant(0.1f, RATE).play());
+        TrackedSource second = new TrackedSource(constant(0.1f, RATE).play());
+        TrackedSource third = new TrackedSource(constant(0.1f, RATE).play());
+        mixer.play(first, 50, 1.0f, 0.0f);
+        mixer.play(second, 50, 1.0f, 0.0f);
+        render(mixer, 1);
+        mixer.play(third, 50, 1.0f, 0.0f);
+        render(mixer, 1);
+        
+        assertEquals(2, mixer.getActiveVoices());
+        assertEquals(1, mixer.getStolenVoices());
+        assertTrue(first.closed);
+        assertFalse(second.closed);
+        assertFalse(third.closed);
+    }
+    
+    @Test
+    void lowerPriorityIsRejectedAndHigherStealsLowest() {
+        Mixer mixer = new Mixer(RATE, 2);
+        TrackedSource ambient = new TrackedSource(constant(0.1f, RATE).play());
+        TrackedSource ui = new TrackedSource(constant(0.1f, RATE).play());
+        mixer.play(ambient, 0, 1.0f, 0.0f);
+        mixer.play(ui, 100, 1.0f, 0.0f);
+        render(mixer, 1);
+        
+        // Все голоса заняты, но у ambient приоритет ниже - он вытесняется
+        TrackedSource world = new TrackedSource(constant(0.1f, RATE).play());
+        mixer.play(world, 50, 1.0f, 0.0f);
+        render(mixer, 1);
+        assertTrue(ambient.closed);
+        assertEquals(1, mixer.getStolenVoices());
+        
+        // Новый звук с приоритетом ниже всех звучащих отклоняется
+        TrackedSource rejected = new TrackedSource(constant(0.1f, RATE).play());
+        mixer.play(rejected, 0, 1.0f, 0.0f);
+        render(mixer, 1);
+        assertTrue(rejected.closed);
+        assertEquals(1, mixer.getRejectedSounds());
+        assertFalse(ui.closed);
+        assertFalse(world.closed);
+    }
+    
+    @Test
+    void voicesAreSummedWithVolumeAndPan() {
+        Mixer mixer = new Mixer(RATE, 4);
+        mixer.play(constant(0.25f, RATE).play(), 50, 0.5f, 0.0f);
+        mixer.play(constant(0.25f, RATE).play(), 50, 1.0f, 0.0f);
+        // Панорама вправо: левый канал не получает этот голос
+        mixer.play(constant(0.2f, RATE).play(), 50, 1.0f, 1.0f);
+        PcmBufferOutput output = render(mixer, 4);
+        
+        short[] samples = output.getSamples();
+        assertEquals(BLOCK * 4, output.getFrameCount());
+        short left = PcmBufferOutput.toPcm16(0.25f * 0.5f + 0.25f);
+        short right = PcmBufferOutput.toPcm16(0.25f * 0.5f + 0.25f + 0.2f);
+        for (int f = 0; f < output.getFrameCount(); f++) {
+            assertEquals(left, samples[f * 2], "left frame " + f);
+            assertEquals(right, samples[f * 2 + 1], "right frame " + f);
+        }
+        
+        mixer.setMasterVolume(0.5f);
+        output = render(mixer, 1);
+        assertEquals(PcmBufferOutput.toPcm16((0.25f * 0.5f + 0.25f) * 0.5f), output.getSamples()[0]);
+    }
+    
+    @Test
+    void clippingIsClampedAndEndedVoicesAreReleased() {
+        Mixer mixer = new Mixer(RATE, 4);
+        mixer.play(constant(0.8f, BLOCK * 2).play(), 50, 1.0f, 0.0f);
+        mixer.play(constant(0.8f, BLOCK * 2).play(), 50, 1.0f, 0.0f);
+        PcmBufferOutput output = render(mixer, 1);
+        assertEquals(Short.MAX_VALUE, output.getSamples()[0]);
+        
+        render(mixer, 2);
+        assertEquals(0, mixer.getActiveVoices());
+        output = render(mixer, 1);
+        assertEquals(0, output.getSamples()[0]);
+    }
+    
+    @Test
+    void stopAllIsAppliedByDrain() {
+        Mixer mixer = new Mixer(RATE, 4);
+        TrackedSource a = new TrackedSource(constant(0.1f, RATE).play());
+        TrackedSource b = new TrackedSource(constant(0.1f, RATE).play());
+        mixer.play(a, 50, 1.0f, 0.0f);
+        mixer.play(b, 50, 1.0f, 0.0f);
+        render(mixer, 1);
+        assertEquals(2, mixer.getActiveVoices());
+        
+        mixer.stopAll();
+        mixer.drain();
+        assertTrue(a.closed);
+        assertTrue(b.closed);
+        assertEquals(0, mixer.getActiveVoices());
+    }
+    
+    @Test
+    void resamplesSourceAtHalfRate() {
+        Mixer mixer = new Mixer(RATE, 1);
+        float[] ramp = new float[BLOCK * 2];
+        for (int i = 0; i < ramp.length; i++) {
+            ramp[i] = i / (float) ramp.length;
+        }
+        mixer.play(new SoundClip(ramp, 1, RATE / 2).play(), 50, 1.0f, 0.0f);
+        float[] block = new float[BLOCK * 2];
+        mixer.mix(block, BLOCK);
+        // Нечетные кадры выхода лежат посередине между отсчетами источника
+        float expected = (ramp[0] + ramp[1]) * 0.5f;
+        assertEquals(expected, block[2], 1.0e-6f);
+        assertEquals(ramp[1], block[4], 1.0e-6f);
+    }
+}
@@ -0,0 +1,110 @@
+package com.rivet.engine.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ComponentStoreTest {
+    
+    @Test
+    void removeMovesLastEntryIntoHole() {
+        EntityManager manager = new EntityManager(16);
+        PositionStore positions = new PositionStore(16);
+        int a = manager.create();
+        int b = manager.create();
+        int c = manager.create();
+        positions.add(a, 1, 0, 0);
+        positions.add(b, 2, 0, 0);
+        positions.add(c, 3, 0, 0);
+        
+        int version = positions.getVersion();
+        assertTrue(positions.remove(a));
+        assertFalse(positions.remove(a));
+        assertNotEquals(version, positions.getVersion());
+        assertEquals(2, positions.size());
+        assertEquals(c, positions.entityAt(0));
+        assertEquals(0, positions.indexOf(c));
+        assertEquals(3.0f, positions.getX()[0]);
+        assertEquals(1, positions.indexOf(b));
+        assertEquals(-1, positions.indexOf(a));
+    }
+    
+    @Test
+    void addExistingKeepsDenseIndexAndVersion() {
+        EntityManager manager = new EntityManager(16);
+        PositionStore positions = new PositionStore(16);
+        int a = manager.create();
+        int dense = positions.add(a, 1, 2, 3);
+        int version = positions.getVersion();
+        assertEquals(dense, positions.add(a, 4, 5, 6));
+        assertEquals(version, positions.getVersion());
+        assertEquals(4.0f, positions.getX()[dense]);
+    }
+    
+    @Test
+    void sparseAndDenseStayConsistentUnderChurn() {
+        EntityManager manager = new EntityManager(16);
+        PositionStore positions = new PositionStore(16);
+        manager.register(positions);
+        Map<Integer, Float> expected = new HashMap<>();
+        int[] live = new int[4096];
+        int liveCount = 0;
+        Random random = new Random(36);
+        for (int step = 0; step < 50_000; step++) {
+            if (liveCount > 0 && random.nextInt(3) == 0) {
+                int slot = random.nextInt(liveCount);
+                int entity = live[slot];
+                live[slot] = live[--liveCount];
+                if (random.nextBoolean()) {
+                    manager.destroy(entity);
+                } else {
+                    assertTrue(positions.remove(entity));
+                    manager.destroy(entity);
+                }
+                expected.remove(entity);
+            } else if (liveCount < live.length) {
+                int entity = manager.create();
+                float x = random.nextFloat();
+                positions.add(entity, x, 0, 0);
+                expected.put(entity, x);
+                live[liveCount++] = entity;
+            }
+        }
+        assertEquals(expected.size(), positions.size());
+        for (int i = 0; i < positions.size(); i++) {
+            int entity = positions.entityAt(i);
+            assertEquals(i, positions.indexOf(entity));
+            assertEquals(expected.get(entity), positions.getX()[i]);
+        }
+    }
+    
+    @Test
+    void alignToMatchesLeaderOrder() {
+        EntityManager manager = new EntityManager(16);
+        VelocityStore velocities = new VelocityStore(16);
+        PositionStore positions = new PositionStore(16);
+        int[] entities = new int[8];
+        for (int i = 0; i < entities.length; i++) {
+            entities[i] = manager.create();
+            positions.add(entities[i], i, 0, 0);
+        }
+        // Скорости в обратном порядке и не у всех: сущность 0 без скорости
+        for (int i = entities.length - 1; i >= 1; i--) {
+            velocities.add(entities[i], 0, 0, 0);
+        }
+        
+        positions.alignTo(velocities);
+        for (int i = 0; i < velocities.size(); i++) {
+            assertEquals(velocities.entityAt(i), positions.entityAt(i));
+            assertEquals(EntityManager.index(positions.entityAt(i)), (int) positions.getX()[i]);
+        }
+        assertEquals(entities[0], positions.entityAt(velocities.size()));
+    }
+}
@@ -0,0 +1,80 @@
+package com.rivet.engine.entity;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EntityManagerTest {
+    
+    @Test
+    void destroyedIndexIsReusedWithNewGeneration() {
+        EntityManager manager = new EntityManager(16);
+        int first = manager.create();
+        assertTrue(manager.isAlive(first));
+        assertTrue(manager.destroy(first));
+        assertFalse(manager.isAlive(first));
+        assertFalse(manager.destroy(first));
+        
+        int second = manager.create();
+        assertEquals(EntityManager.index(first), EntityManager.index(second));
+        assertEquals(EntityManager.generation(first) + 1, EntityManager.generation(second));
+        assertNotEquals(first, second);
+        assertTrue(manager.isAlive(second));
+        assertFalse(manager.isAlive(first));
+    }
+    
+    @Test
+    void generationWrapsAfter256Reuses() {
+        EntityManager manager = new EntityManager(16);
+        int entity = manager.create();
+        for (int i = 0; i < 256; i++) {
+            manager.destroy(entity);
+            entity = manager.create();
+        }
+        assertEquals(0, EntityManager.index(entity));
+        assertEquals(0, EntityManager.generation(entity));
+        assertEquals(1, manager.getIndexCount());
+    }
+    
+    @Test
+    void growsPastInitialCapacityAndCountsAlive() {
+        EntityManager manager = new EntityManager(16);
+        int[] entities = new int[1000];
+        for (int i = 0; i < entities.length; i++) {
+            entities[i] = manager.create();
+        }
+        for (int i = 0; i < entities.length; i += 2) {
+            manager.destroy(entities[i]);
+        }
+        assertEquals(500, manager.getAliveCount());
+        assertEquals(1000, manager.getIndexCount());
+        for (int i = 1; i < entities.length; i += 2) {
+            assertTrue(manager.isAlive(entities[i]));
+        }
+        assertFalse(manager.isAlive(EntityManager.NULL));
+    }
+    
+    @Test
+    void destroyRemovesComponentsFromRegisteredStores() {
+        EntityManager manager = new EntityManager(16);
+        PositionStore positions = new PositionStore(16);
+        VelocityStore velocities = new VelocityStore(16);
+        manager.register(positions);
+        manager.register(velocities);
+        int a = manager.create();
+        int b = manager.create();
+        positions.add(a, 1, 2, 3);
+        positions.add(b, 4, 5, 6);
+        velocities.add(a, 1, 0, 0);
+        
+        manager.destroy(a);
+        assertFalse(positions.contains(a));
+        assertFalse(velocities.contains(a));
+        assertEquals(1, positions.size());
+        assertEquals(b, positions.entityAt(0));
+        assertEquals(4.0f, positions.getX()[positions.indexOf(b)]);
+    }
+}
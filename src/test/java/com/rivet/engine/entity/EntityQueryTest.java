@@ -0,0 +1,186 @@
+package com.rivet.engine.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EntityQueryTest {
+    
+    private final EntityManager manager = new EntityManager(16);
+    private final VelocityStore velocities = new VelocityStore(16);
+    private final PositionStore positions = new PositionStore(16);
+    private final BodyStore bodies = new BodyStore(16);
+    
+    EntityQueryTest() {
+        manager.register(velocities);
+        manager.register(positions);
+        manager.register(bodies);
+    }
+    
+    /**
+     * Сущность i: скорость всегда, позиция если i % 3 != 0, тело если i % 5 == 0
+     */
+    private Set<Integer> populate(int count) {
+        Set<Integer> expected = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            int entity = manager.create();
+            velocities.add(entity, 0, 0, 0);
+            if (i % 3 != 0) {
+                positions.add(entity, 0, 0, 0);
+            }
+            if (i % 5 == 0) {
+                bodies.add(entity, 0);
+            }
+            if (i % 3 != 0 && i % 5 != 0) {
+                expected.add(entity);
+            }
+        }
+        return expected;
+    }
+    
+    private Set<Integer> collectRanges(EntityQuery query) {
+        Set<Integer> visited = new HashSet<>();
+        query.forEachRange((start, end) -> {
+            assertTrue(start < end);
+            for (int i = start; i < end; i++) {
+                assertTrue(visited.add(velocities.entityAt(i)));
+            }
+        });
+        return visited;
+    }
+    
+    @Test
+    void rangesCoverExactlyMatchingEntities() {
+        Set<Integer> expected = populate(200);
+        EntityQuery query = new EntityQuery(velocities, positions).exclude(bodies);
+        assertEquals(expected, collectRanges(query));
+        assertEquals(expected.size(), query.count());
+        
+        Set<Integer> perEntity = new HashSet<>();
+        query.forEach((entity, index) -> {
+            assertEquals(velocities.entityAt(index), entity);
+            perEntity.add(entity);
+        });
+        assertEquals(expected, perEntity);
+    }
+    
+    @Test
+    void compositionChangeRebuildsRanges() {
+        Set<Integer> expected = populate(100);
+        EntityQuery query = new EntityQuery(velocities, positions).exclude(bodies);
+        assertEquals(expected, collectRanges(query));
+        
+        // Удаление тела включает сущность, удаление позиции - исключает
+        int freed = -1;
+        int dropped = -1;
+        for (int i = 0; i < velocities.size(); i++) {
+            int entity = velocities.entityAt(i);
+            if (freed < 0 && bodies.contains(entity) && positions.contains(entity)) {
+                freed = entity;
+            } else if (dropped < 0 && expected.contains(entity)) {
+                dropped = entity;
+            }
+        }
+        bodies.remove(freed);
+        positions.remove(dropped);
+        expected.add(freed);
+        expected.remove(dropped);
+        assertEquals(expected, collectRanges(query));
+        
+        int destroyed = expected.iterator().next();
+        manager.destroy(destroyed);
+        expected.remove(destroyed);
+        assertEquals(expected, collectRanges(query));
+    }
+    
+    @Test
+    void singleStoreQueryIsOneRange() {
+        populate(50);
+        EntityQuery query = new EntityQuery(velocities);
+        List<int[]> ranges = new ArrayList<>();
+        query.forEachRange((start, end) -> ranges.add(new int[] { start, end }));
+        assertEquals(1, ranges.size());
+        assertEquals(0, ranges.get(0)[0]);
+        assertEquals(50, ranges.get(0)[1]);
+    }
+    
+    @Test
+    void forRangeClipsToRequestedInterval() {
+        Set<Integer> expected = populate(90);
+        EntityQuery query = new EntityQuery(velocities, positions).exclude(bodies);
+        Set<Integer> visited = new HashSet<>();
+        for (int from = 0; from < velocities.size(); from += 7) {
+            int start = from;
+            int end = Math.min(velocities.size(), start + 7);
+            query.forRange(start, end, (entity, index) -> {
+                assertTrue(index >= start && index < end);
+                assertTrue(visited.add(entity));
+            });
+        }
+        assertEquals(expected, visited);
+    }
+    
+    @Test
+    void parallelRangesVisitEachEntityOnce() {
+        Set<Integer> expected = populate(20_000);
+        EntityQuery query = new EntityQuery(velocities, positions).exclude(bodies);
+        int[] hits = new int[velocities.size()];
+        AtomicInteger total = new AtomicInteger();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            query.forEachRangeParallel(pool, 256, (start, end) -> {
+                for (int i = start; i < end; i++) {
+                    hits[i]++;
+                }
+                total.addAndGet(end - start);
+            });
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(expected.size(), total.get());
+        for (int i = 0; i < hits.length; i++) {
+            assertEquals(expected.contains(velocities.entityAt(i)) ? 1 : 0, hits[i]);
+        }
+    }
+    
+    @Test
+    void movementMatchesPerEntityStep() {
+        BoundsStore bounds = new BoundsStore(16);
+        manager.register(bounds);
+        for (int i = 0; i < 64; i++) {
+            int entity = manager.create();
+            if (i % 4 != 0) {
+                positions.add(entity, i, 0, 0);
+            }
+            velocities.add(entity, 1, 2, 3);
+            if (i % 6 != 0) {
+                bounds.add(entity, 0.5f, 2.0f);
+            }
+            if (i % 9 == 0) {
+                bodies.add(entity, 0);
+            }
+        }
+        MovementSystem movement = new MovementSystem(positions, velocities, bounds, bodies);
+        movement.update(0.5f, null);
+        for (int i = 0; i < positions.size(); i++) {
+            int entity = positions.entityAt(i);
+            float start = EntityManager.index(entity);
+            boolean moves = velocities.contains(entity) && !bodies.contains(entity);
+            assertEquals(moves ? start + 0.5f : start, positions.getX()[i]);
+            assertEquals(moves ? 1.0f : 0.0f, positions.getY()[i]);
+            int b = bounds.indexOf(entity);
+            if (moves && b >= 0) {
+                assertEquals(start, bounds.getMinX()[b]);
+                assertEquals(3.0f, bounds.getMaxY()[b]);
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.rivet.engine.memory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FrameArenaTest {
+    
+    private static final int CATEGORY = MemoryCategory.OTHER;
+    
+    private final long baseCount = NativeMemory.getCount(CATEGORY);
+    private final long baseBytes = NativeMemory.getBytes(CATEGORY);
+    private final FrameArena arena = new FrameArena(CATEGORY, 64);
+    
+    @AfterEach
+    void free() {
+        arena.free();
+        // После free арена не держит ни одного буфера
+        assertEquals(baseCount, NativeMemory.getCount(CATEGORY));
+        assertEquals(baseBytes, NativeMemory.getBytes(CATEGORY));
+    }
+    
+    @Test
+    void allocationsAreAlignedAndRewindReusesMemory() {
+        long first = arena.allocate(3);
+        long second = arena.allocate(5);
+        assertEquals(0, first & 15);
+        assertEquals(first + 16, second);
+        
+        int mark = arena.mark();
+        long nested = arena.allocate(8);
+        arena.rewind(mark);
+        assertEquals(nested, arena.allocate(8));
+        
+        arena.reset();
+        assertEquals(first, arena.allocate(1));
+        assertEquals(0, arena.getOverflowCount());
+    }
+    
+    @Test
+    void buffersViewTheBlock() {
+        ByteBuffer bytes = arena.malloc(16);
+        IntBuffer ints = arena.mallocInt(4);
+        assertEquals(16, bytes.capacity());
+        assertEquals(4, ints.capacity());
+        assertEquals(MemoryUtil.memAddress(bytes) + 16, MemoryUtil.memAddress(ints));
+        ints.put(0, 42);
+        assertEquals(42, MemoryUtil.memGetInt(MemoryUtil.memAddress(ints)));
+    }
+    
+    @Test
+    void overflowIsServedSeparatelyAndBlockGrowsOnReset() {
+        long block = arena.allocate(32);
+        long overflow = arena.allocate(64);
+        assertEquals(1, arena.getOverflowCount());
+        // Отдельный буфер за пределами блока, учтен в категории
+        assertTrue(overflow < block || overflow >= block + 64);
+        assertEquals(baseCount + 2, NativeMemory.getCount(CATEGORY));
+        MemoryUtil.memSet(overflow, 7, 64);
+        
+        arena.reset();
+        // Спрос кадра: 32 в блоке + 64 вне его; блок растет до степени двойки
+        assertEquals(96, arena.getLastDemand());
+        assertEquals(128, arena.getCapacity());
+        assertEquals(baseCount + 1, NativeMemory.getCount(CATEGORY));
+        assertEquals(baseBytes + 128, NativeMemory.getBytes(CATEGORY));
+        
+        // Тот же кадр после роста помещается целиком
+        long start = arena.allocate(32);
+        assertEquals(start + 32, arena.allocate(64));
+        assertEquals(1, arena.getOverflowCount());
+        arena.reset();
+        assertEquals(128, arena.getCapacity());
+    }
+    
+    @Test
+    void overflowBuffersAreFreedOnReset() {
+        for (int i = 0; i < 10; i++) {
+            arena.mallocFloat(32);
+        }
+        assertEquals(10, arena.getOverflowCount());
+        assertEquals(baseCount + 11, NativeMemory.getCount(CATEGORY));
+        arena.reset();
+        assertEquals(baseCount + 1, NativeMemory.getCount(CATEGORY));
+        assertNotEquals(64, arena.getCapacity());
+    }
+}
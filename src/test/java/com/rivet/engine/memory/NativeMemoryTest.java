@@ -0,0 +1,62 @@
+package com.rivet.engine.memory;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NativeMemoryTest {
+    
+    private static final int CATEGORY = MemoryCategory.OTHER;
+    
+    @Test
+    void allocationsAreCountedPerCategory() {
+        long baseCount = NativeMemory.getCount(CATEGORY);
+        long baseBytes = NativeMemory.getBytes(CATEGORY);
+        long baseTotal = NativeMemory.getTotalBytes();
+        
+        ByteBuffer bytes = NativeMemory.calloc(CATEGORY, 100);
+        IntBuffer ints = NativeMemory.mallocInt(CATEGORY, 10);
+        FloatBuffer floats = NativeMemory.mallocFloat(CATEGORY, 10);
+        assertEquals(0, bytes.get(99));
+        assertEquals(baseCount + 3, NativeMemory.getCount(CATEGORY));
+        assertEquals(baseBytes + 180, NativeMemory.getBytes(CATEGORY));
+        assertEquals(baseTotal + 180, NativeMemory.getTotalBytes());
+        assertTrue(NativeMemory.getPeakBytes(CATEGORY) >= baseBytes + 180);
+        
+        // realloc меняет объем, но не количество
+        bytes.put(0, (byte) 5);
+        bytes = NativeMemory.realloc(CATEGORY, bytes, 400);
+        assertEquals(5, bytes.get(0));
+        assertEquals(baseCount + 3, NativeMemory.getCount(CATEGORY));
+        assertEquals(baseBytes + 480, NativeMemory.getBytes(CATEGORY));
+        
+        NativeMemory.free(CATEGORY, bytes);
+        NativeMemory.free(CATEGORY, ints);
+        NativeMemory.free(CATEGORY, floats);
+        NativeMemory.free(CATEGORY, null);
+        assertEquals(baseCount, NativeMemory.getCount(CATEGORY));
+        assertEquals(baseBytes, NativeMemory.getBytes(CATEGORY));
+    }
+    
+    @Test
+    void leakReportCountsUnfreedBuffers() {
+        long baseLeaks = NativeMemory.reportLeaks();
+        ByteBuffer leaked = NativeMemory.malloc(CATEGORY, 256);
+        NativePool pool = new NativePool(CATEGORY, 6, 10, 4);
+        // Буфер, не возвращенный в пул, тоже утечка
+        ByteBuffer pooled = pool.acquire(100);
+        assertEquals(baseLeaks + 2, NativeMemory.reportLeaks());
+        
+        pool.release(pooled);
+        // Свободный буфер в пуле жив до clear
+        assertEquals(baseLeaks + 2, NativeMemory.reportLeaks());
+        pool.clear();
+        NativeMemory.free(CATEGORY, leaked);
+        assertEquals(baseLeaks, NativeMemory.reportLeaks());
+    }
+}
@@ -0,0 +1,132 @@
+package com.rivet.engine.memory;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class NativePoolTest {
+    
+    private static final int CATEGORY = MemoryCategory.OTHER;
+    
+    @Test
+    void releasedBufferIsReusedCleared() {
+        NativePool pool = new NativePool(CATEGORY, 6, 12, 2);
+        ByteBuffer buffer = pool.acquire(100);
+        assertEquals(128, buffer.capacity());
+        assertEquals(ByteOrder.nativeOrder(), buffer.order());
+        buffer.putInt(1).putInt(2);
+        pool.release(buffer);
+        
+        // Тот же класс размера - тот же буфер, позиция сброшена
+        ByteBuffer again = pool.acquire(65);
+        assertSame(buffer, again);
+        assertEquals(0, again.position());
+        assertEquals(128, again.limit());
+        
+        // Меньший класс - другой буфер
+        ByteBuffer small = pool.acquire(1);
+        assertEquals(64, small.capacity());
+        assertNotSame(buffer, small);
+        pool.release(again);
+        pool.release(small);
+        pool.clear();
+    }
+    
+    @Test
+    void accountingFollowsPoolAndNativeMemory() {
+        long baseCount = NativeMemory.getCount(CATEGORY);
+        long baseBytes = NativeMemory.getBytes(CATEGORY);
+        NativePool pool = new NativePool(CATEGORY, 6, 12, 2);
+        
+        ByteBuffer[] buffers = new ByteBuffer[4];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = pool.acquire(1024);
+        }
+        assertEquals(4 * 1024, pool.getAllocatedBytes());
+        assertEquals(0, pool.getPooledBytes());
+        assertEquals(baseCount + 4, NativeMemory.getCount(CATEGORY));
+        assertEquals(baseBytes + 4 * 1024, NativeMemory.getBytes(CATEGORY));
+        
+        // Класс удерживает не больше двух свободных буферов, остальные освобождаются сразу
+        for (ByteBuffer buffer : buffers) {
+            pool.release(buffer);
+        }
+        assertEquals(2 * 1024, pool.getAllocatedBytes());
+        assertEquals(2 * 1024, pool.getPooledBytes());
+        assertEquals(baseCount + 2, NativeMemory.getCount(CATEGORY));
+        
+        // Повторная выдача не выделяет память
+        ByteBuffer reused = pool.acquire(1000);
+        assertEquals(baseCount + 2, NativeMemory.getCount(CATEGORY));
+        assertEquals(1024, pool.getPooledBytes());
+        
+        // clear освобождает свободные, выданный буфер остается действительным
+        pool.clear();
+        assertEquals(0, pool.getPooledBytes());
+        assertEquals(1024, pool.getAllocatedBytes());
+        reused.putLong(0, 42L);
+        pool.release(reused);
+        pool.clear();
+        assertEquals(0, pool.getAllocatedBytes());
+        assertEquals(baseCount, NativeMemory.getCount(CATEGORY));
+        assertEquals(baseBytes, NativeMemory.getBytes(CATEGORY));
+    }
+    
+    @Test
+    void oversizedRequestIsRejected() {
+        NativePool pool = new NativePool(CATEGORY, 6, 12, 2);
+        assertThrows(IllegalArgumentException.class, () -> pool.acquire(4097));
+        ByteBuffer largest = pool.acquire(4096);
+        assertEquals(4096, largest.capacity());
+        assertEquals(4096, pool.getAllocatedBytes());
+        pool.release(largest);
+        pool.clear();
+    }
+    
+    @Test
+    void concurrentAcquireReleaseKeepsAccountingConsistent() throws Exception {
+        long baseCount = NativeMemory.getCount(CATEGORY);
+        NativePool pool = new NativePool(CATEGORY, 6, 14, 8);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int seed = t;
+                futures.add(executor.submit(() -> {
+                    ByteBuffer[] held = new ByteBuffer[8];
+                    for (int i = 0; i < 20_000; i++) {
+                        int slot = (i * 7 + seed) & 7;
+                        if (held[slot] != null) {
+                            pool.release(held[slot]);
+                        }
+                        held[slot] = pool.acquire(64 << ((i + seed) % 8));
+                    }
+                    for (ByteBuffer buffer : held) {
+                        pool.release(buffer);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        // Все буферы вернулись: выделенное равно удерживаемому
+        assertEquals(pool.getAllocatedBytes(), pool.getPooledBytes());
+        pool.clear();
+        assertEquals(0, pool.getAllocatedBytes());
+        assertEquals(baseCount, NativeMemory.getCount(CATEGORY));
+    }
+}
@@ -0,0 +1,297 @@
+package com.rivet.engine.net;
+
+import com.rivet.engine.modules.ServerModule;
+import com.rivet.engine.modules.WorldModule;
+import com.rivet.engine.world.Blocks;
+import com.rivet.engine.world.Chunk;
+import com.rivet.engine.world.ChunkListener;
+import com.rivet.engine.world.ChunkPos;
+import com.rivet.engine.world.World;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Сервер и клиенты через loopback: настоящие {@link WorldModule} и {@link ServerModule}
+ * в потоке теста, клиенты {@link NetClient} опрашиваются в том же цикле
+ */
+class NetLoopbackTest {
+    
+    // Шумный мир такого радиуса (~10 МБ) не помещается в буферы сокетов loopback
+    private static final int RADIUS = 12;
+    private static final int CLIENTS = 6;
+    private static final float TICK = 0.05f;
+    
+    private static final String[] PROPERTIES = {
+        "rivet.save", "rivet.renderDistance", "rivet.server.port", "rivet.server.viewDistance", "rivet.randomTickSpeed"
+    };
+    
+    private WorldModule worldModule;
+    private ServerModule serverModule;
+    private final List<NetClient> clients = new ArrayList<>();
+    
+    @BeforeAll
+    static void configure() {
+        System.setProperty("rivet.save", "false");
+        System.setProperty("rivet.renderDistance", String.valueOf(RADIUS + 1));
+        System.setProperty("rivet.server.port", "0");
+        System.setProperty("rivet.server.viewDistance", String.valueOf(RADIUS));
+        System.setProperty("rivet.randomTickSpeed", "0");
+    }
+    
+    @AfterAll
+    static void restore() {
+        for (String property : PROPERTIES) {
+            System.clearProperty(property);
+        }
+    }
+    
+    @BeforeEach
+    void start() throws Exception {
+        worldModule = new WorldModule();
+        worldModule.initialize();
+        serverModule = new ServerModule(worldModule);
+        serverModule.initialize();
+        // Точка появления (8.5, 8.5) - чанк (0, 0); мир готов до подключения клиентов
+        worldModule.setViewer(8.5f, 8.5f, 0.0f, -1.0f);
+        tickUntil(this::radiusReady, 30_000);
+    }
+    
+    @AfterEach
+    void stop() {
+        for (NetClient client : clients) {
+            client.close();
+        }
+        serverModule.cleanup();
+        worldModule.cleanup();
+    }
+    
+    private boolean radiusReady() {
+        World world = worldModule.getWorld();
+        for (int dz = -RADIUS; dz <= RADIUS; dz++) {
+            for (int dx = -RADIUS; dx <= RADIUS; dx++) {
+                if (dx * dx + dz * dz <= RADIUS * RADIUS) {
+                    Chunk chunk = world.getChunk(dx, dz);
+                    if (chunk == null || !chunk.isLightInitialized()) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+    
+    private static int chunksInRadius() {
+        int count = 0;
+        for (int dz = -RADIUS; dz <= RADIUS; dz++) {
+            for (int dx = -RADIUS; dx <= RADIUS; dx++) {
+                if (dx * dx + dz * dz <= RADIUS * RADIUS) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Тик сервера и опрос всех клиентов
+     */
+    private void tick() throws IOException {
+        worldModule.update(TICK);
+        serverModule.update(TICK);
+        for (NetClient client : clients) {
+            client.update();
+        }
+    }
+    
+    private void tickUntil(BooleanSupplier condition, long timeoutMillis) throws Exception {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out");
+            tick();
+            Thread.sleep(2);
+        }
+    }
+    
+    private InetSocketAddress address() {
+        return new InetSocketAddress("127.0.0.1", serverModule.getPort());
+    }
+    
+    /**
+     * Квадрат расстояния чанков до чанка появления в порядке прихода
+     */
+    private static List<Integer> recordArrivals(NetClient client) {
+        List<Integer> distances = new ArrayList<>();
+        client.getWorld().addChunkListener(new ChunkListener() {
+            @Override
+            public void onChunkLoaded(Chunk chunk) {
+                distances.add(chunk.getChunkX() * chunk.getChunkX() + chunk.getChunkZ() * chunk.getChunkZ());
+            }
+            
+            @Override
+            public void onChunkUnloaded(Chunk chunk) {
+            }
+        });
+        return distances;
+    }
+    
+    @Test
+    void clientsReceiveChunksInDistanceOrderAndBatchedDeltas() throws Exception {
+        List<List<Integer>> arrivals = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            NetClient client = new NetClient();
+            arrivals.add(recordArrivals(client));
+            client.connect(address(), "bot" + i, RADIUS);
+            clients.add(client);
+        }
+        int expected = chunksInRadius();
+        tickUntil(() -> clients.stream().allMatch(c -> c.getChunkCount() == expected), 30_000);
+        
+        for (int i = 0; i < CLIENTS; i++) {
+            NetClient client = clients.get(i);
+            assertTrue(client.getClientId() > 0);
+            assertEquals(RADIUS, client.getViewRadius());
+            List<Integer> distances = arrivals.get(i);
+            assertEquals(expected, distances.size());
+            for (int j = 1; j < distances.size(); j++) {
+                assertTrue(distances.get(j - 1) <= distances.get(j), "client " + i + " chunk " + j);
+            }
+            // Сжатые чанки совпадают с миром сервера
+            World mirror = client.getWorld();
+            World world = worldModule.getWorld();
+            for (int y = 0; y < Chunk.HEIGHT; y += 7) {
+                assertEquals(world.getBlock(3, y, 5), mirror.getBlock(3, y, 5));
+                assertEquals(world.getBlock(-20, y, 9), mirror.getBlock(-20, y, 9));
+            }
+        }
+        assertEquals(0, clients.get(0).getDeltaPacketCount());
+        
+        // Изменения в трех чанках за один тик: по одному пакету на клиента
+        World world = worldModule.getWorld();
+        int top = Chunk.HEIGHT - 2;
+        world.setBlock(1, top, 1, Blocks.STONE_ID);
+        world.setBlock(2, top, 1, Blocks.STONE_ID);
+        world.setBlock(17, top, 1, Blocks.STONE_ID);
+        world.setBlock(-5, top, -30, Blocks.STONE_ID);
+        tickUntil(() -> clients.stream().allMatch(c -> c.getDeltaCount() == 4), 5_000);
+        for (NetClient client : clients) {
+            assertEquals(1, client.getDeltaPacketCount());
+            assertEquals(Blocks.STONE_ID, client.getWorld().getBlock(17, top, 1));
+            assertEquals(Blocks.STONE_ID, client.getWorld().getBlock(-5, top, -30));
+        }
+        
+        // Изменение от клиента доходит до сервера и до остальных клиентов
+        clients.get(0).setBlock(4, top, 4, Blocks.DIRT_ID);
+        tickUntil(() -> clients.stream().allMatch(c -> c.getWorld().getBlock(4, top, 4) == Blocks.DIRT_ID), 5_000);
+        assertEquals(Blocks.DIRT_ID, world.getBlock(4, top, 4));
+        assertEquals(4 * CLIENTS + CLIENTS, serverModule.getBlockDeltasSent());
+        // Каждый чанк сжат один раз для всех клиентов
+        assertEquals(expected, serverModule.getChunksEncoded());
+    }
+    
+    /**
+     * Заполнить чанки радиуса шумом, чтобы мир не сжимался в пару десятков килобайт
+     */
+    private void scramble() {
+        Random random = new Random(7);
+        World world = worldModule.getWorld();
+        for (int dz = -RADIUS; dz <= RADIUS; dz++) {
+            for (int dx = -RADIUS; dx <= RADIUS; dx++) {
+                Chunk chunk = world.getChunk(dx, dz);
+                if (chunk == null) {
+                    continue;
+                }
+                for (int y = 0; y < Chunk.HEIGHT; y++) {
+                    for (int z = 0; z < 16; z++) {
+                        for (int x = 0; x < 16; x++) {
+                            chunk.setBlock(x, y, z, random.nextInt(Blocks.count()));
+                        }
+                    }
+                }
+            }
+        }
+    }
+    
+    @Test
+    void slowReaderIsHeldBackWithoutStallingOthers() throws Exception {
+        scramble();
+        // Медленный клиент: маленький приемный буфер и никакого чтения
+        SocketChannel slow = SocketChannel.open();
+        slow.setOption(StandardSocketOptions.SO_RCVBUF, 4096);
+        slow.connect(address());
+        PacketWriter hello = new PacketWriter(64);
+        hello.begin(Protocol.HELLO);
+        hello.writeVarInt(Protocol.VERSION);
+        hello.writeString("slow");
+        hello.writeVarInt(RADIUS);
+        ByteBuffer frame = hello.toFrame();
+        while (frame.hasRemaining()) {
+            slow.write(frame);
+        }
+        
+        NetClient fast = new NetClient();
+        fast.connect(address(), "fast", RADIUS);
+        clients.add(fast);
+        int expected = chunksInRadius();
+        tickUntil(() -> fast.getChunkCount() == expected, 30_000);
+        for (int i = 0; i < 40; i++) {
+            tick();
+            Thread.sleep(2);
+        }
+        
+        // Чанки медленному клиенту придержаны (сверх буферов ядра), до жесткого предела не дошло
+        long slowChunks = serverModule.getChunksSent() - fast.getChunkCount();
+        assertTrue(slowChunks < expected, "slow client got all " + slowChunks + " chunks");
+        assertEquals(0, serverModule.getKickedCount());
+        assertEquals(2, serverModule.getPlayerCount());
+        
+        // Медленный клиент начинает читать и получает остальные чанки
+        slow.configureBlocking(false);
+        ByteBuffer in = ByteBuffer.allocate(Protocol.MAX_SERVER_FRAME + 5);
+        int[] chunks = { 0 };
+        tickUntil(() -> {
+            try {
+                slow.read(in);
+                in.flip();
+                byte[] payload;
+                while ((payload = Protocol.readFrame(in, Protocol.MAX_SERVER_FRAME)) != null) {
+                    if ((payload[0] & 0xFF) == Protocol.CHUNK) {
+                        chunks[0]++;
+                    }
+                }
+                in.compact();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return chunks[0] == expected;
+        }, 30_000);
+        assertEquals(2 * expected, serverModule.getChunksSent());
+        slow.close();
+    }
+    
+    @Test
+    void disconnectRemovesSession() throws Exception {
+        NetClient client = new NetClient();
+        client.connect(address(), "leaver", RADIUS);
+        clients.add(client);
+        tickUntil(() -> serverModule.getPlayerCount() == 1 && client.getClientId() > 0, 5_000);
+        assertEquals(0, ChunkPos.pack((int) Math.floor(client.getSpawnX()) >> 4, (int) Math.floor(client.getSpawnZ()) >> 4));
+        client.close();
+        tickUntil(() -> serverModule.getPlayerCount() == 0, 5_000);
+    }
+}
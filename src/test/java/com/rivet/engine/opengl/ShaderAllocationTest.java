@@ -0,0 +1,87 @@
+package com.rivet.engine.opengl;
+
+import com.rivet.engine.util.AllocationMeter;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Бюджет выделений: установка uniform-переменных шейдера каждый кадр
+ * Вызовы OpenGL заменены заглушкой, которая запоминает последние значения.
+ */
+class ShaderAllocationTest {
+    
+    /**
+     * Заглушка OpenGL без выделений
+     */
+    private static final class StubUniforms implements UniformCalls {
+        final float[] matrix = new float[16];
+        float x;
+        float y;
+        float z;
+        float floatValue;
+        int intValue;
+        int lastLocation = -1;
+        
+        @Override
+        public void uniformMatrix4fv(int location, float[] values) {
+            System.arraycopy(values, 0, matrix, 0, 16);
+            lastLocation = location;
+        }
+        
+        @Override
+        public void uniform3f(int location, float x, float y, float z) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            lastLocation = location;
+        }
+        
+        @Override
+        public void uniform1f(int location, float value) {
+            floatValue = value;
+            lastLocation = location;
+        }
+        
+        @Override
+        public void uniform1i(int location, int value) {
+            intValue = value;
+            lastLocation = location;
+        }
+    }
+    
+    @Test
+    void matrixUniformDoesNotAllocate() {
+        StubUniforms stub = new StubUniforms();
+        Shader shader = new Shader(1, stub);
+        Matrix4f matrix = new Matrix4f().translation(1.0f, 2.0f, 3.0f);
+        
+        shader.setUniformMatrix4f(4, matrix);
+        assertEquals(4, stub.lastLocation);
+        assertEquals(3.0f, stub.matrix[14]);
+        
+        AllocationMeter.assertNoAllocation("Shader.setUniformMatrix4f", () -> shader.setUniformMatrix4f(4, matrix));
+    }
+    
+    @Test
+    void scalarAndVectorUniformsDoNotAllocate() {
+        StubUniforms stub = new StubUniforms();
+        Shader shader = new Shader(1, stub);
+        Vector3f vector = new Vector3f(0.25f, 0.5f, 0.75f);
+        
+        shader.setUniformVector3f(1, vector);
+        shader.setUniformFloat(2, 0.125f);
+        shader.setUniformInt(3, 7);
+        assertEquals(0.75f, stub.z);
+        assertEquals(0.125f, stub.floatValue);
+        assertEquals(7, stub.intValue);
+        
+        AllocationMeter.assertNoAllocation("Shader.setUniformVector3f/Float/Int", () -> {
+            shader.setUniformVector3f(1, vector);
+            shader.setUniformFloat(2, 0.5f);
+            shader.setUniformInt(3, 1);
+        });
+    }
+}
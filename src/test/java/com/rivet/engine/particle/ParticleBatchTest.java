@@ -0,0 +1,152 @@
+package com.rivet.engine.particle;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParticleBatchTest {
+    
+    private static final float EPSILON = 1.0e-5f;
+    
+    @Test
+    void emitFillsParallelArraysUpToCapacity() {
+        ParticleBatch batch = new ParticleBatch(0, 2, 1L);
+        int color = ParticleBatch.rgba(10, 20, 30, 40);
+        assertEquals(0, batch.emit(1, 2, 3, 4, 5, 6, 1.5f, 0.25f, color, 7));
+        assertEquals(1, batch.emit(9, 9, 9, 0, 0, 0, 1.0f, 0.5f, color, 8));
+        assertEquals(-1, batch.emit(0, 0, 0, 0, 0, 0, 1.0f, 0.5f, color, 9));
+        assertEquals(2, batch.size());
+        
+        assertEquals(1.0f, batch.x[0]);
+        assertEquals(2.0f, batch.y[0]);
+        assertEquals(3.0f, batch.z[0]);
+        assertEquals(4.0f, batch.velocityX[0]);
+        assertEquals(5.0f, batch.velocityY[0]);
+        assertEquals(6.0f, batch.velocityZ[0]);
+        assertEquals(1.5f, batch.life[0]);
+        assertEquals(1.5f, batch.maxLife[0]);
+        assertEquals(0.25f, batch.size[0]);
+        assertEquals(color, batch.color[0]);
+        assertEquals(7, batch.tile[0]);
+        assertEquals(8, batch.tile[1]);
+    }
+    
+    @Test
+    void emitRejectsNonPositiveLife() {
+        ParticleBatch batch = new ParticleBatch(0, 4, 1L);
+        assertEquals(-1, batch.emit(0, 0, 0, 0, 0, 0, 0.0f, 1.0f, -1, 0));
+        assertEquals(-1, batch.emit(0, 0, 0, 0, 0, 0, Float.NaN, 1.0f, -1, 0));
+        assertEquals(0, batch.size());
+    }
+    
+    @Test
+    void simulateIntegratesGravityAndDrag() {
+        ParticleBatch batch = new ParticleBatch(0, 1, 1L);
+        batch.setForces(10.0f, 0.5f);
+        batch.emit(0, 10, 0, 2, 0, -4, 5.0f, 1.0f, -1, 0);
+        batch.simulate(0.1f);
+        
+        // damping = 1 - 0.5 * 0.1; vy = (0 - 10 * 0.1) * damping
+        float damping = 0.95f;
+        assertEquals(2.0f * damping, batch.velocityX[0], EPSILON);
+        assertEquals(-1.0f * damping, batch.velocityY[0], EPSILON);
+        assertEquals(-4.0f * damping, batch.velocityZ[0], EPSILON);
+        assertEquals(2.0f * damping * 0.1f, batch.getX(0), EPSILON);
+        assertEquals(10.0f - damping * 0.1f, batch.getY(0), EPSILON);
+        assertEquals(-4.0f * damping * 0.1f, batch.getZ(0), EPSILON);
+        assertEquals(4.9f, batch.getLife(0), EPSILON);
+    }
+    
+    @Test
+    void expiredParticlesAreCompactedBySwapRemove() {
+        // Умирают 0, 2 и три последних: на место 0 переносятся мертвые с конца,
+        // пока не придет живая 4; на место 2 - живая 3
+        float[] lives = {0.5f, 2.0f, 0.5f, 2.0f, 2.0f, 0.5f, 0.5f, 0.5f};
+        ParticleBatch batch = new ParticleBatch(0, lives.length, 1L);
+        for (int id = 0; id < lives.length; id++) {
+            batch.emit(id, 0, 0, id, 0, 0, lives[id], 1.0f, ParticleBatch.rgba(id, 0, 0, 255), id);
+        }
+        batch.simulate(1.0f);
+        
+        assertEquals(3, batch.size());
+        assertEquals(4, batch.tile[0]);
+        assertEquals(1, batch.tile[1]);
+        assertEquals(3, batch.tile[2]);
+        for (int i = 0; i < batch.size(); i++) {
+            int id = batch.tile[i];
+            // Все поля перенесены вместе, каждая частица проинтегрирована ровно один раз
+            assertEquals(ParticleBatch.rgba(id, 0, 0, 255), batch.color[i]);
+            assertEquals(2.0f * id, batch.getX(i), EPSILON);
+            assertEquals(1.0f, batch.getLife(i), EPSILON);
+            assertEquals(2.0f, batch.maxLife[i]);
+        }
+        
+        batch.simulate(1.0f);
+        assertEquals(0, batch.size());
+    }
+    
+    @Test
+    void killMovesLastParticleIntoSlot() {
+        ParticleBatch batch = new ParticleBatch(0, 4, 1L);
+        for (int id = 0; id < 4; id++) {
+            batch.emit(id, id, id, 0, 0, 0, 1.0f, 1.0f, -1, id);
+        }
+        batch.kill(1);
+        assertEquals(3, batch.size());
+        assertEquals(3, batch.tile[1]);
+        assertEquals(3.0f, batch.getY(1));
+        
+        // Последняя частица удаляется без переноса
+        batch.kill(2);
+        assertEquals(2, batch.size());
+        assertEquals(0, batch.tile[0]);
+        assertEquals(3, batch.tile[1]);
+    }
+    
+    @Test
+    void emitterAccumulatesFractionalRate() {
+        ParticleBatch batch = new ParticleBatch(0, 64, 1L);
+        ParticleEmitter emitter = new ParticleEmitter(10.0f);
+        emitter.setArea(5, 5, 5, 1, 1, 1);
+        emitter.setLife(100.0f, 100.0f);
+        emitter.setAppearance(0.1f, -1, 4, 2);
+        batch.addEmitter(emitter);
+        for (int step = 0; step < 20; step++) {
+            batch.simulate(0.05f);
+        }
+        assertEquals(10, batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            assertTrue(batch.getX(i) >= 4.0f && batch.getX(i) <= 6.0f);
+            assertTrue(batch.tile[i] == 4 || batch.tile[i] == 5);
+        }
+        
+        // Отключенный излучатель больше не добавляет частиц
+        batch.removeEmitter(emitter);
+        batch.simulate(0.05f);
+        assertEquals(10, batch.size());
+    }
+    
+    @Test
+    void writeInstancesUsesPackedLayout() {
+        ParticleBatch batch = new ParticleBatch(0, 2, 1L);
+        int color = ParticleBatch.rgba(1, 2, 3, 4);
+        batch.emit(1, 2, 3, 0, 0, 0, 2.0f, 0.5f, color, 300);
+        batch.simulate(1.0f);
+        
+        ByteBuffer target = ByteBuffer.allocate(3 * ParticleSystem.INSTANCE_BYTES).order(ByteOrder.nativeOrder());
+        batch.writeInstances(target, 1);
+        int offset = ParticleSystem.INSTANCE_BYTES;
+        assertEquals(0, target.position());
+        assertEquals(1.0f, target.getFloat(offset));
+        assertEquals(2.0f, target.getFloat(offset + 4));
+        assertEquals(3.0f, target.getFloat(offset + 8));
+        assertEquals(0.5f, target.getFloat(offset + 12));
+        assertEquals(color, target.getInt(offset + 16));
+        assertEquals(300, target.getShort(offset + 20) & 0xFFFF);
+        assertEquals(32767, target.getShort(offset + 22) & 0xFFFF, 1);
+    }
+}
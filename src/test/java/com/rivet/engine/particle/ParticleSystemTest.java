@@ -0,0 +1,73 @@
+package com.rivet.engine.particle;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ParticleSystemTest {
+    
+    private static ParticleSystem create() {
+        ParticleSystem system = new ParticleSystem(2);
+        int[] pages = {1, 0, 1, 0};
+        for (int b = 0; b < pages.length; b++) {
+            ParticleBatch batch = system.addBatch(pages[b], 512);
+            batch.setForces(9.8f, 0.2f);
+            batch.burst(b * 10.0f, 64.0f, 0.0f, 100 + b * 50, 1.0f, 3.0f, 2.0f, 0.1f, -1, pages[b]);
+        }
+        return system;
+    }
+    
+    @Test
+    void instancesAreGroupedByPage() {
+        ParticleSystem system = create();
+        ByteBuffer target = ByteBuffer.allocate(system.getCapacity() * ParticleSystem.INSTANCE_BYTES)
+            .order(ByteOrder.nativeOrder());
+        int total = system.writeInstances(target, null);
+        
+        assertEquals(system.getAliveCount(), total);
+        assertEquals(0, system.getPageFirst(0));
+        assertEquals(150 + 250, system.getPageInstanceCount(0));
+        assertEquals(400, system.getPageFirst(1));
+        assertEquals(100 + 200, system.getPageInstanceCount(1));
+        for (int page = 0; page < 2; page++) {
+            int first = system.getPageFirst(page);
+            for (int i = 0; i < system.getPageInstanceCount(page); i++) {
+                int offset = (first + i) * ParticleSystem.INSTANCE_BYTES;
+                assertEquals(page, target.getShort(offset + 20));
+            }
+        }
+    }
+    
+    @Test
+    void parallelSimulationMatchesSerial() {
+        ParticleSystem serial = create();
+        ParticleSystem parallel = create();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int step = 0; step < 90; step++) {
+                serial.simulate(1.0f / 60.0f, null);
+                parallel.simulate(1.0f / 60.0f, pool);
+            }
+            assertEquals(serial.getAliveCount(), parallel.getAliveCount());
+            
+            int bytes = serial.getCapacity() * ParticleSystem.INSTANCE_BYTES;
+            ByteBuffer expected = ByteBuffer.allocate(bytes).order(ByteOrder.nativeOrder());
+            ByteBuffer actual = ByteBuffer.allocate(bytes).order(ByteOrder.nativeOrder());
+            int total = serial.writeInstances(expected, null);
+            assertEquals(total, parallel.writeInstances(actual, pool));
+            expected.limit(total * ParticleSystem.INSTANCE_BYTES);
+            actual.limit(total * ParticleSystem.INSTANCE_BYTES);
+            assertEquals(expected, actual);
+        } finally {
+            pool.shutdown();
+        }
+        
+        // Частицы живут от 1 до 2 секунд
+        serial.simulate(0.6f, null);
+        assertEquals(0, serial.getAliveCount());
+    }
+}
@@ -0,0 +1,71 @@
+package com.rivet.engine.path;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class NodeTableTest {
+    
+    @Test
+    void sameKeyReturnsSameNodeAcrossRehash() {
+        NodeTable table = new NodeTable(16);
+        for (long key = 0; key < 5000; key++) {
+            assertEquals((int) key, table.nodeFor(key * 31 + 7));
+        }
+        assertEquals(5000, table.size());
+        for (long key = 0; key < 5000; key++) {
+            int node = table.nodeFor(key * 31 + 7);
+            assertEquals((int) key, node);
+            assertEquals(key * 31 + 7, table.keys[node]);
+        }
+        assertEquals(5000, table.size());
+    }
+    
+    @Test
+    void newNodeIsOpenWithoutParent() {
+        NodeTable table = new NodeTable(16);
+        int node = table.nodeFor(42);
+        assertEquals(Integer.MAX_VALUE, table.costs[node]);
+        assertEquals(-1, table.parents[node]);
+        assertFalse(table.closed[node]);
+    }
+    
+    @Test
+    void clearForgetsKeysAndResetsNodes() {
+        NodeTable table = new NodeTable(16);
+        for (int round = 0; round < 50; round++) {
+            table.clear();
+            assertEquals(0, table.size());
+            // Каждый раунд - новые ключи и часть старых: старые не должны находиться
+            for (int i = 0; i < 100 + round * 20; i++) {
+                long key = (long) round * 1000 + i;
+                int node = table.nodeFor(key);
+                assertEquals(i, node);
+                assertEquals(Integer.MAX_VALUE, table.costs[node]);
+                assertFalse(table.closed[node]);
+                table.costs[node] = i;
+                table.closed[node] = true;
+            }
+            int node = table.nodeFor((long) (round - 1) * 1000);
+            assertEquals(100 + round * 20, node);
+            assertEquals(Integer.MAX_VALUE, table.costs[node]);
+        }
+    }
+    
+    @Test
+    void clearAfterRehashKeepsTableConsistent() {
+        NodeTable table = new NodeTable(16);
+        for (long key = 0; key < 1000; key++) {
+            table.nodeFor(key);
+        }
+        table.clear();
+        for (long key = 500; key < 700; key++) {
+            assertEquals((int) (key - 500), table.nodeFor(key));
+        }
+        for (long key = 500; key < 700; key++) {
+            assertEquals((int) (key - 500), table.nodeFor(key));
+        }
+        assertEquals(200, table.size());
+    }
+}
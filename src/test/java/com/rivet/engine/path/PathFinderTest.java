@@ -0,0 +1,188 @@
+package com.rivet.engine.path;
+
+import com.rivet.engine.world.Blocks;
+import com.rivet.engine.world.World;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PathFinderTest {
+    
+    // Пол - каменный слой на y = FLOOR, сущность стоит на y = FLOOR + 1
+    private static final int FLOOR = 4;
+    private static final int Y = FLOOR + 1;
+    
+    /**
+     * Чанки -1..0 по обеим осям (блоки -16..15), каменный пол
+     */
+    static World flatWorld() {
+        World world = new World();
+        for (int cx = -1; cx <= 0; cx++) {
+            for (int cz = -1; cz <= 0; cz++) {
+                world.getOrCreateChunk(cx, cz);
+            }
+        }
+        fill(world, -16, FLOOR, -16, 15, FLOOR, 15, Blocks.STONE_ID);
+        return world;
+    }
+    
+    static void fill(World world, int x0, int y0, int z0, int x1, int y1, int z1, int id) {
+        for (int x = x0; x <= x1; x++) {
+            for (int y = y0; y <= y1; y++) {
+                for (int z = z0; z <= z1; z++) {
+                    world.setBlock(x, y, z, id);
+                }
+            }
+        }
+    }
+    
+    private static void assertContinuous(Path path) {
+        for (int i = 1; i < path.length(); i++) {
+            assertTrue(Math.abs(path.getX(i) - path.getX(i - 1)) <= 1, "step " + i);
+            assertTrue(Math.abs(path.getZ(i) - path.getZ(i - 1)) <= 1, "step " + i);
+        }
+    }
+    
+    @Test
+    void flatPathIsStraight() {
+        PathFinder finder = new PathFinder(flatWorld());
+        Path path = finder.find(0, Y, 0, 8, Y, 0, 1000);
+        assertTrue(path.isComplete());
+        assertEquals(9, path.length());
+        for (int i = 0; i < path.length(); i++) {
+            assertEquals(i, path.getX(i));
+            assertEquals(Y, path.getY(i));
+        }
+    }
+    
+    @Test
+    void unstandableStartGivesNoPath() {
+        PathFinder finder = new PathFinder(flatWorld());
+        assertNull(finder.find(0, Y + 3, 0, 8, Y, 0, 1000));
+    }
+    
+    @Test
+    void stepsUpOneBlockButNotTwo() {
+        World world = flatWorld();
+        // Ступень высотой 1 блок на всю ширину мира при x >= 4
+        fill(world, 4, Y, -16, 15, Y, 15, Blocks.STONE_ID);
+        PathFinder finder = new PathFinder(world);
+        Path path = finder.find(0, Y, 0, 8, Y + 1, 0, 1000);
+        assertNotNull(path);
+        assertTrue(path.isComplete());
+        assertContinuous(path);
+        boolean stepped = false;
+        for (int i = 1; i < path.length(); i++) {
+            int dy = path.getY(i) - path.getY(i - 1);
+            assertTrue(dy >= 0 && dy <= 1);
+            stepped |= dy == 1;
+        }
+        assertTrue(stepped);
+        
+        // Стена в 2 блока: подняться нельзя, цель недостижима
+        fill(world, 4, Y + 1, -16, 4, Y + 1, 15, Blocks.STONE_ID);
+        path = finder.find(0, Y, 0, 8, Y + 1, 0, 5000);
+        assertFalse(path.isComplete());
+    }
+    
+    @Test
+    void stepUpNeedsHeadroom() {
+        World world = flatWorld();
+        fill(world, 4, Y, -16, 15, Y, 15, Blocks.STONE_ID);
+        // Потолок на высоте головы над всей нижней частью: прыжок невозможен
+        fill(world, -16, Y + 2, -16, 3, Y + 2, 15, Blocks.STONE_ID);
+        PathFinder finder = new PathFinder(world);
+        assertFalse(finder.find(0, Y, 0, 8, Y + 1, 0, 5000).isComplete());
+    }
+    
+    @Test
+    void dropsAtMostMaxDrop() {
+        World world = flatWorld();
+        // Помост высотой MAX_DROP при x <= 2: спрыгнуть можно, забраться нельзя
+        fill(world, -16, Y, -16, 2, Y + PathFinder.MAX_DROP - 1, 15, Blocks.STONE_ID);
+        PathFinder finder = new PathFinder(world);
+        int top = Y + PathFinder.MAX_DROP;
+        Path down = finder.find(0, top, 0, 8, Y, 0, 1000);
+        assertTrue(down.isComplete());
+        int maxDrop = 0;
+        for (int i = 1; i < down.length(); i++) {
+            maxDrop = Math.max(maxDrop, down.getY(i - 1) - down.getY(i));
+        }
+        assertEquals(PathFinder.MAX_DROP, maxDrop);
+        assertFalse(finder.find(8, Y, 0, 0, top, 0, 5000).isComplete());
+        
+        // На блок выше - прыгать слишком высоко
+        fill(world, -16, top, -16, 2, top, 15, Blocks.STONE_ID);
+        assertFalse(finder.find(0, top + 1, 0, 8, Y, 0, 5000).isComplete());
+    }
+    
+    @Test
+    void diagonalDoesNotCutCorners() {
+        World world = flatWorld();
+        // Столб в 2 блока сбоку от диагонали (0,0) -> (1,1)
+        fill(world, 1, Y, 0, 1, Y + 1, 0, Blocks.STONE_ID);
+        PathFinder finder = new PathFinder(world);
+        Path path = finder.find(0, Y, 0, 1, Y, 1, 100);
+        assertTrue(path.isComplete());
+        assertEquals(3, path.length());
+        assertEquals(0, path.getX(1));
+        assertEquals(1, path.getZ(1));
+        
+        // Без столба - один диагональный шаг
+        world.setBlock(1, Y, 0, Blocks.AIR_ID);
+        world.setBlock(1, Y + 1, 0, Blocks.AIR_ID);
+        assertEquals(2, finder.find(0, Y, 0, 1, Y, 1, 100).length());
+    }
+    
+    @Test
+    void nodeLimitReturnsPartialPathTowardsGoal() {
+        PathFinder finder = new PathFinder(flatWorld());
+        Path path = finder.find(-14, Y, -14, 14, Y, 14, 20);
+        assertNotNull(path);
+        assertFalse(path.isComplete());
+        assertTrue(path.getExpandedNodes() <= 20);
+        assertTrue(path.length() > 1);
+        assertContinuous(path);
+        int last = path.length() - 1;
+        assertEquals(-14, path.getX(0));
+        assertTrue(path.getX(last) > -14 && path.getZ(last) > -14);
+    }
+    
+    @Test
+    void unloadedChunksAreNotEntered() {
+        World world = flatWorld();
+        PathFinder finder = new PathFinder(world);
+        assertFalse(finder.find(0, Y, 0, 20, Y, 0, 5000).isComplete());
+        world.unloadChunk(0, 0);
+        assertFalse(finder.isStandable(5, Y, 5));
+        Path path = finder.find(-2, Y, -2, 3, Y, 3, 5000);
+        assertFalse(path.isComplete());
+        for (int i = 0; i < path.length(); i++) {
+            assertFalse(path.getX(i) >= 0 && path.getZ(i) >= 0, "node " + i + " in unloaded chunk");
+        }
+    }
+    
+    @Test
+    void steppedSearchMatchesWholeSearch() {
+        World world = flatWorld();
+        fill(world, -5, Y, -10, -5, Y + 1, 10, Blocks.STONE_ID);
+        PathFinder finder = new PathFinder(world);
+        Path whole = finder.find(-10, Y, 0, 0, Y, 0, 4000);
+        finder.begin(-10, Y, 0, 0, Y, 0, 4000);
+        int steps = 0;
+        while (!finder.isFinished()) {
+            finder.step(7);
+            steps++;
+        }
+        Path stepped = finder.buildPath();
+        assertTrue(steps > 1);
+        assertEquals(whole.length(), stepped.length());
+        for (int i = 0; i < whole.length(); i++) {
+            assertEquals(whole.getNode(i), stepped.getNode(i));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.rivet.engine.path;
+
+import com.rivet.engine.world.Blocks;
+import com.rivet.engine.world.World;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PathfindingServiceTest {
+    
+    private static final int Y = 5;
+    
+    private final World world = PathFinderTest.flatWorld();
+    private final PathfindingService service = new PathfindingService(world, 1, 4096, 8);
+    
+    PathfindingServiceTest() {
+        world.addBlockChangeListener(service);
+        world.addChunkListener(service);
+    }
+    
+    @AfterEach
+    void shutdown() {
+        service.shutdown();
+    }
+    
+    /**
+     * Выдавать бюджет, пока запрос не завершится, и перенести путь в кэш
+     */
+    private Path await(PathRequest request) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!request.isDone()) {
+            assertTrue(System.nanoTime() < deadline, "request timed out");
+            service.update();
+            Thread.sleep(1);
+        }
+        service.update();
+        return request.getPath();
+    }
+    
+    @Test
+    void completedPathIsCachedAndReused() throws InterruptedException {
+        Path path = await(service.submit(1, Y, 1, 10, Y, 1));
+        assertNotNull(path);
+        assertTrue(path.isComplete());
+        assertEquals(1, service.getCachedCount());
+        
+        PathRequest again = service.submit(1, Y, 1, 10, Y, 1);
+        assertTrue(again.isDone());
+        assertSame(path, again.getPath());
+        assertEquals(1, service.getCacheHits());
+    }
+    
+    @Test
+    void cancelledRequestIsNeverPublished() throws InterruptedException {
+        // Бюджет не выдан: запрос ждет в очереди или перед первой порцией
+        PathRequest request = service.submit(-14, Y, -14, 14, Y, 14);
+        assertTrue(request.cancel());
+        assertTrue(request.isCancelled());
+        for (int i = 0; i < 20; i++) {
+            service.update();
+            Thread.sleep(1);
+        }
+        assertFalse(request.isDone());
+        assertNull(request.getPath());
+        assertEquals(0, service.getCachedCount());
+        assertEquals(0, service.getSearchCount());
+        
+        // Сервис продолжает работать после отмены
+        assertTrue(await(service.submit(1, Y, 1, 4, Y, 1)).isComplete());
+    }
+    
+    @Test
+    void blockChangeEvictsOnlyAffectedPaths() throws InterruptedException {
+        await(service.submit(1, Y, 1, 10, Y, 1));
+        await(service.submit(1, Y, -10, 10, Y, -10));
+        assertEquals(2, service.getCachedCount());
+        
+        // Смена травы на землю не меняет проходимость
+        world.setBlock(5, Y - 1, 1, Blocks.GRASS_ID);
+        world.setBlock(5, Y - 1, 1, Blocks.DIRT_ID);
+        assertEquals(2, service.getCachedCount());
+        
+        // Блок далеко от обоих путей
+        world.setBlock(-12, Y, 12, Blocks.STONE_ID);
+        assertEquals(2, service.getCachedCount());
+        
+        // Блок на первом пути
+        world.setBlock(5, Y, 1, Blocks.STONE_ID);
+        assertEquals(1, service.getCachedCount());
+        // Первый путь ищется заново (поток поиска может успеть его найти), второй - из кэша
+        long hits = service.getCacheHits();
+        service.submit(1, Y, 1, 10, Y, 1);
+        assertEquals(hits, service.getCacheHits());
+        assertTrue(service.submit(1, Y, -10, 10, Y, -10).isDone());
+        assertEquals(hits + 1, service.getCacheHits());
+    }
+    
+    @Test
+    void chunkUnloadEvictsPathsThroughIt() throws InterruptedException {
+        await(service.submit(1, Y, 1, 10, Y, 1));
+        await(service.submit(-10, Y, -10, -2, Y, -10));
+        assertEquals(2, service.getCachedCount());
+        
+        // Чанк (0, -1) не касается ни одного пути
+        world.unloadChunk(0, -1);
+        assertEquals(2, service.getCachedCount());
+        
+        world.unloadChunk(0, 0);
+        assertEquals(1, service.getCachedCount());
+        assertTrue(service.submit(-10, Y, -10, -2, Y, -10).isDone());
+    }
+    
+    @Test
+    void pathFoundWhileWorldChangedIsNotCached() throws InterruptedException {
+        PathRequest request = service.submit(1, Y, 1, 10, Y, 1);
+        // Изменение проходимости после постановки запроса
+        world.setBlock(-12, Y, 12, Blocks.STONE_ID);
+        Path path = await(request);
+        assertTrue(path.isComplete());
+        assertEquals(0, service.getCachedCount());
+    }
+}
@@ -0,0 +1,157 @@
+package com.rivet.engine.physics;
+
+import com.rivet.engine.entity.BodyStore;
+import com.rivet.engine.entity.BoundsStore;
+import com.rivet.engine.entity.EntityManager;
+import com.rivet.engine.entity.PositionStore;
+import com.rivet.engine.entity.VelocityStore;
+import com.rivet.engine.world.Blocks;
+import com.rivet.engine.world.Chunk;
+import com.rivet.engine.world.World;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PhysicsSystemTest {
+    
+    private static final float GROUND = 64.0f;
+    private static final float EPSILON = 1.0e-4f;
+    
+    /**
+     * Мир 3x3 чанка с каменным полом до высоты 64 и тело на нем
+     */
+    private static final class Scene {
+        final World world = new World();
+        final EntityManager entities = new EntityManager();
+        final PositionStore positions = new PositionStore(16);
+        final VelocityStore velocities = new VelocityStore(16);
+        final BoundsStore bounds = new BoundsStore(16);
+        final BodyStore bodies = new BodyStore(16);
+        final PhysicsSystem physics = new PhysicsSystem(world, positions, velocities, bounds, bodies);
+        
+        Scene() {
+            for (int chunkZ = -1; chunkZ <= 1; chunkZ++) {
+                for (int chunkX = -1; chunkX <= 1; chunkX++) {
+                    Chunk chunk = world.getOrCreateChunk(chunkX, chunkZ);
+                    for (int sectionY = 0; sectionY < (int) GROUND >> 4; sectionY++) {
+                        chunk.getOrCreateSection(sectionY).fill(Blocks.STONE_ID);
+                    }
+                }
+            }
+        }
+        
+        int spawn(float x, float y, float z, float vx, float vz) {
+            int entity = entities.create();
+            positions.add(entity, x, y, z);
+            velocities.add(entity, vx, 0.0f, vz);
+            bounds.update(bounds.add(entity, 0.3f, 1.8f), x, y, z);
+            bodies.add(entity, 1.0f);
+            return entity;
+        }
+        
+        float x(int entity) {
+            return positions.getX()[positions.indexOf(entity)];
+        }
+        
+        float y(int entity) {
+            return positions.getY()[positions.indexOf(entity)];
+        }
+        
+        float z(int entity) {
+            return positions.getZ()[positions.indexOf(entity)];
+        }
+        
+        float vx(int entity) {
+            return velocities.getX()[velocities.indexOf(entity)];
+        }
+        
+        float vy(int entity) {
+            return velocities.getY()[velocities.indexOf(entity)];
+        }
+        
+        float vz(int entity) {
+            return velocities.getZ()[velocities.indexOf(entity)];
+        }
+    }
+    
+    @Test
+    void bodyFallsOntoGround() {
+        Scene scene = new Scene();
+        int body = scene.spawn(8.5f, 80.0f, 8.5f, 0.0f, 0.0f);
+        
+        scene.physics.advance(0.1f);
+        assertTrue(scene.y(body) < 80.0f);
+        assertTrue(scene.vy(body) < 0.0f);
+        
+        for (int i = 0; i < 30; i++) {
+            scene.physics.advance(0.1f);
+        }
+        assertEquals(GROUND, scene.y(body), EPSILON);
+        assertEquals(0.0f, scene.vy(body));
+        assertEquals(8.5f, scene.x(body));
+        assertEquals(8.5f, scene.z(body));
+        int flags = scene.bodies.getFlags()[scene.bodies.indexOf(body)];
+        assertTrue((flags & VoxelCollider.ON_GROUND) != 0);
+    }
+    
+    @Test
+    void bodySlidesAlongWall() {
+        Scene scene = new Scene();
+        // Стена x = 12 высотой 3 блока вдоль всей оси Z
+        for (int z = -16; z < 32; z++) {
+            for (int y = (int) GROUND; y < GROUND + 3; y++) {
+                scene.world.setBlock(12, y, z, Blocks.STONE_ID);
+            }
+        }
+        int body = scene.spawn(10.5f, GROUND, 0.5f, 5.0f, 3.0f);
+        
+        for (int i = 0; i < 20; i++) {
+            scene.physics.advance(0.05f);
+        }
+        // Движение к стене остановлено, вдоль стены продолжается
+        assertEquals(12.0f - 0.3f, scene.x(body), EPSILON);
+        assertEquals(0.0f, scene.vx(body));
+        assertEquals(0.5f + 3.0f, scene.z(body), 1.0e-3f);
+        assertEquals(3.0f, scene.vz(body));
+        assertEquals(GROUND, scene.y(body), EPSILON);
+    }
+    
+    @Test
+    void resultDoesNotDependOnTickSize() {
+        float[] ticks = { PhysicsSystem.STEP, 1.0f / 20.0f, 1.0f / 144.0f, 0.1f, 1.0f / 30.0f };
+        float[] expected = null;
+        for (float tick : ticks) {
+            Scene scene = new Scene();
+            int falling = scene.spawn(4.5f, 75.0f, 4.5f, 2.0f, -1.5f);
+            int walking = scene.spawn(-6.5f, GROUND, 3.5f, -1.0f, 4.0f);
+            
+            // Ровно 2 секунды тиками одной длины
+            int steps = 0;
+            for (int i = 0, count = Math.round(2.0f / tick); i < count; i++) {
+                steps += scene.physics.advance(tick);
+            }
+            assertEquals(120, steps, "steps with tick " + tick);
+            
+            float[] state = {
+                scene.x(falling), scene.y(falling), scene.z(falling), scene.vy(falling),
+                scene.x(walking), scene.y(walking), scene.z(walking)
+            };
+            if (expected == null) {
+                expected = state;
+            } else {
+                for (int i = 0; i < state.length; i++) {
+                    assertEquals(expected[i], state[i], "component " + i + " with tick " + tick);
+                }
+            }
+        }
+    }
+    
+    @Test
+    void longPauseIsNotCaughtUp() {
+        Scene scene = new Scene();
+        scene.spawn(0.5f, 80.0f, 0.5f, 0.0f, 0.0f);
+        assertEquals(8, scene.physics.advance(5.0f));
+        assertEquals(1, scene.physics.advance(PhysicsSystem.STEP));
+    }
+}
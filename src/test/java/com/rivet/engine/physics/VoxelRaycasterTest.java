@@ -0,0 +1,57 @@
+package com.rivet.engine.physics;
+
+import com.rivet.engine.world.Blocks;
+import com.rivet.engine.world.Face;
+import com.rivet.engine.world.World;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VoxelRaycasterTest {
+    
+    private static World world() {
+        World world = new World();
+        for (int cx = -1; cx <= 1; cx++) {
+            for (int cz = -1; cz <= 1; cz++) {
+                world.getOrCreateChunk(cx, cz);
+            }
+        }
+        world.getOrCreateChunk(0, 0).getOrCreateSection(0).setBlock(5, 3, 5, Blocks.STONE_ID);
+        return world;
+    }
+    
+    @Test
+    void hitsBlockFromAbove() {
+        VoxelRaycaster raycaster = new VoxelRaycaster(world());
+        RaycastResult result = new RaycastResult();
+        assertTrue(raycaster.cast(5.5f, 40.0f, 5.5f, 0, -1, 0, 64.0f, result));
+        assertEquals(RaycastResult.BLOCK, result.getType());
+        assertEquals(5, result.getBlockX());
+        assertEquals(3, result.getBlockY());
+        assertEquals(5, result.getBlockZ());
+        assertEquals(Face.UP, result.getFace());
+        assertEquals(36.0f, result.getDistance(), 1.0e-4f);
+        // Пустые секции над блоком пересекаются целиком
+        assertTrue(raycaster.getLastSectionSkips() > 0);
+    }
+    
+    @Test
+    void unloadedChunkIsNotReadFromPreviousRay() {
+        World world = world();
+        VoxelRaycaster raycaster = new VoxelRaycaster(world);
+        RaycastResult result = new RaycastResult();
+        assertTrue(raycaster.cast(5.5f, 40.0f, 5.5f, 0, -1, 0, 64.0f, result));
+        
+        // Чанк выгружен между лучами: следующий луч не должен видеть его блоки
+        world.unloadChunk(0, 0);
+        assertFalse(raycaster.cast(5.5f, 40.0f, 5.5f, 0, -1, 0, 64.0f, result));
+        assertEquals(RaycastResult.UNLOADED, result.getType());
+        
+        // Чанк загружен заново без блока: попадания нет
+        world.getOrCreateChunk(0, 0);
+        assertFalse(raycaster.cast(5.5f, 40.0f, 5.5f, 0, -1, 0, 64.0f, result));
+        assertEquals(RaycastResult.MISS, result.getType());
+    }
+}
@@ -0,0 +1,113 @@
+package com.rivet.engine.render;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BufferArenaTest {
+    
+    @Test
+    void allocatesFirstFitAndCoalescesOnFree() {
+        BufferArena arena = new BufferArena(100);
+        int a = arena.allocate(10);
+        int b = arena.allocate(20);
+        int c = arena.allocate(30);
+        assertEquals(0, a);
+        assertEquals(10, b);
+        assertEquals(30, c);
+        assertEquals(60, arena.getUsed());
+        assertEquals(3, arena.getAllocationCount());
+        
+        // Разрыв между a и c
+        arena.free(b, 20);
+        assertEquals(2, arena.getFreeBlockCount());
+        assertEquals(40, arena.getLargestFreeBlock());
+        assertEquals(10, arena.allocate(15), "first fit reuses the hole");
+        arena.free(10, 15);
+        
+        // Слияние с предыдущим, следующим и обоими соседями
+        arena.free(a, 10);
+        assertEquals(2, arena.getFreeBlockCount());
+        arena.free(c, 30);
+        assertEquals(1, arena.getFreeBlockCount());
+        assertEquals(100, arena.getLargestFreeBlock());
+        assertEquals(0, arena.getUsed());
+        assertEquals(0, arena.getAllocationCount());
+        assertEquals(0.0f, arena.getFragmentation());
+    }
+    
+    @Test
+    void randomChurnKeepsRangesDisjointAndCoalescesBack() {
+        int capacity = 1 << 16;
+        BufferArena arena = new BufferArena(capacity);
+        BitSet occupied = new BitSet(capacity);
+        List<int[]> live = new ArrayList<>();
+        Random random = new Random(29);
+        
+        for (int step = 0; step < 20_000; step++) {
+            if (live.isEmpty() || random.nextInt(100) < 55) {
+                int size = 1 + random.nextInt(512);
+                int offset = arena.allocate(size);
+                if (offset < 0) {
+                    assertTrue(arena.getLargestFreeBlock() < size);
+                    continue;
+                }
+                assertTrue(offset + size <= capacity);
+                assertEquals(-1, occupied.get(offset, offset + size).nextSetBit(0), "overlapping range");
+                occupied.set(offset, offset + size);
+                live.add(new int[] { offset, size });
+            } else {
+                int[] range = live.remove(random.nextInt(live.size()));
+                arena.free(range[0], range[1]);
+                occupied.clear(range[0], range[0] + range[1]);
+            }
+            assertEquals(occupied.cardinality(), arena.getUsed());
+            assertEquals(live.size(), arena.getAllocationCount());
+        }
+        
+        float fragmentation = arena.getFragmentation();
+        assertTrue(fragmentation >= 0.0f && fragmentation < 1.0f, "fragmentation " + fragmentation);
+        assertTrue(arena.getFreeBlockCount() <= live.size() + 1, "free blocks are coalesced");
+        
+        for (int[] range : live) {
+            arena.free(range[0], range[1]);
+        }
+        assertEquals(0, arena.getUsed());
+        assertEquals(1, arena.getFreeBlockCount());
+        assertEquals(capacity, arena.getLargestFreeBlock());
+        assertEquals(0.0f, arena.getFragmentation());
+    }
+    
+    @Test
+    void failsWhenFull() {
+        BufferArena arena = new BufferArena(64);
+        assertEquals(0, arena.allocate(32));
+        assertEquals(32, arena.allocate(32));
+        assertEquals(-1, arena.allocate(1));
+        assertEquals(0, arena.getFree());
+        
+        // Свободного места хватает, но не одним блоком
+        arena.free(0, 16);
+        arena.free(48, 16);
+        assertEquals(32, arena.getFree());
+        assertEquals(-1, arena.allocate(24));
+        assertEquals(0.5f, arena.getFragmentation());
+    }
+    
+    @Test
+    void rejectsInvalidRanges() {
+        BufferArena arena = new BufferArena(64);
+        assertThrows(IllegalArgumentException.class, () -> arena.allocate(0));
+        assertThrows(IllegalArgumentException.class, () -> arena.free(60, 8));
+        int offset = arena.allocate(8);
+        arena.free(offset, 8);
+        assertThrows(IllegalStateException.class, () -> arena.free(offset, 8));
+    }
+}
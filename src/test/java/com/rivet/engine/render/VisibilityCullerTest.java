@@ -0,0 +1,108 @@
+package com.rivet.engine.render;
+
+import com.rivet.engine.render.mesh.SectionVisibility;
+import com.rivet.engine.world.Chunk;
+import com.rivet.engine.world.ChunkPos;
+import org.joml.Matrix4f;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VisibilityCullerTest {
+    
+    private static final int RADIUS = 3;
+    
+    private final VisibilityCuller culler = new VisibilityCuller(RADIUS);
+    
+    @Test
+    void sealedCaveHidesSectionsBehindIt() {
+        fill(SectionVisibility.ALL);
+        // Камера в секции (0, 4, 0), все соседние секции глухие
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    if (dx != 0 || dy != 0 || dz != 0) {
+                        culler.setSection(dx, 4 + dy, dz, SectionVisibility.NONE);
+                    }
+                }
+            }
+        }
+        
+        cull(8, 72, 8, 1, 0, 0);
+        assertTrue(isVisible(0, 4, 0));
+        assertTrue(isVisible(1, 4, 0), "the cave wall itself is visible");
+        assertFalse(isVisible(2, 4, 0));
+        assertFalse(isVisible(3, 4, 0));
+        
+        // Без стен те же секции видны
+        fill(SectionVisibility.ALL);
+        cull(8, 72, 8, 1, 0, 0);
+        assertTrue(isVisible(2, 4, 0));
+        assertTrue(isVisible(3, 4, 0));
+    }
+    
+    @Test
+    void openColumnIsTraversed() {
+        fill(SectionVisibility.NONE);
+        for (int y = 0; y < Chunk.SECTION_COUNT; y++) {
+            culler.setSection(0, y, 0, SectionVisibility.ALL);
+        }
+        
+        // Камера наверху шахты смотрит вниз
+        cull(8, 250, 8, 0, -1, 0);
+        for (int y = 0; y < Chunk.SECTION_COUNT; y++) {
+            assertTrue(isVisible(0, y, 0), "column section " + y);
+        }
+        assertTrue(isVisible(1, 0, 0), "shaft wall at the bottom is visible");
+        assertFalse(isVisible(2, 0, 0), "sections behind the shaft walls are hidden");
+    }
+    
+    @Test
+    void sectionBehindCameraIsFrustumCulled() {
+        fill(SectionVisibility.ALL);
+        
+        cull(8, 72, 8, 1, 0, 0);
+        assertTrue(isVisible(2, 4, 0));
+        assertFalse(isVisible(-2, 4, 0));
+        assertFalse(isVisible(-3, 4, 1));
+        
+        // Развернувшись, камера видит секции с другой стороны
+        cull(8, 72, 8, -1, 0, 0);
+        assertTrue(isVisible(-2, 4, 0));
+        assertFalse(isVisible(2, 4, 0));
+    }
+    
+    @Test
+    void unknownCameraSectionShowsNothing() {
+        assertFalse(cull(8, 72, 8, 1, 0, 0) > 0);
+    }
+    
+    private void fill(long visibility) {
+        for (int x = -RADIUS; x <= RADIUS; x++) {
+            for (int z = -RADIUS; z <= RADIUS; z++) {
+                for (int y = 0; y < Chunk.SECTION_COUNT; y++) {
+                    culler.setSection(x, y, z, visibility);
+                }
+            }
+        }
+    }
+    
+    private int cull(float x, float y, float z, float dirX, float dirY, float dirZ) {
+        Matrix4f viewProjection = new Matrix4f()
+            .perspective((float) Math.toRadians(90.0), 1.0f, 0.1f, 1000.0f)
+            .lookAt(x, y, z, x + dirX, y + dirY, z + dirZ, dirY != 0 ? 1 : 0, dirY != 0 ? 0 : 1, 0);
+        return culler.cull(viewProjection, x, y, z);
+    }
+    
+    private boolean isVisible(int sectionX, int sectionY, int sectionZ) {
+        long key = ChunkPos.packSection(sectionX, sectionY, sectionZ);
+        long[] visible = culler.getVisible();
+        for (int i = 0; i < culler.getVisibleCount(); i++) {
+            if (visible[i] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,100 @@
+package com.rivet.engine.render.mesh;
+
+import com.rivet.engine.world.Blocks;
+import com.rivet.engine.world.Chunk;
+import com.rivet.engine.world.ChunkSection;
+import com.rivet.engine.world.Face;
+import com.rivet.engine.world.World;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChunkMesherTest {
+    
+    private final MeshBufferPool pool = new MeshBufferPool(2);
+    private final ChunkMesher mesher = new ChunkMesher();
+    private final World world = new World();
+    
+    @AfterEach
+    void releaseBuffers() {
+        pool.clear();
+    }
+    
+    @Test
+    void singleBlockHasSixFaces() {
+        section(0, 0, 0).setBlock(5, 6, 7, Blocks.STONE_ID);
+        
+        int[] faces = new int[Face.COUNT];
+        assertEquals(6, mesh(0, 0, 0, faces));
+        for (int face = 0; face < Face.COUNT; face++) {
+            assertEquals(1, faces[face], "quads on face " + face);
+        }
+    }
+    
+    @Test
+    void fullSectionMergesIntoOneQuadPerFace() {
+        section(0, 0, 0).fill(Blocks.STONE_ID);
+        
+        int[] faces = new int[Face.COUNT];
+        assertEquals(6, mesh(0, 0, 0, faces));
+        for (int face = 0; face < Face.COUNT; face++) {
+            assertEquals(1, faces[face], "quads on face " + face);
+        }
+    }
+    
+    @Test
+    void noFacesBetweenNeighbouringSections() {
+        // Две полные секции по разные стороны границы чанков X = 16
+        section(0, 0, 0).fill(Blocks.STONE_ID);
+        section(1, 0, 0).fill(Blocks.STONE_ID);
+        
+        int[] west = new int[Face.COUNT];
+        assertEquals(5, mesh(0, 0, 0, west));
+        assertEquals(0, west[Face.EAST]);
+        
+        int[] east = new int[Face.COUNT];
+        assertEquals(5, mesh(1, 0, 0, east));
+        assertEquals(0, east[Face.WEST]);
+    }
+    
+    @Test
+    void emptySectionIsSkipped() {
+        section(0, 0, 0);
+        assertFalse(mesher.gather(world, 0, 0, 0));
+        assertFalse(mesher.gather(world, 3, 2, 1));
+    }
+    
+    private ChunkSection section(int sectionX, int sectionY, int sectionZ) {
+        Chunk chunk = world.getOrCreateChunk(sectionX, sectionZ);
+        return chunk.getOrCreateSection(sectionY);
+    }
+    
+    /**
+     * Построить меш секции и посчитать четырехугольники по граням
+     * @param faces количество четырехугольников каждой грани, заполняется
+     * @return общее количество четырехугольников
+     */
+    private int mesh(int sectionX, int sectionY, int sectionZ, int[] faces) {
+        assertTrue(mesher.gather(world, sectionX, sectionY, sectionZ));
+        MeshBuilder builder = new MeshBuilder(pool);
+        builder.begin();
+        mesher.mesh(builder);
+        int quads = builder.getQuadCount();
+        ByteBuffer buffer = builder.finish();
+        try {
+            assertEquals(quads * MeshBuilder.QUAD_SIZE, buffer.remaining());
+            for (int quad = 0; quad < quads; quad++) {
+                int word0 = buffer.getInt(quad * MeshBuilder.QUAD_SIZE);
+                faces[TerrainVertexFormat.unpackNormal(word0)]++;
+            }
+        } finally {
+            pool.release(buffer);
+        }
+        return quads;
+    }
+}
@@ -0,0 +1,193 @@
+package com.rivet.engine.render.mesh;
+
+import com.rivet.engine.world.Blocks;
+import com.rivet.engine.world.ChunkSection;
+import com.rivet.engine.world.Face;
+import com.rivet.engine.world.World;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LodMesherTest {
+    
+    private final MeshBufferPool pool = new MeshBufferPool(2);
+    private final LodMesher lodMesher = new LodMesher();
+    private final World world = new World();
+    
+    /**
+     * Границы четырехугольника меша в блоках секции
+     */
+    private static final class Quad {
+        final int face;
+        final int[] min = { Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE };
+        final int[] max = { Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE };
+        
+        Quad(int face) {
+            this.face = face;
+        }
+    }
+    
+    @AfterEach
+    void releaseBuffers() {
+        pool.clear();
+    }
+    
+    @Test
+    void halfFilledCellsAreOpaque() {
+        // Шахматный порядок: в любой ячейке 2^3, 4^3, 8^3 ровно половина блоков
+        ChunkSection section = section(0, 0);
+        for (int y = 0; y < 16; y++) {
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    if (((x + y + z) & 1) == 0) {
+                        section.setBlock(x, y, z, Blocks.STONE_ID);
+                    }
+                }
+            }
+        }
+        for (int level = 1; level <= LodMesher.MAX_LEVEL; level++) {
+            List<Quad> quads = lod(0, level);
+            assertEquals(6, quads.size(), "level " + level);
+            for (Quad quad : quads) {
+                int d = Face.axis(quad.face);
+                assertEquals(16, quad.max[(d + 1) % 3] - quad.min[(d + 1) % 3]);
+                assertEquals(16, quad.max[(d + 2) % 3] - quad.min[(d + 2) % 3]);
+            }
+            assertEquals(SectionVisibility.NONE, lodMesher.computeVisibility());
+        }
+    }
+    
+    @Test
+    void lessThanHalfFilledCellsAreAir() {
+        // Каждый второй столбец по X и Z: четверть блоков каждой ячейки
+        ChunkSection section = section(0, 0);
+        for (int y = 0; y < 16; y++) {
+            for (int z = 0; z < 16; z += 2) {
+                for (int x = 0; x < 16; x += 2) {
+                    section.setBlock(x, y, z, Blocks.STONE_ID);
+                }
+            }
+        }
+        for (int level = 1; level <= LodMesher.MAX_LEVEL; level++) {
+            assertEquals(0, lod(0, level).size(), "level " + level);
+            assertEquals(SectionVisibility.ALL, lodMesher.computeVisibility());
+        }
+    }
+    
+    @Test
+    void flatPlainGetsFewerQuadsPerLevel() {
+        // Равнина высотой 8 блоков с пестрым верхним слоем из травы и земли
+        ChunkSection section = section(0, 0);
+        for (int z = 0; z < 16; z++) {
+            for (int x = 0; x < 16; x++) {
+                for (int y = 0; y < 7; y++) {
+                    section.setBlock(x, y, z, Blocks.STONE_ID);
+                }
+                int hash = (x * 16 + z) * 0x9E3779B9;
+                section.setBlock(x, 7, z, (hash >>> 31) == 0 ? Blocks.GRASS_ID : Blocks.DIRT_ID);
+            }
+        }
+        
+        int previous = full(0);
+        for (int level = 1; level <= LodMesher.MAX_LEVEL; level++) {
+            int quads = lod(0, level).size();
+            assertTrue(quads < previous, "level " + level + ": " + quads + " quads, previous " + previous);
+            previous = quads;
+        }
+    }
+    
+    @Test
+    void skirtsOnlyOnSideBordersOfTopLayer() {
+        // Равнина высотой 8 блоков, с востока вплотную полная секция соседа
+        ChunkSection section = section(0, 0);
+        for (int y = 0; y < 8; y++) {
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    section.setBlock(x, y, z, Blocks.STONE_ID);
+                }
+            }
+        }
+        section(1, 0).fill(Blocks.STONE_ID);
+        
+        for (int level = 1; level <= LodMesher.MAX_LEVEL; level++) {
+            int scale = LodMesher.scale(level);
+            int[] faces = new int[Face.COUNT];
+            Quad skirt = null;
+            for (Quad quad : lod(0, level)) {
+                faces[quad.face]++;
+                if (quad.face == Face.EAST) {
+                    skirt = quad;
+                }
+            }
+            
+            // Восточная грань закрыта соседом: остается только юбка верхнего слоя ячеек
+            assertEquals(1, faces[Face.EAST], "level " + level);
+            assertEquals(16, skirt.min[0]);
+            assertEquals(8, skirt.max[1]);
+            assertEquals(Math.max(0, 8 - 2 * scale), skirt.min[1], "skirt drops one cell below the top layer");
+            assertEquals(16, skirt.max[2] - skirt.min[2]);
+            
+            // Открытые стороны - обычные грани без опускания, сверху и снизу юбок нет
+            assertEquals(1, faces[Face.WEST]);
+            assertEquals(1, faces[Face.NORTH]);
+            assertEquals(1, faces[Face.SOUTH]);
+            assertEquals(1, faces[Face.UP]);
+            assertEquals(1, faces[Face.DOWN]);
+        }
+    }
+    
+    private ChunkSection section(int chunkX, int sectionY) {
+        return world.getOrCreateChunk(chunkX, 0).getOrCreateSection(sectionY);
+    }
+    
+    private int full(int chunkX) {
+        ChunkMesher mesher = new ChunkMesher();
+        assertTrue(mesher.gather(world, chunkX, 0, 0));
+        MeshBuilder builder = new MeshBuilder(pool);
+        builder.begin();
+        mesher.mesh(builder);
+        pool.release(builder.finish());
+        return builder.getQuadCount();
+    }
+    
+    private List<Quad> lod(int chunkX, int level) {
+        List<Quad> quads = new ArrayList<>();
+        if (!lodMesher.gather(world, chunkX, 0, 0, level)) {
+            return quads;
+        }
+        MeshBuilder builder = new MeshBuilder(pool);
+        builder.begin();
+        lodMesher.mesh(builder);
+        ByteBuffer buffer = builder.finish();
+        try {
+            for (int q = 0; q < builder.getQuadCount(); q++) {
+                Quad quad = null;
+                for (int v = 0; v < 4; v++) {
+                    int word0 = buffer.getInt(q * MeshBuilder.QUAD_SIZE + v * MeshBuilder.VERTEX_SIZE);
+                    if (quad == null) {
+                        quad = new Quad(TerrainVertexFormat.unpackNormal(word0));
+                    }
+                    int[] position = {
+                        TerrainVertexFormat.unpackX(word0),
+                        TerrainVertexFormat.unpackY(word0),
+                        TerrainVertexFormat.unpackZ(word0)
+                    };
+                    for (int axis = 0; axis < 3; axis++) {
+                        quad.min[axis] = Math.min(quad.min[axis], position[axis]);
+                        quad.max[axis] = Math.max(quad.max[axis], position[axis]);
+                    }
+                }
+                quads.add(quad);
+            }
+        } finally {
+            pool.release(buffer);
+        }
+        return quads;
+    }
+}
@@ -0,0 +1,30 @@
+package com.rivet.engine.render.mesh;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SectionMeshTest {
+    
+    @Test
+    void retainedVerticesReturnToPoolAfterLastRelease() {
+        MeshBufferPool pool = new MeshBufferPool(4);
+        ByteBuffer vertices = pool.acquire(1024);
+        SectionMesh mesh = new SectionMesh(1, 2, 3, vertices, 4, 0L, 0, pool, null);
+        long pooled = pool.getPooledBytes();
+        
+        // Поток загрузки удерживает меш, служба мешей отпускает свою ссылку
+        mesh.retain();
+        mesh.release();
+        assertEquals(pooled, pool.getPooledBytes());
+        
+        mesh.release();
+        assertEquals(pooled + vertices.capacity(), pool.getPooledBytes());
+        // Лишний release не возвращает буфер второй раз
+        mesh.release();
+        assertEquals(pooled + vertices.capacity(), pool.getPooledBytes());
+        pool.clear();
+    }
+}
@@ -0,0 +1,64 @@
+package com.rivet.engine.render.mesh;
+
+import com.rivet.engine.world.Blocks;
+import com.rivet.engine.world.ChunkSection;
+import com.rivet.engine.world.Face;
+import com.rivet.engine.world.World;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SectionVisibilityTest {
+    
+    private final World world = new World();
+    private final ChunkMesher mesher = new ChunkMesher();
+    
+    @Test
+    void solidSectionConnectsNothing() {
+        section().fill(Blocks.STONE_ID);
+        assertEquals(SectionVisibility.NONE, compute());
+    }
+    
+    @Test
+    void floorSeparatesTopFromBottom() {
+        ChunkSection section = section();
+        for (int x = 0; x < ChunkSection.SIZE; x++) {
+            for (int z = 0; z < ChunkSection.SIZE; z++) {
+                section.setBlock(x, 8, z, Blocks.STONE_ID);
+            }
+        }
+        
+        long visibility = compute();
+        assertFalse(SectionVisibility.isConnected(visibility, Face.UP, Face.DOWN));
+        assertFalse(SectionVisibility.isConnected(visibility, Face.DOWN, Face.UP));
+        assertTrue(SectionVisibility.isConnected(visibility, Face.WEST, Face.EAST));
+        assertTrue(SectionVisibility.isConnected(visibility, Face.UP, Face.NORTH));
+        assertTrue(SectionVisibility.isConnected(visibility, Face.DOWN, Face.SOUTH));
+    }
+    
+    @Test
+    void hollowCubeWithOpenShaftConnectsOnlyShaftEnds() {
+        // Глухой куб, сквозь который проходит вертикальная шахта 1x1
+        ChunkSection section = section();
+        section.fill(Blocks.STONE_ID);
+        for (int y = 0; y < ChunkSection.SIZE; y++) {
+            section.setBlock(7, y, 7, Blocks.AIR_ID);
+        }
+        
+        long visibility = compute();
+        assertTrue(SectionVisibility.isConnected(visibility, Face.UP, Face.DOWN));
+        assertFalse(SectionVisibility.isConnected(visibility, Face.UP, Face.WEST));
+        assertFalse(SectionVisibility.isConnected(visibility, Face.NORTH, Face.SOUTH));
+    }
+    
+    private ChunkSection section() {
+        return world.getOrCreateChunk(0, 0).getOrCreateSection(0);
+    }
+    
+    private long compute() {
+        assertTrue(mesher.gather(world, 0, 0, 0));
+        return mesher.computeVisibility();
+    }
+}
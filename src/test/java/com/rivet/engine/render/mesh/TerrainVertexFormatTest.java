@@ -0,0 +1,99 @@
+package com.rivet.engine.render.mesh;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TerrainVertexFormatTest {
+    
+    @Test
+    void positionRoundTripsEveryValue() {
+        for (int x = 0; x < 32; x++) {
+            for (int y = 0; y < 32; y++) {
+                for (int z = 0; z < 32; z++) {
+                    int word0 = TerrainVertexFormat.packPosition(x, y, z, 5, 3, 2);
+                    assertEquals(x, TerrainVertexFormat.unpackX(word0));
+                    assertEquals(y, TerrainVertexFormat.unpackY(word0));
+                    assertEquals(z, TerrainVertexFormat.unpackZ(word0));
+                    assertEquals(5, TerrainVertexFormat.unpackNormal(word0));
+                    assertEquals(3, TerrainVertexFormat.unpackCorner(word0));
+                    assertEquals(2, TerrainVertexFormat.unpackAo(word0));
+                }
+            }
+        }
+    }
+    
+    @Test
+    void normalCornerAndAoRoundTrip() {
+        for (int normal = 0; normal < 6; normal++) {
+            for (int corner = 0; corner < 4; corner++) {
+                for (int ao = 0; ao < 4; ao++) {
+                    int word0 = TerrainVertexFormat.packPosition(31, 16, 0, normal, corner, ao);
+                    assertEquals(normal, TerrainVertexFormat.unpackNormal(word0));
+                    assertEquals(corner, TerrainVertexFormat.unpackCorner(word0));
+                    assertEquals(ao, TerrainVertexFormat.unpackAo(word0));
+                    assertEquals(31, TerrainVertexFormat.unpackX(word0));
+                    assertEquals(16, TerrainVertexFormat.unpackY(word0));
+                    assertEquals(0, TerrainVertexFormat.unpackZ(word0));
+                }
+            }
+        }
+    }
+    
+    @Test
+    void materialRoundTripsTilesAndLight() {
+        for (int tile = 0; tile <= 0xFFFF; tile++) {
+            int word1 = TerrainVertexFormat.packMaterial(tile, 15, 0);
+            assertEquals(tile, TerrainVertexFormat.unpackTile(word1));
+            assertEquals(15, TerrainVertexFormat.unpackSkyLight(word1));
+            assertEquals(0, TerrainVertexFormat.unpackBlockLight(word1));
+        }
+        for (int sky = 0; sky < 16; sky++) {
+            for (int block = 0; block < 16; block++) {
+                int word1 = TerrainVertexFormat.packMaterial(0xFFFF, sky, block);
+                assertEquals(0xFFFF, TerrainVertexFormat.unpackTile(word1));
+                assertEquals(sky, TerrainVertexFormat.unpackSkyLight(word1));
+                assertEquals(block, TerrainVertexFormat.unpackBlockLight(word1));
+            }
+        }
+    }
+    
+    @Test
+    void layoutMatchesTerrainShader() throws IOException {
+        // Слово 0: x | y << 5 | z << 10 | нормаль << 15 | угол << 18 | ao << 20
+        assertEquals(1, TerrainVertexFormat.packPosition(1, 0, 0, 0, 0, 0));
+        assertEquals(1 << 5, TerrainVertexFormat.packPosition(0, 1, 0, 0, 0, 0));
+        assertEquals(1 << 10, TerrainVertexFormat.packPosition(0, 0, 1, 0, 0, 0));
+        assertEquals(5 << 15, TerrainVertexFormat.packPosition(0, 0, 0, 5, 0, 0));
+        assertEquals(3 << 18, TerrainVertexFormat.packPosition(0, 0, 0, 0, 3, 0));
+        assertEquals(3 << 20, TerrainVertexFormat.packPosition(0, 0, 0, 0, 0, 3));
+        // Слово 1: плитка | небесный свет << 16 | свет блоков << 20
+        assertEquals(0xFFFF, TerrainVertexFormat.packMaterial(0xFFFF, 0, 0));
+        assertEquals(15 << 16, TerrainVertexFormat.packMaterial(0, 15, 0));
+        assertEquals(15 << 20, TerrainVertexFormat.packMaterial(0, 0, 15));
+        
+        // Те же сдвиги в шейдере, который распаковывает вершину на GPU
+        String shader = readShader("/shaders/terrain.vert");
+        assertTrue(shader.contains("float(word0 & 31u)"));
+        assertTrue(shader.contains("(word0 >> 5u) & 31u"));
+        assertTrue(shader.contains("(word0 >> 10u) & 31u"));
+        assertTrue(shader.contains("(word0 >> 15u) & 7u"));
+        assertTrue(shader.contains("(word0 >> 20u) & 3u"));
+        assertTrue(shader.contains("word1 & 0xFFFFu"));
+        assertTrue(shader.contains("(word1 >> 16u) & 15u"));
+        assertTrue(shader.contains("(word1 >> 20u) & 15u"));
+    }
+    
+    private static String readShader(String path) throws IOException {
+        try (InputStream in = TerrainVertexFormatTest.class.getResourceAsStream(path)) {
+            assertNotNull(in, path);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.rivet.engine.resources;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Наборы ресурсов: порядок предзагрузки, освобождение по счетчику наборов, проверка вложений
+ * Звуки и конфигурации генерируются в каталог тестовых ресурсов перед тестами
+ * (WAV декодируется без OpenAL), менеджер читает конфигурацию по своему пути.
+ */
+class ResourceBundleTest {
+    
+    private static final int SOUNDS = 8;
+    private static final long TIMEOUT_SECONDS = 10;
+    
+    private static Path soundDir;
+    private static Path configDir;
+    
+    private ResourceManager manager;
+    
+    @BeforeAll
+    static void generate() throws Exception {
+        Path root = Path.of(ResourceBundleTest.class.getResource("/logback-test.xml").toURI()).getParent();
+        soundDir = Files.createDirectories(root.resolve("sounds/generated"));
+        configDir = Files.createDirectories(root.resolve("bundles"));
+        for (int i = 0; i < SOUNDS; i++) {
+            writeWav(soundDir.resolve("tone" + i + ".wav"), 220 + 40 * i);
+        }
+        
+        StringBuilder sounds = new StringBuilder();
+        for (int i = 0; i < SOUNDS; i++) {
+            sounds.append(i == 0 ? "" : ", ").append("\"TONE_").append(i).append("\": \"sounds/generated/tone").append(i).append(".wav\"");
+        }
+        String header = "{\"sounds\": {" + sounds + "}, \"bundles\": {";
+        writeConfig("valid.json", header
+            + "\"menu\": {\"resources\": [\"TONE_0\", \"TONE_1\"]},"
+            + "\"world\": {\"resources\": [\"TONE_1\", \"TONE_2\", \"TONE_3\"]},"
+            + "\"ambient\": {\"resources\": [\"TONE_4\", \"TONE_5\", \"TONE_6\", \"TONE_7\"]},"
+            + "\"game\": {\"resources\": [\"TONE_0\"], \"include\": [\"menu\", \"world\"]},"
+            + "\"all\": {\"include\": [\"game\", \"ambient\", \"menu\"]}}}");
+        writeConfig("unknown-resource.json", header
+            + "\"menu\": {\"resources\": [\"TONE_0\", \"MISSING\"]}}}");
+        writeConfig("unknown-include.json", header
+            + "\"menu\": {\"resources\": [\"TONE_0\"], \"include\": [\"world\"]}}}");
+        writeConfig("cycle.json", header
+            + "\"a\": {\"include\": [\"b\"]},"
+            + "\"b\": {\"resources\": [\"TONE_1\"], \"include\": [\"c\"]},"
+            + "\"c\": {\"include\": [\"a\"]}}}");
+    }
+    
+    @AfterAll
+    static void delete() throws IOException {
+        for (Path dir : new Path[] { soundDir, configDir }) {
+            try (Stream<Path> files = Files.walk(dir)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+    
+    @AfterEach
+    void tearDown() {
+        if (manager != null) {
+            manager.cleanup();
+        }
+        System.clearProperty("rivet.resources.loadThreads");
+    }
+    
+    /**
+     * Полсекунды синусоиды, моно 22050 Гц
+     */
+    private static void writeWav(Path file, int frequency) throws IOException {
+        AudioFormat format = new AudioFormat(22050, 16, 1, true, false);
+        int frames = 11025;
+        byte[] data = new byte[frames * 2];
+        for (int i = 0; i < frames; i++) {
+            short sample = (short) (Math.sin(2 * Math.PI * frequency * i / 22050.0) * 12000);
+            data[i * 2] = (byte) sample;
+            data[i * 2 + 1] = (byte) (sample >> 8);
+        }
+        try (AudioInputStream stream = new AudioInputStream(new ByteArrayInputStream(data), format, frames)) {
+            AudioSystem.write(stream, AudioFileFormat.Type.WAVE, file.toFile());
+        }
+    }
+    
+    private static void writeConfig(String name, String json) throws IOException {
+        Files.writeString(configDir.resolve(name), json, StandardCharsets.UTF_8);
+    }
+    
+    private ResourceManager start(ResourceManager created) throws ResourceLoadException {
+        manager = created;
+        manager.initialize();
+        return manager;
+    }
+    
+    private static void await(BundleLoad load) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (!load.isDone() && System.nanoTime() < deadline) {
+            synchronized (load) {
+                load.wait(10);
+            }
+        }
+        assertTrue(load.isDone(), load.getName() + " не загрузился");
+    }
+    
+    private static void await(CountDownLatch latch) throws InterruptedException {
+        assertTrue(latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+    
+    /**
+     * Менеджер, который записывает порядок предзагрузки и держит первый ресурс до сигнала
+     */
+    private static class GatedManager extends ResourceManager {
+        final List<String> order = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch proceed = new CountDownLatch(1);
+        
+        GatedManager() {
+            super("/bundles/valid.json");
+        }
+        
+        @Override
+        boolean preload(String key, ResourceLocation location) throws ResourceLoadException, InterruptedException {
+            if (order.isEmpty()) {
+                order.add(key);
+                started.countDown();
+                proceed.await();
+            } else {
+                order.add(key);
+            }
+            return super.preload(key, location);
+        }
+    }
+    
+    @Test
+    void nestedBundleLoadsUnionOfResources() throws Exception {
+        start(new ResourceManager("/bundles/valid.json"));
+        BundleLoad all = manager.preloadBundle("all", ResourceManager.PRIORITY_NORMAL);
+        // game (TONE_0 + menu + world) и ambient без повторов
+        assertEquals(SOUNDS, all.getTotalCount());
+        await(all);
+        assertTrue(all.isSucceeded());
+        assertEquals(1.0f, all.getProgress());
+        for (int i = 0; i < SOUNDS; i++) {
+            assertTrue(manager.isResourceLoaded("TONE_" + i));
+        }
+        assertEquals(0, manager.getPendingPreloadCount());
+    }
+    
+    @Test
+    void unknownResourceInBundleIsRejected() {
+        ResourceLoadException error = assertThrows(ResourceLoadException.class,
+            () -> start(new ResourceManager("/bundles/unknown-resource.json")));
+        assertTrue(error.getMessage().contains("MISSING"), error.getMessage());
+    }
+    
+    @Test
+    void unknownIncludeIsRejected() {
+        ResourceLoadException error = assertThrows(ResourceLoadException.class,
+            () -> start(new ResourceManager("/bundles/unknown-include.json")));
+        assertTrue(error.getMessage().contains("world"), error.getMessage());
+    }
+    
+    @Test
+    void includeCycleIsRejected() {
+        ResourceLoadException error = assertThrows(ResourceLoadException.class,
+            () -> start(new ResourceManager("/bundles/cycle.json")));
+        assertTrue(error.getMessage().contains("includes itself"), error.getMessage());
+    }
+    
+    @Test
+    void higherPriorityBundleLoadsFirst() throws Exception {
+        System.setProperty("rivet.resources.loadThreads", "1");
+        GatedManager gated = (GatedManager) start(new GatedManager());
+        BundleLoad ambient = gated.preloadBundle("ambient", ResourceManager.PRIORITY_BACKGROUND);
+        // Единственный поток занят TONE_4; остальное ждет в очереди
+        await(gated.started);
+        BundleLoad world = gated.preloadBundle("world", ResourceManager.PRIORITY_NORMAL);
+        BundleLoad menu = gated.preloadBundle("menu", ResourceManager.PRIORITY_URGENT);
+        // Повторный запрос поднимает приоритет еще не начатых ресурсов
+        assertSame(ambient, gated.preloadBundle("ambient", ResourceManager.PRIORITY_NORMAL));
+        gated.proceed.countDown();
+        await(ambient);
+        await(world);
+        await(menu);
+        
+        // TONE_1 входит и в menu, и в world: загружается один раз с приоритетом menu,
+        // но сохраняет место в порядке постановки и идет раньше TONE_0
+        assertEquals(List.of("TONE_4", "TONE_1", "TONE_0", "TONE_5", "TONE_6", "TONE_7", "TONE_2", "TONE_3"), gated.order);
+        assertTrue(ambient.isSucceeded() && world.isSucceeded() && menu.isSucceeded());
+    }
+    
+    @Test
+    void releaseUnloadsOnlyResourcesOfNoOtherBundle() throws Exception {
+        start(new ResourceManager("/bundles/valid.json"));
+        BundleLoad menu = manager.preloadBundle("menu", ResourceManager.PRIORITY_NORMAL);
+        BundleLoad game = manager.preloadBundle("game", ResourceManager.PRIORITY_NORMAL);
+        await(menu);
+        await(game);
+        assertSame(menu, manager.preloadBundle("menu", ResourceManager.PRIORITY_BACKGROUND));
+        
+        // TONE_0 и TONE_1 удерживает game
+        assertTrue(manager.releaseBundle("menu"));
+        assertTrue(menu.isReleased());
+        assertFalse(manager.isBundleResident("menu"));
+        assertFalse(manager.releaseBundle("menu"));
+        for (int i = 0; i < 4; i++) {
+            assertTrue(manager.isResourceLoaded("TONE_" + i));
+        }
+        
+        assertTrue(manager.releaseBundle("game"));
+        for (int i = 0; i < 4; i++) {
+            assertFalse(manager.isResourceLoaded("TONE_" + i));
+        }
+        assertEquals(0, manager.getLoadedResourceCount());
+        
+        // Ресурс, уже загруженный другим набором, засчитывается сразу
+        BundleLoad world = manager.preloadBundle("world", ResourceManager.PRIORITY_NORMAL);
+        await(world);
+        BundleLoad again = manager.preloadBundle("menu", ResourceManager.PRIORITY_NORMAL);
+        assertTrue(again.getLoadedCount() >= 1);
+        await(again);
+        assertTrue(again.isSucceeded());
+    }
+    
+    @Test
+    void bundleRequestedDuringSkippedLoadIsLoadedAgain() throws Exception {
+        System.setProperty("rivet.resources.loadThreads", "1");
+        CountDownLatch skipped = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        AtomicBoolean skippedResult = new AtomicBoolean(true);
+        GatedManager gated = (GatedManager) start(new GatedManager() {
+            @Override
+            boolean preload(String key, ResourceLocation location) throws ResourceLoadException, InterruptedException {
+                boolean result = super.preload(key, location);
+                if (skipped.getCount() > 0) {
+                    skippedResult.set(result);
+                    skipped.countDown();
+                    resume.await();
+                }
+                return result;
+            }
+        });
+        BundleLoad first = gated.preloadBundle("ambient", ResourceManager.PRIORITY_NORMAL);
+        await(gated.started);
+        // Набор освобожден, когда загрузка TONE_4 уже начата: ресурс пропускается
+        gated.releaseBundle("ambient");
+        gated.proceed.countDown();
+        await(skipped);
+        assertFalse(skippedResult.get());
+        // Новый набор присоединяется к пропущенной задаче и должен получить загруженный ресурс
+        BundleLoad second = gated.preloadBundle("ambient", ResourceManager.PRIORITY_NORMAL);
+        resume.countDown();
+        await(second);
+        
+        assertTrue(second.isSucceeded());
+        assertTrue(gated.isResourceLoaded("TONE_4"));
+        assertEquals(0, first.getLoadedCount());
+        assertEquals(2, Collections.frequency(gated.order, "TONE_4"));
+    }
+}
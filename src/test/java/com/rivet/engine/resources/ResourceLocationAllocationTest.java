@@ -0,0 +1,38 @@
+package com.rivet.engine.resources;
+
+import com.rivet.engine.util.AllocationMeter;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * Бюджет выделений: ResourceLocation как ключ кэша ресурсов
+ */
+class ResourceLocationAllocationTest {
+    
+    private static int sink;
+    
+    @Test
+    void hashCodeDoesNotAllocate() {
+        ResourceLocation location = new ResourceLocation("", "sounds/ui/click.wav");
+        AllocationMeter.assertNoAllocation("ResourceLocation.hashCode", () -> sink += location.hashCode());
+    }
+    
+    @Test
+    void equalsDoesNotAllocate() {
+        // Разные экземпляры с одинаковым содержимым: сравниваются строки, а не ссылки
+        ResourceLocation a = new ResourceLocation("", new String("textures/blocks/stone.png"));
+        ResourceLocation b = new ResourceLocation("", new String("textures/blocks/stone.png"));
+        ResourceLocation c = new ResourceLocation("", "textures/blocks/dirt.png");
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+        assertNotEquals(a, c);
+        
+        AllocationMeter.assertNoAllocation("ResourceLocation.equals", () -> {
+            if (a.equals(b) && !a.equals(c)) {
+                sink++;
+            }
+        });
+    }
+}
@@ -0,0 +1,60 @@
+package com.rivet.engine.resources;
+
+import com.rivet.engine.util.AllocationMeter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Бюджет выделений: повторная загрузка ресурса из кэша
+ * Звук UI_CLICK из resources.json лежит в тестовых ресурсах (короткий WAV
+ * декодируется без OpenAL и OpenGL).
+ */
+class ResourceManagerAllocationTest {
+    
+    private ResourceManager manager;
+    
+    @BeforeEach
+    void setUp() throws ResourceLoadException {
+        manager = new ResourceManager();
+        manager.initialize();
+    }
+    
+    @AfterEach
+    void tearDown() {
+        manager.cleanup();
+    }
+    
+    @Test
+    void cachedLoadByKeyDoesNotAllocate() throws ResourceLoadException {
+        Resource first = manager.loadResource("UI_CLICK");
+        assertTrue(first.isLoaded());
+        assertSame(first, manager.loadResource("UI_CLICK"));
+        
+        AllocationMeter.assertNoAllocation("ResourceManager.loadResource(String) cache hit", () -> {
+            try {
+                manager.loadResource("UI_CLICK");
+            } catch (ResourceLoadException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+    
+    @Test
+    void cachedLoadByLocationDoesNotAllocate() throws ResourceLoadException {
+        ResourceLocation location = manager.getLocation("UI_CLICK");
+        Resource first = manager.loadResource(location);
+        assertSame(first, manager.loadResource(location));
+        
+        AllocationMeter.assertNoAllocation("ResourceManager.loadResource(ResourceLocation) cache hit", () -> {
+            try {
+                manager.loadResource(location);
+            } catch (ResourceLoadException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,76 @@
+package com.rivet.engine.util;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Счетчик байт, выделенных в куче текущим потоком, для тестов бюджета выделений
+ *
+ * Обертка над com.sun.management.ThreadMXBean. Горячие пути (обновление и
+ * отрисовка модулей, установка uniform, поиск в кэше ресурсов) в
+ * установившемся режиме не должны создавать мусор: тест прогревает операцию,
+ * затем требует ровно 0 байт на вызов. Если JVM не поддерживает счетчик,
+ * тест пропускается.
+ */
+public final class AllocationMeter {
+    
+    // Прогрев: C2 компилирует операцию и убирает выделения после escape-анализа
+    public static final int WARMUP = 50_000;
+    public static final int ITERATIONS = 10_000;
+    
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+    private static final boolean SUPPORTED = THREADS != null
+        && THREADS.isThreadAllocatedMemorySupported() && THREADS.isThreadAllocatedMemoryEnabled();
+    
+    private AllocationMeter() {
+    }
+    
+    private static com.sun.management.ThreadMXBean threads() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        return bean instanceof com.sun.management.ThreadMXBean ? (com.sun.management.ThreadMXBean) bean : null;
+    }
+    
+    public static boolean isSupported() {
+        return SUPPORTED;
+    }
+    
+    /**
+     * Получить объем, выделенный текущим потоком за время его работы
+     * @return размер в байтах (0 если счетчик не поддерживается)
+     */
+    public static long currentThreadBytes() {
+        return SUPPORTED ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+    }
+    
+    /**
+     * Измерить выделения одной операции в установившемся режиме
+     * @param operation операция
+     * @param warmup количество вызовов прогрева
+     * @param iterations количество измеряемых вызовов
+     * @return среднее число байт на вызов (0 если счетчик не поддерживается)
+     */
+    public static long bytesPerOperation(Runnable operation, int warmup, int iterations) {
+        for (int i = 0; i < warmup; i++) {
+            operation.run();
+        }
+        long start = currentThreadBytes();
+        for (int i = 0; i < iterations; i++) {
+            operation.run();
+        }
+        return (currentThreadBytes() - start) / Math.max(1, iterations);
+    }
+    
+    /**
+     * Проверить, что операция после прогрева не выделяет памяти
+     * Любой объект на вызов (не меньше 16 байт) дает ненулевое среднее.
+     * @param description что измеряется (для сообщения об ошибке)
+     * @param operation операция
+     */
+    public static void assertNoAllocation(String description, Runnable operation) {
+        assumeTrue(SUPPORTED, "ThreadMXBean allocation counter is not supported");
+        assertEquals(0, bytesPerOperation(operation, WARMUP, ITERATIONS),
+            description + " allocates in steady state (bytes per call)");
+    }
+}
@@ -0,0 +1,103 @@
+package com.rivet.engine.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class LongObjectHashMapTest {
+    
+    /**
+     * Значение, знающее свой ключ: читатель проверяет, что получил запись своего ключа
+     */
+    private static final class Entry {
+        final long key;
+        
+        Entry(long key) {
+            this.key = key;
+        }
+    }
+    
+    @Test
+    void matchesHashMapUnderRandomChurn() {
+        LongObjectHashMap<Entry> map = new LongObjectHashMap<>();
+        Map<Long, Entry> expected = new HashMap<>();
+        Random random = new Random(26);
+        for (int step = 0; step < 200_000; step++) {
+            long key = random.nextInt(512) - 256;
+            if (random.nextInt(3) == 0) {
+                assertSame(expected.remove(key), map.remove(key));
+            } else {
+                Entry entry = new Entry(key);
+                assertSame(expected.put(key, entry), map.put(key, entry));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (long key = -300; key < 300; key++) {
+            assertSame(expected.get(key), map.get(key));
+        }
+        int[] visited = { 0 };
+        map.forEach((key, value) -> {
+            assertEquals(key, value.key);
+            visited[0]++;
+        });
+        assertEquals(expected.size(), visited[0]);
+    }
+    
+    @Test
+    void reinsertAfterRemoveReturnsNewValue() {
+        LongObjectHashMap<Entry> map = new LongObjectHashMap<>();
+        Entry first = new Entry(7);
+        Entry second = new Entry(7);
+        map.put(7, first);
+        assertSame(first, map.remove(7));
+        assertNull(map.get(7));
+        assertNull(map.put(7, second));
+        assertSame(second, map.get(7));
+        assertEquals(1, map.size());
+    }
+    
+    @Test
+    void readersNeverSeeAnotherKeysValue() throws InterruptedException {
+        LongObjectHashMap<Entry> map = new LongObjectHashMap<>(64);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread[] readers = new Thread[2];
+        for (int r = 0; r < readers.length; r++) {
+            long seed = r;
+            readers[r] = new Thread(() -> {
+                Random random = new Random(seed);
+                while (running.get() && failure.get() == null) {
+                    long key = random.nextInt(96);
+                    Entry entry = map.get(key);
+                    if (entry != null && entry.key != key) {
+                        failure.set("get(" + key + ") returned the value of key " + entry.key);
+                    }
+                }
+            });
+            readers[r].start();
+        }
+        
+        // Писатель постоянно удаляет и вставляет ключи, оставляя надгробия в цепочках пробирования
+        Random random = new Random(42);
+        long deadline = System.nanoTime() + 300_000_000L;
+        while (System.nanoTime() < deadline && failure.get() == null) {
+            long key = random.nextInt(96);
+            if (map.remove(key) == null) {
+                map.put(key, new Entry(key));
+            }
+        }
+        running.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertNull(failure.get());
+    }
+}
@@ -0,0 +1,106 @@
+package com.rivet.engine.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TripleBufferTest {
+    
+    /**
+     * Буфер из двух полей, которые производитель всегда пишет одинаковыми
+     */
+    private static final class Pair {
+        long first;
+        long second;
+    }
+    
+    @Test
+    void acquireReturnsLatestPublication() {
+        TripleBuffer<Pair> buffer = new TripleBuffer<>(Pair::new);
+        Pair initial = buffer.acquire();
+        assertFalse(buffer.hasFresh());
+        
+        Pair written = buffer.getWriteBuffer();
+        written.first = 1;
+        assertFalse(buffer.publish());
+        assertTrue(buffer.hasFresh());
+        assertNotSame(written, buffer.getWriteBuffer());
+        
+        Pair acquired = buffer.acquire();
+        assertSame(written, acquired);
+        assertFalse(buffer.hasFresh());
+        // Без новой публикации возвращается тот же буфер
+        assertSame(acquired, buffer.acquire());
+        assertNotSame(initial, acquired);
+    }
+    
+    @Test
+    void unreadPublicationIsReplaced() {
+        TripleBuffer<Pair> buffer = new TripleBuffer<>(Pair::new);
+        buffer.getWriteBuffer().first = 1;
+        assertFalse(buffer.publish());
+        buffer.getWriteBuffer().first = 2;
+        // Первая публикация не прочитана и заменена второй
+        assertTrue(buffer.publish());
+        assertEquals(2, buffer.acquire().first);
+        
+        buffer.getWriteBuffer().first = 3;
+        assertFalse(buffer.publish());
+        assertEquals(3, buffer.acquire().first);
+    }
+    
+    @Test
+    void producerNeverWritesBufferHeldByConsumer() {
+        TripleBuffer<Pair> buffer = new TripleBuffer<>(Pair::new);
+        for (int i = 0; i < 100; i++) {
+            buffer.getWriteBuffer().first = i;
+            buffer.publish();
+            Pair front = buffer.acquire();
+            for (int j = 0; j < 3; j++) {
+                assertNotSame(front, buffer.getWriteBuffer());
+                buffer.getWriteBuffer().first = -1;
+                buffer.publish();
+            }
+            assertEquals(i, front.first);
+            buffer.acquire();
+        }
+    }
+    
+    @Test
+    void concurrentConsumerSeesNoTornOrStaleBuffers() throws Exception {
+        TripleBuffer<Pair> buffer = new TripleBuffer<>(Pair::new);
+        int publications = 500_000;
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread producer = new Thread(() -> {
+            for (long i = 1; i <= publications; i++) {
+                Pair pair = buffer.getWriteBuffer();
+                pair.first = i;
+                pair.second = i;
+                buffer.publish();
+            }
+        }, "TripleBufferTest-producer");
+        producer.setUncaughtExceptionHandler((thread, e) -> failure.set(e));
+        producer.start();
+        
+        long last = 0;
+        while (last < publications) {
+            Pair pair = buffer.acquire();
+            // Пока буфер у потребителя, производитель в него не пишет
+            long first = pair.first;
+            Thread.onSpinWait();
+            assertEquals(first, pair.second);
+            assertTrue(first >= last, "went back from " + last + " to " + first);
+            last = first;
+        }
+        producer.join();
+        assertNull(failure.get());
+        assertEquals(publications, buffer.acquire().first);
+    }
+}
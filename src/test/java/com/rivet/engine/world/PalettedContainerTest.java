@@ -0,0 +1,80 @@
+package com.rivet.engine.world;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PalettedContainerTest {
+    
+    private static int[] ids(int distinct) {
+        int[] ids = new int[PalettedContainer.SIZE];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = 1 + (int) ((i * 2654435761L) % distinct);
+        }
+        return ids;
+    }
+    
+    @Test
+    void widensThroughEveryFormatKeepingValues() {
+        PalettedContainer container = new PalettedContainer(0);
+        assertEquals(0, container.getBits());
+        int[] expected = new int[PalettedContainer.SIZE];
+        int[] widths = new int[300];
+        for (int n = 0; n < widths.length; n++) {
+            int index = (int) (n * 2654435761L % PalettedContainer.SIZE);
+            assertEquals(expected[index], container.set(index, n + 1));
+            expected[index] = n + 1;
+            widths[n] = container.getBits();
+        }
+        assertEquals(4, widths[0]);
+        assertEquals(4, widths[14]);
+        assertEquals(8, widths[15]);
+        assertEquals(8, widths[254]);
+        assertEquals(PalettedContainer.DIRECT_BITS, widths[255]);
+        for (int i = 0; i < PalettedContainer.SIZE; i++) {
+            assertEquals(expected[i], container.get(i));
+        }
+    }
+    
+    @Test
+    void setAllPicksNarrowestFormat() {
+        int[] distinct = {1, 16, 17, 256, 257};
+        int[] bits = {0, 4, 8, 8, PalettedContainer.DIRECT_BITS};
+        for (int k = 0; k < distinct.length; k++) {
+            int[] ids = ids(distinct[k]);
+            PalettedContainer container = new PalettedContainer(0);
+            container.setAll(ids);
+            assertEquals(bits[k], container.getBits(), distinct[k] + " distinct ids");
+            for (int i = 0; i < ids.length; i++) {
+                assertEquals(ids[i], container.get(i));
+            }
+        }
+    }
+    
+    @Test
+    void eightBitPaletteFindsExistingEntries() {
+        int[] ids = ids(256);
+        PalettedContainer container = new PalettedContainer(0);
+        container.setAll(ids);
+        // Перезапись значениями из палитры не меняет формат и не растит палитру
+        for (int i = 0; i < PalettedContainer.SIZE; i++) {
+            container.set(i, ids[(i * 7) & (PalettedContainer.SIZE - 1)]);
+        }
+        assertEquals(8, container.getBits());
+        assertEquals(256, container.getPaletteSize());
+        for (int i = 0; i < PalettedContainer.SIZE; i++) {
+            assertEquals(ids[(i * 7) & (PalettedContainer.SIZE - 1)], container.get(i));
+        }
+    }
+    
+    @Test
+    void eightBitFormatIsSmallerThanDirect() {
+        PalettedContainer eight = new PalettedContainer(0);
+        eight.setAll(ids(256));
+        PalettedContainer direct = new PalettedContainer(0);
+        direct.setAll(ids(4096));
+        assertTrue(eight.getMemoryUsage() < direct.getMemoryUsage(),
+            eight.getMemoryUsage() + " vs " + direct.getMemoryUsage());
+    }
+}
@@ -0,0 +1,149 @@
+package com.rivet.engine.world.gen;
+
+import com.rivet.engine.world.Chunk;
+import com.rivet.engine.world.World;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChunkGenerationSchedulerTest {
+    
+    /**
+     * Генератор, который не может построить чанк [1, 0] первые failures раз
+     */
+    private static final class FailingGenerator extends TerrainGenerator {
+        final AtomicInteger attempts = new AtomicInteger();
+        final int failures;
+        
+        FailingGenerator(int failures) {
+            super(7L);
+            this.failures = failures;
+        }
+        
+        @Override
+        public Chunk generate(int chunkX, int chunkZ) {
+            if (chunkX == 1 && chunkZ == 0 && attempts.incrementAndGet() <= failures) {
+                throw new IllegalStateException("generator failure " + attempts.get());
+            }
+            return super.generate(chunkX, chunkZ);
+        }
+    }
+    
+    @Test
+    void retriesTransientFailureWithBackoff() throws InterruptedException {
+        World world = new World();
+        FailingGenerator generator = new FailingGenerator(2);
+        ChunkGenerationScheduler scheduler = new ChunkGenerationScheduler(world, generator, 1, 2, 1, 1);
+        try {
+            scheduler.setViewer(8, 8, 0, -1);
+            assertTrue(run(scheduler, () -> world.isChunkLoaded(1, 0), 5_000));
+            assertEquals(3, generator.attempts.get());
+            assertEquals(2, scheduler.getFailureCount());
+            assertTrue(scheduler.isAreaLoaded(1));
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+    
+    @Test
+    void givesUpAfterMaxAttempts() throws InterruptedException {
+        World world = new World();
+        FailingGenerator generator = new FailingGenerator(Integer.MAX_VALUE);
+        ChunkGenerationScheduler scheduler = new ChunkGenerationScheduler(world, generator, 1, 2, 1, 1);
+        try {
+            scheduler.setViewer(8, 8, 0, -1);
+            long max = ChunkGenerationScheduler.MAX_ATTEMPTS;
+            assertTrue(run(scheduler, () -> scheduler.getFailureCount() >= max, 10_000));
+            
+            // Дальше чанк не ставится в очередь, остальные загружены
+            run(scheduler, () -> false, 1_000);
+            assertEquals(ChunkGenerationScheduler.MAX_ATTEMPTS, generator.attempts.get());
+            assertEquals(max, scheduler.getFailureCount());
+            assertFalse(world.isChunkLoaded(1, 0));
+            assertTrue(world.isChunkLoaded(0, 0));
+            assertTrue(world.isChunkLoaded(-1, 0));
+            assertTrue(world.isChunkLoaded(0, 1));
+            assertTrue(world.isChunkLoaded(0, -1));
+            assertEquals(0, scheduler.getPendingCount());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+    
+    @Test
+    void generatesAndKeepsChunksAroundEveryViewer() throws InterruptedException {
+        World world = new World();
+        ChunkGenerationScheduler scheduler = new ChunkGenerationScheduler(world, new TerrainGenerator(7L), 2, 4, 2, 2);
+        try {
+            scheduler.setViewer(8, 8, 0, -1);
+            scheduler.setViewer(1, 20 * 16 + 8, 8, 0, -1);
+            assertEquals(2, scheduler.getViewerCount());
+            assertTrue(run(scheduler, () -> scheduler.isAreaLoaded(2) && isAreaLoaded(world, 20, 0, 2), 10_000));
+            
+            // Второй наблюдатель ушел: его чанки выгружаются, чанки основного остаются
+            scheduler.removeViewer(1);
+            scheduler.update(16);
+            assertEquals(1, scheduler.getViewerCount());
+            assertFalse(world.isChunkLoaded(20, 0));
+            assertTrue(scheduler.isAreaLoaded(2));
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+    
+    @Test
+    void overlappingViewersQueueChunkOnce() {
+        World world = new World();
+        ChunkGenerationScheduler scheduler = new ChunkGenerationScheduler(world, new TerrainGenerator(7L), 1, 1, 2, 2);
+        try {
+            scheduler.setViewer(8, 8, 0, -1);
+            scheduler.setViewer(1, 16 + 8, 8, 0, -1);
+            scheduler.update(16);
+            
+            int union = 0;
+            for (int z = -2; z <= 2; z++) {
+                for (int x = -2; x <= 3; x++) {
+                    if (x * x + z * z <= 4 || (x - 1) * (x - 1) + z * z <= 4) {
+                        union++;
+                    }
+                }
+            }
+            assertEquals(union, scheduler.getPendingCount());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+    
+    private static boolean isAreaLoaded(World world, int centerX, int centerZ, int radius) {
+        for (int dz = -radius; dz <= radius; dz++) {
+            for (int dx = -radius; dx <= radius; dx++) {
+                if (dx * dx + dz * dz <= radius * radius && !world.isChunkLoaded(centerX + dx, centerZ + dz)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Вызывать update, пока условие не выполнится
+     * @return true если условие выполнилось до истечения времени
+     */
+    private static boolean run(ChunkGenerationScheduler scheduler, BooleanSupplier done,
+                               long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutMillis * 1_000_000L;
+        while (System.nanoTime() < deadline) {
+            scheduler.update(16);
+            if (done.getAsBoolean()) {
+                return true;
+            }
+            Thread.sleep(5);
+        }
+        return false;
+    }
+}
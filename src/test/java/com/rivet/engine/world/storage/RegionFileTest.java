@@ -0,0 +1,179 @@
+package com.rivet.engine.world.storage;
+
+import com.rivet.engine.world.Blocks;
+import com.rivet.engine.world.Chunk;
+import com.rivet.engine.world.ChunkSection;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RegionFileTest {
+    
+    @TempDir
+    Path directory;
+    
+    private static byte[] payload(int length, long seed) {
+        byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+    
+    private Path writeRegion(String name, byte[] small, byte[] large) throws IOException {
+        Path path = directory.resolve(name);
+        try (RegionFile region = new RegionFile(path)) {
+            region.write(0, 0, small, small.length);
+            region.write(1, 0, large, large.length);
+            region.commit();
+        }
+        return path;
+    }
+    
+    private static void truncate(Path path, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+    
+    @Test
+    void reopenedRegionReturnsCommittedData() throws IOException {
+        byte[] small = payload(100, 1);
+        byte[] large = payload(3 * RegionFile.SECTOR_BYTES, 2);
+        Path path = writeRegion("r.0.0.rvr", small, large);
+        
+        try (RegionFile region = new RegionFile(path)) {
+            assertArrayEquals(small, region.read(0, 0));
+            assertArrayEquals(large, region.read(1, 0));
+            assertNull(region.read(2, 0));
+            assertEquals(0, region.getRecoveredEntries());
+        }
+    }
+    
+    @Test
+    void truncatedMidChunkDropsOnlyThatChunk() throws IOException {
+        byte[] small = payload(100, 1);
+        byte[] large = payload(3 * RegionFile.SECTOR_BYTES, 2);
+        Path path = writeRegion("r.0.0.rvr", small, large);
+        
+        // Середина второго сектора большого чанка, не на границе сектора
+        long cut = (RegionFile.HEADER_SECTORS + 2L) * RegionFile.SECTOR_BYTES + 1000;
+        truncate(path, cut);
+        try (RegionFile region = new RegionFile(path)) {
+            assertArrayEquals(small, region.read(0, 0));
+            assertNull(region.read(1, 0));
+        }
+        
+        // Обрезка внутри последнего сектора: запись проходит проверку при открытии, чтение - нет
+        byte[] filled = payload(4 * RegionFile.SECTOR_BYTES - 100, 3);
+        path = writeRegion("r.0.1.rvr", small, filled);
+        truncate(path, Files.size(path) - 1000);
+        try (RegionFile region = new RegionFile(path)) {
+            assertArrayEquals(small, region.read(0, 0));
+            assertNull(region.read(1, 0));
+        }
+    }
+    
+    @Test
+    void truncatedMidHeaderOpensEmpty() throws IOException {
+        byte[] small = payload(100, 1);
+        byte[] large = payload(3 * RegionFile.SECTOR_BYTES, 2);
+        long[] cuts = {
+            0,
+            100,
+            RegionFile.SECTOR_BYTES + 100,
+            RegionFile.HEADER_COPY_SECTORS * RegionFile.SECTOR_BYTES + 100
+        };
+        for (long cut : cuts) {
+            Path path = writeRegion("r." + cut + ".0.rvr", small, large);
+            truncate(path, cut);
+            try (RegionFile region = new RegionFile(path)) {
+                for (int x = 0; x < 2; x++) {
+                    assertFalse(region.contains(x, 0), "cut at " + cut);
+                    assertNull(region.read(x, 0), "cut at " + cut);
+                }
+                // Регион после восстановления снова пригоден для записи
+                region.write(0, 0, small, small.length);
+                region.commit();
+            }
+            try (RegionFile region = new RegionFile(path)) {
+                assertArrayEquals(small, region.read(0, 0), "cut at " + cut);
+            }
+        }
+    }
+    
+    @Test
+    void tornHeaderFallsBackToPreviousCopy() throws IOException {
+        Path path = directory.resolve("r.0.0.rvr");
+        byte[] first = payload(200, 1);
+        byte[] second = payload(300, 2);
+        try (RegionFile region = new RegionFile(path)) {
+            region.write(0, 0, first, first.length);
+            region.commit();
+            region.write(0, 0, second, second.length);
+            region.commit();
+        }
+        
+        // Вторая версия заголовка (копия 0) записана наполовину
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            ByteBuffer garbage = ByteBuffer.wrap(payload(RegionFile.SECTOR_BYTES, 3));
+            channel.write(garbage, RegionFile.SECTOR_BYTES);
+        }
+        try (RegionFile region = new RegionFile(path)) {
+            assertArrayEquals(first, region.read(0, 0));
+            
+            // Следующий commit пишет поврежденную копию, целая остается
+            region.write(0, 0, second, second.length);
+            region.commit();
+        }
+        try (RegionFile region = new RegionFile(path)) {
+            assertArrayEquals(second, region.read(0, 0));
+        }
+    }
+    
+    @Test
+    void storageLoadsNothingFromTruncatedChunk() throws IOException {
+        Chunk chunk = new Chunk(3, 5);
+        Random random = new Random(4);
+        for (int x = 0; x < ChunkSection.SIZE; x++) {
+            for (int z = 0; z < ChunkSection.SIZE; z++) {
+                for (int y = 0; y < 64; y++) {
+                    chunk.setBlock(x, y, z, random.nextBoolean() ? Blocks.STONE_ID : Blocks.DIRT_ID);
+                }
+            }
+        }
+        ChunkCodec codec = new ChunkCodec();
+        try (RegionStorage storage = new RegionStorage(directory)) {
+            storage.write(chunk, codec);
+            storage.commit();
+        }
+        
+        Path path = directory.resolve("r.0.0.rvr");
+        long dataBytes = Files.size(path) - (long) RegionFile.HEADER_SECTORS * RegionFile.SECTOR_BYTES;
+        truncate(path, Files.size(path) - dataBytes / 2);
+        try (RegionStorage storage = new RegionStorage(directory)) {
+            assertNull(storage.read(3, 5, codec));
+        }
+        
+        try (RegionStorage storage = new RegionStorage(directory)) {
+            storage.write(chunk, codec);
+            storage.commit();
+        }
+        try (RegionStorage storage = new RegionStorage(directory)) {
+            Chunk loaded = storage.read(3, 5, codec);
+            assertNotNull(loaded);
+            assertEquals(chunk.getBlock(7, 20, 9), loaded.getBlock(7, 20, 9));
+        }
+    }
+}
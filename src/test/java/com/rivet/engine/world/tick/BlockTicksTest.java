@@ -0,0 +1,163 @@
+package com.rivet.engine.world.tick;
+
+import com.rivet.engine.world.Blocks;
+import com.rivet.engine.world.Chunk;
+import com.rivet.engine.world.World;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlockTicksTest {
+    
+    private static final long SEED = 46L;
+    private static final int Y = 3;
+    // Чанки -4..7 по X (регионы -1..1), 0..3 по Z
+    private static final int MIN_CHUNK_X = -4;
+    private static final int MAX_CHUNK_X = 7;
+    private static final int CHUNKS_Z = 4;
+    
+    /**
+     * Камень под слоем земли; трава только в последнем столбце региона 0 (x = 63)
+     * и пятнами на земле региона -1: в регион 1 она попадает только отложенной записью
+     */
+    private static World meadow() {
+        World world = new World();
+        for (int chunkX = MIN_CHUNK_X; chunkX <= MAX_CHUNK_X; chunkX++) {
+            for (int chunkZ = 0; chunkZ < CHUNKS_Z; chunkZ++) {
+                Chunk chunk = new Chunk(chunkX, chunkZ);
+                for (int x = 0; x < 16; x++) {
+                    for (int z = 0; z < 16; z++) {
+                        for (int y = 0; y < Y; y++) {
+                            chunk.setBlock(x, y, z, Blocks.STONE_ID);
+                        }
+                        chunk.setBlock(x, Y, z, Blocks.DIRT_ID);
+                    }
+                }
+                world.putChunk(chunk);
+            }
+        }
+        for (int z = 0; z < CHUNKS_Z * 16; z++) {
+            world.setBlock(63, Y, z, Blocks.GRASS_ID);
+            if (z % 7 == 0) {
+                world.setBlock(-30 + z % 5, Y, z, Blocks.GRASS_ID);
+            }
+        }
+        return world;
+    }
+    
+    private static BlockTicks attach(World world, int threads) {
+        BlockTicks ticks = new BlockTicks(world, SEED, threads, 48);
+        ticks.register(Blocks.GRASS_ID, new GrassTickHandler());
+        world.addBlockChangeListener(ticks);
+        world.addChunkListener(ticks);
+        // Чанки уже в мире: система узнает о секциях с травой как при загрузке
+        world.forEachChunk((key, chunk) -> ticks.onChunkLoaded(chunk));
+        return ticks;
+    }
+    
+    private static long hash(World world) {
+        long hash = 1125899906842597L;
+        for (int x = MIN_CHUNK_X * 16; x < (MAX_CHUNK_X + 1) * 16; x++) {
+            for (int z = 0; z < CHUNKS_Z * 16; z++) {
+                for (int y = 0; y <= Y + 1; y++) {
+                    hash = 31 * hash + world.getBlock(x, y, z);
+                }
+            }
+        }
+        return hash;
+    }
+    
+    private static int count(World world, int minX, int maxX, int id) {
+        int count = 0;
+        for (int x = minX; x < maxX; x++) {
+            for (int z = 0; z < CHUNKS_Z * 16; z++) {
+                if (world.getBlock(x, Y, z) == id) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * 120 тиков; на 40-м тике писатель кладет камни на траву по обе стороны границы регионов
+     */
+    private static World simulate(int threads) {
+        World world = meadow();
+        BlockTicks ticks = attach(world, threads);
+        try {
+            for (int tick = 1; tick <= 120; tick++) {
+                if (tick == 40) {
+                    for (int z = 0; z < CHUNKS_Z * 16; z += 3) {
+                        world.setBlock(63, Y + 1, z, Blocks.STONE_ID);
+                        world.setBlock(64, Y + 1, z + 1, Blocks.STONE_ID);
+                    }
+                }
+                ticks.update();
+            }
+            assertTrue(ticks.getActiveSectionCount() > 0);
+        } finally {
+            ticks.shutdown();
+        }
+        return world;
+    }
+    
+    @Test
+    void resultDoesNotDependOnThreadCount() {
+        World reference = simulate(1);
+        long expected = hash(reference);
+        // Трава перешла в регион 1 через отложенные записи
+        assertTrue(count(reference, 64, 128, Blocks.GRASS_ID) > 0);
+        assertTrue(count(reference, -64, 0, Blocks.GRASS_ID) > 10);
+        for (int threads : new int[] { 2, 4, 8 }) {
+            assertEquals(expected, hash(simulate(threads)), threads + " threads");
+        }
+    }
+    
+    @Test
+    void coveringGrassSchedulesConversionToDirt() {
+        World world = meadow();
+        BlockTicks ticks = new BlockTicks(world, SEED, 2, 0);
+        ticks.register(Blocks.GRASS_ID, new GrassTickHandler());
+        world.addBlockChangeListener(ticks);
+        world.addChunkListener(ticks);
+        try {
+            world.setBlock(63, Y + 1, 5, Blocks.STONE_ID);
+            assertEquals(1, ticks.getPendingTickCount());
+            // Тик назначен через 10 тиков
+            for (int i = 0; i < 9; i++) {
+                ticks.update();
+            }
+            assertEquals(Blocks.GRASS_ID, world.getBlock(63, Y, 5));
+            ticks.update();
+            assertEquals(Blocks.DIRT_ID, world.getBlock(63, Y, 5));
+            assertEquals(0, ticks.getPendingTickCount());
+            assertEquals(Blocks.GRASS_ID, world.getBlock(63, Y, 6));
+        } finally {
+            ticks.shutdown();
+        }
+    }
+    
+    @Test
+    void unloadedChunkDropsItsTicks() {
+        World world = meadow();
+        BlockTicks ticks = new BlockTicks(world, SEED, 1, 0);
+        ticks.register(Blocks.GRASS_ID, new GrassTickHandler());
+        world.addBlockChangeListener(ticks);
+        world.addChunkListener(ticks);
+        try {
+            world.setBlock(63, Y + 1, 5, Blocks.STONE_ID);
+            world.setBlock(64, Y + 1, 5, Blocks.STONE_ID);
+            assertEquals(1, ticks.getPendingTickCount());
+            world.unloadChunk(3, 0);
+            assertEquals(0, ticks.getPendingTickCount());
+            for (int i = 0; i < 20; i++) {
+                ticks.update();
+            }
+            assertEquals(0, ticks.getActiveSectionCount());
+        } finally {
+            ticks.shutdown();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.rivet.engine.world.tick;
+
+import com.rivet.engine.world.Blocks;
+import com.rivet.engine.world.Chunk;
+import com.rivet.engine.world.World;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GrassTickHandlerTest {
+    
+    /**
+     * Контекст поверх мира с заданной последовательностью случайных чисел
+     */
+    private static final class ScriptedContext implements TickContext {
+        final World world;
+        final int[] values;
+        int next = 0;
+        
+        ScriptedContext(World world, int... values) {
+            this.world = world;
+            this.values = values;
+        }
+        
+        @Override
+        public int getBlock(int x, int y, int z) {
+            return world.getBlock(x, y, z);
+        }
+        
+        @Override
+        public boolean setBlock(int x, int y, int z, int id) {
+            return world.setBlock(x, y, z, id);
+        }
+        
+        @Override
+        public void scheduleTick(int x, int y, int z, int delay) {
+        }
+        
+        @Override
+        public int nextInt(int bound) {
+            return values[next++ % values.length] % bound;
+        }
+        
+        @Override
+        public long getTick() {
+            return 0;
+        }
+    }
+    
+    private static final int Y = 4;
+    
+    /**
+     * Земля на y = 4 под воздухом, трава в (1, 4, 1)
+     */
+    private static World dirtField() {
+        World world = new World();
+        world.putChunk(new Chunk(0, 0));
+        for (int x = 0; x < 16; x++) {
+            for (int z = 0; z < 16; z++) {
+                world.setBlock(x, Y, z, Blocks.DIRT_ID);
+            }
+        }
+        world.setBlock(1, Y, 1, Blocks.GRASS_ID);
+        return world;
+    }
+    
+    @Test
+    void grassSpreadsToUncoveredDirt() {
+        World world = dirtField();
+        // Смещения: x + 1, y + 0, z + 0 (nextInt(3) - 1, nextInt(5) - 3, nextInt(3) - 1)
+        new GrassTickHandler().randomTick(new ScriptedContext(world, 2, 3, 1), 1, Y, 1);
+        assertEquals(Blocks.GRASS_ID, world.getBlock(2, Y, 1));
+        assertEquals(Blocks.DIRT_ID, world.getBlock(0, Y, 1));
+    }
+    
+    @Test
+    void grassDoesNotSpreadUnderOpaqueBlock() {
+        World world = dirtField();
+        world.setBlock(2, Y + 1, 1, Blocks.STONE_ID);
+        new GrassTickHandler().randomTick(new ScriptedContext(world, 2, 3, 1), 1, Y, 1);
+        assertEquals(Blocks.DIRT_ID, world.getBlock(2, Y, 1));
+        assertEquals(Blocks.GRASS_ID, world.getBlock(1, Y, 1));
+    }
+    
+    @Test
+    void coveredGrassTurnsToDirt() {
+        World world = dirtField();
+        world.setBlock(1, Y + 1, 1, Blocks.STONE_ID);
+        new GrassTickHandler().randomTick(new ScriptedContext(world, 2, 3, 1), 1, Y, 1);
+        assertEquals(Blocks.DIRT_ID, world.getBlock(1, Y, 1));
+        // Покрытая трава не распространяется
+        assertEquals(Blocks.DIRT_ID, world.getBlock(2, Y, 1));
+    }
+    
+    @Test
+    void scheduledTickChecksBlockAbove() {
+        World world = dirtField();
+        GrassTickHandler handler = new GrassTickHandler();
+        ScriptedContext context = new ScriptedContext(world, 0);
+        handler.scheduledTick(context, 1, Y, 1);
+        assertEquals(Blocks.GRASS_ID, world.getBlock(1, Y, 1));
+        
+        world.setBlock(1, Y + 1, 1, Blocks.DIRT_ID);
+        handler.scheduledTick(context, 1, Y, 1);
+        assertEquals(Blocks.DIRT_ID, world.getBlock(1, Y, 1));
+    }
+}
@@ -0,0 +1,85 @@
+package com.rivet.engine.world.tick;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SectionTicksTest {
+    
+    @Test
+    void blockWithPendingTickIsNotScheduledTwice() {
+        SectionTicks ticks = new SectionTicks(0, 0, 0);
+        assertTrue(ticks.schedule(10, 100));
+        // Более ранний тик тоже отбрасывается: у блока уже есть тик
+        assertFalse(ticks.schedule(5, 100));
+        assertFalse(ticks.schedule(10, 100));
+        assertTrue(ticks.schedule(10, 101));
+        assertEquals(2, ticks.size());
+        
+        assertFalse(ticks.hasDue(9));
+        assertTrue(ticks.hasDue(10));
+        assertEquals(100, ticks.poll());
+        // После выполнения блок снова можно планировать
+        assertTrue(ticks.schedule(12, 100));
+        assertEquals(2, ticks.size());
+    }
+    
+    @Test
+    void pollOrdersByTickThenIndex() {
+        SectionTicks ticks = new SectionTicks(1, 2, 3);
+        Random random = new Random(46);
+        List<long[]> expected = new ArrayList<>();
+        Set<Integer> used = new HashSet<>();
+        for (int i = 0; i < 2000; i++) {
+            int index = random.nextInt(4096);
+            long tick = 1 + random.nextInt(50);
+            if (used.add(index)) {
+                assertTrue(ticks.schedule(tick, index));
+                expected.add(new long[] { tick, index });
+            } else {
+                assertFalse(ticks.schedule(tick, index));
+            }
+        }
+        expected.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        
+        int polled = 0;
+        for (long tick = 1; tick <= 50; tick++) {
+            while (ticks.hasDue(tick)) {
+                long[] next = expected.get(polled++);
+                assertEquals(tick, next[0]);
+                assertEquals(next[1], ticks.poll());
+            }
+        }
+        assertEquals(expected.size(), polled);
+    }
+    
+    @Test
+    void pollingEveryTickEmptiesHeapAndClearsMask() {
+        SectionTicks ticks = new SectionTicks(0, 0, 0);
+        for (int index = 0; index < 4096; index++) {
+            assertTrue(ticks.schedule(4096 - index, index));
+        }
+        assertEquals(4096, ticks.size());
+        
+        int previous = Integer.MAX_VALUE;
+        while (!ticks.isEmpty()) {
+            // Тики назначены по убыванию индекса: индексы выходят по убыванию
+            int index = ticks.poll();
+            assertTrue(index < previous);
+            previous = index;
+        }
+        assertEquals(0, ticks.size());
+        assertFalse(ticks.hasDue(Long.MAX_VALUE >>> 12));
+        for (int index = 0; index < 4096; index++) {
+            assertTrue(ticks.schedule(1, index));
+        }
+    }
+}